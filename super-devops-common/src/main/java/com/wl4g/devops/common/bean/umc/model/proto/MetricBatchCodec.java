@@ -0,0 +1,319 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.common.bean.umc.model.proto;
+
+import static com.google.protobuf.CodedOutputStream.computeDoubleSize;
+import static com.google.protobuf.CodedOutputStream.computeInt64Size;
+import static com.google.protobuf.CodedOutputStream.computeTagSize;
+import static com.google.protobuf.CodedOutputStream.computeUInt32Size;
+import static com.google.protobuf.CodedOutputStream.computeUInt32SizeNoTag;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.wl4g.devops.common.bean.umc.model.proto.MetricModel.Metric;
+import com.wl4g.devops.common.bean.umc.model.proto.MetricModel.MetricAggregate;
+
+/**
+ * Codec of the dictionary encoded aggregates batch, wire compatible with the
+ * 'MetricBatch' message of metric_model.proto.</br>
+ * The classify, instance, metric names, tag keys and values are written once
+ * per batch, each metric then costs only a few bytes of indexes besides its
+ * value.
+ * 
+ * @author Wangl.sir <983708408@qq.com>
+ * @version v1.0 2019年9月17日
+ * @since
+ */
+public abstract class MetricBatchCodec {
+
+	/** MetricBatch fields. */
+	final private static int BATCH_DICTIONARY = 1;
+	final private static int BATCH_AGGREGATES = 2;
+
+	/** EncodedAggregate fields. */
+	final private static int AGGREGATE_CLASSIFY = 1;
+	final private static int AGGREGATE_INSTANCE = 2;
+	final private static int AGGREGATE_NAMESPACE = 3;
+	final private static int AGGREGATE_TIMESTAMP = 4;
+	final private static int AGGREGATE_METRICS = 5;
+
+	/** EncodedMetric fields. */
+	final private static int METRIC_NAME = 1;
+	final private static int METRIC_TAGS = 2;
+	final private static int METRIC_VALUE = 3;
+
+	final private static int WIRETYPE_VARINT = 0;
+	final private static int WIRETYPE_FIXED64 = 1;
+	final private static int WIRETYPE_LENGTH_DELIMITED = 2;
+
+	/**
+	 * Encode aggregates to the batch message.
+	 * 
+	 * @param aggregates
+	 * @return
+	 */
+	public static byte[] encode(List<MetricAggregate> aggregates) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(256 + aggregates.size() * 64);
+		try {
+			encode(aggregates, out);
+		} catch (IOException e) {
+			throw new IllegalStateException(e); // Never happen
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Encode aggregates to the batch message.
+	 * 
+	 * @param aggregates
+	 * @param output
+	 * @throws IOException
+	 */
+	public static void encode(List<MetricAggregate> aggregates, OutputStream output) throws IOException {
+		// Pass 1: Intern strings, indexes of aggregate: {classify, instance,
+		// namespace}, and of metric: {name, key1, value1, key2, value2...}
+		Map<String, Integer> dict = new HashMap<>();
+		List<String> strings = new ArrayList<>();
+		intern("", dict, strings);
+		int[][][] indexes = new int[aggregates.size()][][];
+		for (int i = 0; i < indexes.length; i++) {
+			MetricAggregate aggregate = aggregates.get(i);
+			int[][] idx = new int[aggregate.getMetricsCount() + 1][];
+			idx[0] = new int[] { intern(aggregate.getClassify(), dict, strings), intern(aggregate.getInstance(), dict, strings),
+					intern(aggregate.getNamespace(), dict, strings) };
+			for (int j = 0; j < aggregate.getMetricsCount(); j++) {
+				Metric metric = aggregate.getMetrics(j);
+				int[] m = new int[1 + metric.getTagsCount() * 2];
+				m[0] = intern(metric.getMetric(), dict, strings);
+				int k = 1;
+				for (Entry<String, String> tag : metric.getTagsMap().entrySet()) {
+					m[k++] = intern(tag.getKey(), dict, strings);
+					m[k++] = intern(tag.getValue(), dict, strings);
+				}
+				idx[j + 1] = m;
+			}
+			indexes[i] = idx;
+		}
+
+		// Pass 2: Write dictionary and then aggregates.
+		CodedOutputStream out = CodedOutputStream.newInstance(output, 4096);
+		for (String s : strings) {
+			out.writeString(BATCH_DICTIONARY, s);
+		}
+		for (int i = 0; i < indexes.length; i++) {
+			MetricAggregate aggregate = aggregates.get(i);
+			int[][] idx = indexes[i];
+			int[] metricSizes = new int[idx.length - 1];
+			int size = uint32Size(AGGREGATE_CLASSIFY, idx[0][0]) + uint32Size(AGGREGATE_INSTANCE, idx[0][1])
+					+ uint32Size(AGGREGATE_NAMESPACE, idx[0][2])
+					+ (aggregate.getTimestamp() != 0 ? computeInt64Size(AGGREGATE_TIMESTAMP, aggregate.getTimestamp()) : 0);
+			for (int j = 0; j < metricSizes.length; j++) {
+				metricSizes[j] = metricSize(idx[j + 1], aggregate.getMetrics(j).getValue());
+				size += computeTagSize(AGGREGATE_METRICS) + computeUInt32SizeNoTag(metricSizes[j]) + metricSizes[j];
+			}
+
+			out.writeTag(BATCH_AGGREGATES, WIRETYPE_LENGTH_DELIMITED);
+			out.writeUInt32NoTag(size);
+			writeUInt32(out, AGGREGATE_CLASSIFY, idx[0][0]);
+			writeUInt32(out, AGGREGATE_INSTANCE, idx[0][1]);
+			writeUInt32(out, AGGREGATE_NAMESPACE, idx[0][2]);
+			if (aggregate.getTimestamp() != 0) {
+				out.writeInt64(AGGREGATE_TIMESTAMP, aggregate.getTimestamp());
+			}
+			for (int j = 0; j < metricSizes.length; j++) {
+				out.writeTag(AGGREGATE_METRICS, WIRETYPE_LENGTH_DELIMITED);
+				out.writeUInt32NoTag(metricSizes[j]);
+				writeMetric(out, idx[j + 1], aggregate.getMetrics(j).getValue());
+			}
+		}
+		out.flush();
+	}
+
+	/**
+	 * Decode aggregates of the batch message.
+	 * 
+	 * @param data
+	 * @return
+	 * @throws InvalidProtocolBufferException
+	 */
+	public static List<MetricAggregate> decode(byte[] data) throws InvalidProtocolBufferException {
+		try {
+			CodedInputStream in = CodedInputStream.newInstance(data);
+			List<String> dict = new ArrayList<>();
+			// The dictionary may be written after aggregates by other encoders.
+			List<ByteString> raws = new ArrayList<>();
+			for (int tag; (tag = in.readTag()) != 0;) {
+				if (fieldOf(tag) == BATCH_DICTIONARY && wireTypeOf(tag) == WIRETYPE_LENGTH_DELIMITED) {
+					dict.add(in.readStringRequireUtf8());
+				} else if (fieldOf(tag) == BATCH_AGGREGATES && wireTypeOf(tag) == WIRETYPE_LENGTH_DELIMITED) {
+					raws.add(in.readBytes());
+				} else {
+					in.skipField(tag);
+				}
+			}
+
+			List<MetricAggregate> aggregates = new ArrayList<>(raws.size());
+			for (ByteString raw : raws) {
+				aggregates.add(decodeAggregate(raw.newCodedInput(), dict));
+			}
+			return aggregates;
+		} catch (InvalidProtocolBufferException e) {
+			throw e;
+		} catch (IOException e) {
+			throw new InvalidProtocolBufferException(e.getMessage());
+		}
+	}
+
+	private static MetricAggregate decodeAggregate(CodedInputStream in, List<String> dict) throws IOException {
+		MetricAggregate.Builder aggregate = MetricAggregate.newBuilder();
+		for (int tag; (tag = in.readTag()) != 0;) {
+			int field = fieldOf(tag), wireType = wireTypeOf(tag);
+			if (field == AGGREGATE_CLASSIFY && wireType == WIRETYPE_VARINT) {
+				aggregate.setClassify(lookup(dict, in.readUInt32()));
+			} else if (field == AGGREGATE_INSTANCE && wireType == WIRETYPE_VARINT) {
+				aggregate.setInstance(lookup(dict, in.readUInt32()));
+			} else if (field == AGGREGATE_NAMESPACE && wireType == WIRETYPE_VARINT) {
+				aggregate.setNamespace(lookup(dict, in.readUInt32()));
+			} else if (field == AGGREGATE_TIMESTAMP && wireType == WIRETYPE_VARINT) {
+				aggregate.setTimestamp(in.readInt64());
+			} else if (field == AGGREGATE_METRICS && wireType == WIRETYPE_LENGTH_DELIMITED) {
+				int oldLimit = in.pushLimit(in.readRawVarint32());
+				aggregate.addMetrics(decodeMetric(in, dict));
+				in.popLimit(oldLimit);
+			} else {
+				in.skipField(tag);
+			}
+		}
+		return aggregate.build();
+	}
+
+	private static Metric decodeMetric(CodedInputStream in, List<String> dict) throws IOException {
+		Metric.Builder metric = Metric.newBuilder();
+		List<Integer> tags = new ArrayList<>();
+		for (int tag; (tag = in.readTag()) != 0;) {
+			int field = fieldOf(tag), wireType = wireTypeOf(tag);
+			if (field == METRIC_NAME && wireType == WIRETYPE_VARINT) {
+				metric.setMetric(lookup(dict, in.readUInt32()));
+			} else if (field == METRIC_TAGS && wireType == WIRETYPE_LENGTH_DELIMITED) { // Packed
+				int oldLimit = in.pushLimit(in.readRawVarint32());
+				while (in.getBytesUntilLimit() > 0) {
+					tags.add(in.readUInt32());
+				}
+				in.popLimit(oldLimit);
+			} else if (field == METRIC_TAGS && wireType == WIRETYPE_VARINT) {
+				tags.add(in.readUInt32());
+			} else if (field == METRIC_VALUE && wireType == WIRETYPE_FIXED64) {
+				metric.setValue(in.readDouble());
+			} else {
+				in.skipField(tag);
+			}
+		}
+		if ((tags.size() & 1) != 0) {
+			throw new InvalidProtocolBufferException("Unpaired metric tags of size: " + tags.size());
+		}
+		for (int i = 0; i < tags.size(); i += 2) {
+			metric.putTags(lookup(dict, tags.get(i)), lookup(dict, tags.get(i + 1)));
+		}
+		return metric.build();
+	}
+
+	private static int metricSize(int[] m, double value) {
+		int size = uint32Size(METRIC_NAME, m[0]);
+		if (m.length > 1) {
+			int packed = packedSize(m);
+			size += computeTagSize(METRIC_TAGS) + computeUInt32SizeNoTag(packed) + packed;
+		}
+		if (Double.doubleToRawLongBits(value) != 0) {
+			size += computeDoubleSize(METRIC_VALUE, value);
+		}
+		return size;
+	}
+
+	private static void writeMetric(CodedOutputStream out, int[] m, double value) throws IOException {
+		writeUInt32(out, METRIC_NAME, m[0]);
+		if (m.length > 1) {
+			out.writeTag(METRIC_TAGS, WIRETYPE_LENGTH_DELIMITED);
+			out.writeUInt32NoTag(packedSize(m));
+			for (int k = 1; k < m.length; k++) {
+				out.writeUInt32NoTag(m[k]);
+			}
+		}
+		if (Double.doubleToRawLongBits(value) != 0) {
+			out.writeDouble(METRIC_VALUE, value);
+		}
+	}
+
+	/**
+	 * Size of packed tag indexes(excluding the metric name).
+	 */
+	private static int packedSize(int[] m) {
+		int size = 0;
+		for (int k = 1; k < m.length; k++) {
+			size += computeUInt32SizeNoTag(m[k]);
+		}
+		return size;
+	}
+
+	/**
+	 * Proto3 default value(0) is not written.
+	 */
+	private static int uint32Size(int field, int value) {
+		return value != 0 ? computeUInt32Size(field, value) : 0;
+	}
+
+	private static void writeUInt32(CodedOutputStream out, int field, int value) throws IOException {
+		if (value != 0) {
+			out.writeUInt32(field, value);
+		}
+	}
+
+	private static int intern(String s, Map<String, Integer> dict, List<String> strings) {
+		Integer index = dict.get(s);
+		if (index == null) {
+			index = strings.size();
+			dict.put(s, index);
+			strings.add(s);
+		}
+		return index;
+	}
+
+	private static String lookup(List<String> dict, int index) throws InvalidProtocolBufferException {
+		if (index < 0 || index >= dict.size()) {
+			throw new InvalidProtocolBufferException("Illegal dictionary index: " + index);
+		}
+		return dict.get(index);
+	}
+
+	private static int fieldOf(int tag) {
+		return tag >>> 3;
+	}
+
+	private static int wireTypeOf(int tag) {
+		return tag & 7;
+	}
+
+}
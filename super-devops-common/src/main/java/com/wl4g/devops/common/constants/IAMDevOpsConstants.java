@@ -139,6 +139,11 @@ public abstract class IAMDevOpsConstants extends DevOpsConstants {
 	 * IAM server authentication session stored cache name.
 	 */
 	final public static String CACHE_SESSION = "session_";
+	/**
+	 * IAM session ids index by principal cache name(must not be matched by
+	 * the {@link #CACHE_SESSION} scanning pattern).
+	 */
+	final public static String CACHE_PRINCIPAL_SESSIONS = "principal_sessions_";
 	/**
 	 * IAM server authentication authorization information storage cache name.
 	 */
@@ -180,6 +185,14 @@ public abstract class IAMDevOpsConstants extends DevOpsConstants {
 	 * The key of cache encryption key pairs
 	 */
 	final public static String KEY_KEYPAIRS = "keypairs";
+	/**
+	 * The key of current encryption key pairs version
+	 */
+	final public static String KEY_KEYPAIRS_VERSION = "keypairs_version";
+	/**
+	 * The channel of encryption key pairs rotation messages
+	 */
+	final public static String KEY_CHANNEL_KEYPAIRS_ROTATED = "iam_channel_keypairs";
 	/**
 	 * Token used to save current session authenticating
 	 */
@@ -42,6 +42,18 @@ public abstract class UMCDevOpsConstants extends DevOpsConstants {
 	/** HTTP receiver metric end-point URI.(corresponding to agent collector) */
 	final public static String URI_HTTP_RECEIVER_ENDPOINT = "metric";
 
+	/**
+	 * HTTP receiver streaming metrics end-point URI, the body is a stream of
+	 * length-delimited aggregates.(corresponding to agent collector)
+	 */
+	final public static String URI_HTTP_RECEIVER_STREAM_ENDPOINT = "metrics";
+
+	/**
+	 * HTTP receiver batch end-point URI, the body is a stream of
+	 * length-delimited MetricBatch.(corresponding to client reporter)
+	 */
+	final public static String URI_HTTP_RECEIVER_BATCH_ENDPOINT = "batch";
+
 	//
 	// UMC alarm definition.
 	//
@@ -51,6 +63,17 @@ public abstract class UMCDevOpsConstants extends DevOpsConstants {
 	 */
 	final public static String KEY_CACHE_ALARM_TPLS = "umc_alarm_tpls_";
 
+	/**
+	 * UMC alarm templates global version key, increased on each change.
+	 */
+	final public static String KEY_CACHE_ALARM_TPLS_VERSION = "umc_alarm_version_tpls";
+
+	/**
+	 * UMC alarm templates invalidation channel, the message is collectId or
+	 * '*' for all.
+	 */
+	final public static String KEY_CHANNEL_ALARM_TPLS_INVALIDATE = "umc_alarm_channel_tpls";
+
 	/**
 	 * UMC alarm metric value in time window queue key prefix.
 	 */
@@ -3,6 +3,7 @@ package com.wl4g.devops.dao.umc;
 import com.wl4g.devops.common.bean.umc.AlarmCollector;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.Date;
 import java.util.List;
 
 public interface AlarmCollectorDao {
@@ -19,4 +20,6 @@ public interface AlarmCollectorDao {
     int updateByPrimaryKey(AlarmCollector record);
 
     List<AlarmCollector> list(@Param("name") String name, @Param("addr") String addr);
+
+    List<AlarmCollector> listChanged(@Param("since") Date since);
 }
\ No newline at end of file
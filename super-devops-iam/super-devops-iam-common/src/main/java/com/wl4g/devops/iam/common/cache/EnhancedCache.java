@@ -15,6 +15,9 @@
  */
 package com.wl4g.devops.iam.common.cache;
 
+import java.util.List;
+import java.util.Map;
+
 import org.apache.shiro.cache.Cache;
 import org.apache.shiro.cache.CacheException;
 
@@ -92,4 +95,21 @@ public interface EnhancedCache extends Cache<EnhancedKey, Object> {
 	 */
 	public boolean putIfAbsent(final EnhancedKey key, final Object value);
 
+	/**
+	 * Get the values of keys in batch.
+	 * 
+	 * @param keys
+	 * @return Values of corresponding keys, null if not exist.
+	 * @throws CacheException
+	 */
+	List<Object> getAll(final List<EnhancedKey> keys) throws CacheException;
+
+	/**
+	 * Put the values in batch, the expiration of each key is applied.
+	 * 
+	 * @param values
+	 * @throws CacheException
+	 */
+	void putAll(final Map<EnhancedKey, Object> values) throws CacheException;
+
 }
\ No newline at end of file
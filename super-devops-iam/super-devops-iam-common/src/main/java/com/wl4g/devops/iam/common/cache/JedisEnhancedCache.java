@@ -15,8 +15,16 @@
  */
 package com.wl4g.devops.iam.common.cache;
 
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import org.apache.shiro.cache.CacheException;
 import org.apache.shiro.util.Assert;
@@ -25,27 +33,74 @@ import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Charsets;
 import com.wl4g.devops.common.utils.serialize.ProtostuffUtils;
+import com.wl4g.devops.support.cache.ClusterPipelineExecutor;
+import com.wl4g.devops.support.cache.ClusterPipelineExecutor.PipelineCommand;
+import com.wl4g.devops.support.cache.ScanCursor;
 
 import redis.clients.jedis.JedisCluster;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.ScanParams;
 
 /**
- * REDIS enhanced implement cache
- * 
+ * REDIS enhanced implement cache.</br>
+ * Each entry is a key prefixed by the cache name and the
+ * {@link #NAMESPACE_DELIMITER}, so the entries expire individually. The size,
+ * keys and clear scan the keys of the namespace on all master nodes, it never
+ * matches another cache whose name shares the prefix(e.g. 'securer_' and
+ * 'securer_pubkey_idx_'), since the names must not contain the delimiter. The
+ * counters and the time to live are one LUA script(one round trip, atomic),
+ * and the batch get/put are pipelined by cluster node.
+ *
  * @author Wangl.sir <983708408@qq.com>
  * @version v1.0
  * @date 2018年11月30日
  * @since
  */
 public class JedisEnhancedCache implements EnhancedCache {
+
+	/**
+	 * KEYS: counter</br>
+	 * ARGV: incrBy, expireMs(negative for unchanged)</br>
+	 * Returns the counter incremented.
+	 */
+	final private static byte[] SCRIPT_INCR = ("local v = redis.call('incrby', KEYS[1], ARGV[1]) "
+			+ "if tonumber(ARGV[2]) >= 0 then redis.call('pexpire', KEYS[1], ARGV[2]) end return v").getBytes(Charsets.UTF_8);
+
+	/**
+	 * KEYS: key</br>
+	 * ARGV: value, expireSec(negative for unchanged)</br>
+	 * Sets the value if not exist, returns the TTL(seconds) before the
+	 * expiration is renewed.
+	 */
+	final private static byte[] SCRIPT_TTL = ("redis.call('set', KEYS[1], ARGV[1], 'NX') "
+			+ "local ttl = redis.call('ttl', KEYS[1]) "
+			+ "if tonumber(ARGV[2]) >= 0 then redis.call('expire', KEYS[1], ARGV[2]) end return ttl").getBytes(Charsets.UTF_8);
+
+	/**
+	 * Keys per scan.
+	 */
+	final private static int SCAN_BATCH = 500;
+
+	/**
+	 * Delimiter between the cache name and the entry key.
+	 */
+	final public static String NAMESPACE_DELIMITER = ":";
+
 	final private Logger log = LoggerFactory.getLogger(JedisEnhancedCache.class);
 	private String name;
+	private String namespace;
 	private JedisCluster jedisCluster;
+	private ClusterPipelineExecutor pipelineExecutor;
 
 	public JedisEnhancedCache(String name, JedisCluster jedisCluster) {
 		this.name = name;
 		this.jedisCluster = jedisCluster;
 		Assert.notNull(name, "'name' must not be null");
+		Assert.isTrue(!name.contains(NAMESPACE_DELIMITER), "'name' must not contain '" + NAMESPACE_DELIMITER + "'");
 		Assert.notNull(jedisCluster, "'jedisCluster' must not be null");
+		this.namespace = name + NAMESPACE_DELIMITER;
+		this.pipelineExecutor = new ClusterPipelineExecutor(jedisCluster);
 	}
 
 	@Override
@@ -56,12 +111,7 @@ public class JedisEnhancedCache implements EnhancedCache {
 			log.debug("Get key={}", key);
 		}
 
-		byte[] data = jedisCluster.get(key.getKey(name));
-		if (key.getDeserializer() != null) { // Using a custom deserializer
-			return key.getDeserializer().deserialize(data, key.getValueClass());
-		}
-
-		return ProtostuffUtils.deserialize(data, key.getValueClass());
+		return deserialize(key, jedisCluster.get(key.getKey(namespace)));
 	}
 
 	@Override
@@ -72,18 +122,12 @@ public class JedisEnhancedCache implements EnhancedCache {
 			log.debug("Put key={}, value={}", key, value);
 		}
 
-		byte[] data = null;
-		if (key.getSerializer() != null) { // Using a custom serializer
-			data = key.getSerializer().serialize(value);
-		} else {
-			data = ProtostuffUtils.serialize(value);
-		}
-
+		byte[] data = serialize(key, value);
 		String ret = null;
 		if (key.hasExpire()) {
-			ret = jedisCluster.setex(key.getKey(name), key.getExpire(), data);
+			ret = jedisCluster.setex(key.getKey(namespace), key.getExpire(), data);
 		} else {
-			ret = jedisCluster.set(key.getKey(name), data);
+			ret = jedisCluster.set(key.getKey(namespace), data);
 		}
 		return String.valueOf(ret).equalsIgnoreCase("nil") ? null : ret;
 	}
@@ -94,7 +138,7 @@ public class JedisEnhancedCache implements EnhancedCache {
 		if (log.isDebugEnabled()) {
 			log.debug("Remove key={}", key);
 		}
-		return jedisCluster.del(key.getKey(name));
+		return jedisCluster.del(key.getKey(namespace));
 	}
 
 	@Override
@@ -102,7 +146,17 @@ public class JedisEnhancedCache implements EnhancedCache {
 		if (log.isDebugEnabled()) {
 			log.debug("Clear name={}", name);
 		}
-		jedisCluster.hdel(name);
+		scanKeys(keys -> pipelineExecutor.execute(keys, new PipelineCommand<Long>() {
+			@Override
+			public Response<Long> pipelined(Pipeline pipeline, byte[] key, int index) {
+				return pipeline.del(key);
+			}
+
+			@Override
+			public Long single(JedisCluster cluster, byte[] key, int index) {
+				return cluster.del(key);
+			}
+		}));
 	}
 
 	@Override
@@ -110,58 +164,107 @@ public class JedisEnhancedCache implements EnhancedCache {
 		if (log.isDebugEnabled()) {
 			log.debug("Size name={}", name);
 		}
-		return jedisCluster.hlen(name).intValue();
+		int[] size = { 0 };
+		scanKeys(keys -> size[0] += keys.size());
+		return size[0];
 	}
 
-	@Deprecated
 	@Override
 	public Set<EnhancedKey> keys() {
-		// if (log.isDebugEnabled()) {
-		// log.debug("Keys name={}", name);
-		// }
-		// Set<byte[]> keys = jedisCluster.hkeys(name);
-		// if (keys != null && !keys.isEmpty()) {
-		// return keys.stream().map(key -> new
-		// EnhancedKey(key)).collect(Collectors.toSet());
-		// }
-		// return Collections.emptySet();
-		throw new UnsupportedOperationException();
+		if (log.isDebugEnabled()) {
+			log.debug("Keys name={}", name);
+		}
+		Set<EnhancedKey> result = new HashSet<>();
+		scanKeys(keys -> {
+			for (byte[] key : keys) {
+				result.add(new EnhancedKey(new String(key, Charsets.UTF_8).substring(namespace.length())));
+			}
+		});
+		return result;
 	}
 
+	/**
+	 * Values can't be deserialized without the value class of keys, use
+	 * {@link #keys()} and {@link #getAll(List)} instead.
+	 */
 	@Deprecated
 	@Override
 	public Collection<Object> values() {
-		// if (log.isDebugEnabled()) {
-		// log.debug("Values name={}", name);
-		// }
-		// Collection<byte[]> vals = jedisCluster.hvals(name);
-		// if (vals != null && !vals.isEmpty()) {
-		// return vals.stream().collect(Collectors.toList());
-		// }
-		// return Collections.emptyList();
 		throw new UnsupportedOperationException();
 	}
 
 	@Override
-	public Long timeToLive(EnhancedKey key, Object value) throws CacheException {
-		Assert.notNull(value, "TTL key is null, please check configure");
-		Assert.notNull(value, "TTL value is null, please check configure");
+	public List<Object> getAll(final List<EnhancedKey> keys) throws CacheException {
+		Assert.notNull(keys, "'keys' must not be null");
+		if (log.isDebugEnabled()) {
+			log.debug("Get keys={}", keys);
+		}
 
-		byte[] realKey = key.getKey(name);
-		// New create.
-		if (!jedisCluster.exists(realKey)) {
-			// key -> createTime
-			jedisCluster.set(realKey, String.valueOf(value).getBytes(Charsets.UTF_8));
+		List<byte[]> realKeys = new ArrayList<>(keys.size());
+		for (EnhancedKey key : keys) {
+			Assert.notNull(key.getValueClass(), "'valueClass' must not be null");
+			realKeys.add(key.getKey(namespace));
 		}
+		List<byte[]> data = pipelineExecutor.execute(realKeys, new PipelineCommand<byte[]>() {
+			@Override
+			public Response<byte[]> pipelined(Pipeline pipeline, byte[] key, int index) {
+				return pipeline.get(key);
+			}
 
-		// Get last TTL expire
-		Long lastTTL = jedisCluster.ttl(realKey);
-		// Less than or equal to 0 means immediate expiration
-		if (key.hasExpire()) {
-			jedisCluster.expire(realKey, key.getExpire());
+			@Override
+			public byte[] single(JedisCluster cluster, byte[] key, int index) {
+				return cluster.get(key);
+			}
+		});
+
+		List<Object> values = new ArrayList<>(data.size());
+		for (int i = 0; i < data.size(); i++) {
+			values.add(deserialize(keys.get(i), data.get(i)));
+		}
+		return values;
+	}
+
+	@Override
+	public void putAll(final Map<EnhancedKey, Object> values) throws CacheException {
+		Assert.notNull(values, "'values' must not be null");
+		if (log.isDebugEnabled()) {
+			log.debug("Put values={}", values);
+		}
+
+		List<EnhancedKey> keys = new ArrayList<>(values.keySet());
+		List<byte[]> realKeys = new ArrayList<>(keys.size());
+		List<byte[]> data = new ArrayList<>(keys.size());
+		for (EnhancedKey key : keys) {
+			Object value = values.get(key);
+			Assert.notNull(value, "'value' must not be null");
+			realKeys.add(key.getKey(namespace));
+			data.add(serialize(key, value));
 		}
+		pipelineExecutor.execute(realKeys, new PipelineCommand<String>() {
+			@Override
+			public Response<String> pipelined(Pipeline pipeline, byte[] key, int index) {
+				EnhancedKey k = keys.get(index);
+				return k.hasExpire() ? pipeline.setex(key, k.getExpire(), data.get(index)) : pipeline.set(key, data.get(index));
+			}
+
+			@Override
+			public String single(JedisCluster cluster, byte[] key, int index) {
+				EnhancedKey k = keys.get(index);
+				return k.hasExpire() ? cluster.setex(key, k.getExpire(), data.get(index)) : cluster.set(key, data.get(index));
+			}
+		});
+	}
+
+	@Override
+	public Long timeToLive(EnhancedKey key, Object value) throws CacheException {
+		Assert.notNull(key, "TTL key is null, please check configure");
+		Assert.notNull(value, "TTL value is null, please check configure");
 
-		return lastTTL;
+		// Less than or equal to 0 means immediate expiration
+		String expire = String.valueOf(key.hasExpire() ? key.getExpire() : -1);
+		Object ttl = jedisCluster.eval(SCRIPT_TTL, singletonList(key.getKey(namespace)),
+				asList(String.valueOf(value).getBytes(Charsets.UTF_8), expire.getBytes(Charsets.UTF_8)));
+		return (Long) ttl;
 	}
 
 	@Override
@@ -171,14 +274,12 @@ public class JedisEnhancedCache implements EnhancedCache {
 
 	@Override
 	public Long incrementGet(EnhancedKey key, long incrBy) throws CacheException {
-		byte[] realKey = key.getKey(name);
-		// Increment
-		Long res = jedisCluster.incrBy(key.getKey(name), incrBy);
+		Assert.notNull(key, "'key' must not be null");
 		// Less than or equal to 0 means immediate expiration
-		if (key.hasExpire()) {
-			jedisCluster.expire(realKey, key.getExpire());
-		}
-		return res;
+		String expireMs = String.valueOf(key.hasExpire() ? key.getExpireMs() : -1);
+		Object res = jedisCluster.eval(SCRIPT_INCR, singletonList(key.getKey(namespace)),
+				asList(String.valueOf(incrBy).getBytes(Charsets.UTF_8), expireMs.getBytes(Charsets.UTF_8)));
+		return (Long) res;
 	}
 
 	@Override
@@ -188,14 +289,7 @@ public class JedisEnhancedCache implements EnhancedCache {
 
 	@Override
 	public Long decrementGet(EnhancedKey key, long decrBy) throws CacheException {
-		byte[] realKey = key.getKey(name);
-		// Decrement
-		Long res = jedisCluster.decr(realKey);
-		// Less than or equal to 0 means immediate expiration
-		if (key.hasExpire()) {
-			jedisCluster.expire(realKey, key.getExpire());
-		}
-		return res;
+		return incrementGet(key, -decrBy);
 	}
 
 	@Override
@@ -206,17 +300,58 @@ public class JedisEnhancedCache implements EnhancedCache {
 			log.debug("Put key={}, value={}", key, value);
 		}
 
-		byte[] data = null;
+		byte[] data = serialize(key, value);
+		if (key.hasExpire()) {
+			return jedisCluster.set(key.getKey(namespace), data, NXXX, EXPX, key.getExpireMs()) != null;
+		}
+		Long res = jedisCluster.setnx(key.getKey(namespace), data);
+		return res != null && res == 1L;
+	}
+
+	private byte[] serialize(EnhancedKey key, Object value) {
 		if (key.getSerializer() != null) { // Using a custom serializer
-			data = key.getSerializer().serialize(value);
-		} else {
-			data = ProtostuffUtils.serialize(value);
+			return key.getSerializer().serialize(value);
 		}
+		return ProtostuffUtils.serialize(value);
+	}
 
-		if (key.hasExpire()) {
-			return jedisCluster.set(key.getKey(name), data, NXXX, EXPX, key.getExpireMs()) != null;
+	private Object deserialize(EnhancedKey key, byte[] data) {
+		if (key.getDeserializer() != null) { // Using a custom deserializer
+			return key.getDeserializer().deserialize(data, key.getValueClass());
+		}
+		return ProtostuffUtils.deserialize(data, key.getValueClass());
+	}
+
+	/**
+	 * Scan the keys of this cache on all master nodes, batch by batch.
+	 *
+	 * @param consumer
+	 */
+	private void scanKeys(Consumer<List<byte[]>> consumer) {
+		byte[] match = (escapePattern(namespace) + "*").getBytes(Charsets.UTF_8);
+		ScanParams params = new ScanParams().count(SCAN_BATCH).match(match);
+		ScanCursor<byte[]> cursor = new ScanCursor<byte[]>(jedisCluster, byte[].class, params) {
+		}.open();
+		while (cursor.hasNext()) {
+			consumer.accept(cursor.readKeys());
+		}
+	}
+
+	/**
+	 * Escape the glob-style pattern characters.
+	 *
+	 * @param str
+	 * @return
+	 */
+	private static String escapePattern(String str) {
+		StringBuilder pattern = new StringBuilder(str.length() + 4);
+		for (char c : str.toCharArray()) {
+			if (c == '*' || c == '?' || c == '[' || c == ']' || c == '\\') {
+				pattern.append('\\');
+			}
+			pattern.append(c);
 		}
-		return jedisCluster.setnx(key.getKey(name), data) != null;
+		return pattern.toString();
 	}
 
-}
\ No newline at end of file
+}
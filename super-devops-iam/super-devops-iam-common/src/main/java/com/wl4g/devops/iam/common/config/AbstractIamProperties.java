@@ -179,6 +179,14 @@ public abstract class AbstractIamProperties<P extends ParamProperties> implement
 		 */
 		private Long sessionValidationInterval = 300_000L;
 
+		/**
+		 * Touches(only last access time changed) of a session within the
+		 * interval(ms) since it was last persisted are not written, an idle
+		 * session may be considered expired up to the interval early. 0 means
+		 * every touch is written.
+		 */
+		private Long touchCoalescingInterval = 10_000L;
+
 		/**
 		 * {@link org.apache.shiro.web.session.mgt.DefaultWebSessionManager#setSessionIdUrlRewritingEnabled}
 		 * EG:http://domain/project/index;JSESSIONID=e5cdc1582aa849a8b36aa4d161e5cd97
@@ -209,6 +217,14 @@ public abstract class AbstractIamProperties<P extends ParamProperties> implement
 			this.sessionValidationInterval = sessionValidationInterval;
 		}
 
+		public Long getTouchCoalescingInterval() {
+			return touchCoalescingInterval;
+		}
+
+		public void setTouchCoalescingInterval(Long touchCoalescingInterval) {
+			this.touchCoalescingInterval = touchCoalescingInterval;
+		}
+
 		public boolean isUrlRewriting() {
 			return urlRewriting;
 		}
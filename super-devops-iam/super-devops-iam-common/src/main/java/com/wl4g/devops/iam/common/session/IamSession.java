@@ -24,7 +24,9 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.apache.shiro.session.ExpiredSessionException;
@@ -103,6 +105,44 @@ public class IamSession implements ValidatingSession, Serializable {
 	private String host;
 	private Map<Object, Object> attributes;
 
+	/**
+	 * Persistence state(not serialized), keys of the attributes set or removed
+	 * since the session was loaded or persisted.
+	 */
+	private transient Set<Object> dirtyAttributeKeys;
+
+	/**
+	 * Persistence state(not serialized), values of the dirty attributes as
+	 * they were loaded or persisted.
+	 */
+	private transient Map<Object, Object> persistedAttributes;
+
+	/**
+	 * Persistence state(not serialized), digests of the serialized(mutable)
+	 * attribute values as they were loaded or persisted, to detect the values
+	 * changed in place.
+	 */
+	private transient Map<Object, Long> attributeDigests;
+
+	/**
+	 * Persistence state(not serialized), keys of the attributes got since the
+	 * session was loaded or persisted, only their values may have been changed
+	 * in place.
+	 */
+	private transient Set<Object> readAttributeKeys;
+
+	/**
+	 * Persistence state(not serialized), whether the fields other than the
+	 * attributes and last access time are changed.
+	 */
+	private transient boolean metaDirty;
+
+	/**
+	 * Persistence state(not serialized), last access time(ms) persisted, 0 if
+	 * the session is new, or needs to be written fully.
+	 */
+	private transient long persistedAccessTime;
+
 	public IamSession() {
 		// Remove concrete reference to DefaultSessionManager
 		this.timeout = DefaultSessionManager.DEFAULT_GLOBAL_SESSION_TIMEOUT;
@@ -131,6 +171,7 @@ public class IamSession implements ValidatingSession, Serializable {
 
 	public void setStartTimestamp(Date startTimestamp) {
 		this.startTimestamp = startTimestamp;
+		this.metaDirty = true;
 	}
 
 	/**
@@ -160,6 +201,7 @@ public class IamSession implements ValidatingSession, Serializable {
 
 	public void setStopTimestamp(Date stopTimestamp) {
 		this.stopTimestamp = stopTimestamp;
+		this.metaDirty = true;
 	}
 
 	@Override
@@ -184,6 +226,7 @@ public class IamSession implements ValidatingSession, Serializable {
 
 	public void setExpired(boolean expired) {
 		this.expired = expired;
+		this.metaDirty = true;
 	}
 
 	@Override
@@ -194,6 +237,7 @@ public class IamSession implements ValidatingSession, Serializable {
 	@Override
 	public void setTimeout(long timeout) {
 		this.timeout = timeout;
+		this.metaDirty = true;
 	}
 
 	public String getHost() {
@@ -202,6 +246,7 @@ public class IamSession implements ValidatingSession, Serializable {
 
 	public void setHost(String host) {
 		this.host = host;
+		this.metaDirty = true;
 	}
 
 	public Map<Object, Object> getAttributes() {
@@ -210,6 +255,7 @@ public class IamSession implements ValidatingSession, Serializable {
 
 	public void setAttributes(Map<Object, Object> attributes) {
 		this.attributes = attributes;
+		this.persistedAccessTime = 0; // All replaced
 	}
 
 	@JsonIgnore
@@ -223,6 +269,7 @@ public class IamSession implements ValidatingSession, Serializable {
 	public void stop() {
 		if (this.stopTimestamp == null) {
 			this.stopTimestamp = new Date();
+			this.metaDirty = true;
 		}
 	}
 
@@ -235,6 +282,7 @@ public class IamSession implements ValidatingSession, Serializable {
 	protected void expire() {
 		stop();
 		this.expired = true;
+		this.metaDirty = true;
 	}
 
 	/**
@@ -318,10 +366,8 @@ public class IamSession implements ValidatingSession, Serializable {
 
 	@JsonIgnore
 	private Map<Object, Object> getAttributesLazy() {
-		Map<Object, Object> attributes = getAttributes();
 		if (attributes == null) {
 			attributes = new HashMap<Object, Object>();
-			setAttributes(attributes);
 		}
 		return attributes;
 	}
@@ -337,11 +383,14 @@ public class IamSession implements ValidatingSession, Serializable {
 
 	@JsonIgnore
 	public Object getAttribute(Object key) {
-		Map<Object, Object> attributes = getAttributes();
-		if (attributes == null) {
-			return null;
+		Object value = peekAttribute(key);
+		if (value != null) {
+			if (readAttributeKeys == null) {
+				readAttributeKeys = new HashSet<>(4);
+			}
+			readAttributeKeys.add(key);
 		}
-		return attributes.get(key);
+		return value;
 	}
 
 	@JsonIgnore
@@ -349,6 +398,7 @@ public class IamSession implements ValidatingSession, Serializable {
 		if (value == null) {
 			removeAttribute(key);
 		} else {
+			markAttributeDirty(key);
 			getAttributesLazy().put(key, value);
 		}
 	}
@@ -356,13 +406,128 @@ public class IamSession implements ValidatingSession, Serializable {
 	@JsonIgnore
 	public Object removeAttribute(Object key) {
 		Map<Object, Object> attributes = getAttributes();
-		if (attributes == null) {
+		if (attributes == null || !attributes.containsKey(key)) {
 			return null;
 		} else {
+			markAttributeDirty(key);
 			return attributes.remove(key);
 		}
 	}
 
+	/**
+	 * Keys of the attributes set or removed since the session was loaded or
+	 * persisted.
+	 * 
+	 * @return
+	 */
+	@JsonIgnore
+	public Set<Object> getDirtyAttributeKeys() {
+		return dirtyAttributeKeys == null ? Collections.emptySet() : dirtyAttributeKeys;
+	}
+
+	/**
+	 * Value of the attribute as it was loaded or persisted, i.e. before it's
+	 * set or removed since.
+	 * 
+	 * @param key
+	 * @return
+	 */
+	@JsonIgnore
+	public Object getPersistedAttribute(Object key) {
+		if (!getDirtyAttributeKeys().contains(key)) {
+			return peekAttribute(key);
+		}
+		return persistedAttributes == null ? null : persistedAttributes.get(key);
+	}
+
+	/**
+	 * Digests of the serialized attribute values as they were loaded or
+	 * persisted, maintained by the session store.
+	 * 
+	 * @return
+	 */
+	@JsonIgnore
+	public Map<Object, Long> getAttributeDigests() {
+		if (attributeDigests == null) {
+			attributeDigests = new HashMap<>(4);
+		}
+		return attributeDigests;
+	}
+
+	/**
+	 * Keys of the attributes got since the session was loaded or persisted,
+	 * i.e. the ones whose values may have been changed in place.
+	 * 
+	 * @return
+	 */
+	@JsonIgnore
+	public Set<Object> getReadAttributeKeys() {
+		return readAttributeKeys == null ? Collections.emptySet() : readAttributeKeys;
+	}
+
+	/**
+	 * Value of the attribute without tracking it as read, for the persistence
+	 * which doesn't change it.
+	 * 
+	 * @param key
+	 * @return
+	 */
+	@JsonIgnore
+	public Object peekAttribute(Object key) {
+		Map<Object, Object> attributes = getAttributes();
+		if (attributes == null) {
+			return null;
+		}
+		return attributes.get(key);
+	}
+
+	/**
+	 * Whether the fields other than the attributes and last access time are
+	 * changed since the session was loaded or persisted.
+	 * 
+	 * @return
+	 */
+	@JsonIgnore
+	public boolean isMetaDirty() {
+		return metaDirty;
+	}
+
+	/**
+	 * Last access time(ms) persisted.
+	 * 
+	 * @return 0 if the session is new, or needs to be written fully.
+	 */
+	@JsonIgnore
+	public long getPersistedAccessTime() {
+		return persistedAccessTime;
+	}
+
+	/**
+	 * Mark the session as loaded or persisted, clear the dirty state.
+	 * 
+	 * @param accessTime
+	 *            last access time(ms) persisted
+	 */
+	@JsonIgnore
+	public void markPersisted(long accessTime) {
+		this.dirtyAttributeKeys = null;
+		this.persistedAttributes = null;
+		this.readAttributeKeys = null;
+		this.metaDirty = false;
+		this.persistedAccessTime = accessTime;
+	}
+
+	@JsonIgnore
+	private void markAttributeDirty(Object key) {
+		if (dirtyAttributeKeys == null) {
+			dirtyAttributeKeys = new HashSet<>(4);
+			persistedAttributes = new HashMap<>(4);
+		}
+		if (dirtyAttributeKeys.add(key)) {
+			persistedAttributes.put(key, peekAttribute(key));
+		}
+	}
+
 	/**
 	 * Returns {@code true} if the specified argument is an {@code instanceof}
 	 * {@code SimpleSession} and both {@link #getId() id}s are equal. If the
@@ -16,6 +16,7 @@
 package com.wl4g.devops.iam.common.session.mgt;
 
 import java.util.Collection;
+import java.util.List;
 
 import org.apache.shiro.session.Session;
 import org.apache.shiro.session.mgt.eis.SessionDAO;
@@ -41,15 +42,22 @@ public interface IamSessionDAO extends SessionDAO {
 	public ScanCursor<IamSession> getActiveSessions(final int batchSize);
 
 	/**
-	 * Get active sessions
+	 * Get active sessions of the principal, without scanning all sessions.
+	 * 
+	 * @param principal
+	 *            Principal name or principal collection
+	 * @return
+	 */
+	public List<IamSession> getPrincipalSessions(final Object principal);
+
+	/**
+	 * Count active sessions of the principal, e.g. for the login limit.
 	 * 
-	 * @param cursor
-	 * @param size
 	 * @param principal
-	 *            Getting active sessions based on logon objects
+	 *            Principal name or principal collection
 	 * @return
 	 */
-	public ScanCursor<IamSession> getActiveSessions(final int batchSize, final Object principal);
+	public long countPrincipalSessions(final Object principal);
 
 	/**
 	 * Remove active current users
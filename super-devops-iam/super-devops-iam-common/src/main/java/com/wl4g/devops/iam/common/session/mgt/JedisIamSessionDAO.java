@@ -16,24 +16,37 @@
 package com.wl4g.devops.iam.common.session.mgt;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.shiro.session.Session;
 import org.apache.shiro.session.UnknownSessionException;
 import org.apache.shiro.session.mgt.eis.AbstractSessionDAO;
+import org.apache.shiro.subject.PrincipalCollection;
+import org.apache.shiro.subject.support.DefaultSubjectContext;
 import org.apache.shiro.util.Assert;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import static com.wl4g.devops.common.constants.IAMDevOpsConstants.CACHE_PRINCIPAL_SESSIONS;
 import static com.wl4g.devops.common.constants.IAMDevOpsConstants.CACHE_SESSION;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
 
 import com.google.common.base.Charsets;
-import com.wl4g.devops.iam.common.cache.EnhancedKey;
 import com.wl4g.devops.iam.common.cache.JedisCacheManager;
 import com.wl4g.devops.iam.common.config.AbstractIamProperties;
 import com.wl4g.devops.iam.common.config.AbstractIamProperties.ParamProperties;
 import com.wl4g.devops.iam.common.session.IamSession;
+import com.wl4g.devops.iam.common.session.mgt.support.IncrementalSessionStore;
+import com.wl4g.devops.iam.common.session.mgt.support.PrincipalSessionIndex;
+import com.wl4g.devops.support.cache.ClusterPipelineExecutor;
+import com.wl4g.devops.support.cache.ClusterPipelineExecutor.PipelineCommand;
 import com.wl4g.devops.support.cache.ScanCursor;
 
+import redis.clients.jedis.JedisCluster;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
 import redis.clients.jedis.ScanParams;
 
 /**
@@ -47,6 +60,11 @@ import redis.clients.jedis.ScanParams;
 public class JedisIamSessionDAO extends AbstractSessionDAO implements IamSessionDAO {
 	final protected Logger log = LoggerFactory.getLogger(JedisIamSessionDAO.class);
 
+	/**
+	 * Sessions of a principal loaded per pipelined batch.
+	 */
+	final private static int LOAD_BATCH = 200;
+
 	/**
 	 * IAM properties
 	 */
@@ -57,11 +75,32 @@ public class JedisIamSessionDAO extends AbstractSessionDAO implements IamSession
 	 */
 	final private JedisCacheManager cacheManager;
 
+	/**
+	 * Session ids index by principal.
+	 */
+	final private PrincipalSessionIndex principalIndex;
+
+	/**
+	 * Incremental sessions store.
+	 */
+	final private IncrementalSessionStore sessionStore;
+
+	/**
+	 * Pipelined loading of the sessions of a principal.
+	 */
+	final private ClusterPipelineExecutor pipelineExecutor;
+
 	public JedisIamSessionDAO(AbstractIamProperties<? extends ParamProperties> config, JedisCacheManager cacheManager) {
 		Assert.notNull(config, "'config' must not be null");
 		Assert.notNull(cacheManager, "'cacheManager' must not be null");
 		this.config = config;
 		this.cacheManager = cacheManager;
+		this.principalIndex = new PrincipalSessionIndex(config.getCache().getPrefix() + CACHE_PRINCIPAL_SESSIONS,
+				cacheManager.getJedisCluster());
+		Long touchInterval = config.getSession().getTouchCoalescingInterval();
+		this.sessionStore = new IncrementalSessionStore(config.getCache().getPrefix() + CACHE_SESSION,
+				touchInterval == null ? 0 : touchInterval, cacheManager.getJedisCluster());
+		this.pipelineExecutor = new ClusterPipelineExecutor(cacheManager.getJedisCluster());
 	}
 
 	@Override
@@ -69,20 +108,29 @@ public class JedisIamSessionDAO extends AbstractSessionDAO implements IamSession
 		if (session == null || session.getId() == null) {
 			return;
 		}
-		// Get logged ID
-		// PrincipalCollection pc = (PrincipalCollection)
-		// session.getAttribute(DefaultSubjectContext.PRINCIPALS_SESSION_KEY);
-		// String principalId = pc != null ?
-		// pc.getPrimaryPrincipal().toString() : "";
-
 		if (log.isDebugEnabled()) {
 			log.debug("update {}", session.getId());
 		}
 
 		/**
-		 * Update session latest expiration time to timeout time
+		 * Write the changes only(coalesced touches are skipped), and update
+		 * session latest expiration time to timeout time.
 		 */
-		this.cacheManager.getEnhancedCache(CACHE_SESSION).put(new EnhancedKey(session.getId(), session.getTimeout()), session);
+		IamSession s = (IamSession) session;
+		String persistedPrincipal = getPrincipalName(s.getPersistedAttribute(DefaultSubjectContext.PRINCIPALS_SESSION_KEY));
+		if (!this.sessionStore.save(s)) {
+			return;
+		}
+
+		// Index logged session by principal, expires with the session.
+		String principal = getPrincipal(session);
+		if (principal != null) {
+			this.principalIndex.add(principal, s.getId(), this.sessionStore.getTimeToLive(s));
+		}
+		// Principal changed(or logged out), remove from the previous index.
+		if (persistedPrincipal != null && !persistedPrincipal.equals(principal)) {
+			this.principalIndex.remove(persistedPrincipal, singletonList(s.getId()));
+		}
 	}
 
 	@Override
@@ -94,20 +142,67 @@ public class JedisIamSessionDAO extends AbstractSessionDAO implements IamSession
 		if (log.isDebugEnabled()) {
 			log.debug("delete {} ", session.getId());
 		}
-		this.cacheManager.getEnhancedCache(CACHE_SESSION).remove(new EnhancedKey(session.getId()));
+		this.sessionStore.delete(session.getId().toString());
+
+		String principal = getPrincipal(session);
+		if (principal != null) {
+			this.principalIndex.remove(principal, singletonList(session.getId().toString()));
+		}
+		if (session instanceof IamSession) { // Changed but not updated yet.
+			String persistedPrincipal = getPrincipalName(
+					((IamSession) session).getPersistedAttribute(DefaultSubjectContext.PRINCIPALS_SESSION_KEY));
+			if (persistedPrincipal != null && !persistedPrincipal.equals(principal)) {
+				this.principalIndex.remove(persistedPrincipal, singletonList(session.getId().toString()));
+			}
+		}
 	}
 
+	/**
+	 * Active sessions of all(scanned), the sessions deleted after scanned are
+	 * null.
+	 */
 	@Override
 	public ScanCursor<IamSession> getActiveSessions(final int batchSize) {
-		return this.getActiveSessions(batchSize, null);
+		byte[] match = (config.getCache().getPrefix() + CACHE_SESSION + "*").getBytes(Charsets.UTF_8);
+		ScanParams params = new ScanParams().count(batchSize).match(match);
+		return new SessionCursor(params).open();
 	}
 
+	/**
+	 * Active sessions of the principal, the session ids are looked up by the
+	 * principal index, and loaded by pipelined batches.
+	 */
 	@Override
-	public ScanCursor<IamSession> getActiveSessions(final int batchSize, final Object principal) {
-		byte[] match = (config.getCache().getPrefix() + CACHE_SESSION + "*").getBytes(Charsets.UTF_8);
-		ScanParams params = new ScanParams().count(batchSize).match(match);
-		return new ScanCursor<IamSession>(cacheManager.getJedisCluster(), null, params) {
-		}.open();
+	public List<IamSession> getPrincipalSessions(final Object principal) {
+		String principalName = getPrincipalName(principal);
+		if (principalName == null) {
+			return new ArrayList<>(0);
+		}
+
+		List<String> sessionIds = this.principalIndex.list(principalName);
+		List<IamSession> sessions = new ArrayList<>(sessionIds.size());
+		List<String> staleIds = new ArrayList<>(0);
+		for (int from = 0; from < sessionIds.size(); from += LOAD_BATCH) {
+			List<String> batchIds = sessionIds.subList(from, Math.min(from + LOAD_BATCH, sessionIds.size()));
+			List<IamSession> batch = loadSessions(batchIds);
+			for (int i = 0; i < batch.size(); i++) {
+				if (batch.get(i) != null) {
+					sessions.add(batch.get(i));
+				} else { // Deleted without index maintained
+					staleIds.add(batchIds.get(i));
+				}
+			}
+		}
+		if (!staleIds.isEmpty()) {
+			this.principalIndex.remove(principalName, staleIds);
+		}
+		return sessions;
+	}
+
+	@Override
+	public long countPrincipalSessions(final Object principal) {
+		String principalName = getPrincipalName(principal);
+		return principalName == null ? 0 : this.principalIndex.count(principalName);
 	}
 
 	@Override
@@ -115,10 +210,15 @@ public class JedisIamSessionDAO extends AbstractSessionDAO implements IamSession
 		if (log.isDebugEnabled()) {
 			log.debug("removeActiveSession principal: {} ", principal);
 		}
+		String principalName = getPrincipalName(principal);
+		if (principalName == null) {
+			return;
+		}
 
-		ScanCursor<IamSession> cursor = this.getActiveSessions(200, principal).open();
-		while (cursor.hasNext()) {
-			delete(cursor.next());
+		List<String> sessionIds = this.principalIndex.list(principalName);
+		if (!sessionIds.isEmpty()) {
+			this.sessionStore.delete(sessionIds);
+			this.principalIndex.remove(principalName, sessionIds);
 		}
 	}
 
@@ -141,7 +241,7 @@ public class JedisIamSessionDAO extends AbstractSessionDAO implements IamSession
 		if (log.isDebugEnabled()) {
 			log.debug("doReadSession {}", sessionId);
 		}
-		return (Session) this.cacheManager.getEnhancedCache(CACHE_SESSION).get(new EnhancedKey(sessionId, IamSession.class));
+		return this.sessionStore.read(sessionId.toString());
 	}
 
 	@Override
@@ -161,4 +261,77 @@ public class JedisIamSessionDAO extends AbstractSessionDAO implements IamSession
 		((IamSession) session).setId((String) sessionId);
 	}
 
+	/**
+	 * {@link ScanCursor} of the sessions, loaded from the
+	 * {@link IncrementalSessionStore}.
+	 */
+	private class SessionCursor extends ScanCursor<IamSession> {
+
+		private SessionCursor(ScanParams params) {
+			super(cacheManager.getJedisCluster(), IamSession.class, params);
+		}
+
+		@Override
+		protected Response<?> loadValue(Pipeline pipeline, byte[] key) {
+			return sessionStore.load(pipeline, key);
+		}
+
+		@Override
+		protected Object loadValue(JedisCluster cluster, byte[] key) {
+			return sessionStore.load(key);
+		}
+
+		@Override
+		protected IamSession toValue(Object data) {
+			return sessionStore.toSession(data);
+		}
+
+	}
+
+	/**
+	 * Load the sessions in one pipeline(by cluster node).
+	 *
+	 * @param sessionIds
+	 * @return Sessions in the order of ids, null if not exist.
+	 */
+	private List<IamSession> loadSessions(List<String> sessionIds) {
+		List<byte[]> keys = sessionIds.stream().map(id -> sessionStore.getKey(id)).collect(toList());
+		List<Object> data = pipelineExecutor.execute(keys, new PipelineCommand<Object>() {
+			@Override
+			public Response<Object> pipelined(Pipeline pipeline, byte[] key, int index) {
+				return sessionStore.load(pipeline, key);
+			}
+
+			@Override
+			public Object single(JedisCluster cluster, byte[] key, int index) {
+				return sessionStore.load(key);
+			}
+		});
+		return data.stream().map(d -> sessionStore.toSession(d)).collect(toList());
+	}
+
+	/**
+	 * Get the logged principal name of session.
+	 * 
+	 * @param session
+	 * @return null if not logged
+	 */
+	private String getPrincipal(Session session) {
+		return getPrincipalName(session.getAttribute(DefaultSubjectContext.PRINCIPALS_SESSION_KEY));
+	}
+
+	/**
+	 * Get principal name of principal collection(primary principal) or
+	 * principal.
+	 * 
+	 * @param principal
+	 * @return
+	 */
+	private String getPrincipalName(Object principal) {
+		if (principal instanceof PrincipalCollection) {
+			principal = ((PrincipalCollection) principal).getPrimaryPrincipal();
+		}
+		return principal == null ? null : principal.toString();
+	}
+
 }
\ No newline at end of file
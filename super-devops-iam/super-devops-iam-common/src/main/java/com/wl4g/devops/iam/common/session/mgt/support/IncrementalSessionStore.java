@@ -0,0 +1,470 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.iam.common.session.mgt.support;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonList;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.shiro.subject.PrincipalCollection;
+import org.apache.shiro.util.Assert;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import com.wl4g.devops.common.utils.serialize.ProtostuffUtils;
+import com.wl4g.devops.iam.common.session.IamSession;
+
+import redis.clients.jedis.JedisCluster;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.util.JedisClusterCRC16;
+
+/**
+ * Incremental persistence of {@link IamSession}.</br>
+ * A session is stored as a hash, the rarely changed fields(meta), the last
+ * access time and each attribute are separate hash fields. So a touch only
+ * writes the access time, and a changed attribute only writes itself instead
+ * of the whole session. Touches within the coalescing interval since the
+ * session was last persisted are not written at all, the key expires the
+ * interval later than the session timeout to cover them.</br>
+ * The mutable attribute values may be changed in place without being set
+ * again, so their digests(of the serialized values) are kept since they were
+ * loaded or persisted. Only the ones got through
+ * {@link IamSession#getAttribute(Object)} since are digested again on save,
+ * a changed digest makes the attribute written as a dirty one, so a touch
+ * only serializes nothing. The values changed in place through
+ * {@link IamSession#getAttributes()} must be set again.</br>
+ * Sessions of the legacy layout(one serialized value) are still readable,
+ * and are converted on the next write.
+ *
+ * @author wangl.sir
+ * @version v1.0 2019年9月13日
+ * @since
+ */
+public class IncrementalSessionStore {
+
+	/** Hash field of the session without attributes. */
+	final private static byte[] FIELD_META = "m".getBytes(Charsets.UTF_8);
+
+	/** Hash field of the last access time(ms). */
+	final private static byte[] FIELD_ACCESS = "t".getBytes(Charsets.UTF_8);
+
+	/** Hash field prefix of the attributes. */
+	final private static byte[] FIELD_ATTRIBUTE = "a:".getBytes(Charsets.UTF_8);
+
+	/** Attribute value types which can't be changed in place. */
+	final private static Set<Class<?>> IMMUTABLE_TYPES = new HashSet<>(asList(String.class, Boolean.class, Character.class,
+			Byte.class, Short.class, Integer.class, Long.class, Float.class, Double.class, BigInteger.class, BigDecimal.class));
+
+	/**
+	 * KEYS: session</br>
+	 * Returns the fields and values of the hash, or the single value of the
+	 * legacy layout, or empty if not exist.
+	 */
+	final private static byte[] SCRIPT_READ = ("local t = redis.call('type', KEYS[1]).ok "
+			+ "if t == 'hash' then return redis.call('hgetall', KEYS[1]) "
+			+ "elseif t == 'string' then return {redis.call('get', KEYS[1])} end return {}").getBytes(Charsets.UTF_8);
+
+	/**
+	 * KEYS: session</br>
+	 * ARGV: ttlMs(negative for never), field1, value1, field2, value2...</br>
+	 * Replaces the whole session.
+	 */
+	final private static byte[] SCRIPT_SAVE = ("redis.call('del', KEYS[1]) "
+			+ "for i = 2, #ARGV, 2 do redis.call('hset', KEYS[1], ARGV[i], ARGV[i + 1]) end "
+			+ "if tonumber(ARGV[1]) < 0 then redis.call('persist', KEYS[1]) else redis.call('pexpire', KEYS[1], ARGV[1]) end "
+			+ "return 1").getBytes(Charsets.UTF_8);
+
+	/**
+	 * KEYS: session</br>
+	 * ARGV: ttlMs(negative for never), n, n pairs of field and value to set,
+	 * fields to delete...</br>
+	 * Returns 0 if the session is not exist or of legacy layout, nothing is
+	 * written.
+	 */
+	final private static byte[] SCRIPT_UPDATE = ("if redis.call('type', KEYS[1]).ok ~= 'hash' then return 0 end "
+			+ "local n = tonumber(ARGV[2]) "
+			+ "for i = 3, 2 + 2 * n, 2 do redis.call('hset', KEYS[1], ARGV[i], ARGV[i + 1]) end "
+			+ "for i = 3 + 2 * n, #ARGV do redis.call('hdel', KEYS[1], ARGV[i]) end "
+			+ "if tonumber(ARGV[1]) < 0 then redis.call('persist', KEYS[1]) else redis.call('pexpire', KEYS[1], ARGV[1]) end "
+			+ "return 1").getBytes(Charsets.UTF_8);
+
+	/**
+	 * Session key prefix.
+	 */
+	final private String prefix;
+
+	/**
+	 * Touch coalescing interval(ms).
+	 */
+	final private long touchInterval;
+
+	final private JedisCluster jedisCluster;
+
+	public IncrementalSessionStore(String prefix, long touchInterval, JedisCluster jedisCluster) {
+		Assert.hasText(prefix, "'prefix' must not be empty");
+		Assert.isTrue(touchInterval >= 0, "'touchInterval' must not be negative");
+		Assert.notNull(jedisCluster, "'jedisCluster' must not be null");
+		this.prefix = prefix;
+		this.touchInterval = touchInterval;
+		this.jedisCluster = jedisCluster;
+	}
+
+	public long getTouchInterval() {
+		return touchInterval;
+	}
+
+	/**
+	 * Time to live(ms) of the session key.
+	 *
+	 * @param session
+	 * @return negative means never expired.
+	 */
+	public long getTimeToLive(IamSession session) {
+		return session.getTimeout() < 0 ? -1 : session.getTimeout() + touchInterval;
+	}
+
+	/**
+	 * Read session.
+	 *
+	 * @param sessionId
+	 * @return null if not exist
+	 */
+	public IamSession read(String sessionId) {
+		return toSession(load(getKey(sessionId)));
+	}
+
+	/**
+	 * Load raw session of key, see {@link #toSession(Object)}
+	 *
+	 * @param key
+	 * @return
+	 */
+	public Object load(byte[] key) {
+		return jedisCluster.eval(SCRIPT_READ, singletonList(key), new ArrayList<>(0));
+	}
+
+	/**
+	 * Load raw session of key pipelined, see {@link #toSession(Object)}
+	 *
+	 * @param pipeline
+	 * @param key
+	 * @return
+	 */
+	public Response<Object> load(Pipeline pipeline, byte[] key) {
+		return pipeline.eval(SCRIPT_READ, singletonList(key), new ArrayList<>(0));
+	}
+
+	/**
+	 * Convert raw session loaded.
+	 *
+	 * @param reply
+	 * @return null if not exist
+	 */
+	@SuppressWarnings("unchecked")
+	public IamSession toSession(Object reply) {
+		List<byte[]> items = (List<byte[]>) reply;
+		if (items == null || items.isEmpty()) {
+			return null;
+		}
+		if (items.size() == 1) { // Legacy layout, written fully next time.
+			return ProtostuffUtils.deserialize(items.get(0), IamSession.class);
+		}
+
+		IamSession session = null;
+		Long accessTime = null;
+		Map<Object, Object> attributes = new HashMap<>();
+		Map<Object, Long> digests = new HashMap<>();
+		for (int i = 0; i + 1 < items.size(); i += 2) {
+			byte[] field = items.get(i), value = items.get(i + 1);
+			if (Arrays.equals(field, FIELD_META)) {
+				session = ProtostuffUtils.deserialize(value, IamSession.class);
+			} else if (Arrays.equals(field, FIELD_ACCESS)) {
+				accessTime = Long.parseLong(new String(value, Charsets.UTF_8));
+			} else if (startsWith(field, FIELD_ATTRIBUTE)) {
+				Attribute attr = ProtostuffUtils.deserialize(value, Attribute.class);
+				attributes.put(attr.key, attr.value);
+				if (!isImmutable(attr.value)) {
+					digests.put(attr.key, digest(value));
+				}
+			}
+		}
+		if (session == null) {
+			return null;
+		}
+		session.setAttributes(attributes.isEmpty() ? null : attributes);
+		if (accessTime != null) {
+			session.setLastAccessTime(new Date(accessTime));
+		}
+		session.markPersisted(session.getLastAccessTime().getTime());
+		session.getAttributeDigests().putAll(digests);
+		return session;
+	}
+
+	/**
+	 * Write the changes of session: the access time, the meta if changed and
+	 * the dirty(set, removed or changed in place) attributes, or the whole
+	 * session if it's new(or of legacy layout). Touches within the coalescing
+	 * interval are skipped.
+	 *
+	 * @param session
+	 * @return false if nothing written
+	 */
+	public boolean save(IamSession session) {
+		Assert.notNull(session, "'session' must not be null");
+		Assert.notNull(session.getId(), "'sessionId' must not be null");
+		long accessTime = session.getLastAccessTime() != null ? session.getLastAccessTime().getTime()
+				: System.currentTimeMillis();
+		long persistedTime = session.getPersistedAccessTime();
+		Set<Object> dirtyKeys = session.getDirtyAttributeKeys();
+		Map<Object, byte[]> modified = persistedTime > 0 ? getModifiedAttributes(session, dirtyKeys) : emptyMap();
+		if (persistedTime > 0 && !session.isMetaDirty() && dirtyKeys.isEmpty() && modified.isEmpty()
+				&& accessTime - persistedTime < touchInterval) {
+			return false;
+		}
+
+		byte[] key = getKey(session.getId());
+		byte[] ttl = String.valueOf(getTimeToLive(session)).getBytes(Charsets.UTF_8);
+		if (persistedTime > 0) {
+			Map<Object, byte[]> written = new HashMap<>(modified);
+			List<byte[]> dels = new ArrayList<>(0);
+			for (Object attrKey : dirtyKeys) {
+				Object value = session.peekAttribute(attrKey);
+				if (value != null) {
+					written.put(attrKey, ProtostuffUtils.serialize(new Attribute(attrKey, value)));
+				} else {
+					dels.add(getAttributeField(attrKey));
+				}
+			}
+			List<byte[]> sets = new ArrayList<>(4 + written.size() * 2);
+			sets.add(FIELD_ACCESS);
+			sets.add(String.valueOf(accessTime).getBytes(Charsets.UTF_8));
+			if (session.isMetaDirty()) {
+				sets.add(FIELD_META);
+				sets.add(serializeMeta(session));
+			}
+			for (Map.Entry<Object, byte[]> attr : written.entrySet()) {
+				sets.add(getAttributeField(attr.getKey()));
+				sets.add(attr.getValue());
+			}
+
+			List<byte[]> args = new ArrayList<>(2 + sets.size() + dels.size());
+			args.add(ttl);
+			args.add(String.valueOf(sets.size() / 2).getBytes(Charsets.UTF_8));
+			args.addAll(sets);
+			args.addAll(dels);
+			Object res = jedisCluster.eval(SCRIPT_UPDATE, singletonList(key), args);
+			if (res != null && ((Long) res) == 1L) {
+				session.markPersisted(accessTime);
+				for (Object attrKey : dirtyKeys) {
+					session.getAttributeDigests().remove(attrKey);
+				}
+				for (Map.Entry<Object, byte[]> attr : written.entrySet()) {
+					updateDigest(session, attr.getKey(), attr.getValue());
+				}
+				return true;
+			}
+			// Not exist or of legacy layout, write fully.
+		}
+
+		List<byte[]> args = new ArrayList<>();
+		args.add(ttl);
+		args.add(FIELD_META);
+		args.add(serializeMeta(session));
+		args.add(FIELD_ACCESS);
+		args.add(String.valueOf(accessTime).getBytes(Charsets.UTF_8));
+		Map<Object, byte[]> written = new HashMap<>();
+		if (session.getAttributes() != null) {
+			for (Map.Entry<Object, Object> attr : session.getAttributes().entrySet()) {
+				if (attr.getValue() != null) {
+					byte[] data = ProtostuffUtils.serialize(new Attribute(attr.getKey(), attr.getValue()));
+					args.add(getAttributeField(attr.getKey()));
+					args.add(data);
+					written.put(attr.getKey(), data);
+				}
+			}
+		}
+		jedisCluster.eval(SCRIPT_SAVE, singletonList(key), args);
+		session.markPersisted(accessTime);
+		session.getAttributeDigests().clear();
+		for (Map.Entry<Object, byte[]> attr : written.entrySet()) {
+			updateDigest(session, attr.getKey(), attr.getValue());
+		}
+		return true;
+	}
+
+	/**
+	 * Delete session.
+	 *
+	 * @param sessionId
+	 */
+	public void delete(String sessionId) {
+		jedisCluster.del(getKey(sessionId));
+	}
+
+	/**
+	 * Delete sessions, one multi-key {@code DEL} of the sessions per slot.
+	 *
+	 * @param sessionIds
+	 */
+	public void delete(Collection<String> sessionIds) {
+		Map<Integer, List<byte[]>> slots = new HashMap<>();
+		for (String sessionId : sessionIds) {
+			byte[] key = getKey(sessionId);
+			slots.computeIfAbsent(JedisClusterCRC16.getSlot(key), slot -> new ArrayList<>()).add(key);
+		}
+		for (List<byte[]> keys : slots.values()) {
+			jedisCluster.del(keys.toArray(new byte[keys.size()][]));
+		}
+	}
+
+	public byte[] getKey(String sessionId) {
+		Assert.hasText(sessionId, "'sessionId' must not be empty");
+		return (prefix + sessionId).getBytes(Charsets.UTF_8);
+	}
+
+	/**
+	 * Serialized attributes which are changed in place(not set again) since
+	 * the session was loaded or persisted, i.e. the digests of the mutable
+	 * values got since are changed. The attributes not got are not serialized.
+	 *
+	 * @param session
+	 * @param dirtyKeys
+	 * @return
+	 */
+	private static Map<Object, byte[]> getModifiedAttributes(IamSession session, Set<Object> dirtyKeys) {
+		Set<Object> readKeys = session.getReadAttributeKeys();
+		if (readKeys.isEmpty()) {
+			return emptyMap();
+		}
+		Map<Object, byte[]> modified = new HashMap<>(4);
+		for (Object attrKey : readKeys) {
+			Object value = session.peekAttribute(attrKey);
+			if (value == null || isImmutable(value) || dirtyKeys.contains(attrKey)) {
+				continue;
+			}
+			byte[] data = ProtostuffUtils.serialize(new Attribute(attrKey, value));
+			Long digest = session.getAttributeDigests().get(attrKey);
+			if (digest == null || digest != digest(data)) {
+				modified.put(attrKey, data);
+			}
+		}
+		return modified;
+	}
+
+	/**
+	 * Update the digest of the attribute persisted.
+	 *
+	 * @param session
+	 * @param attrKey
+	 * @param data
+	 *            serialized attribute
+	 */
+	private static void updateDigest(IamSession session, Object attrKey, byte[] data) {
+		if (isImmutable(session.peekAttribute(attrKey))) {
+			session.getAttributeDigests().remove(attrKey);
+		} else {
+			session.getAttributeDigests().put(attrKey, digest(data));
+		}
+	}
+
+	/**
+	 * Whether the value can't be changed in place, the principals are always
+	 * set again by shiro once changed(e.g. login, run as).
+	 *
+	 * @param value
+	 * @return
+	 */
+	private static boolean isImmutable(Object value) {
+		return value == null || value instanceof Enum || value instanceof PrincipalCollection
+				|| IMMUTABLE_TYPES.contains(value.getClass());
+	}
+
+	private static long digest(byte[] data) {
+		return Hashing.murmur3_128().hashBytes(data).asLong();
+	}
+
+	/**
+	 * Serialize the session without attributes.
+	 *
+	 * @param session
+	 * @return
+	 */
+	private static byte[] serializeMeta(IamSession session) {
+		IamSession meta = new IamSession(session.getHost());
+		meta.setId(session.getId());
+		meta.setStartTimestamp(session.getStartTimestamp());
+		meta.setStopTimestamp(session.getStopTimestamp());
+		meta.setLastAccessTime(session.getLastAccessTime());
+		meta.setTimeout(session.getTimeout());
+		meta.setExpired(session.isExpired());
+		return ProtostuffUtils.serialize(meta);
+	}
+
+	/**
+	 * Hash field of the attribute, the key is serialized with its type.
+	 *
+	 * @param key
+	 * @return
+	 */
+	private static byte[] getAttributeField(Object key) {
+		byte[] data = ProtostuffUtils.serialize(new Attribute(key, null));
+		byte[] field = Arrays.copyOf(FIELD_ATTRIBUTE, FIELD_ATTRIBUTE.length + data.length);
+		System.arraycopy(data, 0, field, FIELD_ATTRIBUTE.length, data.length);
+		return field;
+	}
+
+	private static boolean startsWith(byte[] data, byte[] prefix) {
+		if (data.length < prefix.length) {
+			return false;
+		}
+		for (int i = 0; i < prefix.length; i++) {
+			if (data[i] != prefix[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Serialized attribute, the key and value are written with their types.
+	 */
+	final static class Attribute {
+
+		private Object key;
+
+		private Object value;
+
+		Attribute(Object key, Object value) {
+			this.key = key;
+			this.value = value;
+		}
+
+	}
+
+}
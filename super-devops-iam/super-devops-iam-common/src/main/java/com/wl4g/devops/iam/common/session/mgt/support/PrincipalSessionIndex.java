@@ -0,0 +1,162 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.iam.common.session.mgt.support;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.shiro.util.Assert;
+
+import redis.clients.jedis.JedisCluster;
+
+/**
+ * Secondary index of the session ids by principal.</br>
+ * Each principal has a sorted set of its session ids scored by the session
+ * expiration time(ms), so lookup, count and removal cost O(sessions of the
+ * principal) instead of a keyspace scan. Every operation is one LUA script on
+ * the index key, which also drops the expired members(expire-aware cleanup),
+ * and the index key itself expires with its last session.</br>
+ * The session keys and the index keys live in different cluster slots, so
+ * they can't be written in one script. The index is maintained right after
+ * each session write, and readers must tolerate(and prune) ids whose session
+ * is already gone.
+ *
+ * @author wangl.sir
+ * @version v1.0 2019年9月12日
+ * @since
+ */
+public class PrincipalSessionIndex {
+
+	/**
+	 * KEYS: index</br>
+	 * ARGV: now, expireAt('+inf' for never), sessionId</br>
+	 * Returns active sessions count.
+	 */
+	final private static String SCRIPT_ADD = "redis.call('zremrangebyscore', KEYS[1], '-inf', '(' .. ARGV[1]) "
+			+ "redis.call('zadd', KEYS[1], ARGV[2], ARGV[3]) "
+			+ "local last = redis.call('zrange', KEYS[1], -1, -1, 'WITHSCORES')[2] "
+			+ "if last == 'inf' then redis.call('persist', KEYS[1]) else redis.call('pexpireat', KEYS[1], last) end "
+			+ "return redis.call('zcard', KEYS[1])";
+
+	/**
+	 * KEYS: index</br>
+	 * ARGV: sessionIds...</br>
+	 * Returns remaining sessions count.
+	 */
+	final private static String SCRIPT_REMOVE = "for i = 1, #ARGV do redis.call('zrem', KEYS[1], ARGV[i]) end "
+			+ "local n = redis.call('zcard', KEYS[1]) if n == 0 then redis.call('del', KEYS[1]) end return n";
+
+	/**
+	 * KEYS: index</br>
+	 * ARGV: now</br>
+	 * Returns active session ids.
+	 */
+	final private static String SCRIPT_LIST = "redis.call('zremrangebyscore', KEYS[1], '-inf', '(' .. ARGV[1]) "
+			+ "return redis.call('zrange', KEYS[1], 0, -1)";
+
+	/**
+	 * KEYS: index</br>
+	 * ARGV: now</br>
+	 * Returns active sessions count.
+	 */
+	final private static String SCRIPT_COUNT = "redis.call('zremrangebyscore', KEYS[1], '-inf', '(' .. ARGV[1]) "
+			+ "return redis.call('zcard', KEYS[1])";
+
+	/**
+	 * Index key prefix.
+	 */
+	final private String prefix;
+
+	final private JedisCluster jedisCluster;
+
+	public PrincipalSessionIndex(String prefix, JedisCluster jedisCluster) {
+		Assert.hasText(prefix, "'prefix' must not be empty");
+		Assert.notNull(jedisCluster, "'jedisCluster' must not be null");
+		this.prefix = prefix;
+		this.jedisCluster = jedisCluster;
+	}
+
+	/**
+	 * Add or refresh the session of principal.
+	 *
+	 * @param principal
+	 * @param sessionId
+	 * @param timeoutMs
+	 *            session timeout, negative means never expired.
+	 * @return active sessions count of the principal
+	 */
+	public long add(String principal, String sessionId, long timeoutMs) {
+		Assert.hasText(principal, "'principal' must not be empty");
+		Assert.hasText(sessionId, "'sessionId' must not be empty");
+		long now = System.currentTimeMillis();
+		String expireAt = timeoutMs < 0 ? "+inf" : String.valueOf(now + timeoutMs);
+		Object res = jedisCluster.eval(SCRIPT_ADD, singletonList(getKey(principal)),
+				asList(String.valueOf(now), expireAt, sessionId));
+		return res == null ? 0 : (Long) res;
+	}
+
+	/**
+	 * Remove the sessions of principal.
+	 *
+	 * @param principal
+	 * @param sessionIds
+	 * @return remaining sessions count of the principal
+	 */
+	public long remove(String principal, List<String> sessionIds) {
+		Assert.hasText(principal, "'principal' must not be empty");
+		if (sessionIds == null || sessionIds.isEmpty()) {
+			return count(principal);
+		}
+		Object res = jedisCluster.eval(SCRIPT_REMOVE, singletonList(getKey(principal)), new ArrayList<>(sessionIds));
+		return res == null ? 0 : (Long) res;
+	}
+
+	/**
+	 * Active session ids of principal, ordered by expiration time ascending.
+	 *
+	 * @param principal
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public List<String> list(String principal) {
+		Assert.hasText(principal, "'principal' must not be empty");
+		Object res = jedisCluster.eval(SCRIPT_LIST, singletonList(getKey(principal)),
+				singletonList(String.valueOf(System.currentTimeMillis())));
+		return res == null ? emptyList() : (List<String>) res;
+	}
+
+	/**
+	 * Active sessions count of principal.
+	 *
+	 * @param principal
+	 * @return
+	 */
+	public long count(String principal) {
+		Assert.hasText(principal, "'principal' must not be empty");
+		Object res = jedisCluster.eval(SCRIPT_COUNT, singletonList(getKey(principal)),
+				singletonList(String.valueOf(System.currentTimeMillis())));
+		return res == null ? 0 : (Long) res;
+	}
+
+	private String getKey(String principal) {
+		return prefix + principal;
+	}
+
+}
@@ -67,7 +67,8 @@ public abstract class Securitys {
 	 * @return
 	 */
 	public static String createHostFactor(String remoteHost) {
-		return isNotBlank(remoteHost) ? (KEY_FAIL_LIMITER_RIP_PREFIX + encodeHexString(remoteHost.getBytes(UTF_8))) : null;
+		return isNotBlank(remoteHost) ? (KEY_FAIL_LIMITER_RIP_PREFIX + hashTag(encodeHexString(remoteHost.getBytes(UTF_8))))
+				: null;
 	}
 
 	/**
@@ -77,7 +78,19 @@ public abstract class Securitys {
 	 * @return
 	 */
 	public static String createPrincipalFactor(String principal) {
-		return isNotBlank(principal) ? (KEY_FAIL_LIMITER_USER_PREFIX + principal) : null;
+		return isNotBlank(principal) ? (KEY_FAIL_LIMITER_USER_PREFIX + hashTag(principal)) : null;
+	}
+
+	/**
+	 * Wrap the factor value as the redis cluster hash tag, so the counters and
+	 * the lock of a factor are in the same slot(e.g. updated by one LUA
+	 * script).
+	 * 
+	 * @param value
+	 * @return
+	 */
+	private static String hashTag(String value) {
+		return "{" + value + "}";
 	}
 
 }
\ No newline at end of file
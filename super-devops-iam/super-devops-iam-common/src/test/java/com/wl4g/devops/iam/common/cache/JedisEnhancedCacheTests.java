@@ -0,0 +1,188 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.iam.common.cache;
+
+import static com.wl4g.devops.iam.common.cache.JedisEnhancedCache.NAMESPACE_DELIMITER;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import com.wl4g.devops.support.cache.EmbeddedRedisCluster;
+
+import redis.clients.jedis.JedisCluster;
+
+/**
+ * {@link JedisEnhancedCache} tests against an embedded single node redis
+ * cluster(owning all slots).
+ *
+ * @author wangl.sir
+ * @version v1.0 2019年9月14日
+ * @since
+ */
+public class JedisEnhancedCacheTests {
+
+	final private static int THREADS = 16;
+
+	@ClassRule
+	final public static EmbeddedRedisCluster REDIS = new EmbeddedRedisCluster();
+
+	private static JedisCluster cluster;
+
+	private JedisCacheManager cacheManager;
+
+	@BeforeClass
+	public static void connect() {
+		cluster = REDIS.getCluster();
+	}
+
+	@Before
+	public void flush() {
+		REDIS.flushAll();
+		cacheManager = new JedisCacheManager("test_", cluster);
+	}
+
+	@Test
+	public void concurrentIncrementWithExpire() throws Exception {
+		EnhancedCache cache = cacheManager.getEnhancedCache("counter_");
+		EnhancedKey key = new EnhancedKey("c1", 60_000L);
+		int rounds = 500;
+		runConcurrently(() -> {
+			for (int i = 0; i < rounds; i++) {
+				cache.incrementGet(key);
+			}
+			return null;
+		});
+		assertEquals(Long.valueOf(THREADS * rounds + 2), cache.incrementGet(key, 2));
+		assertEquals(Long.valueOf(THREADS * rounds - 1), cache.decrementGet(key, 3));
+		assertEquals(Long.valueOf(THREADS * rounds - 2), cache.decrementGet(key));
+
+		long ttl = cluster.pttl(key.getKey("test_counter_" + NAMESPACE_DELIMITER));
+		assertTrue("TTL: " + ttl, ttl > 0 && ttl <= 60_000L);
+	}
+
+	@Test
+	public void concurrentTimeToLive() throws Exception {
+		EnhancedCache cache = cacheManager.getEnhancedCache("lock_");
+		EnhancedKey key = new EnhancedKey("l1", 30);
+		List<Long> ttls = runConcurrently(() -> cache.timeToLive(key, "owner"));
+
+		// Only the first one sees the key without expiration.
+		assertEquals(1, ttls.stream().filter(ttl -> ttl == -1L).count());
+		assertTrue(ttls.stream().allMatch(ttl -> ttl == -1L || (ttl > 0 && ttl <= 30)));
+		assertEquals("owner", new String(cluster.get(key.getKey("test_lock_" + NAMESPACE_DELIMITER))));
+	}
+
+	@Test
+	public void batchAndScan() {
+		EnhancedCache cache = cacheManager.getEnhancedCache("batch_");
+		EnhancedCache other = cacheManager.getEnhancedCache("other_");
+		other.put(new EnhancedKey("o1", 60), "other");
+
+		Map<EnhancedKey, Object> values = new LinkedHashMap<>();
+		for (int i = 0; i < 1200; i++) {
+			values.put(new EnhancedKey("k" + i, 60), "v" + i);
+		}
+		cache.putAll(values);
+		assertEquals(1200, cache.size());
+		assertEquals(values.size(), cache.keys().size());
+
+		List<EnhancedKey> keys = new ArrayList<>();
+		keys.add(new EnhancedKey("k7", String.class));
+		keys.add(new EnhancedKey("missing", String.class));
+		keys.add(new EnhancedKey("k1199", String.class));
+		List<Object> got = cache.getAll(keys);
+		assertEquals("v7", got.get(0));
+		assertNull(got.get(1));
+		assertEquals("v1199", got.get(2));
+
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertEquals(1, other.size());
+	}
+
+	@Test
+	public void clearWithPrefixSharingSibling() {
+		// The name of a cache is the prefix of its sibling's name.
+		EnhancedCache cache = cacheManager.getEnhancedCache("securer_");
+		EnhancedCache sibling = cacheManager.getEnhancedCache("securer_pubkey_idx_");
+		cache.put(new EnhancedKey("keypairs_1", 60), "ring");
+		cache.put(new EnhancedKey("pubkey_idx_u1", 60), "not of the sibling");
+		sibling.put(new EnhancedKey("u1", 60), "pubkey");
+		sibling.put(new EnhancedKey("u2", 60), "pubkey");
+		assertEquals(2, cache.size());
+		assertEquals(2, sibling.size());
+
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertEquals(2, sibling.size());
+		assertEquals("pubkey", sibling.get(new EnhancedKey("u1", String.class)));
+
+		cache.put(new EnhancedKey("keypairs_1", 60), "ring");
+		sibling.clear();
+		assertEquals(0, sibling.size());
+		assertEquals("ring", cache.get(new EnhancedKey("keypairs_1", String.class)));
+	}
+
+	@Test
+	public void putIfAbsent() {
+		EnhancedCache cache = cacheManager.getEnhancedCache("absent_");
+		assertTrue(cache.putIfAbsent(new EnhancedKey("a1"), "first"));
+		assertFalse(cache.putIfAbsent(new EnhancedKey("a1"), "second"));
+		assertTrue(cache.putIfAbsent(new EnhancedKey("a2", 10_000L), "first"));
+		assertFalse(cache.putIfAbsent(new EnhancedKey("a2", 10_000L), "second"));
+		assertEquals("first", cache.get(new EnhancedKey("a1", String.class)));
+	}
+
+	private static <T> List<T> runConcurrently(Callable<T> task) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			CountDownLatch start = new CountDownLatch(1);
+			List<Future<T>> futures = new ArrayList<>(THREADS);
+			for (int i = 0; i < THREADS; i++) {
+				futures.add(executor.submit(() -> {
+					start.await();
+					return task.call();
+				}));
+			}
+			start.countDown();
+			List<T> results = new ArrayList<>(THREADS);
+			for (Future<T> f : futures) {
+				results.add(f.get(30, TimeUnit.SECONDS));
+			}
+			return results;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.iam.common.session.mgt;
+
+import static com.wl4g.devops.common.constants.IAMDevOpsConstants.CACHE_PRINCIPAL_SESSIONS;
+import static com.wl4g.devops.common.constants.IAMDevOpsConstants.CACHE_SESSION;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toSet;
+import static org.apache.shiro.subject.support.DefaultSubjectContext.PRINCIPALS_SESSION_KEY;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.shiro.subject.SimplePrincipalCollection;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import com.wl4g.devops.iam.common.cache.JedisCacheManager;
+import com.wl4g.devops.iam.common.config.AbstractIamProperties;
+import com.wl4g.devops.iam.common.config.AbstractIamProperties.ParamProperties;
+import com.wl4g.devops.iam.common.session.IamSession;
+import com.wl4g.devops.iam.common.session.mgt.support.PrincipalSessionIndex;
+import com.wl4g.devops.support.cache.EmbeddedRedisCluster;
+import com.wl4g.devops.support.cache.ScanCursor;
+
+import redis.clients.jedis.JedisCluster;
+
+/**
+ * {@link JedisIamSessionDAO} and {@link PrincipalSessionIndex} tests against
+ * an embedded single node redis cluster(owning all slots).
+ *
+ * @author wangl.sir
+ * @version v1.0 2019年9月20日
+ * @since
+ */
+public class JedisIamSessionDAOTests {
+
+	final private static String PREFIX = "test_";
+
+	@ClassRule
+	final public static EmbeddedRedisCluster REDIS = new EmbeddedRedisCluster();
+
+	private static JedisCluster cluster;
+
+	private JedisIamSessionDAO sessionDAO;
+
+	private PrincipalSessionIndex principalIndex;
+
+	@BeforeClass
+	public static void connect() {
+		cluster = REDIS.getCluster();
+	}
+
+	@Before
+	public void flush() {
+		REDIS.flushAll();
+		TestIamProperties config = new TestIamProperties();
+		config.getCache().setPrefix(PREFIX);
+		sessionDAO = new JedisIamSessionDAO(config, new JedisCacheManager(PREFIX, cluster));
+		principalIndex = new PrincipalSessionIndex(PREFIX + CACHE_PRINCIPAL_SESSIONS, cluster);
+	}
+
+	@Test
+	public void testIndexExpireAwareCleanup() throws Exception {
+		assertEquals(1, principalIndex.add("u1", "s1", 60_000L));
+		assertEquals(2, principalIndex.add("u1", "s2", 100L));
+		assertEquals(asList("s2", "s1"), principalIndex.list("u1"));
+
+		// Expired members are dropped by the next operation.
+		Thread.sleep(150L);
+		assertEquals(1, principalIndex.count("u1"));
+		assertEquals(singletonList("s1"), principalIndex.list("u1"));
+
+		// The index key expires with its last session, or never.
+		String key = PREFIX + CACHE_PRINCIPAL_SESSIONS + "u1";
+		long ttl = cluster.pttl(key);
+		assertTrue("TTL: " + ttl, ttl > 0 && ttl <= 60_000L);
+		assertEquals(2, principalIndex.add("u1", "s3", -1L));
+		assertEquals(Long.valueOf(-1L), cluster.pttl(key));
+
+		assertEquals(0, principalIndex.remove("u1", asList("s1", "s3")));
+		assertFalse(cluster.exists(key));
+	}
+
+	@Test
+	public void testActiveSessionsOfPrincipal() throws Exception {
+		Set<String> u1 = new HashSet<>();
+		for (int i = 0; i < 5; i++) {
+			u1.add(createSession("u1"));
+		}
+		createSession("u2");
+		createSession(null);
+		assertEquals(5, sessionDAO.countPrincipalSessions("u1"));
+		assertEquals(5, sessionDAO.getPrincipalSessions(new SimplePrincipalCollection("u1", "realm")).size());
+
+		// Only the sessions of principal.
+		assertEquals(u1, ids(sessionDAO.getPrincipalSessions(new SimplePrincipalCollection("u1", "realm"))));
+		assertEquals(u1, ids(sessionDAO.getPrincipalSessions("u1")));
+		assertEquals(new HashSet<>(), ids(sessionDAO.getPrincipalSessions("nobody")));
+		assertEquals(7, readIds(sessionDAO.getActiveSessions(2)).size());
+	}
+
+	@Test
+	public void testPrincipalSessionsInBatches() throws Exception {
+		// More than a pipelined batch.
+		Set<String> u1 = new HashSet<>();
+		for (int i = 0; i < 250; i++) {
+			u1.add(createSession("u1"));
+		}
+		// Deleted without index maintained.
+		Set<String> staleIds = new HashSet<>();
+		for (String sessionId : u1) {
+			if (staleIds.size() < 30) {
+				staleIds.add(sessionId);
+				cluster.del(PREFIX + CACHE_SESSION + sessionId);
+			}
+		}
+		u1.removeAll(staleIds);
+		assertEquals(250, sessionDAO.countPrincipalSessions("u1"));
+
+		assertEquals(u1, ids(sessionDAO.getPrincipalSessions("u1")));
+		// The stale ids are removed from the index.
+		assertEquals(u1.size(), sessionDAO.countPrincipalSessions("u1"));
+	}
+
+	@Test
+	public void testPrincipalChanged() throws Exception {
+		String sessionId = createSession("u1");
+		assertEquals(1, sessionDAO.countPrincipalSessions("u1"));
+
+		// Changed on a loaded session(e.g. of another node).
+		IamSession session = (IamSession) sessionDAO.readSession(sessionId);
+		assertNotNull(session);
+		session.setAttribute(PRINCIPALS_SESSION_KEY, new SimplePrincipalCollection("u2", "realm"));
+		sessionDAO.update(session);
+		assertEquals(0, sessionDAO.countPrincipalSessions("u1"));
+		assertEquals(singletonList(sessionId), principalIndex.list("u2"));
+		assertEquals(1, sessionDAO.getPrincipalSessions("u2").size());
+
+		// Logged out.
+		session.removeAttribute(PRINCIPALS_SESSION_KEY);
+		sessionDAO.update(session);
+		assertEquals(0, sessionDAO.countPrincipalSessions("u2"));
+		assertNotNull(sessionDAO.readSession(sessionId));
+	}
+
+	@Test
+	public void testDeleteRemovesIndexed() throws Exception {
+		String sessionId = createSession("u1");
+		createSession("u1");
+		IamSession session = (IamSession) sessionDAO.readSession(sessionId);
+		sessionDAO.delete(session);
+		assertEquals(1, sessionDAO.countPrincipalSessions("u1"));
+		assertFalse(principalIndex.list("u1").contains(sessionId));
+
+		// The sessions of principal span slots.
+		for (int i = 0; i < 20; i++) {
+			createSession("u1");
+		}
+		String other = createSession("u2");
+		sessionDAO.removeActiveSession("u1");
+		assertEquals(0, sessionDAO.countPrincipalSessions("u1"));
+		assertEquals(singleton(other), readIds(sessionDAO.getActiveSessions(10)));
+	}
+
+	private String createSession(String principal) {
+		IamSession session = new IamSession("127.0.0.1");
+		if (principal != null) {
+			session.setAttribute(PRINCIPALS_SESSION_KEY, new SimplePrincipalCollection(principal, "realm"));
+		}
+		return (String) sessionDAO.create(session);
+	}
+
+	private static Set<String> ids(List<IamSession> sessions) {
+		return sessions.stream().map(s -> s.getId()).collect(toSet());
+	}
+
+	private static Set<String> readIds(ScanCursor<IamSession> cursor) throws IOException {
+		try {
+			Set<String> ids = new HashSet<>();
+			while (cursor.hasNext()) {
+				IamSession session = cursor.next();
+				if (session != null) {
+					ids.add(session.getId());
+				}
+			}
+			return ids;
+		} finally {
+			cursor.close();
+		}
+	}
+
+	/**
+	 * IAM properties of tests.
+	 */
+	private static class TestIamProperties extends AbstractIamProperties<TestParamProperties> {
+		private static final long serialVersionUID = 1L;
+
+		private TestParamProperties param = new TestParamProperties();
+
+		@Override
+		protected String getLoginUri() {
+			return "/login.html";
+		}
+
+		@Override
+		protected String getSuccessUri() {
+			return "/index.html";
+		}
+
+		@Override
+		protected String getUnauthorizedUri() {
+			return "/403.html";
+		}
+
+		@Override
+		public TestParamProperties getParam() {
+			return param;
+		}
+
+		@Override
+		public void setParam(TestParamProperties param) {
+			this.param = param;
+		}
+
+	}
+
+	private static class TestParamProperties extends ParamProperties {
+		private static final long serialVersionUID = 1L;
+	}
+
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.iam.common.session.mgt.support;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import com.wl4g.devops.iam.common.session.IamSession;
+import com.wl4g.devops.support.cache.EmbeddedRedisCluster;
+
+import redis.clients.jedis.JedisCluster;
+
+/**
+ * {@link IncrementalSessionStore} tests of the dirty tracking against an
+ * embedded single node redis cluster(owning all slots).
+ *
+ * @author wangl.sir
+ * @version v1.0 2019年9月20日
+ * @since
+ */
+public class IncrementalSessionStoreTests {
+
+	final private static long TOUCH_INTERVAL_MS = 60_000L;
+
+	@ClassRule
+	final public static EmbeddedRedisCluster REDIS = new EmbeddedRedisCluster();
+
+	private static JedisCluster cluster;
+
+	private IncrementalSessionStore store;
+
+	@BeforeClass
+	public static void connect() {
+		cluster = REDIS.getCluster();
+	}
+
+	@Before
+	public void flush() {
+		REDIS.flushAll();
+		store = new IncrementalSessionStore("test_session_", TOUCH_INTERVAL_MS, cluster);
+	}
+
+	@Test
+	public void testUnchangedTouchCoalesced() {
+		store.save(createSession("s1"));
+		IamSession session = store.read("s1");
+		assertNotNull(session);
+
+		// Neither set nor changed in place, within the touch interval.
+		session.getAttribute("profile");
+		session.getAttribute("roles");
+		assertFalse(store.save(session));
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testChangedInPlaceWritten() {
+		store.save(createSession("s1"));
+		IamSession session = store.read("s1");
+		((Map<String, Object>) session.getAttribute("profile")).put("email", "u1@example.com");
+		((List<String>) session.getAttribute("roles")).add("admin");
+		assertTrue(store.save(session));
+		// The digests are updated by the write.
+		assertFalse(store.save(session));
+
+		IamSession loaded = store.read("s1");
+		Map<String, Object> profile = (Map<String, Object>) loaded.getAttribute("profile");
+		assertEquals("u1", profile.get("name"));
+		assertEquals("u1@example.com", profile.get("email"));
+		assertEquals(2, ((List<String>) loaded.getAttribute("roles")).size());
+		assertEquals("zh_CN", loaded.getAttribute("locale"));
+
+		// Changed in place again on the instance persisted.
+		((Map<String, Object>) session.getAttribute("profile")).remove("email");
+		assertTrue(store.save(session));
+		assertNull(((Map<String, Object>) store.read("s1").getAttribute("profile")).get("email"));
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testOnlyReadAttributesDigested() {
+		store.save(createSession("s1"));
+		IamSession session = store.read("s1");
+		assertTrue(session.getReadAttributeKeys().isEmpty());
+
+		Map<String, Object> profile = (Map<String, Object>) session.getAttribute("profile");
+		profile.put("email", "u1@example.com");
+		assertEquals(1, session.getReadAttributeKeys().size());
+		assertTrue(store.save(session));
+		assertTrue(session.getReadAttributeKeys().isEmpty());
+
+		// Changed in place without being got again since persisted, a touch
+		// serializes nothing, so it's not detected.
+		profile.put("email", "u2@example.com");
+		assertFalse(store.save(session));
+		assertEquals("u1@example.com", ((Map<String, Object>) store.read("s1").getAttribute("profile")).get("email"));
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testSetAndRemoveWritten() {
+		IamSession session = createSession("s1");
+		store.save(session);
+		session.setAttribute("locale", "en_US");
+		session.removeAttribute("roles");
+		((Map<String, Object>) session.getAttribute("profile")).put("email", "u1@example.com");
+		assertTrue(store.save(session));
+
+		IamSession loaded = store.read("s1");
+		assertEquals("en_US", loaded.getAttribute("locale"));
+		assertNull(loaded.getAttribute("roles"));
+		assertEquals("u1@example.com", ((Map<String, Object>) loaded.getAttribute("profile")).get("email"));
+		assertFalse(store.save(loaded));
+	}
+
+	private static IamSession createSession(String sessionId) {
+		IamSession session = new IamSession("127.0.0.1");
+		session.setId(sessionId);
+		Map<String, Object> profile = new HashMap<>();
+		profile.put("name", "u1");
+		session.setAttribute("profile", profile);
+		List<String> roles = new ArrayList<>();
+		roles.add("user");
+		session.setAttribute("roles", roles);
+		session.setAttribute("locale", "zh_CN");
+		return session;
+	}
+
+}
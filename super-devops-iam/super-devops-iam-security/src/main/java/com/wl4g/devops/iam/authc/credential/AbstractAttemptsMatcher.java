@@ -16,9 +16,10 @@
 package com.wl4g.devops.iam.authc.credential;
 
 import com.wl4g.devops.iam.common.authc.IamAuthenticationToken;
-import com.wl4g.devops.iam.common.cache.EnhancedCache;
-import com.wl4g.devops.iam.common.cache.EnhancedKey;
+import com.wl4g.devops.iam.common.cache.JedisCacheManager;
 import com.wl4g.devops.iam.config.IamProperties;
+import com.wl4g.devops.iam.handler.verification.AttemptsLimiter;
+import com.wl4g.devops.iam.handler.verification.AttemptsLimiter.Attempts;
 import com.wl4g.devops.iam.handler.verification.Cumulators;
 import com.wl4g.devops.iam.handler.verification.Cumulators.Cumulator;
 import com.wl4g.devops.iam.handler.verification.Verification;
@@ -29,7 +30,6 @@ import static com.wl4g.devops.common.constants.IAMDevOpsConstants.*;
 import org.apache.shiro.authc.AuthenticationInfo;
 import org.apache.shiro.authc.AuthenticationToken;
 import org.apache.shiro.authc.LockedAccountException;
-import org.apache.shiro.util.StringUtils;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.util.Assert;
 
@@ -48,30 +48,16 @@ import java.util.List;
 abstract class AbstractAttemptsMatcher extends IamBasedMatcher implements InitializingBean {
 
 	/**
-	 * EnhancedCache
+	 * Login attempts limiter(match counters and lockers, and resets the CAPTCHA
+	 * and SMS counters)
 	 */
-	private EnhancedCache lockCache;
-
-	/**
-	 * Attempts accumulator
-	 */
-	private Cumulator matchCumulator;
+	private AttemptsLimiter attemptsLimiter;
 
 	/**
 	 * Apply CAPTCHA attempts accumulator.(Session-based)
 	 */
 	private Cumulator sessionMatchCumulator;
 
-	/**
-	 * Attempts CAPTCHA accumulator
-	 */
-	private Cumulator applyCaptchaCumulator;
-
-	/**
-	 * Attempts SMS accumulator
-	 */
-	private Cumulator applySmsCumulator;
-
 	public AbstractAttemptsMatcher(Verification verification) {
 		super(verification);
 	}
@@ -136,7 +122,7 @@ abstract class AbstractAttemptsMatcher extends IamBasedMatcher implements Initia
 	protected Long postFailureProcess(String principal, List<String> factors) {
 
 		// Cumulative increment of cache matching count by 1
-		long matchCountMax = matchCumulator.accumulate(factors, 1);
+		long matchCountMax = attemptsLimiter.accumulate(principal, factors, 1).getCumulatedMax();
 
 		// Cumulative increase of session matching count by 1
 		long sessioinMatchCountMax = sessionMatchCumulator.accumulate(factors, 1);
@@ -164,24 +150,12 @@ abstract class AbstractAttemptsMatcher extends IamBasedMatcher implements Initia
 	 * @param factors
 	 */
 	protected void postSuccessProcess(String principal, List<String> factors) {
-		// Destroy all cumulators
-		destroyCumulators(factors);
-
 		if (log.isDebugEnabled()) {
 			log.debug("Principal {} matched success, cleaning factors: {}", principal, factors);
 		}
 
-		// Clean all locker(if exists)
-		factors.forEach(f -> {
-			try {
-				if (log.isInfoEnabled()) {
-					log.info("Remove lock factor: {}", f);
-				}
-				lockCache.remove(new EnhancedKey(f));
-			} catch (Exception e) {
-				log.error("", e);
-			}
-		});
+		// Destroy all cumulators and lockers(if exists)
+		destroyCumulators(factors);
 	}
 
 	/**
@@ -192,66 +166,21 @@ abstract class AbstractAttemptsMatcher extends IamBasedMatcher implements Initia
 	 * @return
 	 */
 	protected Long assertAccountLocked(String principal, List<String> factors) {
-		// Match failure lock max attempts
-		int matchLockMaxAttempts = config.getMatcher().getFailFastMatchMaxAttempts();
-		// Match failure delay time
-		long matchLockDelay = config.getMatcher().getFailFastMatchDelay();
-		// Cumulative max fail count
-		long cumulatedMax = 0;
-		// Whether the tag is locked or not
-		boolean lock = false;
-
-		for (String factor : factors) {
-			// Present factor need locks
-			boolean factorLock = false;
-
-			// Got count of failures by factor.
-			Long cumulated = matchCumulator.getCumulative(factor);
-
-			// Stored accumulated max
-			cumulatedMax = Math.max(cumulatedMax, cumulated);
-
-			// Check last locked remain time(if exist)
-			String lockedPrincipal = (String) lockCache.get(new EnhancedKey(factor, String.class));
-
-			// Previous locks have not expired
-			if (StringUtils.hasText(lockedPrincipal)) {
-				factorLock = true;
-			}
-
-			/*
-			 * No previous locks, If the number of failures is exceeded, no
-			 * login is allowed.
-			 */
-			if (cumulatedMax > matchLockMaxAttempts) {
-				factorLock = true;
-			}
-			if (log.isTraceEnabled()) {
-				log.trace(
-						"assertAccountLocked()=> factor:{}, cumulated: {}, matchLockMaxAttempts: {}, cumulatedMax: {}, lock: {}, factorLock: {}",
-						factor, cumulated, matchLockMaxAttempts, cumulatedMax, lock, factorLock);
-			}
-
-			/*
-			 * If lockout is required at present, Update decay counter time
-			 */
-			if (factorLock) {
-				Long remainTime = lockCache.timeToLive(new EnhancedKey(factor, matchLockDelay), principal);
-				log.warn(String.format(
-						"Matching failed, limiter factor [%s] attempts have been made to exceed the maximum limit [%s], remain time [%s Sec] [%s]",
-						factor, matchLockMaxAttempts, remainTime, factor));
-			}
-
-			// The whole is marked as needing to be locked
-			lock = factorLock;
+		Attempts attempts = attemptsLimiter.check(principal, factors);
+		if (log.isTraceEnabled()) {
+			log.trace("assertAccountLocked()=> factors:{}, matchLockMaxAttempts: {}, attempts: {}", factors,
+					config.getMatcher().getFailFastMatchMaxAttempts(), attempts);
 		}
 
-		if (lock) { // Any factor matched
+		if (attempts.isLocked()) { // Any factor matched
+			attempts.getLockedFactors().forEach((factor, remainTime) -> log.warn(String.format(
+					"Matching failed, limiter factor [%s] attempts have been made to exceed the maximum limit [%s], remain time [%s Sec]",
+					factor, config.getMatcher().getFailFastMatchMaxAttempts(), remainTime)));
 			log.warn("Client that has been locked. factors: {}", factors);
 			throw new LockedAccountException(bundle.getMessage("AbstractAttemptsMatcher.ipAccessReject"));
 		}
 
-		return cumulatedMax;
+		return attempts.getCumulatedMax();
 	}
 
 	/**
@@ -270,56 +199,35 @@ abstract class AbstractAttemptsMatcher extends IamBasedMatcher implements Initia
 	@Override
 	public void afterPropertiesSet() throws Exception {
 		IamProperties.MatcherProperties matcher = config.getMatcher();
-		this.lockCache = cacheManager.getEnhancedCache(CACHE_MATCH_LOCK);
-
-		this.matchCumulator = Cumulators.newCumulator(cacheManager.getEnhancedCache(CACHE_FAILFAST_MATCH_COUNTER),
-				matcher.getFailFastMatchDelay());
-
-		this.applyCaptchaCumulator = Cumulators.newCumulator(cacheManager.getEnhancedCache(CACHE_FAILFAST_CAPTCHA_COUNTER),
-				matcher.getFailFastCaptchaDelay());
-
-		this.applySmsCumulator = Cumulators.newCumulator(cacheManager.getEnhancedCache(CACHE_FAILFAST_SMS_COUNTER),
-				matcher.getFailFastSmsMaxDelay());
+		Assert.isInstanceOf(JedisCacheManager.class, cacheManager, "Attempts limiter requires the jedis cacheManager");
+		this.attemptsLimiter = new AttemptsLimiter(config.getCache().getPrefix(), matcher.getFailFastMatchMaxAttempts(),
+				matcher.getFailFastMatchDelay(), ((JedisCacheManager) cacheManager).getJedisCluster());
 
 		this.sessionMatchCumulator = Cumulators.newSessionCumulator(CACHE_FAILFAST_MATCH_COUNTER,
 				matcher.getFailFastMatchDelay());
-
-		Assert.notNull(lockCache, "lockCache is null, please check configure");
-		Assert.notNull(matchCumulator, "matchCumulator is null, please check configure");
-		Assert.notNull(applyCaptchaCumulator, "applyCaptchaCumulator is null, please check configure");
-		Assert.notNull(applySmsCumulator, "applySmsCumulator is null, please check configure");
-		Assert.notNull(sessionMatchCumulator, "sessionMatchCumulator is null, please check configure");
 	}
 
 	/**
-	 * Destroy verification accumulators all.
+	 * Destroy verification accumulators and lockers all.
 	 * 
 	 * @param factors
 	 */
 	private void destroyCumulators(@NotNull List<String> factors) {
-		matchCumulator.destroy(factors);
-		applyCaptchaCumulator.destroy(factors);
-		applySmsCumulator.destroy(factors);
 		sessionMatchCumulator.destroy(factors);
 
 		// Unlock all accounts that have failed to log in this session.
+		List<String> allFactors = new ArrayList<>(factors);
 		List<String> failPrincipalFactors = getBindValue(KEY_FAIL_PRINCIPAL_FACTORS);
 		if (null != failPrincipalFactors) {
-			matchCumulator.destroy(failPrincipalFactors);
-			applyCaptchaCumulator.destroy(failPrincipalFactors);
-			applySmsCumulator.destroy(failPrincipalFactors);
-
-			// Cleanup lock factors.
-			failPrincipalFactors.forEach(f -> {
-				try {
-					if (log.isInfoEnabled()) {
-						log.info("Remove past.failure principal factor: {}", f);
-					}
-					lockCache.remove(new EnhancedKey(f));
-				} catch (Exception e) {
-					log.error("", e);
-				}
-			});
+			failPrincipalFactors.stream().filter(f -> !allFactors.contains(f)).distinct().forEach(f -> allFactors.add(f));
+		}
+		if (log.isInfoEnabled()) {
+			log.info("Remove counters and locks of factors: {}", allFactors);
+		}
+		try {
+			attemptsLimiter.reset(allFactors);
+		} catch (Exception e) {
+			log.error("", e);
 		}
 	}
 
@@ -16,9 +16,6 @@
 package com.wl4g.devops.iam.authc.credential.secure;
 
 import java.security.MessageDigest;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
 
 import javax.annotation.Resource;
 import javax.validation.constraints.NotNull;
@@ -30,19 +27,23 @@ import org.apache.shiro.crypto.hash.SimpleHash;
 import org.apache.shiro.util.ByteSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.util.Assert;
 
 import static com.wl4g.devops.common.constants.IAMDevOpsConstants.CACHE_SECURER;
 import static com.wl4g.devops.common.constants.IAMDevOpsConstants.BEAN_DELEGATE_MSG_SOURCE;
 import static com.wl4g.devops.common.constants.IAMDevOpsConstants.CACHE_PUBKEY_IDX;
-import static com.wl4g.devops.common.constants.IAMDevOpsConstants.KEY_KEYPAIRS;
 import static com.wl4g.devops.common.utils.codec.CheckSums.*;
 
 import com.wl4g.devops.iam.authc.credential.secure.Cryptos.KeySpecPair;
+import com.wl4g.devops.iam.authc.credential.secure.KeyPairRing.AppliedKey;
+import com.wl4g.devops.iam.authc.credential.secure.KeyPairRing.RingKeyPair;
+import com.wl4g.devops.iam.authc.credential.secure.KeyPairRing.Snapshot;
 import com.wl4g.devops.iam.common.cache.EnhancedCache;
 import com.wl4g.devops.iam.common.cache.EnhancedCacheManager;
 import com.wl4g.devops.iam.common.cache.EnhancedKey;
+import com.wl4g.devops.iam.common.cache.JedisCacheManager;
 import com.wl4g.devops.iam.common.i18n.SessionDelegateMessageBundle;
 import com.wl4g.devops.iam.configure.SecurerConfig;
 
@@ -59,7 +60,7 @@ import com.wl4g.devops.iam.configure.SecurerConfig;
  * @version v1.0 2019年3月11日
  * @since
  */
-abstract class AbstractCredentialsSecurerSupport extends CodecSupport implements IamCredentialsSecurer {
+abstract class AbstractCredentialsSecurerSupport extends CodecSupport implements IamCredentialsSecurer, DisposableBean {
 
 	final protected Logger log = LoggerFactory.getLogger(getClass());
 
@@ -78,6 +79,11 @@ abstract class AbstractCredentialsSecurerSupport extends CodecSupport implements
 	 */
 	final protected Cryptos crypto;
 
+	/**
+	 * Versioned key pairs of the cryptic algorithm
+	 */
+	final private KeyPairRing keyRing;
+
 	/**
 	 * The 'private' part of the hash salt.
 	 */
@@ -95,7 +101,7 @@ abstract class AbstractCredentialsSecurerSupport extends CodecSupport implements
 	@Autowired(required = false)
 	protected CredentialsSecurerAdapter delegate;
 
-	protected AbstractCredentialsSecurerSupport(SecurerConfig config, EnhancedCacheManager cacheManager) {
+	protected AbstractCredentialsSecurerSupport(SecurerConfig config, JedisCacheManager cacheManager) {
 		Assert.notNull(config, "'config' must not be null");
 		Assert.notNull(config.getPrivateSalt(), "'privateSalt' must not be null");
 		Assert.notNull(config.getPreCryptPoolSize(), "'cryptSize' must not be null");
@@ -108,6 +114,8 @@ abstract class AbstractCredentialsSecurerSupport extends CodecSupport implements
 		this.cacheManager = cacheManager;
 		this.crypto = Cryptos.getInstance("RSA");
 		Assert.notNull(this.crypto, "'crypto' must not be null");
+		this.keyRing = new KeyPairRing(config, cacheManager.getEnhancedCache(CACHE_SECURER), crypto,
+				cacheManager.getJedisCluster());
 	}
 
 	@Override
@@ -150,26 +158,31 @@ abstract class AbstractCredentialsSecurerSupport extends CodecSupport implements
 	public String applySecret(@NotNull String principal) {
 		Assert.notNull(principal, "'principal' must not be null");
 
-		// Load secret keySpecPairs
-		List<KeySpecPair> keyPairs = loadSecretKeySpecPairs();
+		// Current secret keySpecPairs
+		Snapshot keyPairs = keyRing.current();
 
 		EnhancedCache pubIdxCache = cacheManager.getEnhancedCache(CACHE_PUBKEY_IDX);
-		Integer index = (Integer) pubIdxCache.get(new EnhancedKey(principal, Integer.class));
-		if (index == null) {
-			index = (int) (Math.random() * keyPairs.size());
+		AppliedKey applied = (AppliedKey) pubIdxCache.get(new EnhancedKey(principal, AppliedKey.class));
+		if (applied == null || applied.getVersion() != keyPairs.getVersion()) {
+			applied = new AppliedKey(keyPairs.getVersion(), (int) (Math.random() * keyPairs.size()));
 		}
-		KeySpecPair keyPair = keyPairs.get(index);
+		KeySpecPair keyPair = keyPairs.get(applied.getIndex()).getKeySpecPair();
 
 		// Save the applied keyPair to the cache
-		pubIdxCache.put(new EnhancedKey(principal, config.getApplyPubkeyExpireMs()), index);
+		pubIdxCache.put(new EnhancedKey(principal, config.getApplyPubkeyExpireMs()), applied);
 
 		if (log.isInfoEnabled()) {
-			log.info("Apply secret key is principal:{}, index:{}, publicKeyHexString:{}, privateKeyHexString:{}", principal,
-					index, keyPair.getPublicHexString(), keyPair.getPrivateHexString());
+			log.info("Apply secret key is principal:{}, applied:{}, publicKeyHexString:{}, privateKeyHexString:{}", principal,
+					applied, keyPair.getPublicHexString(), keyPair.getPrivateHexString());
 		}
 		return keyPair.getPublicHexString();
 	}
 
+	@Override
+	public void destroy() throws Exception {
+		keyRing.close();
+	}
+
 	/**
 	 * Combines the specified 'private' salt bytes with the specified additional
 	 * extra bytes to use as the total salt during hash computation.
@@ -229,7 +242,8 @@ abstract class AbstractCredentialsSecurerSupport extends CodecSupport implements
 	 */
 	protected CredentialsToken resolves(@NotNull CredentialsToken token) {
 		// Determine keyPairSpec
-		KeySpecPair keySpecPair = determineSecretKeySpecPair(token.getPrincipal());
+		RingKeyPair keyPair = determineSecretKeySpecPair(token.getPrincipal());
+		KeySpecPair keySpecPair = keyPair.getKeySpecPair();
 
 		if (log.isInfoEnabled()) {
 			String publicBase64String = keySpecPair.getPublicHexString();
@@ -246,7 +260,8 @@ abstract class AbstractCredentialsSecurerSupport extends CodecSupport implements
 		}
 
 		// Mysterious decrypt them
-		return new CredentialsToken(token.getPrincipal(), crypto.build(keySpecPair).decrypt(token.getCredentials()), true);
+		return new CredentialsToken(token.getPrincipal(), crypto.decrypt(keyPair.getPrivateKey(), token.getCredentials()),
+				true);
 	}
 
 	/**
@@ -255,16 +270,17 @@ abstract class AbstractCredentialsSecurerSupport extends CodecSupport implements
 	 * @param checkCode
 	 * @return
 	 */
-	private KeySpecPair determineSecretKeySpecPair(@NotNull String principal) {
-		// Get the generated key pair
-		List<KeySpecPair> keyPairs = loadSecretKeySpecPairs();
-
+	private RingKeyPair determineSecretKeySpecPair(@NotNull String principal) {
 		EnhancedCache pubIdxCache = cacheManager.getEnhancedCache(CACHE_PUBKEY_IDX);
 		try {
-			// Choose the best one from the candidate key pair
-			Integer index = (Integer) pubIdxCache.get(new EnhancedKey(principal, Integer.class));
-			if (index != null) {
-				return keyPairs.get(index);
+			// Choose the applied one from the candidate key pairs(may be
+			// rotated)
+			AppliedKey applied = (AppliedKey) pubIdxCache.get(new EnhancedKey(principal, AppliedKey.class));
+			if (applied != null) {
+				Snapshot keyPairs = keyRing.get(applied.getVersion());
+				if (keyPairs != null && applied.getIndex() < keyPairs.size()) {
+					return keyPairs.get(applied.getIndex());
+				}
 			}
 			throw new IllegalStateException(
 					String.format("The applied publicKey does not exist and may have expired. principal:[%s]", principal));
@@ -273,50 +289,6 @@ abstract class AbstractCredentialsSecurerSupport extends CodecSupport implements
 		}
 	}
 
-	/**
-	 * Get the generated key-pairs all
-	 * 
-	 * @param checkCode
-	 * @return
-	 */
-	@SuppressWarnings("unchecked")
-	private List<KeySpecPair> loadSecretKeySpecPairs() {
-		List<KeySpecPair> keyPairs = (List<KeySpecPair>) cacheManager.getEnhancedCache(CACHE_SECURER)
-				.get(new EnhancedKey(KEY_KEYPAIRS, ArrayList.class));
-
-		if (keyPairs == null) {
-			// Create a list of newly generated key pairs
-			keyPairs = createKeySpecPairs();
-		}
-		Assert.notEmpty(keyPairs, "'keyPairs' must not be empty");
-
-		// By keySpecPair.sort
-		Collections.sort(keyPairs);
-		return keyPairs;
-	}
-
-	/**
-	 * Re-create key spec pairs
-	 * 
-	 * @return
-	 */
-	private synchronized List<KeySpecPair> createKeySpecPairs() {
-		// Re-create cryptic keyPairs
-		List<KeySpecPair> keyPairs = new ArrayList<>(config.getPreCryptPoolSize());
-
-		// Generate keySpec pairs
-		for (int i = 0; i < config.getPreCryptPoolSize(); i++) {
-			keyPairs.add(crypto.generateKeySpecPair());
-		}
-
-		// The key pairs of candidate asymmetric algorithms are valid.
-		cacheManager.getEnhancedCache(CACHE_SECURER).putIfAbsent(new EnhancedKey(KEY_KEYPAIRS, config.getCryptosExpireMs()),
-				keyPairs);
-
-		Assert.notEmpty(keyPairs, "'keyPairs' must not be empty");
-		return keyPairs;
-	}
-
 	/**
 	 * Hasher
 	 * 
@@ -65,6 +65,18 @@ abstract class Cryptos {
 	 */
 	final private KeyFactory keyFactory;
 
+	/**
+	 * Decryption cipher of current thread, initialized with the pre-built
+	 * private key of each decryption.
+	 */
+	final private ThreadLocal<Cipher> decryptCipher = ThreadLocal.withInitial(() -> {
+		try {
+			return Cipher.getInstance(getPadAlgorithm());
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	});
+
 	static {
 		register(new RSA());
 	}
@@ -165,6 +177,44 @@ abstract class Cryptos {
 		}
 	}
 
+	/**
+	 * Decrypt the cipher text with the pre-built private key, using the cipher
+	 * of current thread.
+	 * 
+	 * @param privateKey
+	 * @param ciphertext
+	 * @return
+	 */
+	final public String decrypt(PrivateKey privateKey, String ciphertext) {
+		Assert.notNull(privateKey, "'privateKey' must not be null");
+		if (StringUtils.isEmpty(ciphertext)) {
+			return null;
+		}
+		try {
+			Cipher cipher = decryptCipher.get();
+			cipher.init(Cipher.DECRYPT_MODE, privateKey);
+			return new String(cipher.doFinal(Hex.decode(ciphertext)), "UTF-8");
+		} catch (Exception e) {
+			throw new IllegalStateException(String.format("The ciphertext string to be decrypted:[%s]", ciphertext), e);
+		}
+	}
+
+	/**
+	 * Build the public and private keys of key spec pair.
+	 * 
+	 * @param keySpecPair
+	 * @return
+	 */
+	final public KeyPair toKeyPair(KeySpecPair keySpecPair) {
+		Assert.notNull(keySpecPair, "'keySpecPair' must not be null");
+		try {
+			return new KeyPair(keyFactory.generatePublic(keySpecPair.getPublicKeySpec()),
+					keyFactory.generatePrivate(keySpecPair.getPrivateKeySpec()));
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
 	/**
 	 * Initialize the build of a password instance based on the specified key
 	 * pair
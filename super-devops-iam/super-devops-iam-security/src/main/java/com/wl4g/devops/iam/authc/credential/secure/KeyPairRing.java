@@ -0,0 +1,469 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.iam.authc.credential.secure;
+
+import static com.wl4g.devops.common.constants.IAMDevOpsConstants.KEY_CHANNEL_KEYPAIRS_ROTATED;
+import static com.wl4g.devops.common.constants.IAMDevOpsConstants.KEY_KEYPAIRS;
+import static com.wl4g.devops.common.constants.IAMDevOpsConstants.KEY_KEYPAIRS_VERSION;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.io.Closeable;
+import java.io.Serializable;
+import java.security.PrivateKey;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import com.wl4g.devops.iam.authc.credential.secure.Cryptos.KeySpecPair;
+import com.wl4g.devops.iam.common.cache.EnhancedCache;
+import com.wl4g.devops.iam.common.cache.EnhancedKey;
+import com.wl4g.devops.iam.configure.SecurerConfig;
+
+import redis.clients.jedis.JedisCluster;
+import redis.clients.jedis.JedisPubSub;
+
+/**
+ * In-memory versioned ring of the asymmetric key pairs.</br>
+ * The key pairs of a version are stored once(never changed) and the current
+ * version is a small key expiring with the cryptos expiration. Each node keeps
+ * the sorted key pairs and the pre-built private keys of the versions in use,
+ * so applying and resolving credentials neither load nor parse the key pairs.
+ * </br>
+ * The node rotating(generating a new version) publishes the version, and the
+ * other nodes switch to it by the redis pub/sub message. A background
+ * refresher rotates when the current version expired, and also polls the
+ * version key in case the messages are missed. The previous versions are kept
+ * during the overlap window(the public key apply expiration), so the public
+ * keys applied before a rotation can still be resolved.
+ *
+ * @author wangl.sir
+ * @version v1.0 2019年9月16日
+ * @since
+ */
+class KeyPairRing implements Closeable {
+
+	/**
+	 * Default refreshing interval, e.g. the current version expired or the
+	 * rotation messages were missed.
+	 */
+	final private static long DEFAULT_REFRESH_INTERVAL_MS = 5_000L;
+
+	/**
+	 * Max attempts of rotation conflicts.
+	 */
+	final private static int ROTATE_ATTEMPTS = 3;
+
+	final protected Logger log = LoggerFactory.getLogger(getClass());
+
+	final private SecurerConfig config;
+
+	/**
+	 * Securer cache
+	 */
+	final private EnhancedCache cache;
+
+	final private Cryptos crypto;
+
+	final private JedisCluster jedisCluster;
+
+	final private long refreshIntervalMs;
+
+	/**
+	 * Loaded versions, including the retiring ones.
+	 */
+	final private Map<Long, Snapshot> snapshots = new ConcurrentHashMap<>(4);
+
+	private volatile Snapshot current;
+
+	private volatile boolean running;
+
+	private ScheduledExecutorService refresher;
+
+	private Thread subscriber;
+
+	final private JedisPubSub rotationListener = new JedisPubSub() {
+		@Override
+		public void onMessage(String channel, String message) {
+			if (log.isDebugEnabled()) {
+				log.debug("Received key pairs rotation: {}", message);
+			}
+			try {
+				Snapshot snapshot = current;
+				if (snapshot == null || snapshot.getVersion() != Long.parseLong(message)) {
+					refresh();
+				}
+			} catch (Exception e) {
+				log.error(String.format("Failed to switch key pairs ring to version: %s", message), e);
+			}
+		}
+	};
+
+	KeyPairRing(SecurerConfig config, EnhancedCache cache, Cryptos crypto, JedisCluster jedisCluster) {
+		this(config, cache, crypto, jedisCluster, DEFAULT_REFRESH_INTERVAL_MS);
+	}
+
+	KeyPairRing(SecurerConfig config, EnhancedCache cache, Cryptos crypto, JedisCluster jedisCluster,
+			long refreshIntervalMs) {
+		Assert.notNull(config, "'config' must not be null");
+		Assert.notNull(cache, "'cache' must not be null");
+		Assert.notNull(crypto, "'crypto' must not be null");
+		Assert.notNull(jedisCluster, "'jedisCluster' must not be null");
+		Assert.isTrue(refreshIntervalMs > 0, "'refreshIntervalMs' must be greater than 0");
+		this.config = config;
+		this.cache = cache;
+		this.crypto = crypto;
+		this.jedisCluster = jedisCluster;
+		this.refreshIntervalMs = refreshIntervalMs;
+	}
+
+	/**
+	 * Current version of key pairs, the first call loads(or creates) it and
+	 * starts the refresher and the rotation subscriber.
+	 *
+	 * @return
+	 */
+	Snapshot current() {
+		Snapshot snapshot = current;
+		if (snapshot == null) {
+			synchronized (this) {
+				if (current == null) {
+					refresh();
+					startRefresher();
+					startSubscriber();
+				}
+				snapshot = current;
+			}
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Get key pairs of version(e.g. rotated by other nodes and not refreshed
+	 * yet).
+	 *
+	 * @param version
+	 * @return null if the version has expired
+	 */
+	Snapshot get(long version) {
+		Snapshot snapshot = snapshots.get(version);
+		if (snapshot == null) {
+			snapshot = load(version);
+			if (snapshot != null) {
+				snapshot.retire(System.currentTimeMillis() + getOverlapMs());
+				Snapshot exist = snapshots.putIfAbsent(version, snapshot);
+				snapshot = exist != null ? exist : snapshot;
+			}
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Switch to the current version, rotate if it has expired, and drop the
+	 * retired versions.
+	 */
+	void refresh() {
+		refresh(System.currentTimeMillis());
+	}
+
+	/**
+	 * Refresh at the time, the retired versions are dropped by the time.
+	 *
+	 * @param now
+	 */
+	synchronized void refresh(long now) {
+		Long version = (Long) cache.get(new EnhancedKey(KEY_KEYPAIRS_VERSION, Long.class));
+		Snapshot snapshot = version == null ? null : get(version);
+		if (snapshot == null) {
+			snapshot = rotate();
+		}
+
+		if (snapshot != current) {
+			if (current != null) {
+				current.retire(now + getOverlapMs());
+			}
+			snapshot.retire(Long.MAX_VALUE);
+			current = snapshot;
+			if (log.isInfoEnabled()) {
+				log.info("Changed key pairs ring to version: {}, size: {}", snapshot.getVersion(), snapshot.size());
+			}
+		}
+		snapshots.values().removeIf(s -> s.isRetired(now));
+	}
+
+	@Override
+	public synchronized void close() {
+		running = false;
+		if (rotationListener.isSubscribed()) {
+			rotationListener.unsubscribe();
+		}
+		if (refresher != null) {
+			refresher.shutdownNow();
+			refresher = null;
+		}
+		if (subscriber != null) {
+			subscriber.interrupt();
+			subscriber = null;
+		}
+	}
+
+	/**
+	 * Generate and store a new version, or use the version rotated by other
+	 * node at the same time.
+	 *
+	 * @return
+	 */
+	private Snapshot rotate() {
+		for (int i = 0; i < ROTATE_ATTEMPTS; i++) {
+			ArrayList<KeySpecPair> keyPairs = new ArrayList<>(config.getPreCryptPoolSize());
+			for (int j = 0; j < config.getPreCryptPoolSize(); j++) {
+				keyPairs.add(crypto.generateKeySpecPair());
+			}
+
+			// The key pairs of a version must be stored before it is current.
+			long version = System.currentTimeMillis();
+			EnhancedKey ringKey = new EnhancedKey(getRingKey(version), config.getCryptosExpireMs() + getOverlapMs());
+			if (!cache.putIfAbsent(ringKey, keyPairs)) {
+				continue; // Version conflict
+			}
+			if (cache.putIfAbsent(new EnhancedKey(KEY_KEYPAIRS_VERSION, config.getCryptosExpireMs()), version)) {
+				Snapshot snapshot = new Snapshot(version, keyPairs, crypto);
+				snapshots.put(version, snapshot);
+				publishRotation(version);
+				return snapshot;
+			}
+
+			// Rotated by other node.
+			cache.remove(new EnhancedKey(getRingKey(version)));
+			Long rotated = (Long) cache.get(new EnhancedKey(KEY_KEYPAIRS_VERSION, Long.class));
+			Snapshot snapshot = rotated == null ? null : get(rotated);
+			if (snapshot != null) {
+				return snapshot;
+			}
+		}
+		throw new IllegalStateException(String.format("Failed to rotate key pairs ring after %s attempts", ROTATE_ATTEMPTS));
+	}
+
+	@SuppressWarnings("unchecked")
+	private Snapshot load(long version) {
+		List<KeySpecPair> keyPairs = (List<KeySpecPair>) cache.get(new EnhancedKey(getRingKey(version), ArrayList.class));
+		if (keyPairs == null || keyPairs.isEmpty()) {
+			return null;
+		}
+		return new Snapshot(version, keyPairs, crypto);
+	}
+
+	/**
+	 * Notify other nodes to switch to the rotated version, they still switch
+	 * by refreshing if the message is missed.
+	 *
+	 * @param version
+	 */
+	private void publishRotation(long version) {
+		try {
+			jedisCluster.publish(KEY_CHANNEL_KEYPAIRS_ROTATED, String.valueOf(version));
+		} catch (Exception e) {
+			log.error(String.format("Failed to publish key pairs rotation of version: %s", version), e);
+		}
+	}
+
+	private void startRefresher() {
+		running = true;
+		refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "iam-keypairs-ring");
+			t.setDaemon(true);
+			return t;
+		});
+		refresher.scheduleWithFixedDelay(() -> {
+			try {
+				refresh();
+			} catch (Exception e) {
+				log.error("Failed to refresh key pairs ring", e);
+			}
+		}, refreshIntervalMs, refreshIntervalMs, MILLISECONDS);
+	}
+
+	private void startSubscriber() {
+		subscriber = new Thread(() -> subscribeRotation(), "iam-keypairs-ring-subscriber");
+		subscriber.setDaemon(true);
+		subscriber.start();
+	}
+
+	/**
+	 * Subscribe rotation messages(blocking), resubscribe on failure.
+	 */
+	private void subscribeRotation() {
+		long backoffMs = 1000L;
+		while (running && !Thread.currentThread().isInterrupted()) {
+			try {
+				jedisCluster.subscribe(rotationListener, KEY_CHANNEL_KEYPAIRS_ROTATED);
+			} catch (Exception e) {
+				if (!running) {
+					break;
+				}
+				log.warn("Key pairs rotation subscription failed, retry after {}ms. {}", backoffMs, e.getMessage());
+				try {
+					Thread.sleep(backoffMs);
+				} catch (InterruptedException e1) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+				backoffMs = Math.min(backoffMs * 2, 30_000L);
+				continue;
+			}
+			backoffMs = 1000L;
+		}
+	}
+
+	/**
+	 * The retired versions are alive until the public keys applied from them
+	 * expired.
+	 *
+	 * @return
+	 */
+	long getOverlapMs() {
+		return config.getApplyPubkeyExpireMs() + 2 * refreshIntervalMs;
+	}
+
+	private static String getRingKey(long version) {
+		return KEY_KEYPAIRS + "_" + version;
+	}
+
+	/**
+	 * Key pairs of a version.
+	 *
+	 * @author wangl.sir
+	 * @version v1.0 2019年9月16日
+	 * @since
+	 */
+	static class Snapshot {
+
+		final private long version;
+
+		final private List<RingKeyPair> keyPairs;
+
+		/**
+		 * Retire time, the versions in use is never retired.
+		 */
+		private volatile long retireAt = Long.MAX_VALUE;
+
+		Snapshot(long version, List<KeySpecPair> keySpecPairs, Cryptos crypto) {
+			List<KeySpecPair> sorted = new ArrayList<>(keySpecPairs);
+			Collections.sort(sorted);
+			List<RingKeyPair> keyPairs = new ArrayList<>(sorted.size());
+			for (KeySpecPair keySpecPair : sorted) {
+				keySpecPair.getPublicHexString(); // Pre-built
+				keyPairs.add(new RingKeyPair(keySpecPair, crypto.toKeyPair(keySpecPair).getPrivate()));
+			}
+			this.version = version;
+			this.keyPairs = Collections.unmodifiableList(keyPairs);
+		}
+
+		long getVersion() {
+			return version;
+		}
+
+		int size() {
+			return keyPairs.size();
+		}
+
+		RingKeyPair get(int index) {
+			return keyPairs.get(index);
+		}
+
+		private void retire(long retireAt) {
+			this.retireAt = retireAt;
+		}
+
+		private boolean isRetired(long now) {
+			return now >= retireAt;
+		}
+
+	}
+
+	/**
+	 * Key spec pair and the pre-built private key.
+	 *
+	 * @author wangl.sir
+	 * @version v1.0 2019年9月16日
+	 * @since
+	 */
+	static class RingKeyPair {
+
+		final private KeySpecPair keySpecPair;
+
+		final private PrivateKey privateKey;
+
+		RingKeyPair(KeySpecPair keySpecPair, PrivateKey privateKey) {
+			this.keySpecPair = keySpecPair;
+			this.privateKey = privateKey;
+		}
+
+		KeySpecPair getKeySpecPair() {
+			return keySpecPair;
+		}
+
+		PrivateKey getPrivateKey() {
+			return privateKey;
+		}
+
+	}
+
+	/**
+	 * The key pair applied by principal.
+	 *
+	 * @author wangl.sir
+	 * @version v1.0 2019年9月16日
+	 * @since
+	 */
+	public static class AppliedKey implements Serializable {
+		private static final long serialVersionUID = 2937475521364283019L;
+
+		private long version;
+
+		private int index;
+
+		public AppliedKey() {
+		}
+
+		public AppliedKey(long version, int index) {
+			this.version = version;
+			this.index = index;
+		}
+
+		public long getVersion() {
+			return version;
+		}
+
+		public int getIndex() {
+			return index;
+		}
+
+		@Override
+		public String toString() {
+			return "AppliedKey [version=" + version + ", index=" + index + "]";
+		}
+
+	}
+
+}
@@ -322,6 +322,9 @@ public class GentralAuthenticationHandler extends AbstractAuthenticationHandler
 		ScanCursor<IamSession> cursor = sessionDAO.getActiveSessions(DEFAULT_BATCH_SIZE);
 		while (cursor.hasNext()) {
 			Session session = cursor.next();
+			if (session == null) { // Expired after scanned
+				continue;
+			}
 			// GrantTicket by session
 			GrantTicketInfo info = getGrantTicketSeesion(session);
 
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.iam.handler.verification;
+
+import static com.wl4g.devops.common.constants.IAMDevOpsConstants.CACHE_FAILFAST_CAPTCHA_COUNTER;
+import static com.wl4g.devops.common.constants.IAMDevOpsConstants.CACHE_FAILFAST_MATCH_COUNTER;
+import static com.wl4g.devops.common.constants.IAMDevOpsConstants.CACHE_FAILFAST_SMS_COUNTER;
+import static com.wl4g.devops.common.constants.IAMDevOpsConstants.CACHE_MATCH_LOCK;
+import static com.wl4g.devops.iam.common.cache.JedisEnhancedCache.NAMESPACE_DELIMITER;
+import static java.util.Arrays.asList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.util.Assert;
+
+import com.google.common.base.Charsets;
+import com.wl4g.devops.support.cache.ClusterPipelineExecutor;
+import com.wl4g.devops.support.cache.ClusterPipelineExecutor.PipelineCommand;
+
+import redis.clients.jedis.JedisCluster;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+
+/**
+ * Login attempts limiter of the fail-fast factors(e.g. principal and remote
+ * IP, see {@link com.wl4g.devops.iam.common.utils.Securitys#createFactors}).
+ * </br>
+ * All keys of a factor(the match counter, the lock, the CAPTCHA and SMS
+ * counters) share the hash tag of the factor, so a factor is evaluated by one
+ * LUA script, which reads or increments the counter, locks when exceeded and
+ * renews the TTLs atomically. The scripts of all factors are pipelined by
+ * cluster node, so checking, failing or resetting a login costs one round
+ * trip per node instead of a few commands per factor.
+ * </br>
+ * The factors are not evaluated by one script, the factors of a login(e.g.
+ * the principal and the remote IP) hash to different slots, and the redis
+ * cluster rejects a script whose keys span slots(CROSSSLOT). Tagging all
+ * factors with one slot would put the counters of every principal and IP in
+ * one node, so the factors are kept independent and OR-ed by the caller.
+ *
+ * @author wangl.sir
+ * @version v1.0 2019年9月15日
+ * @since
+ */
+public class AttemptsLimiter {
+
+	final private static String MODE_CHECK = "check";
+
+	final private static String MODE_INCR = "incr";
+
+	final private static String MODE_RESET = "reset";
+
+	/**
+	 * KEYS: matchCounter, lock, captchaCounter, smsCounter</br>
+	 * ARGV: mode(check/incr/reset), incrBy, counterExpireMs, maxAttempts,
+	 * lockExpireSec, principal</br>
+	 * Returns {counter, ttl}, the ttl is the TTL(seconds) of lock before it's
+	 * renewed, -2 means not locked.
+	 */
+	final private static byte[] SCRIPT_ATTEMPTS = ("if ARGV[1] == 'reset' then "
+			+ "redis.call('del', KEYS[1], KEYS[2], KEYS[3], KEYS[4]) return {0, -2} end "
+			+ "local c = 0 "
+			+ "if ARGV[1] == 'incr' then c = redis.call('incrby', KEYS[1], ARGV[2]) "
+			+ "redis.call('pexpire', KEYS[1], ARGV[3]) "
+			+ "else c = tonumber(redis.call('get', KEYS[1]) or '0') end "
+			+ "local ttl = -2 "
+			+ "if c > tonumber(ARGV[4]) or redis.call('exists', KEYS[2]) == 1 then "
+			+ "redis.call('set', KEYS[2], ARGV[6], 'NX') ttl = redis.call('ttl', KEYS[2]) "
+			+ "redis.call('expire', KEYS[2], ARGV[5]) end "
+			+ "return {c, ttl}").getBytes(Charsets.UTF_8);
+
+	/**
+	 * Cache keys prefix.
+	 */
+	final private String prefix;
+
+	/**
+	 * Match failure lock max attempts.
+	 */
+	final private int maxAttempts;
+
+	/**
+	 * Expired milliseconds of the match counter and the lock.
+	 */
+	final private long delayMs;
+
+	final private ClusterPipelineExecutor pipelineExecutor;
+
+	public AttemptsLimiter(String prefix, int maxAttempts, long delayMs, JedisCluster jedisCluster) {
+		Assert.notNull(prefix, "'prefix' must not be null");
+		Assert.isTrue(delayMs > 0, "'delayMs' must be greater than 0");
+		Assert.notNull(jedisCluster, "'jedisCluster' must not be null");
+		this.prefix = prefix;
+		this.maxAttempts = maxAttempts;
+		this.delayMs = delayMs;
+		this.pipelineExecutor = new ClusterPipelineExecutor(jedisCluster);
+	}
+
+	/**
+	 * Check the attempts of factors, locks(or renews the lock of) the factors
+	 * exceeded.
+	 *
+	 * @param principal
+	 *            Lock owner
+	 * @param factors
+	 * @return
+	 */
+	public Attempts check(String principal, List<String> factors) {
+		return execute(MODE_CHECK, 0, principal, factors);
+	}
+
+	/**
+	 * Increment the match failures of factors, locks the factors exceeded.
+	 *
+	 * @param principal
+	 *            Lock owner
+	 * @param factors
+	 * @param incrBy
+	 * @return
+	 */
+	public Attempts accumulate(String principal, List<String> factors, long incrBy) {
+		return execute(MODE_INCR, incrBy, principal, factors);
+	}
+
+	/**
+	 * Remove the match, CAPTCHA and SMS counters and the locks of factors.
+	 *
+	 * @param factors
+	 */
+	public void reset(List<String> factors) {
+		execute(MODE_RESET, 0, "", factors);
+	}
+
+	@SuppressWarnings("unchecked")
+	private Attempts execute(String mode, long incrBy, String principal, List<String> factors) {
+		Assert.notEmpty(factors, "'factors' must not be empty");
+		Assert.notNull(principal, "'principal' must not be null");
+
+		List<byte[]> routeKeys = new ArrayList<>(factors.size());
+		for (String factor : factors) {
+			routeKeys.add(getKey(CACHE_FAILFAST_MATCH_COUNTER, factor));
+		}
+		List<byte[]> args = asList(toBytes(mode), toBytes(String.valueOf(incrBy)), toBytes(String.valueOf(delayMs)),
+				toBytes(String.valueOf(maxAttempts)), toBytes(String.valueOf(MILLISECONDS.toSeconds(delayMs))),
+				toBytes(principal));
+
+		List<Object> results = pipelineExecutor.execute(routeKeys, new PipelineCommand<Object>() {
+			@Override
+			public Response<Object> pipelined(Pipeline pipeline, byte[] key, int index) {
+				return pipeline.eval(SCRIPT_ATTEMPTS, getKeys(factors.get(index)), args);
+			}
+
+			@Override
+			public Object single(JedisCluster cluster, byte[] key, int index) {
+				return cluster.eval(SCRIPT_ATTEMPTS, getKeys(factors.get(index)), args);
+			}
+		});
+
+		Attempts attempts = new Attempts();
+		for (int i = 0; i < factors.size(); i++) {
+			List<Long> res = (List<Long>) results.get(i);
+			attempts.cumulatedMax = Math.max(attempts.cumulatedMax, res.get(0));
+			if (res.get(1) != -2L) {
+				attempts.lockedFactors.put(factors.get(i), res.get(1));
+			}
+		}
+		return attempts;
+	}
+
+	private List<byte[]> getKeys(String factor) {
+		return asList(getKey(CACHE_FAILFAST_MATCH_COUNTER, factor), getKey(CACHE_MATCH_LOCK, factor),
+				getKey(CACHE_FAILFAST_CAPTCHA_COUNTER, factor), getKey(CACHE_FAILFAST_SMS_COUNTER, factor));
+	}
+
+	/**
+	 * Key of the factor in the cache, the same as the
+	 * {@link com.wl4g.devops.iam.common.cache.JedisEnhancedCache} does.
+	 *
+	 * @param cacheName
+	 * @param factor
+	 * @return
+	 */
+	private byte[] getKey(String cacheName, String factor) {
+		return toBytes(prefix + cacheName + NAMESPACE_DELIMITER + factor);
+	}
+
+	private static byte[] toBytes(String s) {
+		return s.getBytes(Charsets.UTF_8);
+	}
+
+	/**
+	 * Attempts of factors.
+	 *
+	 * @author wangl.sir
+	 * @version v1.0 2019年9月15日
+	 * @since
+	 */
+	public static class Attempts {
+
+		/**
+		 * Max match failures of factors.
+		 */
+		private long cumulatedMax;
+
+		/**
+		 * Locked factors and the lock TTL(seconds) before it's renewed, -1
+		 * means locked right now.
+		 */
+		final private Map<String, Long> lockedFactors = new LinkedHashMap<>(2);
+
+		public long getCumulatedMax() {
+			return cumulatedMax;
+		}
+
+		public boolean isLocked() {
+			return !lockedFactors.isEmpty();
+		}
+
+		public Map<String, Long> getLockedFactors() {
+			return Collections.unmodifiableMap(lockedFactors);
+		}
+
+		@Override
+		public String toString() {
+			return "Attempts [cumulatedMax=" + cumulatedMax + ", lockedFactors=" + lockedFactors + "]";
+		}
+
+	}
+
+}
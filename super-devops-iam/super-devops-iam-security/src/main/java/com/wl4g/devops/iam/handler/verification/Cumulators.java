@@ -16,6 +16,7 @@
 package com.wl4g.devops.iam.handler.verification;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 import javax.validation.constraints.NotBlank;
@@ -27,8 +28,11 @@ import org.springframework.util.Assert;
 import org.springframework.util.CollectionUtils;
 
 import static com.wl4g.devops.iam.common.utils.SessionBindings.*;
+
+import com.google.common.base.Charsets;
 import com.wl4g.devops.iam.common.cache.EnhancedCache;
 import com.wl4g.devops.iam.common.cache.EnhancedKey;
+import com.wl4g.devops.iam.common.cache.EnhancedKey.Deserializer;
 
 /**
  * Accumulator tools
@@ -138,6 +142,17 @@ public abstract class Cumulators {
 	 */
 	public static class DefaultCumulator implements Cumulator {
 
+		/**
+		 * Plain number counter deserializer.
+		 */
+		final private static Deserializer COUNTER_DESERIALIZER = new Deserializer() {
+			@SuppressWarnings("unchecked")
+			@Override
+			public <T> T deserialize(byte[] data, Class<T> clazz) {
+				return data == null ? null : (T) Long.valueOf(new String(data, Charsets.UTF_8));
+			}
+		};
+
 		final private Logger log = LoggerFactory.getLogger(getClass());
 
 		/**
@@ -180,7 +195,7 @@ public abstract class Cumulators {
 
 		@Override
 		public long getCumulative(@NotBlank String factor) {
-			Long cumulated = (Long) cache.get(new EnhancedKey(factor, Long.class));
+			Long cumulated = (Long) cache.get(createCounterKey(factor));
 			return cumulated == null ? 0 : cumulated;
 		}
 
@@ -188,11 +203,16 @@ public abstract class Cumulators {
 		public long getCumulatives(@NotNull List<String> factors) {
 			Assert.isTrue(!CollectionUtils.isEmpty(factors), "factors must not be empty");
 
-			// Accumulated maximum number of failures
-			long cumulatedMax = 0;
+			// Get counts of failures by factors(one batch) and take max
+			List<EnhancedKey> keys = new ArrayList<>(factors.size());
 			for (String factor : factors) {
-				// Get count of failures by factor and take max
-				cumulatedMax = Math.max(cumulatedMax, getCumulative(factor));
+				keys.add(createCounterKey(factor));
+			}
+			long cumulatedMax = 0;
+			for (Object cumulated : cache.getAll(keys)) {
+				if (cumulated != null) {
+					cumulatedMax = Math.max(cumulatedMax, (Long) cumulated);
+				}
 			}
 			return cumulatedMax;
 		}
@@ -210,6 +230,16 @@ public abstract class Cumulators {
 			});
 		}
 
+		/**
+		 * The counters are the plain numbers of INCRBY, not serialized.
+		 * 
+		 * @param factor
+		 * @return
+		 */
+		private EnhancedKey createCounterKey(String factor) {
+			return new EnhancedKey(factor, Long.class).deserializer(COUNTER_DESERIALIZER);
+		}
+
 	}
 
 	/**
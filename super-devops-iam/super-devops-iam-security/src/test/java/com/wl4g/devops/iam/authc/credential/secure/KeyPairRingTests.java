@@ -0,0 +1,254 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.iam.authc.credential.secure;
+
+import static com.wl4g.devops.common.constants.IAMDevOpsConstants.CACHE_SECURER;
+import static com.wl4g.devops.common.constants.IAMDevOpsConstants.KEY_CHANNEL_KEYPAIRS_ROTATED;
+import static com.wl4g.devops.common.constants.IAMDevOpsConstants.KEY_KEYPAIRS;
+import static com.wl4g.devops.common.constants.IAMDevOpsConstants.KEY_KEYPAIRS_VERSION;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import com.wl4g.devops.iam.authc.credential.secure.KeyPairRing.Snapshot;
+import com.wl4g.devops.iam.common.cache.EnhancedCache;
+import com.wl4g.devops.iam.common.cache.EnhancedKey;
+import com.wl4g.devops.iam.common.cache.JedisCacheManager;
+import com.wl4g.devops.iam.configure.SecurerConfig;
+import com.wl4g.devops.support.cache.EmbeddedRedisCluster;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisCluster;
+
+/**
+ * {@link KeyPairRing} tests against an embedded single node redis
+ * cluster(owning all slots), the rotation, the overlap of the retired versions,
+ * the lazy loading of versions and the rotation notification across nodes.
+ *
+ * @author wangl.sir
+ * @version v1.0 2019年9月16日
+ * @since
+ */
+public class KeyPairRingTests {
+
+	final private static int POOL_SIZE = 4;
+
+	final private static long CRYPTOS_EXPIRE_MS = 60_000L;
+
+	final private static long APPLY_PUBKEY_EXPIRE_MS = 60_000L;
+
+	/**
+	 * Longer than the tests, so only the explicit refreshing and the
+	 * notification switch versions.
+	 */
+	final private static long REFRESH_INTERVAL_MS = 600_000L;
+
+	@ClassRule
+	final public static EmbeddedRedisCluster REDIS = new EmbeddedRedisCluster();
+
+	private static JedisCluster cluster;
+
+	final private Cryptos crypto = Cryptos.getInstance("RSA");
+
+	final private List<KeyPairRing> rings = new ArrayList<>();
+
+	private EnhancedCache cache;
+
+	@BeforeClass
+	public static void connect() {
+		cluster = REDIS.getCluster();
+	}
+
+	@Before
+	public void flush() {
+		REDIS.flushAll();
+		cache = new JedisCacheManager("test_", cluster).getEnhancedCache(CACHE_SECURER);
+	}
+
+	@After
+	public void closeRings() {
+		rings.forEach(KeyPairRing::close);
+	}
+
+	@Test
+	public void testRotation() {
+		KeyPairRing ring = createRing();
+		Snapshot first = ring.current();
+		assertEquals(POOL_SIZE, first.size());
+		for (int i = 0; i < first.size(); i++) {
+			assertNotNull(first.get(i).getPrivateKey());
+		}
+		assertEquals(Long.valueOf(first.getVersion()), cache.get(new EnhancedKey(KEY_KEYPAIRS_VERSION, Long.class)));
+
+		// Not expired, kept.
+		ring.refresh();
+		assertSame(first, ring.current());
+
+		// Expired, rotated to a new version.
+		expireVersion();
+		ring.refresh();
+		Snapshot second = ring.current();
+		assertNotEquals(first.getVersion(), second.getVersion());
+		assertEquals(Long.valueOf(second.getVersion()), cache.get(new EnhancedKey(KEY_KEYPAIRS_VERSION, Long.class)));
+		assertNotEquals(first.get(0).getKeySpecPair().getPublicHexString(),
+				second.get(0).getKeySpecPair().getPublicHexString());
+	}
+
+	@Test
+	public void testOverlap() {
+		KeyPairRing ring = createRing();
+		Snapshot first = ring.current();
+
+		expireVersion();
+		long rotateAt = System.currentTimeMillis();
+		ring.refresh(rotateAt);
+		assertNotEquals(first.getVersion(), ring.current().getVersion());
+		// The retired version is resolved from memory during the overlap.
+		cache.remove(new EnhancedKey(KEY_KEYPAIRS + "_" + first.getVersion()));
+		ring.refresh(rotateAt + ring.getOverlapMs() - 1);
+		assertSame(first, ring.get(first.getVersion()));
+
+		// Dropped after the overlap.
+		ring.refresh(rotateAt + ring.getOverlapMs());
+		assertNull(ring.get(first.getVersion()));
+		assertNotNull(ring.get(ring.current().getVersion()));
+	}
+
+	@Test
+	public void testLazyLoading() {
+		KeyPairRing ring1 = createRing();
+		KeyPairRing ring2 = createRing();
+		Snapshot first = ring1.current();
+		assertEquals(first.getVersion(), ring2.current().getVersion());
+
+		// Rotated by ring1, ring2 isn't refreshed yet.
+		expireVersion();
+		ring1.refresh();
+		Snapshot second = ring1.current();
+		Snapshot loaded = ring2.get(second.getVersion());
+		assertNotNull(loaded);
+		assertEquals(second.size(), loaded.size());
+		for (int i = 0; i < second.size(); i++) {
+			assertEquals(second.get(i).getKeySpecPair().getPublicHexString(),
+					loaded.get(i).getKeySpecPair().getPublicHexString());
+			assertEquals(second.get(i).getPrivateKey(), loaded.get(i).getPrivateKey());
+		}
+		assertSame(loaded, ring2.get(second.getVersion()));
+
+		// Unknown version.
+		assertNull(ring2.get(second.getVersion() + 1));
+	}
+
+	@Test
+	public void testRotationNotification() throws Exception {
+		KeyPairRing ring1 = createRing();
+		KeyPairRing ring2 = createRing();
+		Snapshot first = ring1.current();
+		assertEquals(first.getVersion(), ring2.current().getVersion());
+		awaitSubscribers(2);
+
+		expireVersion();
+		ring1.refresh();
+		long rotated = ring1.current().getVersion();
+		assertNotEquals(first.getVersion(), rotated);
+
+		// Switched by the message, long before the refreshing.
+		long deadline = System.currentTimeMillis() + 5_000L;
+		while (ring2.current().getVersion() != rotated && System.currentTimeMillis() < deadline) {
+			Thread.sleep(20L);
+		}
+		assertEquals(rotated, ring2.current().getVersion());
+		assertNotNull(ring2.get(first.getVersion())); // Overlap
+	}
+
+	@Test
+	public void testConcurrentRotation() throws Exception {
+		int nodes = 8;
+		List<KeyPairRing> nodeRings = new ArrayList<>();
+		for (int i = 0; i < nodes; i++) {
+			nodeRings.add(createRing());
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(nodes);
+		try {
+			CountDownLatch start = new CountDownLatch(1);
+			List<Future<Long>> futures = new ArrayList<>();
+			for (KeyPairRing ring : nodeRings) {
+				futures.add(executor.submit((Callable<Long>) () -> {
+					start.await();
+					return ring.current().getVersion();
+				}));
+			}
+			start.countDown();
+
+			// All nodes use the one version stored.
+			Long stored = null;
+			for (Future<Long> f : futures) {
+				long version = f.get(30, TimeUnit.SECONDS);
+				if (stored == null) {
+					stored = (Long) cache.get(new EnhancedKey(KEY_KEYPAIRS_VERSION, Long.class));
+				}
+				assertEquals(stored.longValue(), version);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private KeyPairRing createRing() {
+		SecurerConfig config = new SecurerConfig(new String[] { "MD5" }, "IAM", POOL_SIZE, CRYPTOS_EXPIRE_MS,
+				APPLY_PUBKEY_EXPIRE_MS);
+		KeyPairRing ring = new KeyPairRing(config, cache, crypto, cluster, REFRESH_INTERVAL_MS);
+		rings.add(ring);
+		return ring;
+	}
+
+	private void expireVersion() {
+		cache.remove(new EnhancedKey(KEY_KEYPAIRS_VERSION));
+	}
+
+	private static void awaitSubscribers(int count) throws InterruptedException {
+		try (Jedis jedis = REDIS.newJedis()) {
+			long deadline = System.currentTimeMillis() + 5_000L;
+			while (System.currentTimeMillis() < deadline) {
+				String n = jedis.pubsubNumSub(KEY_CHANNEL_KEYPAIRS_ROTATED).get(KEY_CHANNEL_KEYPAIRS_ROTATED);
+				if (n != null && Integer.parseInt(n) >= count) {
+					return;
+				}
+				Thread.sleep(20L);
+			}
+		}
+		throw new IllegalStateException("Rotation subscribers are not ready");
+	}
+
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.iam.handler.verification;
+
+import static com.wl4g.devops.common.constants.IAMDevOpsConstants.CACHE_FAILFAST_CAPTCHA_COUNTER;
+import static com.wl4g.devops.common.constants.IAMDevOpsConstants.CACHE_FAILFAST_MATCH_COUNTER;
+import static com.wl4g.devops.common.constants.IAMDevOpsConstants.CACHE_FAILFAST_SMS_COUNTER;
+import static com.wl4g.devops.common.constants.IAMDevOpsConstants.CACHE_MATCH_LOCK;
+import static com.wl4g.devops.iam.common.cache.JedisEnhancedCache.NAMESPACE_DELIMITER;
+import static com.wl4g.devops.iam.common.utils.Securitys.createHostFactor;
+import static com.wl4g.devops.iam.common.utils.Securitys.createPrincipalFactor;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import com.wl4g.devops.iam.handler.verification.AttemptsLimiter.Attempts;
+import com.wl4g.devops.support.cache.EmbeddedRedisCluster;
+
+import redis.clients.jedis.JedisCluster;
+import redis.clients.util.JedisClusterCRC16;
+
+/**
+ * {@link AttemptsLimiter} tests against an embedded single node redis
+ * cluster(owning all slots), the checking, locking when exceeded, renewing
+ * and resetting of the factors.
+ *
+ * @author wangl.sir
+ * @version v1.0 2019年9月15日
+ * @since
+ */
+public class AttemptsLimiterTests {
+
+	final private static String PREFIX = "iam_";
+
+	final private static int MAX_ATTEMPTS = 3;
+
+	final private static long DELAY_MS = 10_000L;
+
+	final private static String PRINCIPAL = "admin";
+
+	final private static String USER_FACTOR = createPrincipalFactor(PRINCIPAL);
+
+	final private static String HOST_FACTOR = createHostFactor("10.0.0.1");
+
+	final private static List<String> FACTORS = asList(USER_FACTOR, HOST_FACTOR);
+
+	@ClassRule
+	final public static EmbeddedRedisCluster REDIS = new EmbeddedRedisCluster();
+
+	private static JedisCluster cluster;
+
+	private AttemptsLimiter limiter;
+
+	@BeforeClass
+	public static void connect() {
+		cluster = REDIS.getCluster();
+	}
+
+	@Before
+	public void flush() {
+		REDIS.flushAll();
+		limiter = new AttemptsLimiter(PREFIX, MAX_ATTEMPTS, DELAY_MS, cluster);
+	}
+
+	@Test
+	public void testFactorKeysInOneSlot() {
+		for (String factor : FACTORS) {
+			int slot = JedisClusterCRC16.getSlot(key(CACHE_FAILFAST_MATCH_COUNTER, factor));
+			assertEquals(slot, JedisClusterCRC16.getSlot(key(CACHE_MATCH_LOCK, factor)));
+			assertEquals(slot, JedisClusterCRC16.getSlot(key(CACHE_FAILFAST_CAPTCHA_COUNTER, factor)));
+			assertEquals(slot, JedisClusterCRC16.getSlot(key(CACHE_FAILFAST_SMS_COUNTER, factor)));
+		}
+	}
+
+	@Test
+	public void testCheck() {
+		Attempts attempts = limiter.check(PRINCIPAL, FACTORS);
+		assertEquals(0L, attempts.getCumulatedMax());
+		assertFalse(attempts.isLocked());
+		// Checking creates neither counters nor locks.
+		for (String factor : FACTORS) {
+			assertFalse(cluster.exists(key(CACHE_FAILFAST_MATCH_COUNTER, factor)));
+			assertFalse(cluster.exists(key(CACHE_MATCH_LOCK, factor)));
+		}
+
+		cluster.set(key(CACHE_FAILFAST_MATCH_COUNTER, HOST_FACTOR), "2");
+		attempts = limiter.check(PRINCIPAL, FACTORS);
+		assertEquals(2L, attempts.getCumulatedMax());
+		assertFalse(attempts.isLocked());
+	}
+
+	@Test
+	public void testIncrToLock() {
+		for (int i = 1; i <= MAX_ATTEMPTS; i++) {
+			Attempts attempts = limiter.accumulate(PRINCIPAL, FACTORS, 1);
+			assertEquals(i, attempts.getCumulatedMax());
+			assertFalse(attempts.isLocked());
+		}
+		for (String factor : FACTORS) {
+			long pttl = cluster.pttl(key(CACHE_FAILFAST_MATCH_COUNTER, factor));
+			assertTrue("PTTL: " + pttl, pttl > 0 && pttl <= DELAY_MS);
+		}
+
+		// Exceeded, locked right now.
+		Attempts attempts = limiter.accumulate(PRINCIPAL, FACTORS, 1);
+		assertEquals(MAX_ATTEMPTS + 1, attempts.getCumulatedMax());
+		assertTrue(attempts.isLocked());
+		assertEquals(FACTORS, asList(attempts.getLockedFactors().keySet().toArray()));
+		for (String factor : FACTORS) {
+			assertEquals(Long.valueOf(-1L), attempts.getLockedFactors().get(factor));
+			assertEquals(PRINCIPAL, cluster.get(key(CACHE_MATCH_LOCK, factor)));
+			long ttl = cluster.ttl(key(CACHE_MATCH_LOCK, factor));
+			assertTrue("TTL: " + ttl, ttl > 0 && ttl <= DELAY_MS / 1000);
+		}
+		assertTrue(limiter.check(PRINCIPAL, FACTORS).isLocked());
+	}
+
+	@Test
+	public void testLockedByAnyFactor() {
+		// Only the host factor is exceeded(e.g. attempts of many principals).
+		limiter.accumulate(PRINCIPAL, singletonList(HOST_FACTOR), MAX_ATTEMPTS + 1);
+
+		Attempts attempts = limiter.check("guest", asList(createPrincipalFactor("guest"), HOST_FACTOR));
+		assertTrue(attempts.isLocked());
+		assertEquals(singletonList(HOST_FACTOR), asList(attempts.getLockedFactors().keySet().toArray()));
+		assertFalse(limiter.check("guest", singletonList(createPrincipalFactor("guest"))).isLocked());
+	}
+
+	@Test
+	public void testLockRenewal() {
+		limiter.accumulate(PRINCIPAL, FACTORS, MAX_ATTEMPTS + 1);
+		String lockKey = key(CACHE_MATCH_LOCK, USER_FACTOR);
+		cluster.expire(lockKey, 2);
+		// The counter expired, but the lock is still held.
+		cluster.del(key(CACHE_FAILFAST_MATCH_COUNTER, USER_FACTOR));
+
+		Attempts attempts = limiter.check("other", singletonList(USER_FACTOR));
+		assertTrue(attempts.isLocked());
+		long ttlBefore = attempts.getLockedFactors().get(USER_FACTOR);
+		assertTrue("TTL: " + ttlBefore, ttlBefore > 0 && ttlBefore <= 2);
+		// Renewed, and the owner is kept.
+		long ttl = cluster.ttl(lockKey);
+		assertTrue("TTL: " + ttl, ttl > 2 && ttl <= DELAY_MS / 1000);
+		assertEquals(PRINCIPAL, cluster.get(lockKey));
+	}
+
+	@Test
+	public void testReset() {
+		limiter.accumulate(PRINCIPAL, FACTORS, MAX_ATTEMPTS + 1);
+		for (String factor : FACTORS) {
+			cluster.set(key(CACHE_FAILFAST_CAPTCHA_COUNTER, factor), "1");
+			cluster.set(key(CACHE_FAILFAST_SMS_COUNTER, factor), "1");
+		}
+
+		limiter.reset(FACTORS);
+		for (String factor : FACTORS) {
+			assertNull(cluster.get(key(CACHE_FAILFAST_MATCH_COUNTER, factor)));
+			assertNull(cluster.get(key(CACHE_MATCH_LOCK, factor)));
+			assertNull(cluster.get(key(CACHE_FAILFAST_CAPTCHA_COUNTER, factor)));
+			assertNull(cluster.get(key(CACHE_FAILFAST_SMS_COUNTER, factor)));
+		}
+		Attempts attempts = limiter.check(PRINCIPAL, FACTORS);
+		assertEquals(0L, attempts.getCumulatedMax());
+		assertFalse(attempts.isLocked());
+		assertEquals(1L, limiter.accumulate(PRINCIPAL, FACTORS, 1).getCumulatedMax());
+	}
+
+	private static String key(String cacheName, String factor) {
+		return PREFIX + cacheName + NAMESPACE_DELIMITER + factor;
+	}
+
+}
@@ -16,7 +16,17 @@
 package com.wl4g.devops.iam.session;
 
 import static com.wl4g.devops.common.constants.IAMDevOpsConstants.CACHE_SESSION;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -25,39 +35,132 @@ import org.springframework.test.context.junit4.SpringRunner;
 
 import com.google.common.base.Charsets;
 import com.wl4g.devops.IamServer;
-import com.wl4g.devops.common.utils.serialize.ProtostuffUtils;
 import com.wl4g.devops.iam.common.session.IamSession;
+import com.wl4g.devops.iam.common.session.mgt.IamSessionDAO;
+import com.wl4g.devops.iam.common.session.mgt.support.IncrementalSessionStore;
 import com.wl4g.devops.support.cache.ScanCursor;
 
 import redis.clients.jedis.JedisCluster;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
 import redis.clients.jedis.ScanParams;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest(classes = IamServer.class)
 public class ScanCursorTests {
 
+	/** Session key prefix, see 'spring.cloud.devops.iam.cache.prefix' */
+	final private static String SESSION_PREFIX = "iam_" + CACHE_SESSION;
+
 	@Autowired
 	private JedisCluster cluster;
 
+	@Autowired
+	private IamSessionDAO sessionDAO;
+
+	private IncrementalSessionStore sessionStore;
+
+	private IamSession session;
+
+	@Before
+	public void createSession() {
+		sessionStore = new IncrementalSessionStore(SESSION_PREFIX, 0L, cluster);
+		session = new IamSession("127.0.0.1");
+		session.setId(UUID.randomUUID().toString().replaceAll("-", ""));
+		session.setTimeout(60_000L);
+		session.setAttribute("principal", "admin");
+		session.setAttribute("loginTimes", 3);
+		sessionDAO.update(session);
+	}
+
+	@After
+	public void deleteSession() {
+		sessionDAO.delete(session);
+	}
+
 	@Test
 	public void test1() {
-		byte[] data = cluster.get("iam_session_1c315080e64b4731b011a14551a54c92".getBytes(Charsets.UTF_8));
-		System.out.println("IamSession: " + ProtostuffUtils.deserialize(data, IamSession.class));
+		// Session is stored as a hash, read through the session store.
+		assertEquals("hash", cluster.type(sessionStore.getKey(session.getId())));
+		IamSession read = sessionStore.read(session.getId());
+		System.out.println("IamSession: " + read);
+		assertSameSession(session, read);
 	}
 
 	@Test
 	public void test2() {
-		byte[] match = ("iam_" + CACHE_SESSION + "*").getBytes(Charsets.UTF_8);
+		byte[] match = (SESSION_PREFIX + "*").getBytes(Charsets.UTF_8);
 		ScanParams params = new ScanParams().count(200).match(match);
 
 		ScanCursor<IamSession> res = new ScanCursor<IamSession>(cluster, null, params) {
+			@Override
+			protected Response<?> loadValue(Pipeline pipeline, byte[] key) {
+				return sessionStore.load(pipeline, key);
+			}
+
+			@Override
+			protected Object loadValue(JedisCluster cluster, byte[] key) {
+				return sessionStore.load(key);
+			}
+
+			@Override
+			protected IamSession toValue(Object data) {
+				return sessionStore.toSession(data);
+			}
 		}.open();
 
 		System.out.println("ScanResult: " + res);
+		IamSession found = null;
 		while (res.hasNext()) {
-			System.out.println("IamSession: " + res.next());
+			IamSession s = res.next();
+			System.out.println("IamSession: " + s);
+			if (s != null && session.getId().equals(s.getId())) {
+				found = s;
+			}
 		}
+		assertSameSession(session, found);
+	}
+
+	@Test
+	public void test3() {
+		// Incremental changes of attributes.
+		session.setAttribute("loginTimes", 4);
+		session.removeAttribute("principal");
+		session.setAttribute("lang", "zh_CN");
+		sessionDAO.update(session);
+
+		IamSession read = (IamSession) sessionDAO.readSession(session.getId());
+		assertSameSession(session, read);
+		assertNull(read.getAttribute("principal"));
+		assertEquals(4, read.getAttribute("loginTimes"));
 
+		IamSession found = null;
+		ScanCursor<IamSession> res = sessionDAO.getActiveSessions(200);
+		while (res.hasNext()) {
+			IamSession s = res.next();
+			System.out.println("IamSession: " + s);
+			if (s != null && session.getId().equals(s.getId())) {
+				found = s;
+			}
+		}
+		assertSameSession(session, found);
+
+		sessionDAO.delete(session);
+		assertNull(sessionDAO.readSession(session.getId()));
+	}
+
+	private static void assertSameSession(IamSession expected, IamSession actual) {
+		assertNotNull("Session not found: " + expected.getId(), actual);
+		assertEquals(expected.getId(), actual.getId());
+		assertEquals(expected.getHost(), actual.getHost());
+		assertEquals(expected.getTimeout(), actual.getTimeout());
+		assertEquals(expected.getStartTimestamp(), actual.getStartTimestamp());
+		assertTrue(actual.getAttributeKeys().containsAll(expected.getAttributeKeys()));
+		Map<Object, Object> attributes = new HashMap<>();
+		for (Object key : actual.getAttributeKeys()) {
+			attributes.put(key, actual.getAttribute(key));
+		}
+		assertEquals(expected.getAttributes(), attributes);
 	}
 
-}
\ No newline at end of file
+}
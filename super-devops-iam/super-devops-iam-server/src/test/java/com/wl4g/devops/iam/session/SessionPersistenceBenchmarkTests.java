@@ -0,0 +1,151 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.iam.session;
+
+import static com.wl4g.devops.common.constants.IAMDevOpsConstants.CACHE_SESSION;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.util.Date;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.google.common.base.Charsets;
+import com.wl4g.devops.IamServer;
+import com.wl4g.devops.common.utils.serialize.ProtostuffUtils;
+import com.wl4g.devops.iam.common.session.IamSession;
+import com.wl4g.devops.iam.common.session.mgt.IamSessionDAO;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisCluster;
+import redis.clients.jedis.JedisPool;
+
+/**
+ * Compares the full session write(the legacy layout) and the incremental
+ * session write of {@link IamSessionDAO#update}, with a large attribute map.
+ * The bytes are the network input of all cluster nodes.
+ *
+ * @author wangl.sir
+ * @version v1.0 2019年9月13日
+ * @since
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = IamServer.class)
+public class SessionPersistenceBenchmarkTests {
+
+	final private static Logger log = LoggerFactory.getLogger(SessionPersistenceBenchmarkTests.class);
+
+	final private static int ATTRIBUTES = 200;
+
+	final private static int ATTRIBUTE_SIZE = 512;
+
+	final private static int ROUNDS = 1000;
+
+	@Autowired
+	private JedisCluster cluster;
+
+	@Autowired
+	private IamSessionDAO sessionDAO;
+
+	@Test
+	public void touchBenchmark() {
+		IamSession session = createSession();
+		byte[] legacyKey = ("iam_bench_" + CACHE_SESSION + session.getId()).getBytes(Charsets.UTF_8);
+		try {
+			long bytes = inputBytes(), begin = System.nanoTime();
+			for (int i = 0; i < ROUNDS; i++) {
+				session.touch();
+				cluster.setex(legacyKey, (int) (session.getTimeout() / 1000), ProtostuffUtils.serialize(session));
+			}
+			report("Full write", inputBytes() - bytes, System.nanoTime() - begin);
+
+			bytes = inputBytes();
+			begin = System.nanoTime();
+			for (int i = 0; i < ROUNDS; i++) {
+				session.touch();
+				sessionDAO.update(session);
+			}
+			report("Incremental write", inputBytes() - bytes, System.nanoTime() - begin);
+
+			bytes = inputBytes();
+			begin = System.nanoTime();
+			for (int i = 0; i < ROUNDS; i++) {
+				session.setLastAccessTime(new Date(session.getLastAccessTime().getTime() + 60_000L));
+				sessionDAO.update(session);
+			}
+			report("Incremental write(not coalesced)", inputBytes() - bytes, System.nanoTime() - begin);
+
+			bytes = inputBytes();
+			begin = System.nanoTime();
+			for (int i = 0; i < ROUNDS; i++) {
+				session.touch();
+				session.setAttribute("attr_" + (i % ATTRIBUTES), "changed_" + i);
+				sessionDAO.update(session);
+			}
+			report("Incremental write(one attribute changed)", inputBytes() - bytes, System.nanoTime() - begin);
+
+			IamSession read = (IamSession) sessionDAO.readSession(session.getId());
+			assertNotNull(read);
+			assertEquals(ATTRIBUTES, read.getAttributeKeys().size());
+			assertEquals("changed_" + (ROUNDS - 1), read.getAttribute("attr_" + ((ROUNDS - 1) % ATTRIBUTES)));
+		} finally {
+			cluster.del(legacyKey);
+			sessionDAO.delete(session);
+		}
+	}
+
+	private IamSession createSession() {
+		IamSession session = new IamSession("127.0.0.1");
+		StringBuilder value = new StringBuilder(ATTRIBUTE_SIZE);
+		for (int i = 0; i < ATTRIBUTE_SIZE; i++) {
+			value.append((char) ('a' + i % 26));
+		}
+		for (int i = 0; i < ATTRIBUTES; i++) {
+			session.setAttribute("attr_" + i, value.toString());
+		}
+		sessionDAO.create(session);
+		return session;
+	}
+
+	/**
+	 * Total network input bytes of all cluster nodes.
+	 */
+	private long inputBytes() {
+		long total = 0;
+		for (JedisPool pool : cluster.getClusterNodes().values()) {
+			try (Jedis jedis = pool.getResource()) {
+				for (String line : jedis.info("stats").split("\r\n")) {
+					if (line.startsWith("total_net_input_bytes:")) {
+						total += Long.parseLong(line.substring(line.indexOf(':') + 1).trim());
+					}
+				}
+			}
+		}
+		return total;
+	}
+
+	private static void report(String name, long bytes, long nanos) {
+		log.info(String.format("%s: %d rounds, %.1f bytes/round, %.1f us/round", name, ROUNDS, (double) bytes / ROUNDS,
+				nanos / 1000d / ROUNDS));
+	}
+
+}
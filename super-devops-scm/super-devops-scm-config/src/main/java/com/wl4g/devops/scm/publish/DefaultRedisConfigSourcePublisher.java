@@ -17,6 +17,7 @@ package com.wl4g.devops.scm.publish;
 
 import static com.wl4g.devops.common.constants.SCMDevOpsConstants.CACHE_PUB_GROUPS;
 import static com.wl4g.devops.common.constants.SCMDevOpsConstants.KEY_PUB_PREFIX;
+import static java.util.stream.Collectors.toList;
 import static org.springframework.util.CollectionUtils.isEmpty;
 
 import java.util.ArrayList;
@@ -26,6 +27,7 @@ import java.util.Set;
 
 import com.wl4g.devops.scm.config.ScmProperties;
 import com.wl4g.devops.support.cache.JedisService;
+import com.wl4g.devops.support.cache.RedisSerializer;
 
 /**
  * SCM configuration source server publisher implements
@@ -50,14 +52,10 @@ public class DefaultRedisConfigSourcePublisher extends AbstractConfigSourcePubli
 		// Extract published config.
 		Set<Object> groups = jedisService.getObjectSet(CACHE_PUB_GROUPS);
 		if (!isEmpty(groups)) {
-			for (Object group : groups) {
-				String key = getGroupKey((String) group);
-				PublishConfigWrapper wrap = jedisService.getObjectT(key, PublishConfigWrapper.class);
-				if (wrap != null) {
-					list.add(wrap);
-				}
-				jedisService.del(key);
-			}
+			// Batch read and remove, one round trip per cluster node.
+			List<String> keys = groups.stream().map(group -> getGroupKey((String) group)).collect(toList());
+			list.addAll(jedisService.mgetObjects(keys, PublishConfigWrapper.class, RedisSerializer.PROTOSTUFF).values());
+			jedisService.mdel(keys);
 		}
 
 		if (log.isDebugEnabled()) {
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.support.cache;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisCluster;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisRedirectionException;
+
+/**
+ * Slot-aware pipelined executor of {@link JedisCluster}.</br>
+ * Keys of a batch are grouped by the master node that owns their hash slot,
+ * the commands of each node are sent in one pipeline, and the pipelines of
+ * different nodes are executed in parallel. So a batch costs one round trip
+ * per node instead of per key.</br>
+ * The {@link ClusterTopology} is refreshed when it changed(MOVED/ASK
+ * redirection, or unknown node), the redirected or failed keys are retried
+ * one by one by {@link JedisCluster}, which follows the redirections
+ * itself.</br>
+ * The pipelines to the other nodes are executed by the bounded executor of
+ * the shared {@link ClusterTopology}, when it's saturated they're executed
+ * by the caller thread.
+ * 
+ * @author Wangl.sir <983708408@qq.com>
+ * @version v1.0 2019年9月9日
+ * @since
+ */
+public class ClusterPipelineExecutor {
+	final protected Logger log = LoggerFactory.getLogger(getClass());
+
+	final private JedisCluster jedisCluster;
+
+	final private ClusterTopology topology;
+
+	public ClusterPipelineExecutor(JedisCluster jedisCluster) {
+		Assert.notNull(jedisCluster, "jedisCluster must not be null");
+		this.jedisCluster = jedisCluster;
+		this.topology = ClusterTopology.of(jedisCluster);
+	}
+
+	/**
+	 * Execute command of all keys pipelined.
+	 * 
+	 * @param keys
+	 * @param command
+	 * @return Results of corresponding keys.
+	 */
+	public <R> List<R> execute(List<byte[]> keys, PipelineCommand<R> command) {
+		Object[] results = new Object[keys.size()];
+		if (keys.isEmpty()) {
+			return toList(results);
+		}
+
+		// Group key indexes by node.
+		Map<String, List<Integer>> groups = groupByNode(keys);
+		List<Future<?>> futures = new ArrayList<>(groups.size());
+		// Pipelines of the other nodes, the first one is always executed by
+		// the caller thread.
+		ExecutorService pipelineExecutor = groups.size() > 1 ? topology.getPipelineExecutor() : null;
+		Entry<String, List<Integer>> local = null;
+		for (Entry<String, List<Integer>> group : groups.entrySet()) {
+			if (local == null) {
+				local = group;
+			} else {
+				futures.add(pipelineExecutor.submit(() -> executeNode(group.getKey(), group.getValue(), keys, command, results)));
+			}
+		}
+		executeNode(local.getKey(), local.getValue(), keys, command, results);
+
+		for (Future<?> future : futures) {
+			try {
+				future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException(e);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				}
+				throw new IllegalStateException(e.getCause());
+			}
+		}
+		return toList(results);
+	}
+
+	/**
+	 * Execute commands of the keys owned by the node in one pipeline.
+	 * 
+	 * @param nodeKey
+	 * @param indexes
+	 * @param keys
+	 * @param command
+	 * @param results
+	 */
+	private <R> void executeNode(String nodeKey, List<Integer> indexes, List<byte[]> keys, PipelineCommand<R> command,
+			Object[] results) {
+		JedisPool pool = topology.getPool(nodeKey);
+		if (pool == null) {
+			topology.refresh(); // Topology changed.
+			fallback(indexes, keys, command, results);
+			return;
+		}
+
+		List<Integer> retries = new ArrayList<>(0);
+		try (Jedis jedis = pool.getResource()) {
+			Pipeline pipeline = jedis.pipelined();
+			List<Response<R>> responses = new ArrayList<>(indexes.size());
+			for (Integer index : indexes) {
+				responses.add(command.pipelined(pipeline, keys.get(index), index));
+			}
+			pipeline.sync();
+
+			for (int i = 0; i < indexes.size(); i++) {
+				try {
+					results[indexes.get(i)] = responses.get(i).get();
+				} catch (JedisRedirectionException e) {
+					retries.add(indexes.get(i));
+				}
+			}
+		} catch (JedisConnectionException e) {
+			log.warn("Failed to pipeline of node: {}, fallback to one by one. {}", nodeKey, e.getMessage());
+			topology.refresh();
+			fallback(indexes, keys, command, results);
+			return;
+		}
+
+		if (!retries.isEmpty()) {
+			topology.refresh(); // Slots moved.
+			fallback(retries, keys, command, results);
+		}
+	}
+
+	private <R> void fallback(List<Integer> indexes, List<byte[]> keys, PipelineCommand<R> command, Object[] results) {
+		for (Integer index : indexes) {
+			results[index] = command.single(jedisCluster, keys.get(index), index);
+		}
+	}
+
+	/**
+	 * Group key indexes by master node key, the node key of unknown slot
+	 * owner is null.
+	 * 
+	 * @param keys
+	 * @return
+	 */
+	private Map<String, List<Integer>> groupByNode(List<byte[]> keys) {
+		Map<String, List<Integer>> groups = new LinkedHashMap<>();
+		for (int i = 0; i < keys.size(); i++) {
+			groups.computeIfAbsent(topology.getNode(keys.get(i)), k -> new ArrayList<>()).add(i);
+		}
+		return groups;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <R> List<R> toList(Object[] results) {
+		List<R> list = new ArrayList<>(results.length);
+		for (Object r : results) {
+			list.add((R) r);
+		}
+		return list;
+	}
+
+	/**
+	 * Command of a key, pipelined or single.
+	 * 
+	 * @param <R>
+	 */
+	public interface PipelineCommand<R> {
+
+		/**
+		 * Append command of the key into pipeline.
+		 * 
+		 * @param pipeline
+		 * @param key
+		 * @param index
+		 *            Index of the key in batch.
+		 * @return
+		 */
+		Response<R> pipelined(Pipeline pipeline, byte[] key, int index);
+
+		/**
+		 * Execute command of the key by cluster client.
+		 * 
+		 * @param cluster
+		 * @param key
+		 * @param index
+		 * @return
+		 */
+		R single(JedisCluster cluster, byte[] key, int index);
+
+	}
+
+}
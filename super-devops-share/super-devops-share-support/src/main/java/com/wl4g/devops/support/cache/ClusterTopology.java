@@ -0,0 +1,252 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.support.cache;
+
+import static java.util.Collections.unmodifiableList;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor.CallerRunsPolicy;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import com.wl4g.devops.common.utils.lang.StringUtils2;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisCluster;
+import redis.clients.jedis.JedisPool;
+import redis.clients.util.JedisClusterCRC16;
+
+/**
+ * Cached topology(slot owners and masters) of {@link JedisCluster}, loaded
+ * by 'CLUSTER SLOTS' and reloaded lazily after {@link #refresh()}, which is
+ * called when the topology is found changed(MOVED/ASK redirection, unknown
+ * or unreachable node).</br>
+ * The topology also owns the pipeline executor of the cluster client, which
+ * is bounded by the count of masters.</br>
+ * The topologies are shared by the cluster clients(weak keys), and refer to
+ * the cluster client weakly, so the topology of a discarded cluster client is
+ * cleared with it.
+ * 
+ * @author Wangl.sir <983708408@qq.com>
+ * @version v1.0 2019年9月10日
+ * @since
+ */
+final class ClusterTopology {
+	final private static Logger log = LoggerFactory.getLogger(ClusterTopology.class);
+
+	final private static int SLOTS = 16384;
+
+	/** Pipeline threads per master node. */
+	final private static int PIPELINE_THREADS_PER_MASTER = 2;
+
+	/** Pipeline tasks queued per pipeline thread. */
+	final private static int PIPELINE_QUEUE_PER_THREAD = 4;
+
+	final private static AtomicInteger pipelineThreads = new AtomicInteger(0);
+
+	/**
+	 * Shared topologies of cluster clients(compared by identity, see
+	 * {@link JedisCluster}).
+	 */
+	final private static Map<JedisCluster, ClusterTopology> topologies = new WeakHashMap<>();
+
+	/**
+	 * Weak reference, a strong one would keep the key of the topology entry
+	 * reachable forever.
+	 */
+	final private WeakReference<JedisCluster> jedisCluster;
+
+	/** Loaded topology, null if need reload. */
+	private volatile Snapshot snapshot;
+
+	/** Executor of pipelines to the nodes, created lazily. */
+	private volatile ThreadPoolExecutor pipelineExecutor;
+
+	private ClusterTopology(JedisCluster jedisCluster) {
+		Assert.notNull(jedisCluster, "jedisCluster must not be null");
+		this.jedisCluster = new WeakReference<>(jedisCluster);
+	}
+
+	/**
+	 * Gets the shared topology of the cluster client.
+	 * 
+	 * @param jedisCluster
+	 * @return
+	 */
+	static ClusterTopology of(JedisCluster jedisCluster) {
+		synchronized (topologies) {
+			return topologies.computeIfAbsent(jedisCluster, c -> new ClusterTopology(c));
+		}
+	}
+
+	/**
+	 * Count of the shared topologies, that is, the cluster clients not
+	 * discarded yet.
+	 * 
+	 * @return
+	 */
+	static int size() {
+		synchronized (topologies) {
+			return topologies.size();
+		}
+	}
+
+	/**
+	 * Master node key('host:port') of the key slot owner, null if unknown.
+	 * 
+	 * @param key
+	 * @return
+	 */
+	String getNode(byte[] key) {
+		return load().slotNodes[JedisClusterCRC16.getSlot(key)];
+	}
+
+	/**
+	 * Master node keys.
+	 * 
+	 * @return
+	 */
+	List<String> getMasters() {
+		return load().masters;
+	}
+
+	/**
+	 * Connection pool of node, null if unknown.
+	 * 
+	 * @param nodeKey
+	 * @return
+	 */
+	JedisPool getPool(String nodeKey) {
+		return nodeKey == null ? null : getJedisCluster().getClusterNodes().get(nodeKey);
+	}
+
+	/**
+	 * Gets the pipeline executor, its threads are bounded by the count of
+	 * masters(when created), and the saturated tasks are executed by the
+	 * caller thread. The idle threads are terminated, so the executor of a
+	 * discarded cluster client holds no threads.
+	 * 
+	 * @return
+	 */
+	ThreadPoolExecutor getPipelineExecutor() {
+		ThreadPoolExecutor executor = pipelineExecutor;
+		if (executor == null) {
+			synchronized (this) {
+				if ((executor = pipelineExecutor) == null) {
+					int threads = Math.max(1, getMasters().size()) * PIPELINE_THREADS_PER_MASTER;
+					executor = new ThreadPoolExecutor(threads, threads, 60, SECONDS,
+							new ArrayBlockingQueue<>(threads * PIPELINE_QUEUE_PER_THREAD), r -> {
+								Thread t = new Thread(r, "jedis-pipeline-" + pipelineThreads.incrementAndGet());
+								t.setDaemon(true);
+								return t;
+							}, new CallerRunsPolicy());
+					executor.allowCoreThreadTimeOut(true);
+					pipelineExecutor = executor;
+				}
+			}
+		}
+		return executor;
+	}
+
+	/**
+	 * Mark the topology changed, reload it on next access.
+	 */
+	void refresh() {
+		snapshot = null;
+	}
+
+	private Snapshot load() {
+		Snapshot s = snapshot;
+		if (s == null) {
+			synchronized (this) {
+				if ((s = snapshot) == null) {
+					s = snapshot = loadSnapshot();
+				}
+			}
+		}
+		return s;
+	}
+
+	/**
+	 * Load slots table by 'CLUSTER SLOTS' from any available node.
+	 * 
+	 * @return
+	 */
+	private Snapshot loadSnapshot() {
+		String[] slotNodes = new String[SLOTS];
+		Set<String> masters = new LinkedHashSet<>();
+		for (JedisPool pool : getJedisCluster().getClusterNodes().values()) {
+			try (Jedis jedis = pool.getResource()) {
+				for (Object slotInfo : jedis.clusterSlots()) {
+					List<?> info = (List<?>) slotInfo;
+					int start = ((Long) info.get(0)).intValue(), end = ((Long) info.get(1)).intValue();
+					List<?> master = (List<?>) info.get(2);
+					String nodeKey = StringUtils2.toString((byte[]) master.get(0)) + ":" + master.get(1);
+					masters.add(nodeKey);
+					for (int slot = start; slot <= end; slot++) {
+						slotNodes[slot] = nodeKey;
+					}
+				}
+				if (log.isDebugEnabled()) {
+					log.debug("Loaded cluster topology, masters: {}", masters);
+				}
+				return new Snapshot(slotNodes, unmodifiableList(new ArrayList<>(masters)));
+			} catch (Exception e) {
+				log.warn("Failed to load cluster slots, try next node. {}", e.getMessage());
+			}
+		}
+		// All unknown, callers fallback to cluster client.
+		return new Snapshot(slotNodes, unmodifiableList(new ArrayList<>(masters)));
+	}
+
+	/**
+	 * Cluster client of the topology, the callers hold the cluster client
+	 * strongly while using the topology.
+	 * 
+	 * @return
+	 */
+	private JedisCluster getJedisCluster() {
+		JedisCluster cluster = jedisCluster.get();
+		Assert.state(cluster != null, "Cluster client of the topology has been discarded");
+		return cluster;
+	}
+
+	/**
+	 * Immutable loaded topology.
+	 */
+	private static class Snapshot {
+		final private String[] slotNodes;
+		final private List<String> masters;
+
+		private Snapshot(String[] slotNodes, List<String> masters) {
+			this.slotNodes = slotNodes;
+			this.masters = masters;
+		}
+	}
+
+}
@@ -22,14 +22,22 @@ import com.wl4g.devops.common.utils.lang.StringUtils2;
 import com.wl4g.devops.common.utils.serialize.JacksonUtils;
 import com.wl4g.devops.common.utils.serialize.ObjectUtils;
 import com.wl4g.devops.common.utils.serialize.ProtostuffUtils;
+import com.wl4g.devops.support.cache.ClusterPipelineExecutor.PipelineCommand;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.util.Assert;
 import redis.clients.jedis.JedisCluster;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
 import redis.clients.jedis.ScanParams;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 
 import static com.wl4g.devops.common.utils.lang.Collections2.safeList;
@@ -45,9 +53,12 @@ public class JedisService {
 
 	private JedisCluster jedisCluster;
 
+	private ClusterPipelineExecutor pipelineExecutor;
+
 	public JedisService(JedisCluster jedisCluster) {
 		Assert.isTrue(jedisCluster != null, "Redis cluster object creation failed.");
 		this.jedisCluster = jedisCluster;
+		this.pipelineExecutor = new ClusterPipelineExecutor(jedisCluster);
 	}
 
 	public JedisCluster getJedisCluster() {
@@ -660,6 +671,169 @@ public class JedisService {
 
 	}
 
+	// --- Batch(pipelined by cluster node) ---
+
+	/**
+	 * Multi get string values, one round trip per cluster node.
+	 * 
+	 * @param keys
+	 * @return Values of existing keys.
+	 */
+	@SuppressWarnings("unchecked")
+	public Map<String, String> mget(final Collection<String> keys) {
+		return (Map<String, String>) doExecuteWithRedis(cluster -> {
+			Map<String, String> result = new LinkedHashMap<>();
+			List<String> keyList = new ArrayList<>(keys);
+			List<byte[]> values = pipelinedGet(keyList);
+			for (int i = 0; i < keyList.size(); i++) {
+				if (values.get(i) != null) {
+					result.put(keyList.get(i), StringUtils2.toString(values.get(i)));
+				}
+			}
+			if (log.isDebugEnabled()) {
+				log.debug("mget {} = {}", keys, result);
+			}
+			return result;
+		});
+	}
+
+	/**
+	 * Multi set string values, one round trip per cluster node.
+	 * 
+	 * @param values
+	 * @param cacheSeconds
+	 *            Time-out, 0 is no time-out
+	 */
+	public void mset(final Map<String, String> values, final int cacheSeconds) {
+		doExecuteWithRedis(cluster -> {
+			List<byte[]> keys = new ArrayList<>(values.size());
+			List<byte[]> data = new ArrayList<>(values.size());
+			for (Entry<String, String> ent : values.entrySet()) {
+				keys.add(getBytesKey(ent.getKey()));
+				data.add(StringUtils2.getBytes(ent.getValue()));
+			}
+			pipelinedSet(keys, data, cacheSeconds);
+			if (log.isDebugEnabled()) {
+				log.debug("mset {}", values);
+			}
+			return null;
+		});
+	}
+
+	/**
+	 * Multi get object values, one round trip per cluster node.
+	 * 
+	 * @param keys
+	 * @param clazz
+	 * @param serializer
+	 *            Must be the same as written.
+	 * @return Values of existing keys.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> Map<String, T> mgetObjects(final Collection<String> keys, final Class<T> clazz,
+			final RedisSerializer serializer) {
+		return (Map<String, T>) doExecuteWithRedis(cluster -> {
+			Map<String, T> result = new LinkedHashMap<>();
+			List<String> keyList = new ArrayList<>(keys);
+			List<byte[]> values = pipelinedGet(keyList);
+			for (int i = 0; i < keyList.size(); i++) {
+				T value = serializer.deserialize(values.get(i), clazz);
+				if (value != null) {
+					result.put(keyList.get(i), value);
+				}
+			}
+			if (log.isDebugEnabled()) {
+				log.debug("mgetObjects {} = {}", keys, result);
+			}
+			return result;
+		});
+	}
+
+	/**
+	 * Multi set object values, one round trip per cluster node.
+	 * 
+	 * @param values
+	 * @param cacheSeconds
+	 *            Time-out, 0 is no time-out
+	 * @param serializer
+	 */
+	public <T> void msetObjects(final Map<String, T> values, final int cacheSeconds, final RedisSerializer serializer) {
+		doExecuteWithRedis(cluster -> {
+			List<byte[]> keys = new ArrayList<>(values.size());
+			List<byte[]> data = new ArrayList<>(values.size());
+			for (Entry<String, T> ent : values.entrySet()) {
+				keys.add(getBytesKey(ent.getKey()));
+				data.add(serializer.serialize(ent.getValue()));
+			}
+			pipelinedSet(keys, data, cacheSeconds);
+			if (log.isDebugEnabled()) {
+				log.debug("msetObjects {}", values);
+			}
+			return null;
+		});
+	}
+
+	/**
+	 * Multi delete keys(including object keys), one round trip per cluster
+	 * node.
+	 * 
+	 * @param keys
+	 * @return Number of deleted keys.
+	 */
+	public Long mdel(final Collection<String> keys) {
+		return (Long) doExecuteWithRedis(cluster -> {
+			List<byte[]> keyList = keys.stream().map(k -> getBytesKey(k)).collect(toList());
+			long result = 0;
+			for (Long deleted : pipelineExecutor.execute(keyList, new PipelineCommand<Long>() {
+				@Override
+				public Response<Long> pipelined(Pipeline pipeline, byte[] key, int index) {
+					return pipeline.del(key);
+				}
+
+				@Override
+				public Long single(JedisCluster jdsCluster, byte[] key, int index) {
+					return jdsCluster.del(key);
+				}
+			})) {
+				result += deleted == null ? 0 : deleted;
+			}
+			if (log.isDebugEnabled()) {
+				log.debug("mdel {}", keys);
+			}
+			return result;
+		});
+	}
+
+	private List<byte[]> pipelinedGet(List<String> keys) {
+		List<byte[]> keyList = keys.stream().map(k -> getBytesKey(k)).collect(toList());
+		return pipelineExecutor.execute(keyList, new PipelineCommand<byte[]>() {
+			@Override
+			public Response<byte[]> pipelined(Pipeline pipeline, byte[] key, int index) {
+				return pipeline.get(key);
+			}
+
+			@Override
+			public byte[] single(JedisCluster cluster, byte[] key, int index) {
+				return cluster.get(key);
+			}
+		});
+	}
+
+	private void pipelinedSet(List<byte[]> keys, List<byte[]> values, final int cacheSeconds) {
+		pipelineExecutor.execute(keys, new PipelineCommand<String>() {
+			@Override
+			public Response<String> pipelined(Pipeline pipeline, byte[] key, int index) {
+				return cacheSeconds > 0 ? pipeline.setex(key, cacheSeconds, values.get(index))
+						: pipeline.set(key, values.get(index));
+			}
+
+			@Override
+			public String single(JedisCluster cluster, byte[] key, int index) {
+				return cacheSeconds > 0 ? cluster.setex(key, cacheSeconds, values.get(index)) : cluster.set(key, values.get(index));
+			}
+		});
+	}
+
 	// --- Utility ---
 
 	public byte[] getBytesKey(Object object) {
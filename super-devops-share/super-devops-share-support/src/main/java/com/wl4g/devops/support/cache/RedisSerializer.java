@@ -0,0 +1,100 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.support.cache;
+
+import static com.wl4g.devops.common.utils.serialize.JacksonUtils.parseJSON;
+import static com.wl4g.devops.common.utils.serialize.JacksonUtils.toJSONString;
+
+import com.wl4g.devops.common.utils.lang.StringUtils2;
+import com.wl4g.devops.common.utils.serialize.ObjectUtils;
+import com.wl4g.devops.common.utils.serialize.ProtostuffUtils;
+
+/**
+ * Typed value serializers of {@link JedisService} batch operations, the
+ * values must be read with the same serializer as written.
+ * 
+ * @author Wangl.sir <983708408@qq.com>
+ * @version v1.0 2019年9月9日
+ * @since
+ */
+public enum RedisSerializer {
+
+	/**
+	 * Protostuff serialization, compatible with
+	 * {@link JedisService#getObjectT(String, Class)}
+	 */
+	PROTOSTUFF {
+		@Override
+		public byte[] serialize(Object value) {
+			return ProtostuffUtils.serialize(value);
+		}
+
+		@Override
+		public <T> T deserialize(byte[] data, Class<T> clazz) {
+			return ProtostuffUtils.deserialize(data, clazz);
+		}
+	},
+
+	/**
+	 * JSON serialization, compatible with
+	 * {@link JedisService#getObjectAsJson(String, Class)}
+	 */
+	JSON {
+		@Override
+		public byte[] serialize(Object value) {
+			return value == null ? null : StringUtils2.getBytes(toJSONString(value));
+		}
+
+		@Override
+		public <T> T deserialize(byte[] data, Class<T> clazz) {
+			return data == null ? null : parseJSON(StringUtils2.toString(data), clazz);
+		}
+	},
+
+	/**
+	 * JDK serialization, compatible with {@link JedisService#getObject(String)}
+	 */
+	JDK {
+		@Override
+		public byte[] serialize(Object value) {
+			return ObjectUtils.serialize(value);
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public <T> T deserialize(byte[] data, Class<T> clazz) {
+			return data == null ? null : (T) ObjectUtils.unserialize(data);
+		}
+	};
+
+	/**
+	 * Serialize value.
+	 * 
+	 * @param value
+	 * @return
+	 */
+	public abstract byte[] serialize(Object value);
+
+	/**
+	 * Deserialize value.
+	 * 
+	 * @param data
+	 * @param clazz
+	 * @return
+	 */
+	public abstract <T> T deserialize(byte[] data, Class<T> clazz);
+
+}
@@ -15,29 +15,45 @@
  */
 package com.wl4g.devops.support.cache;
 
+import static com.wl4g.devops.common.utils.serialize.ProtostuffUtils.*;
 import static java.util.Collections.emptyList;
 import static java.util.stream.Collectors.toList;
 import static org.springframework.util.CollectionUtils.isEmpty;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
-import java.util.stream.Collectors;
-
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.core.ResolvableType;
 import org.springframework.util.Assert;
 import org.springframework.util.CollectionUtils;
 
 import com.google.common.base.Charsets;
-
-import static com.wl4g.devops.common.utils.serialize.ProtostuffUtils.*;
+import com.wl4g.devops.support.cache.ClusterPipelineExecutor.PipelineCommand;
 
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisCluster;
 import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
 import redis.clients.jedis.ScanParams;
 import redis.clients.jedis.ScanResult;
 
@@ -45,8 +61,15 @@ import redis.clients.jedis.ScanResult;
  * Redis client agnostic {@link Cursor} implementation continuously loading
  * additional results from Redis server until reaching its starting point
  * {@code zero}. <br />
+ * All master nodes(of the cached {@link ClusterTopology}) are scanned
+ * concurrently, the scanned key batches are buffered in a bounded queue, so
+ * the scanners are blocked(back-pressured) when the consumer is slower.
+ * Values of a key batch are fetched in one pipeline. The consumer waits the
+ * scanned keys without holding the cursor monitor, so it can be closed by
+ * other threads. <br />
  * <strong>Note:</strong> Please note that the {@link ScanCursor} has to be
- * initialized ({@link #open()} prior to usage.
+ * initialized ({@link #open()} prior to usage, and should be
+ * {@link #close()} if it is not consumed to the end.
  * 
  * <font color=red> Note: redis scan is reverse binary iteration, not sequential
  * pointer iteration. </font> See: <a href=
@@ -63,15 +86,62 @@ public abstract class ScanCursor<E> implements Iterator<E> {
 
 	final public static ScanParams NONE_PARAMS = new ScanParams();
 
+	/**
+	 * Scanner blocked longer than it(the cursor is abandoned without closing)
+	 * will give up.
+	 */
+	final public static long ABANDON_TIMEOUT_MS = 60_000L;
+
+	/** Max threads of the node scanners of all cursors. */
+	final public static int MAX_SCANNERS = Math.max(16, Runtime.getRuntime().availableProcessors() * 4);
+
+	/** Max queued node scanners waiting for a thread. */
+	final public static int MAX_QUEUED_SCANNERS = MAX_SCANNERS * 64;
+
+	/**
+	 * Executor of the node scanners. They are blocked by the consumers of
+	 * cursors(back-pressured), so they can't be executed by the caller thread,
+	 * and aren't sharing the bounded pipeline executor. The saturated scanners
+	 * are queued, a consumer waiting its queued scanners longer than
+	 * {@link #ABANDON_TIMEOUT_MS} will give up, and {@link #open()} fails when
+	 * the queue is full.
+	 */
+	final private static ThreadPoolExecutor scannerExecutor;
+
+	static {
+		AtomicInteger counter = new AtomicInteger(0);
+		scannerExecutor = new ThreadPoolExecutor(MAX_SCANNERS, MAX_SCANNERS, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(MAX_QUEUED_SCANNERS), r -> {
+					Thread t = new Thread(r, "jedis-scanner-" + counter.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				});
+		scannerExecutor.allowCoreThreadTimeOut(true);
+	}
+
+	final protected Logger log = LoggerFactory.getLogger(getClass());
+
 	final private ScanParams params;
 	final private Class<?> valueType;
 	final private JedisCluster jdsCluster;
-	final private List<JedisPool> jdsPools;
+	final private ClusterTopology topology;
+	final private ClusterPipelineExecutor pipelineExecutor;
+	final private String cursorId;
 
-	private int selectionPos;
-	private CursorState state;
-	private String cursorId;
-	private ScanIterable<byte[]> iter; // Values
+	private volatile CursorState state;
+
+	/** Scanned key batches of all nodes. */
+	private BlockingQueue<ScanBatch> batches;
+	/** Taken key batches of concurrent consumers, before the current one. */
+	final private Deque<ScanBatch> pendingBatches = new ArrayDeque<>();
+	private List<Future<?>> scanners = emptyList();
+	private int runningScanners;
+	private int finishedScanners;
+
+	/** Current key batch. */
+	private List<byte[]> batchKeys;
+	private List<E> batchValues;
+	private int batchPos;
 
 	/**
 	 * Crates new {@link ScanCursor} with {@code id=0} and
@@ -105,6 +175,7 @@ public abstract class ScanCursor<E> implements Iterator<E> {
 	 * @param jdCluster
 	 *            JedisCluster
 	 * @param cursorId
+	 *            Start cursor id of each node.
 	 * @param param
 	 *            Defaulted to {@link ScanParams#NONE} if nulled.
 	 */
@@ -118,12 +189,12 @@ public abstract class ScanCursor<E> implements Iterator<E> {
 		// parameters");
 		this.valueType = valueType;
 		this.jdsCluster = jdCluster;
+		this.topology = ClusterTopology.of(jdCluster);
+		this.pipelineExecutor = new ClusterPipelineExecutor(jdCluster);
 		this.params = param != null ? param : NONE_PARAMS;
-		this.jdsPools = jdCluster.getClusterNodes().values().stream().collect(Collectors.toCollection(ArrayList::new));
-		this.selectionPos = 0;
 		this.state = CursorState.READY;
 		this.cursorId = cursorId;
-		this.iter = new ScanIterable<>(cursorId, Collections.emptyList());
+		this.batchKeys = emptyList();
 	}
 
 	/*
@@ -135,46 +206,59 @@ public abstract class ScanCursor<E> implements Iterator<E> {
 		return cursorId;
 	}
 
-	/*
-	 * (non-Javadoc)
+	/**
+	 * Number of nodes that have completed traversal.
 	 * 
-	 * @see org.springframework.data.redis.core.Cursor#getPosition()
+	 * @return
 	 */
-	public int getSelectionPos() {
-		return selectionPos;
+	public synchronized int getSelectionPos() {
+		return finishedScanners;
 	}
 
 	/**
-	 * Scan keys.
+	 * Scan keys of current batch(not consumed).
 	 * 
 	 * @return
 	 */
-	public List<byte[]> keys() {
-		return iter.getItems();
+	public synchronized List<byte[]> keys() {
+		return batchKeys.subList(batchPos, batchKeys.size());
 	}
 
 	/**
-	 * Scan keys as string.
+	 * Scan keys of current batch(not consumed) as string.
 	 * 
 	 * @return
 	 */
 	public List<String> keysAsString() {
-		return iter.getItems().stream().map(e -> new String(e)).collect(toList());
+		return keys().stream().map(e -> new String(e, Charsets.UTF_8)).collect(toList());
 	}
 
 	/**
-	 * Mutual exclusion with the {@link ScanCursor#next()} method (only one can
+	 * Read keys of current batch without values, mutual exclusion with the
+	 * {@link ScanCursor#next()} method (only one can be used)
+	 * 
+	 * @return
+	 */
+	public synchronized List<byte[]> readKeys() {
+		try {
+			return new ArrayList<>(keys());
+		} finally {
+			batchPos = batchKeys.size();
+		}
+	}
+
+	/**
+	 * Read values of current batch(the expired after scanned are excluded),
+	 * mutual exclusion with the {@link ScanCursor#next()} method (only one can
 	 * be used)
 	 * 
 	 * @see ScanCursor#next()
 	 */
-	@SuppressWarnings("unchecked")
-	public List<E> readValues() {
+	public synchronized List<E> readValues() {
 		try {
-			return (List<E>) iter.getItems().stream().map(key -> deserialize(jdsCluster.get(key), getValueType()))
-					.collect(toList());
+			return loadBatchValues().subList(batchPos, batchKeys.size()).stream().filter(v -> v != null).collect(toList());
 		} finally {
-			iter.getItems().clear();
+			batchPos = batchKeys.size();
 		}
 	}
 
@@ -184,14 +268,30 @@ public abstract class ScanCursor<E> implements Iterator<E> {
 	 * @see java.util.Iterator#hasNext()
 	 */
 	@Override
-	public synchronized boolean hasNext() {
-		assertCursorIsOpen();
+	public boolean hasNext() {
+		for (;;) {
+			synchronized (this) {
+				assertCursorIsOpen();
+				while (batchPos >= batchKeys.size() && !pendingBatches.isEmpty()) {
+					applyBatch(pendingBatches.poll());
+				}
+				if (batchPos < batchKeys.size() || CursorState.FINISHED == state) {
+					return batchPos < batchKeys.size();
+				}
+			}
 
-		while (!iter.iterator().hasNext() && CursorState.FINISHED != state) {
-			scan(getCursorId());
+			// Wait outside the monitor, the cursor can be closed meanwhile.
+			ScanBatch batch = takeBatch();
+			synchronized (this) {
+				if (batch != null && !isClosed()) {
+					if (batch.keys != null && batchPos < batchKeys.size()) {
+						pendingBatches.add(batch); // Taken by concurrent consumer.
+					} else {
+						applyBatch(batch);
+					}
+				}
+			}
 		}
-
-		return (iter.iterator().hasNext() || Long.valueOf(getCursorId()) > 0);
 	}
 
 	/**
@@ -199,30 +299,84 @@ public abstract class ScanCursor<E> implements Iterator<E> {
 	 * exclusion with {@link ScanCursor#readValues()} method (only one can be
 	 * used)
 	 * 
-	 * @return
+	 * @return Null if the key is expired after scanned.
 	 */
-	@SuppressWarnings("unchecked")
 	@Override
-	public synchronized E next() {
-		assertCursorIsOpen();
-
-		if (!hasNext()) {
-			throw new NoSuchElementException("No more elements available for cursor " + getCursorId() + ".");
+	public E next() {
+		for (;;) {
+			if (!hasNext()) {
+				throw new NoSuchElementException("No more elements available for cursor " + getCursorId() + ".");
+			}
+			synchronized (this) {
+				if (batchPos < batchKeys.size()) { // Else consumed concurrently.
+					return loadBatchValues().get(batchPos++);
+				}
+			}
 		}
+	}
 
-		return (E) deserialize(jdsCluster.get(iter.iterator().next()), getValueType());
+	/**
+	 * Bounded(back-pressured) spliterator of values.
+	 * 
+	 * @return
+	 */
+	public Spliterator<E> spliterator() {
+		return Spliterators.spliteratorUnknownSize(this, 0);
 	}
 
 	/**
-	 * Initialize the {@link Cursor} prior to usage.
+	 * Sequential stream of values, the cursor is closed when the stream is
+	 * closed.
+	 * 
+	 * @return
+	 */
+	public Stream<E> stream() {
+		return StreamSupport.stream(spliterator(), false).onClose(() -> {
+			try {
+				close();
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+		});
+	}
+
+	/**
+	 * Initialize the {@link Cursor} prior to usage, start the scanners of all
+	 * master nodes.
 	 */
 	public synchronized final ScanCursor<E> open() {
 		if (!isReady()) {
 			throw new RuntimeException("Cursor already " + state + ". Cannot (re)open it.");
 		}
 
+		List<String> nodes = topology.getMasters();
+		boolean checkRole = false;
+		if (nodes.isEmpty()) { // Unknown topology, check role of all nodes.
+			nodes = new ArrayList<>(jdsCluster.getClusterNodes().keySet());
+			checkRole = true;
+		}
+
 		state = CursorState.OPEN;
-		scan(getCursorId());
+		batches = new ArrayBlockingQueue<>(Math.max(4, nodes.size() * 2));
+		runningScanners = nodes.size();
+		if (runningScanners == 0) {
+			state = CursorState.FINISHED;
+			return this;
+		}
+		scanners = new ArrayList<>(nodes.size());
+		try {
+			for (String node : nodes) {
+				final boolean masterOnly = checkRole;
+				scanners.add(scannerExecutor.submit(() -> scanNode(node, masterOnly)));
+			}
+		} catch (RejectedExecutionException e) {
+			try {
+				close();
+			} catch (IOException e1) {
+				log.warn("Failed to close cursor", e1);
+			}
+			throw new IllegalStateException("Too many cluster node scanners queued, max: " + MAX_QUEUED_SCANNERS, e);
+		}
 
 		return this;
 	}
@@ -261,6 +415,14 @@ public abstract class ScanCursor<E> implements Iterator<E> {
 	 */
 	public synchronized final void close() throws IOException {
 		try {
+			state = CursorState.CLOSED;
+			for (Future<?> scanner : scanners) {
+				scanner.cancel(true);
+			}
+			if (batches != null) {
+				batches.clear();
+			}
+			pendingBatches.clear();
 			doClose();
 		} finally {
 			state = CursorState.CLOSED;
@@ -295,56 +457,186 @@ public abstract class ScanCursor<E> implements Iterator<E> {
 	}
 
 	/**
-	 * Execute scan by cursor id
+	 * Scan all keys of node, executed by scanner thread.
 	 * 
-	 * @param cursorId
+	 * @param node
+	 * @param masterOnly
+	 *            Check whether the node is master.
 	 */
-	private synchronized void scan(String cursorId) {
-		Jedis jedis = null;
-		try {
-			// Select a node
-			jedis = jdsPools.get(getSelectionPos()).getResource();
-
-			// Traverse only the primary node
-			if (jedis.info(REPLICATION).contains(ROLE_MASTER)) {
-				processResult(doScan(jedis, cursorId, params));
-			} else {
-				nextTo();
-			}
-		} finally {
-			if (jedis != null) {
-				jedis.close();
+	private void scanNode(String node, boolean masterOnly) {
+		ScanBatch end = ScanBatch.END;
+		JedisPool pool = topology.getPool(node);
+		if (pool == null) {
+			topology.refresh();
+			end = ScanBatch.error(new IllegalStateException("Unknown cluster node: " + node));
+		} else {
+			try (Jedis jedis = pool.getResource()) {
+				if (!masterOnly || jedis.info(REPLICATION).contains(ROLE_MASTER)) {
+					String cursor = getCursorId();
+					do {
+						ScanIterable<byte[]> res = doScan(jedis, cursor, params);
+						cursor = res.getCursorId();
+						if (!res.getItems().isEmpty() && !offer(new ScanBatch(res.getItems(), null))) {
+							return; // Closed or abandoned.
+						}
+					} while (!"0".equals(cursor));
+				}
+			} catch (Throwable e) {
+				if (isClosed()) {
+					return;
+				}
+				topology.refresh();
+				end = ScanBatch.error(e);
 			}
 		}
+		offer(end);
 	}
 
 	/**
-	 * After process result
+	 * Offer batch to consumer, blocked when consumer is slower.
 	 * 
-	 * @param res
+	 * @param batch
+	 * @return False if the cursor is closed or abandoned.
 	 */
-	private void processResult(ScanIterable<byte[]> res) {
-		iter = res;
+	private boolean offer(ScanBatch batch) {
+		long deadline = System.currentTimeMillis() + ABANDON_TIMEOUT_MS;
+		try {
+			while (!isClosed()) {
+				if (batches.offer(batch, 1, TimeUnit.SECONDS)) {
+					return true;
+				}
+				if (System.currentTimeMillis() > deadline) {
+					log.warn("Give up scanning of abandoned cursor, please close it if not consumed to the end.");
+					return false;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return false;
+	}
 
-		// The current node has completed traversal
-		if ((cursorId = res.getCursorId()).equals("0")) { // Scan end
+	/**
+	 * Take next scanned key batch of any node, called without holding the
+	 * cursor monitor.
+	 * 
+	 * @return Null if the cursor is closed.
+	 */
+	private ScanBatch takeBatch() {
+		long deadline = System.currentTimeMillis() + ABANDON_TIMEOUT_MS;
+		try {
+			while (!isClosed()) {
+				ScanBatch batch = batches.poll(1, TimeUnit.SECONDS);
+				if (batch != null) {
+					return batch;
+				}
+				if (System.currentTimeMillis() > deadline) {
+					// e.g. Scanners are queued by the saturated executor.
+					try {
+						close();
+					} catch (IOException e) {
+						log.warn("Failed to close cursor", e);
+					}
+					throw new IllegalStateException("Timeout waiting scanned keys over " + ABANDON_TIMEOUT_MS + "ms");
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting scanned keys", e);
+		}
+		return null;
+	}
 
-			// All nodes are traversed
-			if (selectionPos >= (jdsPools.size() - 1)) {
+	/**
+	 * Apply the taken key batch, or the end of a node.
+	 * 
+	 * @param batch
+	 */
+	private void applyBatch(ScanBatch batch) {
+		if (batch.keys == null) { // End of a node.
+			++finishedScanners;
+			if (--runningScanners <= 0) {
 				state = CursorState.FINISHED;
 			}
+			if (batch.error != null) {
+				try {
+					close();
+				} catch (IOException e) {
+					log.warn("Failed to close cursor", e);
+				}
+				throw new IllegalStateException("Failed to scan cluster nodes", batch.error);
+			}
+			return;
+		}
 
-			nextTo(); // Traversed, go to the next node
+		batchKeys = batch.keys;
+		batchValues = null;
+		batchPos = 0;
+	}
+
+	/**
+	 * Load values of current batch in one pipeline.
+	 * 
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	private List<E> loadBatchValues() {
+		if (batchValues == null) {
+			List<Object> data = pipelineExecutor.execute(batchKeys, new PipelineCommand<Object>() {
+				@Override
+				public Response<Object> pipelined(Pipeline pipeline, byte[] key, int index) {
+					return (Response<Object>) loadValue(pipeline, key);
+				}
+
+				@Override
+				public Object single(JedisCluster cluster, byte[] key, int index) {
+					return loadValue(cluster, key);
+				}
+			});
+			List<E> values = new ArrayList<>(data.size());
+			for (Object d : data) {
+				values.add(d == null ? null : toValue(d));
+			}
+			batchValues = values;
 		}
+		return batchValues;
+	}
 
+	/**
+	 * Append the command loading the value of scanned key into pipeline,
+	 * {@code GET} by default. Override it(together with
+	 * {@link #loadValue(JedisCluster, byte[])} and {@link #toValue(Object)})
+	 * if the values are not stored as string, e.g. hash.
+	 * 
+	 * @param pipeline
+	 * @param key
+	 * @return
+	 */
+	protected Response<?> loadValue(Pipeline pipeline, byte[] key) {
+		return pipeline.get(key);
 	}
 
 	/**
-	 * Selection next node
+	 * Load the value of scanned key by cluster client, when pipeline is not
+	 * available(e.g. slots moved).
+	 * 
+	 * @param cluster
+	 * @param key
+	 * @return
 	 */
-	private void nextTo() {
-		cursorId = "0"; // Reset cursor
-		selectionPos++; // Next node
+	protected Object loadValue(JedisCluster cluster, byte[] key) {
+		return cluster.get(key);
+	}
+
+	/**
+	 * Convert the loaded(not null) value.
+	 * 
+	 * @param data
+	 * @return Null if the value is not available.
+	 */
+	@SuppressWarnings("unchecked")
+	protected E toValue(Object data) {
+		return (E) deserialize((byte[]) data, getValueType());
 	}
 
 	/**
@@ -377,6 +669,25 @@ public abstract class ScanCursor<E> implements Iterator<E> {
 		READY, OPEN, FINISHED, CLOSED;
 	}
 
+	/**
+	 * Scanned key batch of a node, or end of the node if keys is null.
+	 */
+	private static class ScanBatch {
+		final private static ScanBatch END = new ScanBatch(null, null);
+
+		final private List<byte[]> keys;
+		final private Throwable error;
+
+		private ScanBatch(List<byte[]> keys, Throwable error) {
+			this.keys = keys;
+			this.error = error;
+		}
+
+		private static ScanBatch error(Throwable error) {
+			return new ScanBatch(null, error);
+		}
+	}
+
 	/**
 	 * {@link ScanIterable} holds the values contained in Redis
 	 * {@literal Multibulk reply} on exectuting {@literal SCAN} command.
@@ -15,121 +15,386 @@
  */
 package com.wl4g.devops.support.lock;
 
-import com.google.common.base.Charsets;
-import com.google.common.hash.Hashing;
-
-import static org.apache.commons.lang3.StringUtils.*;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.util.Assert;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+
 import redis.clients.jedis.JedisCluster;
+import redis.clients.jedis.JedisPubSub;
 
-import java.util.Collections;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * Simple spin lock manager.
+ * Simple redis distributed lock manager.</br>
+ * <ul>
+ * <li>Contenders of the same JVM queue on a local lock of the name before
+ * touching redis, so at most one thread of a process competes in redis, and
+ * reentrant acquisitions don't touch redis at all.</li>
+ * <li>The first attempt is immediate, waiters are woken up by the unlock
+ * notification(pub/sub) instead of polling, and poll at a low frequency only
+ * as a fallback.</li>
+ * <li>Fair locks queue the waiters(across processes) in redis, the lock is
+ * granted to the head of the queue.</li>
+ * <li>Locks without explicit lease time are renewed by the watchdog until
+ * unlocked, and expire after the default lease time when the holder
+ * crashes.</li>
+ * </ul>
  *
  * @author wangl.sir
  * @version v1.0 2019年3月19日
  * @since
  */
-public class SimpleRedisLockManager {
+public class SimpleRedisLockManager implements DisposableBean {
+	final private static String NAMESPACE = "simple_lock_";
+	final private static String CHANNEL = NAMESPACE + "channel";
+	final private static Long SUCCESS = 1L;
+
+	/** Default lease time of locks renewed by watchdog. */
+	final public static long DEFAULT_LEASE_MS = 30_000L;
+
+	/** Maximum park time of waiters when the unlock notification is available. */
+	final private static long MAX_PARK_MS = 2_000L;
+
+	/** Maximum park time of waiters when the unlock notification is unavailable. */
+	final private static long FALLBACK_PARK_MS = 100L;
+
+	/**
+	 * Fair queue waiters not attempting in this time are considered dead, it
+	 * must be greater than {@link #MAX_PARK_MS}.
+	 */
+	final private static long FAIR_WAITER_TIMEOUT_MS = 10_000L;
+
+	/**
+	 * KEYS: lock, queue, timeouts</br>
+	 * ARGV: token, leaseMs, fair, now, waiterTimeoutMs</br>
+	 * Returns -1 if acquired, otherwise remaining lease time of the holder.
+	 */
+	final private static String SCRIPT_ACQUIRE = "if ARGV[3] == '1' then "
+			+ "local expired = redis.call('zrangebyscore', KEYS[3], '-inf', ARGV[4]) "
+			+ "for i = 1, #expired do redis.call('zrem', KEYS[2], expired[i]) end "
+			+ "redis.call('zremrangebyscore', KEYS[3], '-inf', ARGV[4]) "
+			+ "local head = redis.call('zrange', KEYS[2], 0, 0)[1] "
+			+ "if head == false or head == nil or head == ARGV[1] then "
+			+ "if redis.call('set', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) then "
+			+ "redis.call('zrem', KEYS[2], ARGV[1]) redis.call('zrem', KEYS[3], ARGV[1]) return -1 end end "
+			+ "if redis.call('zscore', KEYS[2], ARGV[1]) == false then redis.call('zadd', KEYS[2], ARGV[4], ARGV[1]) end "
+			+ "redis.call('zadd', KEYS[3], tonumber(ARGV[4]) + tonumber(ARGV[5]), ARGV[1]) "
+			+ "elseif redis.call('set', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) then return -1 end "
+			+ "local ttl = redis.call('pttl', KEYS[1]) if ttl < 0 then return 0 end return ttl";
+
+	/**
+	 * KEYS: lock</br>
+	 * ARGV: token, channel
+	 */
+	final private static String SCRIPT_RELEASE = "if redis.call('get', KEYS[1]) == ARGV[1] then "
+			+ "redis.call('del', KEYS[1]) redis.call('publish', ARGV[2], KEYS[1]) return 1 else return 0 end";
+
+	/**
+	 * KEYS: lock, queue, timeouts</br>
+	 * ARGV: token, channel
+	 */
+	final private static String SCRIPT_DEQUEUE = "redis.call('zrem', KEYS[2], ARGV[1]) redis.call('zrem', KEYS[3], ARGV[1]) "
+			+ "redis.call('publish', ARGV[2], KEYS[1]) return 1";
+
+	/**
+	 * KEYS: lock</br>
+	 * ARGV: token, leaseMs
+	 */
+	final private static String SCRIPT_RENEW = "if redis.call('get', KEYS[1]) == ARGV[1] then "
+			+ "return redis.call('pexpire', KEYS[1], ARGV[2]) else return 0 end";
 
 	final protected Logger log = LoggerFactory.getLogger(getClass());
 
+	/** Identifier of this lock manager(process). */
+	final private String processId = UUID.randomUUID().toString().replaceAll("-", "");
+
+	/** Local locks of the names being locked or waited, by lock key. */
+	final private ConcurrentHashMap<String, LocalLock> localLocks = new ConcurrentHashMap<>();
+
+	/** Lease renewals of the locks held, by lock key. */
+	final private ConcurrentHashMap<String, ScheduledFuture<?>> renewals = new ConcurrentHashMap<>();
+
+	final private JedisPubSub unlockListener = new JedisPubSub() {
+		@Override
+		public void onMessage(String channel, String key) {
+			LocalLock local = localLocks.get(key);
+			Thread waiter;
+			if (local != null && (waiter = local.redisWaiter) != null) {
+				LockSupport.unpark(waiter);
+			}
+		}
+	};
+
 	@Autowired
 	private JedisCluster jedisCluster;
 
+	private volatile boolean running = true;
+
+	private Thread subscriber;
+
+	private ScheduledExecutorService watchdog;
+
 	public Lock getLock(String name) {
-		return getLock(name, 10, TimeUnit.SECONDS);
+		return new SimpleRedisLock(name, DEFAULT_LEASE_MS, true, false);
 	}
 
 	public Lock getLock(String name, int timeout, TimeUnit unit) {
-		return new SimpleSpinLock(jedisCluster, Hashing.md5().hashString(name, Charsets.UTF_8).toString(), timeout,
-				unit/* , jedisCluster.get(name) */);
+		return getLock(name, timeout, unit, false);
+	}
+
+	public Lock getFairLock(String name) {
+		return new SimpleRedisLock(name, DEFAULT_LEASE_MS, true, true);
+	}
+
+	/**
+	 * Gets lock with fixed lease time, it's released automatically if not
+	 * unlocked after the lease time.
+	 *
+	 * @param name
+	 * @param timeout
+	 *            lease time
+	 * @param unit
+	 * @param fair
+	 * @return
+	 */
+	public Lock getLock(String name, int timeout, TimeUnit unit, boolean fair) {
+		Assert.notNull(unit, "'unit' must not be null");
+		Assert.isTrue(timeout > 0, "'timeout' must greater than 0");
+		return new SimpleRedisLock(name, unit.toMillis(timeout), false, fair);
+	}
+
+	@Override
+	public void destroy() throws Exception {
+		running = false;
+		if (unlockListener.isSubscribed()) {
+			unlockListener.unsubscribe();
+		}
+		synchronized (this) {
+			if (subscriber != null) {
+				subscriber.interrupt();
+			}
+			if (watchdog != null) {
+				watchdog.shutdownNow();
+			}
+		}
+	}
+
+	/**
+	 * Retain the local lock of the key, it's discarded when no longer
+	 * referenced.
+	 *
+	 * @param key
+	 * @param fair
+	 * @return
+	 */
+	private LocalLock retainLocal(String key, boolean fair) {
+		return localLocks.compute(key, (k, l) -> {
+			if (l == null) {
+				l = new LocalLock(fair);
+			}
+			++l.references;
+			return l;
+		});
+	}
+
+	private void releaseLocal(String key, LocalLock local) {
+		localLocks.computeIfPresent(key, (k, l) -> (l == local && --l.references <= 0) ? null : l);
+	}
+
+	/**
+	 * Start the unlock notification subscriber if necessary.
+	 */
+	private void ensureSubscribed() {
+		if (subscriber == null) {
+			synchronized (this) {
+				if (subscriber == null && running) {
+					subscriber = new Thread(() -> subscribeUnlocks(), "simple-lock-subscriber");
+					subscriber.setDaemon(true);
+					subscriber.start();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Subscribe unlock notifications(blocking), resubscribe on failure.
+	 */
+	private void subscribeUnlocks() {
+		long backoffMs = 1000L;
+		while (running && !Thread.currentThread().isInterrupted()) {
+			try {
+				jedisCluster.subscribe(unlockListener, CHANNEL);
+			} catch (Exception e) {
+				if (!running) {
+					break;
+				}
+				log.warn("Lock notification subscription failed, retry after {}ms. {}", backoffMs, e.getMessage());
+				try {
+					Thread.sleep(backoffMs);
+				} catch (InterruptedException e1) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+				backoffMs = Math.min(backoffMs * 2, 30_000L);
+				continue;
+			}
+			backoffMs = 1000L;
+		}
 	}
 
 	/**
-	 * Simple spin lock.
+	 * Schedule renewal of the lease of a held lock.
+	 *
+	 * @param key
+	 * @param token
+	 * @param leaseMs
+	 */
+	private void scheduleRenewal(String key, String token, long leaseMs) {
+		synchronized (this) {
+			if (watchdog == null) {
+				watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+					Thread t = new Thread(r, "simple-lock-watchdog");
+					t.setDaemon(true);
+					return t;
+				});
+			}
+		}
+		long periodMs = Math.max(leaseMs / 3, 1L);
+		renewals.put(key, watchdog.scheduleAtFixedRate(() -> {
+			try {
+				Object res = jedisCluster.eval(SCRIPT_RENEW, singletonList(key), asList(token, String.valueOf(leaseMs)));
+				if (!SUCCESS.equals(res)) {
+					log.warn("Failed to renew lock '{}', it was lost", key);
+					cancelRenewal(key);
+				}
+			} catch (Exception e) {
+				log.warn("Failed to renew lock '{}'. {}", key, e.getMessage());
+			}
+		}, periodMs, periodMs, TimeUnit.MILLISECONDS));
+	}
+
+	private void cancelRenewal(String key) {
+		ScheduledFuture<?> renewal = renewals.remove(key);
+		if (renewal != null) {
+			renewal.cancel(false);
+		}
+	}
+
+	/**
+	 * Local lock of a name, and the only thread of this process waiting for
+	 * the redis lock.
+	 */
+	private static class LocalLock extends ReentrantLock {
+		private static final long serialVersionUID = -3196525781325312893L;
+
+		/** Guarded by the compute of local locks map. */
+		private int references;
+
+		private volatile Thread redisWaiter;
+
+		private LocalLock(boolean fair) {
+			super(fair);
+		}
+
+	}
+
+	/**
+	 * Simple redis lock, reentrant per thread, and the lock must be unlocked
+	 * by the holder thread.
 	 *
 	 * @author wangl.sir
 	 * @version v1.0 2019年3月19日
 	 * @since
 	 */
-	public static class SimpleSpinLock implements Lock {
-		final private static String NAMESPACE = "simple_lock_";
-		final private static Long SUCCESS = new Long(1L);
-		final private static String NXXX = "NX";
-		final private static String EXPX = "PX";
-		final private static long FREQ_MS = 50L;
-
-		final private Logger log = LoggerFactory.getLogger(getClass());
-		final private JedisCluster jedisCluster;
+	public class SimpleRedisLock implements Lock {
 		final private String name;
-		final private String processId;
-		final private int timeoutMs;
+		final private String key;
+		final private String queueKey;
+		final private String timeoutsKey;
+		final private long leaseMs;
+		final private boolean renewal;
+		final private boolean fair;
 
-		public SimpleSpinLock(JedisCluster jedisCluster, String name, int timeoutMs,
-				TimeUnit unit/* , String processId */) {
-			Assert.notNull(jedisCluster, "'jedisCluster' must not be null");
+		private SimpleRedisLock(String name, long leaseMs, boolean renewal, boolean fair) {
 			Assert.hasText(name, "'name' must not be empty");
-			Assert.notNull(unit, "'unit' must not be null");
-			Assert.isTrue(timeoutMs > 0, "'timeoutMs' must greater than 0");
-			this.jedisCluster = jedisCluster;
-			this.name = NAMESPACE + name;
-			this.timeoutMs = (int) unit.toMillis(timeoutMs);
-			this.processId = /* !StringUtils.isEmpty(processId) ? processId : */UUID.randomUUID().toString().replaceAll("-", "");
+			Assert.isTrue(leaseMs > 0, "'leaseMs' must greater than 0");
+			this.name = name;
+			// Same lock key as before('simple_lock_<md5(name)>'), so the locks
+			// are still exclusive with the nodes of previous version(e.g.
+			// rolling upgrade).
+			this.key = NAMESPACE + Hashing.md5().hashString(name, Charsets.UTF_8).toString();
+			// The keys of a lock must be in the same cluster slot.
+			String hashTag = "{" + getHashTag(key) + "}";
+			this.queueKey = hashTag + ":queue";
+			this.timeoutsKey = hashTag + ":timeouts";
+			this.leaseMs = leaseMs;
+			this.renewal = renewal;
+			this.fair = fair;
 		}
 
 		@Override
 		public void lock() {
-			while (true) {
-				if (jedisCluster.set(name, processId, NXXX, EXPX, timeoutMs) != null) {
-					return;
-				}
-				try {
-					Thread.sleep(FREQ_MS);
-				} catch (InterruptedException e) {
-					throw new IllegalStateException(e);
-				}
+			try {
+				acquire(-1L, false);
+			} catch (InterruptedException e) { // Never happen
+				throw new IllegalStateException(e);
 			}
 		}
 
 		@Override
 		public void lockInterruptibly() throws InterruptedException {
-			throw new UnsupportedOperationException();
+			acquire(-1L, true);
 		}
 
 		@Override
 		public boolean tryLock() {
-			String ret = jedisCluster.set(name, processId, NXXX, EXPX, timeoutMs);
-			return endsWithIgnoreCase(ret, "ok") || (isNumeric(ret) && Integer.parseInt(ret) > 0);
+			try {
+				return acquire(0L, false);
+			} catch (InterruptedException e) { // Never happen
+				throw new IllegalStateException(e);
+			}
 		}
 
 		@Override
 		public boolean tryLock(long time, TimeUnit timeUnit) throws InterruptedException {
-			long t = timeUnit.toMillis(time) / FREQ_MS, c = 0;
-			while (t > (++c)) {
-				Thread.sleep(FREQ_MS);
-				if (jedisCluster.set(name, processId, NXXX, EXPX, timeoutMs) != null) {
-					return true;
-				}
-			}
-			return false;
+			return acquire(Math.max(timeUnit.toNanos(time), 0L), true);
 		}
 
 		@Override
 		public void unlock() {
-			String script = "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end";
-			Object res = jedisCluster.eval(script, Collections.singletonList(name), Collections.singletonList(processId));
-			if (!SUCCESS.equals(res)) {
-				log.warn(String.format("Failed to unlock for '%s'", processId));
+			LocalLock local = localLocks.get(key);
+			if (local == null || !local.isHeldByCurrentThread()) {
+				log.warn("Failed to unlock for '{}', not held by current thread", name);
+				return;
+			}
+			try {
+				if (local.getHoldCount() == 1) {
+					cancelRenewal(key);
+					Object res = jedisCluster.eval(SCRIPT_RELEASE, singletonList(key), asList(getToken(), CHANNEL));
+					if (!SUCCESS.equals(res)) {
+						log.warn("Failed to unlock for '{}', the lease was expired", name);
+					}
+				}
+			} finally {
+				local.unlock();
+				releaseLocal(key, local);
 			}
 		}
 
@@ -138,6 +403,144 @@ public class SimpleRedisLockManager {
 			throw new UnsupportedOperationException();
 		}
 
+		/**
+		 * Acquire local lock and then redis lock.
+		 *
+		 * @param waitNanos
+		 *            maximum wait time, negative for waiting forever.
+		 * @param interruptibly
+		 * @return
+		 * @throws InterruptedException
+		 */
+		private boolean acquire(long waitNanos, boolean interruptibly) throws InterruptedException {
+			final long deadline = System.nanoTime() + waitNanos;
+			LocalLock local = retainLocal(key, fair);
+			boolean acquired = false;
+			try {
+				if (waitNanos < 0) {
+					if (interruptibly) {
+						local.lockInterruptibly();
+					} else {
+						local.lock();
+					}
+				} else if (waitNanos == 0 ? !local.tryLock() : !local.tryLock(waitNanos, TimeUnit.NANOSECONDS)) {
+					return false;
+				}
+				// Reentrant, the redis lock has been held.
+				if (local.getHoldCount() > 1) {
+					return (acquired = true);
+				}
+				try {
+					acquired = acquireRedis(local, waitNanos < 0 ? Long.MAX_VALUE : deadline, waitNanos < 0, interruptibly);
+				} finally {
+					if (!acquired) {
+						local.unlock();
+					}
+				}
+				if (acquired && renewal) {
+					scheduleRenewal(key, getToken(), leaseMs);
+				}
+				return acquired;
+			} finally {
+				if (!acquired) {
+					releaseLocal(key, local);
+				}
+			}
+		}
+
+		private boolean acquireRedis(LocalLock local, long deadline, boolean forever, boolean interruptibly)
+				throws InterruptedException {
+			long ttl = tryAcquireRedis();
+			if (ttl < 0) {
+				return true;
+			}
+			if (!forever && deadline - System.nanoTime() <= 0) {
+				giveUp();
+				return false;
+			}
+
+			ensureSubscribed();
+			boolean interrupted = false;
+			local.redisWaiter = Thread.currentThread();
+			try {
+				while (true) {
+					// Attempt after the waiter is published, so as not to miss
+					// the unlock notification.
+					ttl = tryAcquireRedis();
+					if (ttl < 0) {
+						return true;
+					}
+					long remaining = forever ? Long.MAX_VALUE : deadline - System.nanoTime();
+					if (remaining <= 0) {
+						giveUp();
+						return false;
+					}
+					long maxParkMs = unlockListener.isSubscribed() ? MAX_PARK_MS : FALLBACK_PARK_MS;
+					long parkMs = ttl > 0 ? Math.min(ttl, maxParkMs) : maxParkMs;
+					LockSupport.parkNanos(this, Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(parkMs)));
+					if (Thread.interrupted()) {
+						if (interruptibly) {
+							giveUp();
+							throw new InterruptedException();
+						}
+						interrupted = true;
+					}
+				}
+			} finally {
+				local.redisWaiter = null;
+				if (interrupted) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+
+		/**
+		 * Try acquire redis lock.
+		 *
+		 * @return -1 if acquired, otherwise remaining lease time of the holder.
+		 */
+		private long tryAcquireRedis() {
+			Object res = jedisCluster.eval(SCRIPT_ACQUIRE, asList(key, queueKey, timeoutsKey), asList(getToken(),
+					String.valueOf(leaseMs), fair ? "1" : "0", String.valueOf(System.currentTimeMillis()),
+					String.valueOf(FAIR_WAITER_TIMEOUT_MS)));
+			return ((Long) res).longValue();
+		}
+
+		/**
+		 * Leave the fair queue, and wake up the next waiter.
+		 */
+		private void giveUp() {
+			if (fair) {
+				try {
+					jedisCluster.eval(SCRIPT_DEQUEUE, asList(key, queueKey, timeoutsKey), asList(getToken(), CHANNEL));
+				} catch (Exception e) { // Expired by the timeouts
+					log.warn("Failed to leave lock queue of '{}'. {}", name, e.getMessage());
+				}
+			}
+		}
+
+		private String getToken() {
+			return processId + ":" + Thread.currentThread().getId();
+		}
+
+		/**
+		 * Hash tag of key, that is, the part of the key used to calculate the
+		 * cluster slot.
+		 * 
+		 * @param key
+		 * @return
+		 */
+		private String getHashTag(String key) {
+			int start = key.indexOf('{');
+			if (start >= 0) {
+				int end = key.indexOf('}', start + 1);
+				if (end > start + 1) {
+					return key.substring(start + 1, end);
+				}
+			}
+			return key;
+		}
+
 	}
 
-}
\ No newline at end of file
+}
@@ -15,18 +15,10 @@
  */
 package com.wl4g.devops.support.task;
 
-import static java.util.concurrent.TimeUnit.*;
-
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.Serializable;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.RejectedExecutionHandler;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.ThreadPoolExecutor.AbortPolicy;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -58,7 +50,7 @@ public abstract class GenericTaskRunner<C extends RunProperties>
 	private Thread boss;
 
 	/** Runner worker thread group pool. */
-	private ThreadPoolExecutor worker;
+	private TaskWorker worker;
 
 	public GenericTaskRunner(C config) {
 		Assert.notNull(config, "TaskHistory properties must not be null");
@@ -73,16 +65,7 @@ public abstract class GenericTaskRunner<C extends RunProperties>
 		// Create worker(if necessary)
 		if (bossState.compareAndSet(false, true)) {
 			if (config.getConcurrency() > 0) {
-				final AtomicInteger counter = new AtomicInteger(-1);
-				final BlockingQueue<Runnable> queue = new LinkedBlockingQueue<>(config.getAcceptQueue());
-				this.worker = new ThreadPoolExecutor(1, config.getConcurrency(), config.getKeepAliveTime(), MICROSECONDS, queue,
-						r -> {
-							String name = getClass().getSimpleName() + "-worker-" + counter.incrementAndGet();
-							Thread job = new Thread(this, name);
-							job.setDaemon(false);
-							job.setPriority(Thread.NORM_PRIORITY);
-							return job;
-						}, config.getReject());
+				this.worker = new TaskWorker(getClass().getSimpleName(), config);
 			} else {
 				log.warn("No workthread pool for started, because the number of workthread is less than 0");
 			}
@@ -115,20 +98,23 @@ public abstract class GenericTaskRunner<C extends RunProperties>
 		preCloseProperties();
 
 		if (bossState.compareAndSet(true, false)) {
+			if (boss != null) {
+				try {
+					boss.interrupt();
+					boss = null;
+				} catch (Exception e) {
+					log.error("Runner boss interrupt failed!", e);
+				}
+			}
 			if (worker != null) {
 				try {
-					worker.shutdown();
+					// Drain the accepted tasks.
+					worker.close();
 					worker = null;
 				} catch (Exception e) {
 					log.error("Runner worker shutdown failed!", e);
 				}
 			}
-			try {
-				boss.interrupt();
-				boss = null;
-			} catch (Exception e) {
-				log.error("Runner boss interrupt failed!", e);
-			}
 		}
 
 		// Call post close
@@ -186,7 +172,7 @@ public abstract class GenericTaskRunner<C extends RunProperties>
 	 * 
 	 * @return
 	 */
-	protected ThreadPoolExecutor getWorker() {
+	protected TaskWorker getWorker() {
 		Assert.state(worker != null, "Worker thread group is not enabled and can be enabled with concurrency>0");
 		return worker;
 	}
@@ -211,7 +197,10 @@ public abstract class GenericTaskRunner<C extends RunProperties>
 		 */
 		private int concurrency = -1;
 
-		/** watch dog delay */
+		/**
+		 * Idle worker threads keep alive time in milliseconds, 0 means the
+		 * worker threads never time out.
+		 */
 		private long keepAliveTime = 0L;
 
 		/**
@@ -219,8 +208,17 @@ public abstract class GenericTaskRunner<C extends RunProperties>
 		 */
 		private int acceptQueue = 8192;
 
-		/** Rejected execution handler. */
-		private RejectedExecutionHandler reject = new AbortPolicy();
+		/** Saturation policy when the accept queue is full. */
+		private SaturationPolicy saturation = SaturationPolicy.BLOCK;
+
+		/** Maximum blocking time of {@link SaturationPolicy#BLOCK}. */
+		private long blockTimeoutMs = 5_000L;
+
+		/** Number of sequential lanes of the ordered tasks. */
+		private int lanes = 16;
+
+		/** Maximum waiting time for the accepted tasks to finish on close. */
+		private long drainTimeoutMs = 30_000L;
 
 		public RunProperties() {
 			super();
@@ -230,18 +228,18 @@ public abstract class GenericTaskRunner<C extends RunProperties>
 			this(concurrency, keepAliveTime, acceptQueue, null);
 		}
 
-		public RunProperties(int concurrency, long keepAliveTime, int acceptQueue, RejectedExecutionHandler reject) {
-			this(true, concurrency, keepAliveTime, acceptQueue, reject);
+		public RunProperties(int concurrency, long keepAliveTime, int acceptQueue, SaturationPolicy saturation) {
+			this(true, concurrency, keepAliveTime, acceptQueue, saturation);
 		}
 
 		public RunProperties(boolean async, int concurrency, long keepAliveTime, int acceptQueue,
-				RejectedExecutionHandler reject) {
+				SaturationPolicy saturation) {
 			super();
 			setAsync(async);
 			setConcurrency(concurrency);
 			setKeepAliveTime(keepAliveTime);
 			setAcceptQueue(acceptQueue);
-			setReject(reject);
+			setSaturation(saturation);
 		}
 
 		public boolean isAsync() {
@@ -282,20 +280,48 @@ public abstract class GenericTaskRunner<C extends RunProperties>
 			this.acceptQueue = acceptQueue;
 		}
 
-		public RejectedExecutionHandler getReject() {
-			return reject;
+		public SaturationPolicy getSaturation() {
+			return saturation;
 		}
 
-		public void setReject(RejectedExecutionHandler reject) {
-			if (reject != null) {
-				this.reject = reject;
+		public void setSaturation(SaturationPolicy saturation) {
+			if (saturation != null) {
+				this.saturation = saturation;
 			}
 		}
 
+		public long getBlockTimeoutMs() {
+			return blockTimeoutMs;
+		}
+
+		public void setBlockTimeoutMs(long blockTimeoutMs) {
+			Assert.isTrue(blockTimeoutMs >= 0, "blockTimeoutMs must be greater than or equal to 0");
+			this.blockTimeoutMs = blockTimeoutMs;
+		}
+
+		public int getLanes() {
+			return lanes;
+		}
+
+		public void setLanes(int lanes) {
+			Assert.isTrue(lanes > 0, "lanes must be greater than 0");
+			this.lanes = lanes;
+		}
+
+		public long getDrainTimeoutMs() {
+			return drainTimeoutMs;
+		}
+
+		public void setDrainTimeoutMs(long drainTimeoutMs) {
+			Assert.isTrue(drainTimeoutMs >= 0, "drainTimeoutMs must be greater than or equal to 0");
+			this.drainTimeoutMs = drainTimeoutMs;
+		}
+
 		@Override
 		public String toString() {
 			return "TaskProperties [concurrency=" + concurrency + ", keepAliveTime=" + keepAliveTime + ", acceptQueue="
-					+ acceptQueue + ", reject=" + reject + "]";
+					+ acceptQueue + ", saturation=" + saturation + ", blockTimeoutMs=" + blockTimeoutMs + ", lanes=" + lanes
+					+ ", drainTimeoutMs=" + drainTimeoutMs + "]";
 		}
 
 	}
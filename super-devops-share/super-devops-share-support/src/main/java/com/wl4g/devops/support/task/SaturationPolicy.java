@@ -0,0 +1,49 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.support.task;
+
+/**
+ * Saturation policy of the task worker, when the accept queue is full.
+ * 
+ * @author Wangl.sir <983708408@qq.com>
+ * @version v1.0 2019年9月12日
+ * @since
+ */
+public enum SaturationPolicy {
+
+	/**
+	 * Reject the task with {@link java.util.concurrent.RejectedExecutionException}.
+	 */
+	ABORT,
+
+	/**
+	 * Run the task in the caller thread. Tasks with ordering key are blocked
+	 * as {@link #BLOCK} instead, so as not to break the order.
+	 */
+	CALLER_RUNS,
+
+	/**
+	 * Block the caller until the queue is available or timeout, it's rejected
+	 * after timeout.
+	 */
+	BLOCK,
+
+	/**
+	 * Discard the task, counted as dropped.
+	 */
+	DROP;
+
+}
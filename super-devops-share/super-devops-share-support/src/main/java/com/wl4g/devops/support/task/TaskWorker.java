@@ -0,0 +1,395 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.support.task;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.io.Closeable;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import com.wl4g.devops.support.task.GenericTaskRunner.RunProperties;
+
+/**
+ * Task worker of {@link GenericTaskRunner}.</br>
+ * <ul>
+ * <li>The accepted tasks are bounded by the accept queue size, and handled
+ * by the {@link SaturationPolicy} when it's full.</li>
+ * <li>Tasks with the same ordering key are executed sequentially in
+ * submission order, by the lane(shard) of the key, the lanes share the
+ * worker threads.</li>
+ * <li>Closing stops accepting tasks, and waits for the accepted ones to
+ * finish(drain) until timeout.</li>
+ * </ul>
+ * 
+ * @author Wangl.sir <983708408@qq.com>
+ * @version v1.0 2019年9月12日
+ * @since
+ */
+public class TaskWorker implements Executor, Closeable {
+
+	/** Maximum tasks of a lane executed in one turn, for fairness. */
+	final private static int LANE_BATCH = 64;
+
+	final protected Logger log = LoggerFactory.getLogger(getClass());
+
+	final private String name;
+
+	final private RunProperties config;
+
+	final private ThreadPoolExecutor executor;
+
+	/** Permits of the accept queue. */
+	final private Semaphore permits;
+
+	final private Lane[] lanes;
+
+	final private AtomicBoolean closed = new AtomicBoolean(false);
+
+	/** Statistics. */
+	final private LongAdder submitted = new LongAdder();
+	final private LongAdder completed = new LongAdder();
+	final private LongAdder failed = new LongAdder();
+	final private LongAdder rejected = new LongAdder();
+	final private LongAdder dropped = new LongAdder();
+	final private LongAdder callerRuns = new LongAdder();
+	final private LongAdder queueNanos = new LongAdder();
+	final private LongAdder executeNanos = new LongAdder();
+	final private AtomicLong maxQueueNanos = new AtomicLong(0);
+	final private AtomicLong maxExecuteNanos = new AtomicLong(0);
+
+	public TaskWorker(String name, RunProperties config) {
+		Assert.hasText(name, "Task worker name must not be empty");
+		Assert.notNull(config, "Task worker properties must not be null");
+		Assert.isTrue(config.getConcurrency() > 0, "Task worker concurrency must be greater than 0");
+		this.name = name;
+		this.config = config;
+		this.permits = new Semaphore(config.getAcceptQueue());
+
+		final AtomicInteger counter = new AtomicInteger(-1);
+		// Unbounded, the accepted tasks are bounded by the permits.
+		this.executor = new ThreadPoolExecutor(config.getConcurrency(), config.getConcurrency(), config.getKeepAliveTime(),
+				MILLISECONDS, new LinkedBlockingQueue<>(), r -> {
+					Thread t = new Thread(r, name + "-worker-" + counter.incrementAndGet());
+					t.setDaemon(false);
+					t.setPriority(Thread.NORM_PRIORITY);
+					return t;
+				});
+		if (config.getKeepAliveTime() > 0) {
+			this.executor.allowCoreThreadTimeOut(true);
+		}
+		this.lanes = new Lane[Math.max(config.getLanes(), 1)];
+		for (int i = 0; i < lanes.length; i++) {
+			lanes[i] = new Lane();
+		}
+	}
+
+	/**
+	 * Execute task without ordering.
+	 */
+	@Override
+	public void execute(Runnable task) {
+		Assert.notNull(task, "Task must not be null");
+		if (!admit(task, false)) {
+			return;
+		}
+		if (closed.get()) {
+			permits.release();
+			throw reject("closed");
+		}
+		try {
+			executor.execute(new Task(task));
+		} catch (RejectedExecutionException e) {
+			permits.release();
+			throw reject("closed");
+		}
+	}
+
+	/**
+	 * Execute task, the tasks with equal ordering key are executed
+	 * sequentially in submission order.
+	 * 
+	 * @param key
+	 *            ordering key, null means no ordering.
+	 * @param task
+	 */
+	public void execute(Object key, Runnable task) {
+		if (key == null) {
+			execute(task);
+			return;
+		}
+		Assert.notNull(task, "Task must not be null");
+		if (!admit(task, true)) {
+			return;
+		}
+		if (closed.get()) {
+			permits.release();
+			throw reject("closed");
+		}
+		int h = key.hashCode();
+		lanes[Math.floorMod(h ^ (h >>> 16), lanes.length)].add(new Task(task));
+	}
+
+	/**
+	 * Stop accepting tasks, and wait for the accepted tasks to finish until
+	 * drain timeout.
+	 */
+	@Override
+	public void close() {
+		if (!closed.compareAndSet(false, true)) {
+			return;
+		}
+		executor.shutdown();
+		try {
+			if (!executor.awaitTermination(config.getDrainTimeoutMs(), MILLISECONDS)) {
+				int discarded = executor.shutdownNow().size();
+				log.warn("Task worker '{}' drain timeout, discarded {} tasks and {} pending lane tasks", name, discarded,
+						getQueueDepth());
+			}
+		} catch (InterruptedException e) {
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+		if (log.isInfoEnabled()) {
+			log.info("Closed task worker: {}", this);
+		}
+	}
+
+	public boolean isClosed() {
+		return closed.get();
+	}
+
+	/**
+	 * Number of accepted tasks not yet started.
+	 * 
+	 * @return
+	 */
+	public int getQueueDepth() {
+		return config.getAcceptQueue() - permits.availablePermits();
+	}
+
+	public int getActiveCount() {
+		return executor.getActiveCount();
+	}
+
+	public long getSubmitted() {
+		return submitted.sum();
+	}
+
+	public long getCompleted() {
+		return completed.sum();
+	}
+
+	public long getFailed() {
+		return failed.sum();
+	}
+
+	public long getRejected() {
+		return rejected.sum();
+	}
+
+	public long getDropped() {
+		return dropped.sum();
+	}
+
+	public long getCallerRuns() {
+		return callerRuns.sum();
+	}
+
+	/**
+	 * Average time in milliseconds of the tasks waiting in queue.
+	 * 
+	 * @return
+	 */
+	public double getAvgQueueMs() {
+		long c = completed.sum() + failed.sum();
+		return c == 0 ? 0d : queueNanos.sum() / (c * 1e6);
+	}
+
+	public double getMaxQueueMs() {
+		return maxQueueNanos.get() / 1e6;
+	}
+
+	/**
+	 * Average time in milliseconds of the tasks execution.
+	 * 
+	 * @return
+	 */
+	public double getAvgExecuteMs() {
+		long c = completed.sum() + failed.sum();
+		return c == 0 ? 0d : executeNanos.sum() / (c * 1e6);
+	}
+
+	public double getMaxExecuteMs() {
+		return maxExecuteNanos.get() / 1e6;
+	}
+
+	@Override
+	public String toString() {
+		return "TaskWorker [name=" + name + ", queueDepth=" + getQueueDepth() + ", active=" + getActiveCount()
+				+ ", submitted=" + submitted + ", completed=" + completed + ", failed=" + failed + ", rejected=" + rejected
+				+ ", dropped=" + dropped + ", callerRuns=" + callerRuns + ", avgQueueMs=" + getAvgQueueMs() + ", maxQueueMs="
+				+ getMaxQueueMs() + ", avgExecuteMs=" + getAvgExecuteMs() + ", maxExecuteMs=" + getMaxExecuteMs() + "]";
+	}
+
+	/**
+	 * Acquire a permit of the accept queue, or handle with saturation policy.
+	 * 
+	 * @param task
+	 * @param ordered
+	 * @return true if acquired, false if the task has been handled(dropped
+	 *         or ran by caller).
+	 */
+	private boolean admit(Runnable task, boolean ordered) {
+		if (closed.get()) {
+			throw reject("closed");
+		}
+		if (permits.tryAcquire()) {
+			submitted.increment();
+			return true;
+		}
+
+		SaturationPolicy policy = config.getSaturation();
+		if (ordered && policy == SaturationPolicy.CALLER_RUNS) {
+			policy = SaturationPolicy.BLOCK;
+		}
+		switch (policy) {
+		case DROP:
+			dropped.increment();
+			if (log.isDebugEnabled()) {
+				log.debug("Task worker '{}' queue is full, dropped task", name);
+			}
+			return false;
+		case CALLER_RUNS:
+			callerRuns.increment();
+			task.run();
+			return false;
+		case BLOCK:
+			try {
+				if (permits.tryAcquire(config.getBlockTimeoutMs(), MILLISECONDS)) {
+					submitted.increment();
+					return true;
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			throw reject("queue is full after waiting " + config.getBlockTimeoutMs() + "ms");
+		default:
+			throw reject("queue is full");
+		}
+	}
+
+	private RejectedExecutionException reject(String reason) {
+		rejected.increment();
+		return new RejectedExecutionException(String.format("Task worker '%s' rejected task, %s", name, reason));
+	}
+
+	/**
+	 * Accepted task.
+	 */
+	private class Task implements Runnable {
+
+		final private Runnable task;
+
+		final private long acceptNanos = System.nanoTime();
+
+		private Task(Runnable task) {
+			this.task = task;
+		}
+
+		@Override
+		public void run() {
+			permits.release();
+			long start = System.nanoTime();
+			queueNanos.add(start - acceptNanos);
+			maxQueueNanos.accumulateAndGet(start - acceptNanos, Math::max);
+			try {
+				task.run();
+				completed.increment();
+			} catch (Throwable e) {
+				failed.increment();
+				log.error(String.format("Failed to execute task of worker '%s'", name), e);
+			} finally {
+				long elapsed = System.nanoTime() - start;
+				executeNanos.add(elapsed);
+				maxExecuteNanos.accumulateAndGet(elapsed, Math::max);
+			}
+		}
+
+	}
+
+	/**
+	 * Sequential lane of ordered tasks, at most one thread executes the tasks
+	 * of a lane at a time.
+	 */
+	private class Lane implements Runnable {
+
+		final private Queue<Task> tasks = new ConcurrentLinkedQueue<>();
+
+		final private AtomicBoolean scheduled = new AtomicBoolean(false);
+
+		private void add(Task task) {
+			tasks.add(task);
+			if (scheduled.compareAndSet(false, true)) {
+				try {
+					executor.execute(this);
+				} catch (RejectedExecutionException e) {
+					// Closing, drain the accepted tasks in caller thread.
+					run();
+				}
+			}
+		}
+
+		@Override
+		public void run() {
+			while (true) {
+				Task task;
+				int n = 0;
+				// When closing, drain all so that no rescheduling is needed.
+				while ((n < LANE_BATCH || executor.isShutdown()) && (task = tasks.poll()) != null) {
+					task.run();
+					++n;
+				}
+				scheduled.set(false);
+				if (tasks.isEmpty() || !scheduled.compareAndSet(false, true)) {
+					return;
+				}
+				try {
+					executor.execute(this);
+					return;
+				} catch (RejectedExecutionException e) {
+					// Shutting down, drain in current thread.
+				}
+			}
+		}
+
+	}
+
+}
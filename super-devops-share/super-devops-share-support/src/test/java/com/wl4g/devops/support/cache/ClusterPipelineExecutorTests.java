@@ -0,0 +1,214 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.support.cache;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import com.wl4g.devops.support.cache.ClusterPipelineExecutor.PipelineCommand;
+
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.JedisCluster;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+
+/**
+ * {@link ClusterPipelineExecutor} tests against an embedded redis cluster of
+ * three masters, the results of the batches across nodes, the bounds of the
+ * pipeline executor under concurrent callers and the clearing of the
+ * topologies of discarded cluster clients.
+ *
+ * @author wangl.sir
+ * @version v1.0 2019年9月18日
+ * @since
+ */
+public class ClusterPipelineExecutorTests {
+
+	final private static int NODES = 3;
+
+	final private static int THREADS = 32;
+
+	@ClassRule
+	final public static EmbeddedRedisCluster REDIS = new EmbeddedRedisCluster(NODES);
+
+	private static JedisCluster cluster;
+
+	private ClusterPipelineExecutor executor;
+
+	@BeforeClass
+	public static void connect() {
+		cluster = REDIS.getCluster();
+	}
+
+	@Before
+	public void flush() {
+		REDIS.flushAll();
+		executor = new ClusterPipelineExecutor(cluster);
+	}
+
+	@Test
+	public void executeAcrossNodes() {
+		List<byte[]> keys = createKeys("k", 3000);
+		assertEquals(NODES, nodesOf(keys).size());
+
+		List<String> replies = executor.execute(keys, SET);
+		assertEquals(keys.size(), replies.size());
+		assertTrue(replies.stream().allMatch(r -> "OK".equals(r)));
+
+		keys.add(1, "missing".getBytes(UTF_8));
+		List<byte[]> values = executor.execute(keys, GET);
+		assertEquals(keys.size(), values.size());
+		assertNull(values.get(1));
+		for (int i = 0; i < keys.size(); i++) {
+			if (i != 1) {
+				assertEquals(new String(keys.get(i), UTF_8), new String(values.get(i), UTF_8));
+				assertEquals(new String(keys.get(i), UTF_8), new String(cluster.get(keys.get(i)), UTF_8));
+			}
+		}
+	}
+
+	@Test
+	public void boundedUnderConcurrentCallers() throws Exception {
+		ThreadPoolExecutor pipelineExecutor = ClusterTopology.of(cluster).getPipelineExecutor();
+		int maxThreads = pipelineExecutor.getMaximumPoolSize();
+		assertEquals(NODES * 2, maxThreads);
+
+		ExecutorService callers = Executors.newFixedThreadPool(THREADS);
+		try {
+			CountDownLatch start = new CountDownLatch(1);
+			List<Future<?>> futures = new ArrayList<>(THREADS);
+			for (int t = 0; t < THREADS; t++) {
+				final String prefix = "c" + t + "_";
+				futures.add(callers.submit(() -> {
+					start.await();
+					for (int round = 0; round < 50; round++) {
+						List<byte[]> keys = createKeys(prefix + round + "_", 100);
+						executor.execute(keys, SET);
+						List<byte[]> values = executor.execute(keys, GET);
+						for (int i = 0; i < keys.size(); i++) {
+							assertEquals(new String(keys.get(i), UTF_8), new String(values.get(i), UTF_8));
+						}
+					}
+					return null;
+				}));
+			}
+			start.countDown();
+			for (Future<?> f : futures) {
+				f.get(60, TimeUnit.SECONDS);
+			}
+		} finally {
+			callers.shutdownNow();
+		}
+
+		// Saturated pipelines were executed by the callers, not new threads.
+		assertTrue("Largest pool size: " + pipelineExecutor.getLargestPoolSize(),
+				pipelineExecutor.getLargestPoolSize() <= maxThreads);
+	}
+
+	@Test
+	public void singleNodeExecutedByCaller() {
+		// Keys of the same hash tag are owned by one node.
+		List<byte[]> keys = createKeys("{tag}", 200);
+		assertEquals(1, nodesOf(keys).size());
+		long completed = ClusterTopology.of(cluster).getPipelineExecutor().getCompletedTaskCount();
+
+		executor.execute(keys, SET);
+		List<byte[]> values = executor.execute(keys, GET);
+		assertEquals(new String(keys.get(199), UTF_8), new String(values.get(199), UTF_8));
+		assertEquals(completed, ClusterTopology.of(cluster).getPipelineExecutor().getCompletedTaskCount());
+	}
+
+	@Test
+	public void topologyOfDiscardedClusterCleared() throws Exception {
+		int shared = ClusterTopology.size();
+		JedisCluster discarded = new JedisCluster(new HostAndPort("127.0.0.1", REDIS.getPorts()[0]));
+		new ClusterPipelineExecutor(discarded).execute(createKeys("discarded_", 10), SET);
+		assertEquals(shared + 1, ClusterTopology.size());
+
+		WeakReference<JedisCluster> ref = new WeakReference<>(discarded);
+		discarded.close();
+		discarded = null;
+		for (int i = 0; i < 100 && (ref.get() != null || ClusterTopology.size() > shared); i++) {
+			System.gc();
+			Thread.sleep(50L);
+		}
+		assertNull("Discarded cluster client is still reachable", ref.get());
+		assertEquals(shared, ClusterTopology.size());
+		// The topology of the cluster client in use is kept.
+		assertEquals(NODES, ClusterTopology.of(cluster).getMasters().size());
+	}
+
+	private static List<byte[]> createKeys(String prefix, int count) {
+		List<byte[]> keys = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			keys.add((prefix + i).getBytes(UTF_8));
+		}
+		return keys;
+	}
+
+	private static Set<String> nodesOf(List<byte[]> keys) {
+		Set<String> nodes = new HashSet<>();
+		for (byte[] key : keys) {
+			nodes.add(ClusterTopology.of(cluster).getNode(key));
+		}
+		return nodes;
+	}
+
+	/** Sets the key itself as value. */
+	final private static PipelineCommand<String> SET = new PipelineCommand<String>() {
+		@Override
+		public Response<String> pipelined(Pipeline pipeline, byte[] key, int index) {
+			return pipeline.set(key, key);
+		}
+
+		@Override
+		public String single(JedisCluster cluster, byte[] key, int index) {
+			return cluster.set(key, key);
+		}
+	};
+
+	final private static PipelineCommand<byte[]> GET = new PipelineCommand<byte[]>() {
+		@Override
+		public Response<byte[]> pipelined(Pipeline pipeline, byte[] key, int index) {
+			return pipeline.get(key);
+		}
+
+		@Override
+		public byte[] single(JedisCluster cluster, byte[] key, int index) {
+			return cluster.get(key);
+		}
+	};
+
+}
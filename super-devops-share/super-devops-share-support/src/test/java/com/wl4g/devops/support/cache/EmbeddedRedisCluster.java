@@ -0,0 +1,203 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.support.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.rules.ExternalResource;
+import org.springframework.util.Assert;
+
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisCluster;
+import redis.embedded.RedisServer;
+
+/**
+ * Embedded redis cluster of the tests, used as a {@link org.junit.ClassRule}.
+ * The masters are started on free ports(the cluster bus port is 10000
+ * higher), the slots are split evenly among them, and they are stopped and
+ * their files deleted after the tests of the class.
+ *
+ * @author wangl.sir
+ * @version v1.0 2019年9月18日
+ * @since
+ */
+public class EmbeddedRedisCluster extends ExternalResource {
+
+	final private static String HOST = "127.0.0.1";
+
+	final private static int SLOTS = 16384;
+
+	/** Cluster bus port is the data port plus this offset. */
+	final private static int BUS_PORT_OFFSET = 10000;
+
+	final private static long READY_TIMEOUT_MS = 20_000L;
+
+	final private int nodes;
+
+	final private List<RedisServer> servers = new ArrayList<>();
+
+	private int[] ports;
+
+	private File workDir;
+
+	private JedisCluster cluster;
+
+	/**
+	 * Single node cluster owning all slots.
+	 */
+	public EmbeddedRedisCluster() {
+		this(1);
+	}
+
+	public EmbeddedRedisCluster(int nodes) {
+		Assert.isTrue(nodes > 0, "Cluster nodes must be greater than 0");
+		this.nodes = nodes;
+	}
+
+	@Override
+	protected void before() throws Throwable {
+		workDir = File.createTempFile("embedded-redis", "");
+		workDir.delete();
+		workDir.mkdirs();
+		ports = new int[nodes];
+		for (int i = 0; i < nodes; i++) {
+			ports[i] = findFreePort();
+			RedisServer server = RedisServer.builder().port(ports[i]).setting("cluster-enabled yes")
+					.setting("cluster-announce-ip " + HOST)
+					.setting("cluster-config-file " + new File(workDir, "nodes-" + ports[i] + ".conf").getAbsolutePath())
+					.setting("dir " + workDir.getAbsolutePath()).setting("appendonly no").build();
+			server.start();
+			servers.add(server);
+		}
+
+		// Meet all nodes, and split the slots evenly.
+		for (int i = 0; i < nodes; i++) {
+			try (Jedis jedis = new Jedis(HOST, ports[i])) {
+				if (i > 0) {
+					jedis.clusterMeet(HOST, ports[0]);
+				}
+				int from = i * SLOTS / nodes, to = (i + 1) * SLOTS / nodes;
+				int[] slots = new int[to - from];
+				for (int slot = from; slot < to; slot++) {
+					slots[slot - from] = slot;
+				}
+				jedis.clusterAddSlots(slots);
+			}
+		}
+		long deadline = System.currentTimeMillis() + READY_TIMEOUT_MS;
+		for (int port : ports) {
+			try (Jedis jedis = new Jedis(HOST, port)) {
+				String info;
+				while (!(info = jedis.clusterInfo()).contains("cluster_state:ok")
+						|| !info.contains("cluster_known_nodes:" + nodes)) {
+					if (System.currentTimeMillis() > deadline) {
+						throw new IllegalStateException("Embedded redis cluster is not ready");
+					}
+					Thread.sleep(50L);
+				}
+			}
+		}
+		cluster = new JedisCluster(new HostAndPort(HOST, ports[0]));
+	}
+
+	@Override
+	protected void after() {
+		try {
+			if (cluster != null) {
+				cluster.close();
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		} finally {
+			for (RedisServer server : servers) {
+				server.stop();
+			}
+			servers.clear();
+			File[] files = workDir.listFiles();
+			if (files != null) {
+				for (File f : files) {
+					f.delete();
+				}
+			}
+			workDir.delete();
+		}
+	}
+
+	public JedisCluster getCluster() {
+		return cluster;
+	}
+
+	/**
+	 * Data ports of the masters.
+	 *
+	 * @return
+	 */
+	public int[] getPorts() {
+		return ports;
+	}
+
+	/**
+	 * Connect to the first master.
+	 *
+	 * @return
+	 */
+	public Jedis newJedis() {
+		return new Jedis(HOST, ports[0]);
+	}
+
+	/**
+	 * Discard all keys of the masters.
+	 */
+	public void flushAll() {
+		for (int port : ports) {
+			try (Jedis jedis = new Jedis(HOST, port)) {
+				jedis.flushAll();
+			}
+		}
+	}
+
+	/**
+	 * Free port whose cluster bus port is free too.
+	 *
+	 * @return
+	 * @throws IOException
+	 */
+	private static int findFreePort() throws IOException {
+		InetAddress address = InetAddress.getByName(HOST);
+		for (int i = 0; i < 100; i++) {
+			int port;
+			try (ServerSocket socket = new ServerSocket(0, 1, address)) {
+				port = socket.getLocalPort();
+			}
+			if (port + BUS_PORT_OFFSET > 65535) {
+				continue;
+			}
+			try (ServerSocket bus = new ServerSocket(port + BUS_PORT_OFFSET, 1, address)) {
+				return bus.getLocalPort() - BUS_PORT_OFFSET;
+			} catch (IOException e) {
+				// Bus port is in use, try another one.
+			}
+		}
+		throw new IllegalStateException("No free port of the embedded redis");
+	}
+
+}
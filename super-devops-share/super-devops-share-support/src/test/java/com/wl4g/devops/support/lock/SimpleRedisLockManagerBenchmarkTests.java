@@ -0,0 +1,181 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.support.lock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import com.wl4g.devops.support.cache.EmbeddedRedisCluster;
+
+import redis.clients.jedis.JedisCluster;
+
+/**
+ * {@link SimpleRedisLockManager} benchmark against an embedded single node
+ * redis cluster, 1/10/100 contenders of a lock from two lock managers(as two
+ * processes), the mutual exclusion and the throughput of each level. The
+ * throughput is opt-in by {@code -Dbenchmark=true}, it only reports the rates.
+ *
+ * @author wangl.sir
+ * @version v1.0 2019年9月18日
+ * @since
+ */
+public class SimpleRedisLockManagerBenchmarkTests {
+
+	final private static Logger log = LoggerFactory.getLogger(SimpleRedisLockManagerBenchmarkTests.class);
+
+	final private static int[] CONTENDERS = { 1, 10, 100 };
+
+	/** Lock acquisitions of each level. */
+	final private static int ACQUISITIONS = 2000;
+
+	@ClassRule
+	final public static EmbeddedRedisCluster REDIS = new EmbeddedRedisCluster();
+
+	private static JedisCluster cluster;
+
+	private List<SimpleRedisLockManager> managers;
+
+	@BeforeClass
+	public static void connect() {
+		cluster = REDIS.getCluster();
+	}
+
+	@Before
+	public void createManagers() {
+		REDIS.flushAll();
+		managers = Arrays.asList(createManager(), createManager());
+	}
+
+	@After
+	public void destroyManagers() throws Exception {
+		for (SimpleRedisLockManager manager : managers) {
+			manager.destroy();
+		}
+	}
+
+	@Test
+	public void benchmarkContendersThroughput() throws Exception {
+		assumeTrue(Boolean.getBoolean("benchmark"));
+		for (int contenders : CONTENDERS) {
+			for (boolean fair : new boolean[] { false, true }) {
+				long rate = contend("bench-" + contenders + "-" + fair, contenders, fair);
+				log.info("Contenders: {}, fair: {}, {} acquisitions/s", contenders, fair, rate);
+			}
+		}
+	}
+
+	@Test
+	public void testExclusiveWithPreviousVersion() throws Exception {
+		// Lock key of the previous version is 'simple_lock_<md5(name)>', the
+		// value is the process id.
+		String legacyKey = "simple_lock_" + Hashing.md5().hashString("legacy", Charsets.UTF_8).toString();
+		assertEquals("OK", cluster.set(legacyKey, "legacy-process", "NX", "PX", 10_000L));
+
+		Lock lock = managers.get(0).getLock("legacy");
+		assertFalse(lock.tryLock());
+		assertFalse(lock.tryLock(200L, TimeUnit.MILLISECONDS));
+
+		cluster.del(legacyKey);
+		assertTrue(lock.tryLock());
+		try {
+			// The previous version can't acquire it either.
+			assertEquals(null, cluster.set(legacyKey, "legacy-process", "NX", "PX", 10_000L));
+		} finally {
+			lock.unlock();
+		}
+		assertFalse(cluster.exists(legacyKey));
+	}
+
+	/**
+	 * Acquire and release a lock by contenders of both lock managers.
+	 *
+	 * @param name
+	 * @param contenders
+	 * @param fair
+	 * @return acquisitions per second.
+	 */
+	private long contend(String name, int contenders, boolean fair) throws Exception {
+		AtomicInteger holders = new AtomicInteger(0);
+		AtomicInteger acquisitions = new AtomicInteger(0);
+		int perContender = ACQUISITIONS / contenders;
+
+		ExecutorService executor = Executors.newFixedThreadPool(contenders);
+		try {
+			CountDownLatch start = new CountDownLatch(1);
+			List<Future<?>> futures = new ArrayList<>(contenders);
+			for (int i = 0; i < contenders; i++) {
+				SimpleRedisLockManager manager = managers.get(i % managers.size());
+				futures.add(executor.submit(() -> {
+					Lock lock = fair ? manager.getFairLock(name) : manager.getLock(name);
+					start.await();
+					for (int j = 0; j < perContender; j++) {
+						lock.lock();
+						try {
+							assertEquals(1, holders.incrementAndGet());
+							acquisitions.incrementAndGet();
+							holders.decrementAndGet();
+						} finally {
+							lock.unlock();
+						}
+					}
+					return null;
+				}));
+			}
+			long begin = System.nanoTime();
+			start.countDown();
+			for (Future<?> f : futures) {
+				f.get(120, TimeUnit.SECONDS);
+			}
+			long nanos = System.nanoTime() - begin;
+
+			assertEquals(perContender * contenders, acquisitions.get());
+			return (long) perContender * contenders * 1000_000_000L / nanos;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static SimpleRedisLockManager createManager() {
+		SimpleRedisLockManager manager = new SimpleRedisLockManager();
+		ReflectionTestUtils.setField(manager, "jedisCluster", cluster);
+		return manager;
+	}
+
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.support.task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.Test;
+
+import com.wl4g.devops.support.task.GenericTaskRunner.RunProperties;
+
+/**
+ * {@link TaskWorker} concurrency tests, every accepted task must be executed
+ * exactly once.
+ * 
+ * @author Wangl.sir <983708408@qq.com>
+ * @version v1.0 2019年9月12日
+ * @since
+ */
+public class TaskWorkerTests {
+
+	final private static int PRODUCERS = 8;
+
+	final private static int TASKS_PER_PRODUCER = 20_000;
+
+	final private static int TOTAL = PRODUCERS * TASKS_PER_PRODUCER;
+
+	@Test
+	public void testUnorderedExactlyOnce() throws Exception {
+		TaskWorker worker = new TaskWorker("unordered", newConfig(4, 256, SaturationPolicy.BLOCK));
+		AtomicIntegerArray executed = new AtomicIntegerArray(TOTAL);
+		produce(id -> worker.execute(() -> executed.incrementAndGet(id)));
+		worker.close();
+
+		assertExactlyOnce(executed);
+		assertEquals(TOTAL, worker.getSubmitted());
+		assertEquals(TOTAL, worker.getCompleted());
+		assertEquals(0, worker.getQueueDepth());
+	}
+
+	@Test
+	public void testOrderedExactlyOnceAndInOrder() throws Exception {
+		final int keys = 64;
+		TaskWorker worker = new TaskWorker("ordered", newConfig(4, 256, SaturationPolicy.BLOCK));
+		AtomicIntegerArray executed = new AtomicIntegerArray(TOTAL);
+		// Last executed sequence of each producer and key.
+		int[][] lastSeq = new int[PRODUCERS][keys];
+		AtomicInteger outOfOrder = new AtomicInteger(0);
+		produce(id -> {
+			int producer = id / TASKS_PER_PRODUCER, seq = id % TASKS_PER_PRODUCER, key = seq % keys;
+			worker.execute(producer + ":" + key, () -> {
+				// Sequential in the key, no need of synchronization.
+				if (seq < lastSeq[producer][key]) {
+					outOfOrder.incrementAndGet();
+				}
+				lastSeq[producer][key] = seq;
+				executed.incrementAndGet(id);
+			});
+		});
+		worker.close();
+
+		assertExactlyOnce(executed);
+		assertEquals(0, outOfOrder.get());
+		assertEquals(TOTAL, worker.getCompleted());
+	}
+
+	@Test
+	public void testCallerRunsExactlyOnce() throws Exception {
+		TaskWorker worker = new TaskWorker("callerRuns", newConfig(2, 8, SaturationPolicy.CALLER_RUNS));
+		AtomicIntegerArray executed = new AtomicIntegerArray(TOTAL);
+		produce(id -> worker.execute(() -> executed.incrementAndGet(id)));
+		worker.close();
+
+		assertExactlyOnce(executed);
+		assertEquals(TOTAL, worker.getCompleted() + worker.getCallerRuns());
+	}
+
+	@Test
+	public void testDropAccounting() throws Exception {
+		TaskWorker worker = new TaskWorker("drop", newConfig(2, 8, SaturationPolicy.DROP));
+		AtomicIntegerArray executed = new AtomicIntegerArray(TOTAL);
+		produce(id -> worker.execute(id % 7, () -> executed.incrementAndGet(id)));
+		worker.close();
+
+		int sum = 0;
+		for (int i = 0; i < TOTAL; i++) {
+			assertTrue("Task executed more than once: " + i, executed.get(i) <= 1);
+			sum += executed.get(i);
+		}
+		assertEquals(worker.getSubmitted(), sum);
+		assertEquals(TOTAL, worker.getSubmitted() + worker.getDropped());
+	}
+
+	@Test
+	public void testBlockTimeoutRejected() throws Exception {
+		RunProperties config = newConfig(1, 1, SaturationPolicy.BLOCK);
+		config.setBlockTimeoutMs(50L);
+		TaskWorker worker = new TaskWorker("block", config);
+		CountDownLatch release = new CountDownLatch(1);
+		worker.execute(() -> await(release)); // Running
+		worker.execute(() -> await(release)); // Queued
+		// The first task may not have been started yet.
+		try {
+			worker.execute(() -> {
+			});
+			worker.execute(() -> {
+			});
+			fail("Expected rejected");
+		} catch (RejectedExecutionException e) {
+			assertTrue(worker.getRejected() > 0);
+		} finally {
+			release.countDown();
+			worker.close();
+		}
+	}
+
+	@Test
+	public void testCloseDrainsAcceptedTasks() throws Exception {
+		TaskWorker worker = new TaskWorker("drain", newConfig(2, 10_000, SaturationPolicy.ABORT));
+		AtomicInteger executed = new AtomicInteger(0);
+		for (int i = 0; i < 5_000; i++) {
+			worker.execute(i % 3 == 0 ? null : i % 5, () -> {
+				executed.incrementAndGet();
+			});
+		}
+		worker.close();
+		assertEquals(5_000, executed.get());
+
+		try {
+			worker.execute(() -> {
+			});
+			fail("Expected rejected after closed");
+		} catch (RejectedExecutionException e) {
+		}
+	}
+
+	private static RunProperties newConfig(int concurrency, int acceptQueue, SaturationPolicy saturation) {
+		return new RunProperties(concurrency, 0L, acceptQueue, saturation);
+	}
+
+	/**
+	 * Submit tasks concurrently, the task id is [0, TOTAL).
+	 */
+	private static void produce(TaskProducer producer) throws InterruptedException {
+		CountDownLatch start = new CountDownLatch(1);
+		Thread[] threads = new Thread[PRODUCERS];
+		for (int p = 0; p < PRODUCERS; p++) {
+			final int base = p * TASKS_PER_PRODUCER;
+			threads[p] = new Thread(() -> {
+				await(start);
+				for (int i = 0; i < TASKS_PER_PRODUCER; i++) {
+					producer.submit(base + i);
+				}
+			});
+			threads[p].start();
+		}
+		start.countDown();
+		for (Thread t : threads) {
+			t.join();
+		}
+	}
+
+	private static void assertExactlyOnce(AtomicIntegerArray executed) {
+		for (int i = 0; i < executed.length(); i++) {
+			assertEquals("Task executed count of " + i, 1, executed.get(i));
+		}
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static interface TaskProducer {
+		void submit(int id);
+	}
+
+}
@@ -3,12 +3,20 @@ package com.wl4g.devops.umc.web;
 import com.wl4g.devops.common.bean.app.AppHost;
 import com.wl4g.devops.common.web.BaseController;
 import com.wl4g.devops.common.web.RespBase;
+import com.wl4g.devops.common.web.RespBase.RetCode;
 import com.wl4g.devops.dao.app.HostDao;
+import com.wl4g.devops.umc.opentsdb.client.OpenTSDBClient;
+import com.wl4g.devops.umc.opentsdb.client.bean.request.Query;
+import com.wl4g.devops.umc.opentsdb.client.bean.request.SubQuery;
+import com.wl4g.devops.umc.opentsdb.client.bean.request.SubQuery.Aggregator;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @author vjay
@@ -21,6 +29,9 @@ public class HostController extends BaseController {
     @Autowired
     private HostDao hostDao;
 
+    @Autowired(required = false)
+    private OpenTSDBClient tsdbClient;
+
     @RequestMapping(value = "/all")
     public RespBase<?> all() {
         RespBase<Object> resp = RespBase.create();
@@ -29,6 +40,55 @@ public class HostController extends BaseController {
         return resp;
     }
 
+    /**
+     * Query metric series of the host, asynchronously processed(the servlet
+     * thread is released while the TSDB query is in progress).
+     *
+     * @param metric
+     * @param instance
+     *            instance tag, e.g. host name
+     * @param start
+     *            e.g. 1h-ago, or time-stamp
+     * @param end
+     * @param aggregator
+     * @param downsample
+     *            e.g. 1m-avg
+     * @return
+     */
+    @RequestMapping(value = "/metrics")
+    public CompletableFuture<RespBase<?>> metrics(@RequestParam String metric, String instance,
+            @RequestParam(defaultValue = "1h-ago") String start, String end,
+            @RequestParam(defaultValue = "avg") String aggregator, String downsample) {
+        RespBase<Object> resp = RespBase.create();
+        Aggregator agg = Aggregator.getEnum(aggregator);
+        if (tsdbClient == null || agg == null) {
+            resp.setCode(tsdbClient == null ? RetCode.BIZ_ERR : RetCode.PARAM_ERR);
+            resp.setMessage(tsdbClient == null ? "OpenTSDB store is not enabled" : "Illegal aggregator: " + aggregator);
+            return CompletableFuture.completedFuture(resp);
+        }
+
+        SubQuery.Builder sub = SubQuery.metric(metric).aggregator(agg);
+        if (StringUtils.isNotBlank(instance)) {
+            sub.tag("instance", instance);
+        }
+        if (StringUtils.isNotBlank(downsample)) {
+            sub.downsample(downsample);
+        }
+        Query.Builder query = Query.begin(start).sub(sub.build());
+        if (StringUtils.isNotBlank(end)) {
+            query.end(end);
+        }
+        return tsdbClient.queryAsync(query.build()).handle((series, ex) -> {
+            if (ex != null) {
+                log.error("Failed to query metrics of " + metric, ex);
+                resp.setCode(RetCode.SYS_ERR);
+            } else {
+                resp.getData().put("series", series);
+            }
+            return resp;
+        });
+    }
+
 
 
 
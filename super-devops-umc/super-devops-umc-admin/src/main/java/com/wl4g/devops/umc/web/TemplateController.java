@@ -3,10 +3,13 @@ package com.wl4g.devops.umc.web;
 import com.github.pagehelper.Page;
 import com.github.pagehelper.PageHelper;
 import com.wl4g.devops.common.bean.scm.CustomPage;
+import com.wl4g.devops.common.bean.umc.AlarmConfig;
 import com.wl4g.devops.common.bean.umc.AlarmTemplate;
 import com.wl4g.devops.common.web.BaseController;
 import com.wl4g.devops.common.web.RespBase;
+import com.wl4g.devops.dao.umc.AlarmConfigDao;
 import com.wl4g.devops.dao.umc.AlarmTemplateDao;
+import com.wl4g.devops.umc.rule.RuleConfigManager;
 import com.wl4g.devops.umc.service.TemplateService;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -32,6 +35,12 @@ public class TemplateController extends BaseController {
     @Autowired
     private TemplateService templateService;
 
+    @Autowired
+    private AlarmConfigDao alarmConfigDao;
+
+    @Autowired
+    private RuleConfigManager ruleConfigManager;
+
     @RequestMapping(value = "/list")
     public RespBase<?> list(String name,String metric,String classify, CustomPage customPage) {
         log.info("into TemplateController.list prarms::"+ "name = {} , metric = {} , classify = {} , customPage = {} ", name, metric, classify, customPage );
@@ -59,6 +68,7 @@ public class TemplateController extends BaseController {
         log.info("into TemplateController.save prarms::"+ "alarmTemplate = {} ", alarmTemplate );
         RespBase<Object> resp = RespBase.create();
         templateService.save(alarmTemplate);
+        invalidateAlarmRules(alarmTemplate.getId());
         return resp;
     }
 
@@ -77,7 +87,7 @@ public class TemplateController extends BaseController {
         log.info("into TemplateController.del prarms::"+ "id = {} ", id );
         RespBase<Object> resp = RespBase.create();
         templateService.del(id);
-
+        invalidateAlarmRules(id);
         return resp;
     }
 
@@ -89,6 +99,25 @@ public class TemplateController extends BaseController {
         return resp;
     }
 
+    /**
+     * Invalidate the cached alarm rules of the collectors using the template,
+     * (after the template changes are committed).
+     *
+     * @param templateId
+     */
+    private void invalidateAlarmRules(Integer templateId) {
+        List<AlarmConfig> alarmConfigs = alarmConfigDao.selectByTemplateId(templateId);
+        for (AlarmConfig alarmConfig : alarmConfigs) {
+            if (alarmConfig.getCollectId() == null) {
+                // Collectors of the config are related by table, clean all.
+                ruleConfigManager.clearAll(0);
+                return;
+            }
+        }
+        alarmConfigs.stream().map(c -> String.valueOf(c.getCollectId())).distinct()
+                .forEach(collectId -> ruleConfigManager.invalidate(collectId));
+    }
+
 
 
 
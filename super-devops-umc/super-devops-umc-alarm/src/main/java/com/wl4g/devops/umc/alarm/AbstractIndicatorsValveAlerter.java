@@ -15,22 +15,19 @@
  */
 package com.wl4g.devops.umc.alarm;
 
-import com.wl4g.devops.common.bean.umc.model.MetricValue;
 import com.wl4g.devops.support.cache.JedisService;
-import com.wl4g.devops.support.lock.SimpleRedisLockManager;
 import com.wl4g.devops.support.task.GenericTaskRunner;
 import com.wl4g.devops.support.task.GenericTaskRunner.RunProperties;
+import com.wl4g.devops.umc.alarm.MetricAggregateWrapper.MetricWrapper;
+import com.wl4g.devops.umc.alarm.window.MetricWindow;
+import com.wl4g.devops.umc.alarm.window.TimeWindowStore;
 import com.wl4g.devops.umc.config.AlarmProperties;
 
 import static com.wl4g.devops.common.constants.UMCDevOpsConstants.KEY_CACHE_ALARM_METRIC_QUEUE;
-import static com.wl4g.devops.common.utils.lang.Collections2.ensureList;
-import static java.lang.Math.abs;
-import static java.util.Collections.emptyList;
+import static org.springframework.util.CollectionUtils.isEmpty;
 
-import java.util.Iterator;
-import java.util.List;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Lock;
+import java.util.Map;
+import java.util.TreeMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -50,16 +47,21 @@ public abstract class AbstractIndicatorsValveAlerter extends GenericTaskRunner<R
 	final protected JedisService jedisService;
 
 	/**
-	 * REDIS lock manager.
+	 * Metric time window store.
 	 */
-	final protected SimpleRedisLockManager lockManager;
+	final protected TimeWindowStore windowStore;
 
-	public AbstractIndicatorsValveAlerter(JedisService jedisService, SimpleRedisLockManager lockManager, AlarmProperties config) {
+	/**
+	 * Reused time window of alarm worker threads.
+	 */
+	final private ThreadLocal<MetricWindow> windowLocal = ThreadLocal.withInitial(() -> new MetricWindow());
+
+	public AbstractIndicatorsValveAlerter(JedisService jedisService, TimeWindowStore windowStore, AlarmProperties config) {
 		super(config);
 		Assert.notNull(jedisService, "JedisService is null, please check config.");
-		Assert.notNull(lockManager, "LockManager is null, please check config.");
+		Assert.notNull(windowStore, "TimeWindowStore is null, please check config.");
 		this.jedisService = jedisService;
-		this.lockManager = lockManager;
+		this.windowStore = windowStore;
 	}
 
 	@Override
@@ -69,7 +71,9 @@ public abstract class AbstractIndicatorsValveAlerter extends GenericTaskRunner<R
 
 	@Override
 	public void alarm(MetricAggregateWrapper wrap) {
-		getWorker().execute(() -> doHandleAlarm(wrap));
+		// Ordered by collector, so that the metric time windows are offered in
+		// order.
+		getWorker().execute(wrap.getCollectAddr(), () -> doHandleAlarm(wrap));
 	}
 
 	/**
@@ -86,75 +90,50 @@ public abstract class AbstractIndicatorsValveAlerter extends GenericTaskRunner<R
 	 * 
 	 * @param collectAddr
 	 *            collector address
-	 * @param value
-	 *            metric value
+	 * @param mwrap
+	 *            metric series
 	 * @param gatherTime
 	 *            gather time-stamp.
 	 * @param now
 	 *            current date time-stamp.
 	 * @param ttl
 	 *            time-to-live
-	 * @return
+	 * @return Values in time window, which is reused by the current thread,
+	 *         so it's only valid until the next offer.
 	 */
-	protected List<MetricValue> offerTimeWindowQueue(String collectAddr, Double value, long gatherTime, long now, long ttl) {
-		String timeWindowKey = getTimeWindowQueueCacheKey(collectAddr);
-		// To solve the concurrency problem of metric window queue in
-		// distributed environment.
-		Lock lock = lockManager.getLock(timeWindowKey);
-
-		List<MetricValue> metricVals = emptyList();
-		try {
-			if (lock.tryLock(10L, TimeUnit.SECONDS)) {
-				metricVals = ensureList(doPeekMetricValueQueue(collectAddr));
-				metricVals.add(new MetricValue(gatherTime, value));
-
-				// Check & clean expired metrics.
-				Iterator<MetricValue> it = metricVals.iterator();
-				while (it.hasNext()) {
-					if (abs(now - it.next().getGatherTime()) >= ttl) {
-						it.remove();
-					}
-				}
-				// Offer to queue.
-				doOfferMetricValueQueue(collectAddr, ttl, metricVals);
-			}
-		} catch (InterruptedException e) {
-			throw new IllegalStateException(e);
-		} finally {
-			lock.unlock();
-		}
-		return metricVals;
+	protected MetricWindow offerTimeWindowQueue(String collectAddr, MetricWrapper mwrap, long gatherTime, long now, long ttl) {
+		String timeWindowKey = getTimeWindowQueueCacheKey(collectAddr, mwrap);
+		return windowStore.offer(timeWindowKey, gatherTime, mwrap.getValue(), now, ttl, windowLocal.get());
 	}
 
+	// --- Cache key. ---
+
 	/**
-	 * GET metric values queue by collect address.
+	 * Gets time window key of metric series, the series is identified by the
+	 * collector address, metric name and tags.
 	 * 
 	 * @param collectAddr
+	 * @param mwrap
 	 * @return
 	 */
-	protected List<MetricValue> doPeekMetricValueQueue(String collectAddr) {
-		String timeWindowKey = getTimeWindowQueueCacheKey(collectAddr);
-		return jedisService.getObjectList(timeWindowKey, MetricValue.class);
+	protected String getTimeWindowQueueCacheKey(String collectAddr, MetricWrapper mwrap) {
+		Assert.hasText(collectAddr, "Collect addr must not be empty");
+		StringBuilder key = new StringBuilder(getTimeWindowKeyPrefix()).append(collectAddr).append(":").append(mwrap.getMetric());
+		if (!isEmpty(mwrap.getTags())) {
+			for (Map.Entry<String, String> tag : new TreeMap<>(mwrap.getTags()).entrySet()) {
+				key.append(":").append(tag.getKey()).append("=").append(tag.getValue());
+			}
+		}
+		return key.toString();
 	}
 
 	/**
-	 * Storage metric values to cache.
+	 * Gets time window key prefix.
 	 * 
-	 * @param collectAddr
-	 * @param ttl
-	 * @param metricVals
+	 * @return
 	 */
-	protected List<MetricValue> doOfferMetricValueQueue(String collectAddr, long ttl, List<MetricValue> metricVals) {
-		String timeWindowKey = getTimeWindowQueueCacheKey(collectAddr);
-		jedisService.setObjectList(timeWindowKey, metricVals, (int) ttl);
-		return metricVals;
-	}
-
-	// --- Cache key. ---
-
-	protected String getTimeWindowQueueCacheKey(String collectAddr) {
-		Assert.hasText(collectAddr, "Collect addr must not be empty");
-		return KEY_CACHE_ALARM_METRIC_QUEUE + collectAddr;
+	protected String getTimeWindowKeyPrefix() {
+		return KEY_CACHE_ALARM_METRIC_QUEUE;
 	}
 
 }
\ No newline at end of file
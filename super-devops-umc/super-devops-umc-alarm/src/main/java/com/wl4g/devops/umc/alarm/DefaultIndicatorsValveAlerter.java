@@ -16,33 +16,37 @@
 package com.wl4g.devops.umc.alarm;
 
 import static com.wl4g.devops.common.utils.lang.Collections2.safeList;
-import static com.wl4g.devops.common.utils.serialize.JacksonUtils.toJSONString;
-import static java.lang.Math.abs;
-import static java.util.Collections.emptyMap;
-import static java.util.stream.Collectors.toList;
-import static org.apache.commons.lang3.StringUtils.trimToEmpty;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.apache.commons.lang3.StringUtils.isBlank;
 import static org.springframework.util.CollectionUtils.isEmpty;
 
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
 
-import org.apache.commons.lang3.StringUtils;
 import org.springframework.util.Assert;
 
 import com.wl4g.devops.common.bean.umc.AlarmConfig;
+import com.wl4g.devops.common.bean.umc.AlarmContact;
 import com.wl4g.devops.common.bean.umc.AlarmRule;
 import com.wl4g.devops.common.bean.umc.AlarmTemplate;
-import com.wl4g.devops.common.bean.umc.model.MetricValue;
 import com.wl4g.devops.support.cache.JedisService;
-import com.wl4g.devops.support.lock.SimpleRedisLockManager;
 import com.wl4g.devops.umc.alarm.MetricAggregateWrapper.MetricWrapper;
+import com.wl4g.devops.umc.alarm.window.MetricWindow;
+import com.wl4g.devops.umc.alarm.window.TimeWindowStore;
 import com.wl4g.devops.umc.config.AlarmProperties;
 import com.wl4g.devops.umc.handler.AlarmConfigurer;
+import com.wl4g.devops.umc.notification.AlarmType;
 import com.wl4g.devops.umc.notification.CompositeAlarmNotifierAdapter;
+import com.wl4g.devops.umc.notification.AlarmNotifier.SimpleAlarmMessage;
+import com.wl4g.devops.umc.rule.AlarmRuleIndex;
+import com.wl4g.devops.umc.rule.AlarmRuleIndex.CompiledRule;
+import com.wl4g.devops.umc.rule.AlarmRuleIndex.CompiledTemplate;
 import com.wl4g.devops.umc.rule.RuleConfigManager;
 import com.wl4g.devops.umc.rule.inspect.CompositeRuleInspectorAdapter;
 import com.wl4g.devops.umc.rule.inspect.RuleInspector.InspectWrapper;
@@ -68,10 +72,15 @@ public class DefaultIndicatorsValveAlerter extends AbstractIndicatorsValveAlerte
 	/** Alarm notifier */
 	final protected CompositeAlarmNotifierAdapter notifier;
 
-	public DefaultIndicatorsValveAlerter(JedisService jedisService, SimpleRedisLockManager lockManager, AlarmProperties config,
+	/**
+	 * Reused inspection wrapper of alarm worker threads.
+	 */
+	final private ThreadLocal<InspectWrapper> inspectLocal = ThreadLocal.withInitial(() -> new InspectWrapper());
+
+	public DefaultIndicatorsValveAlerter(JedisService jedisService, TimeWindowStore windowStore, AlarmProperties config,
 			AlarmConfigurer configurer, RuleConfigManager ruleManager, CompositeRuleInspectorAdapter inspector,
 			CompositeAlarmNotifierAdapter notifier) {
-		super(jedisService, lockManager, config);
+		super(jedisService, windowStore, config);
 		Assert.notNull(configurer, "AlarmConfigurer is null, please check config.");
 		Assert.notNull(ruleManager, "RuleManager is null, please check config.");
 		Assert.notNull(inspector, "RuleInspector is null, please check config.");
@@ -88,9 +97,9 @@ public class DefaultIndicatorsValveAlerter extends AbstractIndicatorsValveAlerte
 			log.info("Alarm handling for collectId: {}", agwrap.getCollectAddr());
 		}
 
-		// Load alarm templates by collectId.
-		List<AlarmTemplate> alarmTpls = ruleManager.loadAlarmRuleTpls(agwrap.getCollectAddr());
-		if (isEmpty(alarmTpls)) {
+		// Load compiled alarm rule index by collectId.
+		AlarmRuleIndex ruleIndex = ruleManager.loadAlarmRuleIndex(agwrap.getCollectAddr());
+		if (ruleIndex.isEmpty()) {
 			if (log.isInfoEnabled()) {
 				log.info("No found alarm templates for collect: {}", agwrap.getCollectAddr());
 			}
@@ -101,13 +110,26 @@ public class DefaultIndicatorsValveAlerter extends AbstractIndicatorsValveAlerte
 		List<AlarmResult> results = new ArrayList<>(agwrap.getMetrics().size() * 2);
 		final long now = System.currentTimeMillis();
 		for (MetricWrapper mwrap : agwrap.getMetrics()) {
-			for (AlarmTemplate tpl : alarmTpls) {
-				if (StringUtils.equals(mwrap.getMetric(), tpl.getMetric())) {
-					// Obtain matching alarm result.
-					Optional<AlarmResult> ropt = doGetAlarmResultWithMatchRule(agwrap, mwrap, tpl, now);
-					if (ropt.isPresent()) {
-						results.add(ropt.get());
-					}
+			Map<CompiledTemplate, Map<String, String>> matched = ruleIndex.match(mwrap.getMetric(), mwrap.getTags());
+			if (isEmpty(matched)) {
+				log.debug("No match template to metric: {}, metric tags: {}", mwrap.getMetric(), mwrap.getTags());
+				continue;
+			}
+			// Offer latest metric in time window queue once per series, the
+			// window is kept for the largest time window of matched templates.
+			long maxWindowTime = 0;
+			for (CompiledTemplate ctpl : matched.keySet()) {
+				maxWindowTime = Math.max(maxWindowTime, ctpl.getMaxWindowTime());
+			}
+			MetricWindow metricVals = offerTimeWindowQueue(agwrap.getCollectAddr(), mwrap, agwrap.getTimestamp(), now,
+					maxWindowTime);
+
+			for (Entry<CompiledTemplate, Map<String, String>> ent : matched.entrySet()) {
+				// Obtain matching alarm result.
+				Optional<AlarmResult> ropt = doGetAlarmResultWithMatchRule(agwrap, mwrap, ent.getKey(), ent.getValue(),
+						metricVals, now);
+				if (ropt.isPresent()) {
+					results.add(ropt.get());
 				}
 			}
 		}
@@ -123,80 +145,32 @@ public class DefaultIndicatorsValveAlerter extends AbstractIndicatorsValveAlerte
 	 * 
 	 * @param agwrap
 	 * @param mwrap
-	 * @param tpl
+	 * @param ctpl
+	 * @param matchedTag
+	 * @param metricVals
+	 *            time window of metric series, shared by matched templates.
 	 * @param now
 	 * @return
 	 */
 	protected Optional<AlarmResult> doGetAlarmResultWithMatchRule(MetricAggregateWrapper agwrap, MetricWrapper mwrap,
-			AlarmTemplate tpl, long now) {
-		// Match tags
-		Map<String, String> matchedTag = matchTag(mwrap.getTags(), tpl.getTagsMap());
-		if (isEmpty(matchedTag)) {
-			log.debug("No match tag to metric: {} and alarm template: {}, metric tags: {}", mwrap.getMetric(), tpl.getId(),
-					mwrap.getTags());
-			return Optional.empty();
-		}
-
-		// Maximum metric keep time window of rules.
-		long maxWindowTime = extractMaxRuleWindowTime(tpl.getRules());
-		// Offer latest metrics in time window queue.
-		List<MetricValue> metricVals = offerTimeWindowQueue(agwrap.getCollectAddr(), mwrap.getValue(), agwrap.getTimestamp(), now,
-				maxWindowTime);
+			CompiledTemplate ctpl, Map<String, String> matchedTag, MetricWindow metricVals, long now) {
+		AlarmTemplate tpl = ctpl.getTemplate();
 
 		// Match alarm rules of metric values.
-		List<AlarmRule> matchedRules = matchAlarmRules(metricVals, tpl.getRules(), now);
+		List<AlarmRule> matchedRules = matchAlarmRules(metricVals, ctpl.getCompiledRules(), now);
 		if (isEmpty(matchedRules)) {
 			log.debug("No match rule to metric: {} and alarm template: {}, timeWindowQueue: {}", mwrap.getMetric(), tpl.getId(),
-					toJSONString(metricVals));
+					metricVals);
 			return Optional.empty();
 		}
 
 		if (log.isInfoEnabled()) {
 			log.info("Matched to metric: {} and alarm template: {}, timeWindowQueue: {}", mwrap.getMetric(), tpl.getId(),
-					toJSONString(metricVals));
+					metricVals);
 		}
 		return Optional.of(new AlarmResult(agwrap, tpl, matchedTag, matchedRules));
 	}
 
-	/**
-	 * Match metric tags
-	 * 
-	 * @param metricTagMap
-	 * @param tplTagMap
-	 * @return
-	 */
-	protected Map<String, String> matchTag(Map<String, String> metricTagMap, Map<String, String> tplTagMap) {
-		// If no tag is configured, the matching tag does not need to be
-		// executed.
-		if (isEmpty(tplTagMap)) {
-			return emptyMap();
-		}
-		Map<String, String> matchedTags = new HashMap<>();
-		for (Entry<String, String> ent : tplTagMap.entrySet()) {
-			if (trimToEmpty(ent.getValue()).equals(metricTagMap.get(ent.getKey()))) {
-				matchedTags.put(ent.getKey(), ent.getValue());
-			}
-		}
-		return matchedTags;
-	}
-
-	/**
-	 * Extract largest metric keep time window of rules.
-	 * 
-	 * @param rules
-	 * @return
-	 */
-	protected long extractMaxRuleWindowTime(List<AlarmRule> rules) {
-		long largestTimeWindow = 0;
-		for (AlarmRule alarmRule : rules) {
-			Long timeWindow = alarmRule.getQueueTimeWindow();
-			if ((timeWindow != null ? timeWindow : 0) > largestTimeWindow) {
-				largestTimeWindow = alarmRule.getQueueTimeWindow();
-			}
-		}
-		return largestTimeWindow;
-	}
-
 	/**
 	 * Match alarm rules.
 	 * 
@@ -205,100 +179,138 @@ public class DefaultIndicatorsValveAlerter extends AbstractIndicatorsValveAlerte
 	 * @param now
 	 * @return
 	 */
-	protected List<AlarmRule> matchAlarmRules(List<MetricValue> metricVals, List<AlarmRule> rules, long now) {
+	protected List<AlarmRule> matchAlarmRules(MetricWindow metricVals, List<CompiledRule> rules, long now) {
+		List<AlarmRule> matchedRules = null;
+		InspectWrapper wrap = inspectLocal.get();
 		// Match mode for 'OR'/'AND'.
-		return safeList(rules).stream().map(rule -> {
-			// Extract validity metric values.
-			Double[] validityMetricVals = extractValidityMetricValueInQueue(metricVals, rule.getQueueTimeWindow(), now);
-			// Do inspection.
-			InspectWrapper wrap = new InspectWrapper(rule.getLogicalOperator(), rule.getRelateOperator(), rule.getAggregator(),
-					rule.getValue(), validityMetricVals);
-			if (inspector.verify(wrap)) {
-				return rule;
+		for (int i = 0, size = rules.size(); i < size; i++) {
+			CompiledRule rule = rules.get(i);
+			if (rule.getAggregator() == null) {
+				continue; // Unsupported aggregator.
+			}
+			// Do inspection of validity metric values.
+			if (inspector.verify(extractValidityMetricValueInQueue(metricVals, rule, now, wrap))) {
+				if (matchedRules == null) {
+					matchedRules = new ArrayList<>(size);
+				}
+				matchedRules.add(rule.getRule());
 			}
-			return null;
-		}).collect(toList());
+		}
+		return matchedRules == null ? emptyList() : matchedRules;
 	}
 
 	/**
-	 * Metric the validity of extraction from queue.
+	 * Metric the validity of extraction from queue, the values are not copied,
+	 * but a view of the window in the valid duration of the rule.
 	 * 
 	 * @param metricVals
-	 * @param durationMs
+	 * @param rule
 	 * @param now
+	 * @param wrap
+	 *            reused inspection wrapper
 	 * @return
 	 */
-	protected Double[] extractValidityMetricValueInQueue(List<MetricValue> metricVals, final long durationMs, long now) {
-		return safeList(metricVals).stream().filter(v -> abs(now - v.getGatherTime()) < durationMs).map(v -> v.getValue())
-				.collect(toList()).toArray(new Double[] {});
+	protected InspectWrapper extractValidityMetricValueInQueue(MetricWindow metricVals, CompiledRule rule, long now,
+			InspectWrapper wrap) {
+		int from = metricVals.validityFrom(rule.getDurationMs(), now);
+		int to = Math.max(from, metricVals.validityTo(rule.getDurationMs(), now));
+		AlarmRule r = rule.getRule();
+		return wrap.wrap(r.getLogicalOperator(), r.getRelateOperator(), rule.getAggregator(), rule.getArgument(), r.getValue(),
+				metricVals.getTimes(), metricVals.getValues(), from, to - from);
 	}
 
 	// --- Alarm result processed. ---
 
 	/**
-	 * After alarm result processed.
+	 * After alarm result processed, the frequency limiting and dedup of
+	 * notifications are done by the notifier dispatcher. The alarm
+	 * configurations(by template and collect) and contacts(by contact group)
+	 * are found once per batch of results, shared by the results of the same
+	 * template.
 	 * 
-	 * @param collectAddr
-	 * @param alarmTpl
-	 * @param gatherTime
-	 * @param macthedRules
+	 * @param results
 	 */
 	protected void postAlarmResultProcessed(List<AlarmResult> results) {
+		Map<List<Object>, List<AlarmConfig>> batchConfigs = new HashMap<>();
+		Map<Integer, List<AlarmContact>> batchContacts = new HashMap<>();
 		for (AlarmResult result : results) {
-			if (checkNotifyLimit(result)) {
-				// TODO
-				// Save notification
+			AlarmTemplate tpl = result.getAlarmTemplate();
+			String collectAddr = result.getAggregateWrap().getCollectAddr();
+			try {
+				List<AlarmConfig> alarmConfigs = batchConfigs.computeIfAbsent(asList(tpl.getId(), collectAddr),
+						k -> safeList(configurer.findAlarmConfig(tpl.getId(), collectAddr)));
+				// Storage record.
+				configurer.saveAlarmRecord(tpl, alarmConfigs, collectAddr, result.getAggregateWrap().getTimestamp(),
+						result.getMatchedRules());
+				// Notification
+				notification(result, alarmConfigs, batchContacts);
+			} catch (Exception e) {
+				log.error(String.format("Failed to process alarm result of collect: %s, template: %s", collectAddr, tpl.getId()),
+						e);
 			}
 		}
-
-		// List<AlarmConfig> alarmConfigs =
-		// configurer.findAlarmConfig(alarmTpl.getId(), collectAddr);
-		// // Storage record.
-		// configurer.saveAlarmRecord(alarmTpl, alarmConfigs, collectAddr,
-		// gatherTime, macthedRules);
-		// // Notification
-		// notification(alarmTpl, alarmConfigs, macthedRules);
 	}
 
 	/**
-	 * Check notification frequently limit.
+	 * Notification of alarm result to contacts of alarm configurations.
 	 * 
 	 * @param result
-	 * @return
+	 * @param alarmConfigs
+	 * @param batchContacts
+	 *            contacts of contact groups found in the batch of results
 	 */
-	protected boolean checkNotifyLimit(AlarmResult result) {
-		// TODO
-		return false;
+	protected void notification(AlarmResult result, List<AlarmConfig> alarmConfigs,
+			Map<Integer, List<AlarmContact>> batchContacts) {
+		String content = buildAlarmContent(result);
+		for (AlarmConfig alarmConfig : alarmConfigs) {
+			if (alarmConfig.getContactGroupId() == null) {
+				continue;
+			}
+			// Alarm notifier members of each channel.
+			Map<AlarmType, List<String>> members = new EnumMap<>(AlarmType.class);
+			List<AlarmContact> contacts = batchContacts.computeIfAbsent(alarmConfig.getContactGroupId(),
+					groupId -> safeList(configurer.findAlarmContacts(groupId)));
+			for (AlarmContact contact : contacts) {
+				addMember(members, AlarmType.EMAIL, contact.getEmailEnable(), contact.getEmail());
+				addMember(members, AlarmType.SMS, contact.getPhoneEnable(), contact.getPhone());
+				addMember(members, AlarmType.WECHAT, contact.getWechatEnable(), contact.getWechat());
+			}
+			for (Entry<AlarmType, List<String>> ent : members.entrySet()) {
+				if (log.isInfoEnabled()) {
+					log.info("Notification alarm for templateId: {}, notifierType: {}, to: {}, content: {}",
+							result.getAlarmTemplate().getId(), ent.getKey(), ent.getValue(), content);
+				}
+				// Alarm to composite notifiers.
+				notifier.simpleNotify(new SimpleAlarmMessage(content, ent.getKey().getValue(),
+						ent.getValue().toArray(new String[ent.getValue().size()])));
+			}
+		}
 	}
 
 	/**
-	 * Notification of alarm template to users.
+	 * Build alarm notification content, it must not contain the variable
+	 * parts(e.g. time-stamp) so that the identical alarms can be deduplicated.
 	 * 
-	 * @param alarmTpl
-	 * @param alarmConfigs
-	 * @param macthedRules
+	 * @param result
+	 * @return
 	 */
-	protected void notification(AlarmTemplate alarmTpl, List<AlarmConfig> alarmConfigs, List<AlarmRule> macthedRules) {
-
-		// TODO 通知方式改变，没有了notifierType，通过contact下的配置来决定发送方式
+	protected String buildAlarmContent(AlarmResult result) {
+		AlarmTemplate tpl = result.getAlarmTemplate();
+		StringBuilder content = new StringBuilder(128);
+		content.append("Alarm '").append(tpl.getName()).append("', metric: ").append(tpl.getMetric()).append(", collect: ")
+				.append(result.getAggregateWrap().getCollectAddr()).append(", tags: ").append(result.getMatchedTag())
+				.append(", rules: [");
+		for (AlarmRule rule : safeList(result.getMatchedRules())) {
+			content.append(rule.getAggregator()).append(" ").append(rule.getRelateOperator()).append(" ")
+					.append(rule.getValue()).append(";");
+		}
+		return content.append("]").toString();
+	}
 
-		// for (AlarmConfig alarmConfig : alarmConfigs) {
-		// if (isBlank(alarmConfig.getAlarmMember())) {
-		// continue;
-		// }
-		// // Alarm notifier members.
-		// String[] alarmMembers = alarmConfig.getAlarmMember().split(",");
-		// if (log.isInfoEnabled()) {
-		// log.info("Notification alarm for templateId: {}, notifierType: {},
-		// to: {}, content: {}", alarmTemplate.getId(),
-		// alarmConfig.getAlarmType(), alarmConfig.getAlarmMember(),
-		// alarmConfig.getAlarmContent());
-		// }
-		// // Alarm to composite notifiers.
-		// notifier.simpleNotify(
-		// new SimpleAlarmMessage(alarmConfig.getAlarmContent(),
-		// alarmConfig.getAlarmType(), alarmMembers));
-		// }
+	private void addMember(Map<AlarmType, List<String>> members, AlarmType type, Integer enable, String member) {
+		if (enable != null && enable == 1 && !isBlank(member)) {
+			members.computeIfAbsent(type, k -> new ArrayList<>(4)).add(member.trim());
+		}
 	}
 
 }
\ No newline at end of file
@@ -17,10 +17,8 @@ package com.wl4g.devops.umc.alarm;
 
 import static com.wl4g.devops.common.constants.UMCDevOpsConstants.KEY_CACHE_ALARM_METRIC_QUEUE_SIMULATE;
 
-import org.springframework.util.Assert;
-
 import com.wl4g.devops.support.cache.JedisService;
-import com.wl4g.devops.support.lock.SimpleRedisLockManager;
+import com.wl4g.devops.umc.alarm.window.TimeWindowStore;
 import com.wl4g.devops.umc.config.AlarmProperties;
 import com.wl4g.devops.umc.handler.AlarmConfigurer;
 import com.wl4g.devops.umc.notification.CompositeAlarmNotifierAdapter;
@@ -36,16 +34,15 @@ import com.wl4g.devops.umc.rule.inspect.CompositeRuleInspectorAdapter;
  */
 public class SimulateIndicatorsValveAleter extends DefaultIndicatorsValveAlerter {
 
-	public SimulateIndicatorsValveAleter(JedisService jedisService, SimpleRedisLockManager lockManager, AlarmProperties config,
+	public SimulateIndicatorsValveAleter(JedisService jedisService, TimeWindowStore windowStore, AlarmProperties config,
 			AlarmConfigurer configurer, RuleConfigManager ruleManager, CompositeRuleInspectorAdapter inspector,
 			CompositeAlarmNotifierAdapter notifier) {
-		super(jedisService, lockManager, config, configurer, ruleManager, inspector, notifier);
+		super(jedisService, windowStore, config, configurer, ruleManager, inspector, notifier);
 	}
 
 	@Override
-	protected String getTimeWindowQueueCacheKey(String collectAddr) {
-		Assert.hasText(collectAddr, "Collect addr must not be empty");
-		return KEY_CACHE_ALARM_METRIC_QUEUE_SIMULATE + collectAddr;
+	protected String getTimeWindowKeyPrefix() {
+		return KEY_CACHE_ALARM_METRIC_QUEUE_SIMULATE;
 	}
 
 }
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.alarm.window;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+/**
+ * In-process sharded ring buffer time window store.</br>
+ * Each metric series is stored in a fixed capacity ring of slots, appends
+ * claim a sequence by CAS and publish an immutable sample(time, value and its
+ * sequence) into the slot by CAS, readers skip the slots whose sample is not of
+ * the expected sequence, so neither writers nor readers ever wait. Expired values are never
+ * removed, they are just skipped by time-stamp and overwritten by later
+ * appends. Series that have not been written for a long time are evicted by
+ * an amortized sweep of one shard at a time, a series is retired before it's
+ * removed, so the appends racing with the sweep go to a new series instead of
+ * the evicted one.
+ *
+ * @author Wangl.sir
+ * @version v1.0 2019年9月3日
+ * @since
+ */
+public class MemoryTimeWindowStore implements TimeWindowStore {
+
+	final protected Logger log = LoggerFactory.getLogger(getClass());
+
+	/** Number of offers between two idle series sweeps. */
+	final private static int SWEEP_INTERVAL = 4096;
+
+	/** Series shards. */
+	final private ConcurrentHashMap<String, Series>[] shards;
+
+	/** Ring capacity of series(power of 2). */
+	final private int capacity;
+
+	/** Series not written for longer than idle time will be evicted. */
+	final private long idleEvictMs;
+
+	/** Offer counter, for amortized sweep. */
+	final private AtomicLong offers = new AtomicLong(0);
+
+	@SuppressWarnings("unchecked")
+	public MemoryTimeWindowStore(int shards, int capacity, long idleEvictMs) {
+		Assert.isTrue(shards > 0, "Shards must be greater than 0.");
+		Assert.isTrue(capacity > 0, "Capacity must be greater than 0.");
+		Assert.isTrue(idleEvictMs > 0, "Idle evict time must be greater than 0.");
+		this.shards = new ConcurrentHashMap[shards];
+		for (int i = 0; i < shards; i++) {
+			this.shards[i] = new ConcurrentHashMap<>();
+		}
+		this.capacity = Integer.highestOneBit(capacity - 1 > 0 ? (capacity - 1) << 1 : 1);
+		this.idleEvictMs = idleEvictMs;
+	}
+
+	@Override
+	public MetricWindow offer(String key, long gatherTime, double value, long now, long ttl, MetricWindow window) {
+		Assert.hasText(key, "Series key must not be empty.");
+		ConcurrentHashMap<String, Series> shard = shardOf(key);
+		Series series;
+		do {
+			series = shard.computeIfAbsent(key, k -> new Series(capacity));
+		} while (!series.append(gatherTime, value, now)); // Retired by sweep
+
+		series.read(now - ttl, window.clear());
+
+		// Amortized eviction of idle series.
+		long c = offers.incrementAndGet();
+		if (c % SWEEP_INTERVAL == 0) {
+			sweep(shards[(int) ((c / SWEEP_INTERVAL) % shards.length)], now);
+		}
+		return window;
+	}
+
+	/**
+	 * Number of series currently held.
+	 *
+	 * @return
+	 */
+	public int size() {
+		int size = 0;
+		for (ConcurrentHashMap<String, Series> shard : shards) {
+			size += shard.size();
+		}
+		return size;
+	}
+
+	private ConcurrentHashMap<String, Series> shardOf(String key) {
+		return shards[(key.hashCode() & Integer.MAX_VALUE) % shards.length];
+	}
+
+	private void sweep(ConcurrentHashMap<String, Series> shard, long now) {
+		int[] evicted = { 0 };
+		for (String key : shard.keySet()) {
+			shard.computeIfPresent(key, (k, series) -> {
+				// Not retired if an append is in progress.
+				if (now - series.lastWrite > idleEvictMs && series.retire()) {
+					++evicted[0];
+					return null;
+				}
+				return series;
+			});
+		}
+		if (evicted[0] > 0 && log.isDebugEnabled()) {
+			log.debug("Evicted idle time window series: {}", evicted[0]);
+		}
+	}
+
+	/**
+	 * Lock-free ring of metric series.
+	 *
+	 * @author Wangl.sir
+	 * @version v1.0 2019年9月3日
+	 * @since
+	 */
+	final static class Series {
+
+		/** Immutable samples, each published into its slot by CAS. */
+		final private AtomicReferenceArray<Sample> slots;
+
+		/** Last claimed sequence. */
+		final private AtomicLong cursor = new AtomicLong(-1);
+
+		/** Appends in progress, a series is retired only without any. */
+		final private AtomicInteger writers = new AtomicInteger(0);
+
+		final private int mask;
+
+		/** Retired(evicted) series are never written again. */
+		private volatile boolean retired;
+
+		/** Last write time, for idle eviction. */
+		volatile long lastWrite;
+
+		Series(int capacity) {
+			this.slots = new AtomicReferenceArray<>(capacity);
+			this.mask = capacity - 1;
+		}
+
+		/**
+		 * Append value into the ring, the slot of the claimed sequence is
+		 * replaced by CAS unless a writer of a later lap has already published
+		 * into it(the value is then older than the whole ring, and dropped).
+		 *
+		 * @param gatherTime
+		 * @param value
+		 * @param now
+		 * @return false if the series has been retired
+		 */
+		boolean append(long gatherTime, double value, long now) {
+			writers.incrementAndGet();
+			try {
+				if (retired) {
+					return false;
+				}
+				long seq = cursor.incrementAndGet();
+				int i = (int) (seq & mask);
+				Sample sample = new Sample(seq, gatherTime, value);
+				Sample prev = slots.get(i);
+				while ((prev == null || prev.seq < seq) && !slots.compareAndSet(i, prev, sample)) {
+					prev = slots.get(i);
+				}
+				lastWrite = now;
+				return true;
+			} finally {
+				writers.decrementAndGet();
+			}
+		}
+
+		/**
+		 * Retire the series if no append is in progress, the appends after
+		 * it are refused.
+		 *
+		 * @return
+		 */
+		boolean retire() {
+			retired = true;
+			if (writers.get() != 0) {
+				retired = false;
+				return false;
+			}
+			return true;
+		}
+
+		/**
+		 * Read values newer than begin time into window.
+		 *
+		 * @param beginTime
+		 *            exclusive begin gather time
+		 * @param window
+		 * @return
+		 */
+		MetricWindow read(long beginTime, MetricWindow window) {
+			long hi = cursor.get();
+			long lo = Math.max(0, hi - mask);
+			for (long seq = hi; seq >= lo; seq--) {
+				Sample sample = slots.get((int) (seq & mask));
+				// Not yet published by a concurrent writer, or already
+				// overwritten.
+				if (sample != null && sample.seq == seq && sample.time > beginTime) {
+					window.add(sample.time, sample.value);
+				}
+			}
+			// Read newest first, so reverse to ascending.
+			return window.reverse().sortByTime();
+		}
+
+	}
+
+	/**
+	 * Series sample.
+	 */
+	final static class Sample {
+
+		final long seq;
+
+		final long time;
+
+		final double value;
+
+		Sample(long seq, long time, double value) {
+			this.seq = seq;
+			this.time = time;
+			this.value = value;
+		}
+
+	}
+
+}
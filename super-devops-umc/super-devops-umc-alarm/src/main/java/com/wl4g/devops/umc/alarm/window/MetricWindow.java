@@ -0,0 +1,194 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.alarm.window;
+
+import static java.util.Arrays.copyOf;
+
+/**
+ * Metric values snapshot of time window, values are stored in primitive
+ * arrays and ordered by gather time ascending.
+ *
+ * @author Wangl.sir
+ * @version v1.0 2019年9月3日
+ * @since
+ */
+public class MetricWindow {
+
+	/** Gather time-stamps. */
+	private long[] times;
+
+	/** Metric values. */
+	private double[] values;
+
+	/** Number of valid values. */
+	private int size;
+
+	public MetricWindow() {
+		this(16);
+	}
+
+	public MetricWindow(int capacity) {
+		this.times = new long[capacity];
+		this.values = new double[capacity];
+	}
+
+	/**
+	 * Append value, it is the caller's responsibility to keep the gather time
+	 * ascending (see {@link #sortByTime()}).
+	 *
+	 * @param gatherTime
+	 * @param value
+	 * @return
+	 */
+	public MetricWindow add(long gatherTime, double value) {
+		if (size == times.length) {
+			int newCapacity = Math.max(16, size << 1);
+			times = copyOf(times, newCapacity);
+			values = copyOf(values, newCapacity);
+		}
+		times[size] = gatherTime;
+		values[size] = value;
+		++size;
+		return this;
+	}
+
+	/**
+	 * Reverse the order of values.
+	 *
+	 * @return
+	 */
+	public MetricWindow reverse() {
+		for (int i = 0, j = size - 1; i < j; i++, j--) {
+			long t = times[i];
+			times[i] = times[j];
+			times[j] = t;
+			double v = values[i];
+			values[i] = values[j];
+			values[j] = v;
+		}
+		return this;
+	}
+
+	/**
+	 * Sort values by gather time ascending(stable), it's an insertion sort,
+	 * which is linear for the nearly ordered values of the window.
+	 *
+	 * @return
+	 */
+	public MetricWindow sortByTime() {
+		for (int i = 1; i < size; i++) {
+			long t = times[i];
+			double v = values[i];
+			int j = i - 1;
+			for (; j >= 0 && times[j] > t; j--) {
+				times[j + 1] = times[j];
+				values[j + 1] = values[j];
+			}
+			times[j + 1] = t;
+			values[j + 1] = v;
+		}
+		return this;
+	}
+
+	/**
+	 * Gets the index of the first value whose gather time is in the valid
+	 * duration, i.e. abs(now - gatherTime) &lt; duration, values must be
+	 * ordered by gather time ascending.
+	 *
+	 * @param durationMs
+	 * @param now
+	 * @return
+	 */
+	public int validityFrom(long durationMs, long now) {
+		int i = 0;
+		while (i < size && now - times[i] >= durationMs) {
+			i++;
+		}
+		return i;
+	}
+
+	/**
+	 * Gets the index after the last value whose gather time is in the valid
+	 * duration, see {@link #validityFrom(long, long)}
+	 *
+	 * @param durationMs
+	 * @param now
+	 * @return
+	 */
+	public int validityTo(long durationMs, long now) {
+		int i = size;
+		while (i > 0 && times[i - 1] - now >= durationMs) {
+			i--;
+		}
+		return i;
+	}
+
+	/**
+	 * Clear values and reuse arrays.
+	 *
+	 * @return
+	 */
+	public MetricWindow clear() {
+		size = 0;
+		return this;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public long getTime(int index) {
+		return times[index];
+	}
+
+	public double getValue(int index) {
+		return values[index];
+	}
+
+	/**
+	 * Gets the raw time-stamp array, only the first {@link #size()} elements
+	 * are valid.
+	 *
+	 * @return
+	 */
+	public long[] getTimes() {
+		return times;
+	}
+
+	/**
+	 * Gets the raw values array, only the first {@link #size()} elements are
+	 * valid.
+	 *
+	 * @return
+	 */
+	public double[] getValues() {
+		return values;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder s = new StringBuilder("MetricWindow [");
+		for (int i = 0; i < size; i++) {
+			s.append(times[i]).append("=").append(values[i]).append(i < size - 1 ? ", " : "");
+		}
+		return s.append("]").toString();
+	}
+
+}
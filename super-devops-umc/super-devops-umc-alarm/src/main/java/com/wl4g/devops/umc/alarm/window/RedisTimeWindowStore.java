@@ -0,0 +1,99 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.alarm.window;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import com.wl4g.devops.support.cache.JedisService;
+
+/**
+ * REDIS sorted set time window store.</br>
+ * The series is a sorted set scored by gather time, adding, trimming expired
+ * values(and the oldest values beyond the capacity), refreshing expiration and
+ * reading the window are done atomically by one LUA script, that is, one round
+ * trip per offer, no distributed lock is needed.</br>
+ * The capacity bounds the window as the memory store's ring does, so that the
+ * rule inspectors never evaluate an unbounded window.(e.g: the percentile
+ * selection)
+ *
+ * @author Wangl.sir
+ * @version v1.0 2019年9月3日
+ * @since
+ */
+public class RedisTimeWindowStore implements TimeWindowStore {
+
+	/**
+	 * KEYS[1]: series key, ARGV[1]: gather time, ARGV[2]: member,
+	 * ARGV[3]:(inclusive) expired time, ARGV[4]: ttl(ms), ARGV[5]: capacity
+	 */
+	final public static String SCRIPT_OFFER = "redis.call('zadd', KEYS[1], ARGV[1], ARGV[2]);"
+			+ "redis.call('zremrangebyscore', KEYS[1], '-inf', ARGV[3]);"
+			+ "redis.call('zremrangebyrank', KEYS[1], 0, -(tonumber(ARGV[5]) + 1));"
+			+ "redis.call('pexpire', KEYS[1], ARGV[4]);"
+			+ "return redis.call('zrangebyscore', KEYS[1], '(' .. ARGV[3], '+inf');";
+
+	/** Separator of the member time-stamp and value. */
+	final private static char SEPARATOR = ':';
+
+	final protected Logger log = LoggerFactory.getLogger(getClass());
+
+	/** REDIS service */
+	final protected JedisService jedisService;
+
+	/** Maximum values of per series. */
+	final protected int capacity;
+
+	public RedisTimeWindowStore(JedisService jedisService, int capacity) {
+		Assert.notNull(jedisService, "JedisService is null, please check config.");
+		Assert.isTrue(capacity > 0, "Capacity must be greater than 0.");
+		this.jedisService = jedisService;
+		this.capacity = capacity;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public MetricWindow offer(String key, long gatherTime, double value, long now, long ttl, MetricWindow window) {
+		Assert.hasText(key, "Series key must not be empty.");
+		// Member with time-stamp prefix, so that the same value at different
+		// times is not deduplicated.
+		String member = String.valueOf(gatherTime) + SEPARATOR + value;
+		List<String> args = asList(String.valueOf(gatherTime), member, String.valueOf(now - ttl),
+				String.valueOf(Math.max(ttl, 1L)), String.valueOf(capacity));
+
+		List<String> members = (List<String>) jedisService.getJedisCluster().eval(SCRIPT_OFFER, singletonList(key), args);
+
+		window.clear();
+		if (members != null) {
+			for (String m : members) {
+				int index = m.indexOf(SEPARATOR);
+				try {
+					window.add(Long.parseLong(m.substring(0, index)), Double.parseDouble(m.substring(index + 1)));
+				} catch (Exception e) {
+					log.warn("Skip invalid time window member: {} of {}", m, key);
+				}
+			}
+		}
+		return window;
+	}
+
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.alarm.window;
+
+/**
+ * Metric sliding time window store.
+ *
+ * @author Wangl.sir
+ * @version v1.0 2019年9月3日
+ * @since
+ */
+public interface TimeWindowStore {
+
+	/**
+	 * Offer metric value to the time window of series, and obtain the values
+	 * of the window(including the offered value).
+	 *
+	 * @param key
+	 *            metric series key
+	 * @param gatherTime
+	 *            gather time-stamp
+	 * @param value
+	 *            metric value
+	 * @param now
+	 *            current date time-stamp
+	 * @param ttl
+	 *            time window size(ms), values older than (now - ttl) are
+	 *            expired.
+	 * @param window
+	 *            the window to read into, it will be cleared first, so that
+	 *            callers can reuse it.
+	 * @return Values in time window, ordered by gather time ascending.
+	 */
+	MetricWindow offer(String key, long gatherTime, double value, long now, long ttl, MetricWindow window);
+
+	/**
+	 * Time window store type definition.
+	 *
+	 * @author Wangl.sir
+	 * @version v1.0 2019年9月3日
+	 * @since
+	 */
+	public static enum StoreType {
+
+		/**
+		 * In-process ring buffer store, applicable when the metrics of the same
+		 * collector are always received by the same node, e.g. KAFKA
+		 * partitioned by collector.
+		 */
+		MEMORY,
+
+		/**
+		 * REDIS sorted set store, shared by all nodes of the cluster.
+		 */
+		REDIS;
+
+	}
+
+}
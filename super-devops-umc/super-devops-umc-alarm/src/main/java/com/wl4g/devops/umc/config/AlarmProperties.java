@@ -16,6 +16,7 @@
 package com.wl4g.devops.umc.config;
 
 import com.wl4g.devops.support.task.GenericTaskRunner.RunProperties;
+import com.wl4g.devops.umc.alarm.window.TimeWindowStore.StoreType;
 
 /**
  * Alarm properties.
@@ -27,10 +28,268 @@ import com.wl4g.devops.support.task.GenericTaskRunner.RunProperties;
 public class AlarmProperties extends RunProperties {
 	private static final long serialVersionUID = -3690593536229115411L;
 
+	/**
+	 * Metric time window properties.
+	 */
+	private TimeWindowProperties timeWindow = new TimeWindowProperties();
+
+	/**
+	 * Alarm rule templates local cache properties.
+	 */
+	private RuleCacheProperties ruleCache = new RuleCacheProperties();
+
+	/**
+	 * Alarm notification dispatching properties.
+	 */
+	private NotificationProperties notification = new NotificationProperties();
+
 	public AlarmProperties() {
 		// No need to start the asynchronous running of the boss.
 		setAsync(false);
 		setConcurrency(1); // By default
 	}
 
+	public TimeWindowProperties getTimeWindow() {
+		return timeWindow;
+	}
+
+	public void setTimeWindow(TimeWindowProperties timeWindow) {
+		this.timeWindow = timeWindow;
+	}
+
+	public RuleCacheProperties getRuleCache() {
+		return ruleCache;
+	}
+
+	public void setRuleCache(RuleCacheProperties ruleCache) {
+		this.ruleCache = ruleCache;
+	}
+
+	public NotificationProperties getNotification() {
+		return notification;
+	}
+
+	public void setNotification(NotificationProperties notification) {
+		this.notification = notification;
+	}
+
+	/**
+	 * Metric time window store properties.
+	 * 
+	 * @author wangl.sir
+	 * @version v1.0 2019年9月3日
+	 * @since
+	 */
+	public static class TimeWindowProperties {
+
+		/** Time window store type. */
+		private StoreType store = StoreType.REDIS;
+
+		/** Number of series shards of memory store. */
+		private int shards = 16;
+
+		/**
+		 * Maximum values of per series(the oldest are trimmed), bounds the
+		 * window evaluated by rule inspectors of both stores.(rounded up to
+		 * a power of 2 in memory store)
+		 */
+		private int capacity = 256;
+
+		/** Memory store series not written longer than it will be evicted. */
+		private long idleEvictMs = 3600_000L;
+
+		public StoreType getStore() {
+			return store;
+		}
+
+		public void setStore(StoreType store) {
+			this.store = store;
+		}
+
+		public int getShards() {
+			return shards;
+		}
+
+		public void setShards(int shards) {
+			this.shards = shards;
+		}
+
+		public int getCapacity() {
+			return capacity;
+		}
+
+		public void setCapacity(int capacity) {
+			this.capacity = capacity;
+		}
+
+		public long getIdleEvictMs() {
+			return idleEvictMs;
+		}
+
+		public void setIdleEvictMs(long idleEvictMs) {
+			this.idleEvictMs = idleEvictMs;
+		}
+
+	}
+
+	/**
+	 * Alarm rule templates local cache properties.
+	 * 
+	 * @author wangl.sir
+	 * @version v1.0 2019年9月8日
+	 * @since
+	 */
+	public static class RuleCacheProperties {
+
+		/** Maximum collectors of local cached rules. */
+		private int maxSize = 10_000;
+
+		/**
+		 * Local cached rules older than it will be reloaded, it is only a
+		 * safety net of missing invalidation.
+		 */
+		private long expireMs = 600_000L;
+
+		/** Interval of checking the global rules version. */
+		private long versionCheckMs = 5_000L;
+
+		public int getMaxSize() {
+			return maxSize;
+		}
+
+		public void setMaxSize(int maxSize) {
+			this.maxSize = maxSize;
+		}
+
+		public long getExpireMs() {
+			return expireMs;
+		}
+
+		public void setExpireMs(long expireMs) {
+			this.expireMs = expireMs;
+		}
+
+		public long getVersionCheckMs() {
+			return versionCheckMs;
+		}
+
+		public void setVersionCheckMs(long versionCheckMs) {
+			this.versionCheckMs = versionCheckMs;
+		}
+
+	}
+
+	/**
+	 * Alarm notification dispatching properties.
+	 * 
+	 * @author wangl.sir
+	 * @version v1.0 2019年9月11日
+	 * @since
+	 */
+	public static class NotificationProperties {
+
+		/** Maximum pending notifications of per channel. */
+		private int queueCapacity = 1000;
+
+		/** Sending threads of per channel. */
+		private int channelConcurrency = 1;
+
+		/** Sustained notifications per second of per channel. */
+		private double channelPermitsPerSecond = 10d;
+
+		/** Burst notifications of per channel. */
+		private int channelBurst = 100;
+
+		/** Sustained notifications per minute of per contact and channel. */
+		private double contactPermitsPerMinute = 2d;
+
+		/** Burst notifications of per contact and channel. */
+		private int contactBurst = 5;
+
+		/**
+		 * Identical alarms in the window are sent only once, and the
+		 * suppressed are sent as a digest at the end of the window.
+		 */
+		private long dedupWindowMs = 300_000L;
+
+		/** Maximum sending attempts of a notification. */
+		private int maxAttempts = 3;
+
+		/** Base backoff of retries, exponential with jitter. */
+		private long retryBackoffMs = 2_000L;
+
+		public int getQueueCapacity() {
+			return queueCapacity;
+		}
+
+		public void setQueueCapacity(int queueCapacity) {
+			this.queueCapacity = queueCapacity;
+		}
+
+		public int getChannelConcurrency() {
+			return channelConcurrency;
+		}
+
+		public void setChannelConcurrency(int channelConcurrency) {
+			this.channelConcurrency = channelConcurrency;
+		}
+
+		public double getChannelPermitsPerSecond() {
+			return channelPermitsPerSecond;
+		}
+
+		public void setChannelPermitsPerSecond(double channelPermitsPerSecond) {
+			this.channelPermitsPerSecond = channelPermitsPerSecond;
+		}
+
+		public int getChannelBurst() {
+			return channelBurst;
+		}
+
+		public void setChannelBurst(int channelBurst) {
+			this.channelBurst = channelBurst;
+		}
+
+		public double getContactPermitsPerMinute() {
+			return contactPermitsPerMinute;
+		}
+
+		public void setContactPermitsPerMinute(double contactPermitsPerMinute) {
+			this.contactPermitsPerMinute = contactPermitsPerMinute;
+		}
+
+		public int getContactBurst() {
+			return contactBurst;
+		}
+
+		public void setContactBurst(int contactBurst) {
+			this.contactBurst = contactBurst;
+		}
+
+		public long getDedupWindowMs() {
+			return dedupWindowMs;
+		}
+
+		public void setDedupWindowMs(long dedupWindowMs) {
+			this.dedupWindowMs = dedupWindowMs;
+		}
+
+		public int getMaxAttempts() {
+			return maxAttempts;
+		}
+
+		public void setMaxAttempts(int maxAttempts) {
+			this.maxAttempts = maxAttempts;
+		}
+
+		public long getRetryBackoffMs() {
+			return retryBackoffMs;
+		}
+
+		public void setRetryBackoffMs(long retryBackoffMs) {
+			this.retryBackoffMs = retryBackoffMs;
+		}
+
+	}
+
 }
\ No newline at end of file
@@ -22,10 +22,13 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 
 import com.wl4g.devops.support.cache.JedisService;
-import com.wl4g.devops.support.lock.SimpleRedisLockManager;
 import com.wl4g.devops.umc.alarm.DefaultIndicatorsValveAlerter;
 import com.wl4g.devops.umc.alarm.IndicatorsValveAlerter;
 import com.wl4g.devops.umc.alarm.SimulateIndicatorsValveAleter;
+import com.wl4g.devops.umc.alarm.window.MemoryTimeWindowStore;
+import com.wl4g.devops.umc.alarm.window.RedisTimeWindowStore;
+import com.wl4g.devops.umc.alarm.window.TimeWindowStore;
+import com.wl4g.devops.umc.config.AlarmProperties.TimeWindowProperties;
 import com.wl4g.devops.umc.console.AlarmConsole;
 import com.wl4g.devops.umc.handler.CheckImpledAlarmConfigurer;
 import com.wl4g.devops.umc.handler.AlarmConfigurer;
@@ -38,10 +41,14 @@ import com.wl4g.devops.umc.notification.wechat.WeChatNotifier;
 import com.wl4g.devops.umc.rule.RuleConfigManager;
 import com.wl4g.devops.umc.rule.inspect.AvgRuleInspector;
 import com.wl4g.devops.umc.rule.inspect.CompositeRuleInspectorAdapter;
+import com.wl4g.devops.umc.rule.inspect.CountOverRuleInspector;
 import com.wl4g.devops.umc.rule.inspect.LatestRuleInspector;
 import com.wl4g.devops.umc.rule.inspect.MaxRuleInspector;
 import com.wl4g.devops.umc.rule.inspect.MinRuleInspector;
+import com.wl4g.devops.umc.rule.inspect.PercentileRuleInspector;
+import com.wl4g.devops.umc.rule.inspect.RateRuleInspector;
 import com.wl4g.devops.umc.rule.inspect.RuleInspector;
+import com.wl4g.devops.umc.rule.inspect.StddevRuleInspector;
 import com.wl4g.devops.umc.rule.inspect.SumRuleInspector;
 
 /**
@@ -68,17 +75,29 @@ public class UmcAlarmAutoConfiguration {
 	}
 
 	@Bean(BEAN_DEFAULT_VALVE_ALERTER)
-	public IndicatorsValveAlerter defaultIndicatorsValveAlerter(JedisService jedisService, SimpleRedisLockManager lockManager,
+	public IndicatorsValveAlerter defaultIndicatorsValveAlerter(JedisService jedisService, TimeWindowStore windowStore,
 			AlarmProperties config, AlarmConfigurer configurer, RuleConfigManager ruleManager,
 			CompositeRuleInspectorAdapter inspector, CompositeAlarmNotifierAdapter notifier) {
-		return new DefaultIndicatorsValveAlerter(jedisService, lockManager, config, configurer, ruleManager, inspector, notifier);
+		return new DefaultIndicatorsValveAlerter(jedisService, windowStore, config, configurer, ruleManager, inspector, notifier);
 	}
 
 	@Bean(BEAN_SIMULATE_VALVE_ALERTER)
-	public IndicatorsValveAlerter simulateIndicatorsValveAlerter(JedisService jedisService, SimpleRedisLockManager lockManager,
+	public IndicatorsValveAlerter simulateIndicatorsValveAlerter(JedisService jedisService, TimeWindowStore windowStore,
 			AlarmProperties config, AlarmConfigurer configurer, RuleConfigManager ruleManager,
 			CompositeRuleInspectorAdapter inspector, CompositeAlarmNotifierAdapter notifier) {
-		return new SimulateIndicatorsValveAleter(jedisService, lockManager, config, configurer, ruleManager, inspector, notifier);
+		return new SimulateIndicatorsValveAleter(jedisService, windowStore, config, configurer, ruleManager, inspector, notifier);
+	}
+
+	@Bean
+	@ConditionalOnMissingBean(TimeWindowStore.class)
+	public TimeWindowStore timeWindowStore(AlarmProperties config, JedisService jedisService) {
+		TimeWindowProperties props = config.getTimeWindow();
+		switch (props.getStore()) {
+		case MEMORY:
+			return new MemoryTimeWindowStore(props.getShards(), props.getCapacity(), props.getIdleEvictMs());
+		default:
+			return new RedisTimeWindowStore(jedisService, props.getCapacity());
+		}
 	}
 
 	@Bean
@@ -117,8 +136,8 @@ public class UmcAlarmAutoConfiguration {
 	}
 
 	@Bean
-	public CompositeAlarmNotifierAdapter compositeAlarmNotifierAdapter(List<AlarmNotifier> notifiers) {
-		return new CompositeAlarmNotifierAdapter(notifiers);
+	public CompositeAlarmNotifierAdapter compositeAlarmNotifierAdapter(List<AlarmNotifier> notifiers, AlarmProperties config) {
+		return new CompositeAlarmNotifierAdapter(notifiers, config.getNotification());
 	}
 
 	//
@@ -150,6 +169,26 @@ public class UmcAlarmAutoConfiguration {
 		return new SumRuleInspector();
 	}
 
+	@Bean
+	public StddevRuleInspector stddevRuleInspector() {
+		return new StddevRuleInspector();
+	}
+
+	@Bean
+	public RateRuleInspector rateRuleInspector() {
+		return new RateRuleInspector();
+	}
+
+	@Bean
+	public PercentileRuleInspector percentileRuleInspector() {
+		return new PercentileRuleInspector();
+	}
+
+	@Bean
+	public CountOverRuleInspector countOverRuleInspector() {
+		return new CountOverRuleInspector();
+	}
+
 	@Bean
 	public CompositeRuleInspectorAdapter compositeRuleInspectorAdapter(List<RuleInspector> inspectors) {
 		return new CompositeRuleInspectorAdapter(inspectors);
@@ -16,6 +16,7 @@
 package com.wl4g.devops.umc.handler;
 
 import com.wl4g.devops.common.bean.umc.AlarmConfig;
+import com.wl4g.devops.common.bean.umc.AlarmContact;
 import com.wl4g.devops.common.bean.umc.AlarmRule;
 import com.wl4g.devops.common.bean.umc.AlarmTemplate;
 
@@ -37,4 +38,6 @@ public interface AlarmConfigurer {
 	void saveAlarmRecord(AlarmTemplate alarmTemplate, List<AlarmConfig> alarmConfigs, String collectId, Long gatherTime,
 			List<AlarmRule> rules);
 
+	List<AlarmContact> findAlarmContacts(Integer contactGroupId);
+
 }
\ No newline at end of file
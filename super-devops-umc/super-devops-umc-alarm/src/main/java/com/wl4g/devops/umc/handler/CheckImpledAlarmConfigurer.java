@@ -16,6 +16,7 @@
 package com.wl4g.devops.umc.handler;
 
 import com.wl4g.devops.common.bean.umc.AlarmConfig;
+import com.wl4g.devops.common.bean.umc.AlarmContact;
 import com.wl4g.devops.common.bean.umc.AlarmRule;
 import com.wl4g.devops.common.bean.umc.AlarmTemplate;
 import org.springframework.beans.factory.InitializingBean;
@@ -51,4 +52,9 @@ public class CheckImpledAlarmConfigurer implements AlarmConfigurer, Initializing
 			List<AlarmRule> rules) {
 	}
 
+	@Override
+	public List<AlarmContact> findAlarmContacts(Integer contactGroupId) {
+		return null;
+	}
+
 }
\ No newline at end of file
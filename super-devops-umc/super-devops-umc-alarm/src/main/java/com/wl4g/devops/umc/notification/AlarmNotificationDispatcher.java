@@ -0,0 +1,494 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.notification;
+
+import static java.util.Arrays.asList;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import com.wl4g.devops.umc.config.AlarmProperties.NotificationProperties;
+import com.wl4g.devops.umc.notification.AlarmNotifier.SimpleAlarmMessage;
+import com.wl4g.devops.umc.notification.AlarmNotifier.TeampleAlarmMessage;
+
+/**
+ * Asynchronous alarm notification dispatcher.</br>
+ * <ul>
+ * <li>Identical alarms(of same channel, message, template and owners) in the
+ * dedup window are sent only once, the suppressed(or throttled) ones are
+ * counted and sent as a digest at the end of the window. A throttled digest
+ * is carried over to the next window.</li>
+ * <li>Notifications are limited by token buckets of per channel and per
+ * contact of channel.</li>
+ * <li>Each channel has its own bounded queue and sending threads, so a slow
+ * channel can't block the others, and the notifications are rejected when
+ * the queue is full.</li>
+ * <li>Failed notifications are retried with exponential backoff and
+ * jitter.</li>
+ * </ul>
+ * 
+ * @author wangl.sir
+ * @version v1.0 2019年9月11日
+ * @since
+ */
+public class AlarmNotificationDispatcher implements Closeable {
+
+	final protected Logger log = LoggerFactory.getLogger(getClass());
+
+	final protected NotificationProperties config;
+
+	/** Channel workers. */
+	final private Map<AlarmType, ChannelWorker> channels = new EnumMap<>(AlarmType.class);
+
+	/** Token buckets of contact, key is 'channel:contact'. */
+	final private ConcurrentHashMap<String, TokenBucket> contactBuckets = new ConcurrentHashMap<>();
+
+	/** Dedup windows, key is 'channel:templateId:owners:message'. */
+	final private ConcurrentHashMap<String, Digest> digests = new ConcurrentHashMap<>();
+
+	/** Scheduler of retries and digests. */
+	final private ScheduledExecutorService scheduler;
+
+	/** Statistics. */
+	final private AtomicLong sent = new AtomicLong(0);
+	final private AtomicLong deduplicated = new AtomicLong(0);
+	final private AtomicLong throttled = new AtomicLong(0);
+	final private AtomicLong rejected = new AtomicLong(0);
+	final private AtomicLong retried = new AtomicLong(0);
+	final private AtomicLong failed = new AtomicLong(0);
+	final private AtomicLong digestsCarried = new AtomicLong(0);
+
+	public AlarmNotificationDispatcher(Map<AlarmType, AlarmNotifier> notifiers, NotificationProperties config) {
+		Assert.notEmpty(notifiers, "Alarm notifiers must not be empty");
+		Assert.notNull(config, "Notification properties must not be null");
+		Assert.isTrue(config.getQueueCapacity() > 0 && config.getChannelConcurrency() > 0 && config.getMaxAttempts() > 0,
+				"Notification queueCapacity, channelConcurrency and maxAttempts must be greater than 0");
+		this.config = config;
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "alarm-notification-scheduler");
+			t.setDaemon(true);
+			return t;
+		});
+		for (Entry<AlarmType, AlarmNotifier> ent : notifiers.entrySet()) {
+			channels.put(ent.getKey(), new ChannelWorker(ent.getKey(), ent.getValue()));
+		}
+		long sweepMs = Math.max(1000L, Math.min(config.getDedupWindowMs(), 60_000L) / 4);
+		scheduler.scheduleWithFixedDelay(() -> sweep(), sweepMs, sweepMs, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Dispatch alarm message to its channels(alarm types) asynchronously.
+	 * 
+	 * @param message
+	 */
+	public void dispatch(SimpleAlarmMessage message) {
+		final long now = System.currentTimeMillis();
+		for (AlarmType type : parseAlarmTypes(message.getAlarmType())) {
+			ChannelWorker channel = channels.get(type);
+			if (channel == null) {
+				log.warn("No alarm notifier of channel: {}", type);
+				continue;
+			}
+
+			boolean[] first = { false };
+			Digest digest = digests.compute(getDigestKey(type, message), (k, d) -> {
+				if (d == null) {
+					first[0] = true;
+					return new Digest(k, channel, message, now, now);
+				}
+				if (d.isExpired(now)) {
+					first[0] = true;
+					// Expired but not swept yet, carry its suppressed alarms
+					// over to the new window instead of dropping them.
+					int suppressed = d.suppressed.get();
+					Digest renewed = new Digest(k, channel, message, now, suppressed > 0 ? d.since : now);
+					renewed.suppressed.set(suppressed);
+					return renewed;
+				}
+				d.suppressed.incrementAndGet();
+				return d;
+			});
+			if (!first[0]) {
+				deduplicated.incrementAndGet();
+			} else if (!deliver(channel, message, now)) {
+				// Throttled, it's reported in digest.
+				addSuppressed(digest, 1, now);
+			}
+		}
+	}
+
+	@Override
+	public void close() {
+		scheduler.shutdownNow();
+		for (ChannelWorker channel : channels.values()) {
+			channel.close();
+		}
+		if (log.isInfoEnabled()) {
+			log.info("Closed alarm notification dispatcher: {}", this);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "AlarmNotificationDispatcher [channels=" + channels.keySet() + ", sent=" + sent + ", deduplicated="
+				+ deduplicated + ", throttled=" + throttled + ", rejected=" + rejected + ", retried=" + retried + ", failed="
+				+ failed + ", digestsCarried=" + digestsCarried + "]";
+	}
+
+	public long getSent() {
+		return sent.get();
+	}
+
+	public long getDeduplicated() {
+		return deduplicated.get();
+	}
+
+	public long getThrottled() {
+		return throttled.get();
+	}
+
+	public long getRejected() {
+		return rejected.get();
+	}
+
+	public long getRetried() {
+		return retried.get();
+	}
+
+	public long getFailed() {
+		return failed.get();
+	}
+
+	public long getDigestsCarried() {
+		return digestsCarried.get();
+	}
+
+	/**
+	 * Limit and enqueue message into channel. The contacts are checked before
+	 * the channel token is consumed, and the acquired tokens are given back
+	 * if the message isn't enqueued, so an undelivered message never uses up
+	 * the channel(or contact) rate.
+	 * 
+	 * @param channel
+	 * @param message
+	 * @param now
+	 * @return false if throttled or rejected.
+	 */
+	private boolean deliver(ChannelWorker channel, SimpleAlarmMessage message, long now) {
+		String[] owners = message.getOwners() == null ? new String[0] : message.getOwners();
+		List<String> permitted = new ArrayList<>(owners.length);
+		List<TokenBucket> acquired = new ArrayList<>(owners.length + 1);
+		for (String owner : owners) {
+			TokenBucket bucket = contactBuckets.computeIfAbsent(channel.type + ":" + owner,
+					k -> new TokenBucket(config.getContactBurst(), config.getContactPermitsPerMinute() / 60_000d, now));
+			if (bucket.tryAcquire(now)) {
+				permitted.add(owner);
+				acquired.add(bucket);
+			}
+		}
+		if (permitted.isEmpty() && owners.length > 0) {
+			throttled.incrementAndGet();
+			return false;
+		}
+		if (!channel.bucket.tryAcquire(now)) {
+			throttled.incrementAndGet();
+			acquired.forEach(b -> b.release());
+			return false;
+		}
+		acquired.add(channel.bucket);
+		if (permitted.size() < owners.length) {
+			throttled.incrementAndGet();
+			message = message.copy(message.getMessage(), permitted.toArray(new String[permitted.size()]));
+		}
+		if (!channel.queue.offer(new Delivery(message, 1))) {
+			rejected.incrementAndGet();
+			acquired.forEach(b -> b.release());
+			log.warn("Rejected alarm notification of channel: {}, queue is full", channel.type);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Close expired dedup windows(and send digest of suppressed), evict idle
+	 * contact buckets. The digest throttled(or rejected) is carried over to
+	 * the next window, so the suppressed alarms are never lost silently.
+	 * </br>
+	 * Note: The suppressed count is only changed in the remapping of the
+	 * digest key, so it's read after the digest removed atomically, the
+	 * increments of concurrent dispatching go to the next window.
+	 */
+	synchronized void sweep() {
+		try {
+			long now = System.currentTimeMillis();
+			for (String key : digests.keySet()) {
+				Digest[] expired = { null };
+				digests.computeIfPresent(key, (k, d) -> {
+					if (d.isExpired(now)) {
+						expired[0] = d;
+						return null;
+					}
+					return d;
+				});
+				Digest digest = expired[0];
+				if (digest != null) {
+					int suppressed = digest.suppressed.get();
+					if (suppressed > 0) {
+						SimpleAlarmMessage message = digest.message;
+						String text = String.format("[%s identical alarms in the last %ss] %s", suppressed,
+								(now - digest.since) / 1000, message.getMessage());
+						if (!deliver(digest.channel, message.copy(text, message.getOwners()), now)) {
+							carryOver(digest, suppressed, now);
+						}
+					}
+				}
+			}
+			contactBuckets.values().removeIf(b -> b.isFull(now));
+		} catch (Throwable e) {
+			log.error("Failed to sweep alarm notification digests", e);
+		}
+	}
+
+	/**
+	 * Carry the suppressed alarms of the undelivered digest over to the
+	 * current window of the same alarms.
+	 * 
+	 * @param digest
+	 * @param suppressed
+	 * @param now
+	 */
+	private void carryOver(Digest digest, int suppressed, long now) {
+		digestsCarried.incrementAndGet();
+		log.warn("Throttled alarm notification digest of channel: {}, carry over {} suppressed alarms", digest.channel.type,
+				suppressed);
+		addSuppressed(digest, suppressed, now);
+	}
+
+	/**
+	 * Add suppressed alarms to the current window of the digest key, the
+	 * window is opened if the digest has been swept.
+	 * 
+	 * @param digest
+	 * @param count
+	 * @param now
+	 */
+	private void addSuppressed(Digest digest, int count, long now) {
+		digests.compute(digest.key, (k, d) -> {
+			if (d == null) {
+				d = new Digest(k, digest.channel, digest.message, now, digest.since);
+			} else if (d.since > digest.since) {
+				Digest earlier = new Digest(k, d.channel, d.message, d.startTime, digest.since);
+				earlier.suppressed.set(d.suppressed.get());
+				d = earlier;
+			}
+			d.suppressed.addAndGet(count);
+			return d;
+		});
+	}
+
+	/**
+	 * Digest key of alarm, the owners are sorted, so the same alarms of
+	 * different contact groups aren't deduplicated with each other.
+	 * 
+	 * @param type
+	 * @param message
+	 * @return
+	 */
+	private String getDigestKey(AlarmType type, SimpleAlarmMessage message) {
+		String templateId = message instanceof TeampleAlarmMessage ? ((TeampleAlarmMessage) message).getTemplateId() : "";
+		String[] owners = message.getOwners() == null ? new String[0] : message.getOwners().clone();
+		Arrays.sort(owners);
+		return type + ":" + templateId + ":" + String.join(",", owners) + ":" + message.getMessage();
+	}
+
+	/**
+	 * Parse alarm types, e.g. '1,2' or 'EMAIL,SMS'.
+	 * 
+	 * @param alarmType
+	 * @return
+	 */
+	static List<AlarmType> parseAlarmTypes(String alarmType) {
+		if (alarmType == null) {
+			return Collections.emptyList();
+		}
+		List<AlarmType> types = new ArrayList<>(4);
+		for (String part : asList(alarmType.split(","))) {
+			AlarmType type = AlarmType.safeOf(part.trim());
+			if (type != null && !types.contains(type)) {
+				types.add(type);
+			}
+		}
+		return types;
+	}
+
+	/**
+	 * Sending worker of a channel.
+	 */
+	private class ChannelWorker {
+
+		final private AlarmType type;
+
+		final private AlarmNotifier notifier;
+
+		final private TokenBucket bucket;
+
+		final private BlockingQueue<Delivery> queue;
+
+		final private List<Thread> threads;
+
+		private volatile boolean running = true;
+
+		private ChannelWorker(AlarmType type, AlarmNotifier notifier) {
+			this.type = type;
+			this.notifier = notifier;
+			this.bucket = new TokenBucket(config.getChannelBurst(), config.getChannelPermitsPerSecond() / 1000d,
+					System.currentTimeMillis());
+			this.queue = new ArrayBlockingQueue<>(config.getQueueCapacity());
+			this.threads = new ArrayList<>(config.getChannelConcurrency());
+			for (int i = 0; i < config.getChannelConcurrency(); i++) {
+				Thread t = new Thread(() -> run(), "alarm-notifier-" + type.name().toLowerCase() + "-" + i);
+				t.setDaemon(true);
+				t.start();
+				threads.add(t);
+			}
+		}
+
+		private void run() {
+			while (running) {
+				Delivery delivery;
+				try {
+					delivery = queue.take();
+				} catch (InterruptedException e) {
+					break;
+				}
+				try {
+					if (delivery.message instanceof TeampleAlarmMessage) {
+						notifier.templateNotify((TeampleAlarmMessage) delivery.message);
+					} else {
+						notifier.simpleNotify(delivery.message);
+					}
+					sent.incrementAndGet();
+				} catch (Throwable e) {
+					retry(delivery, e);
+				}
+			}
+		}
+
+		private void retry(Delivery delivery, Throwable cause) {
+			if (delivery.attempts >= config.getMaxAttempts()) {
+				failed.incrementAndGet();
+				log.error(String.format("Failed to notify alarm of channel: %s after %s attempts, %s", type, delivery.attempts,
+						delivery.message), cause);
+				return;
+			}
+			// Exponential backoff with jitter of [0.5, 1.5).
+			long backoffMs = config.getRetryBackoffMs() << Math.min(delivery.attempts - 1, 16);
+			backoffMs = (long) (backoffMs * (0.5d + ThreadLocalRandom.current().nextDouble()));
+			log.warn("Failed to notify alarm of channel: {}, retry after {}ms. {}", type, backoffMs, cause.getMessage());
+			retried.incrementAndGet();
+			Delivery next = new Delivery(delivery.message, delivery.attempts + 1);
+			try {
+				scheduler.schedule(() -> {
+					if (!queue.offer(next)) {
+						rejected.incrementAndGet();
+					}
+				}, backoffMs, TimeUnit.MILLISECONDS);
+			} catch (Exception e) { // Closed
+				failed.incrementAndGet();
+			}
+		}
+
+		private void close() {
+			running = false;
+			threads.forEach(t -> t.interrupt());
+			if (!queue.isEmpty()) {
+				log.warn("Discarded {} pending alarm notifications of channel: {}", queue.size(), type);
+				queue.clear();
+			}
+		}
+
+	}
+
+	/**
+	 * Pending notification.
+	 */
+	private static class Delivery {
+
+		final private SimpleAlarmMessage message;
+
+		/** Number of this attempt, starts with 1. */
+		final private int attempts;
+
+		private Delivery(SimpleAlarmMessage message, int attempts) {
+			this.message = message;
+			this.attempts = attempts;
+		}
+
+	}
+
+	/**
+	 * Dedup window of identical alarms.
+	 */
+	private class Digest {
+
+		final private String key;
+
+		final private ChannelWorker channel;
+
+		final private SimpleAlarmMessage message;
+
+		final private long startTime;
+
+		/** Start time of the suppressed alarms, including the carried over. */
+		final private long since;
+
+		/** Suppressed(deduplicated or throttled) alarms. */
+		final private AtomicInteger suppressed = new AtomicInteger(0);
+
+		private Digest(String key, ChannelWorker channel, SimpleAlarmMessage message, long startTime, long since) {
+			this.key = key;
+			this.channel = channel;
+			this.message = message;
+			this.startTime = startTime;
+			this.since = since;
+		}
+
+		private boolean isExpired(long now) {
+			return now - startTime >= config.getDedupWindowMs();
+		}
+
+	}
+
+}
@@ -65,6 +65,10 @@ public interface AlarmNotifier {
 			this.owners = owners;
 		}
 
+		public String[] getOwners() {
+			return owners;
+		}
+
 		public String getMessage() {
 			return message;
 		}
@@ -73,6 +77,17 @@ public interface AlarmNotifier {
 			return alarmType;
 		}
 
+		/**
+		 * Copy with the message and owners.
+		 * 
+		 * @param message
+		 * @param owners
+		 * @return
+		 */
+		public SimpleAlarmMessage copy(String message, String... owners) {
+			return new SimpleAlarmMessage(message, getAlarmType(), owners);
+		}
+
 		@Override
 		public String toString() {
 			return "AlarmMessage [owners=" + Arrays.toString(owners) + ", message=" + message + ", alarmType=" + alarmType + "]";
@@ -108,6 +123,11 @@ public interface AlarmNotifier {
 			return parameters;
 		}
 
+		@Override
+		public TeampleAlarmMessage copy(String message, String... owners) {
+			return new TeampleAlarmMessage(message, getAlarmType(), getTemplateId(), getParameters(), owners);
+		}
+
 		@Override
 		public String toString() {
 			return "TeampleAlarmMessage [templateId=" + templateId + ", parameters=" + parameters + "]";
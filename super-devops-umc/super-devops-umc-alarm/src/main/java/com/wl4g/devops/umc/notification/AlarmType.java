@@ -40,7 +40,7 @@ public enum AlarmType {
 
 	public static AlarmType safeOf(String type) {
 		for (AlarmType t : values()) {
-			if (StringUtils.equals(t.getValue(), t.getValue())) {
+			if (StringUtils.equals(t.getValue(), type) || t.name().equalsIgnoreCase(type)) {
 				return t;
 			}
 		}
@@ -16,46 +16,52 @@
 package com.wl4g.devops.umc.notification;
 
 import static java.util.stream.Collectors.toMap;
-import static org.apache.commons.lang3.StringUtils.isBlank;
 import static org.springframework.util.CollectionUtils.isEmpty;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.util.Assert;
 
 import com.wl4g.devops.common.utils.lang.OnceModifiableMap;
+import com.wl4g.devops.umc.config.AlarmProperties.NotificationProperties;
 
 /**
- * Alarm notifier adapter.
+ * Alarm notifier adapter, notifications are dispatched asynchronously(with
+ * dedup and throttling) by {@link AlarmNotificationDispatcher}.
  * 
  * @author Wangl.sir
  * @version v1.0 2019年7月24日
  * @since
  */
-public class CompositeAlarmNotifierAdapter extends AbstractAlarmNotifier {
+public class CompositeAlarmNotifierAdapter extends AbstractAlarmNotifier implements DisposableBean {
 
 	/**
 	 * Alarm notifiers.
 	 */
 	final protected Map<AlarmType, AlarmNotifier> alarmNotifiers = new OnceModifiableMap<>(new HashMap<>());
 
-	public CompositeAlarmNotifierAdapter(List<AlarmNotifier> notifiers) {
+	/**
+	 * Alarm notification dispatcher.
+	 */
+	final protected AlarmNotificationDispatcher dispatcher;
+
+	public CompositeAlarmNotifierAdapter(List<AlarmNotifier> notifiers, NotificationProperties config) {
 		Assert.state(!isEmpty(notifiers), "Alarm Notifier has at least one.");
 		this.alarmNotifiers.putAll(notifiers.stream().collect(toMap(AlarmNotifier::alarmType, notifier -> notifier)));
+		this.dispatcher = new AlarmNotificationDispatcher(alarmNotifiers, config);
 	}
 
 	@Override
 	public void simpleNotify(SimpleAlarmMessage message) {
-		determineAlarmNotifiers(message.getAlarmType()).forEach(notifier -> notifier.simpleNotify(message));
+		dispatcher.dispatch(message);
 	}
 
 	@Override
 	public void templateNotify(TeampleAlarmMessage message) {
-		determineAlarmNotifiers(message.getAlarmType()).forEach(notifier -> notifier.templateNotify(message));
+		dispatcher.dispatch(message);
 	}
 
 	@Override
@@ -63,29 +69,13 @@ public class CompositeAlarmNotifierAdapter extends AbstractAlarmNotifier {
 		throw new UnsupportedOperationException();
 	}
 
-	/**
-	 * Determine alarm notifiers.
-	 * 
-	 * @param alarmType
-	 * @return
-	 */
-	protected List<AlarmNotifier> determineAlarmNotifiers(String alarmType) {
-		if (isBlank(alarmType)) {
-			log.warn("Unsupported this alarm type: {}", alarmType);
-			return Collections.emptyList();
-		}
+	@Override
+	public void destroy() throws Exception {
+		dispatcher.close();
+	}
 
-		List<AlarmNotifier> notifiers = new ArrayList<>(4);
-		for (String part : alarmType.split(",")) {
-			AlarmType type = AlarmType.safeOf(part);
-			if (null != type) {
-				AlarmNotifier notifier = alarmNotifiers.get(type);
-				if (notifier != null) {
-					notifiers.add(notifier);
-				}
-			}
-		}
-		return notifiers;
+	public AlarmNotificationDispatcher getDispatcher() {
+		return dispatcher;
 	}
 
 }
\ No newline at end of file
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.notification;
+
+/**
+ * Token bucket rate limiter, the tokens are refilled lazily on acquiring.
+ * 
+ * @author wangl.sir
+ * @version v1.0 2019年9月11日
+ * @since
+ */
+final class TokenBucket {
+
+	/** Maximum tokens(burst). */
+	final private double capacity;
+
+	/** Refilled tokens per millisecond. */
+	final private double refillPerMs;
+
+	private double tokens;
+
+	private long lastRefillTime;
+
+	TokenBucket(double capacity, double refillPerMs, long now) {
+		this.capacity = capacity;
+		this.refillPerMs = refillPerMs;
+		this.tokens = capacity;
+		this.lastRefillTime = now;
+	}
+
+	/**
+	 * Try acquire a token.
+	 * 
+	 * @param now
+	 * @return
+	 */
+	synchronized boolean tryAcquire(long now) {
+		if (now > lastRefillTime) {
+			tokens = Math.min(capacity, tokens + (now - lastRefillTime) * refillPerMs);
+			lastRefillTime = now;
+		}
+		if (tokens >= 1d) {
+			tokens -= 1d;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Give back an acquired token, which isn't used.
+	 */
+	synchronized void release() {
+		tokens = Math.min(capacity, tokens + 1d);
+	}
+
+	/**
+	 * Whether the bucket would be full at the time, that is, it can be
+	 * discarded and recreated without changing the limiting.
+	 * 
+	 * @param now
+	 * @return
+	 */
+	synchronized boolean isFull(long now) {
+		return tokens + (now - lastRefillTime) * refillPerMs >= capacity;
+	}
+
+}
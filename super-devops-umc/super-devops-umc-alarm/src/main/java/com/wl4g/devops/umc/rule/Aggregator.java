@@ -16,6 +16,10 @@
 package com.wl4g.devops.umc.rule;
 
 import static org.apache.commons.lang3.StringUtils.equalsIgnoreCase;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+import static org.apache.commons.lang3.StringUtils.substringAfter;
+import static org.apache.commons.lang3.StringUtils.substringBefore;
+import static org.apache.commons.lang3.StringUtils.trimToEmpty;
 
 /**
  * Aggregate type definition.
@@ -26,7 +30,22 @@ import static org.apache.commons.lang3.StringUtils.equalsIgnoreCase;
  */
 public enum Aggregator {
 
-	AVG("avg"), LATEST("latest"), MAX("max"), MIN("min"), SUM("sum");
+	AVG("avg"), LATEST("latest"), MAX("max"), MIN("min"), SUM("sum"),
+
+	/** Standard deviation. */
+	STDDEV("stddev"),
+
+	/** Rate of change per second, between the first and last values. */
+	RATE("rate"),
+
+	/** Percentile, e.g: 'pct:99', 95th percentile by default. */
+	PERCENTILE("pct"),
+
+	/** Number of values greater than threshold, e.g: 'countover:80'. */
+	COUNT_OVER("countover");
+
+	/** Separator of the aggregator argument. */
+	final public static String ARG_SEPARATOR = ":";
 
 	private String value;
 
@@ -45,12 +64,32 @@ public enum Aggregator {
 	 * @return
 	 */
 	public static Aggregator safeOf(String aggregateString) {
+		String name = substringBefore(trimToEmpty(aggregateString), ARG_SEPARATOR);
 		for (Aggregator t : values()) {
-			if (equalsIgnoreCase(aggregateString, t.getValue())) {
+			if (equalsIgnoreCase(name, t.getValue())) {
 				return t;
 			}
 		}
 		return null;
 	}
 
+	/**
+	 * Parse aggregate argument of operator string, e.g: 'pct:99' => 99
+	 * 
+	 * @param aggregateString
+	 * @param defaultValue
+	 * @return
+	 */
+	public static double parseArgument(String aggregateString, double defaultValue) {
+		String arg = substringAfter(trimToEmpty(aggregateString), ARG_SEPARATOR);
+		if (isBlank(arg)) {
+			return defaultValue;
+		}
+		try {
+			return Double.parseDouble(arg.trim());
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+
 }
\ No newline at end of file
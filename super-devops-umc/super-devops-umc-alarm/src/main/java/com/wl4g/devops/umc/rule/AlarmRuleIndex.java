@@ -0,0 +1,288 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.rule;
+
+import static com.wl4g.devops.common.utils.lang.Collections2.safeList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.unmodifiableList;
+import static java.util.Collections.unmodifiableMap;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+import static org.apache.commons.lang3.StringUtils.trimToEmpty;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.springframework.util.Assert;
+import org.springframework.util.CollectionUtils;
+
+import com.wl4g.devops.common.bean.umc.AlarmRule;
+import com.wl4g.devops.common.bean.umc.AlarmTemplate;
+
+/**
+ * Compiled immutable alarm rule index of a collector.</br>
+ * Templates are indexed by metric name and then by tag name and value
+ * (inverted tag index), so matching a metric costs one hash lookup for the
+ * metric name plus one per metric tag, regardless of the number of templates.
+ * The rules(including their aggregators and arguments) and the maximum time
+ * window of each template are resolved at compile time.
+ *
+ * @author Wangl.sir
+ * @version v1.0 2019年9月4日
+ * @since
+ */
+public final class AlarmRuleIndex {
+
+	/** Empty index. */
+	final public static AlarmRuleIndex EMPTY = new AlarmRuleIndex(0, emptyMap(), 0);
+
+	/** Fingerprint of the source templates, for change detection. */
+	final private int fingerprint;
+
+	/** Metric name to tag index. */
+	final private Map<String, Map<String, Map<String, List<CompiledTemplate>>>> metricIndex;
+
+	/** Number of compiled templates. */
+	final private int size;
+
+	private AlarmRuleIndex(int fingerprint, Map<String, Map<String, Map<String, List<CompiledTemplate>>>> metricIndex,
+			int size) {
+		this.fingerprint = fingerprint;
+		this.metricIndex = metricIndex;
+		this.size = size;
+	}
+
+	/**
+	 * Compile alarm templates to index.
+	 *
+	 * @param templates
+	 * @param fingerprint
+	 * @return
+	 */
+	public static AlarmRuleIndex compile(List<AlarmTemplate> templates, int fingerprint) {
+		Map<String, Map<String, Map<String, List<CompiledTemplate>>>> metricIndex = new HashMap<>();
+		int size = 0;
+		for (AlarmTemplate tpl : safeList(templates)) {
+			Map<String, String> tags = tpl.getTagsMap();
+			// Templates without tags never match.(see: #matchTag)
+			if (isBlank(tpl.getMetric()) || CollectionUtils.isEmpty(tags)) {
+				continue;
+			}
+			CompiledTemplate ctpl = new CompiledTemplate(tpl, tags);
+			Map<String, Map<String, List<CompiledTemplate>>> tagIndex = metricIndex.computeIfAbsent(tpl.getMetric(),
+					k -> new HashMap<>());
+			for (Entry<String, String> tag : tags.entrySet()) {
+				tagIndex.computeIfAbsent(tag.getKey(), k -> new HashMap<>())
+						.computeIfAbsent(trimToEmpty(tag.getValue()), k -> new ArrayList<>(2)).add(ctpl);
+			}
+			++size;
+		}
+		return new AlarmRuleIndex(fingerprint, unmodifiableMap(metricIndex), size);
+	}
+
+	/**
+	 * Matching templates of metric, a template matches when at least one of
+	 * its tags equals to the metric tag.
+	 *
+	 * @param metric
+	 *            metric name
+	 * @param metricTags
+	 *            metric tags
+	 * @return Matched templates and their matched tags, in order of metric
+	 *         tags.
+	 */
+	public Map<CompiledTemplate, Map<String, String>> match(String metric, Map<String, String> metricTags) {
+		Map<String, Map<String, List<CompiledTemplate>>> tagIndex = metricIndex.get(metric);
+		if (tagIndex == null || CollectionUtils.isEmpty(metricTags)) {
+			return emptyMap();
+		}
+		Map<CompiledTemplate, Map<String, String>> matched = null;
+		for (Entry<String, String> tag : metricTags.entrySet()) {
+			Map<String, List<CompiledTemplate>> valueIndex = tagIndex.get(tag.getKey());
+			if (valueIndex == null || tag.getValue() == null) {
+				continue;
+			}
+			List<CompiledTemplate> ctpls = valueIndex.get(tag.getValue());
+			if (ctpls == null) {
+				continue;
+			}
+			if (matched == null) {
+				matched = new LinkedHashMap<>(4);
+			}
+			for (CompiledTemplate ctpl : ctpls) {
+				matched.computeIfAbsent(ctpl, k -> new HashMap<>(4)).put(tag.getKey(), ctpl.getTags().get(tag.getKey()));
+			}
+		}
+		return matched == null ? emptyMap() : matched;
+	}
+
+	public int getFingerprint() {
+		return fingerprint;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public String toString() {
+		return "AlarmRuleIndex [fingerprint=" + fingerprint + ", metrics=" + metricIndex.keySet() + ", size=" + size + "]";
+	}
+
+	/**
+	 * Compiled alarm template.
+	 *
+	 * @author Wangl.sir
+	 * @version v1.0 2019年9月4日
+	 * @since
+	 */
+	public static final class CompiledTemplate {
+
+		/** Source alarm template. */
+		final private AlarmTemplate template;
+
+		/** Resolved template tags. */
+		final private Map<String, String> tags;
+
+		/** Resolved template rules. */
+		final private List<AlarmRule> rules;
+
+		/** Compiled template rules, in the order of rules. */
+		final private List<CompiledRule> compiledRules;
+
+		/** Maximum metric keep time window of rules. */
+		final private long maxWindowTime;
+
+		CompiledTemplate(AlarmTemplate template, Map<String, String> tags) {
+			Assert.notNull(template, "Alarm template must not be null");
+			this.template = template;
+			this.tags = unmodifiableMap(tags);
+			this.rules = CollectionUtils.isEmpty(template.getRules()) ? emptyList() : unmodifiableList(new ArrayList<>(template.getRules()));
+			List<CompiledRule> compiledRules = new ArrayList<>(this.rules.size());
+			for (AlarmRule rule : this.rules) {
+				compiledRules.add(new CompiledRule(rule));
+			}
+			this.compiledRules = unmodifiableList(compiledRules);
+			this.maxWindowTime = extractMaxRuleWindowTime(this.rules);
+		}
+
+		public AlarmTemplate getTemplate() {
+			return template;
+		}
+
+		public Map<String, String> getTags() {
+			return tags;
+		}
+
+		public List<AlarmRule> getRules() {
+			return rules;
+		}
+
+		public List<CompiledRule> getCompiledRules() {
+			return compiledRules;
+		}
+
+		public long getMaxWindowTime() {
+			return maxWindowTime;
+		}
+
+		/**
+		 * Extract largest metric keep time window of rules.
+		 *
+		 * @param rules
+		 * @return
+		 */
+		private static long extractMaxRuleWindowTime(List<AlarmRule> rules) {
+			long largestTimeWindow = 0;
+			for (AlarmRule alarmRule : rules) {
+				Long timeWindow = alarmRule.getQueueTimeWindow();
+				if (timeWindow != null && timeWindow > largestTimeWindow) {
+					largestTimeWindow = timeWindow;
+				}
+			}
+			return largestTimeWindow;
+		}
+
+	}
+
+	/**
+	 * Compiled alarm rule, the aggregator expression(e.g: 'pct:99') is parsed
+	 * once at compile time instead of on every inspection.
+	 *
+	 * @author Wangl.sir
+	 * @version v1.0 2019年9月4日
+	 * @since
+	 */
+	public static final class CompiledRule {
+
+		/** Source alarm rule. */
+		final private AlarmRule rule;
+
+		/** Resolved aggregator, null if unsupported. */
+		final private Aggregator aggregator;
+
+		/** Aggregator argument, NaN if absent. */
+		final private double argument;
+
+		/** Valid duration of metric values. */
+		final private long durationMs;
+
+		CompiledRule(AlarmRule rule) {
+			Assert.notNull(rule, "Alarm rule must not be null");
+			Aggregator aggregator = null;
+			double argument = Double.NaN;
+			// First supported of the aggregators, e.g: 'pct:99,avg'
+			String[] aggregators = isBlank(rule.getAggregator()) ? new String[0] : rule.getAggregator().split(",");
+			for (String aggre : aggregators) {
+				aggregator = Aggregator.safeOf(aggre);
+				if (aggregator != null) {
+					argument = Aggregator.parseArgument(aggre, Double.NaN);
+					break;
+				}
+			}
+			this.rule = rule;
+			this.aggregator = aggregator;
+			this.argument = argument;
+			this.durationMs = rule.getQueueTimeWindow() != null ? rule.getQueueTimeWindow() : 0L;
+		}
+
+		public AlarmRule getRule() {
+			return rule;
+		}
+
+		public Aggregator getAggregator() {
+			return aggregator;
+		}
+
+		public double getArgument() {
+			return argument;
+		}
+
+		public long getDurationMs() {
+			return durationMs;
+		}
+
+	}
+
+}
\ No newline at end of file
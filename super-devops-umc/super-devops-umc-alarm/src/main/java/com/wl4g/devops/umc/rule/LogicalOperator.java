@@ -26,6 +26,9 @@ public enum LogicalOperator {
 
 	AND(1), OR(2);
 
+	/** Cached values, {@link #values()} clones the array on every call. */
+	final private static LogicalOperator[] VALUES = values();
+
 	private int value;
 
 	public int getValue() {
@@ -43,7 +46,7 @@ public enum LogicalOperator {
 	 * @return
 	 */
 	public static LogicalOperator of(int operator) {
-		for (LogicalOperator t : values()) {
+		for (LogicalOperator t : VALUES) {
 			if (operator == t.getValue()) {
 				return t;
 			}
@@ -26,6 +26,9 @@ public enum RelationOperator {
 
 	EQ(1), GT(2), GTE(3), LT(4), LTE(5);
 
+	/** Cached values, {@link #values()} clones the array on every call. */
+	final private static RelationOperator[] VALUES = values();
+
 	private int value;
 
 	public int getValue() {
@@ -44,7 +47,7 @@ public enum RelationOperator {
 	 * @return
 	 */
 	public boolean operate(double value1, double value2) {
-		switch (of(getValue())) {
+		switch (this) {
 		case EQ:
 			return value1 == value2;
 		case GT:
@@ -67,7 +70,7 @@ public enum RelationOperator {
 	 * @return
 	 */
 	public static RelationOperator of(int operator) {
-		for (RelationOperator t : values()) {
+		for (RelationOperator t : VALUES) {
 			if (operator == t.getValue()) {
 				return t;
 			}
@@ -18,30 +18,69 @@ package com.wl4g.devops.umc.rule;
 import com.wl4g.devops.common.bean.umc.AlarmTemplate;
 import com.wl4g.devops.support.cache.JedisService;
 import com.wl4g.devops.support.cache.ScanCursor;
+import com.wl4g.devops.umc.config.AlarmProperties;
+import com.wl4g.devops.umc.config.AlarmProperties.RuleCacheProperties;
 import com.wl4g.devops.umc.handler.AlarmConfigurer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
 import org.springframework.util.Assert;
 
+import redis.clients.jedis.JedisPubSub;
+
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.wl4g.devops.common.constants.UMCDevOpsConstants.*;
 import static com.wl4g.devops.common.utils.lang.Collections2.safeList;
+import static com.wl4g.devops.common.utils.serialize.JacksonUtils.parseJSON;
+import static com.wl4g.devops.common.utils.serialize.JacksonUtils.toJSONString;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
 import static org.springframework.util.CollectionUtils.isEmpty;
 
 /**
- * Rule configuration manager.
- * 
+ * Rule configuration manager.</br>
+ * Compiled alarm rules are cached locally(L1) by collectId in front of the
+ * redis(L2) templates cache, so the alarm evaluations never deserialize
+ * templates unless they're changed. Concurrent misses of the same collector
+ * are coalesced into a single load. Local caches of all nodes are
+ * invalidated by redis pub/sub message, and the global version key is
+ * checked periodically in case the messages are missed.
  * 
  * @author Wangl.sir
  * @author vjay
  * @date 2019-07-04 15:47:00
  */
-public class RuleConfigManager implements ApplicationRunner {
+public class RuleConfigManager implements ApplicationRunner, DisposableBean {
+
+	/** Invalidation message of all collectors. */
+	final public static String INVALIDATE_ALL = "*";
+
+	/**
+	 * KEYS: templates list</br>
+	 * ARGV: templates</br>
+	 * Replaces the list atomically(pushed in chunks within the LUA stack
+	 * limit), so the concurrent misses never duplicate the templates.
+	 */
+	final private static String SCRIPT_REPLACE_LIST = "redis.call('del', KEYS[1]) "
+			+ "for i = 1, #ARGV, 1000 do redis.call('rpush', KEYS[1], unpack(ARGV, i, math.min(i + 999, #ARGV))) end "
+			+ "return #ARGV";
 
 	final protected Logger log = LoggerFactory.getLogger(getClass());
 
@@ -51,8 +90,75 @@ public class RuleConfigManager implements ApplicationRunner {
 	@Autowired
 	private AlarmConfigurer ruleConfigurer;
 
+	@Autowired
+	private AlarmProperties config;
+
+	/**
+	 * Local cached compiled alarm rule indexes of collectors.
+	 */
+	final private ConcurrentHashMap<String, CachedRuleIndex> ruleIndexes = new ConcurrentHashMap<>();
+
+	/**
+	 * Loading rule indexes of collectors, for coalescing concurrent loads.
+	 */
+	final private ConcurrentHashMap<String, CompletableFuture<AlarmRuleIndex>> loadings = new ConcurrentHashMap<>();
+
+	/**
+	 * Local invalidation generation, the indexes loaded across an
+	 * invalidation are not cached.
+	 */
+	final private AtomicLong generation = new AtomicLong(0);
+
+	/** Last seen global rules version. */
+	private volatile String version;
+
+	private volatile boolean running;
+
+	private ScheduledExecutorService versionChecker;
+
+	private Thread subscriber;
+
+	final private JedisPubSub invalidationListener = new JedisPubSub() {
+		@Override
+		public void onMessage(String channel, String message) {
+			if (log.isDebugEnabled()) {
+				log.debug("Received alarm rules invalidation: {}", message);
+			}
+			invalidateLocal(message);
+		}
+	};
+
 	@Override
 	public void run(ApplicationArguments args) {
+		RuleCacheProperties props = config.getRuleCache();
+		running = true;
+		version = jedisService.get(KEY_CACHE_ALARM_TPLS_VERSION);
+
+		versionChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "alarm-rules-version-checker");
+			t.setDaemon(true);
+			return t;
+		});
+		versionChecker.scheduleWithFixedDelay(() -> checkVersion(), props.getVersionCheckMs(), props.getVersionCheckMs(),
+				TimeUnit.MILLISECONDS);
+
+		subscriber = new Thread(() -> subscribeInvalidation(), "alarm-rules-invalidation-subscriber");
+		subscriber.setDaemon(true);
+		subscriber.start();
+	}
+
+	@Override
+	public void destroy() throws Exception {
+		running = false;
+		if (invalidationListener.isSubscribed()) {
+			invalidationListener.unsubscribe();
+		}
+		if (versionChecker != null) {
+			versionChecker.shutdownNow();
+		}
+		if (subscriber != null) {
+			subscriber.interrupt();
+		}
 	}
 
 	/**
@@ -66,21 +172,93 @@ public class RuleConfigManager implements ApplicationRunner {
 		}
 		String pattern = KEY_CACHE_ALARM_TPLS + "*";
 		ScanCursor<?> cursor = jedisService.scan(pattern, clearBatch, null);
-		int count = 0;
-		for (String key : cursor.keysAsString()) {
+		long count = 0;
+		try {
+			while (cursor.hasNext()) {
+				count += jedisService.mdel(cursor.readKeys().stream().map(k -> new String(k, UTF_8)).collect(toList()));
+			}
+		} catch (Exception e) {
+			log.error("Failed to cleaning alarm tpls", e);
+		} finally {
 			try {
-				jedisService.del(key);
-				++count;
-			} catch (Exception e) {
-				log.error(String.format("Failed to cleaning alarm tpls of '%s'", key), e);
+				cursor.close();
+			} catch (IOException e) {
+				log.warn("Failed to close scan cursor", e);
 			}
 		}
 
+		publishInvalidation(INVALIDATE_ALL);
+
 		if (log.isInfoEnabled()) {
 			log.info("Cleaned alarm templates: {}", count);
 		}
 	}
 
+	/**
+	 * Invalidate the cached alarm rules of collector on all nodes, e.g. after
+	 * the templates are changed.
+	 * 
+	 * @param collectId
+	 */
+	public void invalidate(String collectId) {
+		jedisService.del(getCollectIdAlarmRulesCacheKey(collectId));
+		publishInvalidation(collectId);
+	}
+
+	/**
+	 * Load compiled alarm rule index by collectId, from local cache first,
+	 * concurrent loads of the same collector are coalesced.
+	 * 
+	 * @param collectId
+	 * @return
+	 */
+	public AlarmRuleIndex loadAlarmRuleIndex(String collectId) {
+		final long now = System.currentTimeMillis();
+		CachedRuleIndex cached = ruleIndexes.get(collectId);
+		if (cached != null && (now - cached.loadTime) < config.getRuleCache().getExpireMs()) {
+			return cached.index;
+		}
+
+		CompletableFuture<AlarmRuleIndex> loading = new CompletableFuture<>();
+		CompletableFuture<AlarmRuleIndex> existing = loadings.putIfAbsent(collectId, loading);
+		if (existing != null) { // Loading by other evaluation.
+			try {
+				return existing.join();
+			} catch (CompletionException e) {
+				if (e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				}
+				throw e;
+			}
+		}
+
+		try {
+			long gen = generation.get();
+			CachedRuleIndex loaded = null;
+			try {
+				loaded = doLoadAlarmRuleIndex(collectId, cached, now);
+			} catch (RuntimeException e) {
+				if (cached == null) {
+					throw e;
+				}
+				// Serve the expired rules when the cache is unavailable.
+				log.warn(String.format("Failed to reload alarm rules of collect: %s, use the expired", collectId), e);
+				loaded = new CachedRuleIndex(cached.index, cached.members, now);
+			}
+			if (generation.get() == gen) {
+				ruleIndexes.put(collectId, loaded);
+				evictIfNecessary();
+			}
+			loading.complete(loaded.index);
+			return loaded.index;
+		} catch (RuntimeException e) {
+			loading.completeExceptionally(e);
+			throw e;
+		} finally {
+			loadings.remove(collectId, loading);
+		}
+	}
+
 	/**
 	 * Find alarm rule template by collectId.
 	 * 
@@ -94,12 +272,153 @@ public class RuleConfigManager implements ApplicationRunner {
 		if (isEmpty(alarmTpls)) {
 			alarmTpls = ruleConfigurer.findAlarmTemplate(Integer.parseInt(collectId));
 			if (!isEmpty(alarmTpls)) {
-				jedisService.setObjectList(key, alarmTpls, 0);
+				List<String> members = alarmTpls.stream().map(tpl -> toJSONString(tpl)).collect(toList());
+				jedisService.getJedisCluster().eval(SCRIPT_REPLACE_LIST, singletonList(key), members);
 			}
 		}
 		return safeList(alarmTpls);
 	}
 
+	/**
+	 * Load and compile alarm rule index from redis cache, or from the
+	 * configurer on cache miss. When the cached templates are unchanged since
+	 * the expired index was compiled, it's reused without parsing.
+	 * 
+	 * @param collectId
+	 * @param expired
+	 *            expired local cached index, or null
+	 * @param now
+	 * @return
+	 */
+	private CachedRuleIndex doLoadAlarmRuleIndex(String collectId, CachedRuleIndex expired, long now) {
+		List<String> members = safeList(jedisService.getList(getCollectIdAlarmRulesCacheKey(collectId)));
+		List<AlarmTemplate> alarmTpls = null;
+		if (members.isEmpty()) {
+			alarmTpls = loadAlarmRuleTpls(collectId);
+			members = alarmTpls.stream().map(tpl -> toJSONString(tpl)).collect(toList());
+		} else {
+			int fingerprint = members.hashCode();
+			if (expired != null && expired.index.getFingerprint() == fingerprint && members.equals(expired.members)) {
+				if (log.isDebugEnabled()) {
+					log.debug("Alarm rules of collect: {} are unchanged, reuse {}", collectId, expired.index);
+				}
+				return new CachedRuleIndex(expired.index, expired.members, now);
+			}
+			alarmTpls = members.stream().map(m -> parseJSON(m, AlarmTemplate.class)).collect(toList());
+		}
+		if (isEmpty(alarmTpls)) {
+			// Also cached, avoid reloading.
+			return new CachedRuleIndex(AlarmRuleIndex.EMPTY, members, now);
+		}
+
+		AlarmRuleIndex index = AlarmRuleIndex.compile(alarmTpls, members.hashCode());
+		if (log.isInfoEnabled()) {
+			log.info("Compiled alarm rule index of collect: {}, {}", collectId, index);
+		}
+		return new CachedRuleIndex(index, members, now);
+	}
+
+	/**
+	 * Invalidate local cached rules.
+	 * 
+	 * @param collectId
+	 *            collectId or {@link #INVALIDATE_ALL}
+	 */
+	private void invalidateLocal(String collectId) {
+		generation.incrementAndGet();
+		if (INVALIDATE_ALL.equals(collectId)) {
+			ruleIndexes.clear();
+		} else {
+			ruleIndexes.remove(collectId);
+		}
+	}
+
+	/**
+	 * Increase the global version and broadcast invalidation.
+	 * 
+	 * @param collectId
+	 */
+	private void publishInvalidation(String collectId) {
+		invalidateLocal(collectId);
+		try {
+			Long current = jedisService.getJedisCluster().incr(KEY_CACHE_ALARM_TPLS_VERSION);
+			// Skip own version change, unless others changes are missed.
+			if (String.valueOf(current - 1).equals(version)) {
+				version = String.valueOf(current);
+			}
+			jedisService.getJedisCluster().publish(KEY_CHANNEL_ALARM_TPLS_INVALIDATE, collectId);
+		} catch (Exception e) {
+			log.error(String.format("Failed to publish alarm rules invalidation of '%s'", collectId), e);
+		}
+	}
+
+	/**
+	 * Invalidate all local cached rules when the global version has changed,
+	 * (e.g. the invalidation messages were missed while reconnecting).
+	 */
+	private void checkVersion() {
+		try {
+			String current = jedisService.get(KEY_CACHE_ALARM_TPLS_VERSION);
+			if (!Objects.equals(version, current)) {
+				if (log.isInfoEnabled()) {
+					log.info("Alarm rules version changed from {} to {}, invalidate all", version, current);
+				}
+				version = current;
+				invalidateLocal(INVALIDATE_ALL);
+			}
+		} catch (Exception e) {
+			log.warn("Failed to check alarm rules version. {}", e.getMessage());
+		}
+	}
+
+	/**
+	 * Subscribe invalidation messages(blocking), resubscribe on failure.
+	 */
+	private void subscribeInvalidation() {
+		long backoffMs = 1000L;
+		while (running && !Thread.currentThread().isInterrupted()) {
+			try {
+				jedisService.getJedisCluster().subscribe(invalidationListener, KEY_CHANNEL_ALARM_TPLS_INVALIDATE);
+			} catch (Exception e) {
+				if (!running) {
+					break;
+				}
+				log.warn("Alarm rules invalidation subscription failed, retry after {}ms. {}", backoffMs, e.getMessage());
+				try {
+					Thread.sleep(backoffMs);
+				} catch (InterruptedException e1) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+				backoffMs = Math.min(backoffMs * 2, 30_000L);
+				continue;
+			}
+			backoffMs = 1000L;
+		}
+	}
+
+	/**
+	 * Evict the earliest loaded rules when exceeding maximum size, down to
+	 * 90% of maximum size.
+	 */
+	private void evictIfNecessary() {
+		int maxSize = config.getRuleCache().getMaxSize();
+		if (ruleIndexes.size() <= maxSize) {
+			return;
+		}
+		synchronized (ruleIndexes) {
+			int overflow = ruleIndexes.size() - (maxSize - maxSize / 10);
+			if (overflow <= 0) {
+				return;
+			}
+			List<Entry<String, CachedRuleIndex>> entries = new ArrayList<>(ruleIndexes.entrySet());
+			entries.sort((e1, e2) -> Long.compare(e1.getValue().loadTime, e2.getValue().loadTime));
+			for (int i = 0; i < overflow && i < entries.size(); i++) {
+				ruleIndexes.remove(entries.get(i).getKey(), entries.get(i).getValue());
+			}
+		}
+	}
+
 	// --- Cache key ---
 
 	private static String getCollectIdAlarmRulesCacheKey(String collectId) {
@@ -107,4 +426,24 @@ public class RuleConfigManager implements ApplicationRunner {
 		return KEY_CACHE_ALARM_TPLS + collectId;
 	}
 
-}
\ No newline at end of file
+	/**
+	 * Local cached rule index.
+	 */
+	private static class CachedRuleIndex {
+
+		final private AlarmRuleIndex index;
+
+		/** Raw cached templates of the index, for change detection. */
+		final private List<String> members;
+
+		final private long loadTime;
+
+		private CachedRuleIndex(AlarmRuleIndex index, List<String> members, long loadTime) {
+			this.index = index;
+			this.members = members;
+			this.loadTime = loadTime;
+		}
+
+	}
+
+}
@@ -32,6 +32,37 @@ public abstract class AbstractRuleInspector implements RuleInspector {
 
 	final protected Logger log = LoggerFactory.getLogger(getClass());
 
+	@Override
+	public boolean verify(InspectWrapper wrap) {
+		if (wrap.getLength() == 0) {
+			return false;
+		}
+		double aggregated = aggregate(wrap);
+		return operate(LogicalOperator.of(wrap.getLogicalOperator()), RelationOperator.of(wrap.getRelateOperator()), aggregated,
+				wrap.getBaseline());
+	}
+
+	/**
+	 * Aggregate values of the window in a single pass, the window is never
+	 * empty.
+	 * 
+	 * @param wrap
+	 * @return
+	 */
+	protected abstract double aggregate(InspectWrapper wrap);
+
+	/**
+	 * Gets the(pre-parsed) argument of the aggregator of this inspector, e.g:
+	 * 'pct:99' => 99
+	 * 
+	 * @param wrap
+	 * @param defaultValue
+	 * @return
+	 */
+	protected double getArgument(InspectWrapper wrap, double defaultValue) {
+		return Double.isNaN(wrap.getArgument()) ? defaultValue : wrap.getArgument();
+	}
+
 	/**
 	 * Do operation
 	 * 
@@ -15,12 +15,7 @@
  */
 package com.wl4g.devops.umc.rule.inspect;
 
-import static com.wl4g.devops.common.utils.lang.Collections2.safeToList;
-import static java.util.stream.Collectors.summarizingDouble;
-
 import com.wl4g.devops.umc.rule.Aggregator;
-import com.wl4g.devops.umc.rule.LogicalOperator;
-import com.wl4g.devops.umc.rule.RelationOperator;
 
 /**
  * Average rule inspector
@@ -37,12 +32,14 @@ public class AvgRuleInspector extends AbstractRuleInspector {
 	}
 
 	@Override
-	public boolean verify(InspectWrapper wrap) {
+	protected double aggregate(InspectWrapper wrap) {
 		// Average
-		double avg = safeToList(Double.class, wrap.getValues()).stream().filter(val -> null != val)
-				.collect(summarizingDouble(val -> val)).getAverage();
-		return super.operate(LogicalOperator.of(wrap.getLogicalOperator()), RelationOperator.of(wrap.getRelateOperator()), avg,
-				wrap.getBaseline());
+		double[] values = wrap.getValues();
+		double sum = 0;
+		for (int i = wrap.getOffset(), end = i + wrap.getLength(); i < end; i++) {
+			sum += values[i];
+		}
+		return sum / wrap.getLength();
 	}
 
 }
\ No newline at end of file
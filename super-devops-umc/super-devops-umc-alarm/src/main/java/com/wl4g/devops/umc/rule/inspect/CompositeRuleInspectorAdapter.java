@@ -16,70 +16,59 @@
 package com.wl4g.devops.umc.rule.inspect;
 
 import static java.util.stream.Collectors.toMap;
-import static org.apache.commons.lang3.StringUtils.isBlank;
 
-import java.util.HashMap;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.util.Assert;
 import org.springframework.util.CollectionUtils;
 
 import com.wl4g.devops.common.utils.lang.OnceModifiableMap;
 import com.wl4g.devops.umc.rule.Aggregator;
+import com.wl4g.devops.umc.rule.inspect.RuleInspector.InspectWrapper;
 
 /**
- * Composite rule inspector adapter.
+ * Composite rule inspector adapter, dispatches the inspection to the rule
+ * inspector of the(pre-parsed) aggregator.</br>
+ * It is not a {@link RuleInspector} itself, since it has no aggregator type
+ * of its own.
  * 
  * @author Wangl.sir
  * @version v1.0 2019年7月25日
  * @since
  */
-public class CompositeRuleInspectorAdapter extends AbstractRuleInspector {
+public class CompositeRuleInspectorAdapter {
+
+	final protected Logger log = LoggerFactory.getLogger(getClass());
 
 	/**
 	 * Rule inspectors.
 	 */
-	final protected Map<Aggregator, RuleInspector> ruleInspectors = new OnceModifiableMap<>(new HashMap<>());
+	final protected Map<Aggregator, RuleInspector> ruleInspectors = new OnceModifiableMap<>(new EnumMap<>(Aggregator.class));
 
 	public CompositeRuleInspectorAdapter(List<RuleInspector> inspectors) {
 		Assert.state(!CollectionUtils.isEmpty(inspectors), "Rule inspectors has at least one.");
 		this.ruleInspectors.putAll(inspectors.stream().collect(toMap(RuleInspector::aggregateType, inspector -> inspector)));
 	}
 
-	@Override
-	public boolean verify(InspectWrapper wrap) {
-		Optional<RuleInspector> opt = determineRuleInspector(wrap.getAggregator());
-		return opt.isPresent() ? opt.get().verify(wrap) : false;
-	}
-
-	@Override
-	public Aggregator aggregateType() {
-		throw new UnsupportedOperationException();
-	}
-
 	/**
-	 * Determine rule inspector.
+	 * Metric aggregate rule inspection
 	 * 
-	 * @param aggregator
+	 * @param wrap
 	 * @return
 	 */
-	protected Optional<RuleInspector> determineRuleInspector(String aggregator) {
-		if (isBlank(aggregator)) {
-			log.warn("Unsupported this rule aggregator: {}", aggregator);
-			return Optional.empty();
-		}
-		for (String aggre : aggregator.split(",")) {
-			Aggregator type = Aggregator.safeOf(aggre);
-			if (null != type) {
-				RuleInspector inspector = ruleInspectors.get(type);
-				if (inspector != null) {
-					return Optional.of(inspector);
-				}
+	public boolean verify(InspectWrapper wrap) {
+		RuleInspector inspector = ruleInspectors.get(wrap.getAggregator());
+		if (inspector == null) {
+			if (log.isDebugEnabled()) {
+				log.debug("Unsupported this rule aggregator: {}", wrap.getAggregator());
 			}
+			return false;
 		}
-		return Optional.empty();
+		return inspector.verify(wrap);
 	}
 
 }
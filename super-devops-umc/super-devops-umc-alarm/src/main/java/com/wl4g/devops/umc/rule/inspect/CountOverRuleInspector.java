@@ -0,0 +1,47 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.rule.inspect;
+
+import com.wl4g.devops.umc.rule.Aggregator;
+
+/**
+ * Count over threshold rule inspector, e.g: 'countover:80' with baseline 5
+ * and operator GTE, that is, at least 5 values greater than 80 in the window.
+ * 
+ * @author Wangl.sir
+ * @date 2019-09-05 10:02:00
+ */
+public class CountOverRuleInspector extends AbstractRuleInspector {
+
+	@Override
+	public Aggregator aggregateType() {
+		return Aggregator.COUNT_OVER;
+	}
+
+	@Override
+	protected double aggregate(InspectWrapper wrap) {
+		double threshold = getArgument(wrap, 0d);
+		double[] values = wrap.getValues();
+		int count = 0;
+		for (int i = wrap.getOffset(), end = i + wrap.getLength(); i < end; i++) {
+			if (values[i] > threshold) {
+				++count;
+			}
+		}
+		return count;
+	}
+
+}
@@ -15,11 +15,7 @@
  */
 package com.wl4g.devops.umc.rule.inspect;
 
-import static com.wl4g.devops.common.utils.lang.Collections2.isEmptyArray;
-
 import com.wl4g.devops.umc.rule.Aggregator;
-import com.wl4g.devops.umc.rule.LogicalOperator;
-import com.wl4g.devops.umc.rule.RelationOperator;
 
 /**
  * Latest rule inspector
@@ -36,14 +32,9 @@ public class LatestRuleInspector extends AbstractRuleInspector {
 	}
 
 	@Override
-	public boolean verify(InspectWrapper wrap) {
-		if (isEmptyArray(wrap.getValues())) {
-			return false;
-		}
+	protected double aggregate(InspectWrapper wrap) {
 		// Latest/Last
-		double latest = wrap.getValues()[wrap.getValues().length - 1];
-		return super.operate(LogicalOperator.of(wrap.getLogicalOperator()), RelationOperator.of(wrap.getRelateOperator()), latest,
-				wrap.getBaseline());
+		return wrap.getValues()[wrap.getOffset() + wrap.getLength() - 1];
 	}
 
 }
\ No newline at end of file
@@ -15,12 +15,7 @@
  */
 package com.wl4g.devops.umc.rule.inspect;
 
-import static com.wl4g.devops.common.utils.lang.Collections2.safeToList;
-import static java.util.stream.Collectors.summarizingDouble;
-
 import com.wl4g.devops.umc.rule.Aggregator;
-import com.wl4g.devops.umc.rule.LogicalOperator;
-import com.wl4g.devops.umc.rule.RelationOperator;
 
 /**
  * Maximum rule inspector
@@ -37,12 +32,14 @@ public class MaxRuleInspector extends AbstractRuleInspector {
 	}
 
 	@Override
-	public boolean verify(InspectWrapper wrap) {
+	protected double aggregate(InspectWrapper wrap) {
 		// Maximum
-		double max = safeToList(Double.class, wrap.getValues()).stream().filter(val -> null != val)
-				.collect(summarizingDouble(val -> val)).getMax();
-		return super.operate(LogicalOperator.of(wrap.getLogicalOperator()), RelationOperator.of(wrap.getRelateOperator()), max,
-				wrap.getBaseline());
+		double[] values = wrap.getValues();
+		double max = Double.NEGATIVE_INFINITY;
+		for (int i = wrap.getOffset(), end = i + wrap.getLength(); i < end; i++) {
+			max = Math.max(max, values[i]);
+		}
+		return max;
 	}
 
 }
\ No newline at end of file
@@ -15,12 +15,7 @@
  */
 package com.wl4g.devops.umc.rule.inspect;
 
-import static com.wl4g.devops.common.utils.lang.Collections2.safeToList;
-import static java.util.stream.Collectors.summarizingDouble;
-
 import com.wl4g.devops.umc.rule.Aggregator;
-import com.wl4g.devops.umc.rule.LogicalOperator;
-import com.wl4g.devops.umc.rule.RelationOperator;
 
 /**
  * Minimum rule inspector.
@@ -37,12 +32,14 @@ public class MinRuleInspector extends AbstractRuleInspector {
 	}
 
 	@Override
-	public boolean verify(InspectWrapper wrap) {
+	protected double aggregate(InspectWrapper wrap) {
 		// Minimum
-		double min = safeToList(Double.class, wrap.getValues()).stream().filter(val -> null != val)
-				.collect(summarizingDouble(val -> val)).getMin();
-		return super.operate(LogicalOperator.of(wrap.getLogicalOperator()), RelationOperator.of(wrap.getRelateOperator()), min,
-				wrap.getBaseline());
+		double[] values = wrap.getValues();
+		double min = Double.POSITIVE_INFINITY;
+		for (int i = wrap.getOffset(), end = i + wrap.getLength(); i < end; i++) {
+			min = Math.min(min, values[i]);
+		}
+		return min;
 	}
 
 }
\ No newline at end of file
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.rule.inspect;
+
+import com.wl4g.devops.umc.rule.Aggregator;
+
+/**
+ * Percentile rule inspector, e.g: 'pct:99'.</br>
+ * The window is bounded by the capacity of both time window stores(see:
+ * {@code spring.cloud.devops.umc.alarm.time-window.capacity}, 256 by default),
+ * so the exact nearest-rank percentile is selected in linear time on a
+ * per-thread reused scratch buffer, no garbage is produced after warming up,
+ * and a streaming sketch wouldn't pay for its approximation.
+ * 
+ * @author Wangl.sir
+ * @date 2019-09-05 10:02:00
+ */
+public class PercentileRuleInspector extends AbstractRuleInspector {
+
+	/** Default percentile. */
+	final public static double DEFAULT_PERCENTILE = 95d;
+
+	/** Per-thread scratch buffer. */
+	final private ThreadLocal<double[]> scratchLocal = ThreadLocal.withInitial(() -> new double[256]);
+
+	@Override
+	public Aggregator aggregateType() {
+		return Aggregator.PERCENTILE;
+	}
+
+	@Override
+	protected double aggregate(InspectWrapper wrap) {
+		double percentile = Math.min(100d, Math.max(0d, getArgument(wrap, DEFAULT_PERCENTILE)));
+		int n = wrap.getLength();
+
+		double[] scratch = scratchLocal.get();
+		if (scratch.length < n) {
+			scratchLocal.set(scratch = new double[Integer.highestOneBit(n) << 1]);
+		}
+		System.arraycopy(wrap.getValues(), wrap.getOffset(), scratch, 0, n);
+
+		// Nearest-rank
+		int rank = (int) Math.ceil(percentile / 100d * n);
+		return select(scratch, 0, n - 1, Math.max(0, Math.min(n - 1, rank - 1)));
+	}
+
+	/**
+	 * Quick select k-th smallest value in range [lo, hi].
+	 * 
+	 * @param a
+	 * @param lo
+	 * @param hi
+	 * @param k
+	 * @return
+	 */
+	private static double select(double[] a, int lo, int hi, int k) {
+		while (lo < hi) {
+			// Median of three pivot.
+			int mid = (lo + hi) >>> 1;
+			if (a[mid] < a[lo]) {
+				swap(a, lo, mid);
+			}
+			if (a[hi] < a[lo]) {
+				swap(a, lo, hi);
+			}
+			if (a[hi] < a[mid]) {
+				swap(a, mid, hi);
+			}
+			double pivot = a[mid];
+
+			int i = lo, j = hi;
+			while (i <= j) {
+				while (a[i] < pivot) {
+					i++;
+				}
+				while (a[j] > pivot) {
+					j--;
+				}
+				if (i <= j) {
+					swap(a, i++, j--);
+				}
+			}
+			if (k <= j) {
+				hi = j;
+			} else if (k >= i) {
+				lo = i;
+			} else {
+				return a[k];
+			}
+		}
+		return a[k];
+	}
+
+	private static void swap(double[] a, int i, int j) {
+		double t = a[i];
+		a[i] = a[j];
+		a[j] = t;
+	}
+
+}
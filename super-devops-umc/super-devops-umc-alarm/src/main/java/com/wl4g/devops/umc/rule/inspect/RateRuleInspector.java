@@ -0,0 +1,44 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.rule.inspect;
+
+import com.wl4g.devops.umc.rule.Aggregator;
+
+/**
+ * Rate of change rule inspector, the change per second between the first and
+ * the last values of the window.
+ * 
+ * @author Wangl.sir
+ * @date 2019-09-05 10:02:00
+ */
+public class RateRuleInspector extends AbstractRuleInspector {
+
+	@Override
+	public Aggregator aggregateType() {
+		return Aggregator.RATE;
+	}
+
+	@Override
+	protected double aggregate(InspectWrapper wrap) {
+		int first = wrap.getOffset(), last = first + wrap.getLength() - 1;
+		long durationMs = wrap.getTimes()[last] - wrap.getTimes()[first];
+		if (durationMs <= 0) {
+			return 0d;
+		}
+		return (wrap.getValues()[last] - wrap.getValues()[first]) * 1000d / durationMs;
+	}
+
+}
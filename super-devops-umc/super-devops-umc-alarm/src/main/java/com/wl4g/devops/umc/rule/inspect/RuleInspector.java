@@ -41,7 +41,11 @@ public interface RuleInspector {
 	boolean verify(InspectWrapper wrap);
 
 	/**
-	 * Metric inspection wrapper.
+	 * Metric inspection wrapper, the values to be inspected are a view of the
+	 * primitive arrays in range [offset, offset + length), ordered by gather
+	 * time ascending.</br>
+	 * The wrapper is mutable, so that it can be reused by the alarm worker
+	 * thread for every rule, see {@link #wrap}.
 	 * 
 	 * @author Wangl.sir
 	 * @version v1.0 2019年7月24日
@@ -49,26 +53,64 @@ public interface RuleInspector {
 	 */
 	public static class InspectWrapper {
 
-		final private Integer relateOperator;
+		private Integer relateOperator;
 
-		final private Integer logicalOperator;
+		private Integer logicalOperator;
 
-		final private String aggregator;
+		private Aggregator aggregator;
 
-		final private Double baseline;
+		/** Aggregator argument, NaN if absent. */
+		private double argument = Double.NaN;
 
-		final private Double[] values;
+		private Double baseline;
 
-		public InspectWrapper(Integer logicalOperator, Integer relateOperator, String aggregator, Double baseline,
-				Double[] values) {
+		private long[] times;
+
+		private double[] values;
+
+		private int offset;
+
+		private int length;
+
+		public InspectWrapper() {
+		}
+
+		public InspectWrapper(Integer logicalOperator, Integer relateOperator, Aggregator aggregator, double argument,
+				Double baseline, long[] times, double[] values, int offset, int length) {
+			wrap(logicalOperator, relateOperator, aggregator, argument, baseline, times, values, offset, length);
+		}
+
+		/**
+		 * Wrap the rule and values to be inspected.
+		 * 
+		 * @param logicalOperator
+		 * @param relateOperator
+		 * @param aggregator
+		 * @param argument
+		 *            aggregator argument, NaN if absent.
+		 * @param baseline
+		 * @param times
+		 * @param values
+		 * @param offset
+		 * @param length
+		 * @return
+		 */
+		public InspectWrapper wrap(Integer logicalOperator, Integer relateOperator, Aggregator aggregator, double argument,
+				Double baseline, long[] times, double[] values, int offset, int length) {
 			Assert.notNull(logicalOperator, "Logical operator must not be null");
 			Assert.notNull(relateOperator, "Relate operator must not be null");
-			Assert.hasText(aggregator, "Aggregator type must not be empty");
+			Assert.notNull(aggregator, "Aggregator type must not be null");
+			Assert.isTrue(offset >= 0 && length >= 0 && offset + length <= values.length, "Illegal values range");
 			this.logicalOperator = logicalOperator;
 			this.relateOperator = relateOperator;
 			this.aggregator = aggregator;
+			this.argument = argument;
 			this.baseline = baseline;
+			this.times = times;
 			this.values = values;
+			this.offset = offset;
+			this.length = length;
+			return this;
 		}
 
 		public Integer getLogicalOperator() {
@@ -79,22 +121,39 @@ public interface RuleInspector {
 			return relateOperator;
 		}
 
-		public String getAggregator() {
+		public Aggregator getAggregator() {
 			return aggregator;
 		}
 
-		public Double[] getValues() {
+		public double getArgument() {
+			return argument;
+		}
+
+		public long[] getTimes() {
+			return times;
+		}
+
+		public double[] getValues() {
 			return values;
 		}
 
+		public int getOffset() {
+			return offset;
+		}
+
+		public int getLength() {
+			return length;
+		}
+
 		public Double getBaseline() {
 			return baseline;
 		}
 
 		@Override
 		public String toString() {
-			return "MeticInspectWrapper [operator=" + relateOperator + ", aggregator=" + aggregator + ", values="
-					+ Arrays.toString(values) + ", baseline=" + baseline + "]";
+			return "MeticInspectWrapper [operator=" + relateOperator + ", aggregator=" + aggregator + ", argument=" + argument
+					+ ", values=" + Arrays.toString(Arrays.copyOfRange(values, offset, offset + length)) + ", baseline="
+					+ baseline + "]";
 		}
 
 	}
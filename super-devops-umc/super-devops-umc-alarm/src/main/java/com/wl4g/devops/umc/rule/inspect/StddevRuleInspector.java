@@ -0,0 +1,47 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.rule.inspect;
+
+import com.wl4g.devops.umc.rule.Aggregator;
+
+/**
+ * Standard deviation rule inspector.
+ * 
+ * @author Wangl.sir
+ * @date 2019-09-05 10:02:00
+ */
+public class StddevRuleInspector extends AbstractRuleInspector {
+
+	@Override
+	public Aggregator aggregateType() {
+		return Aggregator.STDDEV;
+	}
+
+	@Override
+	protected double aggregate(InspectWrapper wrap) {
+		// Population standard deviation(Welford's algorithm).
+		double[] values = wrap.getValues();
+		double mean = 0, m2 = 0;
+		int n = 0;
+		for (int i = wrap.getOffset(), end = i + wrap.getLength(); i < end; i++) {
+			double delta = values[i] - mean;
+			mean += delta / (++n);
+			m2 += delta * (values[i] - mean);
+		}
+		return Math.sqrt(m2 / n);
+	}
+
+}
@@ -15,12 +15,7 @@
  */
 package com.wl4g.devops.umc.rule.inspect;
 
-import static com.wl4g.devops.common.utils.lang.Collections2.safeToList;
-import static java.util.stream.Collectors.summarizingDouble;
-
 import com.wl4g.devops.umc.rule.Aggregator;
-import com.wl4g.devops.umc.rule.LogicalOperator;
-import com.wl4g.devops.umc.rule.RelationOperator;
 
 /**
  * Summarizing rule inspector.
@@ -37,12 +32,14 @@ public class SumRuleInspector extends AbstractRuleInspector {
 	}
 
 	@Override
-	public boolean verify(InspectWrapper wrap) {
+	protected double aggregate(InspectWrapper wrap) {
 		// Summarizing
-		double sum = safeToList(Double.class, wrap.getValues()).stream().filter(val -> null != val)
-				.collect(summarizingDouble(val -> val)).getSum();
-		return super.operate(LogicalOperator.of(wrap.getLogicalOperator()), RelationOperator.of(wrap.getRelateOperator()), sum,
-				wrap.getBaseline());
+		double[] values = wrap.getValues();
+		double sum = 0;
+		for (int i = wrap.getOffset(), end = i + wrap.getLength(); i < end; i++) {
+			sum += values[i];
+		}
+		return sum;
 	}
 
 }
\ No newline at end of file
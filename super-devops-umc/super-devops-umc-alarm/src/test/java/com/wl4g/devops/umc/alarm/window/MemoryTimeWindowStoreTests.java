@@ -0,0 +1,179 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.alarm.window;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+/**
+ * {@link MemoryTimeWindowStore} tests, the wrap around of the series ring
+ * with concurrent offers, and the eviction of idle series racing with
+ * offers.
+ *
+ * @author Wangl.sir
+ * @version v1.0 2019年9月3日
+ * @since
+ */
+public class MemoryTimeWindowStoreTests {
+
+	final private static long TIMEOUT_MS = 60_000L;
+
+	/** Offers between two sweeps of the store. */
+	final private static int SWEEP_INTERVAL = 4096;
+
+	final private static long NO_EXPIRE = Long.MAX_VALUE / 2;
+
+	@Test
+	public void testWrapAround() {
+		MemoryTimeWindowStore store = new MemoryTimeWindowStore(1, 8, NO_EXPIRE);
+		MetricWindow window = new MetricWindow();
+		for (long t = 1; t <= 20; t++) {
+			store.offer("k", t, t * 10d, t, NO_EXPIRE, window);
+		}
+		assertEquals(8, window.size());
+		for (int i = 0; i < window.size(); i++) {
+			assertEquals(13L + i, window.getTime(i));
+			assertEquals(window.getTime(i) * 10d, window.getValue(i), 0d);
+		}
+		// Exclusive begin time.
+		assertEquals(3, store.offer("k", 21L, 210d, 21L, 3L, window).size());
+		assertEquals(19L, window.getTime(0));
+	}
+
+	@Test
+	public void testConcurrentOffersWrapAround() throws Exception {
+		MemoryTimeWindowStore store = new MemoryTimeWindowStore(4, 16, NO_EXPIRE);
+		int writers = 8;
+		long perWriter = 100_000L;
+		AtomicLong clock = new AtomicLong(0);
+		ExecutorService executor = Executors.newFixedThreadPool(writers);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int w = 0; w < writers; w++) {
+				futures.add(executor.submit(() -> {
+					MetricWindow window = new MetricWindow(16);
+					for (long i = 0; i < perWriter; i++) {
+						long t = clock.incrementAndGet();
+						store.offer("k", t, value(t), t, NO_EXPIRE, window);
+						assertTrue(window.size() > 0);
+						assertPaired(window, 16);
+					}
+					return null;
+				}));
+			}
+			for (Future<?> f : futures) {
+				f.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		// All slots of the last lap are published.
+		long t = clock.incrementAndGet();
+		MetricWindow window = store.offer("k", t, value(t), t, NO_EXPIRE, new MetricWindow());
+		assertEquals(16, window.size());
+		assertEquals(t, window.getTime(15));
+		assertPaired(window, 16);
+	}
+
+	@Test
+	public void testSweepIdleSeries() {
+		MemoryTimeWindowStore store = new MemoryTimeWindowStore(1, 8, 100L);
+		store.offer("idle", 1L, 1d, 1L, 1_000L, new MetricWindow());
+		// The last offer sweeps the store.
+		for (int i = 1; i < SWEEP_INTERVAL; i++) {
+			store.offer("active", i, 2d, 150L, 1_000L, new MetricWindow());
+		}
+		assertEquals(1, store.size());
+
+		// Offered again to a new series, the evicted value is gone.
+		MetricWindow window = store.offer("idle", 160L, 3d, 160L, 1_000L, new MetricWindow());
+		assertEquals(2, store.size());
+		assertEquals(1, window.size());
+		assertEquals(3d, window.getValue(0), 0d);
+	}
+
+	@Test
+	public void testSweepRacingOffers() throws Exception {
+		MemoryTimeWindowStore store = new MemoryTimeWindowStore(1, 64, 1L);
+		AtomicLong clock = new AtomicLong(0);
+		AtomicBoolean done = new AtomicBoolean(false);
+		ExecutorService executor = Executors.newFixedThreadPool(5);
+		try {
+			List<Future<?>> writers = new ArrayList<>();
+			for (int w = 0; w < 4; w++) {
+				writers.add(executor.submit(() -> {
+					MetricWindow window = new MetricWindow(64);
+					for (int i = 0; i < 200_000; i++) {
+						long t = clock.incrementAndGet();
+						store.offer("k", t, value(t), t, NO_EXPIRE, window);
+						// Never appended to an evicted series, so the window
+						// is never empty.
+						assertTrue(window.size() > 0);
+						assertPaired(window, 64);
+					}
+					return null;
+				}));
+			}
+			// Sweeps at the far future, so "k" is always idle.
+			Future<?> sweeper = executor.submit(() -> {
+				MetricWindow window = new MetricWindow(64);
+				while (!done.get()) {
+					store.offer("sweeper", 1L, value(1L), NO_EXPIRE, NO_EXPIRE, window);
+				}
+				return null;
+			});
+			for (Future<?> f : writers) {
+				f.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+			}
+			done.set(true);
+			sweeper.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+		} finally {
+			done.set(true);
+			executor.shutdownNow();
+		}
+		assertTrue(store.size() <= 2);
+	}
+
+	/**
+	 * Each time is paired with its own value, and ascending.
+	 */
+	private static void assertPaired(MetricWindow window, int capacity) {
+		assertTrue("Size: " + window.size(), window.size() <= capacity);
+		for (int i = 0; i < window.size(); i++) {
+			assertEquals("Time: " + window.getTime(i), value(window.getTime(i)), window.getValue(i), 0d);
+			if (i > 0) {
+				assertTrue(window.getTime(i) > window.getTime(i - 1));
+			}
+		}
+	}
+
+	private static double value(long time) {
+		return time * 3d + 0.5d;
+	}
+
+}
@@ -0,0 +1,337 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.notification;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.wl4g.devops.umc.config.AlarmProperties.NotificationProperties;
+import com.wl4g.devops.umc.notification.AlarmNotifier.SimpleAlarmMessage;
+import com.wl4g.devops.umc.notification.AlarmNotifier.TeampleAlarmMessage;
+
+/**
+ * {@link AlarmNotificationDispatcher} tests with fake notifiers, the
+ * deduplication and digests, the token buckets of channel and contact, and
+ * the isolation of channels.
+ *
+ * @author wangl.sir
+ * @version v1.0 2019年9月18日
+ * @since
+ */
+public class AlarmNotificationDispatcherTests {
+
+	final private static long TIMEOUT_MS = 5_000L;
+
+	final private FakeNotifier email = new FakeNotifier(AlarmType.EMAIL);
+
+	final private FakeNotifier sms = new FakeNotifier(AlarmType.SMS);
+
+	private AlarmNotificationDispatcher dispatcher;
+
+	@After
+	public void close() {
+		email.release.countDown();
+		sms.release.countDown();
+		if (dispatcher != null) {
+			dispatcher.close();
+		}
+	}
+
+	@Test
+	public void testDeduplicateAndDigest() throws Exception {
+		NotificationProperties config = createConfig();
+		config.setDedupWindowMs(200L);
+		dispatcher = createDispatcher(config);
+
+		for (int i = 0; i < 5; i++) {
+			dispatcher.dispatch(new SimpleAlarmMessage("cpu high", "EMAIL", "u1", "u2"));
+		}
+		// Same owners in other order are identical.
+		dispatcher.dispatch(new SimpleAlarmMessage("cpu high", "EMAIL", "u2", "u1"));
+		// Other contact group, or template, aren't identical.
+		dispatcher.dispatch(new SimpleAlarmMessage("cpu high", "EMAIL", "u3"));
+		dispatcher.dispatch(new TeampleAlarmMessage("cpu high", "EMAIL", "tpl1", null, "u1", "u2"));
+
+		assertEquals("cpu high", email.take().getMessage());
+		assertEquals("cpu high", email.take().getMessage());
+		assertEquals("cpu high", email.take().getMessage());
+		assertNull(email.poll(200L));
+		assertEquals(5, dispatcher.getDeduplicated());
+
+		Thread.sleep(250L);
+		dispatcher.sweep();
+		SimpleAlarmMessage digest = email.take();
+		assertTrue(digest.getMessage(), digest.getMessage().startsWith("[5 identical alarms in the last "));
+		assertTrue(digest.getMessage(), digest.getMessage().endsWith("cpu high"));
+		assertArrayEquals(new String[] { "u1", "u2" }, digest.getOwners());
+		assertNull(email.poll(200L));
+		assertEquals(4, dispatcher.getSent());
+	}
+
+	@Test
+	public void testExpiredDigestRenewedBeforeSweep() throws Exception {
+		NotificationProperties config = createConfig();
+		config.setDedupWindowMs(100L);
+		dispatcher = createDispatcher(config);
+
+		for (int i = 0; i < 3; i++) {
+			dispatcher.dispatch(new SimpleAlarmMessage("mem high", "EMAIL", "u1"));
+		}
+		assertEquals("mem high", email.take().getMessage());
+
+		// The window is expired, but isn't swept before the next alarm.
+		Thread.sleep(150L);
+		dispatcher.dispatch(new SimpleAlarmMessage("mem high", "EMAIL", "u1"));
+		assertEquals("mem high", email.take().getMessage());
+		dispatcher.dispatch(new SimpleAlarmMessage("mem high", "EMAIL", "u1"));
+
+		// The suppressed of the expired window are carried to the new one.
+		Thread.sleep(150L);
+		dispatcher.sweep();
+		SimpleAlarmMessage digest = email.take();
+		assertTrue(digest.getMessage(), digest.getMessage().startsWith("[3 identical alarms in the last "));
+		assertNull(email.poll(200L));
+		assertEquals(3, dispatcher.getDeduplicated());
+	}
+
+	@Test
+	public void testChannelBucket() throws Exception {
+		NotificationProperties config = createConfig();
+		config.setChannelBurst(3);
+		config.setChannelPermitsPerSecond(0.001d);
+		dispatcher = createDispatcher(config);
+
+		for (int i = 0; i < 10; i++) {
+			dispatcher.dispatch(new SimpleAlarmMessage("alarm" + i, "EMAIL", "u" + i));
+		}
+		for (int i = 0; i < 3; i++) {
+			assertEquals("alarm" + i, email.take().getMessage());
+		}
+		assertNull(email.poll(200L));
+		assertEquals(7, dispatcher.getThrottled());
+	}
+
+	@Test
+	public void testContactBucket() throws Exception {
+		NotificationProperties config = createConfig();
+		config.setContactBurst(2);
+		config.setContactPermitsPerMinute(0.001d);
+		dispatcher = createDispatcher(config);
+
+		dispatcher.dispatch(new SimpleAlarmMessage("alarm1", "EMAIL", "u1"));
+		dispatcher.dispatch(new SimpleAlarmMessage("alarm2", "EMAIL", "u1"));
+		// Only the contact out of tokens is removed.
+		dispatcher.dispatch(new SimpleAlarmMessage("alarm3", "EMAIL", "u1", "u2"));
+		dispatcher.dispatch(new SimpleAlarmMessage("alarm4", "EMAIL", "u1"));
+
+		assertArrayEquals(new String[] { "u1" }, email.take().getOwners());
+		assertArrayEquals(new String[] { "u1" }, email.take().getOwners());
+		SimpleAlarmMessage partial = email.take();
+		assertEquals("alarm3", partial.getMessage());
+		assertArrayEquals(new String[] { "u2" }, partial.getOwners());
+		assertNull(email.poll(200L));
+		assertEquals(2, dispatcher.getThrottled());
+	}
+
+	@Test
+	public void testChannelTokenNotUsedByIneligible() throws Exception {
+		NotificationProperties config = createConfig();
+		config.setChannelBurst(2);
+		config.setChannelPermitsPerSecond(0.001d);
+		config.setContactBurst(1);
+		config.setContactPermitsPerMinute(0.001d);
+		config.setQueueCapacity(1);
+		dispatcher = createDispatcher(config);
+		email.blocking = true;
+
+		dispatcher.dispatch(new SimpleAlarmMessage("alarm1", "EMAIL", "u1"));
+		assertEquals("alarm1", email.take().getMessage());
+		// The contact is out of tokens, the channel token isn't consumed.
+		dispatcher.dispatch(new SimpleAlarmMessage("alarm2", "EMAIL", "u1"));
+		// Queued, the only left channel token is consumed.
+		dispatcher.dispatch(new SimpleAlarmMessage("alarm3", "EMAIL", "u2"));
+		// Rejected, the channel is out of tokens.
+		dispatcher.dispatch(new SimpleAlarmMessage("alarm4", "EMAIL", "u3"));
+		assertEquals(2, dispatcher.getThrottled());
+		assertEquals(0, dispatcher.getRejected());
+
+		email.release.countDown();
+		assertEquals("alarm3", email.take().getMessage());
+		assertNull(email.poll(200L));
+	}
+
+	@Test
+	public void testTokensReleasedOnRejected() throws Exception {
+		NotificationProperties config = createConfig();
+		config.setChannelBurst(3);
+		config.setChannelPermitsPerSecond(0.001d);
+		config.setContactBurst(1);
+		config.setContactPermitsPerMinute(0.001d);
+		config.setQueueCapacity(1);
+		dispatcher = createDispatcher(config);
+		email.blocking = true;
+
+		dispatcher.dispatch(new SimpleAlarmMessage("alarm1", "EMAIL", "u1"));
+		assertEquals("alarm1", email.take().getMessage());
+		dispatcher.dispatch(new SimpleAlarmMessage("alarm2", "EMAIL", "u2"));
+		// Queue is full, the tokens of channel and contact are given back.
+		dispatcher.dispatch(new SimpleAlarmMessage("alarm3", "EMAIL", "u3"));
+		assertEquals(1, dispatcher.getRejected());
+		assertEquals(0, dispatcher.getThrottled());
+
+		email.release.countDown();
+		assertEquals("alarm2", email.take().getMessage());
+		dispatcher.dispatch(new SimpleAlarmMessage("alarm4", "EMAIL", "u3"));
+		// The channel is out of tokens after all.
+		dispatcher.dispatch(new SimpleAlarmMessage("alarm5", "EMAIL", "u4"));
+		assertEquals("alarm4", email.take().getMessage());
+		assertNull(email.poll(200L));
+		assertEquals(1, dispatcher.getThrottled());
+	}
+
+	@Test
+	public void testThrottledDigestCarriedOver() throws Exception {
+		NotificationProperties config = createConfig();
+		config.setDedupWindowMs(100L);
+		config.setChannelBurst(1);
+		config.setChannelPermitsPerSecond(2d);
+		dispatcher = createDispatcher(config);
+
+		for (int i = 0; i < 4; i++) {
+			dispatcher.dispatch(new SimpleAlarmMessage("disk full", "EMAIL", "u1"));
+		}
+		assertEquals("disk full", email.take().getMessage());
+
+		// The channel is out of tokens at the end of window.
+		Thread.sleep(150L);
+		dispatcher.sweep();
+		assertEquals(1, dispatcher.getDigestsCarried());
+		assertNull(email.poll(100L));
+
+		// Refilled, the carried digest is sent at the end of next window.
+		Thread.sleep(600L);
+		dispatcher.sweep();
+		SimpleAlarmMessage digest = email.take();
+		assertTrue(digest.getMessage(), digest.getMessage().startsWith("[3 identical alarms in the last "));
+		assertEquals(1, dispatcher.getDigestsCarried());
+	}
+
+	@Test
+	public void testChannelIsolation() throws Exception {
+		NotificationProperties config = createConfig();
+		config.setQueueCapacity(5);
+		dispatcher = createDispatcher(config);
+		email.blocking = true;
+
+		// Email is blocked by the first, then 5 are queued, others rejected.
+		dispatcher.dispatch(new SimpleAlarmMessage("alarm0", "1,2", "u0"));
+		assertEquals("alarm0", email.take().getMessage());
+		assertEquals("alarm0", sms.take().getMessage());
+		// The blocked email channel doesn't delay sms.
+		for (int i = 1; i < 20; i++) {
+			dispatcher.dispatch(new SimpleAlarmMessage("alarm" + i, "1,2", "u" + i));
+			assertEquals("alarm" + i, sms.take().getMessage());
+		}
+		assertEquals(14, dispatcher.getRejected());
+
+		email.release.countDown();
+		for (int i = 1; i <= 5; i++) {
+			assertEquals("alarm" + i, email.take().getMessage());
+		}
+		assertNull(email.poll(200L));
+	}
+
+	private AlarmNotificationDispatcher createDispatcher(NotificationProperties config) {
+		Map<AlarmType, AlarmNotifier> notifiers = new EnumMap<>(AlarmType.class);
+		notifiers.put(AlarmType.EMAIL, email);
+		notifiers.put(AlarmType.SMS, sms);
+		return new AlarmNotificationDispatcher(notifiers, config);
+	}
+
+	private static NotificationProperties createConfig() {
+		NotificationProperties config = new NotificationProperties();
+		config.setChannelBurst(1000);
+		config.setChannelPermitsPerSecond(1000d);
+		config.setContactBurst(1000);
+		config.setContactPermitsPerMinute(60_000d);
+		config.setDedupWindowMs(60_000L);
+		return config;
+	}
+
+	/**
+	 * Fake notifier, records the notified messages.
+	 */
+	private static class FakeNotifier implements AlarmNotifier {
+
+		final private AlarmType type;
+
+		final private LinkedBlockingQueue<SimpleAlarmMessage> notified = new LinkedBlockingQueue<>();
+
+		final private CountDownLatch release = new CountDownLatch(1);
+
+		private volatile boolean blocking;
+
+		private FakeNotifier(AlarmType type) {
+			this.type = type;
+		}
+
+		@Override
+		public AlarmType alarmType() {
+			return type;
+		}
+
+		@Override
+		public void simpleNotify(SimpleAlarmMessage message) {
+			notified.add(message);
+			if (blocking) {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+
+		@Override
+		public void templateNotify(TeampleAlarmMessage message) {
+			simpleNotify(message);
+		}
+
+		private SimpleAlarmMessage take() throws InterruptedException {
+			SimpleAlarmMessage message = poll(TIMEOUT_MS);
+			assertNotNull("No notified message in " + TIMEOUT_MS + "ms", message);
+			return message;
+		}
+
+		private SimpleAlarmMessage poll(long timeoutMs) throws InterruptedException {
+			return notified.poll(timeoutMs, TimeUnit.MILLISECONDS);
+		}
+
+	}
+
+}
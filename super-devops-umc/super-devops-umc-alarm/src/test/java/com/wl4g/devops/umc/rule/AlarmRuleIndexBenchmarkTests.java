@@ -0,0 +1,104 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.rule;
+
+import static org.junit.Assume.assumeTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.wl4g.devops.common.bean.umc.AlarmTemplate;
+
+/**
+ * {@link AlarmRuleIndex} matching benchmark, 1k templates x 200 metrics of an
+ * aggregate, against the nested loop over every metric and template(as
+ * before the index). Opt-in by {@code -Dbenchmark=true}, it only reports the
+ * timings, see {@link AlarmRuleIndexTests} for the matching itself.
+ *
+ * @author wangl.sir
+ * @version v1.0 2019年9月18日
+ * @since
+ */
+public class AlarmRuleIndexBenchmarkTests {
+
+	final private static Logger log = LoggerFactory.getLogger(AlarmRuleIndexBenchmarkTests.class);
+
+	final private static int WARMUP = 50;
+
+	final private static int ROUNDS = 200;
+
+	@Test
+	public void benchmarkMatch() {
+		assumeTrue(Boolean.getBoolean("benchmark"));
+		List<AlarmTemplate> templates = AlarmRuleIndexTests.createTemplates();
+		List<String> metrics = AlarmRuleIndexTests.createMetrics();
+		List<Map<String, String>> metricTags = AlarmRuleIndexTests.createMetricTags();
+		AlarmRuleIndex index = AlarmRuleIndex.compile(templates, 0);
+
+		for (int i = 0; i < WARMUP; i++) {
+			nestedLoopMatch(templates, metrics, metricTags);
+			indexMatch(index, metrics, metricTags);
+		}
+		long begin = System.nanoTime();
+		for (int i = 0; i < ROUNDS; i++) {
+			nestedLoopMatch(templates, metrics, metricTags);
+		}
+		long nestedLoopNanos = System.nanoTime() - begin;
+
+		begin = System.nanoTime();
+		for (int i = 0; i < ROUNDS; i++) {
+			indexMatch(index, metrics, metricTags);
+		}
+		long indexNanos = System.nanoTime() - begin;
+
+		log.info("Nested loop: {}us/aggregate, index: {}us/aggregate", nestedLoopNanos / ROUNDS / 1000,
+				indexNanos / ROUNDS / 1000);
+	}
+
+	private static long indexMatch(AlarmRuleIndex index, List<String> metrics, List<Map<String, String>> metricTags) {
+		long matched = 0;
+		for (int i = 0; i < metrics.size(); i++) {
+			matched += index.match(metrics.get(i), metricTags.get(i)).size();
+		}
+		return matched;
+	}
+
+	private static long nestedLoopMatch(List<AlarmTemplate> templates, List<String> metrics,
+			List<Map<String, String>> metricTags) {
+		long matched = 0;
+		for (int i = 0; i < metrics.size(); i++) {
+			for (AlarmTemplate tpl : templates) {
+				if (!StringUtils.equals(metrics.get(i), tpl.getMetric())) {
+					continue;
+				}
+				for (Entry<String, String> tag : tpl.getTagsMap().entrySet()) {
+					if (StringUtils.equals(metricTags.get(i).get(tag.getKey()), tag.getValue())) {
+						++matched;
+						break;
+					}
+				}
+			}
+		}
+		return matched;
+	}
+
+}
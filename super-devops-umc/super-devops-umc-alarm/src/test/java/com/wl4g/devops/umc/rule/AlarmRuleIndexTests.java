@@ -0,0 +1,182 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.rule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+
+import com.wl4g.devops.common.bean.umc.AlarmRule;
+import com.wl4g.devops.common.bean.umc.AlarmTemplate;
+import com.wl4g.devops.umc.rule.AlarmRuleIndex.CompiledTemplate;
+
+/**
+ * {@link AlarmRuleIndex} tests, the index matches exactly the same templates
+ * of each metric as the nested loop over every template(as before the
+ * index).
+ *
+ * @author wangl.sir
+ * @version v1.0 2019年9月18日
+ * @since
+ */
+public class AlarmRuleIndexTests {
+
+	final static int TEMPLATES = 1000;
+
+	final static int METRICS = 200;
+
+	/** Distinct metric names, so each name has 10 templates. */
+	final static int METRIC_NAMES = 100;
+
+	final static int INSTANCES = 20;
+
+	@Test
+	public void testMatchSameAsNestedLoop() {
+		List<AlarmTemplate> templates = createTemplates();
+		// Not indexed, never matched.
+		templates.add(createTemplate(TEMPLATES, "basic.metric0", null));
+		templates.add(createTemplate(TEMPLATES + 1, "", tags("instance", "host0")));
+		List<String> metrics = createMetrics();
+		List<Map<String, String>> metricTags = createMetricTags();
+		// Missing and null tag values.
+		metrics.add("basic.metric1");
+		metricTags.add(new HashMap<>());
+		metrics.add("basic.metric1");
+		metricTags.add(tags("instance", null));
+		metrics.add("basic.unknown");
+		metricTags.add(tags("instance", "host1"));
+
+		AlarmRuleIndex index = AlarmRuleIndex.compile(templates, 0);
+		assertEquals(TEMPLATES, index.size());
+
+		int matched = 0;
+		for (int i = 0; i < metrics.size(); i++) {
+			Set<Integer> expected = nestedLoopMatch(templates, metrics.get(i), metricTags.get(i));
+			Set<Integer> actual = new TreeSet<>();
+			for (CompiledTemplate ctpl : index.match(metrics.get(i), metricTags.get(i)).keySet()) {
+				assertTrue(actual.add(ctpl.getTemplate().getId()));
+			}
+			assertEquals("Metric: " + metrics.get(i) + metricTags.get(i), expected, actual);
+			matched += actual.size();
+		}
+		assertTrue(matched > 0);
+	}
+
+	@Test
+	public void testMatchedTags() {
+		List<AlarmTemplate> templates = new ArrayList<>();
+		Map<String, String> tags = tags("instance", "host0");
+		tags.put("core", "1");
+		templates.add(createTemplate(1, "basic.cpu", tags));
+		AlarmRuleIndex index = AlarmRuleIndex.compile(templates, 0);
+
+		Map<String, String> metricTags = tags("instance", "host0");
+		metricTags.put("core", "2");
+		Map<CompiledTemplate, Map<String, String>> matched = index.match("basic.cpu", metricTags);
+		assertEquals(1, matched.size());
+		assertEquals(tags("instance", "host0"), matched.values().iterator().next());
+		assertTrue(index.match("basic.mem", metricTags).isEmpty());
+	}
+
+	static Set<Integer> nestedLoopMatch(List<AlarmTemplate> templates, String metric, Map<String, String> metricTags) {
+		Set<Integer> matched = new TreeSet<>();
+		for (AlarmTemplate tpl : templates) {
+			if (!StringUtils.equals(metric, tpl.getMetric())) {
+				continue;
+			}
+			for (Entry<String, String> tag : tpl.getTagsMap().entrySet()) {
+				if (StringUtils.equals(metricTags.get(tag.getKey()), tag.getValue())) {
+					matched.add(tpl.getId());
+					break;
+				}
+			}
+		}
+		return matched;
+	}
+
+	static List<String> createMetrics() {
+		List<String> metrics = new ArrayList<>(METRICS);
+		for (int i = 0; i < METRICS; i++) {
+			metrics.add("basic.metric" + (i % METRIC_NAMES));
+		}
+		return metrics;
+	}
+
+	static List<Map<String, String>> createMetricTags() {
+		List<Map<String, String>> metricTags = new ArrayList<>(METRICS);
+		for (int i = 0; i < METRICS; i++) {
+			Map<String, String> tags = tags("instance", "host" + (i % INSTANCES));
+			tags.put("core", String.valueOf(i % 4));
+			metricTags.add(tags);
+		}
+		return metricTags;
+	}
+
+	static List<AlarmTemplate> createTemplates() {
+		List<AlarmTemplate> templates = new ArrayList<>(TEMPLATES);
+		for (int i = 0; i < TEMPLATES; i++) {
+			Map<String, String> tags = tags("instance", "host" + (i / METRIC_NAMES % INSTANCES));
+			if (i % 3 == 0) {
+				tags.put("core", String.valueOf(i % 4));
+			}
+			templates.add(createTemplate(i, "basic.metric" + (i % METRIC_NAMES), tags));
+		}
+		return templates;
+	}
+
+	private static AlarmTemplate createTemplate(int id, String metric, Map<String, String> tags) {
+		AlarmTemplate tpl = new AlarmTemplate();
+		tpl.setId(id);
+		tpl.setMetric(metric);
+		List<Map<String, String>> tagMap = new ArrayList<>(1);
+		if (tags != null) {
+			for (Entry<String, String> ent : tags.entrySet()) {
+				Map<String, String> tag = new HashMap<>();
+				tag.put("name", ent.getKey());
+				tag.put("value", ent.getValue());
+				tagMap.add(tag);
+			}
+		}
+		tpl.setTags("[]"); // Parsed when the tag map is empty.
+		tpl.setTagMap(tagMap);
+
+		AlarmRule rule = new AlarmRule();
+		rule.setAggregator("avg");
+		rule.setRelateOperator(1);
+		rule.setLogicalOperator(1);
+		rule.setValue(90d);
+		rule.setQueueTimeWindow(60_000L);
+		tpl.getRules().add(rule);
+		return tpl;
+	}
+
+	private static Map<String, String> tags(String name, String value) {
+		Map<String, String> tags = new HashMap<>();
+		tags.put(name, value);
+		return tags;
+	}
+
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.rule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.DoubleSummaryStatistics;
+import java.util.List;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.wl4g.devops.common.bean.umc.AlarmRule;
+import com.wl4g.devops.umc.alarm.window.MetricWindow;
+import com.wl4g.devops.umc.rule.AlarmRuleIndex.CompiledRule;
+import com.wl4g.devops.umc.rule.inspect.AvgRuleInspector;
+import com.wl4g.devops.umc.rule.inspect.CompositeRuleInspectorAdapter;
+import com.wl4g.devops.umc.rule.inspect.CountOverRuleInspector;
+import com.wl4g.devops.umc.rule.inspect.LatestRuleInspector;
+import com.wl4g.devops.umc.rule.inspect.MaxRuleInspector;
+import com.wl4g.devops.umc.rule.inspect.MinRuleInspector;
+import com.wl4g.devops.umc.rule.inspect.PercentileRuleInspector;
+import com.wl4g.devops.umc.rule.inspect.RateRuleInspector;
+import com.wl4g.devops.umc.rule.inspect.RuleInspector;
+import com.wl4g.devops.umc.rule.inspect.RuleInspector.InspectWrapper;
+import com.wl4g.devops.umc.rule.inspect.StddevRuleInspector;
+import com.wl4g.devops.umc.rule.inspect.SumRuleInspector;
+
+/**
+ * Rule inspectors benchmark, the primitive aggregation over a reused
+ * {@link InspectWrapper} and pre-parsed {@link CompiledRule}s, against the
+ * boxed {@code Double[]} streams(as before, opt-in by
+ * {@code -Dbenchmark=true}), and the allocation of the evaluations after
+ * warming up.
+ *
+ * @author wangl.sir
+ * @version v1.0 2019年9月18日
+ * @since
+ */
+public class RuleInspectorBenchmarkTests {
+
+	final private static Logger log = LoggerFactory.getLogger(RuleInspectorBenchmarkTests.class);
+
+	final private static int WINDOW_SIZE = 256;
+
+	final private static int WARMUP = 20_000;
+
+	final private static int ROUNDS = 100_000;
+
+	final private static String[] AGGREGATORS = { "avg", "max", "min", "sum", "latest", "stddev", "rate", "pct:99",
+			"countover:80" };
+
+	/** Aggregators supported before, by the boxed streams. */
+	final private static int BOXED_AGGREGATORS = 4;
+
+	final private static long NOW = 1_000_000L;
+
+	final private CompositeRuleInspectorAdapter inspector = new CompositeRuleInspectorAdapter(
+			Arrays.<RuleInspector> asList(new AvgRuleInspector(), new MaxRuleInspector(), new MinRuleInspector(),
+					new SumRuleInspector(), new LatestRuleInspector(), new StddevRuleInspector(), new RateRuleInspector(),
+					new PercentileRuleInspector(), new CountOverRuleInspector()));
+
+	final private InspectWrapper wrap = new InspectWrapper();
+
+	@Test
+	public void benchmarkPrimitiveThroughput() {
+		assumeTrue(Boolean.getBoolean("benchmark"));
+		MetricWindow window = createWindow();
+		List<CompiledRule> rules = createRules();
+
+		for (int i = 0; i < WARMUP; i++) {
+			evaluate(window, rules, BOXED_AGGREGATORS);
+			evaluateBoxed(window, rules, BOXED_AGGREGATORS);
+		}
+		long begin = System.nanoTime();
+		int matched = 0;
+		for (int i = 0; i < ROUNDS; i++) {
+			matched += evaluateBoxed(window, rules, BOXED_AGGREGATORS);
+		}
+		long boxedNanos = System.nanoTime() - begin;
+
+		begin = System.nanoTime();
+		int primitiveMatched = 0;
+		for (int i = 0; i < ROUNDS; i++) {
+			primitiveMatched += evaluate(window, rules, BOXED_AGGREGATORS);
+		}
+		long primitiveNanos = System.nanoTime() - begin;
+
+		log.info("Boxed streams: {}ns/rule, primitive: {}ns/rule", boxedNanos / ROUNDS / BOXED_AGGREGATORS,
+				primitiveNanos / ROUNDS / BOXED_AGGREGATORS);
+		assertEquals(matched, primitiveMatched);
+	}
+
+	@Test
+	public void testAllocationFree() {
+		assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+		threadBean.setThreadAllocatedMemoryEnabled(true);
+		long threadId = Thread.currentThread().getId();
+
+		MetricWindow window = createWindow();
+		List<CompiledRule> rules = createRules();
+		for (int i = 0; i < WARMUP; i++) {
+			evaluate(window, rules, rules.size());
+		}
+
+		long allocated = threadBean.getThreadAllocatedBytes(threadId);
+		int matched = 0;
+		for (int i = 0; i < ROUNDS; i++) {
+			matched += evaluate(window, rules, rules.size());
+		}
+		allocated = threadBean.getThreadAllocatedBytes(threadId) - allocated;
+
+		long evaluations = (long) ROUNDS * rules.size();
+		assertTrue(matched > 0);
+		// Any allocation per evaluation is at least 16 bytes.
+		assertTrue("Allocated " + allocated + " bytes of " + evaluations + " evaluations", allocated < evaluations);
+	}
+
+	private int evaluate(MetricWindow window, List<CompiledRule> rules, int count) {
+		int matched = 0;
+		for (int i = 0; i < count; i++) {
+			CompiledRule rule = rules.get(i);
+			AlarmRule r = rule.getRule();
+			int from = window.validityFrom(rule.getDurationMs(), NOW);
+			int to = Math.max(from, window.validityTo(rule.getDurationMs(), NOW));
+			wrap.wrap(r.getLogicalOperator(), r.getRelateOperator(), rule.getAggregator(), rule.getArgument(), r.getValue(),
+					window.getTimes(), window.getValues(), from, to - from);
+			if (inspector.verify(wrap)) {
+				++matched;
+			}
+		}
+		return matched;
+	}
+
+	/**
+	 * The boxed validity values and the summarizing streams, as before.
+	 */
+	private static int evaluateBoxed(MetricWindow window, List<CompiledRule> rules, int count) {
+		int matched = 0;
+		for (int i = 0; i < count; i++) {
+			CompiledRule rule = rules.get(i);
+			List<Double> validity = new ArrayList<>();
+			for (int j = 0; j < window.size(); j++) {
+				if (Math.abs(NOW - window.getTime(j)) < rule.getDurationMs()) {
+					validity.add(window.getValue(j));
+				}
+			}
+			Double[] values = validity.toArray(new Double[0]);
+			DoubleSummaryStatistics stats = Arrays.stream(values).mapToDouble(v -> v).summaryStatistics();
+			double aggregated;
+			switch (rule.getAggregator()) {
+			case AVG:
+				aggregated = stats.getAverage();
+				break;
+			case MAX:
+				aggregated = stats.getMax();
+				break;
+			case MIN:
+				aggregated = stats.getMin();
+				break;
+			default:
+				aggregated = stats.getSum();
+			}
+			if (RelationOperator.of(rule.getRule().getRelateOperator()).operate(aggregated, rule.getRule().getValue())) {
+				++matched;
+			}
+		}
+		return matched;
+	}
+
+	private static MetricWindow createWindow() {
+		MetricWindow window = new MetricWindow(WINDOW_SIZE);
+		for (int i = 0; i < WINDOW_SIZE; i++) {
+			window.add(NOW - (WINDOW_SIZE - i) * 1000L, 50 + 40 * Math.sin(i));
+		}
+		return window;
+	}
+
+	private static List<CompiledRule> createRules() {
+		List<CompiledRule> rules = new ArrayList<>(AGGREGATORS.length);
+		for (String aggregator : AGGREGATORS) {
+			AlarmRule rule = new AlarmRule();
+			rule.setAggregator(aggregator);
+			rule.setLogicalOperator(LogicalOperator.AND.getValue());
+			rule.setRelateOperator(RelationOperator.GT.getValue());
+			rule.setValue(60d);
+			rule.setQueueTimeWindow(200_000L);
+			rules.add(new CompiledRule(rule));
+		}
+		return rules;
+	}
+
+}
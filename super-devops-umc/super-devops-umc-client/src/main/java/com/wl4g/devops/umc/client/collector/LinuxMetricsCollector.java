@@ -0,0 +1,741 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.client.collector;
+
+import static com.wl4g.devops.umc.client.collector.ProcReader.NONE;
+import static com.wl4g.devops.umc.client.collector.ProcReader.key;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.Assert;
+
+import com.wl4g.devops.common.bean.umc.model.proto.MetricModel.Metric;
+import com.wl4g.devops.common.bean.umc.model.proto.MetricModel.MetricAggregate;
+
+/**
+ * Linux system metrics collector, reads /proc/stat, /proc/meminfo,
+ * /proc/diskstats, /proc/net/dev and the cgroup(v1/v2) files of the current
+ * container directly, with a reusable buffer and without regex.<br/>
+ * The counters of the previous sampling are kept to calculate the usages and
+ * rates, so the first sampling of CPU usage is the average since boot, and
+ * the disk/network rates are available since the second sampling.<br/>
+ * When the container is limited by cgroup quota, CPU usage is relative to
+ * the limited cores, and memory is relative to the limit(working set, that
+ * is the usage excluding inactive file cache).<br/>
+ * The roots of /proc and /sys/fs/cgroup are configurable, e.g. to the fixture
+ * trees for testing.
+ * 
+ * @author Wangl.sir <983708408@qq.com>
+ * @version v1.0 2019年9月15日
+ * @since
+ */
+public class LinuxMetricsCollector {
+	final private static Logger log = LoggerFactory.getLogger(LinuxMetricsCollector.class);
+
+	/** Classify of the collected metric aggregate. */
+	final public static String CLASSIFY = "basic";
+
+	/** Name of the default CPU probe of {@link #cpuUsage()}. */
+	final public static String DEFAULT_PROBE = "default";
+
+	final private static byte[] CPU_TOTAL = key("cpu ");
+	final private static byte[] CPU = key("cpu");
+	/** user, nice, system, idle, iowait, irq, softirq, steal */
+	final private static int CPU_FIELDS = 8;
+	final private static int USER = 0, NICE = 1, SYSTEM = 2, IDLE = 3, IOWAIT = 4, IRQ = 5, SOFTIRQ = 6, STEAL = 7;
+
+	final private static byte[][] MEM_KEYS = { key("MemTotal:"), key("MemFree:"), key("MemAvailable:"), key("Buffers:"),
+			key("Cached:"), key("SwapTotal:"), key("SwapFree:") };
+	final private static int MEM_TOTAL = 0, MEM_FREE = 1, MEM_AVAILABLE = 2, BUFFERS = 3, CACHED = 4, SWAP_TOTAL = 5,
+			SWAP_FREE = 6;
+
+	final private static byte[] V2_USAGE_USEC = key("usage_usec ");
+	final private static byte[] V2_INACTIVE_FILE = key("inactive_file ");
+	final private static byte[] V1_INACTIVE_FILE = key("total_inactive_file ");
+
+	final private String instance;
+	final private String namespace;
+	final private ProcReader reader = new ProcReader();
+
+	final private File procStat;
+	final private File procMeminfo;
+	final private File procDiskstats;
+	final private File procNetDev;
+
+	/** cgroup version, 0 if there is no cgroup mounted. */
+	final private int cgroupVersion;
+	/** v2: cpu.max, v1: cpu.cfs_quota_us */
+	final private File cgroupCpuQuota;
+	/** v1: cpu.cfs_period_us */
+	final private File cgroupCpuPeriod;
+	/** v2: cpu.stat(usage_usec), v1: cpuacct.usage(nanoseconds) */
+	final private File cgroupCpuUsage;
+	final private File cgroupMemUsage;
+	final private File cgroupMemLimit;
+	final private File cgroupMemStat;
+
+	//
+	// Sampling states.
+	//
+
+	private int onlineCpus = 1;
+	/** Limited cores, NaN if the cgroup is not limited. */
+	private double cgroupCpuLimit = Double.NaN;
+	/**
+	 * CPU samplers of {@link #collect()} and each probe of
+	 * {@link #cpuUsage(String)}, each has its own previous counters, so
+	 * calling one doesn't shorten the interval of the others.
+	 */
+	final private CpuSampler collectCpu = new CpuSampler();
+	final private Map<String, CpuSampler> probeCpus = new HashMap<>();
+
+	final private long[] meminfo = new long[MEM_KEYS.length];
+	private long cgroupMemUsageBytes = NONE;
+	private long cgroupMemLimitBytes = NONE;
+	private long cgroupInactiveFileBytes = NONE;
+
+	/** Counters of disks and network interfaces, the last is generation. */
+	final private Map<String, long[]> diskCounters = new HashMap<>();
+	final private Map<String, long[]> netCounters = new HashMap<>();
+	private long diskNanos;
+	private long netNanos;
+	private long generation;
+
+	public LinuxMetricsCollector(String procRoot, String cgroupRoot, String instance, String namespace) {
+		Assert.hasText(procRoot, "Proc root must not be empty");
+		this.instance = StringUtils.isBlank(instance) ? localHostName() : instance;
+		this.namespace = StringUtils.trimToEmpty(namespace);
+		this.procStat = new File(procRoot, "stat");
+		this.procMeminfo = new File(procRoot, "meminfo");
+		this.procDiskstats = new File(procRoot, "diskstats");
+		this.procNetDev = new File(procRoot, "net/dev");
+
+		File root = StringUtils.isBlank(cgroupRoot) ? null : new File(cgroupRoot);
+		if (root != null && new File(root, "cgroup.controllers").exists()) { // Unified
+			this.cgroupVersion = 2;
+			this.cgroupCpuQuota = new File(root, "cpu.max");
+			this.cgroupCpuPeriod = null;
+			this.cgroupCpuUsage = new File(root, "cpu.stat");
+			this.cgroupMemUsage = new File(root, "memory.current");
+			this.cgroupMemLimit = new File(root, "memory.max");
+			this.cgroupMemStat = new File(root, "memory.stat");
+		} else if (root != null && new File(root, "memory").isDirectory()) {
+			this.cgroupVersion = 1;
+			File cpu = firstDirectory(root, "cpu", "cpu,cpuacct", "cpuacct,cpu");
+			File cpuacct = firstDirectory(root, "cpuacct", "cpu,cpuacct", "cpuacct,cpu");
+			this.cgroupCpuQuota = new File(cpu, "cpu.cfs_quota_us");
+			this.cgroupCpuPeriod = new File(cpu, "cpu.cfs_period_us");
+			this.cgroupCpuUsage = new File(cpuacct, "cpuacct.usage");
+			this.cgroupMemUsage = new File(root, "memory/memory.usage_in_bytes");
+			this.cgroupMemLimit = new File(root, "memory/memory.limit_in_bytes");
+			this.cgroupMemStat = new File(root, "memory/memory.stat");
+		} else {
+			this.cgroupVersion = 0;
+			this.cgroupCpuQuota = this.cgroupCpuPeriod = this.cgroupCpuUsage = null;
+			this.cgroupMemUsage = this.cgroupMemLimit = this.cgroupMemStat = null;
+		}
+		if (log.isInfoEnabled())
+			log.info("Created linux metrics collector of proc: {}, cgroup: {}(v{})", procRoot, cgroupRoot, cgroupVersion);
+	}
+
+	/**
+	 * Whether the proc file system is available(Linux).
+	 * 
+	 * @return
+	 */
+	public boolean isSupported() {
+		return procStat.exists();
+	}
+
+	/**
+	 * Collect all the system metrics.
+	 * 
+	 * @return
+	 * @throws IOException
+	 */
+	public MetricAggregate collect() throws IOException {
+		return collect(System.nanoTime());
+	}
+
+	/**
+	 * Collect all the system metrics at the monotonic time.
+	 * 
+	 * @param nanos
+	 * @return
+	 * @throws IOException
+	 */
+	synchronized MetricAggregate collect(long nanos) throws IOException {
+		MetricAggregate.Builder aggregate = MetricAggregate.newBuilder().setClassify(CLASSIFY).setInstance(instance)
+				.setNamespace(namespace).setTimestamp(System.currentTimeMillis());
+
+		// CPU
+		long[] delta = collectCpu.sample(nanos);
+		if (delta != null) {
+			double total = sum(delta);
+			add(aggregate, "basic.cpu.used", collectCpu.hostUsage);
+			add(aggregate, "basic.cpu.user", percent(delta[USER] + delta[NICE], total));
+			add(aggregate, "basic.cpu.system", percent(delta[SYSTEM] + delta[IRQ] + delta[SOFTIRQ], total));
+			add(aggregate, "basic.cpu.iowait", percent(delta[IOWAIT], total));
+			add(aggregate, "basic.cpu.steal", percent(delta[STEAL], total));
+		}
+		add(aggregate, "basic.cpu.cores", onlineCpus);
+		if (!Double.isNaN(collectCpu.cgroupUsagePercent)) {
+			add(aggregate, "basic.cgroup.cpu.used", collectCpu.cgroupUsagePercent);
+		}
+		if (!Double.isNaN(cgroupCpuLimit)) {
+			add(aggregate, "basic.cgroup.cpu.limit", cgroupCpuLimit);
+		}
+
+		// Memory
+		MemoryStat mem = sampleMemory();
+		add(aggregate, "basic.mem.total", meminfo[MEM_TOTAL]);
+		add(aggregate, "basic.mem.free", meminfo[MEM_FREE]);
+		add(aggregate, "basic.mem.available", hostAvailable());
+		add(aggregate, "basic.mem.buffers", meminfo[BUFFERS]);
+		add(aggregate, "basic.mem.cached", meminfo[CACHED]);
+		add(aggregate, "basic.mem.used", meminfo[MEM_TOTAL] - hostAvailable());
+		add(aggregate, "basic.mem.used.percent", percent(meminfo[MEM_TOTAL] - hostAvailable(), meminfo[MEM_TOTAL]));
+		add(aggregate, "basic.swap.total", meminfo[SWAP_TOTAL]);
+		add(aggregate, "basic.swap.free", meminfo[SWAP_FREE]);
+		if (cgroupMemUsageBytes != NONE) {
+			add(aggregate, "basic.cgroup.mem.usage", cgroupMemUsageBytes);
+			add(aggregate, "basic.cgroup.mem.working_set", workingSet());
+		}
+		if (mem.isLimited()) {
+			add(aggregate, "basic.cgroup.mem.limit", cgroupMemLimitBytes);
+			add(aggregate, "basic.cgroup.mem.used.percent", percent(workingSet(), cgroupMemLimitBytes));
+		}
+
+		// Disk & Network
+		collectDisks(aggregate, nanos);
+		collectNetworks(aggregate, nanos);
+		return aggregate.build();
+	}
+
+	/**
+	 * CPU usage percent since the previous sampling of the default probe,
+	 * relative to the limited cores if the container is limited by cgroup
+	 * quota.
+	 * 
+	 * @return
+	 * @throws IOException
+	 */
+	public double cpuUsage() throws IOException {
+		return cpuUsage(DEFAULT_PROBE);
+	}
+
+	/**
+	 * CPU usage percent since the previous sampling of the probe, each probe
+	 * (e.g. the task of a health partition) has its own sampling interval.
+	 * 
+	 * @param probe
+	 * @return
+	 * @throws IOException
+	 */
+	public double cpuUsage(String probe) throws IOException {
+		return cpuUsage(probe, System.nanoTime());
+	}
+
+	/**
+	 * CPU usage percent of the default probe at the monotonic time.
+	 * 
+	 * @param nanos
+	 * @return
+	 * @throws IOException
+	 */
+	double cpuUsage(long nanos) throws IOException {
+		return cpuUsage(DEFAULT_PROBE, nanos);
+	}
+
+	/**
+	 * CPU usage percent of the probe at the monotonic time.
+	 * 
+	 * @param probe
+	 * @param nanos
+	 * @return
+	 * @throws IOException
+	 */
+	synchronized double cpuUsage(String probe, long nanos) throws IOException {
+		Assert.notNull(probe, "CPU probe name must not be null");
+		CpuSampler probeCpu = probeCpus.computeIfAbsent(probe, k -> new CpuSampler());
+		probeCpu.sample(nanos);
+		if (!Double.isNaN(cgroupCpuLimit) && !Double.isNaN(probeCpu.cgroupUsagePercent)) {
+			return probeCpu.cgroupUsagePercent;
+		}
+		return Double.isNaN(probeCpu.hostUsage) ? 0d : probeCpu.hostUsage;
+	}
+
+	/**
+	 * Memory statistics, relative to the cgroup limit if the container is
+	 * limited.
+	 * 
+	 * @return
+	 * @throws IOException
+	 */
+	public synchronized MemoryStat memory() throws IOException {
+		return sampleMemory();
+	}
+
+	/**
+	 * Sampling meminfo and cgroup memory.
+	 * 
+	 * @return
+	 * @throws IOException
+	 */
+	private MemoryStat sampleMemory() throws IOException {
+		for (int i = 0; i < meminfo.length; i++) {
+			meminfo[i] = NONE;
+		}
+		if (reader.load(procMeminfo)) {
+			for (; reader.hasMore(); reader.nextLine()) {
+				for (int i = 0; i < MEM_KEYS.length; i++) {
+					if (reader.consume(MEM_KEYS[i])) {
+						long kb = reader.nextLong();
+						meminfo[i] = kb == NONE ? NONE : kb * 1024L;
+						break;
+					}
+				}
+			}
+		}
+		for (int i = 0; i < meminfo.length; i++) {
+			if (meminfo[i] == NONE && i != MEM_AVAILABLE) {
+				meminfo[i] = 0;
+			}
+		}
+
+		if (cgroupVersion > 0) {
+			cgroupMemUsageBytes = reader.readLong(cgroupMemUsage);
+			cgroupMemLimitBytes = reader.readLong(cgroupMemLimit); // v2 "max"
+			cgroupInactiveFileBytes = NONE;
+			if (reader.load(cgroupMemStat)) {
+				byte[] key = cgroupVersion == 2 ? V2_INACTIVE_FILE : V1_INACTIVE_FILE;
+				while (reader.hasMore() && !reader.consume(key)) {
+					reader.nextLine();
+				}
+				cgroupInactiveFileBytes = reader.nextLong();
+			}
+		}
+
+		// Limited(v1 unlimited is a huge page aligned value).
+		if (cgroupMemUsageBytes != NONE && cgroupMemLimitBytes > 0 && cgroupMemLimitBytes < meminfo[MEM_TOTAL]) {
+			long workingSet = workingSet();
+			return new MemoryStat(cgroupMemLimitBytes, cgroupMemLimitBytes - workingSet, cgroupMemLimitBytes - workingSet, 0,
+					cgroupMemUsageBytes - workingSet, true);
+		}
+		return new MemoryStat(meminfo[MEM_TOTAL], meminfo[MEM_FREE], hostAvailable(), meminfo[BUFFERS], meminfo[CACHED],
+				false);
+	}
+
+	/**
+	 * Collect disk rates of /proc/diskstats, fields: major minor name reads
+	 * reads_merged sectors_read ms_reading writes writes_merged
+	 * sectors_written ms_writing ios_in_progress ms_io weighted_ms_io.
+	 * 
+	 * @param aggregate
+	 * @param nanos
+	 * @throws IOException
+	 */
+	private void collectDisks(MetricAggregate.Builder aggregate, long nanos) throws IOException {
+		if (!reader.load(procDiskstats)) {
+			return;
+		}
+		long gen = ++generation;
+		double seconds = diskNanos > 0 ? (nanos - diskNanos) / 1e9d : 0d;
+		for (; reader.hasMore(); reader.nextLine()) {
+			reader.nextLong(); // major
+			reader.nextLong(); // minor
+			String device = reader.nextToken();
+			if (device == null || device.startsWith("loop") || device.startsWith("ram")) {
+				continue;
+			}
+			long reads = reader.nextLong();
+			reader.nextLong();
+			long readSectors = reader.nextLong();
+			reader.nextLong();
+			long writes = reader.nextLong();
+			reader.nextLong();
+			long writeSectors = reader.nextLong();
+			reader.nextLong();
+			reader.nextLong();
+			long ioMs = reader.nextLong();
+			if (reads <= 0 && writes <= 0) { // Inactive.
+				continue;
+			}
+
+			long[] prev = diskCounters.computeIfAbsent(device, d -> new long[6]);
+			if (prev[5] > 0 && seconds > 0 && reads >= prev[0] && writes >= prev[2]) {
+				add(aggregate, "basic.disk.read.ops", "device", device, (reads - prev[0]) / seconds);
+				add(aggregate, "basic.disk.read.bytes", "device", device, (readSectors - prev[1]) * 512d / seconds);
+				add(aggregate, "basic.disk.write.ops", "device", device, (writes - prev[2]) / seconds);
+				add(aggregate, "basic.disk.write.bytes", "device", device, (writeSectors - prev[3]) * 512d / seconds);
+				add(aggregate, "basic.disk.util", "device", device, Math.min(percent(ioMs - prev[4], seconds * 1000d), 100d));
+			}
+			prev[0] = reads;
+			prev[1] = readSectors;
+			prev[2] = writes;
+			prev[3] = writeSectors;
+			prev[4] = ioMs;
+			prev[5] = gen;
+		}
+		diskCounters.values().removeIf(c -> c[5] != gen); // Removed devices.
+		diskNanos = nanos;
+	}
+
+	/**
+	 * Collect network rates of /proc/net/dev, fields: receive(bytes packets
+	 * errs drop fifo frame compressed multicast) transmit(bytes packets errs
+	 * drop fifo colls carrier compressed).
+	 * 
+	 * @param aggregate
+	 * @param nanos
+	 * @throws IOException
+	 */
+	private void collectNetworks(MetricAggregate.Builder aggregate, long nanos) throws IOException {
+		if (!reader.load(procNetDev)) {
+			return;
+		}
+		reader.nextLine(); // Headers
+		reader.nextLine();
+		long gen = ++generation;
+		double seconds = netNanos > 0 ? (nanos - netNanos) / 1e9d : 0d;
+		for (; reader.hasMore(); reader.nextLine()) {
+			String iface = reader.nextToken();
+			if (iface == null || "lo".equals(iface)) {
+				continue;
+			}
+			long rxBytes = reader.nextLong();
+			long rxPackets = reader.nextLong();
+			long rxErrs = reader.nextLong();
+			long rxDrop = reader.nextLong();
+			for (int i = 0; i < 4; i++) {
+				reader.nextLong();
+			}
+			long txBytes = reader.nextLong();
+			long txPackets = reader.nextLong();
+			long txErrs = reader.nextLong();
+			long txDrop = reader.nextLong();
+
+			long[] prev = netCounters.computeIfAbsent(iface, d -> new long[9]);
+			if (prev[8] > 0 && seconds > 0 && rxBytes >= prev[0] && txBytes >= prev[4]) {
+				add(aggregate, "basic.net.rx.bytes", "interface", iface, (rxBytes - prev[0]) / seconds);
+				add(aggregate, "basic.net.rx.packets", "interface", iface, (rxPackets - prev[1]) / seconds);
+				add(aggregate, "basic.net.rx.errors", "interface", iface, (rxErrs - prev[2]) / seconds);
+				add(aggregate, "basic.net.rx.drops", "interface", iface, (rxDrop - prev[3]) / seconds);
+				add(aggregate, "basic.net.tx.bytes", "interface", iface, (txBytes - prev[4]) / seconds);
+				add(aggregate, "basic.net.tx.packets", "interface", iface, (txPackets - prev[5]) / seconds);
+				add(aggregate, "basic.net.tx.errors", "interface", iface, (txErrs - prev[6]) / seconds);
+				add(aggregate, "basic.net.tx.drops", "interface", iface, (txDrop - prev[7]) / seconds);
+			}
+			prev[0] = rxBytes;
+			prev[1] = rxPackets;
+			prev[2] = rxErrs;
+			prev[3] = rxDrop;
+			prev[4] = txBytes;
+			prev[5] = txPackets;
+			prev[6] = txErrs;
+			prev[7] = txDrop;
+			prev[8] = gen;
+		}
+		netCounters.values().removeIf(c -> c[8] != gen); // Removed interfaces.
+		netNanos = nanos;
+	}
+
+	private long hostAvailable() {
+		// Kernels before 3.14 has no MemAvailable.
+		return meminfo[MEM_AVAILABLE] != NONE ? meminfo[MEM_AVAILABLE]
+				: meminfo[MEM_FREE] + meminfo[BUFFERS] + meminfo[CACHED];
+	}
+
+	private long workingSet() {
+		long inactive = Math.max(cgroupInactiveFileBytes, 0);
+		return Math.max(cgroupMemUsageBytes - inactive, 0);
+	}
+
+	private static long sum(long[] values) {
+		long sum = 0;
+		for (long v : values) {
+			sum += v;
+		}
+		return sum;
+	}
+
+	private static double percent(double part, double total) {
+		return total > 0 ? part * 100d / total : 0d;
+	}
+
+	private static void add(MetricAggregate.Builder aggregate, String metric, double value) {
+		aggregate.addMetrics(Metric.newBuilder().setMetric(metric).setValue(value));
+	}
+
+	private static void add(MetricAggregate.Builder aggregate, String metric, String tagKey, String tagValue, double value) {
+		aggregate.addMetrics(Metric.newBuilder().setMetric(metric).putTags(tagKey, tagValue).setValue(value));
+	}
+
+	private static File firstDirectory(File root, String... names) {
+		for (String name : names) {
+			File dir = new File(root, name);
+			if (dir.isDirectory()) {
+				return dir;
+			}
+		}
+		return new File(root, names[0]);
+	}
+
+	private static String localHostName() {
+		try {
+			return InetAddress.getLocalHost().getHostName();
+		} catch (UnknownHostException e) {
+			return "localhost";
+		}
+	}
+
+	/**
+	 * CPU sampler, the ticks and cgroup usage of the previous sampling.
+	 * 
+	 * @author Wangl.sir <983708408@qq.com>
+	 * @version v1.0 2019年9月15日
+	 * @since
+	 */
+	private class CpuSampler {
+		final private long[] ticks = new long[CPU_FIELDS];
+		final private long[] prevTicks = new long[CPU_FIELDS];
+		private double hostUsage = Double.NaN;
+
+		private long cgroupUsageNs = NONE;
+		private long cgroupNanos;
+		private double cgroupUsagePercent = Double.NaN;
+
+		/**
+		 * Sampling CPU ticks and cgroup usage.
+		 * 
+		 * @param nanos
+		 * @return ticks delta since the previous sampling, null if unavailable.
+		 * @throws IOException
+		 */
+		long[] sample(long nanos) throws IOException {
+			long[] delta = null;
+			if (reader.load(procStat) && reader.consume(CPU_TOTAL)) {
+				System.arraycopy(ticks, 0, prevTicks, 0, CPU_FIELDS);
+				for (int i = 0; i < CPU_FIELDS; i++) {
+					ticks[i] = Math.max(reader.nextLong(), 0);
+				}
+				reader.nextLine();
+				int cpus = 0;
+				for (; reader.consume(CPU); reader.nextLine()) {
+					++cpus;
+				}
+				onlineCpus = Math.max(cpus, 1);
+
+				delta = prevTicks; // Reuse, overwritten by delta.
+				for (int i = 0; i < CPU_FIELDS; i++) {
+					delta[i] = ticks[i] - prevTicks[i];
+				}
+				double total = sum(delta);
+				hostUsage = total > 0 ? percent(total - delta[IDLE] - delta[IOWAIT], total) : hostUsage;
+			}
+
+			if (cgroupVersion > 0) {
+				// Limited cores.
+				long quota = NONE, period = NONE;
+				if (cgroupVersion == 2) {
+					if (reader.load(cgroupCpuQuota)) { // e.g. "max 100000" or "50000 100000"
+						quota = reader.nextLong();
+						period = reader.nextLong();
+					}
+				} else {
+					quota = reader.readLong(cgroupCpuQuota);
+					period = reader.readLong(cgroupCpuPeriod);
+				}
+				cgroupCpuLimit = quota > 0 && period > 0 ? (double) quota / period : Double.NaN;
+
+				// Usage nanoseconds.
+				long usage = NONE;
+				if (cgroupVersion == 2) {
+					if (reader.load(cgroupCpuUsage)) {
+						while (reader.hasMore() && !reader.consume(V2_USAGE_USEC)) {
+							reader.nextLine();
+						}
+						long usec = reader.nextLong();
+						usage = usec == NONE ? NONE : usec * 1000L;
+					}
+				} else {
+					usage = reader.readLong(cgroupCpuUsage);
+				}
+				if (usage != NONE && cgroupUsageNs != NONE && usage >= cgroupUsageNs && nanos > cgroupNanos) {
+					double cores = Double.isNaN(cgroupCpuLimit) ? onlineCpus : cgroupCpuLimit;
+					cgroupUsagePercent = percent(usage - cgroupUsageNs, (nanos - cgroupNanos) * cores);
+				}
+				cgroupUsageNs = usage;
+				cgroupNanos = nanos;
+			}
+			return delta;
+		}
+
+	}
+
+	/**
+	 * Memory statistics(bytes).
+	 * 
+	 * @author Wangl.sir <983708408@qq.com>
+	 * @version v1.0 2019年9月15日
+	 * @since
+	 */
+	public static class MemoryStat {
+		final private long total;
+		final private long free;
+		final private long available;
+		final private long buffers;
+		final private long cached;
+		final private boolean limited;
+
+		MemoryStat(long total, long free, long available, long buffers, long cached, boolean limited) {
+			this.total = total;
+			this.free = free;
+			this.available = available;
+			this.buffers = buffers;
+			this.cached = cached;
+			this.limited = limited;
+		}
+
+		public long getTotal() {
+			return total;
+		}
+
+		public long getFree() {
+			return free;
+		}
+
+		public long getAvailable() {
+			return available;
+		}
+
+		public long getBuffers() {
+			return buffers;
+		}
+
+		public long getCached() {
+			return cached;
+		}
+
+		/**
+		 * Whether is relative to the cgroup limit.
+		 * 
+		 * @return
+		 */
+		public boolean isLimited() {
+			return limited;
+		}
+
+		@Override
+		public String toString() {
+			return "MemoryStat [total=" + total + ", free=" + free + ", available=" + available + ", buffers=" + buffers
+					+ ", cached=" + cached + ", limited=" + limited + "]";
+		}
+
+	}
+
+	/**
+	 * Linux metrics collector properties.
+	 * 
+	 * @author Wangl.sir <983708408@qq.com>
+	 * @version v1.0 2019年9月15日
+	 * @since
+	 */
+	@Configuration
+	@ConditionalOnProperty(name = CollectorProperties.CONF_P + ".enable", matchIfMissing = true)
+	@ConfigurationProperties(prefix = CollectorProperties.CONF_P)
+	public static class CollectorProperties {
+		final public static String CONF_P = "spring.cloud.devops.metrics.collector";
+
+		private String procRoot = "/proc";
+		private String cgroupRoot = "/sys/fs/cgroup";
+		/** Instance of metric aggregate, default: local host name. */
+		private String instance;
+		private String namespace;
+
+		public String getProcRoot() {
+			return procRoot;
+		}
+
+		public void setProcRoot(String procRoot) {
+			this.procRoot = procRoot;
+		}
+
+		public String getCgroupRoot() {
+			return cgroupRoot;
+		}
+
+		public void setCgroupRoot(String cgroupRoot) {
+			this.cgroupRoot = cgroupRoot;
+		}
+
+		public String getInstance() {
+			return instance;
+		}
+
+		public void setInstance(String instance) {
+			this.instance = instance;
+		}
+
+		public String getNamespace() {
+			return namespace;
+		}
+
+		public void setNamespace(String namespace) {
+			this.namespace = namespace;
+		}
+
+		@Override
+		public String toString() {
+			return "CollectorProperties [procRoot=" + procRoot + ", cgroupRoot=" + cgroupRoot + ", instance=" + instance
+					+ ", namespace=" + namespace + "]";
+		}
+
+	}
+
+	/**
+	 * Linux metrics collector configuration bootstrap
+	 * 
+	 * @author Wangl.sir <983708408@qq.com>
+	 * @version v1.0 2019年9月15日
+	 * @since
+	 */
+	@Configuration
+	@ConditionalOnBean(CollectorProperties.class)
+	public static class LinuxMetricsCollectorConfiguration {
+
+		@Bean
+		public LinuxMetricsCollector linuxMetricsCollector(CollectorProperties conf) {
+			return new LinuxMetricsCollector(conf.getProcRoot(), conf.getCgroupRoot(), conf.getInstance(),
+					conf.getNamespace());
+		}
+
+	}
+
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.client.collector;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reusable buffer reader and parser of the small pseudo files(/proc,
+ * /sys/fs/cgroup), the file is read into the buffer at once and parsed with
+ * a cursor, without regex and line strings.<br/>
+ * Not thread safe.
+ * 
+ * @author Wangl.sir <983708408@qq.com>
+ * @version v1.0 2019年9月15日
+ * @since
+ */
+final class ProcReader {
+
+	/** Value of absent or non numeric(e.g. `max`) field. */
+	final static long NONE = -1L;
+
+	private byte[] buf = new byte[8192];
+	private int len;
+	private int pos;
+
+	/**
+	 * Read the whole file into the buffer.
+	 * 
+	 * @param file
+	 * @return false if the file does not exist.
+	 * @throws IOException
+	 */
+	boolean load(File file) throws IOException {
+		this.len = this.pos = 0;
+		try (FileInputStream in = new FileInputStream(file)) {
+			int n;
+			while ((n = in.read(buf, len, buf.length - len)) > 0) {
+				len += n;
+				if (len == buf.length) {
+					buf = Arrays.copyOf(buf, buf.length << 1);
+				}
+			}
+			return true;
+		} catch (FileNotFoundException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Read the first number of the file.
+	 * 
+	 * @param file
+	 * @return {@link #NONE} if the file does not exist or is not numeric.
+	 * @throws IOException
+	 */
+	long readLong(File file) throws IOException {
+		return load(file) ? nextLong() : NONE;
+	}
+
+	boolean hasMore() {
+		return pos < len;
+	}
+
+	/**
+	 * Whether the remaining of the current line starts with the prefix, if so
+	 * the cursor is moved after it.
+	 * 
+	 * @param prefix
+	 * @return
+	 */
+	boolean consume(byte[] prefix) {
+		if (len - pos < prefix.length) {
+			return false;
+		}
+		for (int i = 0; i < prefix.length; i++) {
+			if (buf[pos + i] != prefix[i]) {
+				return false;
+			}
+		}
+		pos += prefix.length;
+		return true;
+	}
+
+	/**
+	 * Parse the next number of the current line.
+	 * 
+	 * @return {@link #NONE} if the next token is not numeric or the line is
+	 *         ended, the token is skipped.
+	 */
+	long nextLong() {
+		skipBlanks();
+		boolean negative = pos < len && buf[pos] == '-';
+		if (negative) {
+			++pos;
+		}
+		if (pos >= len || !isDigit(buf[pos])) {
+			skipToken();
+			return NONE;
+		}
+		long value = 0;
+		while (pos < len && isDigit(buf[pos])) {
+			value = value * 10 + (buf[pos++] - '0');
+		}
+		return negative ? -value : value;
+	}
+
+	/**
+	 * Next token of the current line, which is delimited by blanks or ':'.
+	 * 
+	 * @return null if the line is ended.
+	 */
+	String nextToken() {
+		skipBlanks();
+		int start = pos;
+		skipToken();
+		if (pos < len && buf[pos] == ':') {
+			++pos;
+		}
+		int end = pos > start && buf[pos - 1] == ':' ? pos - 1 : pos;
+		return end > start ? new String(buf, start, end - start, StandardCharsets.US_ASCII) : null;
+	}
+
+	/**
+	 * Move the cursor to the beginning of next line.
+	 */
+	void nextLine() {
+		while (pos < len && buf[pos++] != '\n') {
+		}
+	}
+
+	private void skipBlanks() {
+		while (pos < len && (buf[pos] == ' ' || buf[pos] == '\t')) {
+			++pos;
+		}
+	}
+
+	private void skipToken() {
+		while (pos < len) {
+			byte b = buf[pos];
+			if (b == ' ' || b == '\t' || b == '\n' || b == ':') {
+				break;
+			}
+			++pos;
+		}
+	}
+
+	private static boolean isDigit(byte b) {
+		return b >= '0' && b <= '9';
+	}
+
+	/**
+	 * Encode the ASCII key.
+	 * 
+	 * @param key
+	 * @return
+	 */
+	static byte[] key(String key) {
+		return key.getBytes(StandardCharsets.US_ASCII);
+	}
+
+}
@@ -68,6 +68,12 @@ public abstract class AbstractAdvancedHealthIndicator extends AbstractHealthIndi
 		StringBuffer desc = new StringBuffer();
 		for (String name : this.eventStores.keySet()) {
 			try {
+				// Sampling task statistics(runs/timeouts/overruns etc).
+				Map<String, Object> taskStats = this.processor.getStatistics(this.getTaskName(name));
+				if (taskStats != null) {
+					builder.withDetail("AcqTask_" + index, taskStats);
+				}
+
 				EventStore<Partition> store = this.eventStores.get(name);
 				Partition latestPart = store.latest();
 				if (logger.isDebugEnabled())
@@ -169,11 +175,13 @@ public abstract class AbstractAdvancedHealthIndicator extends AbstractHealthIndi
 	}
 
 	/**
-	 * Submit task all.
+	 * Submit task all, each partition is sampled by an independent task, so
+	 * that a hanging probe(e.g. an unresponsive mount point) does not delay
+	 * the others.
 	 */
 	private void submit() {
-		this.processor.submit(() -> {
-			this.conf.getPartitions().forEach((name, confPart) -> {
+		this.conf.getPartitions().forEach((name, confPart) -> {
+			this.processor.submit(this.getTaskName(name), () -> {
 				try {
 					// Get latest performance information.
 					Partition part = this.latestPerfInfo(name);
@@ -186,10 +194,20 @@ public abstract class AbstractAdvancedHealthIndicator extends AbstractHealthIndi
 				} catch (Exception e) {
 					logger.error("Get performance failed.", e);
 				}
-			});
+			}, this.conf.getPeriodMs(), this.conf.getTimeoutMs());
 		});
 	}
 
+	/**
+	 * Name of the sampling task of partition.
+	 * 
+	 * @param name
+	 * @return
+	 */
+	private String getTaskName(String name) {
+		return getClass().getSimpleName() + "#" + name;
+	}
+
 	/**
 	 * Abstract health indicator attribute configuration
 	 * 
@@ -200,10 +218,37 @@ public abstract class AbstractAdvancedHealthIndicator extends AbstractHealthIndi
 	 */
 	public abstract static class AdvancedHealthProperties<T extends Partition> {
 
+		/**
+		 * Sampling period milliseconds.
+		 */
+		private long periodMs = CompositeHealthTaskProcessor.DEFAULT_PERIOD_MS;
+
+		/**
+		 * Sampling deadline milliseconds, the sampling exceeding it is
+		 * cancelled.
+		 */
+		private long timeoutMs = CompositeHealthTaskProcessor.DEFAULT_TIMEOUT_MS;
+
 		public abstract Map<String, T> getPartitions();
 
 		public abstract void setPartitions(Map<String, T> partitions);
 
+		public long getPeriodMs() {
+			return periodMs;
+		}
+
+		public void setPeriodMs(long periodMs) {
+			this.periodMs = periodMs;
+		}
+
+		public long getTimeoutMs() {
+			return timeoutMs;
+		}
+
+		public void setTimeoutMs(long timeoutMs) {
+			this.timeoutMs = timeoutMs;
+		}
+
 	}
 
 	/**
@@ -22,6 +22,7 @@ import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.actuate.health.Health;
 import org.springframework.boot.actuate.health.HealthAggregator;
 import org.springframework.boot.actuate.health.HealthIndicator;
@@ -31,6 +32,7 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import com.wl4g.devops.umc.client.collector.LinuxMetricsCollector;
 import com.wl4g.devops.umc.client.utils.PlatformOSUtil;
 
 /**
@@ -46,6 +48,9 @@ public class AdvancedCpuHealthIndicator extends AbstractAdvancedHealthIndicator
 	final private static Logger logger = LoggerFactory.getLogger(AdvancedCpuHealthIndicator.class);
 	final public static String BEAN_NAME = "advancedCoreHealthIndicator";
 
+	@Autowired(required = false)
+	private LinuxMetricsCollector collector;
+
 	public AdvancedCpuHealthIndicator(AdvancedHealthProperties<? extends Partition> conf) {
 		super(conf);
 	}
@@ -53,7 +58,14 @@ public class AdvancedCpuHealthIndicator extends AbstractAdvancedHealthIndicator
 	@Override
 	protected Partition latestPerfInfo(String name) throws Exception {
 		// Core/CPU list info.
-		CpuPartition part = new CpuPartition((long) (PlatformOSUtil.cpuUsage() * 100));
+		long usage;
+		if (collector != null && collector.isSupported()) {
+			// Since previous probe of the partition.
+			usage = Math.round(collector.cpuUsage(getClass().getSimpleName() + "#" + name));
+		} else {
+			usage = (long) (PlatformOSUtil.cpuUsage() * 100);
+		}
+		CpuPartition part = new CpuPartition(usage);
 		part.setTimestamp(System.currentTimeMillis());
 		return part;
 	}
@@ -21,6 +21,7 @@ import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.actuate.health.Health;
 import org.springframework.boot.actuate.health.HealthAggregator;
 import org.springframework.boot.actuate.health.HealthIndicator;
@@ -31,6 +32,8 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import com.wl4g.devops.common.utils.io.FileSizeUtil;
+import com.wl4g.devops.umc.client.collector.LinuxMetricsCollector;
+import com.wl4g.devops.umc.client.collector.LinuxMetricsCollector.MemoryStat;
 import com.wl4g.devops.umc.client.utils.PlatformOSUtil;
 import com.wl4g.devops.umc.client.utils.PlatformOSUtil.MemInfo;
 
@@ -47,15 +50,29 @@ public class AdvancedMemoryHealthIndicator extends AbstractAdvancedHealthIndicat
 	final private static Logger logger = LoggerFactory.getLogger(AdvancedMemoryHealthIndicator.class);
 	final public static String BEAN_NAME = "advancedMemoryHealthIndicator";
 
+	@Autowired(required = false)
+	private LinuxMetricsCollector collector;
+
 	public AdvancedMemoryHealthIndicator(AdvancedHealthProperties<? extends Partition> conf) {
 		super(conf);
 	}
 
 	@Override
 	protected Partition latestPerfInfo(String name) throws Exception {
+		MemoryPartition part = new MemoryPartition();
+		if (collector != null && collector.isSupported()) {
+			// Memory usage info(cgroup aware), Unit is bytes
+			MemoryStat stat = collector.memory();
+			part.setMemTotal(stat.getTotal());
+			part.setMemFree(stat.getFree());
+			part.setBuffers(stat.getBuffers());
+			part.setCached(stat.getCached());
+			part.setValue(stat.getFree()); // Used to detect health.
+			part.setTimestamp(System.currentTimeMillis());
+			return part;
+		}
 		// Memory usage info, Unit is all kB
 		MemInfo memInfo = PlatformOSUtil.memInfo(); // Unit is KB
-		MemoryPartition part = new MemoryPartition();
 		part.setMemTotal(memInfo.getMemTotal() * 1024);
 		part.setMemFree(memInfo.getMemFree() * 1024);
 		part.setBuffers(memInfo.getBuffers() * 1024);
@@ -15,11 +15,22 @@
  */
 package com.wl4g.devops.umc.client.indicator;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,9 +39,16 @@ import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
 
 /**
  * Compound health monitoring processor.<br/>
+ * Each task is scheduled independently with its own period(jittered, so that
+ * the instances of a fleet do not sample synchronously), and executed on a
+ * small shared worker pool with a deadline. A run exceeding the deadline is
+ * cancelled(interrupted), and at most one run of a task is in flight, ticks
+ * arriving while the previous run is still in progress are skipped and
+ * counted as overruns.<br/>
  * Note: if you change it into an internal class `@Component`, it doesn't seem
  * to work.
  * 
@@ -44,65 +62,278 @@ import org.springframework.stereotype.Component;
 public class CompositeHealthTaskProcessor implements InitializingBean, DisposableBean {
 	final private static Logger logger = LoggerFactory.getLogger(CompositeHealthTaskProcessor.class);
 
+	/** Default task period. */
+	final public static long DEFAULT_PERIOD_MS = 4_000L;
+	/** Default task deadline. */
+	final public static long DEFAULT_TIMEOUT_MS = 3_000L;
+	/** Random jitter ratio of each period(+/-). */
+	final public static double JITTER_RATIO = 0.1d;
+	/**
+	 * Upper limit of workers, the pool grows beyond the core size only while
+	 * probes ignoring cancellation(e.g. blocked on I/O) hold workers.
+	 */
+	final public static int MAX_WORKERS = 16;
+
 	final private AtomicBoolean running = new AtomicBoolean(false);
-	private long acq = 4_000L;
-	private List<Runnable> tasks = new ArrayList<>();
+	final private Map<String, HealthTask> tasks = new ConcurrentHashMap<>();
+	private ScheduledExecutorService timer;
 	private ExecutorService executor;
 
+	/**
+	 * Submit task with default period and deadline.
+	 * 
+	 * @param task
+	 */
 	public void submit(Runnable task) {
-		if (!this.tasks.contains(task)) {
-			this.tasks.add(task);
+		this.submit(task.getClass().getName() + "@" + Integer.toHexString(System.identityHashCode(task)), task,
+				DEFAULT_PERIOD_MS, DEFAULT_TIMEOUT_MS);
+	}
+
+	/**
+	 * Submit a named task, repeated submissions of the same name are ignored.
+	 * 
+	 * @param name
+	 * @param task
+	 * @param periodMs
+	 *            sampling period milliseconds
+	 * @param timeoutMs
+	 *            execution deadline milliseconds of each run
+	 */
+	public void submit(String name, Runnable task, long periodMs, long timeoutMs) {
+		Assert.hasText(name, "Health task name must not be empty");
+		Assert.notNull(task, "Health task must not be null");
+		Assert.isTrue(periodMs > 0 && timeoutMs > 0, "Health task period and timeout must be greater than 0");
+
+		HealthTask ht = new HealthTask(name, task, periodMs, timeoutMs);
+		if (this.tasks.putIfAbsent(name, ht) == null) {
+			if (logger.isInfoEnabled())
+				logger.info("Submit health task: {}", ht);
+			// Random initial delay in [0, period).
+			this.schedule(ht, (long) (ThreadLocalRandom.current().nextDouble() * periodMs));
 		}
 	}
 
-	private void doStart() {
+	/**
+	 * Statistics of all tasks.
+	 * 
+	 * @return
+	 */
+	public Map<String, Map<String, Object>> getStatistics() {
+		Map<String, Map<String, Object>> stats = new LinkedHashMap<>();
+		this.tasks.forEach((name, ht) -> stats.put(name, ht.statistics()));
+		return Collections.unmodifiableMap(stats);
+	}
+
+	/**
+	 * Statistics of the task.
+	 * 
+	 * @param name
+	 * @return Null if the task is not submitted.
+	 */
+	public Map<String, Object> getStatistics(String name) {
+		HealthTask ht = this.tasks.get(name);
+		return ht == null ? null : Collections.unmodifiableMap(ht.statistics());
+	}
+
+	@Override
+	public void destroy() throws Exception {
+		if (logger.isInfoEnabled())
+			logger.info("Destroy health indicator executor... {}", getStatistics());
+
+		if (this.running.compareAndSet(true, false)) {
+			this.timer.shutdownNow();
+			this.executor.shutdownNow();
+		} else
+			logger.warn("Non startup health indicator executor.");
+	}
+
+	@Override
+	public void afterPropertiesSet() throws Exception {
 		if (!this.running.compareAndSet(false, true)) {
 			throw new IllegalStateException("Already started health indicator executor.");
 		}
 		if (logger.isInfoEnabled())
 			logger.info("Starting health indicator executor...");
 
-		this.executor.submit(() -> {
-			while (true) {
+		AtomicInteger counter = new AtomicInteger(0);
+		String prefix = CompositeHealthTaskProcessor.class.getSimpleName() + "-";
+		this.timer = Executors.newSingleThreadScheduledExecutor((r) -> newThread(r, prefix + "timer"));
+		int workers = Math.min(4, Math.max(2, Runtime.getRuntime().availableProcessors() / 2));
+		// At most one run of each task is in flight, so direct hand-off.
+		this.executor = new ThreadPoolExecutor(workers, MAX_WORKERS, 60L, TimeUnit.SECONDS, new SynchronousQueue<>(),
+				(r) -> newThread(r, prefix + counter.incrementAndGet()));
+	}
+
+	/**
+	 * Schedule the next tick of the task.
+	 * 
+	 * @param ht
+	 * @param delayMs
+	 */
+	private void schedule(HealthTask ht, long delayMs) {
+		if (!this.running.get()) {
+			return;
+		}
+		try {
+			this.timer.schedule(() -> {
 				try {
-					this.tasks.forEach((task) -> {
-						try {
-							task.run();
-						} catch (Exception e) {
-							logger.error("Execution error.", e);
-						}
-					});
-					Thread.sleep(this.acq);
-				} catch (InterruptedException e) {
-					logger.error(e.getMessage(), e);
+					this.tick(ht);
+				} finally {
+					long jitter = (long) (ht.periodMs * JITTER_RATIO);
+					this.schedule(ht, ht.periodMs + (jitter > 0 ? ThreadLocalRandom.current().nextLong(-jitter, jitter + 1) : 0));
 				}
+			}, delayMs, TimeUnit.MILLISECONDS);
+		} catch (Exception e) { // Shutdown
+			if (this.running.get())
+				logger.error("Schedule health task failed. " + ht.name, e);
+		}
+	}
+
+	/**
+	 * Dispatch a run of the task to the worker pool, unless the previous run
+	 * is still in flight.
+	 * 
+	 * @param ht
+	 */
+	private void tick(HealthTask ht) {
+		if (!ht.inflight.compareAndSet(false, true)) {
+			ht.overruns.incrementAndGet();
+			if (logger.isWarnEnabled())
+				logger.warn("Health task overrun, previous run is still in flight, skip it. {}", ht.name);
+			return;
+		}
+		try {
+			Execution exec = new Execution(ht);
+			exec.future = this.executor.submit(exec);
+			this.timer.schedule(() -> exec.expire(), ht.timeoutMs, TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException e) { // Saturated or shutdown
+			ht.inflight.set(false);
+			if (this.running.get()) {
+				ht.overruns.incrementAndGet();
+				logger.warn("Health workers are saturated, skip it. {}", ht.name);
 			}
-		});
+		}
 	}
 
-	@Override
-	public void destroy() throws Exception {
-		if (logger.isInfoEnabled())
-			logger.info("Destroy health indicator executor...");
+	private static Thread newThread(Runnable r, String name) {
+		Thread t = new Thread(r, name);
+		// Do not prevent the JVM exiting when a probe hangs on I/O.
+		t.setDaemon(true);
+		if (t.getPriority() != Thread.NORM_PRIORITY)
+			t.setPriority(Thread.NORM_PRIORITY);
+		return t;
+	}
+
+	/**
+	 * Health task and statistics.
+	 * 
+	 * @author Wangl.sir <983708408@qq.com>
+	 * @version v1.0 2019年9月14日
+	 * @since
+	 */
+	final private static class HealthTask {
+		final private String name;
+		final private Runnable task;
+		final private long periodMs;
+		final private long timeoutMs;
+
+		/** Whether a run is pending or executing. */
+		final private AtomicBoolean inflight = new AtomicBoolean(false);
+
+		final private AtomicLong runs = new AtomicLong(0);
+		final private AtomicLong failures = new AtomicLong(0);
+		final private AtomicLong timeouts = new AtomicLong(0);
+		final private AtomicLong overruns = new AtomicLong(0);
+		private volatile long lastElapsedMs;
+		private volatile long maxElapsedMs;
+
+		HealthTask(String name, Runnable task, long periodMs, long timeoutMs) {
+			this.name = name;
+			this.task = task;
+			this.periodMs = periodMs;
+			this.timeoutMs = timeoutMs;
+		}
+
+		Map<String, Object> statistics() {
+			Map<String, Object> stats = new LinkedHashMap<>();
+			stats.put("periodMs", periodMs);
+			stats.put("timeoutMs", timeoutMs);
+			stats.put("runs", runs.get());
+			stats.put("failures", failures.get());
+			stats.put("timeouts", timeouts.get());
+			stats.put("overruns", overruns.get());
+			stats.put("lastElapsedMs", lastElapsedMs);
+			stats.put("maxElapsedMs", maxElapsedMs);
+			return stats;
+		}
+
+		@Override
+		public String toString() {
+			return "HealthTask [name=" + name + ", periodMs=" + periodMs + ", timeoutMs=" + timeoutMs + "]";
+		}
 
-		if (this.running.compareAndSet(true, false))
-			this.executor.shutdownNow();
-		else
-			logger.warn("Non startup health indicator executor.");
 	}
 
-	@Override
-	public void afterPropertiesSet() throws Exception {
-		this.executor = Executors.newFixedThreadPool(2, (r) -> {
-			Thread t = new Thread(r, CompositeHealthTaskProcessor.class.getSimpleName() + "-" + System.currentTimeMillis());
-			if (t.isDaemon())
-				t.setDaemon(false);
-			if (t.getPriority() != Thread.NORM_PRIORITY)
-				t.setPriority(Thread.NORM_PRIORITY);
-			return t;
-		});
-
-		this.doStart();
+	/**
+	 * A run of the health task, either started by a worker or expired by the
+	 * timer first.
+	 * 
+	 * @author Wangl.sir <983708408@qq.com>
+	 * @version v1.0 2019年9月14日
+	 * @since
+	 */
+	final private static class Execution implements Runnable {
+		final private static int PENDING = 0, STARTED = 1, DONE = 2, EXPIRED = 3;
+
+		final private HealthTask ht;
+		final private AtomicInteger state = new AtomicInteger(PENDING);
+		private volatile Future<?> future;
+
+		Execution(HealthTask ht) {
+			this.ht = ht;
+		}
+
+		@Override
+		public void run() {
+			if (!this.state.compareAndSet(PENDING, STARTED)) {
+				return; // Expired while queuing.
+			}
+			long begin = System.currentTimeMillis();
+			try {
+				this.ht.task.run();
+			} catch (Throwable e) {
+				if (this.state.get() != EXPIRED) {
+					this.ht.failures.incrementAndGet();
+					logger.error("Execution error. " + this.ht.name, e);
+				}
+			} finally {
+				long elapsed = System.currentTimeMillis() - begin;
+				this.ht.runs.incrementAndGet();
+				this.ht.lastElapsedMs = elapsed;
+				if (elapsed > this.ht.maxElapsedMs)
+					this.ht.maxElapsedMs = elapsed;
+				this.state.compareAndSet(STARTED, DONE);
+				this.ht.inflight.set(false);
+			}
+		}
+
+		/**
+		 * Called by timer at the deadline, cancel the run if not completed.
+		 */
+		void expire() {
+			if (this.state.compareAndSet(PENDING, EXPIRED)) {
+				// Never started(workers are busy), it never will.
+				this.ht.timeouts.incrementAndGet();
+				this.ht.inflight.set(false);
+				this.future.cancel(false);
+				logger.warn("Health task expired before started. {}", this.ht.name);
+			} else if (this.state.compareAndSet(STARTED, EXPIRED)) {
+				this.ht.timeouts.incrementAndGet();
+				this.future.cancel(true);
+				logger.warn("Health task exceeded the deadline of {}ms, cancelled. {}", this.ht.timeoutMs, this.ht.name);
+			}
+		}
+
 	}
 
-}
\ No newline at end of file
+}
@@ -15,19 +15,10 @@
  */
 package com.wl4g.devops.umc.client.indicator;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Deque;
+import static com.wl4g.devops.umc.client.metrics.LatencyRecorder.Snapshot.toMillis;
+
 import java.util.LinkedHashMap;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedDeque;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,11 +33,14 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wl4g.devops.umc.client.metrics.LatencyRecorder.Snapshot;
+import com.wl4g.devops.umc.client.metrics.LatencyRecorderRegistry;
 import com.wl4g.devops.umc.client.metrics.TimerMetricsAdvice.TimerMetricsProperties;
 import com.wl4g.devops.umc.client.utils.HealthUtil;
 
 /**
- * Analysis and statistical call time dimension related health messages
+ * Analysis and statistical call time dimension related health messages, of
+ * the latest latency interval snapshots.
  * 
  * @author Wangl.sir <983708408@qq.com>
  * @version v1.0
@@ -55,19 +49,14 @@ import com.wl4g.devops.umc.client.utils.HealthUtil;
  */
 public class TimeoutsHealthIndicator extends AbstractHealthIndicator {
 	final private static Logger logger = LoggerFactory.getLogger(TimeoutsHealthIndicator.class);
-	final private static Comparator<TimesWrapper> comparator = new Comparator<TimesWrapper>() {
-		@Override
-		public int compare(TimesWrapper o1, TimesWrapper o2) {
-			return (int) (o1.getMax() - o2.getMax());
-		}
-	};
 	final private ObjectMapper objectMapper = new ObjectMapper();
 
-	private Map<String, Deque<Long>> records = new ConcurrentHashMap<>();
+	final private LatencyRecorderRegistry registry;
 	private TimerMetricsProperties conf;
 
-	public TimeoutsHealthIndicator(TimerMetricsProperties conf) {
+	public TimeoutsHealthIndicator(TimerMetricsProperties conf, LatencyRecorderRegistry registry) {
 		this.conf = conf;
+		this.registry = registry;
 	}
 
 	@Override
@@ -84,14 +73,12 @@ public class TimeoutsHealthIndicator extends AbstractHealthIndicator {
 			} else if (wrap.getMax() < conf.getTimeoutsThreshold()) {
 				HealthUtil.up(builder, "Healthy");
 			} else {
-				HealthUtil.down(builder, "Method " + wrap.getMetricsName() + " executes " + wrap.getLatest()
+				HealthUtil.down(builder, "Method " + wrap.getMetricsName() + " executes " + wrap.getMax()
 						+ "ms with a response exceeding the threshold value of `" + conf.getTimeoutsThreshold() + "`ms.");
-				// When the timeout exception is detected, the exception record
-				// is cleared.
-				this.postPropertiesReset(wrap);
 			}
 			builder.withDetail("Method", wrap.getMetricsName()).withDetail("Least", wrap.getMin())
 					.withDetail("Largest", wrap.getMax()).withDetail("Avg", wrap.getAvg()).withDetail("Latest", wrap.getLatest())
+					.withDetail("P50", wrap.getP50()).withDetail("P99", wrap.getP99()).withDetail("P999", wrap.getP999())
 					.withDetail("Samples", wrap.getSamples()).withDetail("Threshold", conf.getTimeoutsThreshold() + "ms");
 
 		} catch (Exception e) {
@@ -101,75 +88,32 @@ public class TimeoutsHealthIndicator extends AbstractHealthIndicator {
 
 	}
 
-	public void addTimes(String metricName, long time) {
-		if (logger.isDebugEnabled()) {
-			logger.debug("MetricName={}, time={}", metricName, time);
-		}
-		int latestCount = conf.getSamples();
-		Deque<Long> deque = this.records.get(metricName);
-		if (deque == null) {
-			if (logger.isInfoEnabled()) {
-				logger.info("Initial timeoutsHealthIndicator, metricName={}, capacity: {}", metricName, latestCount);
-			}
-			deque = new ConcurrentLinkedDeque<>();
-		}
-		// Overflow check.
-		if (deque.size() >= (latestCount - 1)) {
-			deque.poll(); // Remove first.
-		}
-		deque.offer(time);
-		this.records.put(metricName, deque);
-	}
-
 	/**
-	 * Gets the most statistics largest time out messages (including average
-	 * time, maximum duration, and longest time) of `latestMeasureCount` call
-	 * records.
+	 * Gets the statistics of the largest time out method in the latest
+	 * interval.
 	 * 
 	 * @return
 	 */
 	private TimesWrapper getLargestMessage() {
-		List<TimesWrapper> tmp = new ArrayList<>();
-		// Calculate the maximum value of each execution record queue.
-		for (Entry<String, Deque<Long>> ent : this.records.entrySet()) {
-			Deque<Long> deque = ent.getValue();
-			if (!deque.isEmpty()) {
-				long queueMax = deque.stream().reduce(Long::max).get();
-				tmp.add(new TimesWrapper(ent.getKey(), queueMax));
+		Snapshot largest = null;
+		for (Snapshot snapshot : registry.getSnapshots().values()) {
+			if (snapshot.getCount() > 0 && (largest == null || snapshot.getMax() > largest.getMax())) {
+				largest = snapshot;
 			}
 		}
-		if (tmp.isEmpty())
+		if (largest == null) {
 			return null;
-
-		// Gets the maximum value in the list of the maximum values in all
-		// queues.
-		TimesWrapper maxOfAll = Collections.max(tmp, comparator);
-		Deque<Long> deque = this.records.get(maxOfAll.getMetricsName());
-
-		maxOfAll.setSamples(deque.size());
-		maxOfAll.setMin(deque.stream().reduce(Long::min).get());
-		maxOfAll.setLatest(deque.peekLast());
-		// Average length of time.
-		long totalTime = deque.stream().collect(Collectors.summingLong(Long::longValue));
-		long count = deque.stream().count();
-		maxOfAll.setAvg(BigDecimal.valueOf(totalTime / count).setScale(2, RoundingMode.HALF_EVEN).longValue());
-
-		// Remove current-largest metrics(timeouts record).
-		deque.remove(maxOfAll.getMax());
-		// Deque.clear();
-		return maxOfAll;
+		}
+		TimesWrapper wrap = new TimesWrapper((int) Math.min(largest.getCount(), Integer.MAX_VALUE), largest.getName(),
+				toMs(largest.getMax()), toMs(largest.getMin()), toMs(largest.getMean()), toMs(largest.getLatest()));
+		wrap.setP50(toMs(largest.getValueAtPercentile(50)));
+		wrap.setP99(toMs(largest.getValueAtPercentile(99)));
+		wrap.setP999(toMs(largest.getValueAtPercentile(99.9)));
+		return wrap;
 	}
 
-	/**
-	 * Post process.
-	 * 
-	 * @param wrap
-	 */
-	private void postPropertiesReset(TimesWrapper wrap) {
-		Deque<Long> deque = this.records.get(wrap.getMetricsName());
-		if (deque != null && !deque.isEmpty()) {
-			deque.remove(wrap.getMax());
-		}
+	private static long toMs(long nanos) {
+		return Math.round(toMillis(nanos));
 	}
 
 	/**
@@ -185,13 +129,12 @@ public class TimeoutsHealthIndicator extends AbstractHealthIndicator {
 	public static class TimeoutsHealthIndicatorConfiguration {
 
 		@Bean
-		public HealthIndicator timeoutsHealthIndicator(HealthAggregator healthAggregator, TimerMetricsProperties conf) {
-			if (conf.getSamples() == 0)
-				throw new IllegalArgumentException("Latest measure count is 0.");
+		public HealthIndicator timeoutsHealthIndicator(HealthAggregator healthAggregator, TimerMetricsProperties conf,
+				LatencyRecorderRegistry registry) {
 			if (logger.isInfoEnabled())
 				logger.info("Initial timeoutsHealthIndicator. {}", conf);
 
-			TimeoutsHealthIndicator healthIndicator = new TimeoutsHealthIndicator(conf);
+			TimeoutsHealthIndicator healthIndicator = new TimeoutsHealthIndicator(conf, registry);
 			Map<String, Health> healths = new LinkedHashMap<String, Health>();
 			healths.put(TimeoutsHealthIndicator.class.getSimpleName(), healthIndicator.health());
 			return healthIndicator;
@@ -213,6 +156,9 @@ public class TimeoutsHealthIndicator extends AbstractHealthIndicator {
 		private long avg;
 		private int samples;
 		private long latest;
+		private long p50;
+		private long p99;
+		private long p999;
 
 		public TimesWrapper() {
 			super();
@@ -282,5 +228,29 @@ public class TimeoutsHealthIndicator extends AbstractHealthIndicator {
 			this.latest = latest;
 		}
 
+		public long getP50() {
+			return p50;
+		}
+
+		public void setP50(long p50) {
+			this.p50 = p50;
+		}
+
+		public long getP99() {
+			return p99;
+		}
+
+		public void setP99(long p99) {
+			this.p99 = p99;
+		}
+
+		public long getP999() {
+			return p999;
+		}
+
+		public void setP999(long p999) {
+			this.p999 = p999;
+		}
+
 	}
 }
\ No newline at end of file
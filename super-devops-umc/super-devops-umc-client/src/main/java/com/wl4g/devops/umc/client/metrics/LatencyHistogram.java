@@ -0,0 +1,105 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.client.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed memory, lock free latency histogram(HdrHistogram-style log-linear
+ * buckets). Each power of 2 has 64 linear buckets, so the values
+ * (nanoseconds) are recorded with the relative error <= 1/64(about 1.6%).
+ * 
+ * @author Wangl.sir <983708408@qq.com>
+ * @version v1.0 2019年9月13日
+ * @since
+ */
+final class LatencyHistogram {
+
+	/** Bits of the linear sub-buckets in each power of 2. */
+	final private static int SUB_BITS = 7;
+	final private static int SUB_COUNT = 1 << SUB_BITS;
+	final private static int HALF_SHIFT = SUB_BITS - 1;
+
+	/** Maximum trackable value, about 73 minutes in nanoseconds. */
+	final static long MAX_VALUE = (1L << 42) - 1;
+
+	final private static int BUCKETS = indexOf(MAX_VALUE) + 1;
+
+	final private AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	final private LongAdder sum = new LongAdder();
+	final private AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+	final private AtomicLong max = new AtomicLong(0);
+	private volatile long latest;
+
+	void record(long value) {
+		value = Math.max(0, Math.min(value, MAX_VALUE));
+		counts.incrementAndGet(indexOf(value));
+		sum.add(value);
+		max.accumulateAndGet(value, Math::max);
+		min.accumulateAndGet(value, Math::min);
+		latest = value;
+	}
+
+	/**
+	 * Copy to the snapshot and reset, it must not be recording
+	 * concurrently.
+	 * 
+	 * @param name
+	 * @param startTime
+	 * @param endTime
+	 * @return
+	 */
+	LatencyRecorder.Snapshot snapshotAndReset(String name, long startTime, long endTime) {
+		long[] copy = new long[BUCKETS];
+		long count = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			count += (copy[i] = counts.get(i));
+			if (copy[i] != 0) {
+				counts.set(i, 0);
+			}
+		}
+		LatencyRecorder.Snapshot snapshot = new LatencyRecorder.Snapshot(name, startTime, endTime, count,
+				count == 0 ? 0 : min.get(), max.get(), count == 0 ? 0 : sum.sum() / count, latest, copy);
+		sum.reset();
+		min.set(Long.MAX_VALUE);
+		max.set(0);
+		latest = 0;
+		return snapshot;
+	}
+
+	static int indexOf(long value) {
+		int magnitude = 64 - SUB_BITS - Long.numberOfLeadingZeros(value | (SUB_COUNT - 1));
+		return (magnitude << HALF_SHIFT) + (int) (value >>> magnitude);
+	}
+
+	/**
+	 * Highest value equivalent to the bucket.
+	 * 
+	 * @param index
+	 * @return
+	 */
+	static long highestValueOf(int index) {
+		if (index < SUB_COUNT) {
+			return index;
+		}
+		int magnitude = (index >> HALF_SHIFT) - 1;
+		long sub = index - (magnitude << HALF_SHIFT);
+		return ((sub + 1) << magnitude) - 1;
+	}
+
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.client.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Interval latency recorder, recording is lock free and wait free, the
+ * interval snapshot flips the active histogram(writer reader phaser, like
+ * HdrHistogram's Recorder), so that each recorded value is reported in
+ * exactly one interval.
+ * 
+ * @author Wangl.sir <983708408@qq.com>
+ * @version v1.0 2019年9月13日
+ * @since
+ */
+public class LatencyRecorder {
+
+	final private String name;
+
+	/** Phaser epochs, even phase starts at 0, odd phase at Long.MIN_VALUE. */
+	final private AtomicLong startEpoch = new AtomicLong(0);
+	final private AtomicLong evenEndEpoch = new AtomicLong(0);
+	final private AtomicLong oddEndEpoch = new AtomicLong(Long.MIN_VALUE);
+
+	private volatile LatencyHistogram active = new LatencyHistogram();
+
+	/** Guarded by this. */
+	private LatencyHistogram inactive = new LatencyHistogram();
+
+	/** Guarded by this. */
+	private long intervalStartTime = System.currentTimeMillis();
+
+	public LatencyRecorder(String name) {
+		this.name = name;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Record latency.
+	 * 
+	 * @param nanos
+	 */
+	public void record(long nanos) {
+		long epoch = startEpoch.getAndIncrement();
+		try {
+			active.record(nanos);
+		} finally {
+			(epoch < 0 ? oddEndEpoch : evenEndEpoch).getAndIncrement();
+		}
+	}
+
+	/**
+	 * Gets the snapshot of the values recorded since the last interval
+	 * snapshot, and starts a new interval.
+	 * 
+	 * @return
+	 */
+	public synchronized Snapshot intervalSnapshot() {
+		LatencyHistogram last = active;
+		active = inactive;
+		inactive = last;
+		flipPhase();
+
+		long now = System.currentTimeMillis();
+		Snapshot snapshot = last.snapshotAndReset(name, intervalStartTime, now);
+		intervalStartTime = now;
+		return snapshot;
+	}
+
+	/**
+	 * Wait for the writers of the previous phase to exit.
+	 */
+	private void flipPhase() {
+		boolean nextPhaseEven = startEpoch.get() < 0;
+		long initial = nextPhaseEven ? 0 : Long.MIN_VALUE;
+		(nextPhaseEven ? evenEndEpoch : oddEndEpoch).set(initial);
+		long startAtFlip = startEpoch.getAndSet(initial);
+		AtomicLong previousEnd = nextPhaseEven ? oddEndEpoch : evenEndEpoch;
+		while (previousEnd.get() != startAtFlip) {
+			Thread.yield();
+		}
+	}
+
+	/**
+	 * Latency snapshot of an interval, values are in nanoseconds.
+	 * 
+	 * @author Wangl.sir <983708408@qq.com>
+	 * @version v1.0 2019年9月13日
+	 * @since
+	 */
+	public static class Snapshot {
+		final private String name;
+		final private long startTime;
+		final private long endTime;
+		final private long count;
+		final private long min;
+		final private long max;
+		final private long mean;
+		final private long latest;
+		final private long[] counts;
+
+		Snapshot(String name, long startTime, long endTime, long count, long min, long max, long mean, long latest,
+				long[] counts) {
+			this.name = name;
+			this.startTime = startTime;
+			this.endTime = endTime;
+			this.count = count;
+			this.min = min;
+			this.max = max;
+			this.mean = mean;
+			this.latest = latest;
+			this.counts = counts;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public long getStartTime() {
+			return startTime;
+		}
+
+		public long getEndTime() {
+			return endTime;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public long getMin() {
+			return min;
+		}
+
+		public long getMax() {
+			return max;
+		}
+
+		public long getMean() {
+			return mean;
+		}
+
+		public long getLatest() {
+			return latest;
+		}
+
+		/**
+		 * Gets the value at percentile, e.g. 99.9
+		 * 
+		 * @param percentile
+		 * @return
+		 */
+		public long getValueAtPercentile(double percentile) {
+			if (count == 0) {
+				return 0;
+			}
+			long target = Math.max(1, (long) Math.ceil(Math.min(percentile, 100d) / 100d * count));
+			long acc = 0;
+			for (int i = 0; i < counts.length; i++) {
+				if ((acc += counts[i]) >= target) {
+					return Math.min(LatencyHistogram.highestValueOf(i), max);
+				}
+			}
+			return max;
+		}
+
+		@Override
+		public String toString() {
+			return "Snapshot [name=" + name + ", count=" + count + ", min=" + toMillis(min) + "ms, max=" + toMillis(max)
+					+ "ms, mean=" + toMillis(mean) + "ms, p50=" + toMillis(getValueAtPercentile(50)) + "ms, p99="
+					+ toMillis(getValueAtPercentile(99)) + "ms, p999=" + toMillis(getValueAtPercentile(99.9)) + "ms]";
+		}
+
+		public static double toMillis(long nanos) {
+			return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+		}
+
+	}
+
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.client.metrics;
+
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.unmodifiableMap;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.util.Assert;
+
+import com.wl4g.devops.umc.client.metrics.LatencyRecorder.Snapshot;
+import com.wl4g.devops.umc.client.metrics.TimerMetricsAdvice.TimerMetricsProperties;
+
+/**
+ * Latency recorders of the timer metrics(methods), the interval snapshots
+ * are taken periodically and exported as gauges:
+ * 'latency.{metricName}.p50/p99/p999/max' in milliseconds.
+ * 
+ * @author Wangl.sir <983708408@qq.com>
+ * @version v1.0 2019年9月13日
+ * @since
+ */
+public class LatencyRecorderRegistry implements InitializingBean, DisposableBean {
+	final private static Logger log = LoggerFactory.getLogger(LatencyRecorderRegistry.class);
+
+	final private Map<String, LatencyRecorder> recorders = new ConcurrentHashMap<>();
+
+	final private TimerMetricsProperties conf;
+
+	/** Non-required */
+	final private GaugeService gaugeService;
+
+	/** Latest interval snapshots. */
+	private volatile Map<String, Snapshot> snapshots = emptyMap();
+
+	private ScheduledExecutorService scheduler;
+
+	public LatencyRecorderRegistry(TimerMetricsProperties conf, GaugeService gaugeService) {
+		Assert.notNull(conf, "Timer metrics properties must not be null");
+		Assert.isTrue(conf.getIntervalMs() > 0, "Timer metrics intervalMs must be greater than 0");
+		this.conf = conf;
+		this.gaugeService = gaugeService;
+	}
+
+	@Override
+	public void afterPropertiesSet() throws Exception {
+		scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "latency-recorder-flipper");
+			t.setDaemon(true);
+			return t;
+		});
+		scheduler.scheduleAtFixedRate(() -> flip(), conf.getIntervalMs(), conf.getIntervalMs(), TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public void destroy() throws Exception {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+		}
+	}
+
+	/**
+	 * Record latency of metric.
+	 * 
+	 * @param metricName
+	 * @param nanos
+	 */
+	public void record(String metricName, long nanos) {
+		LatencyRecorder recorder = recorders.get(metricName);
+		if (recorder == null) {
+			recorder = recorders.computeIfAbsent(metricName, name -> {
+				if (log.isInfoEnabled()) {
+					log.info("Initial latency recorder, metricName={}", name);
+				}
+				return new LatencyRecorder(name);
+			});
+		}
+		recorder.record(nanos);
+	}
+
+	/**
+	 * Gets the latest interval snapshots of all metrics.
+	 * 
+	 * @return
+	 */
+	public Map<String, Snapshot> getSnapshots() {
+		return snapshots;
+	}
+
+	/**
+	 * Take interval snapshots and export.
+	 */
+	private void flip() {
+		try {
+			Map<String, Snapshot> latest = new LinkedHashMap<>(recorders.size());
+			for (LatencyRecorder recorder : recorders.values()) {
+				Snapshot snapshot = recorder.intervalSnapshot();
+				latest.put(recorder.getName(), snapshot);
+				export(snapshot);
+			}
+			snapshots = unmodifiableMap(latest);
+		} catch (Throwable e) {
+			log.error("Failed to flip latency recorders", e);
+		}
+	}
+
+	private void export(Snapshot snapshot) {
+		if (gaugeService == null || snapshot.getCount() == 0) {
+			return;
+		}
+		// Note: The names must not start with 'timer.' or 'histogram.', which
+		// are special types of DropwizardMetricServices.
+		String prefix = "latency." + snapshot.getName();
+		gaugeService.submit(prefix + ".p50", Snapshot.toMillis(snapshot.getValueAtPercentile(50)));
+		gaugeService.submit(prefix + ".p99", Snapshot.toMillis(snapshot.getValueAtPercentile(99)));
+		gaugeService.submit(prefix + ".p999", Snapshot.toMillis(snapshot.getValueAtPercentile(99.9)));
+		gaugeService.submit(prefix + ".max", Snapshot.toMillis(snapshot.getMax()));
+	}
+
+}
@@ -19,6 +19,7 @@ import org.aopalliance.intercept.MethodInvocation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.aop.aspectj.AspectJExpressionPointcutAdvisor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.actuate.metrics.GaugeService;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
@@ -29,7 +30,6 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.util.Assert;
 
 import com.wl4g.devops.common.exception.umc.UmcException;
-import com.wl4g.devops.umc.client.indicator.TimeoutsHealthIndicator;
 
 /**
  * It can be used to monitor the number of times it is called.<br/>
@@ -42,72 +42,27 @@ import com.wl4g.devops.umc.client.indicator.TimeoutsHealthIndicator;
 public class TimerMetricsAdvice extends AbstractMetricsAdvice {
 	final private static Logger log = LoggerFactory.getLogger(TimerMetricsAdvice.class);
 
-	@Autowired(required = false)
-	private TimeoutsHealthIndicator timeoutsHealthIndicator; // Non-required
-
 	/**
-	 * Specific implementations are dependent on packages and recommend relying
-	 * on metrics-core packages.<br/>
-	 * Optional implementations are: DefaultGaugeService / Dropwizard Metric
-	 * Services / BufferGaugeService / ServoMetric Services
+	 * Latency recorders, the latencies are exported periodically by
+	 * percentiles, rather than submitting every sample to GaugeService.
 	 */
 	@Autowired
-	private GaugeService gaugeService;
+	private LatencyRecorderRegistry registry;
 
 	@Override
 	public Object invoke(MethodInvocation invocation) throws Throwable {
+		// Get metric(method) name.
+		String metricName = getMetricName(invocation);
+		long start = System.nanoTime();
 		try {
-			// Get metric(method) name.
-			String metricName = getMetricName(invocation);
-
-			long start = System.currentTimeMillis();
-			Object res = invocation.proceed();
-			long timeDiff = System.currentTimeMillis() - start;
-
-			// Save gauge.
-			this.gaugeService.submit(warpTimerName(metricName), timeDiff);
-
-			// Save gauge to healthIndicator.
-			this.saveHealthIndicator(metricName, timeDiff);
-
-			return res;
+			return invocation.proceed();
 		} catch (Throwable e) {
 			throw new UmcException(e);
+		} finally {
+			this.registry.record(metricName, System.nanoTime() - start);
 		}
 	}
 
-	/**
-	 * Save health indicator.
-	 * 
-	 * @param metricName
-	 * @param timeDiff
-	 */
-	private void saveHealthIndicator(String metricName, long timeDiff) {
-		if (this.timeoutsHealthIndicator != null) {
-			this.timeoutsHealthIndicator.addTimes(metricName, timeDiff);
-		}
-	}
-
-	/**
-	 * Note that gaugeService includes not only timer metrics, but also other
-	 * metrics such as counter and histogram etc, the same method of AOP
-	 * interception should also use different metricNames for recording each
-	 * metric information using gaugeService, <font color=red>otherwise, it will
-	 * throw "IllegalArgumentException: A metric named xxx already exists"
-	 * exception.</font><br/>
-	 * See: org.springframework.boot.actuate.metrics.dropwizard.
-	 * DropwizardMetricServices.submit
-	 * 
-	 * @param name
-	 * @return
-	 */
-	private String warpTimerName(String name) {
-		// return "lossTime." + name; // Common type of meter.
-		return "timer." + name; // It corresponds to a special timer type
-								// meter(Automatically calculate the maximum and
-								// minimum mean value.).
-	}
-
 	/**
 	 * Timer monitor measure properties.
 	 * 
@@ -123,6 +78,7 @@ public class TimerMetricsAdvice extends AbstractMetricsAdvice {
 		final public static String CONF_P = "spring.cloud.devops.metrics.timeouts";
 		final public static int DEFAULT_SAMPLES = 32;
 		final public static long DEFAULT_TIMEOUTS_THRESHOLD = 15_000L;
+		final public static long DEFAULT_INTERVAL_MS = 10_000L;
 
 		/**
 		 * Call time consuming AOP point cut surface expression.
@@ -131,8 +87,16 @@ public class TimerMetricsAdvice extends AbstractMetricsAdvice {
 		/**
 		 * AOP intercepts the number of historical records saved by statistical
 		 * calls.
+		 * 
+		 * @deprecated The latencies are recorded by histograms of
+		 *             {@link #intervalMs}.
 		 */
+		@Deprecated
 		private int samples = DEFAULT_SAMPLES;
+		/**
+		 * Latency statistics(and exporting) interval in milliseconds.
+		 */
+		private long intervalMs = DEFAULT_INTERVAL_MS;
 		/**
 		 * AOP intercept call time consuming timeout alarm threshold.
 		 */
@@ -156,6 +120,14 @@ public class TimerMetricsAdvice extends AbstractMetricsAdvice {
 			this.expression = pointcutExpression;
 		}
 
+		public long getIntervalMs() {
+			return intervalMs;
+		}
+
+		public void setIntervalMs(long intervalMs) {
+			this.intervalMs = intervalMs;
+		}
+
 		public long getTimeoutsThreshold() {
 			return timeoutsThreshold;
 		}
@@ -197,6 +169,12 @@ public class TimerMetricsAdvice extends AbstractMetricsAdvice {
 			return advisor;
 		}
 
+		@Bean
+		public LatencyRecorderRegistry latencyRecorderRegistry(TimerMetricsProperties conf,
+				ObjectProvider<GaugeService> gaugeService) {
+			return new LatencyRecorderRegistry(conf, gaugeService.getIfAvailable());
+		}
+
 		@Bean
 		public TimerMetricsAdvice timerPerformanceAdvice() {
 			return new TimerMetricsAdvice();
@@ -0,0 +1,561 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.client.reporter;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.URL;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.Assert;
+
+import com.google.protobuf.CodedOutputStream;
+import com.wl4g.devops.common.bean.umc.model.proto.MetricBatchCodec;
+import com.wl4g.devops.common.bean.umc.model.proto.MetricModel.MetricAggregate;
+import com.wl4g.devops.umc.client.collector.LinuxMetricsCollector;
+
+/**
+ * Batching metric reporter of the client, the reported aggregates are
+ * accumulated into batches bounded by size and time, dictionary encoded
+ * ({@link MetricBatchCodec}), gzip compressed, and then posted to the batch
+ * end-point of the receiver.</br>
+ * When the receiver is unavailable, the batches are spooled to the local
+ * disk ring({@link DiskSpool}), and replayed in order once it's back, a
+ * limited number of batches per flush with exponential back-off(honoring
+ * 'Retry-After' of the receiver quota), so that a recovered receiver is not
+ * flooded. While the spool is not empty, new batches are appended to it to
+ * keep the order.</br>
+ * All the sending and spooling happens on the single reporter thread,
+ * {@link #report(MetricAggregate)} never blocks, the aggregates are dropped
+ * if the queue is full.
+ * 
+ * @author Wangl.sir <983708408@qq.com>
+ * @version v1.0 2019年9月17日
+ * @since
+ */
+public class BatchMetricReporter implements Closeable {
+	final private static Logger log = LoggerFactory.getLogger(BatchMetricReporter.class);
+
+	final private ReporterProperties config;
+
+	final private String clientId;
+
+	final private BlockingQueue<MetricAggregate> queue;
+
+	/** Undelivered batches spool, null if disabled. */
+	final private DiskSpool spool;
+
+	final private ScheduledExecutorService scheduler;
+
+	final private AtomicBoolean flushPending = new AtomicBoolean(false);
+
+	/**
+	 * Serializes the flushing of the reporter thread and the final flush on
+	 * closing, both use the spool and the back-off state.
+	 */
+	final private Object flushLock = new Object();
+
+	/** Whether closed, guarded by the flush lock. */
+	private boolean closed;
+
+	/** Retry back-off. */
+	private long backoffMs;
+	private long backoffUntil;
+
+	/** Statistics. */
+	final private AtomicLong reported = new AtomicLong(0);
+	final private AtomicLong dropped = new AtomicLong(0);
+	private long sentBatches;
+	private long spooledBatches;
+	private long replayedBatches;
+	private long rejectedBatches;
+
+	public BatchMetricReporter(ReporterProperties config) throws IOException {
+		Assert.notNull(config, "Reporter properties must not be null");
+		Assert.hasText(config.getReceiverUrl(), "Receiver url must not be empty");
+		Assert.isTrue(config.getBatchMaxAggregates() > 0 && config.getFlushIntervalMs() > 0 && config.getQueueCapacity() > 0,
+				"Batch max aggregates, flush interval and queue capacity must be greater than 0");
+		this.config = config;
+		this.clientId = StringUtils.isBlank(config.getInstance()) ? localHostName() : config.getInstance();
+		this.queue = new ArrayBlockingQueue<>(config.getQueueCapacity());
+		this.spool = StringUtils.isBlank(config.getSpoolDir()) ? null
+				: new DiskSpool(new File(config.getSpoolDir()), config.getSpoolSegmentBytes(), config.getSpoolMaxSegments());
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "metricReporter");
+			t.setDaemon(true);
+			return t;
+		});
+		this.scheduler.scheduleWithFixedDelay(this::flush, config.getFlushIntervalMs(), config.getFlushIntervalMs(),
+				MILLISECONDS);
+		if (log.isInfoEnabled())
+			log.info("Created batch metric reporter of receiver: {}, spool: {}", config.getReceiverUrl(), spool);
+	}
+
+	/**
+	 * Report an aggregate, never blocked.
+	 * 
+	 * @param aggregate
+	 * @return false if dropped(the queue is full)
+	 */
+	public boolean report(MetricAggregate aggregate) {
+		if (!queue.offer(aggregate)) {
+			dropped.incrementAndGet();
+			return false;
+		}
+		reported.incrementAndGet();
+		// Flush early when a batch is full.
+		if (queue.size() >= config.getBatchMaxAggregates() && flushPending.compareAndSet(false, true)) {
+			try {
+				scheduler.execute(this::flush);
+			} catch (Exception e) { // Closed
+				flushPending.set(false);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Add the aggregate source collected periodically, e.g.
+	 * {@link LinuxMetricsCollector#collect()}.
+	 * 
+	 * @param source
+	 * @param intervalMs
+	 */
+	public void addSource(Callable<MetricAggregate> source, long intervalMs) {
+		Assert.notNull(source, "Source must not be null");
+		Assert.isTrue(intervalMs > 0, "Collect interval must be greater than 0");
+		scheduler.scheduleWithFixedDelay(() -> {
+			try {
+				MetricAggregate aggregate = source.call();
+				if (aggregate != null) {
+					report(aggregate);
+				}
+			} catch (Throwable e) {
+				log.warn("Failed to collect metrics of source: {}, caused by: {}", source, e.getMessage());
+			}
+		}, intervalMs, intervalMs, MILLISECONDS);
+	}
+
+	@Override
+	public void close() throws IOException {
+		scheduler.shutdown();
+		try {
+			if (!scheduler.awaitTermination(config.getReadTimeoutMs() * 2, MILLISECONDS)) {
+				scheduler.shutdownNow();
+			}
+		} catch (InterruptedException e) {
+			scheduler.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+		// The flush still running on the reporter thread(if not terminated) is
+		// waited for by the lock, and any later one is skipped.
+		synchronized (flushLock) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			try {
+				// Final flush, spooled(or dropped) if the receiver is unavailable.
+				backoffUntil = 0;
+				doFlush();
+			} finally {
+				if (spool != null) {
+					spool.close();
+				}
+			}
+		}
+		if (log.isInfoEnabled())
+			log.info("Closed batch metric reporter: {}", this);
+	}
+
+	public long getReported() {
+		return reported.get();
+	}
+
+	public long getDropped() {
+		return dropped.get();
+	}
+
+	@Override
+	public String toString() {
+		return "BatchMetricReporter [receiverUrl=" + config.getReceiverUrl() + ", reported=" + reported + ", dropped="
+				+ dropped + ", queued=" + queue.size() + ", sentBatches=" + sentBatches + ", spooledBatches="
+				+ spooledBatches + ", replayedBatches=" + replayedBatches + ", rejectedBatches=" + rejectedBatches
+				+ ", spool=" + spool + "]";
+	}
+
+	/**
+	 * Flush on the reporter thread, skipped if closed.
+	 */
+	private void flush() {
+		flushPending.set(false);
+		synchronized (flushLock) {
+			if (!closed) {
+				doFlush();
+			}
+		}
+	}
+
+	/**
+	 * Deliver the queued aggregates and replay the spooled batches.
+	 */
+	private void doFlush() {
+		try {
+			List<MetricAggregate> batch = new ArrayList<>(config.getBatchMaxAggregates());
+			do {
+				batch.clear();
+				queue.drainTo(batch, config.getBatchMaxAggregates());
+				if (!batch.isEmpty()) {
+					deliver(encode(batch));
+				}
+			} while (batch.size() == config.getBatchMaxAggregates());
+
+			replay();
+		} catch (Throwable e) {
+			log.error("Failed to flush metrics", e);
+		}
+	}
+
+	private void deliver(byte[] body) throws IOException {
+		if (spool == null) {
+			if (isBackoff() || !send(body)) {
+				++rejectedBatches;
+				log.warn("Dropped metrics batch of bytes: {}, receiver is unavailable", body.length);
+			}
+		} else if (!spool.isEmpty() || isBackoff() || !send(body)) {
+			spool.append(body);
+			++spooledBatches;
+		}
+	}
+
+	/**
+	 * Replay the spooled batches in order, at most
+	 * {@link ReporterProperties#getReplayBatches()} per flush.
+	 * 
+	 * @throws IOException
+	 */
+	private void replay() throws IOException {
+		if (spool == null) {
+			return;
+		}
+		for (int i = 0; i < config.getReplayBatches() && !isBackoff(); i++) {
+			byte[] body = spool.peek();
+			if (body == null || !send(body)) {
+				break;
+			}
+			spool.commit();
+			++replayedBatches;
+		}
+	}
+
+	/**
+	 * Send a batch to receiver.
+	 * 
+	 * @param body
+	 * @return true if the batch is done with(accepted, or rejected and can't
+	 *         be retried), false if should be retried later.
+	 */
+	private boolean send(byte[] body) {
+		HttpURLConnection conn = null;
+		try {
+			conn = (HttpURLConnection) new URL(config.getReceiverUrl()).openConnection();
+			conn.setRequestMethod("POST");
+			conn.setDoOutput(true);
+			conn.setConnectTimeout(config.getConnectTimeoutMs());
+			conn.setReadTimeout(config.getReadTimeoutMs());
+			conn.setFixedLengthStreamingMode(body.length);
+			conn.setRequestProperty("Content-Type", "application/x-protobuf");
+			conn.setRequestProperty("Content-Encoding", "gzip");
+			conn.setRequestProperty("X-Client-Id", clientId);
+			try (OutputStream out = conn.getOutputStream()) {
+				out.write(body);
+			}
+			int status = conn.getResponseCode();
+			drain(conn);
+			if (status >= 200 && status < 300) {
+				++sentBatches;
+				backoffMs = 0;
+				return true;
+			} else if (status == 408 || status == 429 || status >= 500) {
+				backoff(conn.getHeaderFieldInt("Retry-After", 0) * 1000L);
+				log.warn("Failed to send metrics batch, status: {}, retry after: {}ms", status, backoffUntil - now());
+				return false;
+			}
+			// e.g. 400/413, never be accepted.
+			++rejectedBatches;
+			log.error("Rejected metrics batch of bytes: {}, status: {}", body.length, status);
+			return true;
+		} catch (IOException e) {
+			backoff(0);
+			log.warn("Failed to send metrics batch, retry after: {}ms, caused by: {}", backoffUntil - now(), e.getMessage());
+			return false;
+		} finally {
+			if (conn != null) {
+				conn.disconnect();
+			}
+		}
+	}
+
+	private boolean isBackoff() {
+		return now() < backoffUntil;
+	}
+
+	private void backoff(long retryAfterMs) {
+		backoffMs = backoffMs == 0 ? config.getRetryBackoffMs() : Math.min(backoffMs << 1, config.getMaxBackoffMs());
+		backoffUntil = now() + Math.max(backoffMs, retryAfterMs);
+	}
+
+	/**
+	 * Encode the request body: gzip(varint32 size + batch).
+	 * 
+	 * @param aggregates
+	 * @return
+	 * @throws IOException
+	 */
+	private static byte[] encode(List<MetricAggregate> aggregates) throws IOException {
+		byte[] batch = MetricBatchCodec.encode(aggregates);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(batch.length / 4 + 64);
+		try (GZIPOutputStream gzip = new GZIPOutputStream(bytes, 8192)) {
+			CodedOutputStream out = CodedOutputStream.newInstance(gzip);
+			out.writeUInt32NoTag(batch.length);
+			out.writeRawBytes(batch);
+			out.flush();
+		}
+		return bytes.toByteArray();
+	}
+
+	private static void drain(HttpURLConnection conn) {
+		try (InputStream in = conn.getResponseCode() < 400 ? conn.getInputStream() : conn.getErrorStream()) {
+			if (in != null) {
+				byte[] buf = new byte[1024];
+				while (in.read(buf) != -1) {
+				}
+			}
+		} catch (IOException e) {
+		}
+	}
+
+	private static long now() {
+		return System.currentTimeMillis();
+	}
+
+	private static String localHostName() {
+		try {
+			return InetAddress.getLocalHost().getHostName();
+		} catch (UnknownHostException e) {
+			return "localhost";
+		}
+	}
+
+	/**
+	 * Batch metric reporter properties.
+	 * 
+	 * @author Wangl.sir <983708408@qq.com>
+	 * @version v1.0 2019年9月17日
+	 * @since
+	 */
+	@Configuration
+	@ConditionalOnProperty(name = ReporterProperties.CONF_P + ".enable", matchIfMissing = false)
+	@ConfigurationProperties(prefix = ReporterProperties.CONF_P)
+	public static class ReporterProperties {
+		final public static String CONF_P = "spring.cloud.devops.metrics.reporter";
+
+		/** Batch end-point of the receiver. */
+		private String receiverUrl = "http://localhost:14047/umc-receiver/receiver/batch";
+		/** Client identifier, default: local host name. */
+		private String instance;
+		private int batchMaxAggregates = 500;
+		private long flushIntervalMs = 5_000L;
+		private int queueCapacity = 10_000;
+		/** Spool directory, the spooling is disabled if empty. */
+		private String spoolDir = System.getProperty("java.io.tmpdir") + File.separator + "umc-reporter-spool";
+		private long spoolSegmentBytes = 4 * 1024 * 1024;
+		private int spoolMaxSegments = 64;
+		/** Maximum number of spooled batches replayed per flush. */
+		private int replayBatches = 16;
+		private long retryBackoffMs = 1_000L;
+		private long maxBackoffMs = 60_000L;
+		private int connectTimeoutMs = 3_000;
+		private int readTimeoutMs = 10_000;
+		/** Interval of the system metrics collecting, 0 means disabled. */
+		private long collectIntervalMs = 10_000L;
+
+		public String getReceiverUrl() {
+			return receiverUrl;
+		}
+
+		public void setReceiverUrl(String receiverUrl) {
+			this.receiverUrl = receiverUrl;
+		}
+
+		public String getInstance() {
+			return instance;
+		}
+
+		public void setInstance(String instance) {
+			this.instance = instance;
+		}
+
+		public int getBatchMaxAggregates() {
+			return batchMaxAggregates;
+		}
+
+		public void setBatchMaxAggregates(int batchMaxAggregates) {
+			this.batchMaxAggregates = batchMaxAggregates;
+		}
+
+		public long getFlushIntervalMs() {
+			return flushIntervalMs;
+		}
+
+		public void setFlushIntervalMs(long flushIntervalMs) {
+			this.flushIntervalMs = flushIntervalMs;
+		}
+
+		public int getQueueCapacity() {
+			return queueCapacity;
+		}
+
+		public void setQueueCapacity(int queueCapacity) {
+			this.queueCapacity = queueCapacity;
+		}
+
+		public String getSpoolDir() {
+			return spoolDir;
+		}
+
+		public void setSpoolDir(String spoolDir) {
+			this.spoolDir = spoolDir;
+		}
+
+		public long getSpoolSegmentBytes() {
+			return spoolSegmentBytes;
+		}
+
+		public void setSpoolSegmentBytes(long spoolSegmentBytes) {
+			this.spoolSegmentBytes = spoolSegmentBytes;
+		}
+
+		public int getSpoolMaxSegments() {
+			return spoolMaxSegments;
+		}
+
+		public void setSpoolMaxSegments(int spoolMaxSegments) {
+			this.spoolMaxSegments = spoolMaxSegments;
+		}
+
+		public int getReplayBatches() {
+			return replayBatches;
+		}
+
+		public void setReplayBatches(int replayBatches) {
+			this.replayBatches = replayBatches;
+		}
+
+		public long getRetryBackoffMs() {
+			return retryBackoffMs;
+		}
+
+		public void setRetryBackoffMs(long retryBackoffMs) {
+			this.retryBackoffMs = retryBackoffMs;
+		}
+
+		public long getMaxBackoffMs() {
+			return maxBackoffMs;
+		}
+
+		public void setMaxBackoffMs(long maxBackoffMs) {
+			this.maxBackoffMs = maxBackoffMs;
+		}
+
+		public int getConnectTimeoutMs() {
+			return connectTimeoutMs;
+		}
+
+		public void setConnectTimeoutMs(int connectTimeoutMs) {
+			this.connectTimeoutMs = connectTimeoutMs;
+		}
+
+		public int getReadTimeoutMs() {
+			return readTimeoutMs;
+		}
+
+		public void setReadTimeoutMs(int readTimeoutMs) {
+			this.readTimeoutMs = readTimeoutMs;
+		}
+
+		public long getCollectIntervalMs() {
+			return collectIntervalMs;
+		}
+
+		public void setCollectIntervalMs(long collectIntervalMs) {
+			this.collectIntervalMs = collectIntervalMs;
+		}
+
+	}
+
+	/**
+	 * Batch metric reporter configuration bootstrap
+	 * 
+	 * @author Wangl.sir <983708408@qq.com>
+	 * @version v1.0 2019年9月17日
+	 * @since
+	 */
+	@Configuration
+	@ConditionalOnBean(ReporterProperties.class)
+	public static class BatchMetricReporterConfiguration {
+
+		@Bean
+		public BatchMetricReporter batchMetricReporter(ReporterProperties conf,
+				ObjectProvider<LinuxMetricsCollector> collectorProvider) throws IOException {
+			BatchMetricReporter reporter = new BatchMetricReporter(conf);
+			LinuxMetricsCollector collector = collectorProvider.getIfAvailable();
+			if (collector != null && collector.isSupported() && conf.getCollectIntervalMs() > 0) {
+				reporter.addSource(collector::collect, conf.getCollectIntervalMs());
+			}
+			return reporter;
+		}
+
+	}
+
+}
@@ -0,0 +1,326 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.client.reporter;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Local disk spool of the undelivered batches, a ring of append-only segment
+ * files(spool-{seq}.dat), the records are {int size, int crc32, bytes}.</br>
+ * Records are read FIFO and committed after delivered, the read position is
+ * kept in 'spool.pos'. When the number of segments exceeds the limit, the
+ * oldest segment is dropped, so the disk usage is bounded by about
+ * segmentBytes * maxSegments.</br>
+ * Not thread safe, it's only accessed by the reporter thread.
+ * 
+ * @author Wangl.sir <983708408@qq.com>
+ * @version v1.0 2019年9月17日
+ * @since
+ */
+final class DiskSpool implements Closeable {
+	final private static Logger log = LoggerFactory.getLogger(DiskSpool.class);
+
+	final private static String SEGMENT_PREFIX = "spool-";
+	final private static String SEGMENT_SUFFIX = ".dat";
+	final private static int HEADER_BYTES = 8;
+
+	final private File directory;
+	final private long segmentBytes;
+	final private int maxSegments;
+
+	/** Segment files by sequence. */
+	final private TreeMap<Long, File> segments = new TreeMap<>();
+
+	/** Active writing segment. */
+	private FileOutputStream writer;
+	private long writeSeq;
+	private long writeOffset;
+
+	/** Reading position. */
+	private RandomAccessFile reader;
+	private long readerSeq = -1;
+	private long readSeq;
+	private long readOffset;
+	/** Size of the peeked record, -1 if none. */
+	private int peekedSize = -1;
+
+	final private RandomAccessFile position;
+
+	private long droppedSegments;
+
+	DiskSpool(File directory, long segmentBytes, int maxSegments) throws IOException {
+		if (!directory.exists() && !directory.mkdirs()) {
+			throw new IOException("Can not create spool directory: " + directory);
+		}
+		this.directory = directory;
+		this.segmentBytes = segmentBytes;
+		this.maxSegments = Math.max(2, maxSegments);
+		this.position = new RandomAccessFile(new File(directory, "spool.pos"), "rw");
+		recover();
+	}
+
+	/**
+	 * Append a record.
+	 * 
+	 * @param record
+	 * @throws IOException
+	 */
+	void append(byte[] record) throws IOException {
+		if (writeOffset > 0 && writeOffset + HEADER_BYTES + record.length > segmentBytes) {
+			roll();
+		}
+		CRC32 crc = new CRC32();
+		crc.update(record);
+		ByteBuffer buf = ByteBuffer.allocate(HEADER_BYTES + record.length);
+		buf.putInt(record.length).putInt((int) crc.getValue()).put(record);
+		// One write of the whole record, the reader never sees a partial one.
+		writer.write(buf.array());
+		writeOffset += buf.capacity();
+	}
+
+	/**
+	 * Peek the oldest record.
+	 * 
+	 * @return null if empty
+	 * @throws IOException
+	 */
+	byte[] peek() throws IOException {
+		while (true) {
+			if (readSeq == writeSeq && readOffset >= writeOffset) {
+				return null;
+			}
+			long length = readSeq == writeSeq ? writeOffset : getReader().length();
+			if (readOffset + HEADER_BYTES <= length) {
+				RandomAccessFile raf = getReader();
+				raf.seek(readOffset);
+				int size = raf.readInt(), checksum = raf.readInt();
+				if (size >= 0 && readOffset + HEADER_BYTES + size <= length) {
+					byte[] record = new byte[size];
+					raf.readFully(record);
+					CRC32 crc = new CRC32();
+					crc.update(record);
+					if ((int) crc.getValue() == checksum) {
+						peekedSize = size;
+						return record;
+					}
+				}
+				log.warn("Skip corrupted spool segment: {} from offset: {}", segments.get(readSeq), readOffset);
+				if (readSeq == writeSeq) { // Never happen
+					readOffset = writeOffset;
+					continue;
+				}
+			}
+			// End of segment.
+			nextSegment();
+		}
+	}
+
+	/**
+	 * Commit the peeked record as delivered.
+	 * 
+	 * @throws IOException
+	 */
+	void commit() throws IOException {
+		if (peekedSize < 0) {
+			return;
+		}
+		readOffset += HEADER_BYTES + peekedSize;
+		peekedSize = -1;
+		position.seek(0);
+		position.writeLong(readSeq);
+		position.writeLong(readOffset);
+	}
+
+	boolean isEmpty() {
+		return readSeq == writeSeq && readOffset >= writeOffset;
+	}
+
+	/**
+	 * Number of pending bytes(approximately).
+	 * 
+	 * @return
+	 */
+	long getPendingBytes() {
+		long bytes = 0;
+		for (File f : segments.tailMap(readSeq, true).values()) {
+			bytes += f.length();
+		}
+		return Math.max(0, bytes - readOffset);
+	}
+
+	long getDroppedSegments() {
+		return droppedSegments;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			if (reader != null) {
+				reader.close();
+			}
+			writer.close();
+		} finally {
+			position.close();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "DiskSpool [directory=" + directory + ", segments=" + segments.size() + ", readSeq=" + readSeq
+				+ ", readOffset=" + readOffset + ", writeSeq=" + writeSeq + ", writeOffset=" + writeOffset
+				+ ", droppedSegments=" + droppedSegments + "]";
+	}
+
+	private void roll() throws IOException {
+		writer.close();
+		openWriter(writeSeq + 1);
+		while (segments.size() > maxSegments) {
+			// Ring overflow, drop the oldest.
+			long oldest = segments.firstKey();
+			if (oldest == readSeq) {
+				nextSegment();
+			} else {
+				deleteSegment(oldest);
+			}
+			++droppedSegments;
+			log.warn("Spool is full, dropped the oldest segment: {}", oldest);
+		}
+	}
+
+	private void nextSegment() throws IOException {
+		long seq = readSeq;
+		readSeq = segments.higherKey(seq) != null ? segments.higherKey(seq) : writeSeq;
+		readOffset = 0;
+		peekedSize = -1;
+		deleteSegment(seq);
+		position.seek(0);
+		position.writeLong(readSeq);
+		position.writeLong(readOffset);
+	}
+
+	private void deleteSegment(long seq) {
+		if (seq == readerSeq) {
+			closeReader();
+		}
+		File f = segments.remove(seq);
+		if (f != null && !f.delete()) {
+			log.warn("Can not delete spool segment: {}", f);
+		}
+	}
+
+	private RandomAccessFile getReader() throws IOException {
+		if (reader == null || readerSeq != readSeq) {
+			closeReader();
+			reader = new RandomAccessFile(segments.get(readSeq), "r");
+			readerSeq = readSeq;
+		}
+		return reader;
+	}
+
+	private void closeReader() {
+		if (reader != null) {
+			try {
+				reader.close();
+			} catch (IOException e) {
+			}
+			reader = null;
+			readerSeq = -1;
+		}
+	}
+
+	private void openWriter(long seq) throws IOException {
+		File f = new File(directory, SEGMENT_PREFIX + seq + SEGMENT_SUFFIX);
+		writer = new FileOutputStream(f, true);
+		segments.put(seq, f);
+		writeSeq = seq;
+		writeOffset = f.length();
+	}
+
+	private void recover() throws IOException {
+		File[] files = directory.listFiles(f -> f.isFile() && f.getName().startsWith(SEGMENT_PREFIX)
+				&& f.getName().endsWith(SEGMENT_SUFFIX));
+		if (files != null) {
+			for (File f : files) {
+				String name = f.getName();
+				try {
+					segments.put(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())), f);
+				} catch (NumberFormatException e) {
+					log.warn("Skip invalid spool segment: {}", f);
+				}
+			}
+		}
+		if (segments.isEmpty()) {
+			openWriter(0);
+		} else {
+			long last = segments.lastKey();
+			truncateTornTail(segments.get(last));
+			openWriter(last);
+		}
+
+		readSeq = segments.firstKey();
+		readOffset = 0;
+		if (position.length() >= 16) {
+			position.seek(0);
+			long seq = position.readLong(), offset = position.readLong();
+			if (segments.containsKey(seq)) {
+				readSeq = seq;
+				readOffset = Math.max(0, Math.min(offset, segments.get(seq).length()));
+			}
+		}
+		// Segments before the reading one were delivered.
+		while (segments.firstKey() < readSeq) {
+			deleteSegment(segments.firstKey());
+		}
+		if (!isEmpty()) {
+			log.info("Recovered spool: {}, pending bytes: {}", this, getPendingBytes());
+		}
+	}
+
+	/**
+	 * Truncate the partially written record of the crashed writing.
+	 * 
+	 * @param f
+	 * @throws IOException
+	 */
+	private void truncateTornTail(File f) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) {
+			long length = raf.length(), valid = 0;
+			while (valid + HEADER_BYTES <= length) {
+				raf.seek(valid);
+				int size = raf.readInt();
+				if (size < 0 || valid + HEADER_BYTES + size > length) {
+					break;
+				}
+				valid += HEADER_BYTES + size;
+			}
+			if (valid < length) {
+				raf.setLength(valid);
+				log.warn("Truncated torn tail of spool segment: {}, {} -> {}", f, length, valid);
+			}
+		}
+	}
+
+}
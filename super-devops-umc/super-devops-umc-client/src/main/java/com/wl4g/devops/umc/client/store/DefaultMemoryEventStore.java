@@ -15,9 +15,7 @@
  */
 package com.wl4g.devops.umc.client.store;
 
-import java.util.Collections;
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.concurrent.locks.StampedLock;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -25,7 +23,17 @@ import org.slf4j.LoggerFactory;
 import com.wl4g.devops.umc.client.indicator.AbstractAdvancedHealthIndicator.Partition;
 
 /**
- * Memory event store
+ * Memory event store, based on a fixed capacity ring buffer of primitive
+ * values.</br>
+ * <ul>
+ * <li>The largest/least are the heads of monotonic queues, and average is
+ * computed from the running sum, both O(1).</li>
+ * <li>Samples are evicted from the oldest, by capacity or retain time, on
+ * saving(amortized O(1)).</li>
+ * <li>Reads are optimistic, and only hold the read lock briefly to set the
+ * samples of the peeked partition. The samples expired since the last saving
+ * are skipped rather than evicted.</li>
+ * </ul>
  * 
  * @author Wangl.sir <983708408@qq.com>
  * @version v1.0
@@ -43,9 +51,32 @@ public class DefaultMemoryEventStore implements EventStore<Partition> {
 	final public static long DEFAULT_RETAIN = 5 * 60 * 1000;
 	final public static long MAX_RETAIN = DEFAULT_RETAIN * 5;
 
-	final private LinkedList<Partition> records = new LinkedList<>();
-	private int capacity = DEFAULT_CAPACITY;
-	private long retainTime = DEFAULT_RETAIN;
+	final private int capacity;
+
+	/** Retain time of samples, 0 means never expire. */
+	final private long retainTime;
+
+	final private StampedLock lock = new StampedLock();
+
+	/** Ring buffer of samples, indexed by sequence. */
+	final private long[] timestamps;
+	final private long[] values;
+	final private Partition[] records;
+
+	/** Sequence of the oldest sample. */
+	private long head;
+
+	/** Sequence of the next sample. */
+	private long tail;
+
+	/** Sum of the samples values. */
+	private long sum;
+
+	/** Descending values queue. */
+	final private MonotonicQueue maxQueue;
+
+	/** Ascending values queue. */
+	final private MonotonicQueue minQueue;
 
 	public DefaultMemoryEventStore(int capacity, long retainTime) {
 		if (capacity <= 0 || retainTime < 0 || capacity > MAX_CAPACITY || retainTime > MAX_RETAIN)
@@ -55,118 +86,210 @@ public class DefaultMemoryEventStore implements EventStore<Partition> {
 
 		this.capacity = capacity;
 		this.retainTime = retainTime;
+		this.timestamps = new long[capacity];
+		this.values = new long[capacity];
+		this.records = new Partition[capacity];
+		this.maxQueue = new MonotonicQueue(true);
+		this.minQueue = new MonotonicQueue(false);
 	}
 
 	@Override
-	public synchronized void save(Partition part) {
+	public void save(Partition part) {
 		if (logger.isDebugEnabled()) {
 			logger.debug("Save partition:{}", part);
 		}
-		// Timeout clean.
-		this.checkExpiredSampleClean();
-
-		// Overflow clean.
-		if (this.records.size() > (this.capacity - 1)) {
-			// LinkedList<Partition> records0 = this.getASCRecords();
-			// Partition oldLeast = records0.peekFirst();
-			// Partition oldLargest = records0.peekLast();
-			// // Bigger than big.
-			// if (part.compareTo(oldLargest) > 0)
-			// // Remove old largest.
-			// this.records.remove(oldLargest);
-			// // Smaller than small.
-			// if (part.compareTo(oldLeast) < 0)
-			// // Remove old least.
-			// this.records.remove(oldLeast);
-			// else
-			// Default remove first(oldest).
-			this.records.pollFirst();
-		}
+		long value = part.getValue();
+		long stamp = lock.writeLock();
+		try {
+			// Timeout clean.
+			long now = System.currentTimeMillis();
+			while (head < tail && isExpired(timestamps[index(head)], now)) {
+				removeOldest();
+			}
+			// Overflow clean.
+			if (tail - head >= capacity) {
+				removeOldest();
+			}
 
-		// enqueue.
-		this.records.offer(part);
+			// enqueue.
+			int i = index(tail);
+			timestamps[i] = part.getTimestamp();
+			values[i] = value;
+			records[i] = part;
+			sum += value;
+			maxQueue.offer(tail, value);
+			minQueue.offer(tail, value);
+			++tail;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
 	}
 
 	@Override
-	public synchronized Partition largest() {
-		if (!this.records.isEmpty()) {
-			// Expired clean.
-			this.checkExpiredSampleClean();
+	public Partition largest() {
+		return peek(maxQueue);
+	}
 
-			LinkedList<Partition> records0 = this.getASCRecords();
-			Partition part = records0.peekLast();
-			if (part != null) {
-				part.setSamples(records0.size());
-				return part;
-			}
-		}
-		return null;
+	@Override
+	public Partition least() {
+		return peek(minQueue);
 	}
 
 	@Override
-	public synchronized Partition least() {
-		if (!this.records.isEmpty()) {
-			// Expired clean.
-			this.checkExpiredSampleClean();
+	public Partition latest() {
+		return peek(null);
+	}
 
-			LinkedList<Partition> records0 = this.getASCRecords();
-			Partition part = records0.peekFirst();
-			if (part != null) {
-				part.setSamples(records0.size());
-				return part;
+	@Override
+	public long average() {
+		long now = System.currentTimeMillis();
+		long stamp = lock.tryOptimisticRead();
+		long avg = doAverage(now);
+		if (!lock.validate(stamp)) {
+			stamp = lock.readLock();
+			try {
+				avg = doAverage(now);
+			} finally {
+				lock.unlockRead(stamp);
 			}
 		}
-		return null;
+		return avg;
 	}
 
-	@Override
-	public synchronized Partition latest() {
-		if (!this.records.isEmpty()) {
-			// Expired clean.
-			this.checkExpiredSampleClean();
-
-			Partition part = this.records.peekLast();
+	/**
+	 * Peek the head of queue, or the latest if the queue is null. The
+	 * optimistic reading is converted to read lock(or reread under it), so the
+	 * samples of the partition is set consistently with the peeked snapshot.
+	 * 
+	 * @param queue
+	 * @return
+	 */
+	private Partition peek(MonotonicQueue queue) {
+		long now = System.currentTimeMillis();
+		long stamp = lock.tryOptimisticRead();
+		long start = validHead(now), end = tail;
+		Partition part = doPeek(queue, start, end);
+		if ((stamp = lock.tryConvertToReadLock(stamp)) == 0L) {
+			stamp = lock.readLock();
+			start = validHead(now);
+			end = tail;
+			part = doPeek(queue, start, end);
+		}
+		try {
 			if (part != null) {
-				part.setSamples(this.records.size());
-				return part;
+				part.setSamples((int) (end - start));
 			}
+		} finally {
+			lock.unlockRead(stamp);
 		}
-		return null;
+		return part;
 	}
 
-	@Override
-	public long average() {
-		long sum = 0L;
-		Iterator<Partition> it = this.records.iterator();
-		while (it.hasNext()) {
-			sum += it.next().getValue();
+	private Partition doPeek(MonotonicQueue queue, long start, long end) {
+		if (start >= end) {
+			return null;
 		}
-		return (sum / this.records.size());
+		long seq = queue == null ? end - 1 : queue.first(start);
+		return seq < 0 ? null : records[index(seq)];
 	}
 
-	/**
-	 * Check and clean expired sample.
-	 */
-	private void checkExpiredSampleClean() {
-		long now = System.currentTimeMillis();
-		Iterator<Partition> it = this.records.iterator();
-		while (it.hasNext()) {
-			Partition tmpPart = it.next();
-			if (Math.abs(now - tmpPart.getTimestamp()) >= this.retainTime)
-				it.remove();
+	private long doAverage(long now) {
+		long start = validHead(now), end = tail;
+		if (start >= end) {
+			return 0L;
 		}
+		long s = sum;
+		for (long seq = head; seq < start; seq++) {
+			s -= values[index(seq)];
+		}
+		return s / (end - start);
 	}
 
 	/**
-	 * From small to large
+	 * Sequence of the oldest sample not expired.
 	 * 
+	 * @param now
 	 * @return
 	 */
-	@SuppressWarnings("unchecked")
-	private LinkedList<Partition> getASCRecords() {
-		LinkedList<Partition> cloneRecords = (LinkedList<Partition>) this.records.clone();
-		Collections.sort(cloneRecords); // ASC(value)
-		return cloneRecords;
+	private long validHead(long now) {
+		long seq = head, end = tail;
+		// Bounded, in case of inconsistent optimistic reading.
+		for (int n = 0; seq < end && n < capacity && isExpired(timestamps[index(seq)], now); n++) {
+			++seq;
+		}
+		return seq;
+	}
+
+	private void removeOldest() {
+		int i = index(head);
+		sum -= values[i];
+		records[i] = null;
+		maxQueue.pollIfFirst(head);
+		minQueue.pollIfFirst(head);
+		++head;
+	}
+
+	private boolean isExpired(long timestamp, long now) {
+		return retainTime > 0 && Math.abs(now - timestamp) >= retainTime;
+	}
+
+	private int index(long seq) {
+		return (int) (seq % capacity);
+	}
+
+	/**
+	 * Monotonic queue of sample sequences, the values are descending(max
+	 * queue) or ascending(min queue) from the first, so the first sample not
+	 * evicted is the largest(or least).
+	 */
+	private class MonotonicQueue {
+
+		final private boolean descending;
+
+		/** Ring buffer of sequences, it never exceeds the capacity. */
+		final private long[] seqs = new long[capacity];
+
+		private long first;
+
+		private long last;
+
+		private MonotonicQueue(boolean descending) {
+			this.descending = descending;
+		}
+
+		private void offer(long seq, long value) {
+			while (last > first && !precedes(values[index(seqs[index(last - 1)])], value)) {
+				--last;
+			}
+			seqs[index(last++)] = seq;
+		}
+
+		private void pollIfFirst(long seq) {
+			if (last > first && seqs[index(first)] == seq) {
+				++first;
+			}
+		}
+
+		/**
+		 * Gets the first sequence not less than start.
+		 * 
+		 * @param start
+		 * @return sequence, or -1 if none.
+		 */
+		private long first(long start) {
+			for (long i = first, end = last; i < end && i - first < capacity; i++) {
+				long seq = seqs[index(i)];
+				if (seq >= start) {
+					return seq;
+				}
+			}
+			return -1L;
+		}
+
+		private boolean precedes(long v1, long v2) {
+			return descending ? v1 > v2 : v1 < v2;
+		}
+
 	}
 
-}
\ No newline at end of file
+}
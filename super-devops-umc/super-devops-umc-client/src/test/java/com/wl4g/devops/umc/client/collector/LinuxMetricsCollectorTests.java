@@ -0,0 +1,304 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.client.collector;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.wl4g.devops.common.bean.umc.model.proto.MetricModel.Metric;
+import com.wl4g.devops.common.bean.umc.model.proto.MetricModel.MetricAggregate;
+import com.wl4g.devops.umc.client.collector.LinuxMetricsCollector.MemoryStat;
+
+/**
+ * {@link LinuxMetricsCollector} tests against the fixture trees of /proc and
+ * cgroup(v1/v2) in `src/test/resources/collector`, the `sample2` tree is
+ * copied over the `sample1` tree 2 seconds(monotonic time) later.
+ *
+ * @author Wangl.sir <983708408@qq.com>
+ * @version v1.0 2019年9月18日
+ * @since
+ */
+public class LinuxMetricsCollectorTests {
+
+	final private static double DELTA = 1e-6;
+
+	/** Monotonic time of the 2 samples. */
+	final private static long T1 = 1000_000_000L, T2 = T1 + 2000_000_000L;
+
+	private Path root;
+
+	@Before
+	public void copySample1() throws Exception {
+		root = Files.createTempDirectory("collector");
+		copy("sample1");
+	}
+
+	@After
+	public void cleanup() throws IOException {
+		try (Stream<Path> paths = Files.walk(root)) {
+			paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+		}
+	}
+
+	@Test
+	public void testHostCpuAndMemory() throws Exception {
+		LinuxMetricsCollector collector = createCollector(null);
+		assertTrue(collector.isSupported());
+
+		// The first sample is the average since boot.
+		MetricAggregate aggregate = collector.collect(T1);
+		assertEquals(LinuxMetricsCollector.CLASSIFY, aggregate.getClassify());
+		assertEquals("test-instance", aggregate.getInstance());
+		assertEquals(15.625d, value(aggregate, "basic.cpu.used"), DELTA);
+		assertEquals(2d, value(aggregate, "basic.cpu.cores"), DELTA);
+		assertEquals(8000000 * 1024d, value(aggregate, "basic.mem.total"), DELTA);
+		assertEquals(5000000 * 1024d, value(aggregate, "basic.mem.available"), DELTA);
+		assertEquals(3000000 * 1024d, value(aggregate, "basic.mem.used"), DELTA);
+		assertEquals(37.5d, value(aggregate, "basic.mem.used.percent"), DELTA);
+		assertEquals(3000000 * 1024d, value(aggregate, "basic.mem.cached"), DELTA);
+		assertEquals(1500000 * 1024d, value(aggregate, "basic.swap.free"), DELTA);
+		assertNull(find(aggregate, "basic.cgroup.mem.usage", null, null));
+		assertNull(find(aggregate, "basic.cgroup.cpu.used", null, null));
+
+		copy("sample2");
+		aggregate = collector.collect(T2);
+		assertEquals(45d, value(aggregate, "basic.cpu.used"), DELTA);
+		assertEquals(30d, value(aggregate, "basic.cpu.user"), DELTA);
+		assertEquals(15d, value(aggregate, "basic.cpu.system"), DELTA);
+		assertEquals(5d, value(aggregate, "basic.cpu.iowait"), DELTA);
+		assertEquals(0d, value(aggregate, "basic.cpu.steal"), DELTA);
+
+		MemoryStat mem = collector.memory();
+		assertFalse(mem.isLimited());
+		assertEquals(8000000 * 1024L, mem.getTotal());
+		assertEquals(1000000 * 1024L, mem.getFree());
+		assertEquals(5000000 * 1024L, mem.getAvailable());
+		assertEquals(200000 * 1024L, mem.getBuffers());
+	}
+
+	@Test
+	public void testWithoutMemAvailable() throws Exception {
+		// Kernels before 3.14
+		write("proc/meminfo", "MemTotal: 8000000 kB\nMemFree: 1000000 kB\nBuffers: 200000 kB\nCached: 3000000 kB\n");
+		MemoryStat mem = createCollector(null).memory();
+		assertEquals((1000000 + 200000 + 3000000) * 1024L, mem.getAvailable());
+	}
+
+	@Test
+	public void testDiskAndNetworkRates() throws Exception {
+		LinuxMetricsCollector collector = createCollector(null);
+
+		// Rates are available since the second sample.
+		MetricAggregate aggregate = collector.collect(T1);
+		assertNull(find(aggregate, "basic.disk.read.ops", "device", "sda"));
+		assertNull(find(aggregate, "basic.net.rx.bytes", "interface", "eth0"));
+
+		copy("sample2");
+		aggregate = collector.collect(T2);
+		assertEquals(100d, value(aggregate, "basic.disk.read.ops", "device", "sda"), DELTA);
+		assertEquals(4000 * 512 / 2d, value(aggregate, "basic.disk.read.bytes", "device", "sda"), DELTA);
+		assertEquals(200d, value(aggregate, "basic.disk.write.ops", "device", "sda"), DELTA);
+		assertEquals(8000 * 512 / 2d, value(aggregate, "basic.disk.write.bytes", "device", "sda"), DELTA);
+		assertEquals(25d, value(aggregate, "basic.disk.util", "device", "sda"), DELTA);
+		assertEquals(100d, value(aggregate, "basic.disk.read.ops", "device", "sda1"), DELTA);
+		// Loop and inactive devices are skipped.
+		assertNull(find(aggregate, "basic.disk.read.ops", "device", "loop0"));
+		assertNull(find(aggregate, "basic.disk.read.ops", "device", "sdb"));
+
+		assertEquals(1000000d, value(aggregate, "basic.net.rx.bytes", "interface", "eth0"), DELTA);
+		assertEquals(1000d, value(aggregate, "basic.net.rx.packets", "interface", "eth0"), DELTA);
+		assertEquals(1d, value(aggregate, "basic.net.rx.errors", "interface", "eth0"), DELTA);
+		assertEquals(0d, value(aggregate, "basic.net.rx.drops", "interface", "eth0"), DELTA);
+		assertEquals(500000d, value(aggregate, "basic.net.tx.bytes", "interface", "eth0"), DELTA);
+		assertEquals(500d, value(aggregate, "basic.net.tx.packets", "interface", "eth0"), DELTA);
+		assertEquals(1d, value(aggregate, "basic.net.tx.drops", "interface", "eth0"), DELTA);
+		assertNull(find(aggregate, "basic.net.rx.bytes", "interface", "lo"));
+
+		// Removed device, and the reset counters are skipped.
+		write("proc/diskstats", "   8       0 sda 10 0 100 1 10 0 100 1 0 1 2 0 0 0 0 0 0\n");
+		aggregate = collector.collect(T2 + 1000_000_000L);
+		assertNull(find(aggregate, "basic.disk.read.ops", "device", "sda"));
+		assertNull(find(aggregate, "basic.disk.read.ops", "device", "sda1"));
+	}
+
+	@Test
+	public void testCgroupV1Unlimited() throws Exception {
+		LinuxMetricsCollector collector = createCollector("cgroup-v1");
+		MetricAggregate aggregate = collector.collect(T1);
+		assertEquals(1000000000d, value(aggregate, "basic.cgroup.mem.usage"), DELTA);
+		assertEquals(900000000d, value(aggregate, "basic.cgroup.mem.working_set"), DELTA);
+		// Unlimited
+		assertNull(find(aggregate, "basic.cgroup.mem.limit", null, null));
+		assertNull(find(aggregate, "basic.cgroup.cpu.limit", null, null));
+		assertFalse(collector.memory().isLimited());
+
+		copy("sample2");
+		aggregate = collector.collect(T2);
+		// 2s of 2 online cores.
+		assertEquals(50d, value(aggregate, "basic.cgroup.cpu.used"), DELTA);
+	}
+
+	@Test
+	public void testCgroupV2Limited() throws Exception {
+		LinuxMetricsCollector collector = createCollector("cgroup-v2");
+		MetricAggregate aggregate = collector.collect(T1);
+		assertEquals(1.5d, value(aggregate, "basic.cgroup.cpu.limit"), DELTA);
+		assertEquals(2147483648d, value(aggregate, "basic.cgroup.mem.limit"), DELTA);
+		assertEquals(800000000d, value(aggregate, "basic.cgroup.mem.working_set"), DELTA);
+		assertEquals(800000000d * 100 / 2147483648d, value(aggregate, "basic.cgroup.mem.used.percent"), DELTA);
+
+		MemoryStat mem = collector.memory();
+		assertTrue(mem.isLimited());
+		assertEquals(2147483648L, mem.getTotal());
+		assertEquals(2147483648L - 800000000L, mem.getAvailable());
+		assertEquals(273741824L, mem.getCached());
+
+		copy("sample2");
+		aggregate = collector.collect(T2);
+		// 1.5s of 1.5 limited cores in 2s.
+		assertEquals(50d, value(aggregate, "basic.cgroup.cpu.used"), DELTA);
+	}
+
+	@Test
+	public void testCgroupV2UnlimitedMax() throws Exception {
+		write("cgroup-v2/cpu.max", "max 100000\n");
+		write("cgroup-v2/memory.max", "max\n");
+		LinuxMetricsCollector collector = createCollector("cgroup-v2");
+		MetricAggregate aggregate = collector.collect(T1);
+		assertNull(find(aggregate, "basic.cgroup.cpu.limit", null, null));
+		assertNull(find(aggregate, "basic.cgroup.mem.limit", null, null));
+		assertNotNull(find(aggregate, "basic.cgroup.mem.usage", null, null));
+		assertFalse(collector.memory().isLimited());
+	}
+
+	@Test
+	public void testCpuUsageIndependentOfCollect() throws Exception {
+		LinuxMetricsCollector collector = createCollector("cgroup-v2");
+		collector.collect(T1);
+		// Since boot, the cgroup usage is not yet available.
+		assertEquals(15.625d, collector.cpuUsage(T1), DELTA);
+
+		copy("sample2");
+		assertEquals(50d, collector.cpuUsage(T2), DELTA);
+		// The probe above doesn't consume the interval of collecting.
+		MetricAggregate aggregate = collector.collect(T2);
+		assertEquals(30d, value(aggregate, "basic.cpu.user"), DELTA);
+		assertEquals(50d, value(aggregate, "basic.cgroup.cpu.used"), DELTA);
+	}
+
+	@Test
+	public void testCollectIndependentOfCpuUsage() throws Exception {
+		LinuxMetricsCollector collector = createCollector(null);
+		assertEquals(15.625d, collector.cpuUsage(T1), DELTA);
+
+		copy("sample2");
+		// The first collecting is the average since boot.
+		MetricAggregate aggregate = collector.collect(T2);
+		assertEquals(2400 * 100 / 11600d, value(aggregate, "basic.cpu.used"), DELTA);
+		// The collecting above doesn't consume the interval of probing.
+		assertEquals(45d, collector.cpuUsage(T2), DELTA);
+	}
+
+	@Test
+	public void testCpuUsageProbesIndependent() throws Exception {
+		LinuxMetricsCollector collector = createCollector(null);
+		assertEquals(15.625d, collector.cpuUsage("probe1", T1), DELTA);
+		assertEquals(15.625d, collector.cpuUsage("probe2", T1), DELTA);
+
+		copy("sample2");
+		assertEquals(45d, collector.cpuUsage("probe1", T2), DELTA);
+		// The probe above doesn't consume the interval of the other probe.
+		assertEquals(45d, collector.cpuUsage("probe2", T2), DELTA);
+		// Nothing changed since the previous sampling of the probe.
+		assertEquals(45d, collector.cpuUsage("probe1", T2), DELTA);
+		// New probe is the average since boot.
+		assertEquals(collector.cpuUsage(T2), collector.cpuUsage("probe3", T2), DELTA);
+	}
+
+	@Test
+	public void testUnsupported() throws Exception {
+		LinuxMetricsCollector collector = new LinuxMetricsCollector(root.resolve("missing").toString(), null, "test-instance",
+				null);
+		assertFalse(collector.isSupported());
+		MetricAggregate aggregate = collector.collect(T1);
+		assertNull(find(aggregate, "basic.cpu.used", null, null));
+		assertEquals(0d, value(aggregate, "basic.mem.total"), DELTA);
+		assertEquals(0d, collector.cpuUsage(T1), DELTA);
+	}
+
+	private LinuxMetricsCollector createCollector(String cgroup) {
+		return new LinuxMetricsCollector(root.resolve("proc").toString(),
+				cgroup == null ? null : root.resolve(cgroup).toString(), "test-instance", "test");
+	}
+
+	/**
+	 * Copy the fixture tree over the root.
+	 */
+	private void copy(String sample) throws Exception {
+		Path source = Paths.get(getClass().getResource("/collector/" + sample).toURI());
+		try (Stream<Path> paths = Files.walk(source)) {
+			for (Path path : (Iterable<Path>) paths::iterator) {
+				Path target = root.resolve(source.relativize(path).toString());
+				if (Files.isDirectory(path)) {
+					Files.createDirectories(target);
+				} else {
+					Files.copy(path, target, StandardCopyOption.REPLACE_EXISTING);
+				}
+			}
+		}
+	}
+
+	private void write(String file, String content) throws IOException {
+		Files.write(root.resolve(file), content.getBytes(US_ASCII));
+	}
+
+	private static double value(MetricAggregate aggregate, String metric) {
+		return value(aggregate, metric, null, null);
+	}
+
+	private static double value(MetricAggregate aggregate, String metric, String tagKey, String tagValue) {
+		Metric m = find(aggregate, metric, tagKey, tagValue);
+		assertNotNull("No metric: " + metric + " " + tagValue, m);
+		return m.getValue();
+	}
+
+	private static Metric find(MetricAggregate aggregate, String metric, String tagKey, String tagValue) {
+		for (Metric m : aggregate.getMetricsList()) {
+			if (m.getMetric().equals(metric) && (tagKey == null || tagValue.equals(m.getTagsMap().get(tagKey)))) {
+				return m;
+			}
+		}
+		return null;
+	}
+
+}
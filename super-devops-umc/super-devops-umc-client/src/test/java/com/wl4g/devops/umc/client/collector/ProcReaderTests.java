@@ -0,0 +1,143 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.client.collector;
+
+import static com.wl4g.devops.umc.client.collector.ProcReader.NONE;
+import static com.wl4g.devops.umc.client.collector.ProcReader.key;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * {@link ProcReader} parsing tests.
+ *
+ * @author Wangl.sir <983708408@qq.com>
+ * @version v1.0 2019年9月18日
+ * @since
+ */
+public class ProcReaderTests {
+
+	private File file;
+
+	private ProcReader reader = new ProcReader();
+
+	@Before
+	public void createFile() throws IOException {
+		file = File.createTempFile("proc", "");
+	}
+
+	@After
+	public void deleteFile() {
+		file.delete();
+	}
+
+	@Test
+	public void testNumbersAndLines() throws IOException {
+		load("cpu  1 22 333\tcpu0 -4 max 5\n\nlast 6");
+		assertTrue(reader.consume(key("cpu ")));
+		assertEquals(1L, reader.nextLong());
+		assertEquals(22L, reader.nextLong());
+		assertEquals(333L, reader.nextLong());
+		// Non numeric tokens are skipped.
+		assertEquals(NONE, reader.nextLong());
+		assertEquals(-4L, reader.nextLong());
+		assertEquals(NONE, reader.nextLong());
+		assertEquals(5L, reader.nextLong());
+		// Line is ended.
+		assertEquals(NONE, reader.nextLong());
+
+		reader.nextLine();
+		assertTrue(reader.hasMore());
+		assertNull(reader.nextToken()); // Empty line
+		reader.nextLine();
+		assertFalse(reader.consume(key("lastline")));
+		assertTrue(reader.consume(key("last")));
+		assertEquals(6L, reader.nextLong());
+		assertFalse(reader.hasMore());
+		assertEquals(NONE, reader.nextLong());
+		reader.nextLine();
+		assertFalse(reader.hasMore());
+	}
+
+	@Test
+	public void testTokens() throws IOException {
+		// Large counters are joined to the interface name by older kernels.
+		load("  eth0: 100 2\n  eth1:4294967296 3\n");
+		assertEquals("eth0", reader.nextToken());
+		assertEquals(100L, reader.nextLong());
+		assertEquals(2L, reader.nextLong());
+		reader.nextLine();
+		assertEquals("eth1", reader.nextToken());
+		assertEquals(4294967296L, reader.nextLong());
+		assertEquals(3L, reader.nextLong());
+		assertNull(reader.nextToken());
+	}
+
+	@Test
+	public void testConsumeOnlyAtCursor() throws IOException {
+		load("SwapCached: 1 kB\nCached: 2 kB\n");
+		assertFalse(reader.consume(key("Cached:")));
+		reader.nextLine();
+		assertTrue(reader.consume(key("Cached:")));
+		assertEquals(2L, reader.nextLong());
+	}
+
+	@Test
+	public void testReadLong() throws IOException {
+		write("9223372036854771712\n");
+		assertEquals(9223372036854771712L, reader.readLong(file));
+		write("max\n");
+		assertEquals(NONE, reader.readLong(file));
+		assertEquals(NONE, reader.readLong(new File(file.getParentFile(), file.getName() + ".missing")));
+		assertFalse(reader.load(new File(file.getParentFile(), file.getName() + ".missing")));
+		assertFalse(reader.hasMore());
+	}
+
+	@Test
+	public void testGrowBuffer() throws IOException {
+		StringBuilder content = new StringBuilder();
+		for (int i = 0; i < 5000; i++) {
+			content.append("line ").append(i).append('\n');
+		}
+		load(content.toString());
+		int lines = 0;
+		for (; reader.hasMore(); reader.nextLine()) {
+			assertTrue(reader.consume(key("line ")));
+			assertEquals(lines++, reader.nextLong());
+		}
+		assertEquals(5000, lines);
+	}
+
+	private void load(String content) throws IOException {
+		write(content);
+		assertTrue(reader.load(file));
+	}
+
+	private void write(String content) throws IOException {
+		Files.write(file.toPath(), content.getBytes(US_ASCII));
+	}
+
+}
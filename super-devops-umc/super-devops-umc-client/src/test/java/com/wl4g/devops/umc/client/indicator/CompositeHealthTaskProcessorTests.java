@@ -0,0 +1,153 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.client.indicator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * {@link CompositeHealthTaskProcessor} tests, the deadline(cancellation) of
+ * runs, the overruns of the tasks ignoring cancellation, and the statistics.
+ *
+ * @author Wangl.sir <983708408@qq.com>
+ * @version v1.0 2019年9月18日
+ * @since
+ */
+public class CompositeHealthTaskProcessorTests {
+
+	final private static long TIMEOUT_MS = 5_000L;
+
+	final private CompositeHealthTaskProcessor processor = new CompositeHealthTaskProcessor();
+
+	@Before
+	public void start() throws Exception {
+		processor.afterPropertiesSet();
+	}
+
+	@After
+	public void stop() throws Exception {
+		processor.destroy();
+	}
+
+	@Test
+	public void testStatistics() throws Exception {
+		AtomicInteger calls = new AtomicInteger(0);
+		processor.submit("ok", () -> calls.incrementAndGet(), 20L, 1_000L);
+		processor.submit("failed", () -> {
+			throw new IllegalStateException("Probe failed");
+		}, 20L, 1_000L);
+		// Repeated submission of the same name is ignored.
+		processor.submit("ok", () -> calls.addAndGet(1000), 20L, 1_000L);
+
+		awaitStatistic("ok", "runs", 3);
+		awaitStatistic("failed", "failures", 3);
+		assertTrue(calls.get() < 1000);
+		assertEquals(2, processor.getStatistics().size());
+		assertNull(processor.getStatistics("unknown"));
+
+		Map<String, Object> ok = processor.getStatistics("ok");
+		assertEquals(20L, ok.get("periodMs"));
+		assertEquals(1_000L, ok.get("timeoutMs"));
+		assertEquals(0L, ok.get("failures"));
+		assertEquals(0L, ok.get("timeouts"));
+		Map<String, Object> failed = processor.getStatistics("failed");
+		assertEquals(failed.get("runs"), failed.get("failures"));
+	}
+
+	@Test
+	public void testCancelOverrunning() throws Exception {
+		CountDownLatch interrupted = new CountDownLatch(1);
+		processor.submit("hanging", () -> {
+			try {
+				Thread.sleep(60_000L);
+			} catch (InterruptedException e) {
+				interrupted.countDown();
+			}
+		}, 50L, 100L);
+
+		assertTrue("Not cancelled", interrupted.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+		awaitStatistic("hanging", "timeouts", 1);
+		awaitStatistic("hanging", "runs", 1);
+		// Cancelled run isn't a failure.
+		assertEquals(0L, processor.getStatistics("hanging").get("failures"));
+		long elapsed = (long) processor.getStatistics("hanging").get("maxElapsedMs");
+		assertTrue("Elapsed: " + elapsed, elapsed >= 50L && elapsed < TIMEOUT_MS);
+	}
+
+	@Test
+	public void testAtMostOneRunInFlight() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger inflight = new AtomicInteger(0);
+		AtomicInteger maxInflight = new AtomicInteger(0);
+		// Ignoring cancellation, e.g. blocked on I/O.
+		processor.submit("stuck", () -> {
+			maxInflight.accumulateAndGet(inflight.incrementAndGet(), Math::max);
+			try {
+				while (release.getCount() > 0) {
+					try {
+						release.await();
+					} catch (InterruptedException e) {
+						// Ignore
+					}
+				}
+			} finally {
+				inflight.decrementAndGet();
+			}
+		}, 20L, 100L);
+
+		awaitStatistic("stuck", "timeouts", 1);
+		awaitStatistic("stuck", "overruns", 5);
+		assertEquals(0L, processor.getStatistics("stuck").get("runs"));
+
+		// Runs again after the stuck run released.
+		release.countDown();
+		awaitStatistic("stuck", "runs", 3);
+		assertEquals(1, maxInflight.get());
+	}
+
+	/**
+	 * Wait for the statistic of task reaching the minimum.
+	 * 
+	 * @param name
+	 * @param key
+	 * @param min
+	 * @throws InterruptedException
+	 */
+	private void awaitStatistic(String name, String key, long min) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+		long value;
+		while ((value = statisticOf(name, key)) < min) {
+			assertTrue(name + "." + key + ": " + value + " < " + min, System.currentTimeMillis() < deadline);
+			Thread.sleep(10L);
+		}
+	}
+
+	private long statisticOf(String name, String key) {
+		Map<String, Object> stats = processor.getStatistics(name);
+		return stats == null ? 0L : (long) stats.get(key);
+	}
+
+}
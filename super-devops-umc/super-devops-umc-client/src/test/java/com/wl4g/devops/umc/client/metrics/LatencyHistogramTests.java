@@ -0,0 +1,82 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.client.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * {@link LatencyHistogram} tests, the relative error of the buckets and the
+ * percentiles of snapshots.
+ *
+ * @author Wangl.sir <983708408@qq.com>
+ * @version v1.0 2019年9月18日
+ * @since
+ */
+public class LatencyHistogramTests {
+
+	/** Documented worst-case relative error. */
+	final private static double MAX_ERROR = 1d / 64;
+
+	@Test
+	public void testRelativeError() {
+		Random random = new Random(1L);
+		double worst = 0d;
+		for (int i = 0; i < 1_000_000; i++) {
+			long value = (long) Math.pow(2, random.nextDouble() * 42) & LatencyHistogram.MAX_VALUE;
+			long highest = LatencyHistogram.highestValueOf(LatencyHistogram.indexOf(value));
+			assertTrue(value + " > " + highest, highest >= value);
+			if (value > 0) {
+				worst = Math.max(worst, (double) (highest - value) / value);
+			}
+		}
+		assertTrue("Worst relative error: " + worst, worst <= MAX_ERROR);
+	}
+
+	@Test
+	public void testExactSmallValues() {
+		// Values less than the sub-buckets count are exact.
+		for (long value = 0; value < 128; value++) {
+			assertEquals(value, LatencyHistogram.highestValueOf(LatencyHistogram.indexOf(value)));
+		}
+	}
+
+	@Test
+	public void testSnapshotPercentiles() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (long millis = 1; millis <= 1000; millis++) {
+			histogram.record(millis * 1000_000L);
+		}
+		LatencyRecorder.Snapshot snapshot = histogram.snapshotAndReset("test", 0L, 1L);
+		assertEquals(1000, snapshot.getCount());
+		assertEquals(1000_000L, snapshot.getMin());
+		assertEquals(1000_000_000L, snapshot.getMax());
+		assertPercentile(500_000_000L, snapshot.getValueAtPercentile(50));
+		assertPercentile(990_000_000L, snapshot.getValueAtPercentile(99));
+
+		// Reset.
+		assertEquals(0, histogram.snapshotAndReset("test", 1L, 2L).getCount());
+	}
+
+	private static void assertPercentile(long expected, long actual) {
+		assertTrue(expected + " vs " + actual, Math.abs(actual - expected) <= expected * MAX_ERROR);
+	}
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.client.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * {@link LatencyRecorder} tests, the interval flip with concurrent recording
+ * neither loses nor double counts the values.
+ *
+ * @author Wangl.sir <983708408@qq.com>
+ * @version v1.0 2019年9月18日
+ * @since
+ */
+public class LatencyRecorderTests {
+
+	final private static int WRITERS = 4;
+
+	final private static int RECORDS = 200_000;
+
+	/** All writers record the same value, so a torn snapshot has other mean. */
+	final private static long VALUE = 1000_000L;
+
+	@Test
+	public void testIntervalFlipWithConcurrentRecording() throws Exception {
+		LatencyRecorder recorder = new LatencyRecorder("test");
+		ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+		try {
+			CountDownLatch start = new CountDownLatch(1);
+			List<Future<?>> writers = new ArrayList<>(WRITERS);
+			for (int i = 0; i < WRITERS; i++) {
+				writers.add(executor.submit(() -> {
+					start.await();
+					for (int j = 0; j < RECORDS; j++) {
+						recorder.record(VALUE);
+					}
+					return null;
+				}));
+			}
+
+			start.countDown();
+			long total = 0;
+			int intervals = 0;
+			while (!writers.stream().allMatch(f -> f.isDone())) {
+				total += assertSnapshot(recorder.intervalSnapshot());
+				++intervals;
+			}
+			for (Future<?> writer : writers) {
+				writer.get(10, TimeUnit.SECONDS); // Propagate failures
+			}
+			total += assertSnapshot(recorder.intervalSnapshot());
+
+			assertTrue("Intervals: " + intervals, intervals > 0);
+			assertEquals((long) WRITERS * RECORDS, total);
+			assertEquals(0, recorder.intervalSnapshot().getCount());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testIntervalsAreDisjoint() {
+		LatencyRecorder recorder = new LatencyRecorder("test");
+		recorder.record(1000L);
+		recorder.record(3000L);
+		LatencyRecorder.Snapshot first = recorder.intervalSnapshot();
+		recorder.record(5000L);
+		LatencyRecorder.Snapshot second = recorder.intervalSnapshot();
+
+		assertEquals(2, first.getCount());
+		assertEquals(2000L, first.getMean());
+		assertEquals(1, second.getCount());
+		assertEquals(5000L, second.getMean());
+		assertTrue(second.getStartTime() >= first.getEndTime());
+	}
+
+	/**
+	 * Assert the snapshot is consistent, and gets its count.
+	 *
+	 * @param snapshot
+	 * @return
+	 */
+	private static long assertSnapshot(LatencyRecorder.Snapshot snapshot) {
+		if (snapshot.getCount() > 0) {
+			assertEquals(VALUE, snapshot.getMean());
+			assertEquals(VALUE, snapshot.getMin());
+			assertEquals(VALUE, snapshot.getMax());
+		}
+		return snapshot.getCount();
+	}
+
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.client.reporter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.zip.GZIPInputStream;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.startup.Tomcat;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.protobuf.CodedInputStream;
+import com.wl4g.devops.common.bean.umc.model.proto.MetricBatchCodec;
+import com.wl4g.devops.common.bean.umc.model.proto.MetricModel.Metric;
+import com.wl4g.devops.common.bean.umc.model.proto.MetricModel.MetricAggregate;
+import com.wl4g.devops.umc.client.reporter.BatchMetricReporter.ReporterProperties;
+
+/**
+ * {@link BatchMetricReporter} tests against a stub receiver, the batches
+ * spooled while the receiver is down are replayed in order after it's back,
+ * and no batch is sent while backing off.
+ *
+ * @author Wangl.sir <983708408@qq.com>
+ * @version v1.0 2019年9月18日
+ * @since
+ */
+public class BatchMetricReporterTests {
+
+	final private static int BATCH_SIZE = 10;
+
+	final private static long TIMEOUT_MS = 10_000L;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/** Whether the stub receiver accepts the batches. */
+	private volatile boolean available = true;
+
+	/** Number of the requests to the stub receiver. */
+	final private AtomicInteger requests = new AtomicInteger(0);
+
+	/** Timestamps of the accepted aggregates, in order. */
+	final private List<Long> received = new ArrayList<>();
+
+	private Tomcat tomcat;
+
+	private ReporterProperties config;
+
+	private BatchMetricReporter reporter;
+
+	@Before
+	public void setup() throws Exception {
+		tomcat = new Tomcat();
+		tomcat.setPort(0);
+		tomcat.setBaseDir(folder.newFolder("tomcat").getPath());
+		Context context = tomcat.addContext("", null);
+		Tomcat.addServlet(context, "receiver", new HttpServlet() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+				requests.incrementAndGet();
+				if (!available) {
+					resp.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+					return;
+				}
+				receive(req.getInputStream());
+				resp.setStatus(HttpServletResponse.SC_ACCEPTED);
+			}
+		});
+		context.addServletMappingDecoded("/batch", "receiver");
+		tomcat.start();
+
+		config = new ReporterProperties();
+		config.setReceiverUrl("http://127.0.0.1:" + tomcat.getConnector().getLocalPort() + "/batch");
+		config.setInstance("test");
+		config.setBatchMaxAggregates(BATCH_SIZE);
+		config.setFlushIntervalMs(20L);
+		config.setSpoolDir(folder.newFolder("spool").getPath());
+		config.setReplayBatches(2);
+	}
+
+	@After
+	public void shutdown() throws Exception {
+		if (reporter != null) {
+			reporter.close();
+		}
+		tomcat.stop();
+		tomcat.destroy();
+	}
+
+	@Test
+	public void testDelivered() throws Exception {
+		reporter = new BatchMetricReporter(config);
+		reportAll(0, BATCH_SIZE * 5);
+		await(() -> getReceived().size() == BATCH_SIZE * 5);
+		assertEquals(range(0, BATCH_SIZE * 5), getReceived());
+	}
+
+	@Test
+	public void testReplayInOrderAfterReceiverBack() throws Exception {
+		config.setRetryBackoffMs(100L);
+		config.setMaxBackoffMs(100L);
+		reporter = new BatchMetricReporter(config);
+
+		available = false;
+		reportAll(0, BATCH_SIZE * 6);
+		await(() -> requests.get() >= 2); // Failed and retried
+		reportAll(BATCH_SIZE * 6, BATCH_SIZE * 10);
+
+		available = true;
+		// The spooled ones are replayed in order, and the new ones follow them.
+		await(() -> getReceived().size() == BATCH_SIZE * 10);
+		reportAll(BATCH_SIZE * 10, BATCH_SIZE * 12);
+		await(() -> getReceived().size() == BATCH_SIZE * 12);
+		assertEquals(range(0, BATCH_SIZE * 12), getReceived());
+	}
+
+	@Test
+	public void testBackoffHoldsWhileReceiverDown() throws Exception {
+		config.setRetryBackoffMs(60_000L);
+		reporter = new BatchMetricReporter(config);
+
+		available = false;
+		reportAll(0, BATCH_SIZE);
+		await(() -> requests.get() == 1);
+		// Many flushes later, nothing is sent until the back-off expires.
+		for (int i = 0; i < 10; i++) {
+			reportAll(BATCH_SIZE * (i + 1), BATCH_SIZE * (i + 2));
+			Thread.sleep(config.getFlushIntervalMs() * 2);
+		}
+		assertEquals(1, requests.get());
+		assertEquals(0, reporter.getDropped());
+		assertEquals(BATCH_SIZE * 11, reporter.getReported());
+	}
+
+	@Test
+	public void testCloseFlushesQueued() throws Exception {
+		config.setFlushIntervalMs(60_000L);
+		reporter = new BatchMetricReporter(config);
+		reportAll(0, BATCH_SIZE / 2); // Less than a batch
+		reporter.close();
+		reporter = null;
+		assertEquals(range(0, BATCH_SIZE / 2), getReceived());
+	}
+
+	@Test
+	public void testSpooledReplayedAfterRestart() throws Exception {
+		config.setRetryBackoffMs(60_000L);
+		reporter = new BatchMetricReporter(config);
+		available = false;
+		reportAll(0, BATCH_SIZE * 3);
+		await(() -> requests.get() == 1);
+		reporter.close(); // Spooled during back-off
+
+		available = true;
+		config.setRetryBackoffMs(100L);
+		reporter = new BatchMetricReporter(config);
+		await(() -> getReceived().size() == BATCH_SIZE * 3);
+		assertEquals(range(0, BATCH_SIZE * 3), getReceived());
+	}
+
+	private void reportAll(int from, int to) {
+		for (int i = from; i < to; i++) {
+			assertTrue(reporter.report(MetricAggregate.newBuilder().setClassify("basic").setInstance("test").setTimestamp(i)
+					.addMetrics(Metric.newBuilder().setMetric("basic.cpu").setValue(i)).build()));
+		}
+	}
+
+	private void receive(InputStream body) throws IOException {
+		CodedInputStream in = CodedInputStream.newInstance(new GZIPInputStream(body));
+		List<Long> timestamps = new ArrayList<>();
+		while (!in.isAtEnd()) {
+			for (MetricAggregate aggregate : MetricBatchCodec.decode(in.readByteArray())) {
+				timestamps.add(aggregate.getTimestamp());
+			}
+		}
+		synchronized (received) {
+			received.addAll(timestamps);
+		}
+	}
+
+	private List<Long> getReceived() {
+		synchronized (received) {
+			return new ArrayList<>(received);
+		}
+	}
+
+	private static void await(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+		while (!condition.getAsBoolean()) {
+			assertTrue("Timeout waiting for condition", System.currentTimeMillis() < deadline);
+			Thread.sleep(10L);
+		}
+	}
+
+	private static List<Long> range(long from, long to) {
+		List<Long> values = new ArrayList<>();
+		for (long i = from; i < to; i++) {
+			values.add(i);
+		}
+		return values;
+	}
+
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.client.reporter;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * {@link DiskSpool} tests, the records are read FIFO across segments and
+ * reopening, a torn tail is truncated, and the oldest segments are dropped on
+ * ring overflow.
+ *
+ * @author Wangl.sir <983708408@qq.com>
+ * @version v1.0 2019年9月18日
+ * @since
+ */
+public class DiskSpoolTests {
+
+	/** Record bytes, 48 bytes with the header. */
+	final private static int RECORD_BYTES = 40;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testFifoAcrossSegments() throws Exception {
+		try (DiskSpool spool = new DiskSpool(folder.getRoot(), 200, 8)) {
+			appendAll(spool, 0, 10);
+			assertEquals(range(0, 10), readAll(spool));
+			assertTrue(spool.isEmpty());
+			assertEquals(0, spool.getDroppedSegments());
+		}
+	}
+
+	@Test
+	public void testPeekWithoutCommit() throws Exception {
+		try (DiskSpool spool = new DiskSpool(folder.getRoot(), 200, 8)) {
+			appendAll(spool, 0, 2);
+			assertEquals(0, spool.peek()[0]);
+			assertEquals(0, spool.peek()[0]); // Not committed
+			spool.commit();
+			assertEquals(1, spool.peek()[0]);
+		}
+	}
+
+	@Test
+	public void testReopenRecovery() throws Exception {
+		try (DiskSpool spool = new DiskSpool(folder.getRoot(), 200, 8)) {
+			appendAll(spool, 0, 10);
+			for (int i = 0; i < 5; i++) {
+				assertEquals(i, spool.peek()[0]);
+				spool.commit();
+			}
+			assertEquals(5, spool.peek()[0]); // Peeked only, delivered again.
+		}
+
+		try (DiskSpool spool = new DiskSpool(folder.getRoot(), 200, 8)) {
+			assertEquals(range(5, 10), readAll(spool));
+			// Appending continues after reopening.
+			appendAll(spool, 10, 12);
+			assertEquals(range(10, 12), readAll(spool));
+		}
+
+		try (DiskSpool spool = new DiskSpool(folder.getRoot(), 200, 8)) {
+			assertNull(spool.peek());
+			assertTrue(spool.isEmpty());
+		}
+	}
+
+	@Test
+	public void testTornTailRecord() throws Exception {
+		try (DiskSpool spool = new DiskSpool(folder.getRoot(), 1024, 8)) {
+			appendAll(spool, 0, 3);
+		}
+		// Crashed while writing a record, only the header and part of it.
+		File segment = new File(folder.getRoot(), "spool-0.dat");
+		long length = segment.length();
+		try (FileOutputStream out = new FileOutputStream(segment, true)) {
+			out.write(new byte[] { 0, 0, 0, RECORD_BYTES, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10 });
+		}
+
+		try (DiskSpool spool = new DiskSpool(folder.getRoot(), 1024, 8)) {
+			assertEquals(length, segment.length());
+			// The records appended after recovery are not corrupted by the tail.
+			appendAll(spool, 3, 5);
+			assertEquals(range(0, 5), readAll(spool));
+		}
+	}
+
+	@Test
+	public void testRingOverflow() throws Exception {
+		// One record per segment.
+		try (DiskSpool spool = new DiskSpool(folder.getRoot(), 64, 3)) {
+			appendAll(spool, 0, 10);
+			assertEquals(7, spool.getDroppedSegments());
+			assertEquals(range(7, 10), readAll(spool));
+			assertTrue(folder.getRoot().list().length <= 3); // Last segment and position
+		}
+	}
+
+	@Test
+	public void testRingOverflowWhileReading() throws Exception {
+		// Two records per segment.
+		try (DiskSpool spool = new DiskSpool(folder.getRoot(), 100, 3)) {
+			appendAll(spool, 0, 4);
+			assertEquals(0, spool.peek()[0]);
+			spool.commit();
+			// The reading segment is dropped, reading continues from the oldest
+			// remaining one.
+			appendAll(spool, 4, 12);
+			assertEquals(3, spool.getDroppedSegments());
+			assertEquals(range(6, 12), readAll(spool));
+		}
+	}
+
+	private static void appendAll(DiskSpool spool, int from, int to) throws IOException {
+		for (int i = from; i < to; i++) {
+			byte[] record = new byte[RECORD_BYTES];
+			Arrays.fill(record, (byte) i);
+			spool.append(record);
+		}
+	}
+
+	private static List<Integer> readAll(DiskSpool spool) throws IOException {
+		List<Integer> records = new ArrayList<>();
+		for (byte[] record; (record = spool.peek()) != null;) {
+			assertEquals(RECORD_BYTES, record.length);
+			records.add((int) record[0]);
+			spool.commit();
+		}
+		return records;
+	}
+
+	private static List<Integer> range(int from, int to) {
+		Integer[] values = new Integer[to - from];
+		for (int i = from; i < to; i++) {
+			values[i - from] = i;
+		}
+		return asList(values);
+	}
+
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.client.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+import com.wl4g.devops.umc.client.indicator.AbstractAdvancedHealthIndicator.Partition;
+
+/**
+ * {@link DefaultMemoryEventStore} tests, the results of random operations
+ * are compared with a brute-force store(scanning all retained samples).
+ *
+ * @author Wangl.sir <983708408@qq.com>
+ * @version v1.0 2019年9月18日
+ * @since
+ */
+public class DefaultMemoryEventStoreTests {
+
+	final private static long RETAIN = 60_000L;
+
+	/**
+	 * Sample ages are never this close to the retain time, so the store and
+	 * the brute-force store agree on the expiration regardless of the clock
+	 * drift between them.
+	 */
+	final private static long BOUNDARY_MS = 5_000L;
+
+	@Test
+	public void testCompareWithBruteForceByCapacity() {
+		Random random = new Random(1L);
+		for (int capacity : new int[] { 1, 2, 7, DefaultMemoryEventStore.DEFAULT_CAPACITY }) {
+			DefaultMemoryEventStore store = new DefaultMemoryEventStore(capacity, 0L);
+			BruteForceStore expected = new BruteForceStore(capacity, 0L);
+			assertSameResults(expected, store);
+			for (int i = 0; i < 2000; i++) {
+				// Narrow range, so there are many equal values.
+				Sample sample = new Sample(random.nextInt(20) - 10, System.currentTimeMillis());
+				store.save(sample);
+				expected.save(sample);
+				assertSameResults(expected, store);
+			}
+		}
+	}
+
+	@Test
+	public void testCompareWithBruteForceByRetainTime() {
+		Random random = new Random(2L);
+		for (int capacity : new int[] { 3, DefaultMemoryEventStore.DEFAULT_CAPACITY, DefaultMemoryEventStore.MAX_CAPACITY }) {
+			DefaultMemoryEventStore store = new DefaultMemoryEventStore(capacity, RETAIN);
+			BruteForceStore expected = new BruteForceStore(capacity, RETAIN);
+			for (int i = 0; i < 3000; i++) {
+				Sample sample = new Sample(random.nextInt(1000), System.currentTimeMillis() - randomAge(random));
+				store.save(sample);
+				expected.save(sample);
+				assertSameResults(expected, store);
+			}
+		}
+	}
+
+	@Test
+	public void testAllExpired() {
+		DefaultMemoryEventStore store = new DefaultMemoryEventStore(8, RETAIN);
+		long now = System.currentTimeMillis();
+		store.save(new Sample(1, now - RETAIN * 2));
+		store.save(new Sample(2, now + RETAIN * 2));
+		assertNull(store.latest());
+		assertNull(store.largest());
+		assertNull(store.least());
+		assertEquals(0L, store.average());
+
+		Sample sample = new Sample(3, now);
+		store.save(sample);
+		assertSame(sample, store.latest());
+		assertEquals(1, store.latest().getSamples());
+	}
+
+	@Test
+	public void testConcurrentReading() throws Exception {
+		int capacity = 16;
+		DefaultMemoryEventStore store = new DefaultMemoryEventStore(capacity, 0L);
+		AtomicBoolean running = new AtomicBoolean(true);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			store.save(new Sample(0, System.currentTimeMillis()));
+			List<Future<?>> readers = new ArrayList<>();
+			for (int i = 0; i < 3; i++) {
+				readers.add(executor.submit(() -> {
+					long lastLatest = Long.MIN_VALUE;
+					while (running.get()) {
+						Partition latest = store.latest(), largest = store.largest(), least = store.least();
+						assertNotNull(latest);
+						assertNotNull(largest);
+						assertNotNull(least);
+						assertTrue(latest.getSamples() >= 1 && latest.getSamples() <= capacity);
+						// Values are increasing, the latest is never older.
+						assertTrue(latest.getValue() >= lastLatest);
+						lastLatest = latest.getValue();
+					}
+					return null;
+				}));
+			}
+			for (int i = 1; i <= 200_000; i++) {
+				store.save(new Sample(i, System.currentTimeMillis()));
+			}
+			running.set(false);
+			for (Future<?> f : readers) {
+				f.get(10, TimeUnit.SECONDS);
+			}
+			assertEquals(200_000L, store.largest().getValue());
+			assertEquals(200_000L - capacity + 1, store.least().getValue());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static void assertSameResults(BruteForceStore expected, DefaultMemoryEventStore store) {
+		assertPartition(expected.largest(), store.largest(), expected.size());
+		assertPartition(expected.least(), store.least(), expected.size());
+		assertPartition(expected.latest(), store.latest(), expected.size());
+		assertEquals(expected.average(), store.average());
+	}
+
+	private static void assertPartition(Partition expected, Partition actual, int samples) {
+		assertSame(expected, actual);
+		if (actual != null) {
+			assertEquals(samples, actual.getSamples());
+		}
+	}
+
+	/**
+	 * Age of sample, negative for a future timestamp, never close to the
+	 * retain time.
+	 */
+	private static long randomAge(Random random) {
+		long age;
+		do {
+			age = (long) ((random.nextDouble() * 3 - 1) * RETAIN);
+		} while (Math.abs(Math.abs(age) - RETAIN) < BOUNDARY_MS);
+		return age;
+	}
+
+	/**
+	 * Brute-force store, evicts and skips the same samples as the store, and
+	 * scans all the retained samples on reading. Of the equal values, the
+	 * latest is the largest(or least).
+	 */
+	private static class BruteForceStore {
+
+		final private int capacity;
+
+		final private long retainTime;
+
+		final private Deque<Partition> samples = new ArrayDeque<>();
+
+		private BruteForceStore(int capacity, long retainTime) {
+			this.capacity = capacity;
+			this.retainTime = retainTime;
+		}
+
+		private void save(Partition part) {
+			long now = System.currentTimeMillis();
+			while (!samples.isEmpty() && isExpired(samples.peekFirst(), now)) {
+				samples.pollFirst();
+			}
+			if (samples.size() >= capacity) {
+				samples.pollFirst();
+			}
+			samples.addLast(part);
+		}
+
+		private List<Partition> retained() {
+			long now = System.currentTimeMillis();
+			List<Partition> retained = new ArrayList<>(samples);
+			while (!retained.isEmpty() && isExpired(retained.get(0), now)) {
+				retained.remove(0);
+			}
+			return retained;
+		}
+
+		private int size() {
+			return retained().size();
+		}
+
+		private Partition largest() {
+			Partition largest = null;
+			for (Partition part : retained()) {
+				if (largest == null || part.getValue() >= largest.getValue()) {
+					largest = part;
+				}
+			}
+			return largest;
+		}
+
+		private Partition least() {
+			Partition least = null;
+			for (Partition part : retained()) {
+				if (least == null || part.getValue() <= least.getValue()) {
+					least = part;
+				}
+			}
+			return least;
+		}
+
+		private Partition latest() {
+			List<Partition> retained = retained();
+			return retained.isEmpty() ? null : retained.get(retained.size() - 1);
+		}
+
+		private long average() {
+			List<Partition> retained = retained();
+			if (retained.isEmpty()) {
+				return 0L;
+			}
+			long sum = 0L;
+			for (Partition part : retained) {
+				sum += part.getValue();
+			}
+			return sum / retained.size();
+		}
+
+		private boolean isExpired(Partition part, long now) {
+			return retainTime > 0 && Math.abs(now - part.getTimestamp()) >= retainTime;
+		}
+
+	}
+
+	private static class Sample extends Partition {
+
+		private long value;
+
+		private Sample(long value, long timestamp) {
+			this.value = value;
+			setTimestamp(timestamp);
+		}
+
+		@Override
+		public long getValue() {
+			return value;
+		}
+
+		@Override
+		public void setValue(long value) {
+			this.value = value;
+		}
+
+	}
+
+}
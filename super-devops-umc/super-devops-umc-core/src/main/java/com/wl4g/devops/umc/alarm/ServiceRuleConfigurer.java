@@ -17,6 +17,7 @@ package com.wl4g.devops.umc.alarm;
 
 import com.wl4g.devops.common.bean.umc.*;
 import com.wl4g.devops.dao.umc.AlarmConfigDao;
+import com.wl4g.devops.dao.umc.AlarmContactDao;
 import com.wl4g.devops.dao.umc.AlarmRecordDao;
 import com.wl4g.devops.dao.umc.AlarmRecordRuleDao;
 import com.wl4g.devops.dao.umc.AlarmTemplateDao;
@@ -52,6 +53,9 @@ public class ServiceRuleConfigurer implements AlarmConfigurer {
 	@Autowired
 	private AlarmRecordRuleDao alarmRecordRuleDao;
 
+	@Autowired
+	private AlarmContactDao alarmContactDao;
+
 
 	@Override
 	public List<AlarmTemplate> findAlarmTemplate(Integer collectId) {
@@ -82,13 +86,13 @@ public class ServiceRuleConfigurer implements AlarmConfigurer {
 				recordRule.setRuleId(rule.getId());
 				alarmRecordRuleDao.insertSelective(recordRule);
 			}
-
-			// Alarm notification users.
-			Integer contactGroupId = alarmConfig.getContactGroupId();
-			//TODO 根据联系分组，找到联系人，生成notification
-
 		}
 
 	}
 
+	@Override
+	public List<AlarmContact> findAlarmContacts(Integer contactGroupId) {
+		return alarmContactDao.getByGroupId(contactGroupId);
+	}
+
 }
\ No newline at end of file
@@ -17,6 +17,8 @@ package com.wl4g.devops.umc.config;
 
 import java.util.Properties;
 
+import org.springframework.util.Assert;
+
 import static org.apache.kafka.clients.consumer.ConsumerConfig.*;
 
 /**
@@ -39,6 +41,9 @@ public class ReceiverProperties {
 	/** HTTP receiver configuration properties */
 	private HttpReceiverProperties http = new HttpReceiverProperties();
 
+	/** Watched indicators receiver configuration properties */
+	private WatchReceiverProperties watch = new WatchReceiverProperties();
+
 	public KafkaReceiverProperties getKafka() {
 		return kafka;
 	}
@@ -55,6 +60,14 @@ public class ReceiverProperties {
 		this.http = http;
 	}
 
+	public WatchReceiverProperties getWatch() {
+		return watch;
+	}
+
+	public void setWatch(WatchReceiverProperties watch) {
+		this.watch = watch;
+	}
+
 	/**
 	 * KAFKA consumer configuration properties.
 	 * 
@@ -75,6 +88,24 @@ public class ReceiverProperties {
 		 */
 		private int queueDepth = 4092;
 
+		/**
+		 * Interval of the warnings while the consumer thread is blocked
+		 * waiting for a batch of records to be handed off to the store stage
+		 * (the batch is ACK after all of them stored).
+		 */
+		private long handoffTimeoutMs = 30_000L;
+
+		/**
+		 * Initial backoff(ms) of retrying the records failed to store, doubled
+		 * up to 30s, the batch isn't ACK until they're stored.
+		 */
+		private long storeRetryBackoffMs = 1000L;
+
+		/**
+		 * Ingest pipeline properties.
+		 */
+		private IngestPipelineProperties pipeline = new IngestPipelineProperties();
+
 		private Properties properties = new Properties() {
 			private static final long serialVersionUID = 299259605679445927L;
 			{
@@ -125,6 +156,30 @@ public class ReceiverProperties {
 			this.queueDepth = queueDepth;
 		}
 
+		public long getHandoffTimeoutMs() {
+			return handoffTimeoutMs;
+		}
+
+		public void setHandoffTimeoutMs(long handoffTimeoutMs) {
+			this.handoffTimeoutMs = handoffTimeoutMs;
+		}
+
+		public long getStoreRetryBackoffMs() {
+			return storeRetryBackoffMs;
+		}
+
+		public void setStoreRetryBackoffMs(long storeRetryBackoffMs) {
+			this.storeRetryBackoffMs = storeRetryBackoffMs;
+		}
+
+		public IngestPipelineProperties getPipeline() {
+			return pipeline;
+		}
+
+		public void setPipeline(IngestPipelineProperties pipeline) {
+			this.pipeline = pipeline;
+		}
+
 		public Properties getProperties() {
 			return properties;
 		}
@@ -146,6 +201,35 @@ public class ReceiverProperties {
 
 		private boolean enabled = false;
 
+		/** Maximum size of the (compressed) request body. */
+		private int maxBodyBytes = 8 * 1024 * 1024;
+
+		/** Maximum size of the decompressed request body. */
+		private int maxDecodedBytes = 64 * 1024 * 1024;
+
+		/** Maximum time of reading the request body. */
+		private long readTimeoutMs = 30_000L;
+
+		/**
+		 * Request header of the client identifier for quota and ordering, the
+		 * remote address is used if absent.
+		 */
+		private String clientIdHeader = "X-Client-Id";
+
+		/**
+		 * Number of aggregates allowed per second per client, 0 means
+		 * unlimited.
+		 */
+		private int quotaPerSec = 0;
+
+		/** Number of aggregates allowed in a burst per client. */
+		private int quotaBurst = 20_000;
+
+		/**
+		 * Ingest pipeline properties.
+		 */
+		private IngestPipelineProperties pipeline = new IngestPipelineProperties();
+
 		public boolean isEnabled() {
 			return enabled;
 		}
@@ -154,6 +238,188 @@ public class ReceiverProperties {
 			this.enabled = enabled;
 		}
 
+		public int getMaxBodyBytes() {
+			return maxBodyBytes;
+		}
+
+		public void setMaxBodyBytes(int maxBodyBytes) {
+			Assert.isTrue(maxBodyBytes > 0, "maxBodyBytes must be greater than 0");
+			this.maxBodyBytes = maxBodyBytes;
+		}
+
+		public int getMaxDecodedBytes() {
+			return maxDecodedBytes;
+		}
+
+		public void setMaxDecodedBytes(int maxDecodedBytes) {
+			Assert.isTrue(maxDecodedBytes > 0, "maxDecodedBytes must be greater than 0");
+			this.maxDecodedBytes = maxDecodedBytes;
+		}
+
+		public long getReadTimeoutMs() {
+			return readTimeoutMs;
+		}
+
+		public void setReadTimeoutMs(long readTimeoutMs) {
+			this.readTimeoutMs = readTimeoutMs;
+		}
+
+		public String getClientIdHeader() {
+			return clientIdHeader;
+		}
+
+		public void setClientIdHeader(String clientIdHeader) {
+			this.clientIdHeader = clientIdHeader;
+		}
+
+		public int getQuotaPerSec() {
+			return quotaPerSec;
+		}
+
+		public void setQuotaPerSec(int quotaPerSec) {
+			Assert.isTrue(quotaPerSec >= 0, "quotaPerSec must not be negative");
+			this.quotaPerSec = quotaPerSec;
+		}
+
+		public int getQuotaBurst() {
+			return quotaBurst;
+		}
+
+		public void setQuotaBurst(int quotaBurst) {
+			Assert.isTrue(quotaBurst > 0, "quotaBurst must be greater than 0");
+			this.quotaBurst = quotaBurst;
+		}
+
+		public IngestPipelineProperties getPipeline() {
+			return pipeline;
+		}
+
+		public void setPipeline(IngestPipelineProperties pipeline) {
+			this.pipeline = pipeline;
+		}
+
+	}
+
+	/**
+	 * Watched indicators receiver configuration properties
+	 * 
+	 * @author wangl.sir
+	 * @version v1.0 2019年9月16日
+	 * @since
+	 */
+	public static class WatchReceiverProperties {
+
+		/**
+		 * Ingest pipeline properties.
+		 */
+		private IngestPipelineProperties pipeline = new IngestPipelineProperties() {
+			{
+				// Low volume, few lanes is enough.
+				setDecodeThreads(1);
+				setLanes(2);
+			}
+		};
+
+		public IngestPipelineProperties getPipeline() {
+			return pipeline;
+		}
+
+		public void setPipeline(IngestPipelineProperties pipeline) {
+			this.pipeline = pipeline;
+		}
+
+	}
+
+	/**
+	 * Metric ingest pipeline configuration properties.
+	 * 
+	 * @author Wangl.sir
+	 * @version v1.0 2019年9月2日
+	 * @since
+	 */
+	public static class IngestPipelineProperties {
+
+		/** Number of decode stage threads. */
+		private int decodeThreads = Runtime.getRuntime().availableProcessors();
+
+		/** Decode stage queue size. */
+		private int decodeQueue = 1024;
+
+		/** Number of records decoded per decode task. */
+		private int decodeChunk = 256;
+
+		/**
+		 * Number of single-threaded lanes of the store and alarm stages, the
+		 * records of the same partition are always processed in the same lane.
+		 */
+		private int lanes = 8;
+
+		/** Store and alarm stage queue size per lane. */
+		private int laneQueue = 256;
+
+		/** Maximum waiting time when the alarm lane queue is full. */
+		private long alarmOfferTimeoutMs = 100L;
+
+		/** Maximum waiting time for draining of stages on shutdown. */
+		private long shutdownAwaitSec = 30L;
+
+		public int getDecodeThreads() {
+			return decodeThreads;
+		}
+
+		public void setDecodeThreads(int decodeThreads) {
+			this.decodeThreads = decodeThreads;
+		}
+
+		public int getDecodeQueue() {
+			return decodeQueue;
+		}
+
+		public void setDecodeQueue(int decodeQueue) {
+			this.decodeQueue = decodeQueue;
+		}
+
+		public int getDecodeChunk() {
+			return decodeChunk;
+		}
+
+		public void setDecodeChunk(int decodeChunk) {
+			Assert.isTrue(decodeChunk > 0, "decodeChunk must be greater than 0");
+			this.decodeChunk = decodeChunk;
+		}
+
+		public int getLanes() {
+			return lanes;
+		}
+
+		public void setLanes(int lanes) {
+			this.lanes = lanes;
+		}
+
+		public int getLaneQueue() {
+			return laneQueue;
+		}
+
+		public void setLaneQueue(int laneQueue) {
+			this.laneQueue = laneQueue;
+		}
+
+		public long getAlarmOfferTimeoutMs() {
+			return alarmOfferTimeoutMs;
+		}
+
+		public void setAlarmOfferTimeoutMs(long alarmOfferTimeoutMs) {
+			this.alarmOfferTimeoutMs = alarmOfferTimeoutMs;
+		}
+
+		public long getShutdownAwaitSec() {
+			return shutdownAwaitSec;
+		}
+
+		public void setShutdownAwaitSec(long shutdownAwaitSec) {
+			this.shutdownAwaitSec = shutdownAwaitSec;
+		}
+
 	}
 
 }
\ No newline at end of file
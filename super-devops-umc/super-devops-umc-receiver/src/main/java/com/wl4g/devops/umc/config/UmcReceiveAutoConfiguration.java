@@ -19,13 +19,18 @@ import com.wl4g.devops.common.config.AbstractOptionalControllerConfiguration;
 import com.wl4g.devops.umc.alarm.IndicatorsValveAlerter;
 import com.wl4g.devops.umc.annotation.EnableHttpCollectReceiver;
 import com.wl4g.devops.umc.annotation.EnableKafkaCollectReceiver;
+import com.wl4g.devops.dao.umc.AlarmCollectorDao;
 import com.wl4g.devops.umc.console.ReceiveConsole;
+import com.wl4g.devops.umc.fetch.AlarmCollectorMetaRepository;
+import com.wl4g.devops.umc.fetch.ServiceIndicatorsMetaRepository;
 import com.wl4g.devops.umc.receiver.HttpMetricReceiver;
 import com.wl4g.devops.umc.receiver.KafkaMetricReceiver;
+import com.wl4g.devops.umc.receiver.WatchMetricReceiver;
 import com.wl4g.devops.umc.store.*;
 
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -72,8 +77,8 @@ public class UmcReceiveAutoConfiguration extends AbstractOptionalControllerConfi
 	@Bean(BEAN_HTTP_RECEIVER)
 	@EnableHttpCollectReceiver
 	public HttpMetricReceiver httpCollectReceiver(@Qualifier(BEAN_DEFAULT_VALVE_ALERTER) IndicatorsValveAlerter alerter,
-			MetricStore store) {
-		return new HttpMetricReceiver(alerter, store);
+			MetricStore store, ReceiverProperties conf) {
+		return new HttpMetricReceiver(alerter, store, conf.getHttp());
 	}
 
 	@Bean
@@ -99,8 +104,8 @@ public class UmcReceiveAutoConfiguration extends AbstractOptionalControllerConfi
 	@Bean(BEAN_KAFKA_RECEIVER)
 	@EnableKafkaCollectReceiver
 	public KafkaMetricReceiver kafkaCollectReceiver(@Qualifier(BEAN_DEFAULT_VALVE_ALERTER) IndicatorsValveAlerter alerter,
-			MetricStore store) {
-		return new KafkaMetricReceiver(alerter, store);
+			MetricStore store, ReceiverProperties conf) {
+		return new KafkaMetricReceiver(alerter, store, conf.getKafka());
 	}
 
 	@Bean(BEAN_KAFKA_BATCH_FACTORY)
@@ -127,6 +132,22 @@ public class UmcReceiveAutoConfiguration extends AbstractOptionalControllerConfi
 		return factory;
 	}
 
+	//
+	// Watch receiver.
+	//
+
+	@Bean
+	@ConditionalOnMissingBean(ServiceIndicatorsMetaRepository.class)
+	public ServiceIndicatorsMetaRepository alarmCollectorMetaRepository(AlarmCollectorDao collectorDao) {
+		return new AlarmCollectorMetaRepository(collectorDao);
+	}
+
+	@Bean
+	public WatchMetricReceiver watchMetricReceiver(@Qualifier(BEAN_DEFAULT_VALVE_ALERTER) IndicatorsValveAlerter alerter,
+			MetricStore store, ReceiverProperties conf) {
+		return new WatchMetricReceiver(alerter, store, conf.getWatch());
+	}
+
 	//
 	// Receive console.
 	//
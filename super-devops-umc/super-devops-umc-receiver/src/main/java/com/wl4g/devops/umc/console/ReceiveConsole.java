@@ -17,8 +17,11 @@ package com.wl4g.devops.umc.console;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 
 import com.wl4g.devops.shell.annotation.ShellComponent;
+import com.wl4g.devops.shell.annotation.ShellMethod;
+import com.wl4g.devops.umc.receiver.KafkaMetricReceiver;
 
 /**
  * Receiver configuration console.
@@ -33,4 +36,19 @@ public class ReceiveConsole {
 
 	protected Logger log = LoggerFactory.getLogger(getClass());
 
+	@Autowired(required = false)
+	private KafkaMetricReceiver kafkaReceiver;
+
+	/**
+	 * Statistics of metric ingest pipelines.
+	 */
+	@ShellMethod(keys = "receive-stats", group = SHELL_GROUP, help = "Statistics of metric receive ingest pipelines.")
+	public String receiveStats() {
+		StringBuilder stats = new StringBuilder();
+		if (kafkaReceiver != null) {
+			stats.append("kafka: ").append(kafkaReceiver.getPipeline());
+		}
+		return stats.length() > 0 ? stats.toString() : "No enabled ingest pipeline.";
+	}
+
 }
\ No newline at end of file
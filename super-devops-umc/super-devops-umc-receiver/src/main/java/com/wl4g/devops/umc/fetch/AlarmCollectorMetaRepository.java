@@ -0,0 +1,65 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.fetch;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.util.Assert;
+
+import com.wl4g.devops.common.bean.umc.AlarmCollector;
+import com.wl4g.devops.dao.umc.AlarmCollectorDao;
+
+/**
+ * Service indicators meta repository of the alarm collectors(the address is
+ * the target identifier), the version is the last modified time.
+ * 
+ * @author wangl.sir
+ * @version v1.0 2019年9月16日
+ * @since
+ */
+public class AlarmCollectorMetaRepository implements ServiceIndicatorsMetaRepository {
+
+	final protected AlarmCollectorDao collectorDao;
+
+	public AlarmCollectorMetaRepository(AlarmCollectorDao collectorDao) {
+		Assert.notNull(collectorDao, "AlarmCollectorDao must not be null");
+		this.collectorDao = collectorDao;
+	}
+
+	@Override
+	public List<ServiceIndicatorsMetaInfo> findChanged(long sinceVersion) {
+		List<AlarmCollector> collectors = collectorDao.listChanged(sinceVersion > 0 ? new Date(sinceVersion) : null);
+		List<ServiceIndicatorsMetaInfo> metas = new ArrayList<>(collectors.size());
+		for (AlarmCollector c : collectors) {
+			if (c.getAddr() == null || c.getAddr().trim().isEmpty()) {
+				continue;
+			}
+			ServiceIndicatorsMetaInfo meta = new ServiceIndicatorsMetaInfo(c.getAddr().trim(), versionOf(c));
+			meta.setDeleted(c.getDelFlag() != null && c.getDelFlag() == 1);
+			metas.add(meta);
+		}
+		return metas;
+	}
+
+	private long versionOf(AlarmCollector c) {
+		long updated = c.getUpdateDate() != null ? c.getUpdateDate().getTime() : 0;
+		long created = c.getCreateDate() != null ? c.getCreateDate().getTime() : 0;
+		return Math.max(updated, created);
+	}
+
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.receiver;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.util.Assert;
+
+/**
+ * Per client quota limiter(token bucket) of the received aggregates.</br>
+ * A request is admitted as long as the client still has tokens, and then all
+ * its aggregates are charged, the bucket may go into debt, so that a batch
+ * larger than the burst is never starved, and the following requests of the
+ * client are rejected until the debt is paid off.
+ * 
+ * @author wangl.sir
+ * @version v1.0 2019年9月17日
+ * @since
+ */
+public class ClientQuotaLimiter {
+
+	/** Idle buckets are evicted after this time. */
+	final private static long IDLE_EVICT_MS = 60_000L;
+
+	/** Tokens per millisecond, 0 means unlimited. */
+	final private double ratePerMs;
+
+	final private double burst;
+
+	final private ConcurrentHashMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+	private volatile long lastEvictTime = System.currentTimeMillis();
+
+	public ClientQuotaLimiter(int ratePerSec, int burst) {
+		Assert.isTrue(ratePerSec >= 0, "Quota rate must not be negative");
+		Assert.isTrue(burst > 0, "Quota burst must be greater than 0");
+		this.ratePerMs = ratePerSec / 1000d;
+		this.burst = burst;
+	}
+
+	/**
+	 * Whether the client still has tokens.
+	 * 
+	 * @param client
+	 * @return
+	 */
+	public boolean isAllowed(String client) {
+		if (ratePerMs <= 0) {
+			return true;
+		}
+		return getBucket(client).refill(System.currentTimeMillis()) > 0;
+	}
+
+	/**
+	 * Charge aggregates of the client.
+	 * 
+	 * @param client
+	 * @param count
+	 * @return false if the client has run out of tokens before charging.
+	 */
+	public boolean acquire(String client, int count) {
+		if (ratePerMs <= 0) {
+			return true;
+		}
+		Bucket bucket = getBucket(client);
+		synchronized (bucket) {
+			if (bucket.refill(System.currentTimeMillis()) <= 0) {
+				return false;
+			}
+			bucket.tokens -= count;
+			return true;
+		}
+	}
+
+	/**
+	 * Refund the charge of aggregates not accepted, e.g. the pipeline is full.
+	 *
+	 * @param client
+	 * @param count
+	 */
+	public void release(String client, int count) {
+		if (ratePerMs <= 0) {
+			return;
+		}
+		Bucket bucket = getBucket(client);
+		synchronized (bucket) {
+			bucket.tokens = Math.min(burst, bucket.refill(System.currentTimeMillis()) + count);
+		}
+	}
+
+	/**
+	 * Gets milliseconds of the client to wait for the debt to be paid off.
+	 * 
+	 * @param client
+	 * @return
+	 */
+	public long getWaitMs(String client) {
+		if (ratePerMs <= 0) {
+			return 0;
+		}
+		double tokens = getBucket(client).refill(System.currentTimeMillis());
+		return tokens > 0 ? 0 : (long) Math.ceil((1 - tokens) / ratePerMs);
+	}
+
+	public int size() {
+		return buckets.size();
+	}
+
+	private Bucket getBucket(String client) {
+		long now = System.currentTimeMillis();
+		if (now - lastEvictTime > IDLE_EVICT_MS) {
+			lastEvictTime = now;
+			for (Iterator<Bucket> it = buckets.values().iterator(); it.hasNext();) {
+				if (now - it.next().updateTime > IDLE_EVICT_MS) {
+					it.remove();
+				}
+			}
+		}
+		return buckets.computeIfAbsent(client, c -> new Bucket(burst, now));
+	}
+
+	/**
+	 * Token bucket of a client.
+	 */
+	private class Bucket {
+
+		private double tokens;
+
+		private volatile long updateTime;
+
+		Bucket(double tokens, long updateTime) {
+			this.tokens = tokens;
+			this.updateTime = updateTime;
+		}
+
+		synchronized double refill(long now) {
+			if (now > updateTime) {
+				tokens = Math.min(burst, tokens + (now - updateTime) * ratePerMs);
+				updateTime = now;
+			}
+			return tokens;
+		}
+
+	}
+
+}
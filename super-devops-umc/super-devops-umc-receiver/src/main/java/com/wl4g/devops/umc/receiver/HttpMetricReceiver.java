@@ -15,17 +15,61 @@
  */
 package com.wl4g.devops.umc.receiver;
 
-import com.wl4g.devops.common.bean.umc.model.proto.MetricModel.MetricAggregate;
-import com.wl4g.devops.umc.alarm.IndicatorsValveAlerter;
-import com.wl4g.devops.umc.store.MetricStore;
+import static com.wl4g.devops.common.constants.UMCDevOpsConstants.URI_HTTP_RECEIVER_BATCH_ENDPOINT;
+import static com.wl4g.devops.common.constants.UMCDevOpsConstants.URI_HTTP_RECEIVER_ENDPOINT;
+import static com.wl4g.devops.common.constants.UMCDevOpsConstants.URI_HTTP_RECEIVER_STREAM_ENDPOINT;
+import static java.util.Collections.singletonList;
+import static javax.servlet.http.HttpServletResponse.SC_ACCEPTED;
+import static javax.servlet.http.HttpServletResponse.SC_BAD_REQUEST;
+import static javax.servlet.http.HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+import static javax.servlet.http.HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE;
+import static javax.servlet.http.HttpServletResponse.SC_REQUEST_TIMEOUT;
+import static javax.servlet.http.HttpServletResponse.SC_SERVICE_UNAVAILABLE;
+import static javax.servlet.http.HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+import static org.springframework.web.bind.annotation.RequestMethod.POST;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.util.Assert;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.ResponseBody;
 
-import static com.wl4g.devops.common.constants.UMCDevOpsConstants.URI_HTTP_RECEIVER_ENDPOINT;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.wl4g.devops.common.bean.umc.model.proto.MetricBatchCodec;
+import com.wl4g.devops.common.bean.umc.model.proto.MetricModel.MetricAggregate;
+import com.wl4g.devops.umc.alarm.IndicatorsValveAlerter;
+import com.wl4g.devops.umc.config.ReceiverProperties.HttpReceiverProperties;
+import com.wl4g.devops.umc.receiver.MetricBodyDecoder.BodyTooLargeException;
+import com.wl4g.devops.umc.store.MetricStore;
 
 /**
- * HTTP collection receiver
+ * HTTP collection receiver.</br>
+ * The streaming end-point accepts a body of length-delimited aggregates(many
+ * per request, optionally 'Content-Encoding: gzip/snappy'). The body is read
+ * without blocking the container threads(servlet non-blocking IO), and is
+ * decompressed and decoded as it arrives({@link MetricBodyDecoder}), so only
+ * the decoded aggregates are held until the end of body, then they are handed
+ * off to the ingest pipeline(ordered by client) before responding 202. The
+ * handoff never blocks the container thread either, when the store lane of
+ * the client is full the request is responded 503 with 'Retry-After'.</br>
+ * The batch end-point is the same, except that each frame is a dictionary
+ * encoded batch of aggregates({@link MetricBatchCodec}) of the client
+ * reporter.</br>
+ * The number of aggregates per client is limited by the quota, exceeded
+ * requests are responded 429 with 'Retry-After'.
  * 
  * @author wangl.sir
  * @version v1.0 2019年6月17日
@@ -33,27 +77,289 @@ import static com.wl4g.devops.common.constants.UMCDevOpsConstants.URI_HTTP_RECEI
  */
 @ResponseBody
 @com.wl4g.devops.umc.annotation.HttpCollectReceiver
-public class HttpMetricReceiver extends AbstractMetricReceiver {
+public class HttpMetricReceiver extends AbstractMetricReceiver implements DisposableBean {
 
-	public HttpMetricReceiver(IndicatorsValveAlerter alerter, MetricStore store) {
+	final private static int SC_TOO_MANY_REQUESTS = 429;
+
+	/** Read buffer size of the streaming body. */
+	final private static int READ_BUFFER = 8192;
+
+	/** HTTP receiver properties. */
+	final protected HttpReceiverProperties config;
+
+	/** Metric decode/store/alarm pipeline. */
+	final protected MetricIngestPipeline pipeline;
+
+	/** Per client quota limiter. */
+	final protected ClientQuotaLimiter quota;
+
+	/** Statistics. */
+	final private AtomicLong accepted = new AtomicLong(0);
+	final private AtomicLong rejected = new AtomicLong(0);
+
+	public HttpMetricReceiver(IndicatorsValveAlerter alerter, MetricStore store, HttpReceiverProperties config) {
 		super(alerter, store);
+		Assert.notNull(config, "HttpReceiverProperties must not be null.");
+		this.config = config;
+		this.pipeline = new MetricIngestPipeline("httpReceiver", config.getPipeline(), this::putMetrics, this::alarm);
+		this.quota = new ClientQuotaLimiter(config.getQuotaPerSec(), config.getQuotaBurst());
 	}
 
 	/**
 	 * Receiving of HTTP metrics message.
 	 */
 	@RequestMapping(URI_HTTP_RECEIVER_ENDPOINT)
-	public void metricReceive(@RequestBody byte[] body) {
+	public void metricReceive(@RequestBody byte[] body, HttpServletRequest request, HttpServletResponse response) {
+		String client = getClientId(request);
+		MetricAggregate aggregate;
+		try {
+			aggregate = MetricAggregate.parseFrom(body);
+		} catch (InvalidProtocolBufferException e) {
+			log.warn("Failed to read metric of client: {}, caused by: {}", client, e.getMessage());
+			rejected.incrementAndGet();
+			response.setStatus(SC_BAD_REQUEST);
+			return;
+		}
+		handoff(client, singletonList(aggregate), response);
+	}
+
+	/**
+	 * Receiving of HTTP streaming metrics messages(length-delimited).
+	 */
+	@RequestMapping(value = URI_HTTP_RECEIVER_STREAM_ENDPOINT, method = POST)
+	public void metricsReceive(HttpServletRequest request, HttpServletResponse response) throws IOException {
+		startReading(request, response, false);
+	}
+
+	/**
+	 * Receiving of HTTP streaming metrics batches(length-delimited).
+	 */
+	@RequestMapping(value = URI_HTTP_RECEIVER_BATCH_ENDPOINT, method = POST)
+	public void batchReceive(HttpServletRequest request, HttpServletResponse response) throws IOException {
+		startReading(request, response, true);
+	}
+
+	@Override
+	public void destroy() throws Exception {
+		pipeline.close();
+	}
+
+	/**
+	 * Gets metric ingest pipeline.
+	 * 
+	 * @return
+	 */
+	public MetricIngestPipeline getPipeline() {
+		return pipeline;
+	}
+
+	public long getAccepted() {
+		return accepted.get();
+	}
+
+	public long getRejected() {
+		return rejected.get();
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + " [accepted=" + accepted + ", rejected=" + rejected + ", clients=" + quota.size()
+				+ ", pipeline=" + pipeline + "]";
+	}
+
+	/**
+	 * Start reading request body asynchronously.
+	 * 
+	 * @param request
+	 * @param response
+	 * @param batch
+	 *            Whether the frames are batches.
+	 * @throws IOException
+	 */
+	private void startReading(HttpServletRequest request, HttpServletResponse response, boolean batch) throws IOException {
+		String client = getClientId(request);
+		if (!quota.isAllowed(client)) { // Fast reject before reading.
+			rejectQuota(client, response);
+			return;
+		}
+		if (request.getContentLengthLong() > config.getMaxBodyBytes()) {
+			rejected.incrementAndGet();
+			response.sendError(SC_REQUEST_ENTITY_TOO_LARGE);
+			return;
+		}
+		String encoding = request.getHeader("Content-Encoding");
+		if (!MetricBodyDecoder.isSupported(encoding)) {
+			rejected.incrementAndGet();
+			response.sendError(SC_UNSUPPORTED_MEDIA_TYPE, "Unsupported content encoding: " + encoding);
+			return;
+		}
+
+		AsyncContext async = request.startAsync();
+		async.setTimeout(config.getReadTimeoutMs());
+		ServletInputStream in = request.getInputStream();
+		BodyReader reader = new BodyReader(client, new MetricBodyDecoder(encoding, batch, config.getMaxDecodedBytes()), async,
+				in);
+		async.addListener(reader);
+		in.setReadListener(reader);
+	}
+
+	private String getClientId(HttpServletRequest request) {
+		String client = request.getHeader(config.getClientIdHeader());
+		return isBlank(client) ? request.getRemoteAddr() : client;
+	}
+
+	private void rejectQuota(String client, HttpServletResponse response) {
+		rejected.incrementAndGet();
+		response.setStatus(SC_TOO_MANY_REQUESTS);
+		response.setHeader("Retry-After", String.valueOf(Math.max(1, (quota.getWaitMs(client) + 999) / 1000)));
+		if (log.isDebugEnabled()) {
+			log.debug("Rejected metrics of client: {}, quota exceeded", client);
+		}
+	}
+
+	private void rejectSaturated(String client, HttpServletResponse response) {
+		rejected.incrementAndGet();
+		response.setStatus(SC_SERVICE_UNAVAILABLE);
+		response.setHeader("Retry-After", "1");
+		if (log.isDebugEnabled()) {
+			log.debug("Rejected metrics of client: {}, pipeline is saturated or closed", client);
+		}
+	}
+
+	/**
+	 * Handoff the decoded aggregates to pipeline without blocking, the quota
+	 * charge is refunded if the pipeline rejects them.
+	 * 
+	 * @param client
+	 * @param aggregates
+	 * @param response
+	 */
+	private void handoff(String client, List<MetricAggregate> aggregates, HttpServletResponse response) {
+		if (!quota.acquire(client, aggregates.size())) {
+			rejectQuota(client, response);
+			return;
+		}
+		boolean handedOff;
 		try {
-			MetricAggregate aggregate = MetricAggregate.parseFrom(body);
-			// Storage metrics.
-			putMetrics(aggregate);
+			handedOff = pipeline.trySubmit(client, aggregates) != null;
+		} catch (IllegalStateException e) { // Pipeline closed
+			handedOff = false;
+		}
+		if (!handedOff) {
+			quota.release(client, aggregates.size());
+			rejectSaturated(client, response);
+			return;
+		}
+		accepted.addAndGet(aggregates.size());
+		response.setStatus(SC_ACCEPTED);
+		response.setHeader("X-Accepted-Count", String.valueOf(aggregates.size()));
+	}
+
+	/**
+	 * Non-blocking request body reader, it's completed exactly once, by the end
+	 * of body, a failure or the timeout, whichever comes first.
+	 */
+	private class BodyReader implements ReadListener, AsyncListener {
 
-			// Metrics alarm.
-			alarm(aggregate);
-		} catch (Exception e) {
-			log.error("Failed to receive metric handling.", e);
+		final private String client;
+		final private MetricBodyDecoder decoder;
+		final private AsyncContext async;
+		final private ServletInputStream in;
+		final private byte[] buf = new byte[READ_BUFFER];
+
+		/** Raw bytes of the body read. */
+		private long size;
+
+		/** Whether the request has been completed. */
+		private boolean completed;
+
+		BodyReader(String client, MetricBodyDecoder decoder, AsyncContext async, ServletInputStream in) {
+			this.client = client;
+			this.decoder = decoder;
+			this.async = async;
+			this.in = in;
+		}
+
+		@Override
+		public synchronized void onDataAvailable() throws IOException {
+			while (!completed && !in.isFinished() && in.isReady()) {
+				int n = in.read(buf);
+				if (n == -1) {
+					return;
+				}
+				try {
+					if ((size += n) > config.getMaxBodyBytes()) {
+						throw new BodyTooLargeException();
+					}
+					decoder.write(buf, 0, n);
+				} catch (IOException e) {
+					fail(e);
+				}
+			}
+		}
+
+		@Override
+		public synchronized void onAllDataRead() {
+			if (completed) {
+				return;
+			}
+			try {
+				handoff(client, decoder.finish(), (HttpServletResponse) async.getResponse());
+				completed = true;
+				async.complete();
+			} catch (IOException e) {
+				fail(e);
+			} catch (Exception e) {
+				log.error("Failed to receive metrics of client: " + client, e);
+				complete(SC_INTERNAL_SERVER_ERROR);
+			}
+		}
+
+		@Override
+		public void onError(Throwable t) {
+			log.warn("Failed to read metrics of client: {}, caused by: {}", client, t.getMessage());
+			complete(SC_BAD_REQUEST);
+		}
+
+		@Override
+		public void onTimeout(AsyncEvent event) {
+			log.warn("Timeout reading metrics of client: {}", client);
+			complete(SC_REQUEST_TIMEOUT);
 		}
+
+		@Override
+		public synchronized void onComplete(AsyncEvent event) {
+			decoder.close();
+		}
+
+		@Override
+		public void onError(AsyncEvent event) {
+		}
+
+		@Override
+		public void onStartAsync(AsyncEvent event) {
+		}
+
+		private void fail(IOException e) {
+			if (!(e instanceof BodyTooLargeException)) {
+				log.warn("Failed to read metrics of client: {}, caused by: {}", client, e.getMessage());
+			}
+			complete(e instanceof BodyTooLargeException ? SC_REQUEST_ENTITY_TOO_LARGE : SC_BAD_REQUEST);
+		}
+
+		private synchronized void complete(int status) {
+			if (completed) {
+				return;
+			}
+			completed = true;
+			rejected.incrementAndGet();
+			try {
+				((HttpServletResponse) async.getResponse()).setStatus(status);
+				async.complete();
+			} catch (IllegalStateException e) { // Completed or timeout
+			}
+		}
+
 	}
 
-}
\ No newline at end of file
+}
@@ -15,16 +15,21 @@
  */
 package com.wl4g.devops.umc.receiver;
 
-import com.google.protobuf.InvalidProtocolBufferException;
 import com.wl4g.devops.common.bean.umc.model.proto.MetricModel.MetricAggregate;
 import com.wl4g.devops.umc.alarm.IndicatorsValveAlerter;
+import com.wl4g.devops.umc.config.ReceiverProperties.KafkaReceiverProperties;
+import com.wl4g.devops.umc.receiver.MetricIngestPipeline.IngestHandle;
 import com.wl4g.devops.umc.store.MetricStore;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.utils.Bytes;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.util.Assert;
 
 import java.util.List;
+import java.util.Map;
 
 import static com.wl4g.devops.common.constants.UMCDevOpsConstants.TOPIC_KAFKA_RECEIVE_PATTERN;
 import static com.wl4g.devops.umc.config.UmcReceiveAutoConfiguration.BEAN_KAFKA_BATCH_FACTORY;
@@ -36,10 +41,22 @@ import static com.wl4g.devops.umc.config.UmcReceiveAutoConfiguration.BEAN_KAFKA_
  * @version v1.0 2019年6月17日
  * @since
  */
-public class KafkaMetricReceiver extends AbstractMetricReceiver {
+public class KafkaMetricReceiver extends AbstractMetricReceiver implements DisposableBean {
 
-	public KafkaMetricReceiver(IndicatorsValveAlerter alerter, MetricStore store) {
+	/** Maximum backoff of retrying the records failed to store. */
+	final public static long MAX_STORE_RETRY_BACKOFF_MS = 30_000L;
+
+	/** KAFKA receiver properties. */
+	final protected KafkaReceiverProperties config;
+
+	/** Metric decode/store/alarm pipeline. */
+	final protected MetricIngestPipeline pipeline;
+
+	public KafkaMetricReceiver(IndicatorsValveAlerter alerter, MetricStore store, KafkaReceiverProperties config) {
 		super(alerter, store);
+		Assert.notNull(config, "KafkaReceiverProperties must not be null.");
+		this.config = config;
+		this.pipeline = new MetricIngestPipeline("kafkaReceiver", config.getPipeline(), this::putMetrics, this::alarm);
 	}
 
 	/**
@@ -60,36 +77,86 @@ public class KafkaMetricReceiver extends AbstractMetricReceiver {
 
 			doProcess(records, new MultiAcknowledgmentState(ack));
 		} catch (Exception e) {
-			log.error(String.format("Failed to receive process for ", records.size()), e);
+			log.error(String.format("Failed to receive process for %s records", records.size()), e);
 		}
 	}
 
+	@Override
+	public void destroy() throws Exception {
+		pipeline.close();
+	}
+
+	/**
+	 * Gets metric ingest pipeline.
+	 * 
+	 * @return
+	 */
+	public MetricIngestPipeline getPipeline() {
+		return pipeline;
+	}
+
 	/**
-	 * UMC agent metric processing.
+	 * UMC agent metric processing, records are handed off to the ingest
+	 * pipeline (ordered by partition), and ACK only after all of them have been
+	 * stored by the store stage.</br>
+	 * The consumer thread is blocked until then(back pressure to the
+	 * container). Skipping the ACK alone wouldn't redeliver the records,
+	 * because the offsets of the next batch will be committed anyway, so each
+	 * partition is retried with backoff from its first record failed to store
+	 * on(the later records are held back to keep the order) until stored. Only
+	 * when the pipeline has been closed(shutting down) the batch is not ACK,
+	 * and it's redelivered from the last committed offsets after restart(or
+	 * to another consumer, the same if the store is down longer than the max
+	 * poll interval). The records failed to decode are never retried.
 	 *
 	 * @param records
 	 * @param state
+	 * @throws InterruptedException
 	 */
-	private void doProcess(List<ConsumerRecord<byte[], Bytes>> records, MultiAcknowledgmentState state) {
-		for (ConsumerRecord<byte[], Bytes> record : records) {
-			try {
-				MetricAggregate aggregate = MetricAggregate.parseFrom(record.value().get());
-				if (log.isDebugEnabled()) {
-					log.debug("Put metric aggregate for - {}", aggregate);
-				}
-
-				// Storage metrics.
-				putMetrics(aggregate);
-
-				// Metrics alarm.
-				alarm(aggregate);
-			} catch (InvalidProtocolBufferException e) {
-				log.error("Failed to parse metric message.", e);
+	private void doProcess(List<ConsumerRecord<byte[], Bytes>> records, MultiAcknowledgmentState state)
+			throws InterruptedException {
+		IngestHandle handle = pipeline.submit(records, r -> new TopicPartition(r.topic(), r.partition()),
+				r -> r.value().get());
+
+		long backoffMs = config.getStoreRetryBackoffMs();
+		while (true) {
+			if (!awaitHandoff(handle)) {
+				return;
 			}
+			Map<Object, List<MetricAggregate>> failed = handle.getFailed();
+			if (failed.isEmpty()) {
+				break;
+			}
+			if (pipeline.isClosed()) { // Not ACK, redelivered after restart.
+				log.warn("Pipeline has been closed, skip ACK of metric records size - {}", records.size());
+				return;
+			}
+			log.warn("Failed to store metric aggregates of {} partitions, retry after {}ms", failed.size(), backoffMs);
+			Thread.sleep(backoffMs);
+			backoffMs = Math.min(backoffMs * 2, MAX_STORE_RETRY_BACKOFF_MS);
+			handle = pipeline.resubmit(failed);
 		}
 		state.completed();
 	}
 
+	/**
+	 * Wait for the records handed off to the store stage.
+	 *
+	 * @param handle
+	 * @return false if the pipeline has been closed.
+	 * @throws InterruptedException
+	 */
+	private boolean awaitHandoff(IngestHandle handle) throws InterruptedException {
+		while (!handle.await(config.getHandoffTimeoutMs())) {
+			if (pipeline.isClosed()) { // Not ACK, redelivered after restart.
+				log.warn("Pipeline has been closed, skip ACK of metric records size - {}", handle.getSize());
+				return false;
+			}
+			log.warn("Still waiting for handoff of metric records size - {}, {}", handle.getSize(), pipeline);
+		}
+		return true;
+	}
+
 	/**
 	 * Multiple ACK completion state
 	 *
@@ -0,0 +1,481 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.receiver;
+
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+import org.xerial.snappy.PureJavaCrc32C;
+import org.xerial.snappy.Snappy;
+
+import com.wl4g.devops.common.bean.umc.model.proto.MetricBatchCodec;
+import com.wl4g.devops.common.bean.umc.model.proto.MetricModel.MetricAggregate;
+
+/**
+ * Push decoder of the streaming request body, the body bytes are
+ * decompressed and split into the length-delimited frames(varint32 size +
+ * frame) as they arrive, and each frame is decoded as soon as it's complete,
+ * so neither the body nor the decompressed bytes are buffered, except the
+ * partial frame(and the partial snappy chunk).</br>
+ * Content encodings: identity, gzip(the members may be concatenated), snappy
+ * (framing format). Each frame is an aggregate, or a dictionary encoded batch
+ * of aggregates({@link MetricBatchCodec}).
+ *
+ * @author wangl.sir
+ * @version v1.0 2019年9月18日
+ * @since
+ */
+class MetricBodyDecoder implements Closeable {
+
+	/** Whether the frames are batches. */
+	final private boolean batch;
+
+	/** Maximum total bytes of the frames. */
+	final private int maxDecodedBytes;
+
+	final private Decompressor decompressor;
+
+	final private List<MetricAggregate> aggregates = new ArrayList<>();
+
+	/** Total bytes of the frames started. */
+	private long decodedBytes;
+
+	/** Varint32 size of the next frame being read. */
+	private int sizeValue;
+	private int sizeShift;
+
+	/** Frame being read, null if reading the size. */
+	private byte[] frame;
+	private int framePos;
+
+	MetricBodyDecoder(String encoding, boolean batch, int maxDecodedBytes) {
+		this.batch = batch;
+		this.maxDecodedBytes = maxDecodedBytes;
+		if (isGzip(encoding)) {
+			this.decompressor = new GzipDecompressor();
+		} else if (isSnappy(encoding)) {
+			this.decompressor = new SnappyDecompressor();
+		} else if (isBlank(encoding) || "identity".equalsIgnoreCase(encoding)) {
+			this.decompressor = new IdentityDecompressor();
+		} else {
+			throw new IllegalArgumentException("Unsupported content encoding: " + encoding);
+		}
+	}
+
+	/**
+	 * Whether the content encoding is supported.
+	 *
+	 * @param encoding
+	 * @return
+	 */
+	static boolean isSupported(String encoding) {
+		return isBlank(encoding) || "identity".equalsIgnoreCase(encoding) || isGzip(encoding) || isSnappy(encoding);
+	}
+
+	/**
+	 * Write the body bytes arrived.
+	 *
+	 * @param b
+	 * @param off
+	 * @param len
+	 * @throws IOException
+	 *             If the body is malformed, or {@link BodyTooLargeException}.
+	 */
+	void write(byte[] b, int off, int len) throws IOException {
+		decompressor.write(b, off, len);
+	}
+
+	/**
+	 * Finish at the end of body.
+	 *
+	 * @return Decoded aggregates of the body.
+	 * @throws IOException
+	 *             If the body is truncated.
+	 */
+	List<MetricAggregate> finish() throws IOException {
+		decompressor.finish();
+		if (frame != null || sizeShift > 0) {
+			throw new EOFException("Truncated frame at the end of body");
+		}
+		return aggregates;
+	}
+
+	@Override
+	public void close() {
+		decompressor.close();
+	}
+
+	/**
+	 * Split the decompressed bytes into frames.
+	 *
+	 * @param b
+	 * @param off
+	 * @param len
+	 * @throws IOException
+	 */
+	private void split(byte[] b, int off, int len) throws IOException {
+		int end = off + len;
+		while (off < end) {
+			if (frame == null) {
+				byte v = b[off++];
+				if (sizeShift == 28 && (v & 0xf0) != 0) {
+					throw new IOException("Illegal frame size");
+				}
+				sizeValue |= (v & 0x7f) << sizeShift;
+				if (v < 0) { // More bytes of varint.
+					sizeShift += 7;
+					continue;
+				}
+				int size = sizeValue;
+				sizeValue = sizeShift = 0;
+				if ((decodedBytes += size) > maxDecodedBytes) {
+					throw new BodyTooLargeException();
+				}
+				frame = new byte[size];
+				framePos = 0;
+			}
+			int n = Math.min(frame.length - framePos, end - off);
+			System.arraycopy(b, off, frame, framePos, n);
+			off += n;
+			if ((framePos += n) == frame.length) {
+				byte[] complete = frame;
+				frame = null;
+				if (batch) {
+					aggregates.addAll(MetricBatchCodec.decode(complete));
+				} else {
+					aggregates.add(MetricAggregate.parseFrom(complete));
+				}
+			}
+		}
+	}
+
+	private static boolean isGzip(String encoding) {
+		return "gzip".equalsIgnoreCase(encoding) || "x-gzip".equalsIgnoreCase(encoding);
+	}
+
+	private static boolean isSnappy(String encoding) {
+		return "snappy".equalsIgnoreCase(encoding) || "x-snappy-framed".equalsIgnoreCase(encoding);
+	}
+
+	/**
+	 * Push decompressor of content encoding.
+	 */
+	private interface Decompressor {
+
+		void write(byte[] b, int off, int len) throws IOException;
+
+		void finish() throws IOException;
+
+		default void close() {
+		}
+
+	}
+
+	/**
+	 * Identity encoding.
+	 */
+	private class IdentityDecompressor implements Decompressor {
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			split(b, off, len);
+		}
+
+		@Override
+		public void finish() {
+		}
+
+	}
+
+	/**
+	 * Gzip encoding(RFC 1952), the members may be concatenated.
+	 */
+	private class GzipDecompressor implements Decompressor {
+
+		final private static int HEADER = 0, DEFLATE = 1, TRAILER = 2;
+
+		/** Maximum bytes of the header, including the file name and comment. */
+		final private static int MAX_HEADER = 4096;
+
+		final private Inflater inflater = new Inflater(true);
+		final private CRC32 crc = new CRC32();
+		final private byte[] out = new byte[8192];
+
+		/** Header or trailer bytes of the current member. */
+		final private byte[] head = new byte[MAX_HEADER];
+		private int headPos;
+
+		private int state = HEADER;
+		private int members;
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			int end = off + len;
+			while (off < end) {
+				if (state == HEADER) {
+					if (headPos == MAX_HEADER) {
+						throw new ZipException("Gzip header is too large");
+					}
+					head[headPos++] = b[off++];
+					if (headerLength() == headPos) {
+						state = DEFLATE;
+						headPos = 0;
+						inflater.reset();
+						crc.reset();
+					}
+				} else if (state == DEFLATE) {
+					off = inflate(b, off, end);
+				} else {
+					head[headPos++] = b[off++];
+					if (headPos == 8) {
+						checkTrailer();
+						state = HEADER;
+						headPos = 0;
+						++members;
+					}
+				}
+			}
+		}
+
+		@Override
+		public void finish() throws IOException {
+			if (state != HEADER || headPos > 0 || members == 0) {
+				throw new EOFException("Unexpected end of gzip body");
+			}
+		}
+
+		@Override
+		public void close() {
+			inflater.end();
+		}
+
+		/**
+		 * Inflate the input until all consumed or the end of deflate stream.
+		 *
+		 * @return Offset of the rest input.
+		 */
+		private int inflate(byte[] b, int off, int end) throws IOException {
+			inflater.setInput(b, off, end - off);
+			try {
+				for (;;) {
+					int n = inflater.inflate(out);
+					if (n > 0) {
+						crc.update(out, 0, n);
+						split(out, 0, n);
+					} else if (inflater.finished()) {
+						state = TRAILER;
+						return end - inflater.getRemaining();
+					} else if (inflater.needsInput()) {
+						return end;
+					} else {
+						throw new ZipException("Unsupported deflate stream with preset dictionary");
+					}
+				}
+			} catch (DataFormatException e) {
+				throw new ZipException(e.getMessage());
+			}
+		}
+
+		/**
+		 * Length of the member header.
+		 *
+		 * @return -1 if the header is incomplete.
+		 * @throws IOException
+		 */
+		private int headerLength() throws IOException {
+			if (headPos < 10) {
+				return -1;
+			}
+			if ((head[0] & 0xff) != 0x1f || (head[1] & 0xff) != 0x8b) {
+				throw new ZipException("Not in gzip format");
+			}
+			if (head[2] != 8) {
+				throw new ZipException("Unsupported compression method");
+			}
+			int flags = head[3] & 0xff;
+			int pos = 10;
+			if ((flags & 4) != 0) { // FEXTRA
+				if (headPos < pos + 2) {
+					return -1;
+				}
+				pos += 2 + ((head[pos] & 0xff) | ((head[pos + 1] & 0xff) << 8));
+			}
+			if ((flags & 8) != 0 && (pos = skipZeroTerminated(pos)) < 0) { // FNAME
+				return -1;
+			}
+			if ((flags & 16) != 0 && (pos = skipZeroTerminated(pos)) < 0) { // FCOMMENT
+				return -1;
+			}
+			if ((flags & 2) != 0) { // FHCRC
+				pos += 2;
+			}
+			return headPos >= pos ? pos : -1;
+		}
+
+		private int skipZeroTerminated(int pos) {
+			for (; pos < headPos; pos++) {
+				if (head[pos] == 0) {
+					return pos + 1;
+				}
+			}
+			return -1;
+		}
+
+		private void checkTrailer() throws IOException {
+			if (readIntLE(head, 0) != (int) crc.getValue()) {
+				throw new ZipException("Corrupt gzip trailer, CRC mismatch");
+			}
+			if (readIntLE(head, 4) != (int) inflater.getBytesWritten()) {
+				throw new ZipException("Corrupt gzip trailer, size mismatch");
+			}
+		}
+
+	}
+
+	/**
+	 * Snappy framing format, see:
+	 * https://github.com/google/snappy/blob/master/framing_format.txt
+	 */
+	private class SnappyDecompressor implements Decompressor {
+
+		final private static int STREAM_IDENTIFIER = 0xff, COMPRESSED = 0x00, UNCOMPRESSED = 0x01, SKIPPABLE = 0x80;
+
+		/** Maximum uncompressed bytes of a chunk. */
+		final private static int MAX_BLOCK = 65536;
+
+		/** Maximum bytes of a compressed(or uncompressed) chunk. */
+		final private static int MAX_CHUNK = 4 + 32 + MAX_BLOCK + MAX_BLOCK / 6;
+
+		final private byte[] header = new byte[4];
+		private int headerPos;
+
+		/** Chunk data being read, null if skipping or reading the header. */
+		private byte[] chunk;
+		private int chunkPos;
+		/** Bytes to skip of the skippable chunk. */
+		private int skipping;
+
+		final private byte[] out = new byte[MAX_BLOCK];
+		final private PureJavaCrc32C crc = new PureJavaCrc32C();
+		private boolean started;
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			int end = off + len;
+			while (off < end) {
+				if (skipping > 0) {
+					int n = Math.min(skipping, end - off);
+					skipping -= n;
+					off += n;
+				} else if (chunk != null) {
+					int n = Math.min(chunk.length - chunkPos, end - off);
+					System.arraycopy(b, off, chunk, chunkPos, n);
+					off += n;
+					if ((chunkPos += n) == chunk.length) {
+						readChunk();
+					}
+				} else {
+					header[headerPos++] = b[off++];
+					if (headerPos == 4) {
+						headerPos = 0;
+						startChunk();
+					}
+				}
+			}
+		}
+
+		@Override
+		public void finish() throws IOException {
+			if (headerPos > 0 || chunk != null || skipping > 0 || !started) {
+				throw new EOFException("Unexpected end of snappy body");
+			}
+		}
+
+		private void startChunk() throws IOException {
+			int type = header[0] & 0xff;
+			int length = (header[1] & 0xff) | ((header[2] & 0xff) << 8) | ((header[3] & 0xff) << 16);
+			if (!started && type != STREAM_IDENTIFIER) {
+				throw new IOException("Not in snappy framing format");
+			}
+			if (type == COMPRESSED || type == UNCOMPRESSED || type == STREAM_IDENTIFIER) {
+				if (length < 4 || length > MAX_CHUNK) {
+					throw new IOException("Illegal snappy chunk length: " + length);
+				}
+				chunk = new byte[length];
+				chunkPos = 0;
+			} else if (type >= SKIPPABLE) { // Skippable and padding.
+				skipping = length;
+			} else {
+				throw new IOException("Unsupported unskippable snappy chunk: " + type);
+			}
+		}
+
+		private void readChunk() throws IOException {
+			byte[] data = chunk;
+			chunk = null;
+			int type = header[0] & 0xff;
+			if (type == STREAM_IDENTIFIER) {
+				if (data.length != 6 || data[0] != 's' || data[1] != 'N' || data[2] != 'a' || data[3] != 'P' || data[4] != 'p'
+						|| data[5] != 'Y') {
+					throw new IOException("Illegal snappy stream identifier");
+				}
+				started = true;
+				return;
+			}
+			byte[] block = data;
+			int offset = 4, length = data.length - 4;
+			if (type == COMPRESSED) {
+				if (!Snappy.isValidCompressedBuffer(data, 4, length) || Snappy.uncompressedLength(data, 4, length) > MAX_BLOCK) {
+					throw new IOException("Illegal snappy compressed chunk");
+				}
+				length = Snappy.uncompress(data, 4, data.length - 4, out, 0);
+				block = out;
+				offset = 0;
+			} else if (length > MAX_BLOCK) {
+				throw new IOException("Illegal snappy uncompressed chunk length: " + length);
+			}
+			crc.reset();
+			crc.update(block, offset, length);
+			int actual = (int) crc.getValue();
+			if (readIntLE(data, 0) != ((actual >>> 15) | (actual << 17)) + 0xa282ead8) {
+				throw new IOException("Corrupt snappy chunk, CRC mismatch");
+			}
+			split(block, offset, length);
+		}
+
+	}
+
+	private static int readIntLE(byte[] b, int off) {
+		return (b[off] & 0xff) | ((b[off + 1] & 0xff) << 8) | ((b[off + 2] & 0xff) << 16) | ((b[off + 3] & 0xff) << 24);
+	}
+
+	/**
+	 * Decoded body too large.
+	 */
+	static class BodyTooLargeException extends IOException {
+		private static final long serialVersionUID = -8215937401952761358L;
+	}
+
+}
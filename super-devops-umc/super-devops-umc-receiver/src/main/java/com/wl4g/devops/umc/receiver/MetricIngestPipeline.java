@@ -0,0 +1,548 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.receiver;
+
+import static java.lang.Math.min;
+import static java.util.concurrent.CompletableFuture.allOf;
+import static java.util.concurrent.CompletableFuture.supplyAsync;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor.CallerRunsPolicy;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import com.wl4g.devops.common.bean.umc.model.proto.MetricModel.MetricAggregate;
+import com.wl4g.devops.umc.config.ReceiverProperties.IngestPipelineProperties;
+
+/**
+ * Staged metric ingest pipeline, records are decoded in parallel by the decode
+ * stage, and then handed off to the store and alarm stages through bounded
+ * queues.</br>
+ * Store and alarm stages are divided into single-threaded lanes, all records
+ * of the same partition are always dispatched to the same lane, so the order
+ * within a partition is preserved, while a slow partition (or a slow alarm
+ * evaluation) will not block the others.</br>
+ * A partition stops at its first aggregate failed to store, it and the rest of
+ * the partition are collected by the handle of their batch(in order), the
+ * submitter may {@link #resubmit(Map)} them to retry from there on.
+ *
+ * @author Wangl.sir
+ * @version v1.0 2019年9月2日
+ * @since
+ */
+public class MetricIngestPipeline implements Closeable {
+
+	final protected Logger log = LoggerFactory.getLogger(getClass());
+
+	/** Pipeline configuration properties. */
+	final private IngestPipelineProperties config;
+
+	/** Store stage handler. */
+	final private Consumer<MetricAggregate> storeHandler;
+
+	/** Alarm stage handler. */
+	final private Consumer<MetricAggregate> alarmHandler;
+
+	/** Decode stage workers. */
+	final private ThreadPoolExecutor decoder;
+
+	/** Store stage lanes. */
+	final private ThreadPoolExecutor[] storeLanes;
+
+	/** Alarm stage lanes. */
+	final private ThreadPoolExecutor[] alarmLanes;
+
+	/** Pipeline statistics counters. */
+	final private AtomicLong decoded = new AtomicLong(0);
+	final private AtomicLong decodeFailed = new AtomicLong(0);
+	final private AtomicLong stored = new AtomicLong(0);
+	final private AtomicLong storeFailed = new AtomicLong(0);
+	final private AtomicLong alarmed = new AtomicLong(0);
+	final private AtomicLong alarmDropped = new AtomicLong(0);
+
+	public MetricIngestPipeline(String name, IngestPipelineProperties config, Consumer<MetricAggregate> storeHandler,
+			Consumer<MetricAggregate> alarmHandler) {
+		Assert.hasText(name, "Pipeline name must not be empty.");
+		Assert.notNull(config, "Pipeline properties must not be null.");
+		Assert.notNull(storeHandler, "Store handler must not be null.");
+		Assert.notNull(alarmHandler, "Alarm handler must not be null.");
+		Assert.isTrue(config.getDecodeThreads() > 0, "Decode threads must be greater than 0.");
+		Assert.isTrue(config.getLanes() > 0, "Lanes must be greater than 0.");
+		this.config = config;
+		this.storeHandler = storeHandler;
+		this.alarmHandler = alarmHandler;
+
+		// When the decoding queue is full, the submitter will decode by
+		// itself, that is, back pressure to the consumer thread.
+		this.decoder = createExecutor(name + "-decode", config.getDecodeThreads(), config.getDecodeQueue(),
+				new CallerRunsPolicy());
+		this.storeLanes = new ThreadPoolExecutor[config.getLanes()];
+		this.alarmLanes = new ThreadPoolExecutor[config.getLanes()];
+		for (int i = 0; i < config.getLanes(); i++) {
+			storeLanes[i] = createExecutor(name + "-store" + i, 1, config.getLaneQueue(), new BlockingPolicy());
+			alarmLanes[i] = createExecutor(name + "-alarm" + i, 1, config.getLaneQueue(), new DroppingPolicy());
+		}
+	}
+
+	/**
+	 * Submit a batch of records to the pipeline, the records are grouped by
+	 * partition in their encounter order.
+	 *
+	 * @param records
+	 *            Raw records.
+	 * @param partitioner
+	 *            Obtain the record partition key, e.g. kafka topic partition.
+	 * @param extractor
+	 *            Obtain the record serialized aggregate payload.
+	 * @return Handle for waiting for the batch to be handed off to(and
+	 *         stored by) the store stage.
+	 */
+	public <R> IngestHandle submit(Collection<R> records, Function<R, Object> partitioner, Function<R, byte[]> extractor) {
+		Map<Object, List<R>> partitions = new LinkedHashMap<>();
+		for (R record : records) {
+			partitions.computeIfAbsent(partitioner.apply(record), k -> new ArrayList<>()).add(record);
+		}
+
+		IngestHandle handle = new IngestHandle(partitions.size(), records.size());
+		for (Map.Entry<Object, List<R>> ent : partitions.entrySet()) {
+			int lane = laneOf(ent.getKey());
+			List<R> group = ent.getValue();
+
+			// Decode in parallel chunks.
+			List<CompletableFuture<MetricAggregate[]>> chunks = new ArrayList<>();
+			for (int i = 0; i < group.size(); i += config.getDecodeChunk()) {
+				List<R> chunk = group.subList(i, min(i + config.getDecodeChunk(), group.size()));
+				chunks.add(supplyAsync(() -> decode(chunk, extractor), decoder));
+			}
+
+			// Chunks are handed off to the lane in order, after all decoded.
+			Object partition = ent.getKey();
+			allOf(chunks.toArray(new CompletableFuture[0]))
+					.whenComplete((v, ex) -> dispatch(partition, lane, chunks, handle, true));
+		}
+		return handle;
+	}
+
+	/**
+	 * Submit already decoded aggregates of a partition to the pipeline.
+	 *
+	 * @param partition
+	 * @param aggregates
+	 * @return
+	 */
+	public IngestHandle submit(Object partition, List<MetricAggregate> aggregates) {
+		IngestHandle handle = new IngestHandle(1, aggregates.size());
+		MetricAggregate[] decodedArr = aggregates.toArray(new MetricAggregate[0]);
+		dispatch(partition, laneOf(partition), singletonChunk(decodedArr), handle, true);
+		return handle;
+	}
+
+	/**
+	 * Try to submit already decoded aggregates of a partition to the pipeline
+	 * without blocking, e.g. from the request threads of the container.
+	 *
+	 * @param partition
+	 * @param aggregates
+	 * @return Returns null if the store lane of the partition is full.
+	 * @throws IllegalStateException
+	 *             If the pipeline has been closed.
+	 */
+	public IngestHandle trySubmit(Object partition, List<MetricAggregate> aggregates) {
+		if (isClosed()) {
+			throw new IllegalStateException("Pipeline has been closed.");
+		}
+		IngestHandle handle = new IngestHandle(1, aggregates.size());
+		MetricAggregate[] decodedArr = aggregates.toArray(new MetricAggregate[0]);
+		return dispatch(partition, laneOf(partition), singletonChunk(decodedArr), handle, false) ? handle : null;
+	}
+
+	/**
+	 * Resubmit the aggregates failed to store(see
+	 * {@link IngestHandle#getFailed()}), each partition is retried from its
+	 * first failed aggregate on, in the original order.
+	 *
+	 * @param failed
+	 *            Failed aggregates of partitions.
+	 * @return
+	 */
+	public IngestHandle resubmit(Map<Object, List<MetricAggregate>> failed) {
+		int size = 0;
+		for (List<MetricAggregate> aggregates : failed.values()) {
+			size += aggregates.size();
+		}
+		IngestHandle handle = new IngestHandle(failed.size(), size);
+		for (Map.Entry<Object, List<MetricAggregate>> ent : failed.entrySet()) {
+			MetricAggregate[] decodedArr = ent.getValue().toArray(new MetricAggregate[0]);
+			dispatch(ent.getKey(), laneOf(ent.getKey()), singletonChunk(decodedArr), handle, true);
+		}
+		return handle;
+	}
+
+	@Override
+	public void close() throws IOException {
+		// Stop stages in order of data flow, draining upstream first.
+		shutdownAndAwait(decoder);
+		for (ThreadPoolExecutor lane : storeLanes) {
+			shutdownAndAwait(lane);
+		}
+		for (ThreadPoolExecutor lane : alarmLanes) {
+			shutdownAndAwait(lane);
+		}
+	}
+
+	/**
+	 * Whether the pipeline has been closed(or closing).
+	 *
+	 * @return
+	 */
+	public boolean isClosed() {
+		return decoder.isShutdown();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder pending = new StringBuilder();
+		for (int i = 0; i < storeLanes.length; i++) {
+			pending.append(storeLanes[i].getQueue().size()).append("/").append(alarmLanes[i].getQueue().size());
+			pending.append(i < storeLanes.length - 1 ? ", " : "");
+		}
+		return getClass().getSimpleName() + " [decoded=" + decoded + ", decodeFailed=" + decodeFailed + ", stored=" + stored
+				+ ", storeFailed=" + storeFailed + ", alarmed=" + alarmed + ", alarmDropped=" + alarmDropped
+				+ ", decodePending=" + decoder.getQueue().size() + ", lanePending(store/alarm)=[" + pending + "]]";
+	}
+
+	public long getDecoded() {
+		return decoded.get();
+	}
+
+	public long getDecodeFailed() {
+		return decodeFailed.get();
+	}
+
+	public long getStored() {
+		return stored.get();
+	}
+
+	public long getStoreFailed() {
+		return storeFailed.get();
+	}
+
+	public long getAlarmed() {
+		return alarmed.get();
+	}
+
+	public long getAlarmDropped() {
+		return alarmDropped.get();
+	}
+
+	/**
+	 * Decoding chunk records.
+	 *
+	 * @param chunk
+	 * @param extractor
+	 * @return
+	 */
+	private <R> MetricAggregate[] decode(List<R> chunk, Function<R, byte[]> extractor) {
+		MetricAggregate[] aggregates = new MetricAggregate[chunk.size()];
+		for (int i = 0; i < aggregates.length; i++) {
+			try {
+				aggregates[i] = MetricAggregate.parseFrom(extractor.apply(chunk.get(i)));
+				decoded.incrementAndGet();
+			} catch (Exception e) {
+				decodeFailed.incrementAndGet();
+				log.error("Failed to parse metric message.", e);
+			}
+		}
+		return aggregates;
+	}
+
+	/**
+	 * Dispatch decoded chunks to the store lane, and then alarm lane(only the
+	 * stored aggregates). Once an aggregate failed to store, the rest of the
+	 * partition are not stored, but collected as failed in order, so that the
+	 * order within the partition is preserved on retry.
+	 *
+	 * @param partition
+	 * @param lane
+	 * @param chunks
+	 * @param handle
+	 * @param blocking
+	 *            Whether to wait for room in the lane queue.
+	 * @return Returns false if not blocking and the lane queue is full, the
+	 *         handle is untouched.
+	 * @throws IllegalStateException
+	 *             If not blocking and the pipeline has been closed.
+	 */
+	private boolean dispatch(Object partition, int lane, List<CompletableFuture<MetricAggregate[]>> chunks,
+			IngestHandle handle, boolean blocking) {
+		try {
+			Runnable task = () -> {
+				try {
+					boolean stopped = false;
+					for (CompletableFuture<MetricAggregate[]> chunk : chunks) {
+						for (MetricAggregate aggregate : chunk.join()) {
+							if (aggregate == null) {
+								continue;
+							}
+							if (stopped || !doStore(aggregate)) {
+								stopped = true;
+								handle.fail(partition, aggregate);
+							} else {
+								alarmLanes[lane].execute(() -> doAlarm(aggregate));
+							}
+						}
+					}
+				} finally {
+					handle.handoff();
+				}
+			};
+			storeLanes[lane].execute(blocking ? task : new NonBlockingTask(task));
+			return true;
+		} catch (LaneSaturatedException e) {
+			return false;
+		} catch (RejectedExecutionException e) {
+			if (!blocking) {
+				throw new IllegalStateException("Pipeline has been closed.", e);
+			}
+			for (CompletableFuture<MetricAggregate[]> chunk : chunks) {
+				for (MetricAggregate aggregate : chunk.getNow(new MetricAggregate[0])) {
+					if (aggregate != null) {
+						handle.fail(partition, aggregate);
+					}
+				}
+			}
+			handle.handoff();
+			log.error("Failed to dispatch to store stage, pipeline has been closed?", e);
+			return true;
+		}
+	}
+
+	private boolean doStore(MetricAggregate aggregate) {
+		try {
+			if (log.isDebugEnabled()) {
+				log.debug("Put metric aggregate for - {}", aggregate);
+			}
+			storeHandler.accept(aggregate);
+			stored.incrementAndGet();
+			return true;
+		} catch (Exception e) {
+			storeFailed.incrementAndGet();
+			log.error("Failed to store metric aggregate.", e);
+			return false;
+		}
+	}
+
+	private void doAlarm(MetricAggregate aggregate) {
+		try {
+			alarmHandler.accept(aggregate);
+			alarmed.incrementAndGet();
+		} catch (Exception e) {
+			log.error("Failed to alarm metric aggregate.", e);
+		}
+	}
+
+	private int laneOf(Object partition) {
+		return partition == null ? 0 : (partition.hashCode() & Integer.MAX_VALUE) % storeLanes.length;
+	}
+
+	private static List<CompletableFuture<MetricAggregate[]>> singletonChunk(MetricAggregate[] aggregates) {
+		List<CompletableFuture<MetricAggregate[]>> chunks = new ArrayList<>(1);
+		chunks.add(CompletableFuture.completedFuture(aggregates));
+		return chunks;
+	}
+
+	private void shutdownAndAwait(ThreadPoolExecutor executor) {
+		executor.shutdown();
+		try {
+			if (!executor.awaitTermination(config.getShutdownAwaitSec(), SECONDS)) {
+				log.warn("Timeout waiting for drain of pipeline stage, pending tasks: {}", executor.getQueue().size());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static ThreadPoolExecutor createExecutor(String prefix, int threads, int queueSize,
+			RejectedExecutionHandler reject) {
+		final AtomicInteger counter = new AtomicInteger(-1);
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0L, MILLISECONDS,
+				new ArrayBlockingQueue<>(queueSize), r -> {
+					Thread t = new Thread(r, prefix + "-" + counter.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				}, reject);
+		executor.prestartAllCoreThreads();
+		return executor;
+	}
+
+	/**
+	 * Ingest batch handle.
+	 *
+	 * @author Wangl.sir
+	 * @version v1.0 2019年9月2日
+	 * @since
+	 */
+	public static class IngestHandle {
+
+		/** Number of partitions not yet handed off to the store stage. */
+		final private CountDownLatch pending;
+
+		/** Number of records in the batch. */
+		final private int size;
+
+		/** Aggregates failed to store of partitions. */
+		final private Map<Object, List<MetricAggregate>> failed = new LinkedHashMap<>();
+
+		public IngestHandle(int partitions, int size) {
+			this.pending = new CountDownLatch(partitions);
+			this.size = size;
+		}
+
+		/**
+		 * Wait for all partitions of the batch have been handed off to the store
+		 * stage.
+		 *
+		 * @param timeoutMs
+		 * @return Returns false if waiting timeout.
+		 * @throws InterruptedException
+		 */
+		public boolean await(long timeoutMs) throws InterruptedException {
+			return pending.await(timeoutMs, MILLISECONDS);
+		}
+
+		public int getSize() {
+			return size;
+		}
+
+		/**
+		 * Aggregates failed to store of partitions(in their order), complete
+		 * after handed off.
+		 *
+		 * @return
+		 */
+		public synchronized Map<Object, List<MetricAggregate>> getFailed() {
+			Map<Object, List<MetricAggregate>> copy = new LinkedHashMap<>();
+			for (Map.Entry<Object, List<MetricAggregate>> ent : failed.entrySet()) {
+				copy.put(ent.getKey(), new ArrayList<>(ent.getValue()));
+			}
+			return copy;
+		}
+
+		synchronized void fail(Object partition, MetricAggregate aggregate) {
+			failed.computeIfAbsent(partition, k -> new ArrayList<>()).add(aggregate);
+		}
+
+		void handoff() {
+			pending.countDown();
+		}
+
+	}
+
+	/**
+	 * Blocking the submitter until there is room in the lane queue, except the
+	 * {@link NonBlockingTask}.
+	 */
+	private static class BlockingPolicy implements RejectedExecutionHandler {
+
+		@Override
+		public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+			if (executor.isShutdown()) {
+				throw new RejectedExecutionException("Pipeline stage has been shutdown.");
+			}
+			if (r instanceof NonBlockingTask) {
+				throw new LaneSaturatedException();
+			}
+			try {
+				executor.getQueue().put(r);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RejectedExecutionException(e);
+			}
+		}
+
+	}
+
+	/**
+	 * Store task submitted without blocking.
+	 */
+	private static class NonBlockingTask implements Runnable {
+
+		final private Runnable task;
+
+		NonBlockingTask(Runnable task) {
+			this.task = task;
+		}
+
+		@Override
+		public void run() {
+			task.run();
+		}
+
+	}
+
+	/**
+	 * Lane queue is full on submitting a {@link NonBlockingTask}.
+	 */
+	private static class LaneSaturatedException extends RejectedExecutionException {
+		private static final long serialVersionUID = 4721598235406623817L;
+
+		LaneSaturatedException() {
+			super("Pipeline lane is saturated.");
+		}
+	}
+
+	/**
+	 * Dropping alarm task when waiting for the lane queue timeout, the alarm
+	 * evaluation is best effort and should never block the store stage.
+	 */
+	private class DroppingPolicy implements RejectedExecutionHandler {
+
+		@Override
+		public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+			try {
+				if (executor.isShutdown() || !executor.getQueue().offer(r, config.getAlarmOfferTimeoutMs(), MILLISECONDS)) {
+					alarmDropped.incrementAndGet();
+					log.warn("Alarm stage is overloaded, dropped alarm task. total dropped: {}", alarmDropped.get());
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				alarmDropped.incrementAndGet();
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.receiver;
+
+import static java.util.Collections.singletonList;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.util.Assert;
+
+import com.wl4g.devops.common.bean.umc.model.proto.MetricModel.MetricAggregate;
+import com.wl4g.devops.umc.alarm.IndicatorsValveAlerter;
+import com.wl4g.devops.umc.config.ReceiverProperties.WatchReceiverProperties;
+import com.wl4g.devops.umc.store.MetricStore;
+import com.wl4g.devops.umc.watch.IndicatorsStateHandler;
+
+/**
+ * Watched indicators state receiver, the probing results are stored and
+ * alarmed by the ingest pipeline(ordered by target) like the pushed metrics,
+ * so that the watching job is not blocked by them.
+ * 
+ * @author wangl.sir
+ * @version v1.0 2019年9月16日
+ * @since
+ */
+public class WatchMetricReceiver extends AbstractMetricReceiver implements IndicatorsStateHandler, DisposableBean {
+
+	/** Metric store/alarm pipeline. */
+	final protected MetricIngestPipeline pipeline;
+
+	public WatchMetricReceiver(IndicatorsValveAlerter alerter, MetricStore store, WatchReceiverProperties config) {
+		super(alerter, store);
+		Assert.notNull(config, "WatchReceiverProperties must not be null.");
+		this.pipeline = new MetricIngestPipeline("watchReceiver", config.getPipeline(), this::putMetrics, this::alarm);
+	}
+
+	@Override
+	public void handle(MetricAggregate aggregate) {
+		pipeline.submit(aggregate.getInstance(), singletonList(aggregate));
+	}
+
+	@Override
+	public void destroy() throws Exception {
+		pipeline.close();
+	}
+
+	/**
+	 * Gets metric ingest pipeline.
+	 * 
+	 * @return
+	 */
+	public MetricIngestPipeline getPipeline() {
+		return pipeline;
+	}
+
+}
@@ -0,0 +1,424 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.receiver;
+
+import static com.wl4g.devops.common.constants.UMCDevOpsConstants.URI_HTTP_RECEIVER_BASE;
+import static com.wl4g.devops.umc.config.UmcReceiveAutoConfiguration.BEAN_HTTP_RECEIVER;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.Wrapper;
+import org.apache.catalina.startup.Tomcat;
+import org.junit.After;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+import org.springframework.web.servlet.DispatcherServlet;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+import org.xerial.snappy.SnappyFramedOutputStream;
+
+import com.google.protobuf.CodedOutputStream;
+import com.wl4g.devops.common.bean.umc.model.proto.MetricBatchCodec;
+import com.wl4g.devops.common.bean.umc.model.proto.MetricModel.Metric;
+import com.wl4g.devops.common.bean.umc.model.proto.MetricModel.MetricAggregate;
+import com.wl4g.devops.common.config.AbstractOptionalControllerConfiguration;
+import com.wl4g.devops.umc.annotation.HttpCollectReceiver;
+import com.wl4g.devops.umc.config.ReceiverProperties.HttpReceiverProperties;
+import com.wl4g.devops.umc.config.UmcReceiveAutoConfiguration;
+import com.wl4g.devops.umc.store.MetricStore;
+
+/**
+ * {@link HttpMetricReceiver} tests against its Spring MVC end-points(mapped
+ * as the {@link UmcReceiveAutoConfiguration} does) in the embedded container,
+ * every accepted aggregate must be stored, and a saturated pipeline must be
+ * responded 503 instead of blocking the container threads. The load test is
+ * opt-in by {@code -Dbenchmark=true}, it only reports the rates.
+ * 
+ * @author wangl.sir
+ * @version v1.0 2019年9月17日
+ * @since
+ */
+public class HttpMetricReceiverTests {
+
+	final private static Logger log = LoggerFactory.getLogger(HttpMetricReceiverTests.class);
+
+	final private static int CLIENTS = 8;
+
+	final private static int REQUESTS_PER_CLIENT = 60;
+
+	final private static int AGGREGATES_PER_REQUEST = 100;
+
+	final private static String[] ENCODINGS = { null, "gzip", "snappy" };
+
+	final private static int BENCHMARK_WARMUP_REQUESTS = 200;
+
+	final private static int BENCHMARK_REQUESTS_PER_CLIENT = 2000;
+
+	final private AtomicLong stored = new AtomicLong(0);
+
+	private Tomcat tomcat;
+
+	private AnnotationConfigWebApplicationContext context;
+
+	private HttpMetricReceiver receiver;
+
+	@After
+	public void shutdown() throws Exception {
+		if (tomcat != null) {
+			tomcat.stop();
+			tomcat.destroy();
+		}
+		if (context != null) {
+			context.close();
+		}
+		if (receiver != null) {
+			receiver.destroy();
+		}
+	}
+
+	@Test
+	public void testStreamingIntake() throws Exception {
+		int port = start(new HttpReceiverProperties());
+		byte[][] bodies = new byte[ENCODINGS.length][];
+		for (int i = 0; i < ENCODINGS.length; i++) {
+			bodies[i] = encode(AGGREGATES_PER_REQUEST, ENCODINGS[i]);
+		}
+
+		ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+		List<Future<int[]>> futures = new ArrayList<>();
+		for (int c = 0; c < CLIENTS; c++) {
+			String client = "client-" + c;
+			futures.add(clients.submit(() -> {
+				int[] statuses = new int[2]; // [accepted, saturated]
+				for (int i = 0; i < REQUESTS_PER_CLIENT; i++) {
+					int e = i % ENCODINGS.length;
+					int status = post(port, "/metrics", client, bodies[e], ENCODINGS[e]);
+					assertTrue("Unexpected status: " + status, status == 202 || status == 503);
+					++statuses[status == 202 ? 0 : 1];
+				}
+				return statuses;
+			}));
+		}
+		int accepted = 0, saturated = 0;
+		for (Future<int[]> f : futures) {
+			int[] statuses = f.get(120, TimeUnit.SECONDS);
+			accepted += statuses[0];
+			saturated += statuses[1];
+		}
+		clients.shutdown();
+
+		receiver.getPipeline().close(); // Drain
+		// Every accepted aggregate is stored.
+		assertTrue(accepted > 0);
+		assertEquals(accepted * AGGREGATES_PER_REQUEST, stored.get());
+		assertEquals(accepted * AGGREGATES_PER_REQUEST, receiver.getAccepted());
+		assertEquals(0, receiver.getPipeline().getStoreFailed());
+		assertEquals(saturated, receiver.getRejected());
+	}
+
+	@Test
+	public void benchmarkStreamingIntake() throws Exception {
+		assumeTrue(Boolean.getBoolean("benchmark"));
+		int port = start(new HttpReceiverProperties());
+		byte[][] bodies = new byte[ENCODINGS.length][];
+		for (int i = 0; i < ENCODINGS.length; i++) {
+			bodies[i] = encode(AGGREGATES_PER_REQUEST, ENCODINGS[i]);
+		}
+		for (int i = 0; i < BENCHMARK_WARMUP_REQUESTS; i++) {
+			int e = i % ENCODINGS.length;
+			post(port, "/metrics", "warmup", bodies[e], ENCODINGS[e]);
+		}
+
+		ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+		List<Future<long[]>> futures = new ArrayList<>();
+		long begin = System.nanoTime();
+		for (int c = 0; c < CLIENTS; c++) {
+			String client = "client-" + c;
+			futures.add(clients.submit(() -> {
+				long[] counts = new long[3]; // [accepted, saturated, bytes]
+				for (int i = 0; i < BENCHMARK_REQUESTS_PER_CLIENT; i++) {
+					int e = i % ENCODINGS.length;
+					int status = post(port, "/metrics", client, bodies[e], ENCODINGS[e]);
+					++counts[status == 202 ? 0 : 1];
+					counts[2] += bodies[e].length;
+				}
+				return counts;
+			}));
+		}
+		long accepted = 0, saturated = 0, bytes = 0;
+		for (Future<long[]> f : futures) {
+			long[] counts = f.get(600, TimeUnit.SECONDS);
+			accepted += counts[0];
+			saturated += counts[1];
+			bytes += counts[2];
+		}
+		long elapsedNanos = System.nanoTime() - begin;
+		clients.shutdown();
+		receiver.getPipeline().close(); // Drain
+
+		long requests = accepted + saturated;
+		log.info("Clients: {}, requests: {}/s, bytes: {}/s, aggregates: {}/s, accepted: {}, saturated: {}", CLIENTS,
+				requests * 1000_000_000L / elapsedNanos, bytes * 1000_000_000L / elapsedNanos,
+				accepted * AGGREGATES_PER_REQUEST * 1000_000_000L / elapsedNanos, accepted, saturated);
+	}
+
+	@Test
+	public void testSaturatedPipeline() throws Exception {
+		HttpReceiverProperties config = new HttpReceiverProperties();
+		config.getPipeline().setLanes(1);
+		config.getPipeline().setLaneQueue(1);
+		CountDownLatch storing = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		int port = start(config, aggregate -> {
+			storing.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			stored.incrementAndGet();
+			return true;
+		});
+		byte[] body = encode(AGGREGATES_PER_REQUEST, null);
+
+		// The lane is storing the first request, and the second is queued.
+		assertEquals(202, post(port, "/metrics", "client", body, null));
+		assertTrue(storing.await(10, TimeUnit.SECONDS));
+		assertEquals(202, post(port, "/metrics", "client", body, null));
+
+		// The lane is full, responded at once rather than blocking.
+		HttpURLConnection conn = send(port, "/metrics", "client", body, null);
+		assertEquals(503, conn.getResponseCode());
+		assertEquals("1", conn.getHeaderField("Retry-After"));
+		conn.disconnect();
+		assertEquals(503, post(port, "/metric", "client", newAggregate(0).toByteArray(), null));
+
+		release.countDown();
+		receiver.getPipeline().close();
+		assertEquals(AGGREGATES_PER_REQUEST * 2, stored.get());
+		assertEquals(2, receiver.getRejected());
+	}
+
+	@Test
+	public void testClientQuota() throws Exception {
+		HttpReceiverProperties config = new HttpReceiverProperties();
+		config.setQuotaPerSec(10);
+		config.setQuotaBurst(AGGREGATES_PER_REQUEST / 2);
+		int port = start(config);
+		byte[] body = encode(AGGREGATES_PER_REQUEST, null);
+
+		assertEquals(202, post(port, "/metrics", "limited", body, null));
+		// The batch larger than burst is admitted into debt, and then rejected
+		// until the debt is paid off.
+		assertEquals(429, post(port, "/metrics", "limited", body, null));
+		// Other clients are not affected.
+		assertEquals(202, post(port, "/metrics", "other", body, null));
+
+		receiver.getPipeline().close();
+		assertEquals(AGGREGATES_PER_REQUEST * 2, stored.get());
+	}
+
+	@Test
+	public void testBatchIntake() throws Exception {
+		int port = start(new HttpReceiverProperties());
+		List<MetricAggregate> aggregates = new ArrayList<>();
+		for (int i = 0; i < AGGREGATES_PER_REQUEST; i++) {
+			aggregates.add(newAggregate(i));
+		}
+		byte[] batch = MetricBatchCodec.encode(aggregates);
+		assertEquals(aggregates, MetricBatchCodec.decode(batch));
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+			CodedOutputStream out = CodedOutputStream.newInstance(gzip);
+			for (int i = 0; i < 2; i++) { // Two batches
+				out.writeUInt32NoTag(batch.length);
+				out.writeRawBytes(batch);
+			}
+			out.flush();
+		}
+		assertEquals(202, post(port, "/batch", "reporter", bytes.toByteArray(), "gzip"));
+
+		receiver.getPipeline().close();
+		assertEquals(AGGREGATES_PER_REQUEST * 2, stored.get());
+	}
+
+	@Test
+	public void testSingleAggregate() throws Exception {
+		int port = start(new HttpReceiverProperties());
+		assertEquals(202, post(port, "/metric", "single", newAggregate(0).toByteArray(), null));
+		assertEquals(400, post(port, "/metric", "single", new byte[] { 10, 10, 2 }, null));
+
+		receiver.getPipeline().close();
+		assertEquals(1, stored.get());
+	}
+
+	@Test
+	public void testMalformedBody() throws Exception {
+		HttpReceiverProperties config = new HttpReceiverProperties();
+		config.setMaxBodyBytes(4096);
+		int port = start(config);
+		assertEquals(400, post(port, "/metrics", "bad", new byte[] { 10, 1, 2 }, null)); // Truncated frame
+		assertEquals(415, post(port, "/metrics", "bad", encode(1, null), "br"));
+		assertEquals(413, post(port, "/metrics", "bad", encode(AGGREGATES_PER_REQUEST, null), null));
+
+		// Without content length, the body is counted as it arrives.
+		HttpURLConnection conn = (HttpURLConnection) new URL(url(port, "/metrics")).openConnection();
+		conn.setRequestMethod("POST");
+		conn.setDoOutput(true);
+		conn.setChunkedStreamingMode(1024);
+		try (OutputStream out = conn.getOutputStream()) {
+			out.write(encode(AGGREGATES_PER_REQUEST, null));
+		}
+		assertEquals(413, conn.getResponseCode());
+		conn.disconnect();
+		assertEquals(4, receiver.getRejected());
+		assertEquals(0, receiver.getAccepted());
+	}
+
+	private int start(HttpReceiverProperties config) throws Exception {
+		return start(config, aggregate -> {
+			stored.incrementAndGet();
+			return true;
+		});
+	}
+
+	/**
+	 * Start the receiver end-points in the embedded container.
+	 * 
+	 * @param config
+	 * @param store
+	 * @return
+	 * @throws Exception
+	 */
+	private int start(HttpReceiverProperties config, MetricStore store) throws Exception {
+		receiver = new HttpMetricReceiver(wrap -> {
+		}, store, config);
+
+		context = new AnnotationConfigWebApplicationContext();
+		context.register(ReceiverMvcConfiguration.class);
+		context.addBeanFactoryPostProcessor(beanFactory -> beanFactory.registerSingleton(BEAN_HTTP_RECEIVER, receiver));
+
+		tomcat = new Tomcat();
+		tomcat.setPort(0);
+		tomcat.setBaseDir(System.getProperty("java.io.tmpdir"));
+		Context ctx = tomcat.addContext("", null);
+		Wrapper wrapper = Tomcat.addServlet(ctx, "dispatcher", new DispatcherServlet(context));
+		wrapper.setAsyncSupported(true);
+		wrapper.setLoadOnStartup(1);
+		ctx.addServletMappingDecoded("/", "dispatcher");
+		tomcat.start();
+		assertTrue(tomcat.getServer().getState().isAvailable());
+		return tomcat.getConnector().getLocalPort();
+	}
+
+	private static int post(int port, String path, String client, byte[] body, String encoding) throws IOException {
+		HttpURLConnection conn = send(port, path, client, body, encoding);
+		int status = conn.getResponseCode();
+		conn.disconnect();
+		return status;
+	}
+
+	private static HttpURLConnection send(int port, String path, String client, byte[] body, String encoding)
+			throws IOException {
+		HttpURLConnection conn = (HttpURLConnection) new URL(url(port, path)).openConnection();
+		conn.setRequestMethod("POST");
+		conn.setDoOutput(true);
+		conn.setFixedLengthStreamingMode(body.length);
+		conn.setRequestProperty("Content-Type", "application/x-protobuf");
+		conn.setRequestProperty("X-Client-Id", client);
+		if (encoding != null) {
+			conn.setRequestProperty("Content-Encoding", encoding);
+		}
+		try (OutputStream out = conn.getOutputStream()) {
+			out.write(body);
+		}
+		return conn;
+	}
+
+	private static String url(int port, String path) {
+		return "http://127.0.0.1:" + port + URI_HTTP_RECEIVER_BASE + path;
+	}
+
+	private static byte[] encode(int count, String encoding) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		OutputStream out = bytes;
+		if ("gzip".equals(encoding)) {
+			out = new GZIPOutputStream(bytes);
+		} else if ("snappy".equals(encoding)) {
+			out = new SnappyFramedOutputStream(bytes);
+		}
+		for (int i = 0; i < count; i++) {
+			newAggregate(i).writeDelimitedTo(out);
+		}
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	private static MetricAggregate newAggregate(int i) {
+		return MetricAggregate.newBuilder().setClassify("basic").setInstance("127.0.0.1:" + i)
+				.setTimestamp(System.currentTimeMillis())
+				.addMetrics(Metric.newBuilder().setMetric("basic.cpu").putTags("core", "0").setValue(i))
+				.addMetrics(Metric.newBuilder().setMetric("basic.mem").setValue(0)).build();
+	}
+
+	/**
+	 * Maps the receiver end-points with prefix, as the
+	 * {@link UmcReceiveAutoConfiguration}.
+	 */
+	@Configuration
+	@EnableWebMvc
+	public static class ReceiverMvcConfiguration extends AbstractOptionalControllerConfiguration {
+
+		@Bean
+		public PrefixHandlerMapping httpCollectReceiverPrefixHandlerMapping() {
+			return createPrefixHandlerMapping();
+		}
+
+		@Override
+		protected String getMappingPrefix() {
+			return URI_HTTP_RECEIVER_BASE;
+		}
+
+		@Override
+		protected Class<? extends Annotation> annotationClass() {
+			return HttpCollectReceiver.class;
+		}
+
+	}
+
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.receiver;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.utils.Bytes;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.wl4g.devops.common.bean.umc.model.proto.MetricModel.Metric;
+import com.wl4g.devops.common.bean.umc.model.proto.MetricModel.MetricAggregate;
+import com.wl4g.devops.umc.config.ReceiverProperties.IngestPipelineProperties;
+import com.wl4g.devops.umc.receiver.MetricIngestPipeline.IngestHandle;
+
+/**
+ * {@link KafkaMetricReceiver} throughput benchmark, the records of an
+ * in-memory source are fed to the {@link MetricIngestPipeline} batch by batch
+ * as the listener does(waiting for each batch handed off to the store stage),
+ * against the sequential processing(decode, store and alarm in the listener
+ * thread), with a store of fixed latency and a slow alerter. Opt-in by
+ * {@code -Dbenchmark=true}, it only reports the rates, see
+ * {@link KafkaMetricReceiverTests} for the order and ACK.
+ *
+ * @author wangl.sir
+ * @version v1.0 2019年9月18日
+ * @since
+ */
+public class KafkaMetricReceiverBenchmarkTests {
+
+	final private static Logger log = LoggerFactory.getLogger(KafkaMetricReceiverBenchmarkTests.class);
+
+	final private static int PARTITIONS = 8;
+
+	final private static int BATCHES = 200;
+
+	final private static int BATCH_SIZE = 200;
+
+	final private static int TOTAL = BATCHES * BATCH_SIZE;
+
+	final private static long STORE_LATENCY_US = 50;
+
+	final private static long ALARM_LATENCY_US = 200;
+
+	final private static long HANDOFF_TIMEOUT_MS = 60_000L;
+
+	final private AtomicLong stored = new AtomicLong(0);
+
+	@Test
+	public void benchmarkPipelineThroughput() throws Exception {
+		assumeTrue(Boolean.getBoolean("benchmark"));
+		List<List<ConsumerRecord<byte[], Bytes>>> batches = createBatches();
+
+		// Sequential processing, as the listener did before the pipeline.
+		long begin = System.nanoTime();
+		for (List<ConsumerRecord<byte[], Bytes>> batch : batches) {
+			for (ConsumerRecord<byte[], Bytes> record : batch) {
+				store(MetricAggregate.parseFrom(record.value().get()));
+				alarm();
+			}
+		}
+		long sequentialNanos = System.nanoTime() - begin;
+
+		// Staged pipeline.
+		MetricIngestPipeline pipeline = new MetricIngestPipeline("benchmark", new IngestPipelineProperties(), this::store,
+				aggregate -> alarm());
+		long handedOffNanos, drainedNanos;
+		try {
+			begin = System.nanoTime();
+			for (List<ConsumerRecord<byte[], Bytes>> batch : batches) {
+				IngestHandle handle = pipeline.submit(batch, r -> new TopicPartition(r.topic(), r.partition()),
+						r -> r.value().get());
+				if (!handle.await(HANDOFF_TIMEOUT_MS)) {
+					throw new IllegalStateException("Timeout waiting for handoff of the batch");
+				}
+			}
+			handedOffNanos = System.nanoTime() - begin;
+		} finally {
+			pipeline.close(); // Drain alarms
+		}
+		drainedNanos = System.nanoTime() - begin;
+
+		log.info("Sequential: {}/s, pipeline(handed off): {}/s, pipeline(drained): {}/s, stored: {}, {}",
+				rate(sequentialNanos), rate(handedOffNanos), rate(drainedNanos), stored.get(), pipeline);
+	}
+
+	private void store(MetricAggregate aggregate) {
+		LockSupport.parkNanos(MICROSECONDS.toNanos(STORE_LATENCY_US));
+		stored.incrementAndGet();
+	}
+
+	private static void alarm() {
+		LockSupport.parkNanos(MICROSECONDS.toNanos(ALARM_LATENCY_US));
+	}
+
+	private static long rate(long nanos) {
+		return TOTAL * 1000_000_000L / Math.max(1, nanos);
+	}
+
+	/**
+	 * In-memory record source, batches of records round robin partitions.
+	 *
+	 * @return
+	 */
+	private static List<List<ConsumerRecord<byte[], Bytes>>> createBatches() {
+		long[] offsets = new long[PARTITIONS];
+		List<List<ConsumerRecord<byte[], Bytes>>> batches = new ArrayList<>(BATCHES);
+		for (int b = 0; b < BATCHES; b++) {
+			List<ConsumerRecord<byte[], Bytes>> batch = new ArrayList<>(BATCH_SIZE);
+			for (int i = 0; i < BATCH_SIZE; i++) {
+				int partition = i % PARTITIONS;
+				long offset = offsets[partition]++;
+				MetricAggregate aggregate = MetricAggregate.newBuilder().setClassify("basic")
+						.setInstance("partition-" + partition).setTimestamp(offset)
+						.addMetrics(Metric.newBuilder().setMetric("basic.cpu").putTags("core", "0").setValue(i)).build();
+				batch.add(new ConsumerRecord<>("umc_agent_basic", partition, offset, null, Bytes.wrap(aggregate.toByteArray())));
+			}
+			batches.add(batch);
+		}
+		return batches;
+	}
+
+}
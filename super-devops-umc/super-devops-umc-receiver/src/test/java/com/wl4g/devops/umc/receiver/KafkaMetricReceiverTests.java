@@ -0,0 +1,166 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.receiver;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.utils.Bytes;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.wl4g.devops.common.bean.umc.model.proto.MetricModel.Metric;
+import com.wl4g.devops.common.bean.umc.model.proto.MetricModel.MetricAggregate;
+import com.wl4g.devops.umc.config.ReceiverProperties.KafkaReceiverProperties;
+
+/**
+ * {@link KafkaMetricReceiver} tests, the records of a partition are stored in
+ * their offset order(also on retry of the failed ones), and a batch is ACK
+ * only after all of its records stored.
+ *
+ * @author wangl.sir
+ * @version v1.0 2019年9月18日
+ * @since
+ */
+public class KafkaMetricReceiverTests {
+
+	final private static int PARTITIONS = 8;
+
+	final private static int BATCHES = 50;
+
+	final private static int BATCH_SIZE = 200;
+
+	final private static int TOTAL = BATCHES * BATCH_SIZE;
+
+	final private AtomicLong stored = new AtomicLong(0);
+
+	final private AtomicLong alarmed = new AtomicLong(0);
+
+	/** Last stored offset of partitions. */
+	final private Map<String, Long> lastOffsets = new ConcurrentHashMap<>();
+
+	final private AtomicInteger disordered = new AtomicInteger(0);
+
+	/** Records(instance@offset) to fail once on storing. */
+	final private Set<String> failOnce = ConcurrentHashMap.newKeySet();
+
+	private KafkaMetricReceiver receiver;
+
+	@Before
+	public void setup() {
+		KafkaReceiverProperties config = new KafkaReceiverProperties();
+		config.setStoreRetryBackoffMs(10L);
+		receiver = new KafkaMetricReceiver(wrap -> alarmed.incrementAndGet(), aggregate -> store(aggregate), config);
+	}
+
+	@After
+	public void shutdown() throws Exception {
+		receiver.destroy();
+	}
+
+	@Test
+	public void testOrderedAndAckAfterStored() throws Exception {
+		assertReceived(createBatches());
+		assertEquals(0, receiver.getPipeline().getStoreFailed());
+	}
+
+	@Test
+	public void testRetryFromFailedRecordInOrder() throws Exception {
+		// Fail one record in the middle of some partitions of a batch.
+		failOnce.add("partition-1@" + (BATCH_SIZE / PARTITIONS / 2));
+		failOnce.add("partition-5@" + (BATCH_SIZE / PARTITIONS * 3 + 1));
+		failOnce.add("partition-5@" + (BATCH_SIZE / PARTITIONS * 3 + 2)); // After retry
+
+		assertReceived(createBatches());
+		assertEquals(3, receiver.getPipeline().getStoreFailed());
+		assertEquals(0, failOnce.size());
+	}
+
+	private void assertReceived(List<List<ConsumerRecord<byte[], Bytes>>> batches) throws Exception {
+		AtomicInteger acks = new AtomicInteger(0);
+		List<Long> storedOnAcks = new ArrayList<>();
+		for (List<ConsumerRecord<byte[], Bytes>> batch : batches) {
+			receiver.onMetricReceive(batch, () -> {
+				acks.incrementAndGet();
+				storedOnAcks.add(stored.get());
+			});
+		}
+		receiver.getPipeline().close(); // Drain alarms
+
+		// Every batch is ACK only after all of its records stored.
+		assertEquals(BATCHES, acks.get());
+		for (int b = 0; b < BATCHES; b++) {
+			assertEquals((long) (b + 1) * BATCH_SIZE, (long) storedOnAcks.get(b));
+		}
+		assertEquals(TOTAL, stored.get());
+		assertEquals(0, disordered.get());
+		assertEquals(TOTAL, alarmed.get());
+		assertEquals(0, receiver.getPipeline().getDecodeFailed());
+	}
+
+	/**
+	 * Stores the aggregate, the offset must follow the last stored offset of
+	 * the partition exactly.
+	 *
+	 * @param aggregate
+	 * @return
+	 */
+	private boolean store(MetricAggregate aggregate) {
+		if (failOnce.remove(aggregate.getInstance() + "@" + aggregate.getTimestamp())) {
+			throw new IllegalStateException("Store is unavailable.");
+		}
+		Long last = lastOffsets.put(aggregate.getInstance(), aggregate.getTimestamp());
+		if ((last == null ? -1 : last) + 1 != aggregate.getTimestamp()) {
+			disordered.incrementAndGet();
+		}
+		stored.incrementAndGet();
+		return true;
+	}
+
+	/**
+	 * Batches of records round robin partitions, the aggregate timestamp is
+	 * the record offset for checking the order within partition.
+	 *
+	 * @return
+	 */
+	private static List<List<ConsumerRecord<byte[], Bytes>>> createBatches() {
+		long[] offsets = new long[PARTITIONS];
+		List<List<ConsumerRecord<byte[], Bytes>>> batches = new ArrayList<>(BATCHES);
+		for (int b = 0; b < BATCHES; b++) {
+			List<ConsumerRecord<byte[], Bytes>> batch = new ArrayList<>(BATCH_SIZE);
+			for (int i = 0; i < BATCH_SIZE; i++) {
+				int partition = i % PARTITIONS;
+				long offset = offsets[partition]++;
+				MetricAggregate aggregate = MetricAggregate.newBuilder().setClassify("basic")
+						.setInstance("partition-" + partition).setTimestamp(offset)
+						.addMetrics(Metric.newBuilder().setMetric("basic.cpu").putTags("core", "0").setValue(i)).build();
+				batch.add(new ConsumerRecord<>("umc_agent_basic", partition, offset, null, Bytes.wrap(aggregate.toByteArray())));
+			}
+			batches.add(batch);
+		}
+		return batches;
+	}
+
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.receiver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Test;
+import org.xerial.snappy.SnappyFramedOutputStream;
+
+import com.google.protobuf.CodedOutputStream;
+import com.wl4g.devops.common.bean.umc.model.proto.MetricBatchCodec;
+import com.wl4g.devops.common.bean.umc.model.proto.MetricModel.Metric;
+import com.wl4g.devops.common.bean.umc.model.proto.MetricModel.MetricAggregate;
+import com.wl4g.devops.umc.receiver.MetricBodyDecoder.BodyTooLargeException;
+
+/**
+ * {@link MetricBodyDecoder} tests, the body is decoded the same however it's
+ * split into reads.
+ *
+ * @author wangl.sir
+ * @version v1.0 2019年9月18日
+ * @since
+ */
+public class MetricBodyDecoderTests {
+
+	final private static int COUNT = 200;
+
+	final private static int MAX_DECODED = 1 << 20;
+
+	@Test
+	public void testEncodings() throws Exception {
+		List<MetricAggregate> expected = newAggregates(COUNT);
+		for (String encoding : new String[] { null, "identity", "gzip", "snappy" }) {
+			byte[] body = compress(encoding, delimited(expected));
+			for (int step : new int[] { 1, 7, 8192, body.length }) {
+				assertEquals(encoding + "/" + step, expected, decode(encoding, false, body, step, MAX_DECODED));
+			}
+		}
+	}
+
+	@Test
+	public void testBatches() throws Exception {
+		List<MetricAggregate> expected = newAggregates(COUNT);
+		byte[] batch = MetricBatchCodec.encode(expected);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		CodedOutputStream out = CodedOutputStream.newInstance(bytes);
+		for (int i = 0; i < 2; i++) {
+			out.writeUInt32NoTag(batch.length);
+			out.writeRawBytes(batch);
+		}
+		out.flush();
+
+		List<MetricAggregate> decoded = decode("gzip", true, compress("gzip", bytes.toByteArray()), 100, MAX_DECODED);
+		assertEquals(COUNT * 2, decoded.size());
+		assertEquals(expected, decoded.subList(0, COUNT));
+		assertEquals(expected, decoded.subList(COUNT, COUNT * 2));
+	}
+
+	@Test
+	public void testConcatenatedGzipMembers() throws Exception {
+		List<MetricAggregate> expected = newAggregates(COUNT);
+		byte[] first = compress("gzip", delimited(expected.subList(0, COUNT / 2)));
+		byte[] second = compress("gzip", delimited(expected.subList(COUNT / 2, COUNT)));
+		byte[] body = Arrays.copyOf(first, first.length + second.length);
+		System.arraycopy(second, 0, body, first.length, second.length);
+
+		assertEquals(expected, decode("gzip", false, body, 3, MAX_DECODED));
+	}
+
+	@Test
+	public void testTruncated() throws Exception {
+		for (String encoding : new String[] { null, "gzip", "snappy" }) {
+			byte[] body = compress(encoding, delimited(newAggregates(COUNT)));
+			try {
+				decode(encoding, false, Arrays.copyOf(body, body.length - 1), 512, MAX_DECODED);
+				throw new AssertionError("Truncated " + encoding + " body is decoded");
+			} catch (EOFException e) {
+			}
+		}
+	}
+
+	@Test
+	public void testCorrupted() throws Exception {
+		for (String encoding : new String[] { "gzip", "snappy" }) {
+			byte[] body = compress(encoding, delimited(newAggregates(COUNT)));
+			body[body.length / 2] ^= 0x5a;
+			try {
+				decode(encoding, false, body, 512, MAX_DECODED);
+				throw new AssertionError("Corrupted " + encoding + " body is decoded");
+			} catch (IOException e) {
+			}
+		}
+	}
+
+	@Test(expected = BodyTooLargeException.class)
+	public void testTooLarge() throws Exception {
+		// The bomb is rejected by the frame size, before inflating all of it.
+		decode("gzip", false, compress("gzip", delimited(newAggregates(COUNT))), 512, 1024);
+	}
+
+	@Test(expected = IOException.class)
+	public void testIllegalFrameSize() throws Exception {
+		decode(null, false, new byte[] { -1, -1, -1, -1, 0x7f }, 1, Integer.MAX_VALUE);
+	}
+
+	@Test
+	public void testSupported() {
+		assertTrue(MetricBodyDecoder.isSupported(null));
+		assertTrue(MetricBodyDecoder.isSupported("GZIP"));
+		assertTrue(MetricBodyDecoder.isSupported("x-snappy-framed"));
+		assertFalse(MetricBodyDecoder.isSupported("br"));
+	}
+
+	private static List<MetricAggregate> decode(String encoding, boolean batch, byte[] body, int step, int maxDecoded)
+			throws IOException {
+		try (MetricBodyDecoder decoder = new MetricBodyDecoder(encoding, batch, maxDecoded)) {
+			for (int off = 0; off < body.length; off += step) {
+				decoder.write(body, off, Math.min(step, body.length - off));
+			}
+			return decoder.finish();
+		}
+	}
+
+	private static byte[] delimited(List<MetricAggregate> aggregates) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		for (MetricAggregate aggregate : aggregates) {
+			aggregate.writeDelimitedTo(bytes);
+		}
+		return bytes.toByteArray();
+	}
+
+	private static byte[] compress(String encoding, byte[] plain) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		OutputStream out = bytes;
+		if ("gzip".equals(encoding)) {
+			out = new GZIPOutputStream(bytes);
+		} else if ("snappy".equals(encoding)) {
+			out = new SnappyFramedOutputStream(bytes);
+		}
+		out.write(plain);
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	private static List<MetricAggregate> newAggregates(int count) {
+		List<MetricAggregate> aggregates = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			aggregates.add(MetricAggregate.newBuilder().setClassify("basic").setInstance("127.0.0.1:" + i).setTimestamp(i)
+					.addMetrics(Metric.newBuilder().setMetric("basic.cpu").putTags("core", "0").setValue(i)).build());
+		}
+		return aggregates;
+	}
+
+}
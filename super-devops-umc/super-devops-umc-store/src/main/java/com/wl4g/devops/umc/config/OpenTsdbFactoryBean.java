@@ -15,6 +15,7 @@
  */
 package com.wl4g.devops.umc.config;
 
+import com.wl4g.devops.umc.config.StoreProperties.OpentsdbProproties;
 import com.wl4g.devops.umc.opentsdb.client.OpenTSDBClient;
 import com.wl4g.devops.umc.opentsdb.client.bean.request.Point;
 import com.wl4g.devops.umc.opentsdb.client.bean.response.DetailResult;
@@ -50,7 +51,8 @@ public class OpenTsdbFactoryBean implements InitializingBean, DisposableBean, Fa
 
 	@Override
 	public void afterPropertiesSet() throws Exception {
-		client = connect(address(config.getOpentsdb().getHost(), config.getOpentsdb().getPort())
+		OpentsdbProproties opentsdb = config.getOpentsdb();
+		client = connect(address(opentsdb.getHost(), opentsdb.getPort())
 				// http连接池大小，默认100
 				.httpConnectionPool(100)
 				// http请求超时时间，默认100s
@@ -61,6 +63,19 @@ public class OpenTsdbFactoryBean implements InitializingBean, DisposableBean, Fa
 				.batchPutBufferSize(20000)
 				// 异步写入等待时间，如果距离上一次请求超多300ms，且有数据，则直接提交
 				.batchPutTimeLimit(3000)
+				// 自适应批次的最大数据点个数及目标请求延迟
+				.batchPutMaxSize(opentsdb.getBatchPutMaxSize())
+				.batchPutTargetLatency(opentsdb.getBatchPutTargetLatency())
+				// 同时进行中的最大写入请求数
+				.maxInFlightRequests(opentsdb.getMaxInFlightRequests())
+				// 写入请求体gzip压缩
+				.gzip(opentsdb.isGzip())
+				// 缓冲队列满时的处理策略(阻塞/丢弃最旧/溢出到磁盘)
+				.overflowPolicy(opentsdb.getOverflowPolicy())
+				.spill(opentsdb.getSpillDirectory(), opentsdb.getSpillMaxBytes(), 64L * 1024 * 1024)
+				// 长时间范围查询拆分并行请求，及最近查询结果缓存
+				.querySplit(opentsdb.getQuerySplitInterval(), opentsdb.getQueryMaxSplits())
+				.queryCache(opentsdb.getQueryCacheSize(), opentsdb.getQueryCacheTtl())
 				// 当确认这个client只用于查询时设置，可不创建内部队列从而提高效率
 				// .readonly()
 				// 每批数据提交完成后回调
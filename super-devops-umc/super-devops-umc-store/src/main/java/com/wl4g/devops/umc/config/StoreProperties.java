@@ -15,14 +15,21 @@
  */
 package com.wl4g.devops.umc.config;
 
+import static org.apache.commons.lang3.SystemUtils.USER_HOME;
+
+import java.io.File;
 import java.io.Serializable;
 
+import com.wl4g.devops.umc.opentsdb.client.sender.producer.OverflowPolicy;
+
 public class StoreProperties implements Serializable {
 
 	private static final long serialVersionUID = -8652479436330234847L;
 
 	private OpentsdbProproties opentsdb = new OpentsdbProproties();
 
+	private EmbeddedStoreProperties embedded = new EmbeddedStoreProperties();
+
 	public OpentsdbProproties getOpentsdb() {
 		return opentsdb;
 	}
@@ -31,12 +38,53 @@ public class StoreProperties implements Serializable {
 		this.opentsdb = opentsdb;
 	}
 
+	public EmbeddedStoreProperties getEmbedded() {
+		return embedded;
+	}
+
+	public void setEmbedded(EmbeddedStoreProperties embedded) {
+		this.embedded = embedded;
+	}
+
 	public static class OpentsdbProproties {
 
 		private String host = "127.0.0.1";
 
 		private int port = 14242;
 
+		/** Maximum points of adaptive put batch. */
+		private int batchPutMaxSize = 5000;
+
+		/** Target latency(ms) of adaptive put batch. */
+		private int batchPutTargetLatency = 500;
+
+		/** Maximum put requests in flight. */
+		private int maxInFlightRequests = 8;
+
+		/** Gzip compress put request body. */
+		private boolean gzip = true;
+
+		/** Policy when the put buffer queue is full. */
+		private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+
+		/** Spill directory of {@link OverflowPolicy#SPILL}. */
+		private String spillDirectory = System.getProperty("java.io.tmpdir") + File.separator + "opentsdb-spill";
+
+		/** Maximum spill bytes of {@link OverflowPolicy#SPILL}. */
+		private long spillMaxBytes = 1024L * 1024 * 1024;
+
+		/** Interval(ms) of splitting long range queries, 0 means no splitting. */
+		private long querySplitInterval = 24 * 60 * 60 * 1000L;
+
+		/** Maximum chunks of a split query. */
+		private int queryMaxSplits = 8;
+
+		/** Maximum entries of recent query results cache, 0 means no caching. */
+		private int queryCacheSize = 64;
+
+		/** TTL(ms) of cached query results, 0 means no caching. */
+		private long queryCacheTtl = 5000L;
+
 		public String getHost() {
 			return host;
 		}
@@ -53,6 +101,162 @@ public class StoreProperties implements Serializable {
 			this.port = port;
 		}
 
+		public int getBatchPutMaxSize() {
+			return batchPutMaxSize;
+		}
+
+		public void setBatchPutMaxSize(int batchPutMaxSize) {
+			this.batchPutMaxSize = batchPutMaxSize;
+		}
+
+		public int getBatchPutTargetLatency() {
+			return batchPutTargetLatency;
+		}
+
+		public void setBatchPutTargetLatency(int batchPutTargetLatency) {
+			this.batchPutTargetLatency = batchPutTargetLatency;
+		}
+
+		public int getMaxInFlightRequests() {
+			return maxInFlightRequests;
+		}
+
+		public void setMaxInFlightRequests(int maxInFlightRequests) {
+			this.maxInFlightRequests = maxInFlightRequests;
+		}
+
+		public boolean isGzip() {
+			return gzip;
+		}
+
+		public void setGzip(boolean gzip) {
+			this.gzip = gzip;
+		}
+
+		public OverflowPolicy getOverflowPolicy() {
+			return overflowPolicy;
+		}
+
+		public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+			this.overflowPolicy = overflowPolicy;
+		}
+
+		public String getSpillDirectory() {
+			return spillDirectory;
+		}
+
+		public void setSpillDirectory(String spillDirectory) {
+			this.spillDirectory = spillDirectory;
+		}
+
+		public long getSpillMaxBytes() {
+			return spillMaxBytes;
+		}
+
+		public void setSpillMaxBytes(long spillMaxBytes) {
+			this.spillMaxBytes = spillMaxBytes;
+		}
+
+		public long getQuerySplitInterval() {
+			return querySplitInterval;
+		}
+
+		public void setQuerySplitInterval(long querySplitInterval) {
+			this.querySplitInterval = querySplitInterval;
+		}
+
+		public int getQueryMaxSplits() {
+			return queryMaxSplits;
+		}
+
+		public void setQueryMaxSplits(int queryMaxSplits) {
+			this.queryMaxSplits = queryMaxSplits;
+		}
+
+		public int getQueryCacheSize() {
+			return queryCacheSize;
+		}
+
+		public void setQueryCacheSize(int queryCacheSize) {
+			this.queryCacheSize = queryCacheSize;
+		}
+
+		public long getQueryCacheTtl() {
+			return queryCacheTtl;
+		}
+
+		public void setQueryCacheTtl(long queryCacheTtl) {
+			this.queryCacheTtl = queryCacheTtl;
+		}
+
+	}
+
+	/**
+	 * Embedded columnar metric store properties.
+	 *
+	 * @author Wangl.sir
+	 * @version v1.0 2019年9月7日
+	 * @since
+	 */
+	public static class EmbeddedStoreProperties implements Serializable {
+
+		private static final long serialVersionUID = 3516370985722389911L;
+
+		/** Data directory. */
+		private String directory = USER_HOME + "/.umc/embedded";
+
+		/** Time partition size(ms). */
+		private long partitionMs = 2 * 60 * 60 * 1000L;
+
+		/** Interval(ms) of flushing head buffers into segments. */
+		private long flushIntervalMs = 10_000L;
+
+		/** Delay(ms) after the partition end before it is compacted. */
+		private long compactDelayMs = 10 * 60 * 1000L;
+
+		/** Retention time(ms), older partitions are deleted. */
+		private long retentionMs = 7 * 24 * 60 * 60 * 1000L;
+
+		public String getDirectory() {
+			return directory;
+		}
+
+		public void setDirectory(String directory) {
+			this.directory = directory;
+		}
+
+		public long getPartitionMs() {
+			return partitionMs;
+		}
+
+		public void setPartitionMs(long partitionMs) {
+			this.partitionMs = partitionMs;
+		}
+
+		public long getFlushIntervalMs() {
+			return flushIntervalMs;
+		}
+
+		public void setFlushIntervalMs(long flushIntervalMs) {
+			this.flushIntervalMs = flushIntervalMs;
+		}
+
+		public long getCompactDelayMs() {
+			return compactDelayMs;
+		}
+
+		public void setCompactDelayMs(long compactDelayMs) {
+			this.compactDelayMs = compactDelayMs;
+		}
+
+		public long getRetentionMs() {
+			return retentionMs;
+		}
+
+		public void setRetentionMs(long retentionMs) {
+			this.retentionMs = retentionMs;
+		}
+
 	}
 
 }
\ No newline at end of file
@@ -15,9 +15,8 @@
  */
 package com.wl4g.devops.umc.config;
 
-import com.alibaba.druid.pool.DruidDataSource;
 import com.wl4g.devops.umc.annotation.EnableOpenTsdbStore;
-import com.wl4g.devops.umc.derby.DerbyMetricStore;
+import com.wl4g.devops.umc.embedded.EmbeddedMetricStore;
 import com.wl4g.devops.umc.opentsdb.TsdbMetricStore;
 import com.wl4g.devops.umc.opentsdb.client.OpenTSDBClient;
 import com.wl4g.devops.umc.store.MetricStore;
@@ -25,9 +24,8 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.jdbc.core.JdbcTemplate;
 
-import static org.apache.commons.lang3.SystemUtils.USER_HOME;
+import java.io.IOException;
 
 /**
  * UMC store auto configuration
@@ -65,75 +63,20 @@ public class UmcStoreAutoConfiguration {
 	}
 
 	//
-	// Derby metric store's
+	// Embedded metric store's
 	//
 
 	/**
-	 * <b>Quick Start:</b><a href=
-	 * "https://db.apache.org/derby/papers/DerbyTut/ij_intro.html#ij_start">https://db.apache.org/derby/papers/DerbyTut/ij_intro.html#ij_start</a>
-	 * </br>
-	 * <b>Environment Configure:</b><a href=
-	 * "https://db.apache.org/derby/papers/DerbyTut/install_software.html#derby_configure">https://db.apache.org/derby/papers/DerbyTut/install_software.html#derby_configure</a>
-	 * 
-	 * <pre>
-	 * ij> java org.apache.derby.tools.ij
-	 * ij> connect 'jdbc:derby:MyDbTest;create=true';
-	 * 
-	 * ij> create table derbyDB(num int, addr varchar(40));
-	 * ij> insert into derbyDB values (1956,'Webster St.');
-	 * ij> insert into derbyDB values (1910,'Union St.');
-	 * ij> update derbyDB set num=180, addr='Grand Ave.' where num=1956;
-	 * 
-	 * ij> select * from derbyDb;
-	 * NUM        |ADDR
-	 * ----------------------------------------------------
-	 * 180        |Grand Ave.                              
-	 * 1910       |Union St.                               
-	 *  
-	 * 2 rows selected
-	 * ij>
-	 * </pre>
+	 * Default metric store when no external TSDB is enabled, see:
+	 * {@link EmbeddedMetricStore}
 	 * 
 	 * @return
+	 * @throws IOException
 	 */
-	@Bean(name = "derbyJdbcTemplate")
-	@ConditionalOnMissingBean(DerbyMetricStore.class)
-	public JdbcTemplate derbyJdbcTemplate() {
-		final DruidDataSource datasource = new DruidDataSource();
-		try {
-			datasource.setUrl("jdbc:derby:" + USER_HOME + "/.umc/derby/metric.db;create=true");
-			// datasource.setUsername("");
-			// datasource.setPassword("");
-			datasource.setDriverClassName("org.apache.derby.jdbc.EmbeddedDriver");
-			datasource.setInitialSize(10);
-			datasource.setMinIdle(5);
-			datasource.setMaxActive(200);
-			datasource.setMaxWait(60_000);
-			datasource.setTimeBetweenEvictionRunsMillis(60_000);
-			datasource.setMinEvictableIdleTimeMillis(300_000);
-			datasource.setValidationQuery("select 1 from sysibm.sysdummy1");
-			datasource.setTestWhileIdle(true);
-			datasource.setTestOnBorrow(false);
-			datasource.setTestOnReturn(false);
-			datasource.setPoolPreparedStatements(true);
-			datasource.setMaxOpenPreparedStatements(50);
-			datasource.setConnectionProperties("druid.stat.mergeSql=true;druid.stat.slowSqlMillis=5000");
-			return new JdbcTemplate(datasource);
-		} finally {
-			Runtime.getRuntime().addShutdownHook(new Thread(() -> {
-				try {
-					datasource.close();
-				} catch (Exception e) {
-					e.printStackTrace();
-				}
-			}));
-		}
-	}
-
 	@Bean
 	@ConditionalOnMissingBean(MetricStore.class)
-	public DerbyMetricStore derbyPhysicalMetricStore() {
-		return new DerbyMetricStore(derbyJdbcTemplate());
+	public EmbeddedMetricStore embeddedMetricStore() throws IOException {
+		return new EmbeddedMetricStore(storeProperties().getEmbedded());
 	}
 
 }
\ No newline at end of file
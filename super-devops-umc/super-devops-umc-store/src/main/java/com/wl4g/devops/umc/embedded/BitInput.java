@@ -0,0 +1,76 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.embedded;
+
+/**
+ * Bit stream reader of {@link BitOutput}.
+ *
+ * @author Wangl.sir
+ * @version v1.0 2019年9月7日
+ * @since
+ */
+final class BitInput {
+
+	final private byte[] buf;
+
+	/** Bit position. */
+	private long pos;
+
+	/** End bit position. */
+	final private long end;
+
+	BitInput(byte[] buf, int offset, int length) {
+		this.buf = buf;
+		this.pos = (long) offset << 3;
+		this.end = (long) (offset + length) << 3;
+	}
+
+	boolean readBit() {
+		check(1);
+		boolean bit = (buf[(int) (pos >>> 3)] & (0x80 >>> (pos & 7))) != 0;
+		++pos;
+		return bit;
+	}
+
+	/**
+	 * Read n bits as the lowest bits of value.
+	 *
+	 * @param n
+	 *            [0, 64]
+	 * @return
+	 */
+	long readBits(int n) {
+		check(n);
+		long value = 0;
+		while (n > 0) {
+			int index = (int) (pos >>> 3);
+			int avail = 8 - (int) (pos & 7);
+			int take = Math.min(avail, n);
+			int chunk = (buf[index] >>> (avail - take)) & ((1 << take) - 1);
+			value = (value << take) | chunk;
+			pos += take;
+			n -= take;
+		}
+		return value;
+	}
+
+	private void check(int n) {
+		if (pos + n > end) {
+			throw new IllegalStateException("Bit stream underflow");
+		}
+	}
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.embedded;
+
+import static java.util.Arrays.copyOf;
+
+/**
+ * Growable bit stream writer, bits are written from the most significant bit
+ * of each byte.
+ *
+ * @author Wangl.sir
+ * @version v1.0 2019年9月7日
+ * @since
+ */
+final class BitOutput {
+
+	private byte[] buf;
+
+	/** Number of bits written. */
+	private long bits;
+
+	BitOutput(int initialBytes) {
+		this.buf = new byte[Math.max(16, initialBytes)];
+	}
+
+	/**
+	 * Write a single bit.
+	 *
+	 * @param bit
+	 */
+	void writeBit(boolean bit) {
+		ensure(1);
+		if (bit) {
+			buf[(int) (bits >>> 3)] |= 0x80 >>> (bits & 7);
+		}
+		++bits;
+	}
+
+	/**
+	 * Write the lowest n bits of value, most significant first.
+	 *
+	 * @param value
+	 * @param n
+	 *            [0, 64]
+	 */
+	void writeBits(long value, int n) {
+		ensure(n);
+		while (n > 0) {
+			int index = (int) (bits >>> 3);
+			int free = 8 - (int) (bits & 7);
+			int take = Math.min(free, n);
+			int chunk = (int) ((value >>> (n - take)) & ((1 << take) - 1));
+			buf[index] |= chunk << (free - take);
+			bits += take;
+			n -= take;
+		}
+	}
+
+	/**
+	 * Written bytes(the last byte is padded with zero bits).
+	 *
+	 * @return
+	 */
+	byte[] toByteArray() {
+		return copyOf(buf, (int) ((bits + 7) >>> 3));
+	}
+
+	private void ensure(int n) {
+		long need = (bits + n + 7) >>> 3;
+		if (need > buf.length) {
+			buf = copyOf(buf, (int) Math.max(need, buf.length << 1));
+		}
+	}
+
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.embedded;
+
+/**
+ * Time-series column codec.</br>
+ * Timestamps are encoded as delta-of-delta with variable bit-length buckets,
+ * values are encoded as the XOR with the previous value, with the meaningful
+ * bits window reused when possible(the Gorilla encoding). Periodic
+ * collection timestamps cost about 1 bit and slowly changing gauges a few
+ * bits per point.
+ *
+ * @author Wangl.sir
+ * @version v1.0 2019年9月7日
+ * @since
+ */
+abstract class ColumnCodec {
+
+	/**
+	 * Encode timestamps column.
+	 *
+	 * @param times
+	 * @param offset
+	 * @param count
+	 * @return
+	 */
+	static byte[] encodeTimes(long[] times, int offset, int count) {
+		BitOutput out = new BitOutput(count + 8);
+		long prev = 0, prevDelta = 0;
+		for (int i = offset, end = offset + count; i < end; i++) {
+			if (i == offset) {
+				out.writeBits(times[i], 64);
+			} else {
+				long delta = times[i] - prev;
+				long dod = delta - prevDelta;
+				// Zig-zag, unsigned
+				long z = (dod << 1) ^ (dod >> 63);
+				if (z == 0) {
+					out.writeBit(false);
+				} else if ((z >>> 7) == 0) {
+					out.writeBits(0b10, 2);
+					out.writeBits(z, 7);
+				} else if ((z >>> 12) == 0) {
+					out.writeBits(0b110, 3);
+					out.writeBits(z, 12);
+				} else if ((z >>> 20) == 0) {
+					out.writeBits(0b1110, 4);
+					out.writeBits(z, 20);
+				} else {
+					out.writeBits(0b1111, 4);
+					out.writeBits(z, 64);
+				}
+				prevDelta = delta;
+			}
+			prev = times[i];
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Decode timestamps column.
+	 *
+	 * @param buf
+	 * @param offset
+	 * @param length
+	 * @param count
+	 * @param times
+	 *            output, from index 0
+	 */
+	static void decodeTimes(byte[] buf, int offset, int length, int count, long[] times) {
+		BitInput in = new BitInput(buf, offset, length);
+		long prev = 0, prevDelta = 0;
+		for (int i = 0; i < count; i++) {
+			if (i == 0) {
+				prev = in.readBits(64);
+			} else {
+				long z;
+				if (!in.readBit()) {
+					z = 0;
+				} else if (!in.readBit()) {
+					z = in.readBits(7);
+				} else if (!in.readBit()) {
+					z = in.readBits(12);
+				} else if (!in.readBit()) {
+					z = in.readBits(20);
+				} else {
+					z = in.readBits(64);
+				}
+				long dod = (z >>> 1) ^ -(z & 1);
+				prevDelta += dod;
+				prev += prevDelta;
+			}
+			times[i] = prev;
+		}
+	}
+
+	/**
+	 * Encode values column.
+	 *
+	 * @param values
+	 * @param offset
+	 * @param count
+	 * @return
+	 */
+	static byte[] encodeValues(double[] values, int offset, int count) {
+		BitOutput out = new BitOutput(count * 2 + 8);
+		long prev = 0;
+		int prevLead = -1, prevTrail = 0;
+		for (int i = offset, end = offset + count; i < end; i++) {
+			long bits = Double.doubleToRawLongBits(values[i]);
+			if (i == offset) {
+				out.writeBits(bits, 64);
+			} else {
+				long xor = bits ^ prev;
+				if (xor == 0) {
+					out.writeBit(false);
+				} else {
+					out.writeBit(true);
+					int lead = Math.min(31, Long.numberOfLeadingZeros(xor));
+					int trail = Long.numberOfTrailingZeros(xor);
+					if (prevLead >= 0 && lead >= prevLead && trail >= prevTrail) {
+						// Reuse the previous meaningful bits window.
+						out.writeBit(false);
+						out.writeBits(xor >>> prevTrail, 64 - prevLead - prevTrail);
+					} else {
+						int significant = 64 - lead - trail;
+						out.writeBit(true);
+						out.writeBits(lead, 5);
+						out.writeBits(significant - 1, 6);
+						out.writeBits(xor >>> trail, significant);
+						prevLead = lead;
+						prevTrail = trail;
+					}
+				}
+			}
+			prev = bits;
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Decode values column.
+	 *
+	 * @param buf
+	 * @param offset
+	 * @param length
+	 * @param count
+	 * @param values
+	 *            output, from index 0
+	 */
+	static void decodeValues(byte[] buf, int offset, int length, int count, double[] values) {
+		BitInput in = new BitInput(buf, offset, length);
+		long prev = 0;
+		int prevLead = 0, prevTrail = 0;
+		for (int i = 0; i < count; i++) {
+			if (i == 0) {
+				prev = in.readBits(64);
+			} else if (in.readBit()) {
+				if (in.readBit()) {
+					prevLead = (int) in.readBits(5);
+					int significant = (int) in.readBits(6) + 1;
+					prevTrail = 64 - prevLead - significant;
+				}
+				long xor = in.readBits(64 - prevLead - prevTrail) << prevTrail;
+				prev ^= xor;
+			}
+			values[i] = Double.longBitsToDouble(prev);
+		}
+	}
+
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.embedded;
+
+/**
+ * Downsample aggregation of the points in each interval bucket.
+ *
+ * @author Wangl.sir
+ * @version v1.0 2019年9月7日
+ * @since
+ */
+public enum Downsampler {
+
+	AVG, SUM, MIN, MAX, COUNT, LAST;
+
+	/**
+	 * Aggregate the values of range [from, to).
+	 *
+	 * @param values
+	 * @param from
+	 * @param to
+	 * @return
+	 */
+	double aggregate(double[] values, int from, int to) {
+		switch (this) {
+		case COUNT:
+			return to - from;
+		case LAST:
+			return values[to - 1];
+		default:
+		}
+		double acc = values[from];
+		for (int i = from + 1; i < to; i++) {
+			double v = values[i];
+			switch (this) {
+			case MIN:
+				acc = Math.min(acc, v);
+				break;
+			case MAX:
+				acc = Math.max(acc, v);
+				break;
+			default:
+				acc += v;
+			}
+		}
+		return this == AVG ? acc / (to - from) : acc;
+	}
+
+	/**
+	 * Safe converter.
+	 *
+	 * @param downsampler
+	 * @return
+	 */
+	public static Downsampler safeOf(String downsampler) {
+		for (Downsampler d : values()) {
+			if (d.name().equalsIgnoreCase(downsampler)) {
+				return d;
+			}
+		}
+		return AVG;
+	}
+
+}
@@ -0,0 +1,340 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.embedded;
+
+import static java.util.Arrays.copyOf;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import com.wl4g.devops.common.bean.umc.model.proto.MetricModel.Metric;
+import com.wl4g.devops.common.bean.umc.model.proto.MetricModel.MetricAggregate;
+import com.wl4g.devops.umc.config.StoreProperties.EmbeddedStoreProperties;
+import com.wl4g.devops.umc.store.MetricStore;
+
+/**
+ * Embedded columnar metric store, for deployments without an external TSDB.
+ * </br>
+ * Series(metric name and tags, including the 'instance' tag like
+ * {@link com.wl4g.devops.umc.opentsdb.TsdbMetricStore}) are dictionary
+ * encoded, points are partitioned by time, buffered in memory and flushed
+ * periodically to append-only column segments(delta-of-delta timestamps and
+ * XOR compressed values). Sealed partitions are compacted into one segment,
+ * and partitions older than the retention are deleted, by a background
+ * maintenance thread.</br>
+ * Points not yet flushed are lost if the process crashes, that is, at most
+ * one flush interval.
+ *
+ * @author Wangl.sir
+ * @version v1.0 2019年9月7日
+ * @since
+ */
+public class EmbeddedMetricStore implements MetricStore, Closeable {
+
+	final private static String PARTITION_PREFIX = "p-";
+
+	final protected Logger log = LoggerFactory.getLogger(getClass());
+
+	final protected EmbeddedStoreProperties config;
+
+	final private File directory;
+
+	final private TagDictionary dictionary;
+
+	final private SeriesIndex seriesIndex;
+
+	/** Partitions by start time. */
+	final private ConcurrentSkipListMap<Long, Partition> partitions = new ConcurrentSkipListMap<>();
+
+	final private ScheduledExecutorService maintainer;
+
+	/** Statistics. */
+	final private AtomicLong writtenPoints = new AtomicLong(0);
+	final private AtomicLong rejectedPoints = new AtomicLong(0);
+	final private AtomicLong flushedBytes = new AtomicLong(0);
+	final private AtomicLong compactedBytes = new AtomicLong(0);
+
+	public EmbeddedMetricStore(EmbeddedStoreProperties config) throws IOException {
+		Assert.notNull(config, "Embedded store properties must not be null");
+		Assert.hasText(config.getDirectory(), "Embedded store directory must not be empty");
+		Assert.isTrue(config.getPartitionMs() > 0 && config.getFlushIntervalMs() > 0 && config.getRetentionMs() > 0,
+				"Embedded store partition, flush interval and retention must be greater than 0");
+		this.config = config;
+		this.directory = new File(config.getDirectory());
+		if (!directory.exists() && !directory.mkdirs()) {
+			throw new IOException("Can not create embedded store directory: " + directory);
+		}
+		this.dictionary = new TagDictionary(new File(directory, "dictionary.log"));
+		this.seriesIndex = new SeriesIndex(new File(directory, "series.log"), dictionary);
+		recoverPartitions();
+
+		this.maintainer = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "embedded-store-maintainer");
+			t.setDaemon(true);
+			return t;
+		});
+		this.maintainer.scheduleWithFixedDelay(this::maintain, config.getFlushIntervalMs(), config.getFlushIntervalMs(),
+				TimeUnit.MILLISECONDS);
+		log.info("Opened embedded metric store: {}, series: {}, partitions: {}", directory, seriesIndex.size(),
+				partitions.size());
+	}
+
+	@Override
+	public boolean save(MetricAggregate aggregate) {
+		long timestamp = aggregate.getTimestamp();
+		if (timestamp < System.currentTimeMillis() - config.getRetentionMs()) {
+			rejectedPoints.addAndGet(aggregate.getMetricsCount());
+			return false;
+		}
+		Partition partition = partitionOf(timestamp);
+		int c = 0;
+		try {
+			for (Metric metric : aggregate.getMetricsList()) {
+				if (StringUtils.isBlank(metric.getMetric())) {
+					continue;
+				}
+				Map<String, String> tags = new LinkedHashMap<>(metric.getTagsMap());
+				tags.put("instance", aggregate.getInstance());
+				partition.append(seriesIndex.getOrCreate(metric.getMetric(), tags), timestamp, metric.getValue());
+				++c;
+			}
+		} catch (IOException e) {
+			log.error("Failed to store metrics, caused by: ", e);
+			return false;
+		} finally {
+			writtenPoints.addAndGet(c);
+		}
+		return true;
+	}
+
+	/**
+	 * Query raw points of the series matching tags.
+	 *
+	 * @param metric
+	 *            metric name
+	 * @param tags
+	 *            tags filter, value '*' matches any value.
+	 * @param start
+	 *            inclusive start time
+	 * @param end
+	 *            inclusive end time
+	 * @return
+	 * @throws IOException
+	 */
+	public List<SeriesPoints> query(String metric, Map<String, String> tags, long start, long end) throws IOException {
+		List<SeriesPoints> results = new ArrayList<>();
+		for (Integer seriesId : seriesIndex.find(metric, tags)) {
+			SeriesPoints points = readSeries(seriesId, start, end);
+			if (points.size() > 0) {
+				results.add(points);
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Query downsampled points of the series matching tags, the points of
+	 * each interval bucket(aligned to the interval) are aggregated into one
+	 * point at the bucket start time.
+	 *
+	 * @param metric
+	 * @param tags
+	 * @param start
+	 * @param end
+	 * @param intervalMs
+	 * @param downsampler
+	 * @return
+	 * @throws IOException
+	 */
+	public List<SeriesPoints> downsample(String metric, Map<String, String> tags, long start, long end, long intervalMs,
+			Downsampler downsampler) throws IOException {
+		Assert.isTrue(intervalMs > 0, "Downsample interval must be greater than 0");
+		Assert.notNull(downsampler, "Downsampler must not be null");
+		List<SeriesPoints> results = new ArrayList<>();
+		for (SeriesPoints raw : query(metric, tags, start, end)) {
+			long[] times = new long[raw.size()];
+			double[] values = new double[raw.size()];
+			double[] rawValues = raw.getValues();
+			int n = 0;
+			int i = 0;
+			while (i < raw.size()) {
+				long bucket = raw.getTime(i) - Math.floorMod(raw.getTime(i), intervalMs);
+				// Points are in time order, the bucket ends at the first point
+				// of the next bucket.
+				int j = i + 1;
+				while (j < raw.size() && raw.getTime(j) < bucket + intervalMs) {
+					++j;
+				}
+				times[n] = bucket;
+				values[n++] = downsampler.aggregate(rawValues, i, j);
+				i = j;
+			}
+			results.add(new SeriesPoints(raw.getMetric(), raw.getTags(), times, values, n));
+		}
+		return results;
+	}
+
+	/**
+	 * Flush all head buffers.
+	 *
+	 * @throws IOException
+	 */
+	public void flush() throws IOException {
+		for (Partition p : partitions.values()) {
+			flushedBytes.addAndGet(p.flush());
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		maintainer.shutdown();
+		try {
+			maintainer.awaitTermination(30, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		try {
+			flush();
+		} finally {
+			for (Partition p : partitions.values()) {
+				p.close();
+			}
+			seriesIndex.close();
+			dictionary.close();
+		}
+		log.info("Closed embedded metric store: {}", this);
+	}
+
+	public long getWrittenPoints() {
+		return writtenPoints.get();
+	}
+
+	public long getRejectedPoints() {
+		return rejectedPoints.get();
+	}
+
+	public long getFlushedBytes() {
+		return flushedBytes.get();
+	}
+
+	public long getCompactedBytes() {
+		return compactedBytes.get();
+	}
+
+	public int getSeriesCount() {
+		return seriesIndex.size();
+	}
+
+	public int getPartitionCount() {
+		return partitions.size();
+	}
+
+	@Override
+	public String toString() {
+		return "EmbeddedMetricStore [directory=" + directory + ", series=" + seriesIndex.size() + ", partitions="
+				+ partitions.size() + ", writtenPoints=" + writtenPoints + ", rejectedPoints=" + rejectedPoints
+				+ ", flushedBytes=" + flushedBytes + ", compactedBytes=" + compactedBytes + "]";
+	}
+
+	/**
+	 * Flush, compaction and retention.
+	 */
+	private void maintain() {
+		long now = System.currentTimeMillis();
+		Iterator<Partition> it = partitions.values().iterator();
+		while (it.hasNext()) {
+			Partition p = it.next();
+			try {
+				if (p.getEnd() <= now - config.getRetentionMs()) {
+					it.remove();
+					p.delete();
+					log.info("Deleted expired partition: {}", p);
+					continue;
+				}
+				flushedBytes.addAndGet(p.flush());
+				if (p.getEnd() + config.getCompactDelayMs() <= now && p.getSegmentCount() > 1) {
+					compactedBytes.addAndGet(p.compact());
+					log.info("Compacted partition: {}", p);
+				}
+			} catch (Throwable e) {
+				log.error("Failed to maintain partition: " + p, e);
+			}
+		}
+	}
+
+	private Partition partitionOf(long timestamp) {
+		long start = timestamp - Math.floorMod(timestamp, config.getPartitionMs());
+		return partitions.computeIfAbsent(start, s -> new Partition(new File(directory, PARTITION_PREFIX + s + "-"
+				+ (s + config.getPartitionMs())), s, s + config.getPartitionMs()));
+	}
+
+	private SeriesPoints readSeries(int seriesId, long start, long end) throws IOException {
+		long[][] times = { new long[64] };
+		double[][] values = { new double[64] };
+		int[] size = { 0 };
+		Partition.PointSink sink = (t, v) -> {
+			if (size[0] == times[0].length) {
+				times[0] = copyOf(times[0], size[0] << 1);
+				values[0] = copyOf(values[0], size[0] << 1);
+			}
+			times[0][size[0]] = t;
+			values[0][size[0]++] = v;
+		};
+		// Partitions overlapping [start, end].
+		Long from = partitions.floorKey(start);
+		ConcurrentNavigableMap<Long, Partition> overlaps = partitions.subMap(from == null ? start : from, true, end, true);
+		for (Partition p : overlaps.values()) {
+			p.read(seriesId, start, end, sink);
+		}
+		SeriesPoints.sortByTime(times[0], values[0], size[0]);
+		int n = SeriesPoints.dedup(times[0], values[0], size[0]);
+		return new SeriesPoints(seriesIndex.metricOf(seriesId), seriesIndex.tagsOf(seriesId), times[0], values[0], n);
+	}
+
+	private void recoverPartitions() throws IOException {
+		File[] dirs = directory.listFiles(f -> f.isDirectory() && f.getName().startsWith(PARTITION_PREFIX));
+		if (dirs == null) {
+			return;
+		}
+		for (File dir : dirs) {
+			String[] range = dir.getName().substring(PARTITION_PREFIX.length()).split("-");
+			try {
+				long start = Long.parseLong(range[0]), end = Long.parseLong(range[1]);
+				partitions.put(start, Partition.open(dir, start, end));
+			} catch (RuntimeException e) {
+				log.warn("Skip invalid partition directory: {}", dir);
+			}
+		}
+	}
+
+}
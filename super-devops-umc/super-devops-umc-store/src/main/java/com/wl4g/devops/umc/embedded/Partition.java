@@ -0,0 +1,563 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.embedded;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.util.Arrays.copyOf;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.unmodifiableList;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Time partition of the embedded store.</br>
+ * Points are appended to the in-memory head buffers of series, and flushed
+ * periodically into a new immutable column segment file, so the segment files
+ * are append-only. The segments of a sealed partition are merged into one by
+ * compaction, and the whole partition directory is deleted by retention.
+ *
+ * <pre>
+ * segment := MAGIC chunk*
+ * chunk   := seriesId:int count:int minTime:long maxTime:long
+ *            timesBytes:int valuesBytes:int times[] values[]
+ * </pre>
+ *
+ * @author Wangl.sir
+ * @version v1.0 2019年9月7日
+ * @since
+ */
+final class Partition {
+
+	final private static int MAGIC = 0x434F4C31; // COL1
+	final private static int CHUNK_HEADER_BYTES = 4 + 4 + 8 + 8 + 4 + 4;
+	final private static String SEGMENT_SUFFIX = ".col";
+	final private static String TMP_SUFFIX = ".tmp";
+
+	final private Logger log = LoggerFactory.getLogger(getClass());
+
+	/** Partition time range [start, end). */
+	final private long start;
+	final private long end;
+
+	final private File directory;
+
+	final private ConcurrentHashMap<Integer, HeadBuffer> heads = new ConcurrentHashMap<>();
+
+	/** Immutable segments list, replaced on flush and compaction. */
+	private volatile List<Segment> segments = emptyList();
+
+	/** Guards reading segments against closing and deleting. */
+	final private ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	/** Serializes flush, compaction and deletion. */
+	final private Object mutateLock = new Object();
+
+	private long nextSegment;
+
+	private volatile boolean deleted;
+
+	Partition(File directory, long start, long end) {
+		this.directory = directory;
+		this.start = start;
+		this.end = end;
+	}
+
+	/**
+	 * Open existing partition directory.
+	 *
+	 * @param directory
+	 * @param start
+	 * @param end
+	 * @return
+	 * @throws IOException
+	 */
+	static Partition open(File directory, long start, long end) throws IOException {
+		Partition p = new Partition(directory, start, end);
+		// Remove the segments being written when the process stopped.
+		File[] tmps = directory.listFiles((dir, name) -> name.endsWith(TMP_SUFFIX));
+		if (tmps != null) {
+			for (File f : tmps) {
+				f.delete();
+			}
+		}
+		File[] files = directory.listFiles((dir, name) -> name.endsWith(SEGMENT_SUFFIX));
+		List<Segment> segments = new ArrayList<>();
+		if (files != null) {
+			Arrays.sort(files);
+			for (File f : files) {
+				try {
+					segments.add(Segment.open(f));
+					String name = f.getName();
+					p.nextSegment = Math.max(p.nextSegment, Long.parseLong(name.substring(0, name.indexOf('.'))) + 1);
+				} catch (IOException | RuntimeException e) {
+					p.log.warn("Skip invalid segment: " + f, e);
+				}
+			}
+		}
+		p.segments = unmodifiableList(segments);
+		return p;
+	}
+
+	void append(int seriesId, long time, double value) {
+		heads.computeIfAbsent(seriesId, k -> new HeadBuffer()).add(time, value);
+	}
+
+	/**
+	 * Flush head buffers into a new segment.
+	 *
+	 * @return written bytes
+	 * @throws IOException
+	 */
+	long flush() throws IOException {
+		synchronized (mutateLock) {
+			if (deleted) {
+				return 0;
+			}
+			Map<Integer, HeadBuffer> snapshots = new HashMap<>();
+			for (Map.Entry<Integer, HeadBuffer> head : heads.entrySet()) {
+				HeadBuffer snapshot = head.getValue().snapshot();
+				if (snapshot.size > 0) {
+					snapshots.put(head.getKey(), snapshot);
+				}
+			}
+			if (snapshots.isEmpty()) {
+				return 0;
+			}
+
+			File file = writeSegment(new TreeSet<>(snapshots.keySet()), seriesId -> snapshots.get(seriesId));
+			Segment segment = Segment.open(file);
+			lock.writeLock().lock();
+			try {
+				List<Segment> list = new ArrayList<>(segments);
+				list.add(segment);
+				segments = unmodifiableList(list);
+				for (Map.Entry<Integer, HeadBuffer> s : snapshots.entrySet()) {
+					heads.get(s.getKey()).drop(s.getValue().size);
+				}
+			} finally {
+				lock.writeLock().unlock();
+			}
+			return file.length();
+		}
+	}
+
+	/**
+	 * Merge all segments into one, the points of each series are sorted by
+	 * time, and the points with the same time-stamp are deduplicated(the last
+	 * written wins).
+	 *
+	 * @return written bytes, 0 if nothing to compact.
+	 * @throws IOException
+	 */
+	long compact() throws IOException {
+		synchronized (mutateLock) {
+			List<Segment> olds = segments;
+			if (deleted || olds.size() < 2) {
+				return 0;
+			}
+			TreeSet<Integer> seriesIds = new TreeSet<>();
+			for (Segment s : olds) {
+				seriesIds.addAll(s.index.keySet());
+			}
+			File file = writeSegment(seriesIds, seriesId -> {
+				HeadBuffer merged = new HeadBuffer();
+				for (Segment s : olds) {
+					s.read(seriesId, Long.MIN_VALUE, Long.MAX_VALUE, merged::add);
+				}
+				return merged.sortAndDedup();
+			});
+			Segment segment = Segment.open(file);
+
+			lock.writeLock().lock();
+			try {
+				List<Segment> list = new ArrayList<>(segments);
+				list.removeAll(olds);
+				list.add(0, segment);
+				segments = unmodifiableList(list);
+			} finally {
+				lock.writeLock().unlock();
+			}
+			for (Segment s : olds) {
+				s.delete();
+			}
+			return file.length();
+		}
+	}
+
+	/**
+	 * Read points of series in time range [from, to] from segments and the
+	 * head buffer.
+	 *
+	 * @param seriesId
+	 * @param from
+	 * @param to
+	 * @param sink
+	 * @throws IOException
+	 */
+	void read(int seriesId, long from, long to, PointSink sink) throws IOException {
+		lock.readLock().lock();
+		try {
+			if (deleted) {
+				return;
+			}
+			for (Segment s : segments) {
+				s.read(seriesId, from, to, sink);
+			}
+			// Points flushed concurrently are dropped from the head under the
+			// write lock, so they are never read twice.
+			HeadBuffer head = heads.get(seriesId);
+			if (head != null) {
+				head.read(from, to, sink);
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Close segments and delete the partition directory.
+	 */
+	void delete() {
+		synchronized (mutateLock) {
+			lock.writeLock().lock();
+			try {
+				deleted = true;
+				for (Segment s : segments) {
+					s.delete();
+				}
+				segments = emptyList();
+				heads.clear();
+				File[] files = directory.listFiles();
+				if (files != null) {
+					for (File f : files) {
+						f.delete();
+					}
+				}
+				directory.delete();
+			} finally {
+				lock.writeLock().unlock();
+			}
+		}
+	}
+
+	/**
+	 * Close segments, without flushing.
+	 */
+	void close() {
+		lock.writeLock().lock();
+		try {
+			for (Segment s : segments) {
+				s.close();
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	long getStart() {
+		return start;
+	}
+
+	long getEnd() {
+		return end;
+	}
+
+	int getSegmentCount() {
+		return segments.size();
+	}
+
+	boolean isHeadEmpty() {
+		for (HeadBuffer head : heads.values()) {
+			if (head.size() > 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Write a segment file of series, to a temporary file and then renamed, so
+	 * that a segment file is never partially visible.
+	 *
+	 * @param seriesIds
+	 *            series in ascending order
+	 * @param source
+	 * @return
+	 * @throws IOException
+	 */
+	private File writeSegment(Iterable<Integer> seriesIds, SeriesSource source) throws IOException {
+		if (!directory.exists() && !directory.mkdirs()) {
+			throw new IOException("Can not create partition directory: " + directory);
+		}
+		String name = String.format("%019d", nextSegment++);
+		File tmp = new File(directory, name + TMP_SUFFIX);
+		File file = new File(directory, name + SEGMENT_SUFFIX);
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 64 * 1024))) {
+			out.writeInt(MAGIC);
+			for (Integer seriesId : seriesIds) {
+				HeadBuffer points = source.get(seriesId);
+				if (points == null || points.size == 0) {
+					continue;
+				}
+				byte[] times = ColumnCodec.encodeTimes(points.times, 0, points.size);
+				byte[] values = ColumnCodec.encodeValues(points.values, 0, points.size);
+				out.writeInt(seriesId);
+				out.writeInt(points.size);
+				out.writeLong(points.minTime());
+				out.writeLong(points.maxTime());
+				out.writeInt(times.length);
+				out.writeInt(values.length);
+				out.write(times);
+				out.write(values);
+			}
+		}
+		Files.move(tmp.toPath(), file.toPath(), ATOMIC_MOVE);
+		return file;
+	}
+
+	@Override
+	public String toString() {
+		return "Partition [start=" + start + ", end=" + end + ", segments=" + segments.size() + ", series=" + heads.size()
+				+ "]";
+	}
+
+	/**
+	 * Point consumer.
+	 */
+	static interface PointSink {
+		void accept(long time, double value);
+	}
+
+	private static interface SeriesSource {
+		HeadBuffer get(int seriesId) throws IOException;
+	}
+
+	/**
+	 * Immutable column segment file.
+	 */
+	final static class Segment {
+
+		final private File file;
+
+		final private FileChannel channel;
+
+		/** Chunks of series. */
+		final private Map<Integer, List<ChunkRef>> index;
+
+		private Segment(File file, FileChannel channel, Map<Integer, List<ChunkRef>> index) {
+			this.file = file;
+			this.channel = channel;
+			this.index = index;
+		}
+
+		static Segment open(File file) throws IOException {
+			FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+			try {
+				Map<Integer, List<ChunkRef>> index = new HashMap<>();
+				ByteBuffer header = ByteBuffer.allocate(CHUNK_HEADER_BYTES);
+				header.limit(4);
+				readFully(channel, header, 0);
+				if (header.getInt(0) != MAGIC) {
+					throw new IOException("Invalid segment magic: " + file);
+				}
+				long pos = 4, size = channel.size();
+				while (pos + CHUNK_HEADER_BYTES <= size) {
+					header.clear();
+					readFully(channel, header, pos);
+					header.flip();
+					ChunkRef ref = new ChunkRef(header.getInt(), header.getInt(), header.getLong(), header.getLong(),
+							header.getInt(), header.getInt(), pos + CHUNK_HEADER_BYTES);
+					index.computeIfAbsent(ref.seriesId, k -> new ArrayList<>(1)).add(ref);
+					pos = ref.offset + ref.timesBytes + ref.valuesBytes;
+				}
+				return new Segment(file, channel, index);
+			} catch (IOException | RuntimeException e) {
+				channel.close();
+				throw e;
+			}
+		}
+
+		void read(int seriesId, long from, long to, PointSink sink) throws IOException {
+			List<ChunkRef> refs = index.get(seriesId);
+			if (refs == null) {
+				return;
+			}
+			for (ChunkRef ref : refs) {
+				if (ref.maxTime < from || ref.minTime > to) {
+					continue; // Pruned by time range.
+				}
+				ByteBuffer buf = ByteBuffer.allocate(ref.timesBytes + ref.valuesBytes);
+				readFully(channel, buf, ref.offset);
+				long[] times = new long[ref.count];
+				double[] values = new double[ref.count];
+				ColumnCodec.decodeTimes(buf.array(), 0, ref.timesBytes, ref.count, times);
+				ColumnCodec.decodeValues(buf.array(), ref.timesBytes, ref.valuesBytes, ref.count, values);
+				for (int i = 0; i < ref.count; i++) {
+					if (times[i] >= from && times[i] <= to) {
+						sink.accept(times[i], values[i]);
+					}
+				}
+			}
+		}
+
+		void close() {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				// Ignore
+			}
+		}
+
+		void delete() {
+			close();
+			file.delete();
+		}
+
+		private static void readFully(FileChannel channel, ByteBuffer buf, long position) throws IOException {
+			while (buf.hasRemaining()) {
+				int n = channel.read(buf, position + buf.position());
+				if (n < 0) {
+					throw new IOException("Unexpected end of segment");
+				}
+			}
+		}
+
+	}
+
+	/**
+	 * Chunk reference of segment.
+	 */
+	final static class ChunkRef {
+		final int seriesId;
+		final int count;
+		final long minTime;
+		final long maxTime;
+		final int timesBytes;
+		final int valuesBytes;
+		final long offset;
+
+		ChunkRef(int seriesId, int count, long minTime, long maxTime, int timesBytes, int valuesBytes, long offset) {
+			this.seriesId = seriesId;
+			this.count = count;
+			this.minTime = minTime;
+			this.maxTime = maxTime;
+			this.timesBytes = timesBytes;
+			this.valuesBytes = valuesBytes;
+			this.offset = offset;
+		}
+	}
+
+	/**
+	 * Growable in-memory points buffer of series.
+	 */
+	final static class HeadBuffer {
+
+		private long[] times = new long[16];
+		private double[] values = new double[16];
+		private int size;
+
+		synchronized void add(long time, double value) {
+			if (size == times.length) {
+				times = copyOf(times, size << 1);
+				values = copyOf(values, size << 1);
+			}
+			times[size] = time;
+			values[size] = value;
+			++size;
+		}
+
+		synchronized int size() {
+			return size;
+		}
+
+		synchronized HeadBuffer snapshot() {
+			HeadBuffer s = new HeadBuffer();
+			s.times = copyOf(times, size);
+			s.values = copyOf(values, size);
+			s.size = size;
+			return s;
+		}
+
+		/**
+		 * Drop the first n points(flushed).
+		 *
+		 * @param n
+		 */
+		synchronized void drop(int n) {
+			System.arraycopy(times, n, times, 0, size - n);
+			System.arraycopy(values, n, values, 0, size - n);
+			size -= n;
+		}
+
+		synchronized void read(long from, long to, PointSink sink) {
+			for (int i = 0; i < size; i++) {
+				if (times[i] >= from && times[i] <= to) {
+					sink.accept(times[i], values[i]);
+				}
+			}
+		}
+
+		long minTime() {
+			long min = Long.MAX_VALUE;
+			for (int i = 0; i < size; i++) {
+				min = Math.min(min, times[i]);
+			}
+			return min;
+		}
+
+		long maxTime() {
+			long max = Long.MIN_VALUE;
+			for (int i = 0; i < size; i++) {
+				max = Math.max(max, times[i]);
+			}
+			return max;
+		}
+
+		/**
+		 * Stable sort by time, and keep the last of the points with the same
+		 * time-stamp.
+		 *
+		 * @return
+		 */
+		HeadBuffer sortAndDedup() {
+			SeriesPoints.sortByTime(times, values, size);
+			size = SeriesPoints.dedup(times, values, size);
+			return this;
+		}
+
+	}
+
+}
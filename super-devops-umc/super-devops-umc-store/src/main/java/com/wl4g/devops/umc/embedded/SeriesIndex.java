@@ -0,0 +1,264 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.embedded;
+
+import static java.util.Collections.emptyList;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Persistent series index.</br>
+ * A series is identified by its metric name and tags, encoded by the
+ * {@link TagDictionary} as an int array {metric, key1, value1, key2, value2,
+ * ...} sorted by tag key id. Series are assigned increasing ids, appended to
+ * the series log, and indexed by metric for queries.
+ *
+ * @author Wangl.sir
+ * @version v1.0 2019年9月7日
+ * @since
+ */
+final class SeriesIndex implements Closeable {
+
+	/** Tag value of filter matching any value. */
+	final static String WILDCARD = "*";
+
+	final private TagDictionary dictionary;
+
+	final private ConcurrentHashMap<SeriesKey, Integer> ids = new ConcurrentHashMap<>();
+
+	/** Series keys by series id. */
+	final private List<SeriesKey> keys = new CopyOnWriteArrayList<>();
+
+	/** Series ids by metric id. */
+	final private ConcurrentHashMap<Integer, List<Integer>> metricSeries = new ConcurrentHashMap<>();
+
+	final private DataOutputStream log;
+
+	SeriesIndex(File file, TagDictionary dictionary) throws IOException {
+		this.dictionary = dictionary;
+		if (file.exists()) {
+			ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+			int valid = 0;
+			while (buf.remaining() >= 4) {
+				int n = buf.getInt();
+				if (n <= 0 || buf.remaining() < n * 4) {
+					break;
+				}
+				int[] data = new int[n];
+				buf.asIntBuffer().get(data);
+				buf.position(buf.position() + n * 4);
+				register(new SeriesKey(data));
+				valid = buf.position();
+			}
+			if (valid < buf.capacity()) {
+				// Truncate the torn tail entry.
+				try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+					raf.setLength(valid);
+				}
+			}
+		}
+		this.log = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+	}
+
+	/**
+	 * Gets or assigns the series id.
+	 *
+	 * @param metric
+	 * @param tags
+	 * @return
+	 * @throws IOException
+	 */
+	int getOrCreate(String metric, Map<String, String> tags) throws IOException {
+		int[] data = new int[1 + tags.size() * 2];
+		data[0] = dictionary.encode(metric);
+		int i = 1;
+		for (Entry<String, String> tag : tags.entrySet()) {
+			data[i++] = dictionary.encode(tag.getKey());
+			data[i++] = dictionary.encode(tag.getValue());
+		}
+		SeriesKey key = new SeriesKey(sortTags(data));
+		Integer id = ids.get(key);
+		if (id != null) {
+			return id;
+		}
+		synchronized (this) {
+			id = ids.get(key);
+			if (id == null) {
+				log.writeInt(key.data.length);
+				for (int v : key.data) {
+					log.writeInt(v);
+				}
+				log.flush();
+				id = register(key);
+			}
+			return id;
+		}
+	}
+
+	/**
+	 * Find series of metric whose tags contain all the filter tags, a filter
+	 * tag value of {@link #WILDCARD} matches any value.
+	 *
+	 * @param metric
+	 * @param filter
+	 * @return
+	 */
+	List<Integer> find(String metric, Map<String, String> filter) {
+		int metricId = dictionary.lookup(metric);
+		List<Integer> candidates = metricId == TagDictionary.NONE ? null : metricSeries.get(metricId);
+		if (candidates == null) {
+			return emptyList();
+		}
+		if (filter == null || filter.isEmpty()) {
+			return new ArrayList<>(candidates);
+		}
+
+		int[] filterIds = new int[filter.size() * 2];
+		int i = 0;
+		for (Entry<String, String> tag : filter.entrySet()) {
+			int k = dictionary.lookup(tag.getKey());
+			int v = WILDCARD.equals(tag.getValue()) ? TagDictionary.NONE : dictionary.lookup(tag.getValue());
+			if (k == TagDictionary.NONE || (v == TagDictionary.NONE && !WILDCARD.equals(tag.getValue()))) {
+				return emptyList();
+			}
+			filterIds[i++] = k;
+			filterIds[i++] = v;
+		}
+
+		List<Integer> matched = new ArrayList<>();
+		for (Integer seriesId : candidates) {
+			if (keys.get(seriesId).contains(filterIds)) {
+				matched.add(seriesId);
+			}
+		}
+		return matched;
+	}
+
+	String metricOf(int seriesId) {
+		return dictionary.decode(keys.get(seriesId).data[0]);
+	}
+
+	Map<String, String> tagsOf(int seriesId) {
+		int[] data = keys.get(seriesId).data;
+		Map<String, String> tags = new LinkedHashMap<>();
+		for (int i = 1; i < data.length; i += 2) {
+			tags.put(dictionary.decode(data[i]), dictionary.decode(data[i + 1]));
+		}
+		return tags;
+	}
+
+	int size() {
+		return keys.size();
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		log.close();
+	}
+
+	private int register(SeriesKey key) {
+		int id = keys.size();
+		keys.add(key);
+		ids.put(key, id);
+		metricSeries.computeIfAbsent(key.data[0], k -> new CopyOnWriteArrayList<>()).add(id);
+		return id;
+	}
+
+	/**
+	 * Sort tag pairs by key id.
+	 *
+	 * @param data
+	 * @return
+	 */
+	private static int[] sortTags(int[] data) {
+		for (int i = 3; i < data.length; i += 2) {
+			int k = data[i], v = data[i + 1];
+			int j = i - 2;
+			for (; j >= 1 && data[j] > k; j -= 2) {
+				data[j + 2] = data[j];
+				data[j + 3] = data[j + 1];
+			}
+			data[j + 2] = k;
+			data[j + 3] = v;
+		}
+		return data;
+	}
+
+	/**
+	 * Encoded series key.
+	 */
+	final static class SeriesKey {
+
+		final private int[] data;
+		final private int hash;
+
+		SeriesKey(int[] data) {
+			this.data = data;
+			this.hash = Arrays.hashCode(data);
+		}
+
+		/**
+		 * Contains all the tag pairs, {@link TagDictionary#NONE} value matches
+		 * any value.
+		 *
+		 * @param pairs
+		 * @return
+		 */
+		boolean contains(int[] pairs) {
+			for (int p = 0; p < pairs.length; p += 2) {
+				boolean found = false;
+				for (int i = 1; i < data.length; i += 2) {
+					if (data[i] == pairs[p] && (pairs[p + 1] == TagDictionary.NONE || data[i + 1] == pairs[p + 1])) {
+						found = true;
+						break;
+					}
+				}
+				if (!found) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof SeriesKey && Arrays.equals(data, ((SeriesKey) obj).data);
+		}
+
+	}
+
+}
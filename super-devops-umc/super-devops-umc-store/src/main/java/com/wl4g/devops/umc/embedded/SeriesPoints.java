@@ -0,0 +1,154 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.embedded;
+
+import static java.util.Arrays.copyOf;
+
+import java.util.Map;
+
+/**
+ * Query result points of a series, ordered by time ascending.
+ *
+ * @author Wangl.sir
+ * @version v1.0 2019年9月7日
+ * @since
+ */
+public class SeriesPoints {
+
+	final private String metric;
+
+	final private Map<String, String> tags;
+
+	final private long[] times;
+
+	final private double[] values;
+
+	final private int size;
+
+	SeriesPoints(String metric, Map<String, String> tags, long[] times, double[] values, int size) {
+		this.metric = metric;
+		this.tags = tags;
+		this.times = times;
+		this.values = values;
+		this.size = size;
+	}
+
+	public String getMetric() {
+		return metric;
+	}
+
+	public Map<String, String> getTags() {
+		return tags;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public long getTime(int index) {
+		return times[index];
+	}
+
+	public double getValue(int index) {
+		return values[index];
+	}
+
+	public long[] getTimes() {
+		return copyOf(times, size);
+	}
+
+	public double[] getValues() {
+		return copyOf(values, size);
+	}
+
+	@Override
+	public String toString() {
+		return "SeriesPoints [metric=" + metric + ", tags=" + tags + ", size=" + size + "]";
+	}
+
+	/**
+	 * Stable sort points by time ascending, merge sort(the points are mostly
+	 * ordered runs, of segments and the head buffer).
+	 *
+	 * @param times
+	 * @param values
+	 * @param size
+	 */
+	static void sortByTime(long[] times, double[] values, int size) {
+		boolean sorted = true;
+		for (int i = 1; i < size && sorted; i++) {
+			sorted = times[i - 1] <= times[i];
+		}
+		if (sorted) {
+			return;
+		}
+		long[] tbuf = new long[size];
+		double[] vbuf = new double[size];
+		for (int width = 1; width < size; width <<= 1) {
+			for (int lo = 0; lo < size - width; lo += width << 1) {
+				int mid = lo + width, hi = Math.min(lo + (width << 1), size);
+				if (times[mid - 1] <= times[mid]) {
+					continue; // Already ordered.
+				}
+				int i = lo, j = mid, k = lo;
+				while (i < mid && j < hi) {
+					if (times[j] < times[i]) {
+						tbuf[k] = times[j];
+						vbuf[k++] = values[j++];
+					} else {
+						tbuf[k] = times[i];
+						vbuf[k++] = values[i++];
+					}
+				}
+				while (i < mid) {
+					tbuf[k] = times[i];
+					vbuf[k++] = values[i++];
+				}
+				while (j < hi) {
+					tbuf[k] = times[j];
+					vbuf[k++] = values[j++];
+				}
+				System.arraycopy(tbuf, lo, times, lo, hi - lo);
+				System.arraycopy(vbuf, lo, values, lo, hi - lo);
+			}
+		}
+	}
+
+	/**
+	 * Remove the points with duplicated time-stamp of sorted points, the last
+	 * one wins.
+	 *
+	 * @param times
+	 * @param values
+	 * @param size
+	 * @return new size
+	 */
+	static int dedup(long[] times, double[] values, int size) {
+		if (size == 0) {
+			return 0;
+		}
+		int n = 0;
+		for (int i = 1; i < size; i++) {
+			if (times[i] != times[n]) {
+				++n;
+			}
+			times[n] = times[i];
+			values[n] = values[i];
+		}
+		return n + 1;
+	}
+
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.embedded;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UTFDataFormatException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Persistent string dictionary of metric names, tag names and tag values.
+ * Strings are assigned increasing ids and appended to the dictionary log,
+ * the log is replayed on opening.
+ *
+ * @author Wangl.sir
+ * @version v1.0 2019年9月7日
+ * @since
+ */
+final class TagDictionary implements Closeable {
+
+	/** Id not assigned. */
+	final static int NONE = -1;
+
+	final private ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+
+	final private List<String> strings = new ArrayList<>();
+
+	final private DataOutputStream log;
+
+	TagDictionary(File file) throws IOException {
+		if (file.exists()) {
+			try (RandomAccessFile in = new RandomAccessFile(file, "rw")) {
+				long valid = 0;
+				try {
+					for (;;) {
+						String s = in.readUTF();
+						ids.put(s, strings.size());
+						strings.add(s);
+						valid = in.getFilePointer();
+					}
+				} catch (EOFException | UTFDataFormatException e) {
+					// Truncate the torn tail entry(if any).
+					in.setLength(valid);
+				}
+			}
+		}
+		this.log = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+	}
+
+	/**
+	 * Gets or assigns the id of string.
+	 *
+	 * @param s
+	 * @return
+	 * @throws IOException
+	 */
+	int encode(String s) throws IOException {
+		Integer id = ids.get(s);
+		if (id != null) {
+			return id;
+		}
+		synchronized (this) {
+			id = ids.get(s);
+			if (id == null) {
+				log.writeUTF(s);
+				log.flush();
+				id = strings.size();
+				strings.add(s);
+				ids.put(s, id);
+			}
+			return id;
+		}
+	}
+
+	/**
+	 * Gets the id of string without assigning.
+	 *
+	 * @param s
+	 * @return id or {@link #NONE}
+	 */
+	int lookup(String s) {
+		Integer id = ids.get(s);
+		return id == null ? NONE : id;
+	}
+
+	synchronized String decode(int id) {
+		return strings.get(id);
+	}
+
+	int size() {
+		return ids.size();
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		log.close();
+	}
+
+}
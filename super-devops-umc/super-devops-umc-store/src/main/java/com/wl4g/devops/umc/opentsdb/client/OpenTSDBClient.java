@@ -15,14 +15,22 @@
  */
 package com.wl4g.devops.umc.opentsdb.client;
 
+import static java.util.Collections.unmodifiableList;
+import static java.util.stream.Collectors.toList;
+
+import java.io.File;
 import java.io.IOException;
-import java.lang.reflect.Field;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.http.HttpResponse;
 import org.apache.http.nio.reactor.IOReactorException;
@@ -30,6 +38,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.wl4g.devops.umc.opentsdb.client.bean.request.Api;
 import com.wl4g.devops.umc.opentsdb.client.bean.request.LastPointQuery;
 import com.wl4g.devops.umc.opentsdb.client.bean.request.Point;
@@ -37,14 +46,21 @@ import com.wl4g.devops.umc.opentsdb.client.bean.request.Query;
 import com.wl4g.devops.umc.opentsdb.client.bean.request.SuggestQuery;
 import com.wl4g.devops.umc.opentsdb.client.bean.response.LastPointQueryResult;
 import com.wl4g.devops.umc.opentsdb.client.bean.response.QueryResult;
+import com.wl4g.devops.umc.opentsdb.client.bean.response.QuerySeries;
 import com.wl4g.devops.umc.opentsdb.client.common.Json;
 import com.wl4g.devops.umc.opentsdb.client.http.HttpClient;
 import com.wl4g.devops.umc.opentsdb.client.http.HttpClientFactory;
 import com.wl4g.devops.umc.opentsdb.client.http.callback.QueryHttpResponseCallback;
+import com.wl4g.devops.umc.opentsdb.client.query.QueryResponseParser;
+import com.wl4g.devops.umc.opentsdb.client.query.QueryResultCache;
+import com.wl4g.devops.umc.opentsdb.client.query.QuerySplitter;
 import com.wl4g.devops.umc.opentsdb.client.sender.consumer.Consumer;
+import com.wl4g.devops.umc.opentsdb.client.sender.PutStatistics;
 import com.wl4g.devops.umc.opentsdb.client.sender.consumer.ConsumerImpl;
+import com.wl4g.devops.umc.opentsdb.client.sender.producer.OverflowPolicy;
 import com.wl4g.devops.umc.opentsdb.client.sender.producer.Producer;
 import com.wl4g.devops.umc.opentsdb.client.sender.producer.ProducerImpl;
+import com.wl4g.devops.umc.opentsdb.client.sender.spill.PointSpillStore;
 import com.wl4g.devops.umc.opentsdb.client.util.ResponseUtil;
 
 /**
@@ -67,45 +83,116 @@ public class OpenTSDBClient {
 
 	private BlockingQueue<Point> queue;
 
+	private final PutStatistics putStatistics = new PutStatistics();
+
+	/***
+	 * SPILL策略时的溢出存储
+	 */
+	private PointSpillStore spillStore;
+
+	/***
+	 * 最近查询结果缓存
+	 */
+	private final QueryResultCache queryCache;
+
 	/***
-	 * 通过反射来允许删除
+	 * 查询响应解析线程池，避免在http的IO线程中解析
 	 */
-	private static Field queryDeleteField;
+	private final ExecutorService queryExecutor;
 
 	public OpenTSDBClient(OpenTSDBConfig config) throws IOReactorException {
 		this.config = config;
 		this.httpClient = HttpClientFactory.createHttpClient(config);
 		this.httpClient.start();
+		this.queryCache = new QueryResultCache(config.getQueryCacheSize(), config.getQueryCacheTtl());
+		AtomicInteger threads = new AtomicInteger(0);
+		this.queryExecutor = Executors.newFixedThreadPool(Math.max(1, config.getQueryThreadCount()), r -> {
+			Thread t = new Thread(r, "opentsdb-query-" + threads.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
 
 		if (!config.isReadonly()) {
 			this.queue = new ArrayBlockingQueue<>(config.getBatchPutBufferSize());
-			this.producer = new ProducerImpl(queue);
-			this.consumer = new ConsumerImpl(queue, httpClient, config);
-			this.consumer.start();
-
-			try {
-				queryDeleteField = Query.class.getDeclaredField("delete");
-				queryDeleteField.setAccessible(true);
-			} catch (NoSuchFieldException e) {
-				e.printStackTrace();
+			if (config.getOverflowPolicy() == OverflowPolicy.SPILL) {
+				this.spillStore = new PointSpillStore(new File(config.getSpillDirectory()), config.getSpillMaxBytes(),
+						config.getSpillSegmentBytes());
 			}
+			this.producer = new ProducerImpl(queue, config.getOverflowPolicy(), putStatistics, spillStore);
+			this.consumer = new ConsumerImpl(queue, httpClient, config, putStatistics, spillStore);
+			this.consumer.start();
 		}
 
 		log.debug("the httpclient has started");
 	}
 
 	/***
-	 * 查询数据
+	 * 查询数据(阻塞)，基于{@link #queryAsync(Query)}
 	 * 
 	 * @param query
 	 *            查询对象
 	 * @return
 	 */
 	public List<QueryResult> query(Query query) throws IOException, ExecutionException, InterruptedException {
-		Future<HttpResponse> future = httpClient.post(Api.QUERY.getPath(), Json.writeValueAsString(query));
-		HttpResponse response = future.get();
-		List<QueryResult> results = Json.readValue(ResponseUtil.getContent(response), List.class, QueryResult.class);
-		return results;
+		List<QuerySeries> series = await(queryAsync(query));
+		return series.stream().map(QuerySeries::toQueryResult).collect(toList());
+	}
+
+	/***
+	 * 异步查询，不阻塞调用线程。长时间范围的查询按{@link OpenTSDBConfig#getQuerySplitInterval()}
+	 * 拆分为多个子查询并行请求后合并，响应流式解析为基本类型数组，相同查询在缓存有效期内共享结果
+	 * 
+	 * @param query
+	 *            查询对象
+	 * @return 查询结果(不可修改)，失败时为{@link OpenTSDBHttpException}等异常
+	 */
+	public CompletableFuture<List<QuerySeries>> queryAsync(Query query) {
+		ObjectNode tree;
+		String key;
+		try {
+			tree = Json.valueToTree(query);
+			key = Json.writeValueAsString(tree);
+		} catch (IllegalArgumentException | JsonProcessingException e) {
+			CompletableFuture<List<QuerySeries>> failed = new CompletableFuture<>();
+			failed.completeExceptionally(e);
+			return failed;
+		}
+		// 返回依赖的future，调用方取消时不影响缓存中共享的结果
+		return queryCache.get(key, () -> fetch(tree)).thenApply(results -> results);
+	}
+
+	/***
+	 * 拆分并行请求，合并结果
+	 * 
+	 * @param query
+	 *            查询json
+	 * @return
+	 */
+	private CompletableFuture<List<QuerySeries>> fetch(ObjectNode query) {
+		List<ObjectNode> splits = QuerySplitter.split(query, System.currentTimeMillis(), config.getQuerySplitInterval(),
+				config.getQueryMaxSplits());
+		if (splits.size() > 1) {
+			log.debug("Split query into {} chunks", splits.size());
+		}
+		List<CompletableFuture<List<QuerySeries>>> chunks = splits.stream().map(this::fetchChunk).collect(toList());
+		return CompletableFuture.allOf(chunks.toArray(new CompletableFuture[0])).thenApply(
+				v -> unmodifiableList(QuerySplitter.merge(chunks.stream().map(CompletableFuture::join).collect(toList()))));
+	}
+
+	private CompletableFuture<List<QuerySeries>> fetchChunk(ObjectNode query) {
+		try {
+			return httpClient.postAsync(Api.QUERY.getPath(), Json.writeValueAsString(query)).thenApplyAsync(response -> {
+				try {
+					return QueryResponseParser.parse(ResponseUtil.getContentStream(response));
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}, queryExecutor);
+		} catch (JsonProcessingException e) {
+			CompletableFuture<List<QuerySeries>> failed = new CompletableFuture<>();
+			failed.completeExceptionally(e);
+			return failed;
+		}
 	}
 
 	/***
@@ -130,11 +217,30 @@ public class OpenTSDBClient {
 	 */
 	public List<LastPointQueryResult> queryLast(LastPointQuery query)
 			throws IOException, ExecutionException, InterruptedException {
-		Future<HttpResponse> future = httpClient.post(Api.LAST.getPath(), Json.writeValueAsString(query));
-		HttpResponse response = future.get();
-		List<LastPointQueryResult> results = Json.readValue(ResponseUtil.getContent(response), List.class,
-				LastPointQueryResult.class);
-		return results;
+		return await(queryLastAsync(query));
+	}
+
+	/***
+	 * 异步查询最新的数据，不阻塞调用线程
+	 * 
+	 * @param query
+	 *            查询对象
+	 * @return
+	 */
+	public CompletableFuture<List<LastPointQueryResult>> queryLastAsync(LastPointQuery query) {
+		try {
+			return httpClient.postAsync(Api.LAST.getPath(), Json.writeValueAsString(query)).thenApplyAsync(response -> {
+				try {
+					return Json.readValue(ResponseUtil.getContent(response), List.class, LastPointQueryResult.class);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}, queryExecutor);
+		} catch (JsonProcessingException e) {
+			CompletableFuture<List<LastPointQueryResult>> failed = new CompletableFuture<>();
+			failed.completeExceptionally(e);
+			return failed;
+		}
 	}
 
 	/***
@@ -156,16 +262,16 @@ public class OpenTSDBClient {
 	 * @param query
 	 *            查询对象
 	 */
-	public List<QueryResult> delete(Query query)
-			throws IllegalAccessException, ExecutionException, InterruptedException, IOException {
+	public List<QueryResult> delete(Query query) throws ExecutionException, InterruptedException, IOException {
 		if (config.isReadonly()) {
 			throw new IllegalArgumentException("this client is readonly,can't delete data");
 		}
-		queryDeleteField.set(query, true);
-		Future<HttpResponse> future = httpClient.post(Api.QUERY.getPath(), Json.writeValueAsString(query));
-		HttpResponse response = future.get();
-		List<QueryResult> results = Json.readValue(ResponseUtil.getContent(response), List.class, QueryResult.class);
-		return results;
+		// 在请求json中设置delete，不修改查询对象，也不经过拆分及缓存
+		ObjectNode tree = Json.valueToTree(query);
+		tree.put("delete", true);
+		HttpResponse response = httpClient.postAsync(Api.QUERY.getPath(), Json.writeValueAsString(tree)).get();
+		List<QuerySeries> series = QueryResponseParser.parse(ResponseUtil.getContentStream(response));
+		return series.stream().map(QuerySeries::toQueryResult).collect(toList());
 	}
 
 	/***
@@ -181,6 +287,15 @@ public class OpenTSDBClient {
 		return results;
 	}
 
+	/***
+	 * 批量写入的统计信息
+	 * 
+	 * @return
+	 */
+	public PutStatistics getPutStatistics() {
+		return putStatistics;
+	}
+
 	/***
 	 * 优雅关闭链接，会等待所有消费者线程结束
 	 */
@@ -192,8 +307,11 @@ public class OpenTSDBClient {
 			this.waitEmpty();
 			// 关闭消费者
 			this.consumer.gracefulStop();
+			// 未回放的溢出数据保留在磁盘，下次启动后回放
+			this.closeSpillStore();
 		}
 		this.httpClient.gracefulClose();
+		this.queryExecutor.shutdown();
 	}
 
 	/***
@@ -215,8 +333,38 @@ public class OpenTSDBClient {
 	public void forceClose() throws IOException {
 		if (!config.isReadonly()) {
 			this.consumer.forceStop();
+			this.closeSpillStore();
 		}
 		this.httpClient.forceClose();
+		this.queryExecutor.shutdownNow();
+	}
+
+	/***
+	 * 等待异步结果，展开异步过程中的异常，与原阻塞接口抛出的异常保持一致
+	 * 
+	 * @param future
+	 * @return
+	 */
+	private static <T> T await(CompletableFuture<T> future) throws IOException, ExecutionException, InterruptedException {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof UncheckedIOException) {
+				throw ((UncheckedIOException) cause).getCause();
+			} else if (cause instanceof IOException) {
+				throw (IOException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw e;
+		}
+	}
+
+	private void closeSpillStore() throws IOException {
+		if (spillStore != null) {
+			spillStore.close();
+		}
 	}
 
 }
\ No newline at end of file
@@ -15,7 +15,10 @@
  */
 package com.wl4g.devops.umc.opentsdb.client;
 
+import java.io.File;
+
 import com.wl4g.devops.umc.opentsdb.client.http.callback.BatchPutHttpResponseCallback;
+import com.wl4g.devops.umc.opentsdb.client.sender.producer.OverflowPolicy;
 
 /**
  * @Description: opentsdb通用配置
@@ -41,10 +44,36 @@ public class OpenTSDBConfig {
 
 	private int batchPutTimeLimit;
 
+	private int batchPutMaxSize;
+
+	private int batchPutTargetLatency;
+
+	private int maxInFlightRequests;
+
+	private boolean gzip;
+
+	private OverflowPolicy overflowPolicy;
+
+	private String spillDirectory;
+
+	private long spillMaxBytes;
+
+	private long spillSegmentBytes;
+
 	private boolean readonly;
 
 	private BatchPutHttpResponseCallback.BatchPutCallBack batchPutCallBack;
 
+	private long querySplitInterval;
+
+	private int queryMaxSplits;
+
+	private int queryCacheSize;
+
+	private long queryCacheTtl;
+
+	private int queryThreadCount;
+
 	public static class Builder {
 
 		private String host;
@@ -81,6 +110,46 @@ public class OpenTSDBConfig {
 		 */
 		private int batchPutTimeLimit = 300;
 
+		/***
+		 * 自适应批次的最大数据点个数，批次大小在请求延迟低于目标时逐步增长，超过目标或失败时减半
+		 */
+		private int batchPutMaxSize = 5000;
+
+		/***
+		 * 自适应批次的目标请求延迟，单位ms
+		 */
+		private int batchPutTargetLatency = 500;
+
+		/***
+		 * 同时进行中的最大写入请求数，达到上限时消费者线程等待，队列积压后由overflowPolicy处理
+		 */
+		private int maxInFlightRequests = 8;
+
+		/***
+		 * 写入请求体是否使用gzip压缩
+		 */
+		private boolean gzip = true;
+
+		/***
+		 * 缓冲队列满时的处理策略
+		 */
+		private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+
+		/***
+		 * SPILL策略时溢出数据点的本地目录
+		 */
+		private String spillDirectory = System.getProperty("java.io.tmpdir") + File.separator + "opentsdb-spill";
+
+		/***
+		 * SPILL策略时溢出文件的最大总大小，单位字节
+		 */
+		private long spillMaxBytes = 1024L * 1024 * 1024;
+
+		/***
+		 * SPILL策略时单个溢出文件的最大大小，单位字节
+		 */
+		private long spillSegmentBytes = 64L * 1024 * 1024;
+
 		/***
 		 * 如果确定不写入数据，可以把这个属性设置为true，将不会开启写数据用的队列和线程池
 		 */
@@ -91,6 +160,31 @@ public class OpenTSDBConfig {
 		 */
 		private BatchPutHttpResponseCallback.BatchPutCallBack batchPutCallBack;
 
+		/***
+		 * 长时间范围查询的拆分间隔，单位ms，按此间隔对齐拆分为多个并行查询后合并结果，0表示不拆分
+		 */
+		private long querySplitInterval = 24 * 3600 * 1000L;
+
+		/***
+		 * 单个查询最多拆分的子查询数，超过时按倍数放大拆分间隔
+		 */
+		private int queryMaxSplits = 8;
+
+		/***
+		 * 最近查询结果缓存的最大条数，0表示不缓存
+		 */
+		private int queryCacheSize = 64;
+
+		/***
+		 * 查询结果缓存的有效时间，单位ms，0表示不缓存
+		 */
+		private long queryCacheTtl = 5000L;
+
+		/***
+		 * 解析查询响应的线程数，解析不占用http的IO线程
+		 */
+		private int queryThreadCount = 2;
+
 		public Builder(String host, int port) {
 			this.host = host;
 			this.port = port;
@@ -107,8 +201,21 @@ public class OpenTSDBConfig {
 			config.batchPutSize = this.batchPutSize;
 			config.batchPutBufferSize = this.batchPutBufferSize;
 			config.batchPutTimeLimit = this.batchPutTimeLimit;
+			config.batchPutMaxSize = Math.max(this.batchPutMaxSize, this.batchPutSize);
+			config.batchPutTargetLatency = this.batchPutTargetLatency;
+			config.maxInFlightRequests = this.maxInFlightRequests;
+			config.gzip = this.gzip;
+			config.overflowPolicy = this.overflowPolicy;
+			config.spillDirectory = this.spillDirectory;
+			config.spillMaxBytes = this.spillMaxBytes;
+			config.spillSegmentBytes = this.spillSegmentBytes;
 			config.readonly = this.readonly;
 			config.batchPutCallBack = this.batchPutCallBack;
+			config.querySplitInterval = this.querySplitInterval;
+			config.queryMaxSplits = this.queryMaxSplits;
+			config.queryCacheSize = this.queryCacheSize;
+			config.queryCacheTtl = this.queryCacheTtl;
+			config.queryThreadCount = this.queryThreadCount;
 
 			return config;
 		}
@@ -161,6 +268,56 @@ public class OpenTSDBConfig {
 			return this;
 		}
 
+		public Builder batchPutMaxSize(int batchPutMaxSize) {
+			if (batchPutMaxSize < 1) {
+				throw new IllegalArgumentException("The size can't be less then 1");
+			}
+			this.batchPutMaxSize = batchPutMaxSize;
+			return this;
+		}
+
+		public Builder batchPutTargetLatency(int batchPutTargetLatency) {
+			if (batchPutTargetLatency < 1) {
+				throw new IllegalArgumentException("The target latency can't be less then 1");
+			}
+			this.batchPutTargetLatency = batchPutTargetLatency;
+			return this;
+		}
+
+		public Builder maxInFlightRequests(int maxInFlightRequests) {
+			if (maxInFlightRequests < 1) {
+				throw new IllegalArgumentException("The max in-flight requests can't be less then 1");
+			}
+			this.maxInFlightRequests = maxInFlightRequests;
+			return this;
+		}
+
+		public Builder gzip(boolean gzip) {
+			this.gzip = gzip;
+			return this;
+		}
+
+		public Builder overflowPolicy(OverflowPolicy overflowPolicy) {
+			if (overflowPolicy == null) {
+				throw new IllegalArgumentException("The overflow policy can't be null");
+			}
+			this.overflowPolicy = overflowPolicy;
+			return this;
+		}
+
+		public Builder spill(String spillDirectory, long spillMaxBytes, long spillSegmentBytes) {
+			if (spillDirectory == null || spillDirectory.trim().isEmpty()) {
+				throw new IllegalArgumentException("The spill directory can't be empty");
+			}
+			if (spillMaxBytes < 1 || spillSegmentBytes < 1) {
+				throw new IllegalArgumentException("The spill bytes can't be less then 1");
+			}
+			this.spillDirectory = spillDirectory;
+			this.spillMaxBytes = spillMaxBytes;
+			this.spillSegmentBytes = spillSegmentBytes;
+			return this;
+		}
+
 		public Builder readonly() {
 			this.readonly = true;
 			return this;
@@ -171,6 +328,35 @@ public class OpenTSDBConfig {
 			return this;
 		}
 
+		public Builder querySplit(long querySplitInterval, int queryMaxSplits) {
+			if (querySplitInterval < 0) {
+				throw new IllegalArgumentException("The split interval can't be less then 0");
+			}
+			if (queryMaxSplits < 1) {
+				throw new IllegalArgumentException("The max splits can't be less then 1");
+			}
+			this.querySplitInterval = querySplitInterval;
+			this.queryMaxSplits = queryMaxSplits;
+			return this;
+		}
+
+		public Builder queryCache(int queryCacheSize, long queryCacheTtl) {
+			if (queryCacheSize < 0 || queryCacheTtl < 0) {
+				throw new IllegalArgumentException("The cache size and ttl can't be less then 0");
+			}
+			this.queryCacheSize = queryCacheSize;
+			this.queryCacheTtl = queryCacheTtl;
+			return this;
+		}
+
+		public Builder queryThreadCount(int queryThreadCount) {
+			if (queryThreadCount < 1) {
+				throw new IllegalArgumentException("The threadCount can't be less then 1");
+			}
+			this.queryThreadCount = queryThreadCount;
+			return this;
+		}
+
 	}
 
 	public static Builder address(String host, int port) {
@@ -241,6 +427,70 @@ public class OpenTSDBConfig {
 		this.batchPutTimeLimit = batchPutTimeLimit;
 	}
 
+	public int getBatchPutMaxSize() {
+		return batchPutMaxSize;
+	}
+
+	public void setBatchPutMaxSize(int batchPutMaxSize) {
+		this.batchPutMaxSize = batchPutMaxSize;
+	}
+
+	public int getBatchPutTargetLatency() {
+		return batchPutTargetLatency;
+	}
+
+	public void setBatchPutTargetLatency(int batchPutTargetLatency) {
+		this.batchPutTargetLatency = batchPutTargetLatency;
+	}
+
+	public int getMaxInFlightRequests() {
+		return maxInFlightRequests;
+	}
+
+	public void setMaxInFlightRequests(int maxInFlightRequests) {
+		this.maxInFlightRequests = maxInFlightRequests;
+	}
+
+	public boolean isGzip() {
+		return gzip;
+	}
+
+	public void setGzip(boolean gzip) {
+		this.gzip = gzip;
+	}
+
+	public OverflowPolicy getOverflowPolicy() {
+		return overflowPolicy;
+	}
+
+	public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+		this.overflowPolicy = overflowPolicy;
+	}
+
+	public String getSpillDirectory() {
+		return spillDirectory;
+	}
+
+	public void setSpillDirectory(String spillDirectory) {
+		this.spillDirectory = spillDirectory;
+	}
+
+	public long getSpillMaxBytes() {
+		return spillMaxBytes;
+	}
+
+	public void setSpillMaxBytes(long spillMaxBytes) {
+		this.spillMaxBytes = spillMaxBytes;
+	}
+
+	public long getSpillSegmentBytes() {
+		return spillSegmentBytes;
+	}
+
+	public void setSpillSegmentBytes(long spillSegmentBytes) {
+		this.spillSegmentBytes = spillSegmentBytes;
+	}
+
 	public boolean isReadonly() {
 		return readonly;
 	}
@@ -256,4 +506,44 @@ public class OpenTSDBConfig {
 	public void setBatchPutCallBack(BatchPutHttpResponseCallback.BatchPutCallBack batchPutCallBack) {
 		this.batchPutCallBack = batchPutCallBack;
 	}
+
+	public long getQuerySplitInterval() {
+		return querySplitInterval;
+	}
+
+	public void setQuerySplitInterval(long querySplitInterval) {
+		this.querySplitInterval = querySplitInterval;
+	}
+
+	public int getQueryMaxSplits() {
+		return queryMaxSplits;
+	}
+
+	public void setQueryMaxSplits(int queryMaxSplits) {
+		this.queryMaxSplits = queryMaxSplits;
+	}
+
+	public int getQueryCacheSize() {
+		return queryCacheSize;
+	}
+
+	public void setQueryCacheSize(int queryCacheSize) {
+		this.queryCacheSize = queryCacheSize;
+	}
+
+	public long getQueryCacheTtl() {
+		return queryCacheTtl;
+	}
+
+	public void setQueryCacheTtl(long queryCacheTtl) {
+		this.queryCacheTtl = queryCacheTtl;
+	}
+
+	public int getQueryThreadCount() {
+		return queryThreadCount;
+	}
+
+	public void setQueryThreadCount(int queryThreadCount) {
+		this.queryThreadCount = queryThreadCount;
+	}
 }
\ No newline at end of file
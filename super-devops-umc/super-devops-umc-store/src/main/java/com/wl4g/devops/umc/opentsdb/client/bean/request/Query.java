@@ -21,6 +21,9 @@ import java.util.List;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
+
 /**
  * 详见<a>http://opentsdb.net/docs/build/html/api_http/query/index.html</a>
  *
@@ -30,6 +33,7 @@ import org.apache.commons.lang3.StringUtils;
  * @Version: 1.0
  */
 @SuppressWarnings("unused")
+@JsonAutoDetect(fieldVisibility = Visibility.ANY)
 public class Query {
 
 	/**
@@ -217,7 +221,7 @@ public class Query {
 	}
 
 	/***
-	 * 设置私有，不允许用户设置delete属性，会在client中通过反射来设置
+	 * 设置私有，不允许用户设置delete属性，删除时由client在请求json中设置
 	 * 
 	 * @param delete
 	 */
@@ -25,6 +25,8 @@ import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.util.CollectionUtils;
 
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
 import com.fasterxml.jackson.annotation.JsonValue;
 import com.google.common.collect.Maps;
 
@@ -37,6 +39,7 @@ import com.google.common.collect.Maps;
  * @Version: 1.0
  */
 @SuppressWarnings("unused")
+@JsonAutoDetect(fieldVisibility = Visibility.ANY)
 public class SubQuery {
 
 	private Aggregator aggregator;
@@ -237,6 +240,7 @@ public class SubQuery {
 	/***
 	 * 速率
 	 */
+	@JsonAutoDetect(fieldVisibility = Visibility.ANY)
 	public static class RateOptions {
 
 		private Boolean counter;
@@ -308,6 +312,7 @@ public class SubQuery {
 	/***
 	 * 查询过滤器
 	 */
+	@JsonAutoDetect(fieldVisibility = Visibility.ANY)
 	public static class Filter {
 
 		private FilterType type;
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.opentsdb.client.bean.response;
+
+import static java.util.Arrays.copyOf;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A series of the query results, the data points are kept in primitive arrays
+ * ordered by time ascending, instead of the boxed map of {@link QueryResult}.
+ *
+ * @author Wangl.sir
+ * @version v1.0 2019年9月10日
+ * @since
+ */
+public class QuerySeries {
+
+	final private String metric;
+
+	final private Map<String, String> tags;
+
+	final private List<String> aggregateTags;
+
+	final private long[] times;
+
+	final private double[] values;
+
+	final private int size;
+
+	public QuerySeries(String metric, Map<String, String> tags, List<String> aggregateTags, long[] times, double[] values,
+			int size) {
+		this.metric = metric;
+		this.tags = tags == null ? emptyMap() : tags;
+		this.aggregateTags = aggregateTags == null ? emptyList() : aggregateTags;
+		this.times = times;
+		this.values = values;
+		this.size = size;
+	}
+
+	public String getMetric() {
+		return metric;
+	}
+
+	public Map<String, String> getTags() {
+		return tags;
+	}
+
+	public List<String> getAggregateTags() {
+		return aggregateTags;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public long getTime(int index) {
+		return times[index];
+	}
+
+	public double getValue(int index) {
+		return values[index];
+	}
+
+	public long[] getTimes() {
+		return copyOf(times, size);
+	}
+
+	public double[] getValues() {
+		return copyOf(values, size);
+	}
+
+	/**
+	 * Convert to the {@link QueryResult} of the legacy blocking API.
+	 *
+	 * @return
+	 */
+	public QueryResult toQueryResult() {
+		QueryResult result = new QueryResult();
+		result.setMetric(metric);
+		result.setTags(tags);
+		result.setAggregateTags(aggregateTags);
+		LinkedHashMap<Long, Number> dps = new LinkedHashMap<>(size * 4 / 3 + 1);
+		for (int i = 0; i < size; i++) {
+			dps.put(times[i], values[i]);
+		}
+		result.setDps(dps);
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return "QuerySeries [metric=" + metric + ", tags=" + tags + ", aggregateTags=" + aggregateTags + ", size=" + size + "]";
+	}
+
+}
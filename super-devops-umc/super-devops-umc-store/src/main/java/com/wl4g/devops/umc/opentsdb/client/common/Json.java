@@ -16,14 +16,19 @@
 package com.wl4g.devops.umc.opentsdb.client.common;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.text.SimpleDateFormat;
 import java.util.Collection;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.fasterxml.jackson.databind.type.CollectionType;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
@@ -73,6 +78,41 @@ public class Json {
 		return instance.writeValueAsString(value);
 	}
 
+	/***
+	 * 创建流式json生成器(UTF-8)，直接写入输出流，关闭生成器时会关闭输出流
+	 * 
+	 * @param out
+	 *            输出流
+	 * @return
+	 * @throws IOException
+	 */
+	public static JsonGenerator createGenerator(OutputStream out) throws IOException {
+		return instance.getFactory().createGenerator(out, JsonEncoding.UTF8);
+	}
+
+	/***
+	 * 创建流式json解析器，关闭解析器时会关闭输入流
+	 * 
+	 * @param in
+	 *            输入流
+	 * @return
+	 * @throws IOException
+	 */
+	public static JsonParser createParser(InputStream in) throws IOException {
+		return instance.getFactory().createParser(in);
+	}
+
+	/***
+	 * 将对象转换为json树(如查询对象)，用于在不修改原对象的情况下调整请求内容
+	 * 
+	 * @param value
+	 *            具体对象
+	 * @return
+	 */
+	public static ObjectNode valueToTree(Object value) {
+		return instance.valueToTree(value);
+	}
+
 	/***
 	 * 将json字符串反序列化为T类型的对象
 	 * 
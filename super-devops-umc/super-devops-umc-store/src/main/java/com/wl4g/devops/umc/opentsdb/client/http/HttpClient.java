@@ -17,11 +17,13 @@ package com.wl4g.devops.umc.opentsdb.client.http;
 
 import java.io.IOException;
 import java.nio.charset.Charset;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.concurrent.FutureCallback;
@@ -102,7 +104,58 @@ public class HttpClient {
 			httpPost.addHeader("Content-Type", "application/json");
 			httpPost.setEntity(generateStringEntity(json));
 		}
+		return execute(httpPost, httpCallback);
+	}
+
+	/***
+	 * 异步post请求，不阻塞调用线程，结果在IO线程中完成
+	 * 
+	 * @param path
+	 *            请求路径
+	 * @param json
+	 *            请求内容，json格式
+	 * @return
+	 */
+	public CompletableFuture<HttpResponse> postAsync(String path, String json) {
+		CompletableFuture<HttpResponse> future = new CompletableFuture<>();
+		this.post(path, json, new FutureCallback<HttpResponse>() {
+			@Override
+			public void completed(HttpResponse response) {
+				future.complete(response);
+			}
+
+			@Override
+			public void failed(Exception e) {
+				future.completeExceptionally(e);
+			}
+
+			@Override
+			public void cancelled() {
+				future.cancel(false);
+			}
+		});
+		return future;
+	}
+
+	/***
+	 * post请求，请求体已编码(如gzip压缩)，Content-Type及Content-Encoding取自请求体
+	 * 
+	 * @param path
+	 *            请求路径
+	 * @param entity
+	 *            请求体
+	 * @param httpCallback
+	 *            回调
+	 * @return
+	 */
+	public Future<HttpResponse> post(String path, HttpEntity entity, FutureCallback<HttpResponse> httpCallback) {
+		log.debug("发送post请求，路径:{}，请求体长度:{}", path, entity.getContentLength());
+		HttpPost httpPost = new HttpPost(getUrl(path));
+		httpPost.setEntity(entity);
+		return execute(httpPost, httpCallback);
+	}
 
+	private Future<HttpResponse> execute(HttpPost httpPost, FutureCallback<HttpResponse> httpCallback) {
 		FutureCallback<HttpResponse> responseCallback = null;
 		if (httpCallback != null) {
 			log.debug("等待完成的任务数:{}", unCompletedTaskNum.incrementAndGet());
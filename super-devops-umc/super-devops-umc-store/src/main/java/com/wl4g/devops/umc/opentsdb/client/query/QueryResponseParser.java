@@ -0,0 +1,194 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.opentsdb.client.query;
+
+import static java.util.Arrays.copyOf;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.wl4g.devops.umc.opentsdb.client.bean.response.QuerySeries;
+import com.wl4g.devops.umc.opentsdb.client.common.Json;
+
+/**
+ * Streaming parser of the '/api/query' response.</br>
+ * The data points are read token by token into primitive arrays, both the
+ * object form {"dps":{"ts":v, ...}} and the array form(query option
+ * 'arrays') {"dps":[[ts, v], ...]} are supported, null and non numeric
+ * values are read as NaN. Unknown fields(tsuids, annotations, stats, query)
+ * and the trailing statistics summary are skipped without being bound.
+ *
+ * @author Wangl.sir
+ * @version v1.0 2019年9月10日
+ * @since
+ */
+public abstract class QueryResponseParser {
+
+	final private static int INITIAL_POINTS = 64;
+
+	/**
+	 * Parse the query results, the input stream is closed.
+	 *
+	 * @param in
+	 *            response content, null means no results.
+	 * @return
+	 * @throws IOException
+	 */
+	public static List<QuerySeries> parse(InputStream in) throws IOException {
+		List<QuerySeries> results = new ArrayList<>();
+		if (in == null) {
+			return results;
+		}
+		try (JsonParser p = Json.createParser(in)) {
+			p.enable(JsonParser.Feature.ALLOW_NON_NUMERIC_NUMBERS);
+			JsonToken t = p.nextToken();
+			if (t == null) {
+				return results;
+			}
+			if (t != JsonToken.START_ARRAY) {
+				throw new JsonParseException(p, "Expected query results array, but was: " + t);
+			}
+			while ((t = p.nextToken()) != JsonToken.END_ARRAY) {
+				if (t != JsonToken.START_OBJECT) {
+					throw new JsonParseException(p, "Expected query result object, but was: " + t);
+				}
+				QuerySeries series = parseSeries(p);
+				if (series != null) {
+					results.add(series);
+				}
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Parse a result object, the current token is START_OBJECT.
+	 *
+	 * @param p
+	 * @return series, or null if it's not a series(e.g. statistics summary).
+	 * @throws IOException
+	 */
+	private static QuerySeries parseSeries(JsonParser p) throws IOException {
+		String metric = null;
+		Map<String, String> tags = null;
+		List<String> aggregateTags = null;
+		long[] times = new long[INITIAL_POINTS];
+		double[] values = new double[INITIAL_POINTS];
+		int size = 0;
+
+		while (p.nextToken() == JsonToken.FIELD_NAME) {
+			String field = p.getCurrentName();
+			JsonToken t = p.nextToken();
+			switch (field) {
+			case "metric":
+				metric = p.getValueAsString();
+				break;
+			case "tags":
+				tags = readStringMap(p);
+				break;
+			case "aggregateTags":
+				aggregateTags = readStringList(p);
+				break;
+			case "dps":
+				if (t == JsonToken.START_OBJECT) {
+					while (p.nextToken() == JsonToken.FIELD_NAME) {
+						long time = Long.parseLong(p.getCurrentName());
+						p.nextToken();
+						if (size == times.length) {
+							times = copyOf(times, size << 1);
+							values = copyOf(values, size << 1);
+						}
+						times[size] = time;
+						values[size++] = readDouble(p);
+					}
+				} else if (t == JsonToken.START_ARRAY) {
+					while (p.nextToken() == JsonToken.START_ARRAY) {
+						p.nextToken();
+						long time = p.getLongValue();
+						p.nextToken();
+						if (size == times.length) {
+							times = copyOf(times, size << 1);
+							values = copyOf(values, size << 1);
+						}
+						times[size] = time;
+						values[size++] = readDouble(p);
+						// Skip the rest elements of the point.
+						while (p.nextToken() != JsonToken.END_ARRAY) {
+							p.skipChildren();
+						}
+					}
+				} else {
+					p.skipChildren();
+				}
+				break;
+			default:
+				p.skipChildren();
+			}
+		}
+		return metric == null ? null : new QuerySeries(metric, tags, aggregateTags, times, values, size);
+	}
+
+	private static double readDouble(JsonParser p) throws IOException {
+		switch (p.getCurrentToken()) {
+		case VALUE_NUMBER_INT:
+		case VALUE_NUMBER_FLOAT:
+			return p.getDoubleValue();
+		case VALUE_STRING:
+			try {
+				return Double.parseDouble(p.getText());
+			} catch (NumberFormatException e) {
+				return Double.NaN;
+			}
+		default:
+			p.skipChildren();
+			return Double.NaN;
+		}
+	}
+
+	private static Map<String, String> readStringMap(JsonParser p) throws IOException {
+		if (p.getCurrentToken() != JsonToken.START_OBJECT) {
+			p.skipChildren();
+			return null;
+		}
+		Map<String, String> map = new LinkedHashMap<>();
+		while (p.nextToken() == JsonToken.FIELD_NAME) {
+			String key = p.getCurrentName();
+			p.nextToken();
+			map.put(key, p.getValueAsString());
+		}
+		return map;
+	}
+
+	private static List<String> readStringList(JsonParser p) throws IOException {
+		if (p.getCurrentToken() != JsonToken.START_ARRAY) {
+			p.skipChildren();
+			return null;
+		}
+		List<String> list = new ArrayList<>();
+		while (p.nextToken() != JsonToken.END_ARRAY) {
+			list.add(p.getValueAsString());
+		}
+		return list;
+	}
+
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.opentsdb.client.query;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import com.wl4g.devops.umc.opentsdb.client.bean.response.QuerySeries;
+
+/**
+ * Small LRU cache of recent query results, keyed by the query json.</br>
+ * The pending result future is cached as soon as the query is issued, so
+ * identical queries in flight(e.g. several dashboards refreshing the same
+ * panel) share one request. Entries expire a fixed time after the query was
+ * issued, failed results are evicted immediately. Relative time queries(e.g.
+ * '1h-ago') may be served up to the TTL stale.
+ *
+ * @author Wangl.sir
+ * @version v1.0 2019年9月10日
+ * @since
+ */
+public class QueryResultCache {
+
+	final private int maxSize;
+
+	final private long ttlMs;
+
+	final private LinkedHashMap<String, Entry> entries;
+
+	public QueryResultCache(int maxSize, long ttlMs) {
+		this.maxSize = maxSize;
+		this.ttlMs = ttlMs;
+		this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+			private static final long serialVersionUID = -1837286463245186592L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+				return size() > QueryResultCache.this.maxSize;
+			}
+		};
+	}
+
+	/**
+	 * Gets the cached or pending result of the query, or loads it.
+	 *
+	 * @param key
+	 *            query json
+	 * @param loader
+	 *            issues the query
+	 * @return shared result future, callers must not complete or cancel it.
+	 */
+	public CompletableFuture<List<QuerySeries>> get(String key, Supplier<CompletableFuture<List<QuerySeries>>> loader) {
+		if (maxSize <= 0 || ttlMs <= 0) {
+			return loader.get();
+		}
+		CompletableFuture<List<QuerySeries>> future;
+		long now = System.currentTimeMillis();
+		synchronized (this) {
+			Entry e = entries.get(key);
+			if (e != null && e.expireAt > now && !e.future.isCompletedExceptionally()) {
+				return e.future;
+			}
+			future = new CompletableFuture<>();
+			entries.put(key, new Entry(future, now + ttlMs));
+		}
+
+		final CompletableFuture<List<QuerySeries>> pending = future;
+		try {
+			loader.get().whenComplete((results, ex) -> {
+				if (ex != null) {
+					invalidate(key, pending);
+					pending.completeExceptionally(ex);
+				} else {
+					pending.complete(results);
+				}
+			});
+		} catch (RuntimeException ex) {
+			invalidate(key, pending);
+			pending.completeExceptionally(ex);
+		}
+		return pending;
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	private synchronized void invalidate(String key, CompletableFuture<List<QuerySeries>> future) {
+		Entry e = entries.get(key);
+		if (e != null && e.future == future) {
+			entries.remove(key);
+		}
+	}
+
+	/**
+	 * Cached result entry.
+	 */
+	final private static class Entry {
+
+		final private CompletableFuture<List<QuerySeries>> future;
+
+		final private long expireAt;
+
+		Entry(CompletableFuture<List<QuerySeries>> future, long expireAt) {
+			this.future = future;
+			this.expireAt = expireAt;
+		}
+
+	}
+
+}
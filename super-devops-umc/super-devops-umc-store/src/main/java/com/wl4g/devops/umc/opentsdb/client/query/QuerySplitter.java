@@ -0,0 +1,233 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.opentsdb.client.query;
+
+import static java.util.Collections.singletonList;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.wl4g.devops.umc.opentsdb.client.bean.response.QuerySeries;
+
+/**
+ * Splits a long range query into consecutive time chunks that can be fetched
+ * in parallel, and merges the chunk results back into one series per
+ * group.</br>
+ * Chunk boundaries are aligned to multiples of the split interval, a query
+ * is only split when every chunk yields exactly the points the whole query
+ * would, i.e. every sub query is downsampled by an interval dividing the
+ * split interval, so the chunk edges are aligned to the downsample buckets.
+ * Queries not downsampled(the series are interpolated with each other across
+ * the chunk edges), with rate, calendar or time zone based downsampling, or a
+ * downsample interval not dividing the split interval are kept whole.
+ *
+ * @author Wangl.sir
+ * @version v1.0 2019年9月10日
+ * @since
+ */
+public abstract class QuerySplitter {
+
+	/** Relative time, e.g. '1h-ago'. */
+	final private static Pattern RELATIVE = Pattern.compile("^(\\d+)(ms|s|m|h|d|w|n|y)-ago$");
+
+	/** Downsample interval, e.g. '5m' of '5m-avg-nan'. */
+	final private static Pattern INTERVAL = Pattern.compile("^(\\d+)(ms|s|m|h|d|w)$");
+
+	/**
+	 * Split the query into chunks.
+	 *
+	 * @param query
+	 *            query json tree, not modified.
+	 * @param now
+	 *            current time(ms), for relative times.
+	 * @param interval
+	 *            split interval(ms), non-positive means no splitting.
+	 * @param maxSplits
+	 *            maximum chunks, the interval is widened to a multiple of
+	 *            itself if exceeded.
+	 * @return chunk queries ordered by time, or the query itself.
+	 */
+	public static List<ObjectNode> split(ObjectNode query, long now, long interval, int maxSplits) {
+		if (interval <= 0 || maxSplits < 2 || !isSplittable(query, interval)) {
+			return singletonList(query);
+		}
+		long start = toMillis(query.path("start").asText(null), now);
+		long end = query.hasNonNull("end") ? toMillis(query.path("end").asText(null), now) : now;
+		if (start < 0 || end < 0 || end - start <= interval) {
+			return singletonList(query);
+		}
+		// Widen to the least multiple of the interval splitting into no more
+		// than the maximum chunks(aligned, so it's not estimated by range).
+		long multiple = Math.max(1, (end - start) / interval / maxSplits);
+		while (Math.floorDiv(end, interval * multiple) - Math.floorDiv(start, interval * multiple) + 1 > maxSplits) {
+			++multiple;
+		}
+		interval *= multiple;
+
+		List<ObjectNode> splits = new ArrayList<>();
+		for (long lo = start; lo <= end;) {
+			long hi = Math.min(lo - Math.floorMod(lo, interval) + interval, end + 1);
+			ObjectNode chunk = query.deepCopy();
+			chunk.put("start", String.valueOf(lo));
+			chunk.put("end", String.valueOf(hi - 1));
+			splits.add(chunk);
+			lo = hi;
+		}
+		return splits;
+	}
+
+	/**
+	 * Merge the results of chunks(ordered by time) into one series per
+	 * metric, tags and aggregated tags. Points with the same time-stamp are
+	 * kept once, the later chunk wins.
+	 *
+	 * @param chunks
+	 * @return
+	 */
+	public static List<QuerySeries> merge(List<List<QuerySeries>> chunks) {
+		if (chunks.size() == 1) {
+			return chunks.get(0);
+		}
+		Map<String, QuerySeries> merged = new LinkedHashMap<>();
+		for (List<QuerySeries> chunk : chunks) {
+			for (QuerySeries s : chunk) {
+				String key = s.getMetric() + "|" + new TreeMap<>(s.getTags()) + "|" + s.getAggregateTags();
+				QuerySeries prev = merged.get(key);
+				merged.put(key, prev == null ? s : merge(prev, s));
+			}
+		}
+		return new ArrayList<>(merged.values());
+	}
+
+	/**
+	 * Merge two series ordered by time.
+	 *
+	 * @param a
+	 * @param b
+	 *            wins on the same time-stamp.
+	 * @return
+	 */
+	private static QuerySeries merge(QuerySeries a, QuerySeries b) {
+		int n = a.size(), m = b.size();
+		long[] times = new long[n + m];
+		double[] values = new double[n + m];
+		int i = 0, j = 0, k = 0;
+		while (i < n && j < m) {
+			long ta = a.getTime(i), tb = b.getTime(j);
+			if (ta < tb) {
+				times[k] = ta;
+				values[k++] = a.getValue(i++);
+			} else {
+				if (ta == tb) {
+					++i;
+				}
+				times[k] = tb;
+				values[k++] = b.getValue(j++);
+			}
+		}
+		for (; i < n; i++, k++) {
+			times[k] = a.getTime(i);
+			values[k] = a.getValue(i);
+		}
+		for (; j < m; j++, k++) {
+			times[k] = b.getTime(j);
+			values[k] = b.getValue(j);
+		}
+		return new QuerySeries(a.getMetric(), a.getTags(), a.getAggregateTags(), times, values, k);
+	}
+
+	private static boolean isSplittable(ObjectNode query, long interval) {
+		if (query.path("useCalendar").asBoolean(false) || query.hasNonNull("timezone") || query.path("delete").asBoolean(false)) {
+			return false;
+		}
+		JsonNode subQueries = query.path("queries");
+		if (!subQueries.isArray() || subQueries.size() == 0) {
+			return false;
+		}
+		for (JsonNode sub : subQueries) {
+			if (sub.path("rate").asBoolean(false)) {
+				return false;
+			}
+			String downsample = sub.path("downsample").asText("");
+			if (downsample.isEmpty()) {
+				return false;
+			}
+			Matcher m = INTERVAL.matcher(downsample.split("-")[0]);
+			if (!m.matches()) {
+				return false; // e.g. '0all', calendar units.
+			}
+			long ds = Long.parseLong(m.group(1)) * unitMillis(m.group(2));
+			if (ds <= 0 || interval % ds != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Absolute time-stamp(seconds or milliseconds) or relative time to
+	 * milliseconds.
+	 *
+	 * @param time
+	 * @param now
+	 * @return milliseconds, or -1 if unsupported.
+	 */
+	private static long toMillis(String time, long now) {
+		if (time == null || time.isEmpty()) {
+			return -1;
+		}
+		if (time.chars().allMatch(Character::isDigit)) {
+			long t = Long.parseLong(time);
+			return time.length() <= 10 ? t * 1000 : t;
+		}
+		Matcher m = RELATIVE.matcher(time);
+		if (m.matches()) {
+			return now - Long.parseLong(m.group(1)) * unitMillis(m.group(2));
+		}
+		return -1;
+	}
+
+	private static long unitMillis(String unit) {
+		switch (unit) {
+		case "ms":
+			return 1L;
+		case "s":
+			return 1000L;
+		case "m":
+			return 60_000L;
+		case "h":
+			return 3600_000L;
+		case "d":
+			return 86400_000L;
+		case "w":
+			return 7 * 86400_000L;
+		case "n":
+			return 30 * 86400_000L;
+		case "y":
+			return 365 * 86400_000L;
+		default:
+			return -1L;
+		}
+	}
+
+}
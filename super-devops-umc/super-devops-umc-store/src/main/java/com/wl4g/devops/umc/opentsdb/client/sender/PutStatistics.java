@@ -0,0 +1,143 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.opentsdb.client.sender;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Batch put statistics of the client, shared by the producer and the
+ * consumers.
+ *
+ * @author Wangl.sir
+ * @version v1.0 2019年9月6日
+ * @since
+ */
+public class PutStatistics {
+
+	/** Points accepted by the queue. */
+	final private AtomicLong enqueued = new AtomicLong(0);
+
+	/** Points discarded on overflow. */
+	final private AtomicLong dropped = new AtomicLong(0);
+
+	/** Points spilled to disk on overflow. */
+	final private AtomicLong spilled = new AtomicLong(0);
+
+	/** Spilled points replayed to the queue. */
+	final private AtomicLong replayed = new AtomicLong(0);
+
+	/** Points of the completed successful batches. */
+	final private AtomicLong sentPoints = new AtomicLong(0);
+
+	/** Completed successful batches. */
+	final private AtomicLong sentBatches = new AtomicLong(0);
+
+	/** Failed batches(request error or non 2xx response). */
+	final private AtomicLong failedBatches = new AtomicLong(0);
+
+	/** Request body bytes(after compression). */
+	final private AtomicLong sentBytes = new AtomicLong(0);
+
+	/** Requests in flight. */
+	final private AtomicInteger inFlight = new AtomicInteger(0);
+
+	/** Current adaptive batch size. */
+	private volatile int batchSize;
+
+	public void incrementEnqueued() {
+		enqueued.incrementAndGet();
+	}
+
+	public void incrementDropped() {
+		dropped.incrementAndGet();
+	}
+
+	public void incrementSpilled() {
+		spilled.incrementAndGet();
+	}
+
+	public void addReplayed(long count) {
+		replayed.addAndGet(count);
+	}
+
+	public void onSend(long bytes) {
+		sentBytes.addAndGet(bytes);
+		inFlight.incrementAndGet();
+	}
+
+	public void onComplete(int points, boolean success) {
+		inFlight.decrementAndGet();
+		if (success) {
+			sentPoints.addAndGet(points);
+			sentBatches.incrementAndGet();
+		} else {
+			failedBatches.incrementAndGet();
+		}
+	}
+
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	public long getEnqueued() {
+		return enqueued.get();
+	}
+
+	public long getDropped() {
+		return dropped.get();
+	}
+
+	public long getSpilled() {
+		return spilled.get();
+	}
+
+	public long getReplayed() {
+		return replayed.get();
+	}
+
+	public long getSentPoints() {
+		return sentPoints.get();
+	}
+
+	public long getSentBatches() {
+		return sentBatches.get();
+	}
+
+	public long getFailedBatches() {
+		return failedBatches.get();
+	}
+
+	public long getSentBytes() {
+		return sentBytes.get();
+	}
+
+	public int getInFlight() {
+		return inFlight.get();
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	@Override
+	public String toString() {
+		return "PutStatistics [enqueued=" + enqueued + ", dropped=" + dropped + ", spilled=" + spilled + ", replayed="
+				+ replayed + ", sentPoints=" + sentPoints + ", sentBatches=" + sentBatches + ", failedBatches="
+				+ failedBatches + ", sentBytes=" + sentBytes + ", inFlight=" + inFlight + ", batchSize=" + batchSize + "]";
+	}
+
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.opentsdb.client.sender.consumer;
+
+import org.springframework.util.Assert;
+
+/**
+ * Batch size controller, shared by the consumer threads.</br>
+ * AIMD on the smoothed put latency: while the latency is below the target the
+ * batch grows additively, when the latency exceeds the target or a batch
+ * fails it's halved, bounded by [min, max].
+ *
+ * @author Wangl.sir
+ * @version v1.0 2019年9月6日
+ * @since
+ */
+public class AdaptiveBatchSizer {
+
+	/** Smoothing factor of latency EWMA. */
+	final private static double ALPHA = 0.2d;
+
+	final private int minSize;
+	final private int maxSize;
+	final private int step;
+	final private long targetLatencyMs;
+
+	private volatile int size;
+
+	/** Smoothed latency(ms), negative means no sample yet. */
+	private double latency = -1;
+
+	public AdaptiveBatchSizer(int initialSize, int maxSize, long targetLatencyMs) {
+		Assert.isTrue(initialSize > 0, "Initial batch size must be greater than 0");
+		Assert.isTrue(targetLatencyMs > 0, "Target latency must be greater than 0");
+		this.maxSize = Math.max(initialSize, maxSize);
+		this.minSize = Math.max(1, initialSize >> 3);
+		this.step = Math.max(1, initialSize >> 1);
+		this.targetLatencyMs = targetLatencyMs;
+		this.size = initialSize;
+	}
+
+	/**
+	 * Current batch size.
+	 *
+	 * @return
+	 */
+	public int get() {
+		return size;
+	}
+
+	/**
+	 * Feedback of a completed batch.
+	 *
+	 * @param points
+	 *            batch points
+	 * @param latencyMs
+	 *            request latency
+	 * @param success
+	 */
+	public synchronized void feedback(int points, long latencyMs, boolean success) {
+		latency = latency < 0 ? latencyMs : (ALPHA * latencyMs + (1 - ALPHA) * latency);
+		if (!success || latency > targetLatencyMs) {
+			size = Math.max(minSize, size >> 1);
+			// Restart smoothing, so that one slow sample does not keep halving.
+			latency = -1;
+		} else if (points >= size) {
+			// Only grow when batches are actually full.
+			size = Math.min(maxSize, size + step);
+		}
+	}
+
+	public synchronized double getLatency() {
+		return latency;
+	}
+
+	@Override
+	public String toString() {
+		return "AdaptiveBatchSizer [size=" + size + ", minSize=" + minSize + ", maxSize=" + maxSize + ", latency="
+				+ getLatency() + ", targetLatencyMs=" + targetLatencyMs + "]";
+	}
+
+}
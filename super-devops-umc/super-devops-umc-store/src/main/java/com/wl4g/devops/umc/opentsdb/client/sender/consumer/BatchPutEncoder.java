@@ -0,0 +1,149 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.opentsdb.client.sender.consumer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.wl4g.devops.umc.opentsdb.client.bean.request.Point;
+import com.wl4g.devops.umc.opentsdb.client.common.Json;
+
+/**
+ * Batch put request body encoder.</br>
+ * Points are written by a streaming JSON generator straight into the
+ * (optionally gzip compressed) body buffer, without building an intermediate
+ * JSON string or tree of the batch, and the entity is backed by that buffer
+ * as is(no copy of the body).</br>
+ * Note: The body is not encoded lazily in {@link HttpEntity#writeTo}, because
+ * the asynchronous client pulls the content by {@link HttpEntity#getContent}
+ * (and the length is needed for the send statistics), so a lazily encoded
+ * entity would have to be buffered by the client anyway.
+ *
+ * @author Wangl.sir
+ * @version v1.0 2019年9月6日
+ * @since
+ */
+public class BatchPutEncoder {
+
+	/** Estimated bytes of one point, for buffer pre-sizing. */
+	final private static int POINT_BYTES = 128;
+	final private static int GZIP_POINT_BYTES = 16;
+
+	/** Enable gzip compression of the request body. */
+	final private boolean gzip;
+
+	public BatchPutEncoder(boolean gzip) {
+		this.gzip = gzip;
+	}
+
+	/**
+	 * Encode points to request entity.
+	 *
+	 * @param points
+	 * @return
+	 * @throws IOException
+	 */
+	public HttpEntity encode(List<Point> points) throws IOException {
+		BodyBuffer buf = new BodyBuffer(points.size() * (gzip ? GZIP_POINT_BYTES : POINT_BYTES));
+		OutputStream out = gzip ? new GZIPOutputStream(buf, 8192) : buf;
+		// Closing the generator closes(finishes) the gzip stream.
+		try (JsonGenerator gen = Json.createGenerator(out)) {
+			gen.writeStartArray();
+			for (Point point : points) {
+				writePoint(gen, point);
+			}
+			gen.writeEndArray();
+		}
+
+		ByteArrayEntity entity = new ByteArrayEntity(buf.array(), 0, buf.size(), ContentType.APPLICATION_JSON);
+		if (gzip) {
+			entity.setContentEncoding("gzip");
+		}
+		return entity;
+	}
+
+	public boolean isGzip() {
+		return gzip;
+	}
+
+	private void writePoint(JsonGenerator gen, Point point) throws IOException {
+		gen.writeStartObject();
+		gen.writeStringField("metric", point.getMetric());
+		gen.writeNumberField("timestamp", point.getTimestamp());
+		gen.writeFieldName("value");
+		writeNumber(gen, point.getValue());
+		Map<String, String> tags = point.getTags();
+		if (tags != null && !tags.isEmpty()) {
+			gen.writeObjectFieldStart("tags");
+			for (Map.Entry<String, String> tag : tags.entrySet()) {
+				gen.writeStringField(tag.getKey(), tag.getValue());
+			}
+			gen.writeEndObject();
+		}
+		gen.writeEndObject();
+	}
+
+	private void writeNumber(JsonGenerator gen, Number value) throws IOException {
+		if (value == null) {
+			gen.writeNull();
+		} else if (value instanceof Double || value instanceof Float) {
+			gen.writeNumber(value.doubleValue());
+		} else if (value instanceof BigDecimal) {
+			gen.writeNumber((BigDecimal) value);
+		} else if (value instanceof BigInteger) {
+			gen.writeNumber((BigInteger) value);
+		} else {
+			gen.writeNumber(value.longValue());
+		}
+	}
+
+	/**
+	 * Body buffer, exposes the internal array to avoid the copy of
+	 * {@link ByteArrayOutputStream#toByteArray()}.
+	 *
+	 * @author Wangl.sir
+	 * @version v1.0 2019年9月6日
+	 * @since
+	 */
+	final private static class BodyBuffer extends ByteArrayOutputStream {
+
+		BodyBuffer(int size) {
+			super(size);
+		}
+
+		/**
+		 * Internal array, only the first {@link #size()} bytes are valid.
+		 *
+		 * @return
+		 */
+		byte[] array() {
+			return buf;
+		}
+
+	}
+
+}
@@ -19,6 +19,7 @@ import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -26,6 +27,8 @@ import org.slf4j.LoggerFactory;
 import com.wl4g.devops.umc.opentsdb.client.OpenTSDBConfig;
 import com.wl4g.devops.umc.opentsdb.client.bean.request.Point;
 import com.wl4g.devops.umc.opentsdb.client.http.HttpClient;
+import com.wl4g.devops.umc.opentsdb.client.sender.PutStatistics;
+import com.wl4g.devops.umc.opentsdb.client.sender.spill.PointSpillStore;
 
 /**
  * @Author: jinyao
@@ -50,10 +53,30 @@ public class ConsumerImpl implements Consumer {
 
 	private final CountDownLatch countDownLatch;
 
-	public ConsumerImpl(BlockingQueue<Point> queue, HttpClient httpClient, OpenTSDBConfig config) {
+	/***
+	 * 所有消费者线程共享的批次大小控制、在途请求许可、请求体编码及统计
+	 */
+	private final AdaptiveBatchSizer batchSizer;
+
+	private final Semaphore inFlightPermits;
+
+	private final BatchPutEncoder encoder;
+
+	private final PutStatistics stats;
+
+	private final PointSpillStore spillStore;
+
+	public ConsumerImpl(BlockingQueue<Point> queue, HttpClient httpClient, OpenTSDBConfig config, PutStatistics stats,
+			PointSpillStore spillStore) {
 		this.queue = queue;
 		this.httpClient = httpClient;
 		this.config = config;
+		this.stats = stats;
+		this.spillStore = spillStore;
+		this.batchSizer = new AdaptiveBatchSizer(config.getBatchPutSize(), config.getBatchPutMaxSize(),
+				config.getBatchPutTargetLatency());
+		this.inFlightPermits = new Semaphore(config.getMaxInFlightRequests());
+		this.encoder = new BatchPutEncoder(config.isGzip());
 		this.threadCount = config.getPutConsumerThreadCount();
 		final int[] i = new int[1];
 		this.threadPool = Executors.newFixedThreadPool(threadCount,
@@ -66,7 +89,8 @@ public class ConsumerImpl implements Consumer {
 	@Override
 	public void start() {
 		for (int i = 0; i < threadCount; i++) {
-			threadPool.execute(new ConsumerRunnable(queue, httpClient, config, countDownLatch));
+			threadPool.execute(new ConsumerRunnable(queue, httpClient, config, countDownLatch, batchSizer, inFlightPermits,
+					encoder, stats, spillStore));
 		}
 	}
 
@@ -92,10 +116,8 @@ public class ConsumerImpl implements Consumer {
 				// 强制退出不等待，截断消费者线程。
 				threadPool.shutdownNow();
 			} else {
-				// 截断消费者线程。
-				while (!threadPool.isShutdown() || !threadPool.isTerminated()) {
-					threadPool.shutdownNow();
-				}
+				// 截断消费者线程(只截断一次，以免打断线程退出前最后一批数据的提交)。
+				threadPool.shutdownNow();
 
 				// 等待所有消费者线程结束。
 				try {
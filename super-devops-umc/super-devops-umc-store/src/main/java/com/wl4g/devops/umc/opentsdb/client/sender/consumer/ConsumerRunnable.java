@@ -19,17 +19,22 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.concurrent.FutureCallback;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.wl4g.devops.umc.opentsdb.client.OpenTSDBConfig;
 import com.wl4g.devops.umc.opentsdb.client.bean.request.Api;
 import com.wl4g.devops.umc.opentsdb.client.bean.request.Point;
-import com.wl4g.devops.umc.opentsdb.client.common.Json;
 import com.wl4g.devops.umc.opentsdb.client.http.HttpClient;
 import com.wl4g.devops.umc.opentsdb.client.http.callback.BatchPutHttpResponseCallback;
+import com.wl4g.devops.umc.opentsdb.client.sender.PutStatistics;
+import com.wl4g.devops.umc.opentsdb.client.sender.spill.PointSpillStore;
 
 /**
  * 消费者线程具体的消费逻辑
@@ -54,101 +59,215 @@ public class ConsumerRunnable implements Runnable {
 
 	private BatchPutHttpResponseCallback.BatchPutCallBack callBack;
 
+	/***
+	 * 每次提交等待的时间间隔，单位ms
+	 */
+	private int batchPutTimeLimit;
+
 	/**
-	 * 每批次数据点个数
+	 * 自适应的每批次数据点个数
 	 */
-	private int batchSize;
+	private final AdaptiveBatchSizer batchSizer;
 
 	/***
-	 * 每次提交等待的时间间隔，单位ms
+	 * 在途请求许可
 	 */
-	private int batchPutTimeLimit;
+	private final Semaphore inFlightPermits;
+
+	private final BatchPutEncoder encoder;
+
+	private final PutStatistics stats;
+
+	/***
+	 * 溢出存储，非SPILL策略时为null
+	 */
+	private final PointSpillStore spillStore;
 
 	public ConsumerRunnable(BlockingQueue<Point> queue, HttpClient httpClient, OpenTSDBConfig config,
-			CountDownLatch countDownLatch) {
+			CountDownLatch countDownLatch, AdaptiveBatchSizer batchSizer, Semaphore inFlightPermits, BatchPutEncoder encoder,
+			PutStatistics stats, PointSpillStore spillStore) {
 		this.queue = queue;
 		this.httpClient = httpClient;
 		this.config = config;
 		this.countDownLatch = countDownLatch;
-		this.batchSize = config.getBatchPutSize();
 		this.batchPutTimeLimit = config.getBatchPutTimeLimit();
 		this.callBack = config.getBatchPutCallBack();
+		this.batchSizer = batchSizer;
+		this.inFlightPermits = inFlightPermits;
+		this.encoder = encoder;
+		this.stats = stats;
+		this.spillStore = spillStore;
 	}
 
 	/***
-	 * 设计原则是接收满${batchSize}个元素就提交，或者达到时间${batchPutTimeLimit}
-	 * 当线程被打断说明cosumer执行了stop
+	 * 设计原则是接收满${batchSize}个元素就提交，或者从收到第一个元素起达到时间${batchPutTimeLimit}
+	 * 当线程被打断说明cosumer执行了stop，提交已接收的元素后退出
 	 */
 	@Override
 	public void run() {
 		log.debug("thread:{} has started take point from queue", Thread.currentThread().getName());
-		Point waitPoint = null;
 		boolean readyClose = false;
-		int waitTimeLimit = batchPutTimeLimit / 3;
 
 		while (!readyClose) {
-			long t0 = System.currentTimeMillis();
+			int batchSize = batchSizer.get();
 			List<Point> pointList = new ArrayList<>(batchSize);
-			if (waitPoint != null) {
-				pointList.add(waitPoint);
-				waitPoint = null;
-			}
+			try {
+				replaySpilled(batchSize);
+
+				Point first = queue.poll(batchPutTimeLimit, TimeUnit.MILLISECONDS);
+				if (first == null) {
+					continue;
+				}
+				pointList.add(first);
 
-			for (int i = pointList.size(); i < batchSize; i++) {
-				try {
-					Point point = queue.poll(waitTimeLimit, TimeUnit.MILLISECONDS);
-					if (point != null) {
-						pointList.add(point);
+				long deadline = System.currentTimeMillis() + batchPutTimeLimit;
+				while (pointList.size() < batchSize) {
+					// 批量取出，减少逐个poll的锁竞争
+					if (queue.drainTo(pointList, batchSize - pointList.size()) > 0) {
+						continue;
 					}
-					long t1 = System.currentTimeMillis();
-					if (t1 - t0 > batchPutTimeLimit) {
+					long remaining = deadline - System.currentTimeMillis();
+					if (remaining <= 0) {
 						break;
 					}
-				} catch (InterruptedException e) {
-					readyClose = true;
-					log.info("The thread {} is interrupted", Thread.currentThread().getName());
-					break;
+					Point point = queue.poll(remaining, TimeUnit.MILLISECONDS);
+					if (point == null) {
+						break;
+					}
+					pointList.add(point);
 				}
+			} catch (InterruptedException e) {
+				readyClose = true;
+				// 保留打断状态，提交最后一批数据时不再等待许可
+				Thread.currentThread().interrupt();
+				log.info("The thread {} is interrupted", Thread.currentThread().getName());
 			}
 
-			if (pointList.size() == 0 && !readyClose) {
-				try {
-					waitPoint = queue.take();
-				} catch (InterruptedException e) {
-					readyClose = true;
-					log.info("The thread {} is interrupted", Thread.currentThread().getName());
-				}
-				continue;
+			if (!pointList.isEmpty()) {
+				sendHttp(pointList);
 			}
-
-			if (pointList.size() == 0) {
-				continue;
+			// 等待许可时被打断，提交已接收的元素后退出
+			if (Thread.currentThread().isInterrupted()) {
+				readyClose = true;
 			}
-
-			sendHttp(pointList);
-
 		}
 
 		this.countDownLatch.countDown();
 	}
 
 	/***
-	 * 发送请求写入数据
+	 * 队列有空余时，将溢出到磁盘的数据点重新放回队列
+	 * 
+	 * @param batchSize
+	 */
+	private void replaySpilled(int batchSize) {
+		if (spillStore != null && !spillStore.isEmpty() && queue.remainingCapacity() >= batchSize) {
+			int replayed = spillStore.replay(queue, batchSize);
+			if (replayed > 0) {
+				stats.addReplayed(replayed);
+			}
+		}
+	}
+
+	/***
+	 * 发送请求写入数据，在途请求数达到上限时等待
 	 * 
 	 * @param points
 	 *            数据点
 	 */
 	private void sendHttp(List<Point> points) {
+		boolean permitted = acquirePermit();
+		boolean sending = false;
 		try {
+			HttpEntity entity = encoder.encode(points);
+			stats.onSend(entity.getContentLength());
+			sending = true;
+
+			FutureCallback<HttpResponse> delegate;
+			String path;
 			if (callBack == null) {
-				httpClient.post(Api.PUT.getPath(), Json.writeValueAsString(points), new BatchPutHttpResponseCallback());
+				path = Api.PUT.getPath();
+				delegate = new BatchPutHttpResponseCallback();
 			} else {
-				httpClient.post(Api.PUT_DETAIL.getPath(), Json.writeValueAsString(points),
-						new BatchPutHttpResponseCallback(callBack, points));
+				path = Api.PUT_DETAIL.getPath();
+				delegate = new BatchPutHttpResponseCallback(callBack, points);
 			}
+			httpClient.post(path, entity, new FeedbackCallback(delegate, points.size(), permitted));
 		} catch (Exception e) {
-			e.printStackTrace();
+			log.error("Failed to batch put points: " + points.size(), e);
+			if (sending) {
+				stats.onComplete(points.size(), false);
+			}
+			if (permitted) {
+				inFlightPermits.release();
+			}
 		}
 	}
 
-}
\ No newline at end of file
+	/***
+	 * 获取在途请求许可
+	 * 
+	 * @return 被打断(正在关闭)时返回false，此时不受在途请求数限制，并保留打断状态以便退出
+	 */
+	private boolean acquirePermit() {
+		try {
+			inFlightPermits.acquire();
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			log.info("The thread {} is interrupted, send without permit", Thread.currentThread().getName());
+			return false;
+		}
+	}
+
+	/***
+	 * 请求完成后释放许可，并将延迟及结果反馈给批次大小控制
+	 */
+	private class FeedbackCallback implements FutureCallback<HttpResponse> {
+
+		private final FutureCallback<HttpResponse> delegate;
+
+		private final int points;
+
+		private final boolean permitted;
+
+		private final long begin = System.currentTimeMillis();
+
+		FeedbackCallback(FutureCallback<HttpResponse> delegate, int points, boolean permitted) {
+			this.delegate = delegate;
+			this.points = points;
+			this.permitted = permitted;
+		}
+
+		@Override
+		public void completed(HttpResponse response) {
+			int status = response.getStatusLine().getStatusCode();
+			// 5xx及429说明服务端过载，缩小批次
+			feedback(status / 100 == 2, status < 500 && status != 429);
+			delegate.completed(response);
+		}
+
+		@Override
+		public void failed(Exception ex) {
+			feedback(false, false);
+			delegate.failed(ex);
+		}
+
+		@Override
+		public void cancelled() {
+			feedback(false, false);
+			delegate.cancelled();
+		}
+
+		private void feedback(boolean success, boolean healthy) {
+			if (permitted) {
+				inFlightPermits.release();
+			}
+			stats.onComplete(points, success);
+			batchSizer.feedback(points, System.currentTimeMillis() - begin, healthy);
+			stats.setBatchSize(batchSizer.get());
+		}
+
+	}
+
+}
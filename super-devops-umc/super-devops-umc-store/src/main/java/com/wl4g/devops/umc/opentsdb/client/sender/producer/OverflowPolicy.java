@@ -0,0 +1,61 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.opentsdb.client.sender.producer;
+
+/**
+ * Policy of the producer when the put buffer queue is full.
+ *
+ * @author Wangl.sir
+ * @version v1.0 2019年9月6日
+ * @since
+ */
+public enum OverflowPolicy {
+
+	/**
+	 * Block the caller until the queue has room(default, the original
+	 * behavior).
+	 */
+	BLOCK,
+
+	/**
+	 * Discard the oldest point of the queue to make room, the caller never
+	 * blocks.
+	 */
+	DROP_OLDEST,
+
+	/**
+	 * Spill the point to local disk, spilled points are replayed when the
+	 * queue drains, points are dropped only when the spill capacity is
+	 * exhausted.
+	 */
+	SPILL;
+
+	/**
+	 * Safe converter.
+	 *
+	 * @param policy
+	 * @return
+	 */
+	public static OverflowPolicy safeOf(String policy) {
+		for (OverflowPolicy p : values()) {
+			if (p.name().equalsIgnoreCase(policy)) {
+				return p;
+			}
+		}
+		return BLOCK;
+	}
+
+}
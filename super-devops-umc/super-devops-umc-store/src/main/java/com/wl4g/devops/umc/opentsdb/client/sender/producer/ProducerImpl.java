@@ -22,6 +22,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.wl4g.devops.umc.opentsdb.client.bean.request.Point;
+import com.wl4g.devops.umc.opentsdb.client.sender.PutStatistics;
+import com.wl4g.devops.umc.opentsdb.client.sender.spill.PointSpillStore;
 
 /**
  * @Author: jinyao
@@ -36,10 +38,26 @@ public class ProducerImpl implements Producer {
 
 	private final BlockingQueue<Point> queue;
 
+	private final OverflowPolicy overflowPolicy;
+
+	private final PutStatistics stats;
+
+	/***
+	 * SPILL策略时的溢出存储，其他策略为null
+	 */
+	private final PointSpillStore spillStore;
+
 	private final AtomicBoolean forbiddenWrite = new AtomicBoolean(false);
 
-	public ProducerImpl(BlockingQueue<Point> queue) {
+	public ProducerImpl(BlockingQueue<Point> queue, OverflowPolicy overflowPolicy, PutStatistics stats,
+			PointSpillStore spillStore) {
+		if (overflowPolicy == OverflowPolicy.SPILL && spillStore == null) {
+			throw new IllegalArgumentException("The spill store can't be null with SPILL policy");
+		}
 		this.queue = queue;
+		this.overflowPolicy = overflowPolicy;
+		this.stats = stats;
+		this.spillStore = spillStore;
 		log.debug("the producer has started");
 	}
 
@@ -48,13 +66,37 @@ public class ProducerImpl implements Producer {
 		if (forbiddenWrite.get()) {
 			throw new IllegalStateException("client has been closed.");
 		}
-		try {
-			// 队列满时，put方法会被阻塞
-			queue.put(point);
-		} catch (InterruptedException e) {
-			log.error("Client Thread been Interrupted.", e);
-			e.printStackTrace();
+		switch (overflowPolicy) {
+		case DROP_OLDEST:
+			// 队列满时丢弃最旧的数据点
+			while (!queue.offer(point)) {
+				if (queue.poll() != null) {
+					stats.incrementDropped();
+				}
+			}
+			break;
+		case SPILL:
+			// 队列满时溢出到本地磁盘，磁盘容量耗尽时丢弃
+			if (!queue.offer(point)) {
+				if (spillStore.append(point)) {
+					stats.incrementSpilled();
+				} else {
+					stats.incrementDropped();
+				}
+				return;
+			}
+			break;
+		default:
+			try {
+				// 队列满时，put方法会被阻塞
+				queue.put(point);
+			} catch (InterruptedException e) {
+				log.error("Client Thread been Interrupted.", e);
+				Thread.currentThread().interrupt();
+				return;
+			}
 		}
+		stats.incrementEnqueued();
 	}
 
 	@Override
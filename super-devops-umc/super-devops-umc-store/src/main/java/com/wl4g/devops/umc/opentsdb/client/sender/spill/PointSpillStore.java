@@ -0,0 +1,300 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.opentsdb.client.sender.spill;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import com.wl4g.devops.umc.opentsdb.client.bean.request.Point;
+import com.wl4g.devops.umc.opentsdb.client.common.Json;
+
+/**
+ * Local disk spill store of the points that overflowed the put queue.</br>
+ * Points are appended as JSON lines to rolling segment files, and replayed
+ * from the oldest segment, a segment is deleted once fully replayed. The
+ * total size of segments is bounded, the points exceeding it are rejected.
+ * Segments left by the previous process are replayed after restarting. Spill
+ * is the slow path of overload, so the store is simply synchronized.
+ *
+ * @author Wangl.sir
+ * @version v1.0 2019年9月6日
+ * @since
+ */
+public class PointSpillStore implements Closeable {
+
+	final private static String SEGMENT_PREFIX = "spill-";
+	final private static String SEGMENT_SUFFIX = ".json";
+
+	final protected Logger log = LoggerFactory.getLogger(getClass());
+
+	/** Spill directory. */
+	final private File directory;
+
+	/** Maximum total bytes of segments. */
+	final private long maxBytes;
+
+	/** Maximum bytes of one segment. */
+	final private long segmentBytes;
+
+	/** Sealed segments, by sequence. */
+	final private TreeMap<Long, File> sealed = new TreeMap<>();
+
+	/** Total bytes of segments. */
+	private long totalBytes;
+
+	/** Number of points not yet replayed(approximately, after restarting). */
+	private volatile long pending;
+
+	/**
+	 * All segments have been replayed and deleted, the pending count isn't
+	 * used, since it reaches 0 before the last segment is deleted.
+	 */
+	private volatile boolean drained = true;
+
+	/** Active segment writing. */
+	private File active;
+	private OutputStream writer;
+	private long activeBytes;
+	private long nextSequence;
+
+	/** Segment replaying. */
+	private File replaying;
+	private BufferedReader reader;
+
+	/** Point read but not accepted by the queue. */
+	private Point unaccepted;
+
+	public PointSpillStore(File directory, long maxBytes, long segmentBytes) {
+		Assert.notNull(directory, "Spill directory must not be null");
+		Assert.isTrue(maxBytes > 0 && segmentBytes > 0, "Spill capacity must be greater than 0");
+		this.directory = directory;
+		this.maxBytes = maxBytes;
+		this.segmentBytes = Math.min(segmentBytes, maxBytes);
+		if (!directory.exists() && !directory.mkdirs()) {
+			throw new IllegalStateException("Can not create spill directory: " + directory);
+		}
+		recover();
+	}
+
+	/**
+	 * Append point to the active segment.
+	 *
+	 * @param point
+	 * @return false if the spill capacity is exhausted or failed to write.
+	 */
+	public synchronized boolean append(Point point) {
+		try {
+			byte[] line = (Json.writeValueAsString(point) + "\n").getBytes(UTF_8);
+			if (totalBytes + line.length > maxBytes) {
+				return false;
+			}
+			if (writer == null || activeBytes + line.length > segmentBytes) {
+				roll();
+			}
+			writer.write(line);
+			activeBytes += line.length;
+			totalBytes += line.length;
+			if (pending < Long.MAX_VALUE) {
+				++pending;
+			}
+			drained = false;
+			return true;
+		} catch (IOException e) {
+			log.error("Failed to spill point", e);
+			return false;
+		}
+	}
+
+	/**
+	 * Replay the spilled points to the queue, until the queue is full.
+	 *
+	 * @param queue
+	 * @param max
+	 *            maximum points to replay
+	 * @return number of replayed points
+	 */
+	public synchronized int replay(Queue<Point> queue, int max) {
+		int count = 0;
+		try {
+			while (count < max) {
+				Point point = unaccepted != null ? unaccepted : readNext();
+				if (point == null) {
+					break;
+				}
+				if (!queue.offer(point)) {
+					unaccepted = point;
+					break;
+				}
+				unaccepted = null;
+				++count;
+				pending = Math.max(0, pending - 1);
+			}
+		} catch (IOException e) {
+			log.error("Failed to replay spilled points", e);
+		}
+		return count;
+	}
+
+	/**
+	 * Has spilled points(or segments) not yet replayed.
+	 *
+	 * @return
+	 */
+	public boolean isEmpty() {
+		return drained;
+	}
+
+	public long getPending() {
+		return pending;
+	}
+
+	public synchronized long getTotalBytes() {
+		return totalBytes;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		closeWriter();
+		closeReader();
+	}
+
+	/**
+	 * Read next point, from the oldest segment.
+	 *
+	 * @return null if there is no spilled point.
+	 * @throws IOException
+	 */
+	private Point readNext() throws IOException {
+		for (;;) {
+			if (reader == null) {
+				if (sealed.isEmpty()) {
+					if (activeBytes == 0) {
+						pending = 0;
+						drained = true;
+						return null;
+					}
+					// Seal the active segment to replay it.
+					roll();
+				}
+				replaying = sealed.pollFirstEntry().getValue();
+				reader = new BufferedReader(new InputStreamReader(new FileInputStream(replaying), UTF_8));
+			}
+			String line = reader.readLine();
+			if (line == null) {
+				totalBytes = Math.max(0, totalBytes - replaying.length());
+				closeReader();
+				if (!replaying.delete()) {
+					log.warn("Failed to delete replayed spill segment: {}", replaying);
+				}
+				replaying = null;
+				continue;
+			}
+			if (line.isEmpty()) {
+				continue;
+			}
+			try {
+				return Json.readValue(line, Point.class);
+			} catch (IOException e) {
+				log.warn("Skip invalid spilled point: {}", line);
+			}
+		}
+	}
+
+	/**
+	 * Seal the active segment and open a new one.
+	 *
+	 * @throws IOException
+	 */
+	private void roll() throws IOException {
+		closeWriter();
+		if (active != null && activeBytes > 0) {
+			sealed.put(nextSequence - 1, active);
+		} else if (active != null) {
+			active.delete();
+		}
+		active = new File(directory, String.format("%s%019d%s", SEGMENT_PREFIX, nextSequence++, SEGMENT_SUFFIX));
+		writer = new BufferedOutputStream(new FileOutputStream(active), 64 * 1024);
+		activeBytes = 0;
+	}
+
+	private void closeWriter() throws IOException {
+		if (writer != null) {
+			writer.close();
+			writer = null;
+		}
+	}
+
+	private void closeReader() throws IOException {
+		if (reader != null) {
+			reader.close();
+			reader = null;
+		}
+	}
+
+	/**
+	 * Recover the segments left by the previous process.
+	 */
+	private void recover() {
+		File[] files = directory.listFiles((dir, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+		if (files == null) {
+			return;
+		}
+		Arrays.sort(files);
+		for (File f : files) {
+			String name = f.getName();
+			try {
+				long seq = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+				if (f.length() == 0) {
+					f.delete();
+					continue;
+				}
+				sealed.put(seq, f);
+				totalBytes += f.length();
+				nextSequence = Math.max(nextSequence, seq + 1);
+			} catch (NumberFormatException e) {
+				log.warn("Skip invalid spill segment: {}", f);
+			}
+		}
+		// Unknown number of points, replay until exhausted.
+		pending = sealed.isEmpty() ? 0 : Long.MAX_VALUE;
+		drained = sealed.isEmpty();
+		if (!sealed.isEmpty()) {
+			log.info("Recovered spill segments: {}, bytes: {}", sealed.size(), totalBytes);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "PointSpillStore [directory=" + directory + ", pending=" + pending + ", totalBytes=" + totalBytes + "]";
+	}
+
+}
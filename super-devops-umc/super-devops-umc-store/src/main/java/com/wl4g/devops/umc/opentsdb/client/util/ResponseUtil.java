@@ -16,6 +16,7 @@
 package com.wl4g.devops.umc.opentsdb.client.util;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.Charset;
 
 import org.apache.http.HttpEntity;
@@ -53,6 +54,22 @@ public class ResponseUtil {
 		}
 	}
 
+	/***
+	 * 获取响应内容的输入流，用于流式解析
+	 * 
+	 * @param response
+	 *            响应内容
+	 * @return 输入流，没有响应内容时为null
+	 * @throws IOException
+	 */
+	public static InputStream getContentStream(HttpResponse response) throws IOException {
+		if (checkGT400(response)) {
+			throw new OpenTSDBHttpException(convert(response));
+		}
+		HttpEntity entity = response.getEntity();
+		return entity != null ? entity.getContent() : null;
+	}
+
 	private static String getContentString(HttpResponse response) throws IOException {
 		HttpEntity entity = response.getEntity();
 		if (entity != null) {
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.embedded;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * {@link ColumnCodec} tests, delta-of-delta timestamps and XOR compressed
+ * values.
+ *
+ * @author wangl.sir
+ * @version v1.0 2019年9月18日
+ * @since
+ */
+public class ColumnCodecTests {
+
+	final private Random random = new Random(20190918L);
+
+	@Test
+	public void testTimesRoundTrip() {
+		long[] times = new long[2000];
+		long t = 1568000000000L;
+		for (int i = 0; i < times.length; i++) {
+			switch (i % 5) {
+			case 0: // Regular
+				t += 10_000L;
+				break;
+			case 1: // Jitter
+				t += 10_000L + random.nextInt(200) - 100;
+				break;
+			case 2: // Duplicated
+				break;
+			case 3: // Out of order
+				t -= random.nextInt(5_000);
+				break;
+			default: // Large gap
+				t += (long) random.nextInt(Integer.MAX_VALUE) * 1000L;
+			}
+			times[i] = t;
+		}
+		assertTimes(times, 0, times.length);
+		assertTimes(times, 17, 1);
+		assertTimes(times, 100, 999);
+		assertTimes(new long[] { Long.MIN_VALUE, Long.MAX_VALUE, 0, -1 }, 0, 4);
+	}
+
+	@Test
+	public void testValuesRoundTrip() {
+		double[] values = new double[2000];
+		for (int i = 0; i < values.length; i++) {
+			switch (i % 4) {
+			case 0: // Repeated
+				values[i] = i > 0 ? values[i - 1] : 1d;
+				break;
+			case 1:
+				values[i] = random.nextDouble() * 100;
+				break;
+			case 2:
+				values[i] = random.nextInt(1000);
+				break;
+			default:
+				values[i] = random.nextGaussian() * 1e10;
+			}
+		}
+		assertValues(values, 0, values.length);
+		assertValues(values, 33, 1);
+		assertValues(new double[] { Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, -0d, 0d,
+				Double.MIN_VALUE, Double.MAX_VALUE, Double.NaN }, 0, 8);
+	}
+
+	@Test
+	public void testCompression() {
+		int count = 1000;
+		long[] times = new long[count];
+		double[] values = new double[count];
+		for (int i = 0; i < count; i++) {
+			times[i] = 1568000000000L + i * 10_000L;
+			values[i] = 42.5d;
+		}
+		// A regular interval costs 1 bit per timestamp after the first two.
+		byte[] encodedTimes = ColumnCodec.encodeTimes(times, 0, count);
+		assertTrue("Encoded times: " + encodedTimes.length, encodedTimes.length <= 8 + 8 + count / 8 + 8);
+		// A repeated value costs 1 bit per value after the first.
+		byte[] encodedValues = ColumnCodec.encodeValues(values, 0, count);
+		assertTrue("Encoded values: " + encodedValues.length, encodedValues.length <= 8 + count / 8 + 8);
+	}
+
+	private static void assertTimes(long[] times, int offset, int count) {
+		byte[] encoded = ColumnCodec.encodeTimes(times, offset, count);
+		long[] decoded = new long[count];
+		ColumnCodec.decodeTimes(encoded, 0, encoded.length, count, decoded);
+		for (int i = 0; i < count; i++) {
+			assertEquals("Time at " + i, times[offset + i], decoded[i]);
+		}
+	}
+
+	private static void assertValues(double[] values, int offset, int count) {
+		byte[] encoded = ColumnCodec.encodeValues(values, offset, count);
+		double[] decoded = new double[count];
+		ColumnCodec.decodeValues(encoded, 0, encoded.length, count, decoded);
+		for (int i = 0; i < count; i++) {
+			assertEquals("Value at " + i, Double.doubleToRawLongBits(values[offset + i]), Double.doubleToRawLongBits(decoded[i]));
+		}
+	}
+
+}
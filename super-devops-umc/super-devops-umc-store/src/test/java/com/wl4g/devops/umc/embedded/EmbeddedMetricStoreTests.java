@@ -0,0 +1,254 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.embedded;
+
+import static java.util.Collections.singletonMap;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.wl4g.devops.common.bean.umc.model.proto.MetricModel.Metric;
+import com.wl4g.devops.common.bean.umc.model.proto.MetricModel.MetricAggregate;
+import com.wl4g.devops.umc.config.StoreProperties.EmbeddedStoreProperties;
+
+/**
+ * {@link EmbeddedMetricStore} tests, writing, range and downsample queries,
+ * reopening, compaction and retention.
+ *
+ * @author wangl.sir
+ * @version v1.0 2019年9月18日
+ * @since
+ */
+public class EmbeddedMetricStoreTests {
+
+	final private static long PARTITION_MS = 10 * 60 * 1000L;
+
+	final private static long INTERVAL_MS = 1000L;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private EmbeddedStoreProperties config;
+
+	private EmbeddedMetricStore store;
+
+	/** Start time of a past partition, within the retention. */
+	private long base;
+
+	@Before
+	public void setUp() throws IOException {
+		config = new EmbeddedStoreProperties();
+		config.setDirectory(folder.newFolder("embedded").getAbsolutePath());
+		config.setPartitionMs(PARTITION_MS);
+		config.setFlushIntervalMs(60_000L); // Flushed by tests
+		config.setCompactDelayMs(0L);
+		config.setRetentionMs(24 * 60 * 60 * 1000L);
+		long now = System.currentTimeMillis();
+		base = now - Math.floorMod(now, PARTITION_MS) - 3 * PARTITION_MS;
+		store = new EmbeddedMetricStore(config);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		if (store != null) {
+			store.close();
+		}
+	}
+
+	@Test
+	public void testSaveAndQuery() throws IOException {
+		int points = save(store, base, 300);
+		assertEquals(points, store.getWrittenPoints());
+		assertEquals(4, store.getSeriesCount()); // 2 instances x 2 cores
+
+		// Head buffers(not flushed yet).
+		assertSeries(store, base, 300);
+		store.flush();
+		assertTrue(store.getFlushedBytes() > 0);
+		assertSeries(store, base, 300);
+
+		// Range
+		List<SeriesPoints> range = store.query("basic.cpu", tags("host1", "0"), base + 100 * INTERVAL_MS,
+				base + 199 * INTERVAL_MS);
+		assertEquals(1, range.size());
+		assertEquals(100, range.get(0).size());
+		assertEquals(base + 100 * INTERVAL_MS, range.get(0).getTime(0));
+		assertEquals(valueOf("host1", 0, base + 100 * INTERVAL_MS), range.get(0).getValue(0), 0d);
+
+		// Wildcard and unknown tags.
+		assertEquals(4, store.query("basic.cpu", singletonMap("core", "*"), base, base + PARTITION_MS).size());
+		assertEquals(0, store.query("basic.cpu", singletonMap("instance", "host3"), base, base + PARTITION_MS).size());
+		assertEquals(0, store.query("basic.mem", null, base, base + PARTITION_MS).size());
+	}
+
+	@Test
+	public void testQueryAcrossPartitions() throws IOException {
+		// Starts in the middle of a partition, and ends in the next one.
+		long start = base + PARTITION_MS - 100 * INTERVAL_MS;
+		save(store, start, 300);
+		store.flush();
+		assertEquals(2, store.getPartitionCount());
+		assertSeries(store, start, 300);
+	}
+
+	@Test
+	public void testReopen() throws IOException {
+		save(store, base, 300);
+		store.flush();
+		// Not flushed, but flushed by closing.
+		save(store, base + 300 * INTERVAL_MS, 100);
+		store.close();
+
+		store = new EmbeddedMetricStore(config);
+		assertEquals(4, store.getSeriesCount());
+		assertSeries(store, base, 400);
+
+		// The dictionary and series are appended after reopening.
+		save(store, base + 400 * INTERVAL_MS, 100);
+		assertEquals(4, store.getSeriesCount());
+		assertSeries(store, base, 500);
+	}
+
+	@Test
+	public void testDownsample() throws IOException {
+		save(store, base, 60);
+		List<SeriesPoints> avg = store.downsample("basic.cpu", tags("host1", "0"), base, base + PARTITION_MS, 10 * INTERVAL_MS,
+				Downsampler.AVG);
+		assertEquals(1, avg.size());
+		assertEquals(6, avg.get(0).size());
+		for (int b = 0; b < 6; b++) {
+			double sum = 0;
+			for (int i = b * 10; i < b * 10 + 10; i++) {
+				sum += valueOf("host1", 0, base + i * INTERVAL_MS);
+			}
+			assertEquals(base + b * 10 * INTERVAL_MS, avg.get(0).getTime(b));
+			assertEquals(sum / 10, avg.get(0).getValue(b), 1e-9);
+		}
+
+		List<SeriesPoints> count = store.downsample("basic.cpu", tags("host1", "0"), base, base + PARTITION_MS,
+				60 * INTERVAL_MS, Downsampler.COUNT);
+		assertEquals(1, count.get(0).size());
+		assertEquals(60d, count.get(0).getValue(0), 0d);
+
+		List<SeriesPoints> max = store.downsample("basic.cpu", tags("host1", "0"), base, base + PARTITION_MS,
+				60 * INTERVAL_MS, Downsampler.MAX);
+		assertEquals(valueOf("host1", 0, base + 59 * INTERVAL_MS), max.get(0).getValue(0), 0d);
+	}
+
+	@Test
+	public void testCompaction() throws Exception {
+		store.close();
+		config.setFlushIntervalMs(50L);
+		store = new EmbeddedMetricStore(config);
+
+		// Multiple segments of the past partition.
+		for (int i = 0; i < 5; i++) {
+			save(store, base + i * 100 * INTERVAL_MS, 100);
+			store.flush();
+		}
+		long deadline = System.currentTimeMillis() + 10_000L;
+		while (store.getCompactedBytes() == 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(50L);
+		}
+		assertTrue("Not compacted: " + store, store.getCompactedBytes() > 0);
+		assertSeries(store, base, 500);
+
+		// Compacted segments are read after reopening.
+		store.close();
+		store = new EmbeddedMetricStore(config);
+		assertSeries(store, base, 500);
+	}
+
+	@Test
+	public void testRetention() throws IOException {
+		long expired = System.currentTimeMillis() - config.getRetentionMs() - PARTITION_MS;
+		assertFalse(store.save(aggregate("host1", expired)));
+		assertEquals(2, store.getRejectedPoints());
+		assertEquals(0, store.getWrittenPoints());
+		assertEquals(0, store.getPartitionCount());
+	}
+
+	/**
+	 * Save aggregates of 2 instances every second, each of 2 cores.
+	 */
+	private static int save(EmbeddedMetricStore store, long start, int count) {
+		int points = 0;
+		for (int i = 0; i < count; i++) {
+			long timestamp = start + i * INTERVAL_MS;
+			for (String instance : new String[] { "host1", "host2" }) {
+				assertTrue(store.save(aggregate(instance, timestamp)));
+				points += 2;
+			}
+		}
+		return points;
+	}
+
+	private static MetricAggregate aggregate(String instance, long timestamp) {
+		MetricAggregate.Builder builder = MetricAggregate.newBuilder().setClassify("basic").setInstance(instance)
+				.setTimestamp(timestamp);
+		for (int core = 0; core < 2; core++) {
+			builder.addMetrics(
+					Metric.newBuilder().setMetric("basic.cpu").putTags("core", String.valueOf(core)).setValue(valueOf(instance,
+							core, timestamp)));
+		}
+		return builder.build();
+	}
+
+	private void assertSeries(EmbeddedMetricStore store, long start, int count) throws IOException {
+		for (String instance : new String[] { "host1", "host2" }) {
+			for (int core = 0; core < 2; core++) {
+				List<SeriesPoints> series = store.query("basic.cpu", tags(instance, String.valueOf(core)), start,
+						start + (count - 1) * INTERVAL_MS);
+				assertEquals(1, series.size());
+				SeriesPoints points = series.get(0);
+				assertEquals("basic.cpu", points.getMetric());
+				assertEquals(instance, points.getTags().get("instance"));
+				assertEquals(count, points.size());
+				for (int i = 0; i < count; i++) {
+					long timestamp = start + i * INTERVAL_MS;
+					assertEquals(timestamp, points.getTime(i));
+					assertEquals(valueOf(instance, core, timestamp), points.getValue(i), 0d);
+				}
+			}
+		}
+	}
+
+	private static Map<String, String> tags(String instance, String core) {
+		Map<String, String> tags = new HashMap<>();
+		tags.put("instance", instance);
+		tags.put("core", core);
+		return tags;
+	}
+
+	/**
+	 * Value of series at time, it is unique among the series.
+	 */
+	private static double valueOf(String instance, int core, long timestamp) {
+		return (timestamp / INTERVAL_MS) % 100_000 + core * 0.25d + (instance.equals("host1") ? 0 : 0.5d);
+	}
+
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.opentsdb.client;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.wl4g.devops.umc.opentsdb.client.bean.request.Point;
+import com.wl4g.devops.umc.opentsdb.client.common.Json;
+import com.wl4g.devops.umc.opentsdb.client.sender.PutStatistics;
+import com.wl4g.devops.umc.opentsdb.client.sender.producer.OverflowPolicy;
+
+/**
+ * {@link OpenTSDBClient} batch put tests against a stub OpenTSDB endpoint.
+ * While the endpoint hangs, the memory is bounded by the put buffer queue and
+ * the in-flight requests, the overflow is spilled to disk up to its capacity
+ * and dropped beyond, and all accepted points are delivered exactly once after
+ * the endpoint recovers.
+ *
+ * @author wangl.sir
+ * @version v1.0 2019年9月18日
+ * @since
+ */
+public class OpenTSDBClientPutTests {
+
+	final private static long TIMEOUT_MS = 60_000L;
+
+	final private static int POINTS = 5000;
+
+	final private static int BUFFER_SIZE = 500;
+
+	final private static int BATCH_SIZE = 100;
+
+	final private static int MAX_IN_FLIGHT = 2;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	final private ObjectMapper mapper = new ObjectMapper();
+
+	/** Released when the endpoint recovers. */
+	final private CountDownLatch recovered = new CountDownLatch(1);
+
+	final private AtomicInteger inflight = new AtomicInteger(0);
+
+	final private AtomicInteger maxInflight = new AtomicInteger(0);
+
+	/** Received point timestamps. */
+	final private Set<Long> received = ConcurrentHashMap.newKeySet();
+
+	final private AtomicInteger duplicated = new AtomicInteger(0);
+
+	final private AtomicInteger gzipped = new AtomicInteger(0);
+
+	private ExecutorService serverExecutor;
+
+	private HttpServer server;
+
+	private OpenTSDBClient client;
+
+	@Before
+	public void startServer() throws IOException {
+		serverExecutor = Executors.newCachedThreadPool();
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.setExecutor(serverExecutor);
+		server.createContext("/api/put", this::put);
+		server.start();
+	}
+
+	@After
+	public void stopServer() throws Exception {
+		recovered.countDown();
+		if (client != null) {
+			client.forceClose();
+		}
+		server.stop(0);
+		serverExecutor.shutdownNow();
+	}
+
+	@Test
+	public void testSpillAndDeliverAfterRecovered() throws Exception {
+		File spillDir = folder.newFolder();
+		long lineBytes = Json.writeValueAsString(point(POINTS)).getBytes(UTF_8).length + 1;
+		long spillMaxBytes = lineBytes * 300;
+		client = new OpenTSDBClient(OpenTSDBConfig.address("http://127.0.0.1", server.getAddress().getPort())
+				.putConsumerThreadCount(2).batchPutSize(BATCH_SIZE).batchPutBufferSize(BUFFER_SIZE).batchPutTimeLimit(50)
+				.maxInFlightRequests(MAX_IN_FLIGHT).overflowPolicy(OverflowPolicy.SPILL)
+				.spill(spillDir.getAbsolutePath(), spillMaxBytes, lineBytes * 50).config());
+
+		// The endpoint hangs, the producer never blocks.
+		for (int i = 1; i <= POINTS; i++) {
+			client.put(point(i));
+			assertTrue(sizeOf(spillDir) <= spillMaxBytes);
+		}
+		PutStatistics stats = client.getPutStatistics();
+		assertEquals(POINTS, stats.getEnqueued() + stats.getSpilled() + stats.getDropped());
+		assertTrue(stats.toString(), stats.getSpilled() > 0);
+		// Held in memory at most: the queue, and the batches of consumers.
+		assertTrue(stats.toString(), stats.getEnqueued() <= BUFFER_SIZE + 2 * 2 * BATCH_SIZE);
+		assertTrue(stats.toString(), stats.getDropped() > 0);
+
+		recovered.countDown();
+		long expected = POINTS - stats.getDropped();
+		long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+		while (received.size() < expected && System.currentTimeMillis() < deadline) {
+			Thread.sleep(50L);
+		}
+		assertEquals(stats.toString(), expected, received.size());
+		assertEquals(stats.getSpilled(), stats.getReplayed());
+		assertEquals(0, duplicated.get());
+		assertTrue(gzipped.get() > 0);
+		assertTrue("Max in-flight: " + maxInflight.get(), maxInflight.get() <= MAX_IN_FLIGHT);
+
+		client.gracefulClose();
+		client = null;
+		assertEquals(0L, sizeOf(spillDir));
+	}
+
+	private void put(HttpExchange ex) throws IOException {
+		int n = inflight.incrementAndGet();
+		maxInflight.accumulateAndGet(n, Math::max);
+		try {
+			recovered.await(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+			InputStream body = ex.getRequestBody();
+			if ("gzip".equalsIgnoreCase(ex.getRequestHeaders().getFirst("Content-Encoding"))) {
+				gzipped.incrementAndGet();
+				body = new GZIPInputStream(body);
+			}
+			for (JsonNode point : mapper.readTree(body)) {
+				if (!received.add(point.get("timestamp").asLong())) {
+					duplicated.incrementAndGet();
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			inflight.decrementAndGet();
+		}
+		ex.sendResponseHeaders(204, -1);
+		ex.close();
+	}
+
+	private static long sizeOf(File dir) {
+		long size = 0;
+		File[] files = dir.listFiles();
+		for (File f : files == null ? new File[0] : files) {
+			size += f.length();
+		}
+		return size;
+	}
+
+	private static Point point(long timestamp) {
+		return Point.metric("basic.cpu").tag("host", "host0").value(timestamp, 50).build();
+	}
+
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.opentsdb.client.query;
+
+import static java.util.Arrays.asList;
+import static java.util.Arrays.copyOf;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.wl4g.devops.umc.opentsdb.client.bean.response.QuerySeries;
+
+/**
+ * {@link QueryResponseParser} tests, the object and array forms of data
+ * points, the non numeric values and the skipped fields.
+ *
+ * @author wangl.sir
+ * @version v1.0 2019年9月20日
+ * @since
+ */
+public class QueryResponseParserTests {
+
+	@Test
+	public void testObjectPoints() throws Exception {
+		List<QuerySeries> results = parse("[{\"metric\":\"cpu.used\",\"tags\":{\"host\":\"web1\"},\"aggregateTags\":[\"core\"],"
+				+ "\"tsuids\":[\"0001\"],\"annotations\":[{\"description\":\"x\"}],\"dps\":{\"1568000000\":1.5,"
+				+ "\"1568000060\":2,\"1568000120\":null,\"1568000180\":\"NaN\",\"1568000240\":\"3.25\"}}]");
+		assertEquals(1, results.size());
+		QuerySeries s = results.get(0);
+		assertEquals("cpu.used", s.getMetric());
+		assertEquals("web1", s.getTags().get("host"));
+		assertEquals(asList("core"), s.getAggregateTags());
+		assertArrayEquals(new long[] { 1568000000L, 1568000060L, 1568000120L, 1568000180L, 1568000240L },
+				copyOf(s.getTimes(), s.size()));
+		assertEquals(1.5d, s.getValue(0), 0d);
+		assertEquals(2d, s.getValue(1), 0d);
+		assertTrue(Double.isNaN(s.getValue(2)));
+		assertTrue(Double.isNaN(s.getValue(3)));
+		assertEquals(3.25d, s.getValue(4), 0d);
+	}
+
+	@Test
+	public void testArrayPointsAndSummary() throws Exception {
+		List<QuerySeries> results = parse("[{\"metric\":\"mem.used\",\"tags\":{},\"dps\":[[1568000000000,10],"
+				+ "[1568000060000,NaN,{\"extra\":1}],[1568000120000,\"x\"]],\"stats\":{\"emittedDPs\":3}},"
+				+ "{\"statsSummary\":{\"processingPreWriteTime\":1.2}}]");
+		// The statistics summary isn't a series.
+		assertEquals(1, results.size());
+		QuerySeries s = results.get(0);
+		assertEquals(3, s.size());
+		assertEquals(1568000060000L, s.getTime(1));
+		assertEquals(10d, s.getValue(0), 0d);
+		assertTrue(Double.isNaN(s.getValue(1)));
+		assertTrue(Double.isNaN(s.getValue(2)));
+		assertTrue(s.getAggregateTags().isEmpty());
+	}
+
+	@Test
+	public void testGrowPoints() throws Exception {
+		StringBuilder json = new StringBuilder("[{\"metric\":\"net.in\",\"dps\":{");
+		for (int i = 0; i < 1000; i++) {
+			json.append(i > 0 ? "," : "").append('"').append(1568000000L + i).append("\":").append(i);
+		}
+		List<QuerySeries> results = parse(json.append("}}]").toString());
+		QuerySeries s = results.get(0);
+		assertEquals(1000, s.size());
+		assertEquals(1568000999L, s.getTime(999));
+		assertEquals(999d, s.getValue(999), 0d);
+	}
+
+	@Test
+	public void testEmpty() throws Exception {
+		assertTrue(QueryResponseParser.parse(null).isEmpty());
+		assertTrue(parse("").isEmpty());
+		assertTrue(parse("[]").isEmpty());
+	}
+
+	@Test(expected = JsonParseException.class)
+	public void testNotResultsArray() throws Exception {
+		parse("{\"error\":{\"code\":400}}");
+	}
+
+	private static List<QuerySeries> parse(String json) throws IOException {
+		InputStream in = new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+		return QueryResponseParser.parse(in);
+	}
+
+}
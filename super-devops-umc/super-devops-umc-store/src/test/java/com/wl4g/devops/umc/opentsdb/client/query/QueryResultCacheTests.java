@@ -0,0 +1,129 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.opentsdb.client.query;
+
+import static java.util.Collections.emptyList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+
+import com.wl4g.devops.umc.opentsdb.client.bean.response.QuerySeries;
+
+/**
+ * {@link QueryResultCache} tests, the sharing of pending queries, the
+ * expiration, the eviction of failed results and the LRU eviction.
+ *
+ * @author wangl.sir
+ * @version v1.0 2019年9月20日
+ * @since
+ */
+public class QueryResultCacheTests {
+
+	final private AtomicInteger loads = new AtomicInteger(0);
+
+	@Test
+	public void testPendingShared() throws Exception {
+		QueryResultCache cache = new QueryResultCache(10, 60_000L);
+		CompletableFuture<List<QuerySeries>> result = new CompletableFuture<>();
+		CompletableFuture<List<QuerySeries>> f1 = cache.get("q1", loader(result));
+		CompletableFuture<List<QuerySeries>> f2 = cache.get("q1", loader(result));
+		assertSame(f1, f2);
+		assertEquals(1, loads.get());
+
+		List<QuerySeries> series = emptyList();
+		result.complete(series);
+		assertSame(series, f1.get());
+		assertSame(f1, cache.get("q1", loader(result)));
+		assertEquals(1, loads.get());
+	}
+
+	@Test
+	public void testExpired() throws Exception {
+		QueryResultCache cache = new QueryResultCache(10, 50L);
+		CompletableFuture<List<QuerySeries>> f1 = cache.get("q1", loader(completed()));
+		Thread.sleep(100L);
+		CompletableFuture<List<QuerySeries>> f2 = cache.get("q1", loader(completed()));
+		assertNotSame(f1, f2);
+		assertEquals(2, loads.get());
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void testFailedEvicted() throws Exception {
+		QueryResultCache cache = new QueryResultCache(10, 60_000L);
+		CompletableFuture<List<QuerySeries>> failed = new CompletableFuture<>();
+		failed.completeExceptionally(new IllegalStateException("Bad gateway"));
+		assertTrue(cache.get("q1", loader(failed)).isCompletedExceptionally());
+		assertEquals(0, cache.size());
+
+		// The loader throws.
+		CompletableFuture<List<QuerySeries>> thrown = cache.get("q1", () -> {
+			throw new IllegalStateException("Connection refused");
+		});
+		assertTrue(thrown.isCompletedExceptionally());
+		assertEquals(0, cache.size());
+
+		cache.get("q1", loader(completed()));
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void testLruEvicted() throws Exception {
+		QueryResultCache cache = new QueryResultCache(2, 60_000L);
+		cache.get("q1", loader(completed()));
+		cache.get("q2", loader(completed()));
+		// Accessed recently, the q2 is evicted instead.
+		cache.get("q1", loader(completed()));
+		cache.get("q3", loader(completed()));
+		assertEquals(2, cache.size());
+		assertEquals(3, loads.get());
+
+		cache.get("q1", loader(completed()));
+		assertEquals(3, loads.get());
+		cache.get("q2", loader(completed()));
+		assertEquals(4, loads.get());
+	}
+
+	@Test
+	public void testDisabled() throws Exception {
+		QueryResultCache cache = new QueryResultCache(0, 60_000L);
+		CompletableFuture<List<QuerySeries>> result = completed();
+		assertSame(result, cache.get("q1", loader(result)));
+		cache.get("q1", loader(result));
+		assertEquals(2, loads.get());
+		assertEquals(0, cache.size());
+	}
+
+	private Supplier<CompletableFuture<List<QuerySeries>>> loader(CompletableFuture<List<QuerySeries>> result) {
+		return () -> {
+			loads.incrementAndGet();
+			return result;
+		};
+	}
+
+	private static CompletableFuture<List<QuerySeries>> completed() {
+		return CompletableFuture.completedFuture(emptyList());
+	}
+
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.opentsdb.client.query;
+
+import static java.util.Arrays.asList;
+import static java.util.Arrays.copyOf;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.wl4g.devops.umc.opentsdb.client.bean.response.QuerySeries;
+
+/**
+ * {@link QuerySplitter} tests, the alignment of chunk edges, the queries kept
+ * whole and the merging of chunk results.
+ *
+ * @author wangl.sir
+ * @version v1.0 2019年9月20日
+ * @since
+ */
+public class QuerySplitterTests {
+
+	final private static long MINUTE = 60_000L;
+
+	final private static long HOUR = 60 * MINUTE;
+
+	/** Not aligned to any interval. */
+	final private static long START = 1568000000000L + 12 * MINUTE + 34_567L;
+
+	final private ObjectMapper mapper = new ObjectMapper();
+
+	@Test
+	public void testChunksAligned() throws Exception {
+		long end = START + 3 * HOUR + 30 * MINUTE;
+		ObjectNode query = createQuery(START, end, "5m-avg");
+		String original = query.toString();
+
+		List<ObjectNode> chunks = QuerySplitter.split(query, end, HOUR, 10);
+		assertEquals(5, chunks.size());
+		assertEquals(START, startOf(chunks.get(0)));
+		assertEquals(end, endOf(chunks.get(chunks.size() - 1)));
+		for (int i = 1; i < chunks.size(); i++) {
+			long edge = startOf(chunks.get(i));
+			// Contiguous, and aligned to the split and downsample intervals.
+			assertEquals(edge - 1, endOf(chunks.get(i - 1)));
+			assertEquals(0, edge % HOUR);
+			assertEquals(0, edge % (5 * MINUTE));
+			assertEquals("5m-avg", chunks.get(i).path("queries").get(0).path("downsample").asText());
+		}
+		assertEquals(original, query.toString());
+	}
+
+	@Test
+	public void testRelativeAndSecondsTimes() throws Exception {
+		long now = START + 5 * HOUR;
+		ObjectNode query = createQuery(0, 0, "1m-sum");
+		query.put("start", "2h-ago");
+		query.remove("end");
+		List<ObjectNode> chunks = QuerySplitter.split(query, now, HOUR, 10);
+		assertEquals(now - 2 * HOUR, startOf(chunks.get(0)));
+		assertEquals(now, endOf(chunks.get(chunks.size() - 1)));
+		assertEquals(3, chunks.size());
+
+		query = createQuery(0, 0, "1m-sum");
+		query.put("start", String.valueOf(START / 1000));
+		query.put("end", String.valueOf((START + 2 * HOUR) / 1000));
+		chunks = QuerySplitter.split(query, now, HOUR, 10);
+		assertEquals(START / 1000 * 1000, startOf(chunks.get(0)));
+		assertEquals((START + 2 * HOUR) / 1000 * 1000, endOf(chunks.get(chunks.size() - 1)));
+	}
+
+	@Test
+	public void testMaxSplitsWidened() throws Exception {
+		long end = START + 10 * HOUR;
+		List<ObjectNode> chunks = QuerySplitter.split(createQuery(START, end, "5m-avg"), end, HOUR, 3);
+		assertTrue("Chunks: " + chunks.size(), chunks.size() <= 3 && chunks.size() > 1);
+		for (int i = 1; i < chunks.size(); i++) {
+			assertEquals(0, startOf(chunks.get(i)) % HOUR);
+			assertEquals(startOf(chunks.get(i)) - 1, endOf(chunks.get(i - 1)));
+		}
+		assertEquals(end, endOf(chunks.get(chunks.size() - 1)));
+	}
+
+	@Test
+	public void testKeptWhole() throws Exception {
+		long end = START + 5 * HOUR;
+		// Not downsampled, the series are interpolated across chunk edges.
+		assertWhole(createQuery(START, end, null), end, HOUR);
+		// Downsample interval not dividing the split interval.
+		assertWhole(createQuery(START, end, "7m-avg"), end, HOUR);
+		assertWhole(createQuery(START, end, "0all-sum"), end, HOUR);
+		assertWhole(createQuery(START, end, "1n-sum"), end, HOUR);
+		// Rate, calendar or time zone based.
+		ObjectNode query = createQuery(START, end, "5m-avg");
+		((ObjectNode) query.path("queries").get(0)).put("rate", true);
+		assertWhole(query, end, HOUR);
+		query = createQuery(START, end, "5m-avg");
+		query.put("useCalendar", true);
+		assertWhole(query, end, HOUR);
+		query = createQuery(START, end, "5m-avg");
+		query.put("timezone", "Asia/Shanghai");
+		assertWhole(query, end, HOUR);
+		// One of the sub queries is not downsampled.
+		query = createQuery(START, end, "5m-avg");
+		query.withArray("queries").addObject().put("aggregator", "sum").put("metric", "mem.used");
+		assertWhole(query, end, HOUR);
+		// Short range, no splitting or no sub queries.
+		assertWhole(createQuery(START, START + HOUR, "5m-avg"), end, HOUR);
+		assertWhole(createQuery(START, end, "5m-avg"), end, 0);
+		query = createQuery(START, end, "5m-avg");
+		query.remove("queries");
+		assertWhole(query, end, HOUR);
+	}
+
+	@Test
+	public void testMerge() {
+		long t0 = START - START % HOUR;
+		QuerySeries a1 = createSeries("web1", new long[] { t0, t0 + MINUTE }, new double[] { 1, 2 });
+		QuerySeries b1 = createSeries("web2", new long[] { t0 }, new double[] { 10 });
+		QuerySeries a2 = createSeries("web1", new long[] { t0 + MINUTE, t0 + 2 * MINUTE }, new double[] { 3, 4 });
+
+		List<QuerySeries> merged = QuerySplitter.merge(asList(asList(a1, b1), singletonList(a2)));
+		assertEquals(2, merged.size());
+		QuerySeries a = merged.get(0);
+		assertEquals("web1", a.getTags().get("host"));
+		assertArrayEquals(new long[] { t0, t0 + MINUTE, t0 + 2 * MINUTE }, copyOf(a.getTimes(), a.size()));
+		// The later chunk wins on the same time-stamp.
+		assertArrayEquals(new double[] { 1, 3, 4 }, copyOf(a.getValues(), a.size()), 0d);
+		assertSame(b1, merged.get(1));
+
+		List<QuerySeries> one = singletonList(a1);
+		assertSame(one, QuerySplitter.merge(singletonList(one)));
+	}
+
+	private void assertWhole(ObjectNode query, long now, long interval) {
+		List<ObjectNode> chunks = QuerySplitter.split(query, now, interval, 10);
+		assertEquals(1, chunks.size());
+		assertSame(query, chunks.get(0));
+	}
+
+	private ObjectNode createQuery(long start, long end, String downsample) {
+		ObjectNode query = mapper.createObjectNode();
+		query.put("start", String.valueOf(start));
+		query.put("end", String.valueOf(end));
+		ObjectNode sub = query.putArray("queries").addObject();
+		sub.put("aggregator", "avg");
+		sub.put("metric", "cpu.used");
+		if (downsample != null) {
+			sub.put("downsample", downsample);
+		}
+		return query;
+	}
+
+	private static QuerySeries createSeries(String host, long[] times, double[] values) {
+		return new QuerySeries("cpu.used", singletonMap("host", host), null, times, values, times.length);
+	}
+
+	private static long startOf(ObjectNode chunk) {
+		return Long.parseLong(chunk.path("start").asText());
+	}
+
+	private static long endOf(ObjectNode chunk) {
+		return Long.parseLong(chunk.path("end").asText());
+	}
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.opentsdb.client.sender.consumer;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * {@link AdaptiveBatchSizer} tests, additive increase of full batches while
+ * the latency is below the target, and multiplicative decrease on slow or
+ * failed batches, bounded by [initial/8, max].
+ *
+ * @author wangl.sir
+ * @version v1.0 2019年9月18日
+ * @since
+ */
+public class AdaptiveBatchSizerTests {
+
+	@Test
+	public void testIncreaseOnlyFullBatches() {
+		AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(100, 300, 50);
+		sizer.feedback(100, 10, true);
+		assertEquals(150, sizer.get());
+		// Not full, the load doesn't need a larger batch.
+		sizer.feedback(80, 10, true);
+		assertEquals(150, sizer.get());
+		sizer.feedback(150, 10, true);
+		sizer.feedback(200, 10, true);
+		sizer.feedback(250, 10, true);
+		assertEquals(300, sizer.get());
+		sizer.feedback(300, 10, true);
+		assertEquals(300, sizer.get());
+	}
+
+	@Test
+	public void testDecreaseOnSlowOrFailed() {
+		AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(100, 300, 50);
+		sizer.feedback(100, 200, true);
+		assertEquals(50, sizer.get());
+		// Smoothing restarted, one slow sample doesn't keep halving.
+		sizer.feedback(50, 10, true);
+		assertEquals(100, sizer.get());
+		sizer.feedback(100, 10, false);
+		assertEquals(50, sizer.get());
+		for (int i = 0; i < 10; i++) {
+			sizer.feedback(50, 10, false);
+		}
+		assertEquals(12, sizer.get());
+	}
+
+	@Test
+	public void testSmoothedLatency() {
+		AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(100, 1000, 50);
+		sizer.feedback(100, 40, true);
+		assertEquals(40d, sizer.getLatency(), 0.001d);
+		// A spike within the smoothing is tolerated: 0.2 * 60 + 0.8 * 40
+		sizer.feedback(150, 60, true);
+		assertEquals(44d, sizer.getLatency(), 0.001d);
+		assertEquals(200, sizer.get());
+		// 0.2 * 100 + 0.8 * 44 > 50
+		sizer.feedback(200, 100, true);
+		assertEquals(100, sizer.get());
+		assertEquals(-1d, sizer.getLatency(), 0d);
+	}
+
+}
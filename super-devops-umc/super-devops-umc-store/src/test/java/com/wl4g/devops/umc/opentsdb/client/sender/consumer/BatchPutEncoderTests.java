@@ -0,0 +1,107 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.opentsdb.client.sender.consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.http.HttpEntity;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wl4g.devops.umc.opentsdb.client.bean.request.Point;
+
+/**
+ * {@link BatchPutEncoder} tests, the encoded plain and gzip body.
+ *
+ * @author wangl.sir
+ * @version v1.0 2019年9月18日
+ * @since
+ */
+public class BatchPutEncoderTests {
+
+	final private static int BATCH_SIZE = 1000;
+
+	final private ObjectMapper mapper = new ObjectMapper();
+
+	@Test
+	public void testEncode() throws Exception {
+		List<Point> points = createPoints(3);
+		HttpEntity entity = new BatchPutEncoder(false).encode(points);
+		byte[] body = read(entity.getContent());
+		assertEquals(body.length, entity.getContentLength());
+		assertTrue(entity.isRepeatable());
+		assertPoints(points, body);
+		// The buffer backed entity can be read again, e.g. redirected.
+		assertEquals(body.length, read(entity.getContent()).length);
+	}
+
+	@Test
+	public void testEncodeGzip() throws Exception {
+		List<Point> points = createPoints(BATCH_SIZE);
+		HttpEntity plain = new BatchPutEncoder(false).encode(points);
+		HttpEntity entity = new BatchPutEncoder(true).encode(points);
+		assertEquals("gzip", entity.getContentEncoding().getValue());
+
+		byte[] compressed = read(entity.getContent());
+		assertEquals(compressed.length, entity.getContentLength());
+		assertTrue(compressed.length * 2 < plain.getContentLength());
+		assertPoints(points, read(new GZIPInputStream(entity.getContent())));
+	}
+
+	private void assertPoints(List<Point> points, byte[] body) throws IOException {
+		JsonNode array = mapper.readTree(body);
+		assertEquals(points.size(), array.size());
+		for (int i = 0; i < points.size(); i++) {
+			Point point = points.get(i);
+			JsonNode node = array.get(i);
+			assertEquals(point.getMetric(), node.get("metric").asText());
+			assertEquals(point.getTimestamp(), node.get("timestamp").asLong());
+			assertEquals(point.getValue().doubleValue(), node.get("value").asDouble(), 0d);
+			assertEquals(point.getTags().size(), node.get("tags").size());
+			assertEquals(point.getTags().get("host"), node.get("tags").get("host").asText());
+		}
+	}
+
+	private static List<Point> createPoints(int size) {
+		List<Point> points = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			points.add(Point.metric("basic.cpu.usage").tag("host", "host" + (i % 50)).tag("core", String.valueOf(i % 8))
+					.value(1568000000000L + i * 1000L, i % 2 == 0 ? (Number) (i * 0.5d) : (Number) (long) i).build());
+		}
+		return points;
+	}
+
+	private static byte[] read(InputStream in) throws IOException {
+		try (InputStream is = in) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buf = new byte[8192];
+			for (int n; (n = is.read(buf)) != -1;) {
+				out.write(buf, 0, n);
+			}
+			return out.toByteArray();
+		}
+	}
+
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.opentsdb.client.sender.consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.wl4g.devops.umc.opentsdb.client.OpenTSDBConfig;
+import com.wl4g.devops.umc.opentsdb.client.bean.request.Point;
+import com.wl4g.devops.umc.opentsdb.client.http.HttpClient;
+import com.wl4g.devops.umc.opentsdb.client.http.HttpClientFactory;
+import com.wl4g.devops.umc.opentsdb.client.sender.PutStatistics;
+
+/**
+ * {@link ConsumerImpl} tests, the consumers blocked on the in-flight permits
+ * send their batches and exit when stopped, even if the endpoint hangs.
+ *
+ * @author wangl.sir
+ * @version v1.0 2019年9月18日
+ * @since
+ */
+public class ConsumerImplTests {
+
+	final private static long TIMEOUT_MS = 10_000L;
+
+	final private static int POINTS = 200;
+
+	final private static int CONSUMERS = 2;
+
+	final private static int MAX_IN_FLIGHT = 1;
+
+	/** Released when the endpoint recovers. */
+	final private CountDownLatch recovered = new CountDownLatch(1);
+
+	final private AtomicInteger requests = new AtomicInteger(0);
+
+	private ExecutorService serverExecutor;
+
+	private HttpServer server;
+
+	private HttpClient httpClient;
+
+	@Before
+	public void startServer() throws IOException {
+		serverExecutor = Executors.newCachedThreadPool();
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.setExecutor(serverExecutor);
+		server.createContext("/api/put", this::put);
+		server.start();
+	}
+
+	@After
+	public void stopServer() throws Exception {
+		recovered.countDown();
+		if (httpClient != null) {
+			httpClient.forceClose();
+		}
+		server.stop(0);
+		serverExecutor.shutdownNow();
+	}
+
+	@Test
+	public void testStopWhileAllPermitsTaken() throws Exception {
+		OpenTSDBConfig config = OpenTSDBConfig.address("http://127.0.0.1", server.getAddress().getPort())
+				.putConsumerThreadCount(CONSUMERS).batchPutSize(10).batchPutBufferSize(POINTS).batchPutTimeLimit(20)
+				.maxInFlightRequests(MAX_IN_FLIGHT).config();
+		httpClient = HttpClientFactory.createHttpClient(config);
+		httpClient.start();
+		BlockingQueue<Point> queue = new ArrayBlockingQueue<>(POINTS);
+		for (int i = 1; i <= POINTS; i++) {
+			queue.add(point(i));
+		}
+		ConsumerImpl consumer = new ConsumerImpl(queue, httpClient, config, new PutStatistics(), null);
+		consumer.start();
+
+		// The endpoint hangs, all the consumers wait for the only permit.
+		long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+		while (requests.get() < MAX_IN_FLIGHT) {
+			assertTrue("No put request received", System.currentTimeMillis() < deadline);
+			Thread.sleep(10L);
+		}
+		Thread.sleep(200L);
+		assertEquals(MAX_IN_FLIGHT, requests.get());
+
+		// Each blocked consumer sends its batch without permit, and exits.
+		CompletableFuture.runAsync(consumer::gracefulStop).get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+		assertTrue(queue.size() > 0);
+	}
+
+	private void put(HttpExchange exchange) throws IOException {
+		requests.incrementAndGet();
+		try (InputStream in = exchange.getRequestBody()) {
+			while (in.read() != -1) {
+			}
+			recovered.await();
+			exchange.sendResponseHeaders(204, -1);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			exchange.close();
+		}
+	}
+
+	private static Point point(long timestamp) {
+		return Point.metric("basic.cpu").tag("host", "host0").value(timestamp, 50).build();
+	}
+
+}
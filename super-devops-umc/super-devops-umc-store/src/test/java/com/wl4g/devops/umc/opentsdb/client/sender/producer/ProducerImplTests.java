@@ -0,0 +1,135 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.opentsdb.client.sender.producer;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.wl4g.devops.umc.opentsdb.client.bean.request.Point;
+import com.wl4g.devops.umc.opentsdb.client.common.Json;
+import com.wl4g.devops.umc.opentsdb.client.sender.PutStatistics;
+import com.wl4g.devops.umc.opentsdb.client.sender.spill.PointSpillStore;
+
+/**
+ * {@link ProducerImpl} tests of the {@link OverflowPolicy}s, when the put
+ * buffer queue is full.
+ *
+ * @author wangl.sir
+ * @version v1.0 2019年9月18日
+ * @since
+ */
+public class ProducerImplTests {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	final private PutStatistics stats = new PutStatistics();
+
+	@Test
+	public void testDropOldest() {
+		BlockingQueue<Point> queue = new ArrayBlockingQueue<>(2);
+		ProducerImpl producer = new ProducerImpl(queue, OverflowPolicy.DROP_OLDEST, stats, null);
+		for (int i = 0; i < 5; i++) {
+			producer.send(point(i));
+		}
+		assertEquals(3, stats.getDropped());
+		assertEquals(5, stats.getEnqueued());
+		assertEquals(4L, queue.poll().getTimestamp());
+		assertEquals(5L, queue.poll().getTimestamp());
+	}
+
+	@Test
+	public void testSpillUntilExhausted() throws Exception {
+		BlockingQueue<Point> queue = new ArrayBlockingQueue<>(1);
+		long lineBytes = Json.writeValueAsString(point(0)).length() + 1;
+		try (PointSpillStore spillStore = new PointSpillStore(folder.newFolder(), lineBytes * 2, lineBytes * 2)) {
+			ProducerImpl producer = new ProducerImpl(queue, OverflowPolicy.SPILL, stats, spillStore);
+			for (int i = 0; i < 4; i++) {
+				producer.send(point(i));
+			}
+			assertEquals(1, stats.getEnqueued());
+			assertEquals(2, stats.getSpilled());
+			assertEquals(1, stats.getDropped());
+			assertEquals(1L, queue.poll().getTimestamp());
+
+			// Spilled in order, the last is dropped.
+			assertEquals(1, spillStore.replay(queue, 10));
+			assertEquals(2L, queue.poll().getTimestamp());
+			assertEquals(1, spillStore.replay(queue, 10));
+			assertEquals(3L, queue.poll().getTimestamp());
+			assertTrue(spillStore.isEmpty());
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSpillWithoutStore() {
+		new ProducerImpl(new ArrayBlockingQueue<>(1), OverflowPolicy.SPILL, stats, null);
+	}
+
+	@Test
+	public void testBlockUntilRoom() throws Exception {
+		BlockingQueue<Point> queue = new ArrayBlockingQueue<>(1);
+		ProducerImpl producer = new ProducerImpl(queue, OverflowPolicy.BLOCK, stats, null);
+		producer.send(point(0));
+
+		CompletableFuture<Void> blocked = CompletableFuture.runAsync(() -> producer.send(point(1)));
+		try {
+			blocked.get(200, MILLISECONDS);
+			throw new AssertionError("Not blocked on the full queue");
+		} catch (TimeoutException e) {
+			assertFalse(blocked.isDone());
+		}
+		assertEquals(1L, queue.take().getTimestamp());
+		blocked.get(10_000, MILLISECONDS);
+		assertEquals(2L, queue.poll().getTimestamp());
+		assertEquals(0, stats.getDropped());
+		assertEquals(2, stats.getEnqueued());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testForbiddenSend() {
+		ProducerImpl producer = new ProducerImpl(new ArrayBlockingQueue<>(1), OverflowPolicy.BLOCK, stats, null);
+		producer.forbiddenSend();
+		producer.send(point(0));
+	}
+
+	@Test
+	public void testSafeOf() {
+		assertEquals(OverflowPolicy.SPILL, OverflowPolicy.safeOf("spill"));
+		assertEquals(OverflowPolicy.DROP_OLDEST, OverflowPolicy.safeOf("DROP_OLDEST"));
+		assertEquals(OverflowPolicy.BLOCK, OverflowPolicy.safeOf("unknown"));
+		assertEquals(OverflowPolicy.BLOCK, OverflowPolicy.safeOf(null));
+	}
+
+	/**
+	 * The timestamp is the sequence + 1.
+	 */
+	private static Point point(long seq) {
+		return Point.metric("basic.cpu").tag("host", "host0").value(seq + 1, 50).build();
+	}
+
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.opentsdb.client.sender.spill;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.wl4g.devops.umc.opentsdb.client.bean.request.Point;
+import com.wl4g.devops.umc.opentsdb.client.common.Json;
+
+/**
+ * {@link PointSpillStore} tests, the replay order, the recovery of segments
+ * left by the previous process(with a torn tail line), and the bounded
+ * capacity.
+ *
+ * @author wangl.sir
+ * @version v1.0 2019年9月18日
+ * @since
+ */
+public class PointSpillStoreTests {
+
+	final static long BASE_TIMESTAMP = 1_000_000_000L;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testReplayInOrder() throws Exception {
+		File dir = folder.newFolder();
+		try (PointSpillStore store = new PointSpillStore(dir, 1024 * 1024, 1024)) {
+			assertTrue(store.isEmpty());
+			for (int i = 0; i < 100; i++) {
+				assertTrue(store.append(point(i)));
+			}
+			assertFalse(store.isEmpty());
+			assertEquals(100, store.getPending());
+
+			// The point not accepted by the full queue is kept for the next
+			// replay.
+			BlockingQueue<Point> queue = new ArrayBlockingQueue<>(30);
+			assertEquals(30, store.replay(queue, 50));
+			assertTimestamps(drain(queue), 0, 30);
+			assertEquals(30, store.replay(queue, 50));
+			assertTimestamps(drain(queue), 30, 30);
+			queue = new ArrayBlockingQueue<>(100);
+			assertEquals(40, store.replay(queue, 100));
+			assertTimestamps(drain(queue), 60, 40);
+
+			assertTrue(store.isEmpty());
+			assertEquals(0, store.replay(queue, 100));
+			// All segments replayed are deleted.
+			assertEquals(0, store.getTotalBytes());
+		}
+	}
+
+	@Test
+	public void testRecoverAfterReopen() throws Exception {
+		File dir = folder.newFolder();
+		try (PointSpillStore store = new PointSpillStore(dir, 1024 * 1024, 1024)) {
+			for (int i = 0; i < 50; i++) {
+				assertTrue(store.append(point(i)));
+			}
+			// Partly replayed before closing.
+			BlockingQueue<Point> queue = new ArrayBlockingQueue<>(100);
+			assertEquals(5, store.replay(queue, 5));
+		}
+
+		try (PointSpillStore store = new PointSpillStore(dir, 1024 * 1024, 1024)) {
+			assertFalse(store.isEmpty());
+			assertTrue(store.getTotalBytes() > 0);
+			// Appended after the recovered ones.
+			assertTrue(store.append(point(50)));
+
+			BlockingQueue<Point> queue = new ArrayBlockingQueue<>(100);
+			store.replay(queue, 100);
+			List<Point> points = drain(queue);
+			// The segment partly replayed is replayed again from its start, at
+			// least once.
+			long first = points.get(0).getTimestamp() - BASE_TIMESTAMP;
+			assertTrue(first <= 5);
+			assertTimestamps(points, first, (int) (51 - first));
+			assertTrue(store.isEmpty());
+		}
+	}
+
+	@Test
+	public void testRecoverTornTail() throws Exception {
+		File dir = folder.newFolder();
+		try (PointSpillStore store = new PointSpillStore(dir, 1024 * 1024, 1024 * 1024)) {
+			for (int i = 0; i < 10; i++) {
+				assertTrue(store.append(point(i)));
+			}
+		}
+		// Killed while writing the last line.
+		File[] segments = dir.listFiles((d, name) -> name.startsWith("spill-"));
+		assertEquals(1, segments.length);
+		try (OutputStream out = new FileOutputStream(segments[0], true)) {
+			out.write("{\"metric\":\"basic.cpu\",\"timest".getBytes(UTF_8));
+		}
+		// And an empty segment created by roll.
+		new File(dir, String.format("spill-%019d.json", 99)).createNewFile();
+
+		try (PointSpillStore store = new PointSpillStore(dir, 1024 * 1024, 1024 * 1024)) {
+			BlockingQueue<Point> queue = new ArrayBlockingQueue<>(100);
+			assertEquals(10, store.replay(queue, 100));
+			assertTimestamps(drain(queue), 0, 10);
+			assertTrue(store.isEmpty());
+			assertEquals(0, store.getTotalBytes());
+		}
+	}
+
+	@Test
+	public void testBoundedCapacity() throws Exception {
+		File dir = folder.newFolder();
+		int lineBytes = lineBytes(point(0));
+		long maxBytes = lineBytes * 10L;
+		try (PointSpillStore store = new PointSpillStore(dir, maxBytes, lineBytes * 2L)) {
+			int appended = 0;
+			while (store.append(point(appended))) {
+				assertTrue(store.getTotalBytes() <= maxBytes);
+				++appended;
+			}
+			assertEquals(10, appended);
+			assertEquals(maxBytes, store.getTotalBytes());
+			assertFalse(store.append(point(appended)));
+
+			// Room is made by replaying(deleting) whole segments.
+			BlockingQueue<Point> queue = new ArrayBlockingQueue<>(100);
+			assertEquals(3, store.replay(queue, 3));
+			assertEquals(lineBytes * 8L, store.getTotalBytes());
+			assertTrue(store.append(point(appended)));
+			assertTrue(store.append(point(appended + 1)));
+			assertFalse(store.append(point(appended + 2)));
+
+			store.replay(queue, 100);
+			assertTimestamps(drain(queue), 0, 12);
+		}
+	}
+
+	private static void assertTimestamps(List<Point> points, long first, int count) {
+		assertEquals(count, points.size());
+		for (int i = 0; i < count; i++) {
+			assertEquals(first + i, points.get(i).getTimestamp() - BASE_TIMESTAMP);
+			assertEquals("basic.cpu", points.get(i).getMetric());
+		}
+	}
+
+	private static List<Point> drain(BlockingQueue<Point> queue) {
+		List<Point> points = new ArrayList<>();
+		queue.drainTo(points);
+		return points;
+	}
+
+	private static int lineBytes(Point point) throws Exception {
+		return (Json.writeValueAsString(point) + "\n").getBytes(UTF_8).length;
+	}
+
+	/**
+	 * Points of the same line length, the timestamp is the sequence.
+	 */
+	static Point point(long seq) {
+		return Point.metric("basic.cpu").tag("host", "host0").value(BASE_TIMESTAMP + seq, 50).build();
+	}
+
+}
@@ -38,6 +38,8 @@ import com.wl4g.devops.common.annotation.Unused;
 import com.wl4g.devops.umc.fetch.ServiceIndicatorsMetaFetcher;
 import com.wl4g.devops.umc.fetch.IndicatorsMetaFetcher;
 import com.wl4g.devops.umc.fetch.IndicatorsMetaInfo;
+import com.wl4g.devops.umc.fetch.ServiceIndicatorsMetaRepository;
+import com.wl4g.devops.umc.watch.HttpIndicatorsProber;
 import com.wl4g.devops.umc.watch.ServiceIndicatorsStateWatcher;
 import com.wl4g.devops.umc.watch.WatchJobListener;
 import com.wl4g.devops.umc.watch.WatchScheduler;
@@ -73,6 +75,11 @@ public class UmcWatchAutoConfiguration {
 		return new ServiceIndicatorsStateWatcher();
 	}
 
+	@Bean
+	public HttpIndicatorsProber httpIndicatorsProber(WatchProperties config) {
+		return new HttpIndicatorsProber(config);
+	}
+
 	@Bean
 	public WatchJobListener watchJobListener() {
 		return new WatchJobListener();
@@ -100,11 +107,15 @@ public class UmcWatchAutoConfiguration {
 				.overwrite(true).build();
 	}
 
+	/**
+	 * Non streaming process, the fetcher always returns the targets of
+	 * sharding, so each trigger only watches them once.
+	 */
 	private LiteJobConfiguration getDataflowLiteJobConfiguration(Class<? extends DataflowJob<IndicatorsMetaInfo>> jobClass,
 			String cron, int shardingTotalCount, String shardingItemParameters) {
 		return newBuilder(new DataflowJobConfiguration(
 				newBuilder(jobClass.getName(), cron, shardingTotalCount).shardingItemParameters(shardingItemParameters).build(),
-				jobClass.getCanonicalName(), true)).overwrite(true).build();
+				jobClass.getCanonicalName(), false)).overwrite(true).build();
 	}
 
 	//
@@ -113,8 +124,9 @@ public class UmcWatchAutoConfiguration {
 
 	@Bean
 	@ConditionalOnMissingBean(IndicatorsMetaFetcher.class)
-	public IndicatorsMetaFetcher serviceIndicatorsMetaFetcher() {
-		return new ServiceIndicatorsMetaFetcher();
+	public IndicatorsMetaFetcher serviceIndicatorsMetaFetcher(WatchProperties config,
+			ServiceIndicatorsMetaRepository repository) {
+		return new ServiceIndicatorsMetaFetcher(config, repository);
 	}
 
 }
\ No newline at end of file
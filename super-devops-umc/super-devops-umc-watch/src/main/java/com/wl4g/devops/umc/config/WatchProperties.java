@@ -40,6 +40,27 @@ public class WatchProperties extends RunProperties {
 
 	private int fetchCacheSec = -1;
 
+	/** Incremental meta refresh interval milliseconds. */
+	private long metaRefreshMs = 10_000L;
+
+	/** Full meta reload interval milliseconds. */
+	private long metaFullRefreshMs = 10 * 60_000L;
+
+	/** Virtual nodes of each sharding item in the consistent hash ring. */
+	private int virtualNodes = 160;
+
+	/** Probe path of the target, default: actuator health endpoint. */
+	private String probePath = "/health";
+
+	/** Default probe timeout milliseconds of each target. */
+	private long probeTimeoutMs = 3_000L;
+
+	/** Maximum number of in-flight probes. */
+	private int probeConcurrency = 256;
+
+	/** Classify of the probe metric aggregate. */
+	private String probeClassify = "service";
+
 	public String getZkServers() {
 		return zkServers;
 	}
@@ -101,4 +122,60 @@ public class WatchProperties extends RunProperties {
 		this.fetchCacheSec = fetchCacheTime;
 	}
 
+	public long getMetaRefreshMs() {
+		return metaRefreshMs;
+	}
+
+	public void setMetaRefreshMs(long metaRefreshMs) {
+		this.metaRefreshMs = metaRefreshMs;
+	}
+
+	public long getMetaFullRefreshMs() {
+		return metaFullRefreshMs;
+	}
+
+	public void setMetaFullRefreshMs(long metaFullRefreshMs) {
+		this.metaFullRefreshMs = metaFullRefreshMs;
+	}
+
+	public int getVirtualNodes() {
+		return virtualNodes;
+	}
+
+	public void setVirtualNodes(int virtualNodes) {
+		this.virtualNodes = virtualNodes;
+	}
+
+	public String getProbePath() {
+		return probePath;
+	}
+
+	public void setProbePath(String probePath) {
+		this.probePath = probePath;
+	}
+
+	public long getProbeTimeoutMs() {
+		return probeTimeoutMs;
+	}
+
+	public void setProbeTimeoutMs(long probeTimeoutMs) {
+		this.probeTimeoutMs = probeTimeoutMs;
+	}
+
+	public int getProbeConcurrency() {
+		return probeConcurrency;
+	}
+
+	public void setProbeConcurrency(int probeConcurrency) {
+		this.probeConcurrency = probeConcurrency;
+	}
+
+	public String getProbeClassify() {
+		return probeClassify;
+	}
+
+	public void setProbeClassify(String probeClassify) {
+		this.probeClassify = probeClassify;
+	}
+
 }
\ No newline at end of file
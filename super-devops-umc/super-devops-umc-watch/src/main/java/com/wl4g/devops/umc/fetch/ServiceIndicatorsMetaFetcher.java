@@ -15,12 +15,28 @@
  */
 package com.wl4g.devops.umc.fetch;
 
+import static java.util.Collections.emptyMap;
+
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
 
 import com.dangdang.ddframe.job.api.ShardingContext;
+import com.wl4g.devops.umc.config.WatchProperties;
 
 /**
- * Application service agent metric indicators fetcher.
+ * Application service agent metric indicators fetcher.</br>
+ * The meta of all targets is kept locally, and refreshed incrementally by
+ * version(only the changes since the last version are loaded) every
+ * {@link WatchProperties#getMetaRefreshMs()}, and fully reloaded every
+ * {@link WatchProperties#getMetaFullRefreshMs()} to reconcile the physically
+ * deleted ones. The targets are assigned to the sharding items by consistent
+ * hashing.
  * 
  * @author wangl.sir
  * @version v1.0 2019年7月4日
@@ -28,10 +44,106 @@ import com.dangdang.ddframe.job.api.ShardingContext;
  */
 public class ServiceIndicatorsMetaFetcher implements IndicatorsMetaFetcher {
 
+	final protected Logger log = LoggerFactory.getLogger(getClass());
+
+	final protected WatchProperties config;
+
+	final protected ServiceIndicatorsMetaRepository repository;
+
+	/** Snapshot of all targets meta(copy on write). */
+	private volatile Map<String, ServiceIndicatorsMetaInfo> metas = emptyMap();
+
+	/** Max version of the loaded meta. */
+	private long version;
+
+	private volatile long lastRefreshTime;
+
+	private long lastFullRefreshTime;
+
+	private volatile ShardingHashRing ring;
+
+	public ServiceIndicatorsMetaFetcher(WatchProperties config, ServiceIndicatorsMetaRepository repository) {
+		Assert.notNull(config, "Watch properties must not be null");
+		Assert.notNull(repository, "Service indicators meta repository must not be null");
+		this.config = config;
+		this.repository = repository;
+	}
+
 	@Override
 	public List<IndicatorsMetaInfo> fetch(ShardingContext sctx) {
-		// TODO Auto-generated method stub
-		return null;
+		return fetch(sctx.getShardingTotalCount(), sctx.getShardingItem());
+	}
+
+	/**
+	 * Fetch the targets assigned to the sharding item.
+	 * 
+	 * @param shardingTotalCount
+	 * @param shardingItem
+	 * @return
+	 */
+	protected List<IndicatorsMetaInfo> fetch(int shardingTotalCount, int shardingItem) {
+		refreshIfNecessary();
+
+		ShardingHashRing ring = getRing(shardingTotalCount);
+		List<IndicatorsMetaInfo> dataset = new ArrayList<>();
+		for (ServiceIndicatorsMetaInfo meta : metas.values()) {
+			if (ring.itemOf(meta.getTargetIdentifier()) == shardingItem) {
+				dataset.add(meta);
+			}
+		}
+		return dataset;
+	}
+
+	/**
+	 * Refresh the meta snapshot if expired, the sharding items of the same
+	 * instance share one refreshing.
+	 */
+	protected void refreshIfNecessary() {
+		if (System.currentTimeMillis() - lastRefreshTime < config.getMetaRefreshMs()) {
+			return;
+		}
+		synchronized (this) {
+			long now = System.currentTimeMillis();
+			if (now - lastRefreshTime < config.getMetaRefreshMs()) {
+				return; // Refreshed by others.
+			}
+			try {
+				boolean full = now - lastFullRefreshTime >= config.getMetaFullRefreshMs();
+				List<ServiceIndicatorsMetaInfo> changes = repository.findChanged(full ? 0 : version);
+				Map<String, ServiceIndicatorsMetaInfo> refreshed = full ? new HashMap<>() : new HashMap<>(metas);
+				long maxVersion = full ? 0 : version;
+				for (ServiceIndicatorsMetaInfo meta : changes) {
+					if (meta.isDeleted()) {
+						refreshed.remove(meta.getTargetIdentifier());
+					} else {
+						refreshed.put(meta.getTargetIdentifier(), meta);
+					}
+					maxVersion = Math.max(maxVersion, meta.getVersion());
+				}
+				this.metas = refreshed;
+				this.version = maxVersion;
+				if (full) {
+					lastFullRefreshTime = now;
+				}
+				if (log.isInfoEnabled() && (full || !changes.isEmpty())) {
+					log.info("Refreshed indicators meta, full: {}, changes: {}, total: {}, version: {}", full, changes.size(),
+							refreshed.size(), maxVersion);
+				}
+			} catch (Exception e) {
+				// Keep serving the stale snapshot.
+				log.error("Failed to refresh indicators meta", e);
+			} finally {
+				lastRefreshTime = now;
+			}
+		}
+	}
+
+	private ShardingHashRing getRing(int totalCount) {
+		ShardingHashRing ring = this.ring;
+		if (ring == null || ring.getTotalCount() != totalCount) {
+			this.ring = ring = new ShardingHashRing(Math.max(totalCount, 1), config.getVirtualNodes());
+		}
+		return ring;
 	}
 
-}
\ No newline at end of file
+}
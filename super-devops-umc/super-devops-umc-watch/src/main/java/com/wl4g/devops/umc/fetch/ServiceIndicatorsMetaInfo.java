@@ -0,0 +1,101 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.fetch;
+
+import java.io.Serializable;
+
+/**
+ * Service indicators meta info, that is a watched collect target.
+ * 
+ * @author wangl.sir
+ * @version v1.0 2019年9月16日
+ * @since
+ */
+public class ServiceIndicatorsMetaInfo implements IndicatorsMetaInfo, Serializable {
+	private static final long serialVersionUID = -2853150187411385270L;
+
+	/** Collect target identifier, e.g. collect address 'host:port'. */
+	private String targetIdentifier;
+
+	/** Probe endpoint URL, default: http://{targetIdentifier}{probePath} */
+	private String endpoint;
+
+	/** Probe timeout milliseconds, default(<=0): global probe timeout. */
+	private long timeoutMs;
+
+	/** Meta version, e.g. last modified time. */
+	private long version;
+
+	/** Deleted(disabled) of incremental changes. */
+	private boolean deleted;
+
+	public ServiceIndicatorsMetaInfo() {
+		super();
+	}
+
+	public ServiceIndicatorsMetaInfo(String targetIdentifier, long version) {
+		this.targetIdentifier = targetIdentifier;
+		this.version = version;
+	}
+
+	@Override
+	public String getTargetIdentifier() {
+		return targetIdentifier;
+	}
+
+	public void setTargetIdentifier(String targetIdentifier) {
+		this.targetIdentifier = targetIdentifier;
+	}
+
+	public String getEndpoint() {
+		return endpoint;
+	}
+
+	public void setEndpoint(String endpoint) {
+		this.endpoint = endpoint;
+	}
+
+	public long getTimeoutMs() {
+		return timeoutMs;
+	}
+
+	public void setTimeoutMs(long timeoutMs) {
+		this.timeoutMs = timeoutMs;
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	public void setVersion(long version) {
+		this.version = version;
+	}
+
+	public boolean isDeleted() {
+		return deleted;
+	}
+
+	public void setDeleted(boolean deleted) {
+		this.deleted = deleted;
+	}
+
+	@Override
+	public String toString() {
+		return "ServiceIndicatorsMetaInfo [targetIdentifier=" + targetIdentifier + ", endpoint=" + endpoint + ", timeoutMs="
+				+ timeoutMs + ", version=" + version + ", deleted=" + deleted + "]";
+	}
+
+}
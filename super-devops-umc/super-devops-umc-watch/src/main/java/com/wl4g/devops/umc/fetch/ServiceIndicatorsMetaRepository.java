@@ -0,0 +1,40 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.fetch;
+
+import java.util.List;
+
+/**
+ * Service indicators meta repository, e.g. collectors of DB.
+ * 
+ * @author wangl.sir
+ * @version v1.0 2019年9月16日
+ * @since
+ */
+public interface ServiceIndicatorsMetaRepository {
+
+	/**
+	 * Find the meta changed since the version(inclusive).
+	 * 
+	 * @param sinceVersion
+	 *            If less than or equal to 0, returns all the available meta
+	 *            (full loading), otherwise returns all the meta whose version
+	 *            is greater than or equal to it, including deleted ones.
+	 * @return
+	 */
+	List<ServiceIndicatorsMetaInfo> findChanged(long sinceVersion);
+
+}
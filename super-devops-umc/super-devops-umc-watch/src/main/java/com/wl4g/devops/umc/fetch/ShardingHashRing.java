@@ -0,0 +1,97 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.fetch;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.Arrays;
+
+/**
+ * Consistent hash ring of sharding items, targets are assigned to the sharding
+ * item of the first virtual node clockwise, so that resizing the sharding
+ * total count only moves about 1/n of the targets.
+ * 
+ * @author wangl.sir
+ * @version v1.0 2019年9月16日
+ * @since
+ */
+final class ShardingHashRing {
+
+	final private int totalCount;
+
+	/** Sorted virtual node hashes. */
+	final private long[] points;
+
+	/** Sharding items of virtual nodes. */
+	final private int[] items;
+
+	ShardingHashRing(int totalCount, int virtualNodes) {
+		this.totalCount = totalCount;
+		int n = totalCount * virtualNodes;
+		long[][] nodes = new long[n][];
+		for (int item = 0, i = 0; item < totalCount; item++) {
+			for (int v = 0; v < virtualNodes; v++) {
+				nodes[i++] = new long[] { hash("item-" + item + "#" + v), item };
+			}
+		}
+		Arrays.sort(nodes, (a, b) -> Long.compare(a[0], b[0]));
+		this.points = new long[n];
+		this.items = new int[n];
+		for (int i = 0; i < n; i++) {
+			points[i] = nodes[i][0];
+			items[i] = (int) nodes[i][1];
+		}
+	}
+
+	int getTotalCount() {
+		return totalCount;
+	}
+
+	/**
+	 * Gets sharding item of the target.
+	 * 
+	 * @param targetIdentifier
+	 * @return
+	 */
+	int itemOf(String targetIdentifier) {
+		int i = Arrays.binarySearch(points, hash(targetIdentifier));
+		if (i < 0) {
+			i = -i - 1; // Insertion point
+		}
+		return items[i == points.length ? 0 : i];
+	}
+
+	/**
+	 * FNV-1a 64, with murmur3 finalizer for avalanche.
+	 * 
+	 * @param key
+	 * @return
+	 */
+	static long hash(String key) {
+		long h = 0xcbf29ce484222325L;
+		for (byte b : key.getBytes(UTF_8)) {
+			h ^= b & 0xff;
+			h *= 0x100000001b3L;
+		}
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.watch;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.Netty4ClientHttpRequestFactory;
+import org.springframework.util.Assert;
+import org.springframework.util.concurrent.ListenableFuture;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wl4g.devops.common.bean.umc.model.proto.MetricModel.Metric;
+import com.wl4g.devops.common.bean.umc.model.proto.MetricModel.MetricAggregate;
+import com.wl4g.devops.umc.config.WatchProperties;
+import com.wl4g.devops.umc.fetch.ServiceIndicatorsMetaInfo;
+
+/**
+ * Non-blocking HTTP prober of the watched targets(netty), each probe has its
+ * own deadline, and the number of in-flight probes is limited.</br>
+ * The probing result is converted to metric aggregate(classify:
+ * {@link WatchProperties#getProbeClassify()}, instance: target identifier),
+ * the metrics are:
+ * <ul>
+ * <li>{classify}.up: 1 if the response is 2xx and the health status is UP,
+ * otherwise 0.</li>
+ * <li>{classify}.status_code: HTTP status code, 0 if no response(e.g.
+ * timeout).</li>
+ * <li>{classify}.latency: response milliseconds.</li>
+ * <li>{classify}.health: 1 if UP otherwise 0, tagged by the health component
+ * (of the actuator health details).</li>
+ * </ul>
+ * 
+ * @author wangl.sir
+ * @version v1.0 2019年9月16日
+ * @since
+ */
+public class HttpIndicatorsProber implements DisposableBean {
+
+	final private static String STATUS_UP = "UP";
+
+	final protected Logger log = LoggerFactory.getLogger(getClass());
+
+	final protected WatchProperties config;
+
+	final private ObjectMapper mapper = new ObjectMapper();
+
+	final private Netty4ClientHttpRequestFactory factory;
+
+	/** In-flight probes limiter. */
+	final private Semaphore permits;
+
+	/** Probe deadlines timer. */
+	final private ScheduledThreadPoolExecutor timer;
+
+	public HttpIndicatorsProber(WatchProperties config) {
+		Assert.notNull(config, "Watch properties must not be null");
+		Assert.isTrue(config.getProbeTimeoutMs() > 0 && config.getProbeConcurrency() > 0,
+				"Probe timeout and concurrency must be greater than 0");
+		this.config = config;
+		this.permits = new Semaphore(config.getProbeConcurrency());
+		this.factory = new Netty4ClientHttpRequestFactory();
+		this.factory.setConnectTimeout((int) config.getProbeTimeoutMs());
+		// Guard of the abandoned channels, the deadline of each target is
+		// controlled by the timer.
+		this.factory.setReadTimeout((int) config.getProbeTimeoutMs() * 2);
+		this.factory.setMaxResponseSize(1024 * 1024);
+		this.timer = new ScheduledThreadPoolExecutor(1, r -> {
+			Thread t = new Thread(r, "indicatorsProbeTimer");
+			t.setDaemon(true);
+			return t;
+		});
+		this.timer.setRemoveOnCancelPolicy(true);
+	}
+
+	/**
+	 * Probe the target asynchronously, only blocked when the in-flight probes
+	 * reach the concurrency limit.
+	 * 
+	 * @param meta
+	 * @return future of the probing result, which is always completed
+	 *         normally before the deadline of the target.
+	 * @throws InterruptedException
+	 */
+	public CompletableFuture<MetricAggregate> probe(ServiceIndicatorsMetaInfo meta) throws InterruptedException {
+		permits.acquire();
+		CompletableFuture<MetricAggregate> result = new CompletableFuture<>();
+		result.whenComplete((r, e) -> permits.release());
+
+		long begin = System.currentTimeMillis();
+		long timeoutMs = meta.getTimeoutMs() > 0 ? meta.getTimeoutMs() : config.getProbeTimeoutMs();
+		try {
+			ListenableFuture<ClientHttpResponse> future = factory
+					.createAsyncRequest(URI.create(getEndpoint(meta)), HttpMethod.GET).executeAsync();
+			ScheduledFuture<?> deadline = timer.schedule(() -> {
+				if (result.complete(buildAggregate(meta, begin, 0, null))) {
+					future.cancel(true);
+					if (log.isDebugEnabled())
+						log.debug("Probe timeout({}ms) of - {}", timeoutMs, meta);
+				}
+			}, timeoutMs, MILLISECONDS);
+
+			future.addCallback(resp -> {
+				deadline.cancel(false);
+				try {
+					if (!result.isDone()) {
+						Map<String, String> health = parseHealth(resp.getBody());
+						result.complete(buildAggregate(meta, begin, resp.getRawStatusCode(), health));
+					}
+				} catch (Throwable e) {
+					result.complete(buildAggregate(meta, begin, 0, null));
+				} finally {
+					resp.close();
+				}
+			}, ex -> {
+				deadline.cancel(false);
+				result.complete(buildAggregate(meta, begin, 0, null));
+				if (log.isDebugEnabled())
+					log.debug("Probe failed of - " + meta, ex);
+			});
+		} catch (Throwable e) {
+			result.complete(buildAggregate(meta, begin, 0, null));
+			log.warn("Failed to probe of - {}, caused by: {}", meta, e.getMessage());
+		}
+		return result;
+	}
+
+	@Override
+	public void destroy() throws Exception {
+		timer.shutdownNow();
+		factory.destroy();
+	}
+
+	/**
+	 * Gets probe endpoint URL of target.
+	 * 
+	 * @param meta
+	 * @return
+	 */
+	protected String getEndpoint(ServiceIndicatorsMetaInfo meta) {
+		if (!StringUtils.isBlank(meta.getEndpoint())) {
+			return meta.getEndpoint();
+		}
+		String base = meta.getTargetIdentifier();
+		if (!StringUtils.startsWithAny(base, "http://", "https://")) {
+			base = "http://" + base;
+		}
+		return StringUtils.removeEnd(base, "/") + config.getProbePath();
+	}
+
+	/**
+	 * Parse health status of actuator, e.g.
+	 * {"status":"UP","diskSpace":{"status":"UP",...},"redis":{"status":"DOWN",...}}
+	 * 
+	 * @param body
+	 * @return components status(the overall status key is empty), null if not
+	 *         a health response.
+	 */
+	private Map<String, String> parseHealth(InputStream body) {
+		try {
+			JsonNode root = mapper.readTree(body);
+			if (root == null || !root.has("status")) {
+				return null;
+			}
+			Map<String, String> health = new LinkedHashMap<>();
+			health.put("", root.get("status").asText());
+			for (Iterator<Entry<String, JsonNode>> it = root.fields(); it.hasNext();) {
+				Entry<String, JsonNode> field = it.next();
+				if (field.getValue().isObject() && field.getValue().has("status")) {
+					health.put(field.getKey(), field.getValue().get("status").asText());
+				}
+			}
+			return health;
+		} catch (Exception e) { // Not a JSON
+			return null;
+		}
+	}
+
+	private MetricAggregate buildAggregate(ServiceIndicatorsMetaInfo meta, long begin, int statusCode,
+			Map<String, String> health) {
+		String prefix = config.getProbeClassify() + ".";
+		boolean up = statusCode >= 200 && statusCode < 300 && (health == null || STATUS_UP.equals(health.get("")));
+
+		MetricAggregate.Builder aggregate = MetricAggregate.newBuilder().setClassify(config.getProbeClassify())
+				.setInstance(meta.getTargetIdentifier()).setTimestamp(begin);
+		aggregate.addMetrics(Metric.newBuilder().setMetric(prefix + "up").setValue(up ? 1 : 0));
+		aggregate.addMetrics(Metric.newBuilder().setMetric(prefix + "status_code").setValue(statusCode));
+		if (statusCode > 0) {
+			aggregate.addMetrics(
+					Metric.newBuilder().setMetric(prefix + "latency").setValue(System.currentTimeMillis() - begin));
+		}
+		if (health != null) {
+			health.forEach((component, status) -> {
+				if (!component.isEmpty()) {
+					aggregate.addMetrics(Metric.newBuilder().setMetric(prefix + "health").putTags("component", component)
+							.setValue(STATUS_UP.equals(status) ? 1 : 0));
+				}
+			});
+		}
+		return aggregate.build();
+	}
+
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.watch;
+
+import com.wl4g.devops.common.bean.umc.model.proto.MetricModel.MetricAggregate;
+
+/**
+ * Watched indicators state handler, e.g. store and alarm the probing results
+ * in the same way as the pushed metrics.
+ * 
+ * @author wangl.sir
+ * @version v1.0 2019年9月16日
+ * @since
+ */
+public interface IndicatorsStateHandler {
+
+	/**
+	 * Handle the probing result of a target.
+	 * 
+	 * @param aggregate
+	 */
+	void handle(MetricAggregate aggregate);
+
+}
@@ -19,7 +19,7 @@ import static com.wl4g.devops.common.constants.UMCDevOpsConstants.KEY_CACHE_FETC
 import static com.wl4g.devops.common.utils.serialize.JacksonUtils.toJSONString;
 import static org.springframework.util.CollectionUtils.isEmpty;
 
-import java.util.ArrayList;
+import java.io.Serializable;
 import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -99,9 +99,9 @@ public abstract class IndicatorsStateWatcher implements DataflowJob<IndicatorsMe
 	 * Therefore, it may lead to dirty reading and hallucination of data. It is
 	 * suggested that the cache time should not be set too long.</font>
 	 */
-	@SuppressWarnings("unchecked")
 	protected List<IndicatorsMetaInfo> fetchShardingCache(ShardingContext sctx) {
-		return jedisService.getObjectT(getShardingCacheKey(sctx), ArrayList.class);
+		ShardingMetaCache cache = jedisService.getObjectT(getShardingCacheKey(sctx), ShardingMetaCache.class);
+		return cache != null ? cache.getDataset() : null;
 	}
 
 	/**
@@ -115,7 +115,7 @@ public abstract class IndicatorsStateWatcher implements DataflowJob<IndicatorsMe
 			return;
 		}
 
-		jedisService.setObjectT(getShardingCacheKey(sctx), toJSONString(dataset), config.getFetchCacheSec());
+		jedisService.setObjectT(getShardingCacheKey(sctx), new ShardingMetaCache(dataset), config.getFetchCacheSec());
 	}
 
 	/**
@@ -135,4 +135,30 @@ public abstract class IndicatorsStateWatcher implements DataflowJob<IndicatorsMe
 	 */
 	protected abstract void doWatching(List<IndicatorsMetaInfo> dataset);
 
+	/**
+	 * Sharding meta info cache holder, keeps the concrete meta types when
+	 * serialized.
+	 */
+	public static class ShardingMetaCache implements Serializable {
+		private static final long serialVersionUID = -2718349501863924512L;
+
+		private List<IndicatorsMetaInfo> dataset;
+
+		public ShardingMetaCache() {
+		}
+
+		public ShardingMetaCache(List<IndicatorsMetaInfo> dataset) {
+			this.dataset = dataset;
+		}
+
+		public List<IndicatorsMetaInfo> getDataset() {
+			return dataset;
+		}
+
+		public void setDataset(List<IndicatorsMetaInfo> dataset) {
+			this.dataset = dataset;
+		}
+
+	}
+
 }
\ No newline at end of file
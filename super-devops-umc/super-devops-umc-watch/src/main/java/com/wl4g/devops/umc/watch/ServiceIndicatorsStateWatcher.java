@@ -15,9 +15,18 @@
  */
 package com.wl4g.devops.umc.watch;
 
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.beans.factory.annotation.Autowired;
 
+import com.wl4g.devops.common.bean.umc.model.proto.MetricModel.MetricAggregate;
 import com.wl4g.devops.umc.fetch.IndicatorsMetaInfo;
+import com.wl4g.devops.umc.fetch.ServiceIndicatorsMetaInfo;
 
 /**
  * 
@@ -30,10 +39,61 @@ import com.wl4g.devops.umc.fetch.IndicatorsMetaInfo;
  */
 public class ServiceIndicatorsStateWatcher extends IndicatorsStateWatcher {
 
+	/** Grace milliseconds of waiting the probes over the max deadline. */
+	final private static long WAIT_GRACE_MS = 500L;
+
+	@Autowired
+	protected HttpIndicatorsProber prober;
+
+	@Autowired(required = false)
+	protected IndicatorsStateHandler handler;
+
 	@Override
 	protected void doWatching(List<IndicatorsMetaInfo> dataset) {
-		// TODO Auto-generated method stub
+		long begin = System.currentTimeMillis();
+		List<CompletableFuture<MetricAggregate>> futures = new ArrayList<>(dataset.size());
+		long maxTimeoutMs = config.getProbeTimeoutMs();
+		try {
+			for (IndicatorsMetaInfo meta : dataset) {
+				if (!(meta instanceof ServiceIndicatorsMetaInfo)) {
+					log.warn("Skip unsupported indicators meta - {}", meta);
+					continue;
+				}
+				ServiceIndicatorsMetaInfo target = (ServiceIndicatorsMetaInfo) meta;
+				maxTimeoutMs = Math.max(maxTimeoutMs, target.getTimeoutMs());
+				futures.add(prober.probe(target));
+			}
+			// Each probe completes before its deadline, wait them all.
+			CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(maxTimeoutMs + WAIT_GRACE_MS,
+					MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			log.warn("Interrupted watching indicators of targets: {}", dataset.size());
+		} catch (TimeoutException e) {
+			log.warn("Timeout waiting probes of targets: {}", dataset.size());
+		} catch (Exception e) {
+			log.error("Failed to watching indicators", e);
+		}
 
+		int completed = 0;
+		for (CompletableFuture<MetricAggregate> future : futures) {
+			MetricAggregate aggregate = future.getNow(null);
+			if (aggregate == null) {
+				continue;
+			}
+			++completed;
+			if (handler != null) {
+				try {
+					handler.handle(aggregate);
+				} catch (Exception e) {
+					log.error("Failed to handle indicators state of - " + aggregate.getInstance(), e);
+				}
+			}
+		}
+		if (log.isInfoEnabled()) {
+			log.info("Watched indicators of targets: {}, completed: {}, cost: {}ms", dataset.size(), completed,
+					System.currentTimeMillis() - begin);
+		}
 	}
 
 }
\ No newline at end of file
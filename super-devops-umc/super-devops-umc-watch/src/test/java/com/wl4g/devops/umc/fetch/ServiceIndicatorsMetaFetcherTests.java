@@ -0,0 +1,215 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.fetch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.wl4g.devops.umc.config.WatchProperties;
+
+/**
+ * {@link ServiceIndicatorsMetaFetcher} tests with an in-memory repository,
+ * the incremental and full refreshing, and the sharding of targets.
+ *
+ * @author wangl.sir
+ * @version v1.0 2019年9月18日
+ * @since
+ */
+public class ServiceIndicatorsMetaFetcherTests {
+
+	@Test
+	public void testIncrementalRefresh() {
+		FakeRepository repository = new FakeRepository();
+		repository.save("10.0.0.1:8080", 100L);
+		repository.save("10.0.0.2:8080", 200L);
+		ServiceIndicatorsMetaFetcher fetcher = new ServiceIndicatorsMetaFetcher(createConfig(0L, 60_000L), repository);
+
+		assertEquals(targets("10.0.0.1:8080", "10.0.0.2:8080"), fetchAll(fetcher, 1));
+		assertEquals(0L, repository.sinceVersions.get(0).longValue()); // Full
+
+		// Changed, deleted and created since the max version.
+		repository.save("10.0.0.2:8080", 300L);
+		repository.delete("10.0.0.1:8080", 300L);
+		repository.save("10.0.0.3:8080", 400L);
+		assertEquals(targets("10.0.0.2:8080", "10.0.0.3:8080"), fetchAll(fetcher, 1));
+		assertEquals(200L, repository.sinceVersions.get(1).longValue());
+		assertEquals(3, repository.lastChanges);
+
+		// No changes since.
+		assertEquals(targets("10.0.0.2:8080", "10.0.0.3:8080"), fetchAll(fetcher, 1));
+		assertEquals(400L, repository.sinceVersions.get(2).longValue());
+		assertEquals(1, repository.lastChanges); // Inclusive version
+	}
+
+	@Test
+	public void testFullRefreshReconcilesPhysicallyDeleted() {
+		FakeRepository repository = new FakeRepository();
+		repository.save("10.0.0.1:8080", 100L);
+		repository.save("10.0.0.2:8080", 200L);
+		// Full reloading each refreshing.
+		ServiceIndicatorsMetaFetcher fetcher = new ServiceIndicatorsMetaFetcher(createConfig(0L, 0L), repository);
+		assertEquals(targets("10.0.0.1:8080", "10.0.0.2:8080"), fetchAll(fetcher, 1));
+
+		// Physically deleted, the incremental changes can't see it.
+		repository.metas.remove("10.0.0.2:8080");
+		assertEquals(targets("10.0.0.1:8080"), fetchAll(fetcher, 1));
+		assertEquals(0L, repository.sinceVersions.get(1).longValue());
+	}
+
+	@Test
+	public void testRefreshInterval() throws Exception {
+		FakeRepository repository = new FakeRepository();
+		repository.save("10.0.0.1:8080", 100L);
+		ServiceIndicatorsMetaFetcher fetcher = new ServiceIndicatorsMetaFetcher(createConfig(200L, 60_000L), repository);
+
+		// The sharding items share one refreshing.
+		fetchAll(fetcher, 4);
+		fetchAll(fetcher, 4);
+		assertEquals(1, repository.sinceVersions.size());
+
+		repository.save("10.0.0.2:8080", 200L);
+		assertEquals(targets("10.0.0.1:8080"), fetchAll(fetcher, 4));
+		Thread.sleep(250L);
+		assertEquals(targets("10.0.0.1:8080", "10.0.0.2:8080"), fetchAll(fetcher, 4));
+		assertEquals(2, repository.sinceVersions.size());
+	}
+
+	@Test
+	public void testStaleSnapshotOnFailure() {
+		FakeRepository repository = new FakeRepository();
+		repository.save("10.0.0.1:8080", 100L);
+		ServiceIndicatorsMetaFetcher fetcher = new ServiceIndicatorsMetaFetcher(createConfig(0L, 60_000L), repository);
+		fetchAll(fetcher, 2);
+
+		repository.failing = true;
+		assertEquals(targets("10.0.0.1:8080"), fetchAll(fetcher, 2));
+	}
+
+	@Test
+	public void testSharding() {
+		FakeRepository repository = new FakeRepository();
+		Set<String> all = new HashSet<>();
+		for (int i = 0; i < 10_000; i++) {
+			String target = "10.0." + (i / 250) + "." + (i % 250) + ":8080";
+			repository.save(target, 1L);
+			all.add(target);
+		}
+		ServiceIndicatorsMetaFetcher fetcher = new ServiceIndicatorsMetaFetcher(createConfig(60_000L, 60_000L), repository);
+
+		// Each target is assigned to exactly one item, and evenly.
+		Map<String, Integer> assigned4 = assign(fetcher, 4);
+		assertEquals(all, assigned4.keySet());
+		int[] counts = new int[4];
+		assigned4.values().forEach(item -> counts[item]++);
+		for (int count : counts) {
+			assertTrue("Items: " + count, count > 10_000 / 4 * 0.8 && count < 10_000 / 4 * 1.2);
+		}
+
+		// Adding an item only moves about 1/5 to the new item.
+		Map<String, Integer> assigned5 = assign(fetcher, 5);
+		assertEquals(all, assigned5.keySet());
+		int moved = 0;
+		for (String target : all) {
+			int item = assigned5.get(target);
+			if (item != assigned4.get(target)) {
+				assertEquals(4, item);
+				moved++;
+			}
+		}
+		assertTrue("Moved: " + moved, moved > 10_000 / 5 * 0.8 && moved < 10_000 / 5 * 1.2);
+	}
+
+	private static Map<String, Integer> assign(ServiceIndicatorsMetaFetcher fetcher, int totalCount) {
+		Map<String, Integer> assigned = new HashMap<>();
+		for (int item = 0; item < totalCount; item++) {
+			for (IndicatorsMetaInfo meta : fetcher.fetch(totalCount, item)) {
+				Integer prev = assigned.put(meta.getTargetIdentifier(), item);
+				assertEquals("Assigned to both " + prev + " and " + item, null, prev);
+			}
+		}
+		return assigned;
+	}
+
+	private static Set<String> fetchAll(ServiceIndicatorsMetaFetcher fetcher, int totalCount) {
+		return assign(fetcher, totalCount).keySet();
+	}
+
+	private static Set<String> targets(String... targets) {
+		Set<String> set = new HashSet<>();
+		for (String target : targets) {
+			set.add(target);
+		}
+		return set;
+	}
+
+	private static WatchProperties createConfig(long refreshMs, long fullRefreshMs) {
+		WatchProperties config = new WatchProperties();
+		config.setMetaRefreshMs(refreshMs);
+		config.setMetaFullRefreshMs(fullRefreshMs);
+		return config;
+	}
+
+	/**
+	 * In-memory repository, deleted meta are kept as the soft deleted rows.
+	 */
+	private static class FakeRepository implements ServiceIndicatorsMetaRepository {
+
+		final private Map<String, ServiceIndicatorsMetaInfo> metas = new HashMap<>();
+
+		final private List<Long> sinceVersions = new ArrayList<>();
+
+		private int lastChanges;
+
+		private boolean failing;
+
+		@Override
+		public List<ServiceIndicatorsMetaInfo> findChanged(long sinceVersion) {
+			if (failing) {
+				throw new IllegalStateException("Unavailable");
+			}
+			sinceVersions.add(sinceVersion);
+			List<ServiceIndicatorsMetaInfo> changes = new ArrayList<>();
+			for (ServiceIndicatorsMetaInfo meta : metas.values()) {
+				if (sinceVersion <= 0 ? !meta.isDeleted() : meta.getVersion() >= sinceVersion) {
+					changes.add(meta);
+				}
+			}
+			lastChanges = changes.size();
+			return changes;
+		}
+
+		private void save(String target, long version) {
+			metas.put(target, new ServiceIndicatorsMetaInfo(target, version));
+		}
+
+		private void delete(String target, long version) {
+			ServiceIndicatorsMetaInfo meta = new ServiceIndicatorsMetaInfo(target, version);
+			meta.setDeleted(true);
+			metas.put(target, meta);
+		}
+
+	}
+
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright 2017 ~ 2025 the original author or authors. <wanglsir@gmail.com, 983708408@qq.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.devops.umc.watch;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.wl4g.devops.common.bean.umc.model.proto.MetricModel.Metric;
+import com.wl4g.devops.common.bean.umc.model.proto.MetricModel.MetricAggregate;
+import com.wl4g.devops.umc.config.WatchProperties;
+import com.wl4g.devops.umc.fetch.ServiceIndicatorsMetaInfo;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.QueryStringDecoder;
+
+/**
+ * {@link HttpIndicatorsProber} tests, its netty client requests the stub
+ * endpoints of a local netty server, the metrics of healthy, unhealthy and non-actuator responses, the deadline of
+ * slow or unreachable targets, and the in-flight probes limit.
+ *
+ * @author wangl.sir
+ * @version v1.0 2019年9月18日
+ * @since
+ */
+public class HttpIndicatorsProberTests {
+
+	final private static long TIMEOUT_MS = 5_000L;
+
+	final private AtomicInteger inflight = new AtomicInteger(0);
+
+	final private AtomicInteger maxInflight = new AtomicInteger(0);
+
+	private EventLoopGroup serverGroup;
+
+	private Channel server;
+
+	private HttpIndicatorsProber prober;
+
+	@Before
+	public void startServer() throws Exception {
+		serverGroup = new NioEventLoopGroup(2);
+		server = new ServerBootstrap().group(serverGroup).channel(NioServerSocketChannel.class)
+				.childHandler(new ChannelInitializer<SocketChannel>() {
+					@Override
+					protected void initChannel(SocketChannel ch) {
+						ch.pipeline().addLast(new HttpServerCodec(), new HttpObjectAggregator(64 * 1024),
+								new StubHandler());
+					}
+				}).bind("127.0.0.1", 0).sync().channel();
+	}
+
+	@After
+	public void stopServer() throws Exception {
+		if (prober != null) {
+			prober.destroy();
+		}
+		server.close().sync();
+		serverGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+	}
+
+	@Test
+	public void testUp() throws Exception {
+		prober = new HttpIndicatorsProber(createConfig(2_000L, 16));
+		// Default endpoint of target.
+		ServiceIndicatorsMetaInfo meta = new ServiceIndicatorsMetaInfo(address(), 1L);
+
+		MetricAggregate aggregate = prober.probe(meta).get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+		assertEquals("service", aggregate.getClassify());
+		assertEquals(address(), aggregate.getInstance());
+		assertEquals(1d, value(aggregate, "service.up", null), 0d);
+		assertEquals(200d, value(aggregate, "service.status_code", null), 0d);
+		assertTrue(value(aggregate, "service.latency", null) >= 0d);
+		assertEquals(1d, value(aggregate, "service.health", "diskSpace"), 0d);
+		assertEquals(1d, value(aggregate, "service.health", "redis"), 0d);
+	}
+
+	@Test
+	public void testDown() throws Exception {
+		prober = new HttpIndicatorsProber(createConfig(2_000L, 16));
+		MetricAggregate aggregate = prober.probe(createMeta("/down", 0L)).get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+		assertEquals(0d, value(aggregate, "service.up", null), 0d);
+		assertEquals(503d, value(aggregate, "service.status_code", null), 0d);
+		assertEquals(1d, value(aggregate, "service.health", "diskSpace"), 0d);
+		assertEquals(0d, value(aggregate, "service.health", "redis"), 0d);
+	}
+
+	@Test
+	public void testNotHealthResponse() throws Exception {
+		prober = new HttpIndicatorsProber(createConfig(2_000L, 16));
+		MetricAggregate aggregate = prober.probe(createMeta("/plain", 0L)).get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+		assertEquals(1d, value(aggregate, "service.up", null), 0d);
+		assertEquals(200d, value(aggregate, "service.status_code", null), 0d);
+		assertNull(find(aggregate, "service.health", null));
+	}
+
+	@Test
+	public void testDeadlineOfTarget() throws Exception {
+		prober = new HttpIndicatorsProber(createConfig(2_000L, 16));
+		long begin = System.currentTimeMillis();
+		// The timeout of target overrides the global one.
+		MetricAggregate aggregate = prober.probe(createMeta("/hang", 200L)).get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+		long cost = System.currentTimeMillis() - begin;
+		assertTrue("Cost: " + cost, cost >= 200L && cost < 1_000L);
+		assertEquals(0d, value(aggregate, "service.up", null), 0d);
+		assertEquals(0d, value(aggregate, "service.status_code", null), 0d);
+		assertNull(find(aggregate, "service.latency", null));
+	}
+
+	@Test
+	public void testUnreachable() throws Exception {
+		int closedPort;
+		try (ServerSocket socket = new ServerSocket(0)) {
+			closedPort = socket.getLocalPort();
+		}
+		prober = new HttpIndicatorsProber(createConfig(1_000L, 16));
+		ServiceIndicatorsMetaInfo meta = new ServiceIndicatorsMetaInfo("127.0.0.1:" + closedPort, 1L);
+		MetricAggregate aggregate = prober.probe(meta).get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+		assertEquals(0d, value(aggregate, "service.up", null), 0d);
+		assertEquals(0d, value(aggregate, "service.status_code", null), 0d);
+	}
+
+	@Test
+	public void testInflightLimit() throws Exception {
+		prober = new HttpIndicatorsProber(createConfig(2_000L, 2));
+		List<CompletableFuture<MetricAggregate>> futures = new ArrayList<>();
+		long begin = System.currentTimeMillis();
+		for (int i = 0; i < 6; i++) {
+			futures.add(prober.probe(createMeta("/slow", 0L)));
+		}
+		for (CompletableFuture<MetricAggregate> f : futures) {
+			assertEquals(200d, value(f.get(TIMEOUT_MS, TimeUnit.MILLISECONDS), "service.status_code", null), 0d);
+		}
+		long cost = System.currentTimeMillis() - begin;
+		assertTrue("Max in-flight: " + maxInflight.get(), maxInflight.get() <= 2);
+		// 3 rounds of 100ms at least.
+		assertTrue("Cost: " + cost, cost >= 300L);
+	}
+
+	private String address() {
+		return "127.0.0.1:" + ((InetSocketAddress) server.localAddress()).getPort();
+	}
+
+	private ServiceIndicatorsMetaInfo createMeta(String path, long timeoutMs) {
+		ServiceIndicatorsMetaInfo meta = new ServiceIndicatorsMetaInfo(address() + path, 1L);
+		meta.setEndpoint("http://" + address() + path);
+		meta.setTimeoutMs(timeoutMs);
+		return meta;
+	}
+
+	private static WatchProperties createConfig(long timeoutMs, int concurrency) {
+		WatchProperties config = new WatchProperties();
+		config.setProbeTimeoutMs(timeoutMs);
+		config.setProbeConcurrency(concurrency);
+		return config;
+	}
+
+	private static double value(MetricAggregate aggregate, String metric, String component) {
+		Metric m = find(aggregate, metric, component);
+		assertNotNull("No metric: " + metric + " " + component, m);
+		return m.getValue();
+	}
+
+	private static Metric find(MetricAggregate aggregate, String metric, String component) {
+		for (Metric m : aggregate.getMetricsList()) {
+			if (m.getMetric().equals(metric) && (component == null || component.equals(m.getTagsMap().get("component")))) {
+				return m;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Stub endpoints, the slow and hanging responses don't block the event
+	 * loop.
+	 */
+	private class StubHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
+
+		@Override
+		protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) {
+			switch (new QueryStringDecoder(request.uri()).path()) {
+			case "/health":
+				respond(ctx, 200,
+						"{\"status\":\"UP\",\"diskSpace\":{\"status\":\"UP\",\"total\":1},\"redis\":{\"status\":\"UP\"}}");
+				break;
+			case "/down":
+				respond(ctx, 503, "{\"status\":\"DOWN\",\"diskSpace\":{\"status\":\"UP\"},\"redis\":{\"status\":\"DOWN\"}}");
+				break;
+			case "/plain":
+				respond(ctx, 200, "OK");
+				break;
+			case "/hang": // Never responds, closed with the server.
+				break;
+			case "/slow":
+				maxInflight.accumulateAndGet(inflight.incrementAndGet(), Math::max);
+				ctx.executor().schedule(() -> {
+					inflight.decrementAndGet();
+					respond(ctx, 200, "{\"status\":\"UP\"}");
+				}, 100L, TimeUnit.MILLISECONDS);
+				break;
+			default:
+				respond(ctx, 404, "Not Found");
+			}
+		}
+
+		private void respond(ChannelHandlerContext ctx, int status, String body) {
+			FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1,
+					HttpResponseStatus.valueOf(status), Unpooled.copiedBuffer(body, UTF_8));
+			response.headers().set(HttpHeaderNames.CONTENT_TYPE, "application/json");
+			HttpUtil.setContentLength(response, response.content().readableBytes());
+			ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+		}
+
+	}
+
+}